@@ -0,0 +1,325 @@
+/*
+ * Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.interfaces.IBond.Order;
+
+/**
+ * An index of the atoms and bonds of an atom container. The index gives the
+ * position of an atom or bond and the bonds incident to an atom in constant
+ * (expected) time. Atoms and bonds are compared by reference, as they are in
+ * the atom containers.
+ *
+ * The index is used by the indexed atom containers of the data and silent
+ * modules. Appending and removing atoms and bonds updates the index, the
+ * container discards the index on any other change and builds a new one when
+ * needed.
+ *
+ * The incident bonds are also indexed for atoms which are not in the atom
+ * array, a container built from bonds alone therefore has the same
+ * neighbours as when the bonds are scanned.
+ *
+ * @cdk.module core
+ * @cdk.githash
+ * @see org.openscience.cdk.IndexedAtomContainer
+ * @see org.openscience.cdk.silent.IndexedAtomContainer
+ */
+@TestClass("org.openscience.cdk.AtomContainerIndexTest")
+public final class AtomContainerIndex {
+
+    private final Map<IAtom, Integer>     atomNumbers;
+    private final Map<IBond, Integer>     bondNumbers;
+    private final Map<IAtom, List<IBond>> incident;
+
+    /**
+     * Build an index of the first <i>atomCount</i> atoms and the first
+     * <i>bondCount</i> bonds.
+     *
+     * @param atoms     the atoms
+     * @param atomCount number of atoms
+     * @param bonds     the bonds
+     * @param bondCount number of bonds
+     */
+    @TestMethod("testIndex")
+    public AtomContainerIndex(IAtom[] atoms, int atomCount, IBond[] bonds, int bondCount) {
+        this.atomNumbers = new IdentityHashMap<IAtom, Integer>(2 * atomCount);
+        this.bondNumbers = new IdentityHashMap<IBond, Integer>(2 * bondCount);
+        this.incident    = new IdentityHashMap<IAtom, List<IBond>>(2 * atomCount);
+        for (int i = 0; i < atomCount; i++)
+            addAtom(atoms[i], i);
+        for (int i = 0; i < bondCount; i++)
+            addBond(bonds[i], i);
+    }
+
+    /**
+     * Index an atom which was added at the given position. If the atom is
+     * already at a lower position that position is kept.
+     *
+     * @param atom   the atom
+     * @param number position of the atom
+     */
+    @TestMethod("testIndex")
+    public void addAtom(IAtom atom, int number) {
+        if (!atomNumbers.containsKey(atom))
+            atomNumbers.put(atom, number);
+    }
+
+    /**
+     * Index a bond which was added at the given position. The bond is
+     * appended to the incident bonds of each of its atoms.
+     *
+     * @param bond   the bond
+     * @param number position of the bond
+     */
+    @TestMethod("testIndex,testBondOnly")
+    public void addBond(IBond bond, int number) {
+        if (!bondNumbers.containsKey(bond))
+            bondNumbers.put(bond, number);
+        for (int i = 0; i < bond.getAtomCount(); i++) {
+            IAtom atom = bond.getAtom(i);
+            if (atom == null)
+                continue;
+            List<IBond> bonds = incident.get(atom);
+            if (bonds == null) {
+                bonds = new ArrayList<IBond>(4);
+                incident.put(atom, bonds);
+            }
+            // the same atom may be listed twice in a bond, the bond is only incident once
+            if (bonds.isEmpty() || bonds.get(bonds.size() - 1) != bond)
+                bonds.add(bond);
+        }
+    }
+
+    /**
+     * Update the index after the atom at the given position was removed and
+     * the following atoms were moved down by one.
+     *
+     * @param atom      the removed atom
+     * @param number    position the atom was removed from
+     * @param atoms     the atoms after the removal
+     * @param atomCount number of atoms after the removal
+     */
+    @TestMethod("testRemove")
+    public void removeAtom(IAtom atom, int number, IAtom[] atoms, int atomCount) {
+        Integer current = atomNumbers.get(atom);
+        if (current != null && current == number)
+            atomNumbers.remove(atom);
+        renumber(atomNumbers, atoms, number, atomCount);
+    }
+
+    /**
+     * Update the index after the bond at the given position was removed and
+     * the following bonds were moved down by one.
+     *
+     * @param bond      the removed bond
+     * @param number    position the bond was removed from
+     * @param bonds     the bonds after the removal
+     * @param bondCount number of bonds after the removal
+     */
+    @TestMethod("testRemove")
+    public void removeBond(IBond bond, int number, IBond[] bonds, int bondCount) {
+        Integer current = bondNumbers.get(bond);
+        if (current != null && current == number)
+            bondNumbers.remove(bond);
+        renumber(bondNumbers, bonds, number, bondCount);
+        for (int i = 0; i < bond.getAtomCount(); i++) {
+            List<IBond> incidentBonds = incident.get(bond.getAtom(i));
+            if (incidentBonds == null)
+                continue;
+            for (int j = 0; j < incidentBonds.size(); j++) {
+                if (incidentBonds.get(j) == bond) {
+                    incidentBonds.remove(j);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reassign the positions from <i>from</i> onwards, each object keeps the
+     * position of its first occurrence.
+     */
+    private static <T> void renumber(Map<T, Integer> numbers, T[] objects, int from, int count) {
+        for (int i = from; i < count; i++) {
+            Integer current = numbers.get(objects[i]);
+            if (current == null || current > i)
+                numbers.put(objects[i], i);
+        }
+    }
+
+    /**
+     * The position of the atom, -1 if the atom is not indexed.
+     *
+     * @param atom an atom
+     * @return position of the atom
+     */
+    @TestMethod("testIndex")
+    public int atomNumber(IAtom atom) {
+        Integer number = atomNumbers.get(atom);
+        return number != null ? number : -1;
+    }
+
+    /**
+     * The position of the bond, -1 if the bond is not indexed.
+     *
+     * @param bond a bond
+     * @return position of the bond
+     */
+    @TestMethod("testIndex")
+    public int bondNumber(IBond bond) {
+        Integer number = bondNumbers.get(bond);
+        return number != null ? number : -1;
+    }
+
+    /**
+     * The bonds incident to an atom, in the order they were indexed. The list
+     * is a view and must not be modified.
+     *
+     * @param atom an atom
+     * @return the incident bonds
+     */
+    @TestMethod("testIndex,testBondOnly")
+    public List<IBond> bonds(IAtom atom) {
+        List<IBond> bonds = incident.get(atom);
+        return bonds != null ? Collections.unmodifiableList(bonds) : Collections.<IBond>emptyList();
+    }
+
+    /**
+     * The number of bonds incident to an atom.
+     *
+     * @param atom an atom
+     * @return number of incident bonds
+     */
+    @TestMethod("testIndex")
+    public int degree(IAtom atom) {
+        List<IBond> bonds = incident.get(atom);
+        return bonds != null ? bonds.size() : 0;
+    }
+
+    /**
+     * The atoms connected to an atom, in the order of the incident bonds.
+     *
+     * @param atom an atom
+     * @return a new list of the connected atoms
+     */
+    @TestMethod("testConnected")
+    public List<IAtom> connectedAtoms(IAtom atom) {
+        List<IBond> bonds = bonds(atom);
+        List<IAtom> atoms = new ArrayList<IAtom>(bonds.size());
+        for (IBond bond : bonds)
+            atoms.add(bond.getConnectedAtom(atom));
+        return atoms;
+    }
+
+    /**
+     * The bonds incident to an atom, in the order they were indexed.
+     *
+     * @param atom an atom
+     * @return a new list of the incident bonds
+     */
+    @TestMethod("testConnected")
+    public List<IBond> connectedBonds(IAtom atom) {
+        return new ArrayList<IBond>(bonds(atom));
+    }
+
+    /**
+     * The sum of the orders of the bonds incident to an atom, bonds without
+     * an order are not counted.
+     *
+     * @param atom an atom
+     * @return the bond order sum
+     */
+    @TestMethod("testBondOrders")
+    public double bondOrderSum(IAtom atom) {
+        double count = 0;
+        for (IBond bond : bonds(atom)) {
+            if (bond.getOrder() != null)
+                count += bond.getOrder().numeric();
+        }
+        return count;
+    }
+
+    /**
+     * The highest order of the bonds incident to an atom, single if the atom
+     * has no bonds.
+     *
+     * @param atom an atom
+     * @return the maximum bond order
+     */
+    @TestMethod("testBondOrders")
+    public Order maximumBondOrder(IAtom atom) {
+        Order max = Order.SINGLE;
+        for (IBond bond : bonds(atom)) {
+            if (bond.getOrder().numeric() > max.numeric())
+                max = bond.getOrder();
+        }
+        return max;
+    }
+
+    /**
+     * The lowest order of the bonds incident to an atom, quadruple if the
+     * atom has no bonds.
+     *
+     * @param atom an atom
+     * @return the minimum bond order
+     */
+    @TestMethod("testBondOrders")
+    public Order minimumBondOrder(IAtom atom) {
+        Order min = Order.QUADRUPLE;
+        for (IBond bond : bonds(atom)) {
+            if (bond.getOrder().numeric() < min.numeric())
+                min = bond.getOrder();
+        }
+        return min;
+    }
+
+    /**
+     * The bond between two atoms, null if they are not bonded.
+     *
+     * @param atom1 the first atom
+     * @param atom2 the second atom
+     * @return the bond between the atoms
+     */
+    @TestMethod("testIndex,testBondOnly")
+    public IBond bond(IAtom atom1, IAtom atom2) {
+        List<IBond> bonds = incident.get(atom1);
+        if (bonds == null)
+            return null;
+        for (IBond bond : bonds) {
+            if (bond.getConnectedAtom(atom1) == atom2)
+                return bond;
+        }
+        return null;
+    }
+}
@@ -28,6 +28,7 @@ package org.openscience.cdk;
 import com.google.common.base.Objects;
 import org.openscience.cdk.annotations.TestMethod;
 import org.openscience.cdk.event.ChemObjectChangeEvent;
+import org.openscience.cdk.event.ChemObjectChangeSetEvent;
 import org.openscience.cdk.interfaces.IChemObject;
 import org.openscience.cdk.interfaces.IChemObjectBuilder;
 import org.openscience.cdk.interfaces.IChemObjectChangeEvent;
@@ -36,6 +37,7 @@ import org.openscience.cdk.interfaces.IChemObjectListener;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -86,6 +88,18 @@ public class ChemObject implements Serializable, IChemObject, Cloneable
 	 */
 	private String identifier;
 
+	/**
+	 *  The depth of the nested batches of changes, the changes are notified
+	 *  immediately if it is 0.
+	 */
+	private transient int changeDepth;
+	/**
+	 *  The sources of the changes of the current batch, in the order they
+	 *  first changed.
+	 */
+	private transient List<Object> changes;
+	private transient Map<Object, Object> changeSources;
+
 
 	/**
 	 *  Constructs a new IChemObject.
@@ -183,11 +197,15 @@ public class ChemObject implements Serializable, IChemObject, Cloneable
 	 */
 	public void notifyChanged() {
         if (getNotification() && getListenerCount() > 0) {
+            if (changeDepth > 0) {
+                recordChange(this);
+                return;
+            }
+            // all listeners get the same event
+            IChemObjectChangeEvent event = new ChemObjectChangeEvent(this);
             List<IChemObjectListener> listeners = lazyChemObjectListeners();
             for (Object listener : listeners) {
-                ((IChemObjectListener) listener).stateChanged(
-                        new ChemObjectChangeEvent(this)
-                );
+                ((IChemObjectListener) listener).stateChanged(event);
             }
         }
 	}
@@ -204,6 +222,10 @@ public class ChemObject implements Serializable, IChemObject, Cloneable
 	 */
 	public void notifyChanged(IChemObjectChangeEvent evt) {
         if (getNotification() && getListenerCount() > 0) {
+            if (changeDepth > 0) {
+                recordChange(evt.getSource());
+                return;
+            }
             List<IChemObjectListener> listeners = lazyChemObjectListeners();
             for (Object listener : listeners) {
                 ((IChemObjectListener) listener).stateChanged(evt);
@@ -212,6 +234,47 @@ public class ChemObject implements Serializable, IChemObject, Cloneable
 	}
 
 
+	/**
+	 *  Start a batch of changes, the listeners are notified once with a
+	 *  {@link ChemObjectChangeSetEvent} when the outermost batch ends. Only the
+	 *  changes while this object has listeners are recorded.
+	 */
+	public void beginChanges() {
+		changeDepth++;
+	}
+
+
+	/**
+	 *  End a batch of changes started by {@link #beginChanges()}.
+	 *
+	 *@throws  IllegalStateException  no batch of changes was started
+	 */
+	public void endChanges() {
+		if (changeDepth == 0)
+			throw new IllegalStateException("no batch of changes was started");
+		if (--changeDepth == 0 && changes != null) {
+			List<Object> sources = changes;
+			changes = null;
+			changeSources = null;
+			notifyChanged(new ChemObjectChangeSetEvent(this, sources));
+		}
+	}
+
+
+	/**
+	 *  Record the source of a change of the current batch, each source is
+	 *  recorded once.
+	 */
+	private void recordChange(Object source) {
+		if (changes == null) {
+			changes = new ArrayList<Object>();
+			changeSources = new IdentityHashMap<Object, Object>();
+		}
+		if (changeSources.put(source, source) == null)
+			changes.add(source);
+	}
+
+
 	/**
 	 * Lazy creation of properties hash.
 	 *
@@ -337,6 +400,9 @@ public class ChemObject implements Serializable, IChemObject, Cloneable
 
 		// delete all listeners
 		clone.chemObjectListeners = null;
+		clone.changeDepth = 0;
+		clone.changes = null;
+		clone.changeSources = null;
 		return clone;
 	}
 
@@ -90,9 +90,13 @@ import org.openscience.cdk.stereo.TetrahedralChirality;
 public class DefaultChemObjectBuilder implements IChemObjectBuilder {
 
 	private static IChemObjectBuilder instance = null;
+	private static IChemObjectBuilder indexedInstance = null;
     private final DynamicFactory factory = new DynamicFactory(200);
 
-	private DefaultChemObjectBuilder() {
+	/**
+	 * @param indexed create {@link IndexedAtomContainer}s for {@link IAtomContainer}
+	 */
+	private DefaultChemObjectBuilder(boolean indexed) {
 
         // self reference required for stereo-elements
         final IChemObjectBuilder self = this;
@@ -113,7 +117,8 @@ public class DefaultChemObjectBuilder implements IChemObjectBuilder {
         factory.register(ILonePair.class,          LonePair.class);
 
         // atom containers
-        factory.register(IAtomContainer.class, AtomContainer.class);
+        factory.register(IAtomContainer.class,
+                         indexed ? IndexedAtomContainer.class : AtomContainer.class);
         factory.register(IRing.class,          Ring.class);
         factory.register(ICrystal.class,       Crystal.class);
         factory.register(IPolymer.class,       Polymer.class);
@@ -186,12 +191,32 @@ public class DefaultChemObjectBuilder implements IChemObjectBuilder {
      */
 	public static IChemObjectBuilder getInstance() {
 		if (instance == null) {
-			instance = new DefaultChemObjectBuilder();
+			instance = new DefaultChemObjectBuilder(false);
 		}
 		return instance;
 	}
 
 
+    /**
+     * Access the singleton instance of the DefaultChemObjectBuilder which creates
+     * {@link IndexedAtomContainer}s for {@link IAtomContainer}. All other
+     * objects are the same as those of {@link #getInstance()}. <p/>
+     * <pre>{@code
+     * IChemObjectBuilder builder = DefaultChemObjectBuilder.getIndexedInstance();
+     *
+     * // an IndexedAtomContainer
+     * IAtomContainer container = builder.newInstance(IAtomContainer.class);
+     * }</pre>
+     *
+     * @return a DefaultChemObjectBuilder instance creating indexed atom containers
+     */
+	public static IChemObjectBuilder getIndexedInstance() {
+		if (indexedInstance == null) {
+			indexedInstance = new DefaultChemObjectBuilder(true);
+		}
+		return indexedInstance;
+	}
+
     /**
      * @inheritDoc
      */
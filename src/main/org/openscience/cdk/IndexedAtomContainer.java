@@ -0,0 +1,260 @@
+/*
+ * Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk;
+
+import java.util.List;
+
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.interfaces.IBond.Order;
+import org.openscience.cdk.interfaces.IChemObjectChangeEvent;
+import org.openscience.cdk.interfaces.IChemObjectBuilder;
+
+/**
+ * An {@link AtomContainer} which indexes its atoms and bonds. Finding the
+ * position of an atom or bond, the bond between two atoms and the atoms or
+ * bonds connected to an atom take constant time (per neighbour) rather than
+ * a scan of all atoms or bonds.
+ *
+ * The index is updated when atoms and bonds are added or removed, any other
+ * change to the container or to the atoms of one of its bonds discards the
+ * index and it is rebuilt when next needed. A change of the atoms of a bond
+ * is only seen while the notification of the bond is switched on.
+ *
+ * The builder of {@link DefaultChemObjectBuilder#getIndexedInstance()} creates
+ * indexed atom containers. It is also the builder of an indexed atom
+ * container, so the containers made through {@link #getBuilder()} are
+ * indexed as well.
+ *
+ * @cdk.module data
+ * @cdk.githash
+ * @see AtomContainerIndex
+ */
+@TestClass("org.openscience.cdk.IndexedAtomContainerTest")
+public class IndexedAtomContainer extends AtomContainer {
+
+    private static final long serialVersionUID = -2947012436154117541L;
+
+    /* the index, null when it needs to be built */
+    private transient AtomContainerIndex index;
+
+    /**
+     * Constructs an empty indexed atom container.
+     */
+    public IndexedAtomContainer() {
+        super();
+    }
+
+    /**
+     * Constructs an indexed atom container with the atoms and electron
+     * containers of another container (a shallow copy).
+     *
+     * @param container the container to copy the atoms and electron containers from
+     */
+    public IndexedAtomContainer(IAtomContainer container) {
+        super(container);
+    }
+
+    /**
+     * Constructs an empty indexed atom container with the given initial
+     * capacities.
+     *
+     * @param atomCount number of atoms to be in this container
+     * @param bondCount number of bonds to be in this container
+     * @param lpCount   number of lone pairs to be in this container
+     * @param seCount   number of single electrons to be in this container
+     */
+    public IndexedAtomContainer(int atomCount, int bondCount, int lpCount, int seCount) {
+        super(atomCount, bondCount, lpCount, seCount);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public IChemObjectBuilder getBuilder() {
+        return DefaultChemObjectBuilder.getIndexedInstance();
+    }
+
+    private AtomContainerIndex index() {
+        if (index == null)
+            index = new AtomContainerIndex(atoms, atomCount, bonds, bondCount);
+        return index;
+    }
+
+    private void invalidate() {
+        index = null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getAtomNumber(IAtom atom) {
+        return index().atomNumber(atom);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getBondNumber(IBond bond) {
+        return index().bondNumber(bond);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public IBond getBond(IAtom atom1, IAtom atom2) {
+        return index().bond(atom1, atom2);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean contains(IAtom atom) {
+        return index().atomNumber(atom) >= 0;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean contains(IBond bond) {
+        return index().bondNumber(bond) >= 0;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<IAtom> getConnectedAtomsList(IAtom atom) {
+        return index().connectedAtoms(atom);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<IBond> getConnectedBondsList(IAtom atom) {
+        return index().connectedBonds(atom);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getConnectedAtomsCount(IAtom atom) {
+        return index().degree(atom);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @deprecated Replaced by <code>AtomContainerManipulator#getBondOrderSum(IAtomContainer, IAtom)</code>
+     */
+    @Deprecated
+    @Override
+    public double getBondOrderSum(IAtom atom) {
+        return index().bondOrderSum(atom);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Order getMaximumBondOrder(IAtom atom) {
+        return index().maximumBondOrder(atom);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Order getMinimumBondOrder(IAtom atom) {
+        return index().minimumBondOrder(atom);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void addAtom(IAtom atom) {
+        int n = atomCount;
+        super.addAtom(atom);
+        if (index != null && atomCount > n)
+            index.addAtom(atom, n);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void addBond(IBond bond) {
+        super.addBond(bond);
+        // listen to the bond, so a change of its atoms discards the index
+        bond.addListener(this);
+        if (index != null)
+            index.addBond(bond, bondCount - 1);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setAtoms(IAtom[] atoms) {
+        invalidate();
+        super.setAtoms(atoms);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setBonds(IBond[] bonds) {
+        invalidate();
+        super.setBonds(bonds);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setAtom(int number, IAtom atom) {
+        invalidate();
+        super.setAtom(number, atom);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void removeAtom(int position) {
+        IAtom atom = atoms[position];
+        super.removeAtom(position);
+        if (index != null)
+            index.removeAtom(atom, position, atoms, atomCount);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public IBond removeBond(int position) {
+        IBond bond = super.removeBond(position);
+        if (index != null)
+            index.removeBond(bond, position, bonds, bondCount);
+        return bond;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void removeAllElements() {
+        invalidate();
+        super.removeAllElements();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void removeAllBonds() {
+        invalidate();
+        super.removeAllBonds();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * A change of a bond discards the index, as its atoms may have changed.
+     */
+    @Override
+    public void stateChanged(IChemObjectChangeEvent event) {
+        if (event.getSource() instanceof IBond)
+            invalidate();
+        super.stateChanged(event);
+    }
+}
@@ -20,10 +20,15 @@
  */
 package org.openscience.cdk.atomtype;
 
-import java.util.Hashtable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.openscience.cdk.CDKConstants;
 import org.openscience.cdk.annotations.TestClass;
@@ -44,6 +49,7 @@ import org.openscience.cdk.interfaces.IRingSet;
 import org.openscience.cdk.interfaces.ISingleElectron;
 import org.openscience.cdk.interfaces.IAtomType.Hybridization;
 import org.openscience.cdk.tools.manipulator.BondManipulator;
+import org.openscience.cdk.tools.periodictable.PeriodicTable;
 
 /**
  * Atom Type matcher that perceives atom types as defined in the CDK atom type list
@@ -66,8 +72,23 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
 	private AtomTypeFactory factory;
 	private int mode;
 	
-    private static Map<Integer,Map<IChemObjectBuilder,CDKAtomTypeMatcher>> 
-    	factories = new Hashtable<Integer,Map<IChemObjectBuilder,CDKAtomTypeMatcher>>(1); 
+    private static ConcurrentMap<Integer,ConcurrentMap<IChemObjectBuilder,CDKAtomTypeMatcher>>
+    	factories = new ConcurrentHashMap<Integer,ConcurrentMap<IChemObjectBuilder,CDKAtomTypeMatcher>>(4);
+
+    /** The atomic number of each element symbol, to dispatch on. */
+    private static final Map<String,Integer> ATOMIC_NUMBERS = new HashMap<String,Integer>();
+    static {
+        for (int number = 1; number <= PeriodicTable.getElementCount(); number++) {
+            String symbol = PeriodicTable.getSymbol(number);
+            if (symbol != null) ATOMIC_NUMBERS.put(symbol, number);
+        }
+    }
+
+    /**
+     * The bonds and rings of the container typed by the current
+     * {@link #findMatchingAtomType(IAtomContainer)} call on this thread.
+     */
+    private static final ThreadLocal<Neighbours> neighbours = new ThreadLocal<Neighbours>();
     
     private CDKAtomTypeMatcher(IChemObjectBuilder builder, int mode) {
     	factory = AtomTypeFactory.getInstance(
@@ -84,20 +105,36 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
 
     @TestMethod("testGetInstance_IChemObjectBuilder_int")
     public static CDKAtomTypeMatcher getInstance(IChemObjectBuilder builder, int mode) {
-    	if (!factories.containsKey(mode))
-    		factories.put(mode, new Hashtable<IChemObjectBuilder,CDKAtomTypeMatcher>(1));
-    	if (!factories.get(mode).containsKey(builder))
-    		factories.get(mode).put(builder, new CDKAtomTypeMatcher(builder, mode));
-    	return factories.get(mode).get(builder);
+    	ConcurrentMap<IChemObjectBuilder,CDKAtomTypeMatcher> matchers = factories.get(mode);
+    	if (matchers == null) {
+    		factories.putIfAbsent(mode, new ConcurrentHashMap<IChemObjectBuilder,CDKAtomTypeMatcher>(4));
+    		matchers = factories.get(mode);
+    	}
+    	CDKAtomTypeMatcher matcher = matchers.get(builder);
+    	if (matcher == null) {
+    		matchers.putIfAbsent(builder, new CDKAtomTypeMatcher(builder, mode));
+    		matcher = matchers.get(builder);
+    	}
+    	return matcher;
     }
     
     @TestMethod("testFindMatchingAtomType_IAtomContainer")
     public IAtomType[] findMatchingAtomType(IAtomContainer atomContainer) throws CDKException {
         IAtomType[] types = new IAtomType[atomContainer.getAtomCount()];
         int typeCounter = 0;
-        for (IAtom atom : atomContainer.atoms()) {
-            types[typeCounter] = findMatchingAtomType(atomContainer, atom);
-            typeCounter++;
+        // the bonds of each atom and the rings are found once for all atoms
+        Neighbours previous = neighbours.get();
+        neighbours.set(new Neighbours(atomContainer));
+        try {
+            for (IAtom atom : atomContainer.atoms()) {
+                types[typeCounter] = findMatchingAtomType(atomContainer, atom);
+                typeCounter++;
+            }
+        } finally {
+            if (previous != null)
+                neighbours.set(previous);
+            else
+                neighbours.remove();
         }
         return types;
     }
@@ -109,117 +146,119 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
         if (atom instanceof IPseudoAtom) {
         	return factory.getAtomType("X");
         }
-        if ("C".equals(atom.getSymbol())) {
-            type = perceiveCarbons(atomContainer, atom);
-        } else if ("Li".equals(atom.getSymbol())) {
-            type = perceiveLithium(atomContainer, atom);
-        } else if ("O".equals(atom.getSymbol())) {
-            type = perceiveOxygens(atomContainer, atom);
-        } else if ("N".equals(atom.getSymbol())) {
-            type = perceiveNitrogens(atomContainer, atom);
-        } else if ("H".equals(atom.getSymbol())) {
-            type = perceiveHydrogens(atomContainer, atom);
-        } else if ("S".equals(atom.getSymbol())) {
-            type = perceiveSulphurs(atomContainer, atom);
-        } else if ("P".equals(atom.getSymbol())) {
-            type = perceivePhosphors(atomContainer, atom);
-        } else if ("Si".equals(atom.getSymbol())) {
-            type = perceiveSilicon(atomContainer, atom);
-        } else if ("B".equals(atom.getSymbol())) {
-            type = perceiveBorons(atomContainer, atom);
-        } else if ("Be".equals(atom.getSymbol())) {
-            type = perceiveBeryllium(atomContainer, atom);
-        } else if ("Cr".equals(atom.getSymbol())) {
-            type = perceiveChromium(atomContainer, atom);
-        } else if ("Se".equals(atom.getSymbol())) {
-            type = perceiveSelenium(atomContainer, atom);
-        } else if ("Mo".equals(atom.getSymbol())) {
-            type = perceiveMolybdenum(atomContainer, atom);
-        } else if ("Rb".equals(atom.getSymbol())) {
-            type = perceiveRubidium(atomContainer, atom);
-        } else if ("Te".equals(atom.getSymbol())) {
-            type = perceiveTellurium(atomContainer, atom);
-        } else if ("Cu".equals(atom.getSymbol())) {
-            type = perceiveCopper(atomContainer, atom);
-        } else if ("Ba".equals(atom.getSymbol())) {
-            type = perceiveBarium(atomContainer, atom);
-        } else if ("Ga".equals(atom.getSymbol())) {
-            type = perceiveGallium(atomContainer, atom);
-        } else if ("Ru".equals(atom.getSymbol())) {
-            type = perceiveRuthenium(atomContainer, atom);
-        } else if ("Zn".equals(atom.getSymbol())) {
-            type = perceiveZinc(atomContainer, atom);
-        } else if ("Al".equals(atom.getSymbol())) {
-            type = perceiveAluminium(atomContainer, atom);
-        }  else if ("Ni".equals(atom.getSymbol())) {
-            type = perceiveNickel(atomContainer, atom);
-        } else if ("Gd".equals(atom.getSymbol())) {
-            type = perceiveGadolinum(atomContainer, atom);
-        } else if ("Ge".equals(atom.getSymbol())) {
-            type = perceiveGermanium(atomContainer, atom);
-        } else if ("Co".equals(atom.getSymbol())) {
-            type = perceiveCobalt(atomContainer, atom);
-        } else if ("Br".equals(atom.getSymbol())) {
-            type = perceiveBromine(atomContainer, atom);
-        } else if ("V".equals(atom.getSymbol())) {
-            type = perceiveVanadium(atomContainer, atom);
-        } else if ("Ti".equals(atom.getSymbol())) {
-            type = perceiveTitanium(atomContainer, atom);
-        } else if ("Sr".equals(atom.getSymbol())) {
-            type = perceiveStrontium(atomContainer, atom);
-        } else if ("Pb".equals(atom.getSymbol())) {
-            type = perceiveLead(atomContainer, atom);
-        } else if ("Tl".equals(atom.getSymbol())) {
-            type = perceiveThallium(atomContainer, atom);
-        } else if ("Sb".equals(atom.getSymbol())) {
-            type = perceiveAntimony(atomContainer, atom);
-        } else if ("Pt".equals(atom.getSymbol())) {
-            type = perceivePlatinum(atomContainer, atom);
-        } else if ("Hg".equals(atom.getSymbol())) {
-            type = perceiveMercury(atomContainer, atom);
-        } else if ("Fe".equals(atom.getSymbol())) {
-            type = perceiveIron(atomContainer, atom);
-        } else if ("Ra".equals(atom.getSymbol())) {
-            type = perceiveRadium(atomContainer, atom);
-        } else if ("Au".equals(atom.getSymbol())) {
-            type = perceiveGold(atomContainer, atom);
-        } else if ("Ag".equals(atom.getSymbol())) {
-            type = perceiveSilver(atomContainer, atom);
-        } else if ("Cl".equals(atom.getSymbol())) {
-            type = perceiveChlorine(atomContainer, atom);
-        } else if ("In".equals(atom.getSymbol())) {
-            type = perceiveIndium(atomContainer, atom);
-        } else if ("Pu".equals(atom.getSymbol())) {
-            type = perceivePlutonium(atomContainer, atom);
-        } else if ("Th".equals(atom.getSymbol())) {
-            type = perceiveThorium(atomContainer, atom);
-        } else if ("K".equals(atom.getSymbol())) {
-            type = perceivePotassium(atomContainer, atom);
-        } else if ("Mn".equals(atom.getSymbol())) {
-            type = perceiveManganese(atomContainer, atom);
-        } else if ("Mg".equals(atom.getSymbol())) {
-            type = perceiveMagnesium(atomContainer, atom);
-        } else if ("Na".equals(atom.getSymbol())) {
-            type = perceiveSodium(atomContainer, atom);
-        } else if ("As".equals(atom.getSymbol())) {
-            type = perceiveArsenic(atomContainer, atom);
-        } else if ("Cd".equals(atom.getSymbol())) {
-            type = perceiveCadmium(atomContainer, atom);
-        } else if ("Ca".equals(atom.getSymbol())) {
-            type = perceiveCalcium(atomContainer, atom);
-        } else {
-            if (type == null) type = perceiveHalogens(atomContainer, atom);
-            if (type == null) type = perceiveCommonSalts(atomContainer, atom);
-            if (type == null) type = perceiveOrganometallicCenters(atomContainer, atom);
-            if (type == null) type = perceiveNobelGases(atomContainer, atom);
+        Integer number = ATOMIC_NUMBERS.get(atom.getSymbol());
+        switch (number != null ? number : 0) {
+            case 1: // H
+                return perceiveHydrogens(atomContainer, atom);
+            case 3: // Li
+                return perceiveLithium(atomContainer, atom);
+            case 4: // Be
+                return perceiveBeryllium(atomContainer, atom);
+            case 5: // B
+                return perceiveBorons(atomContainer, atom);
+            case 6: // C
+                return perceiveCarbons(atomContainer, atom);
+            case 7: // N
+                return perceiveNitrogens(atomContainer, atom);
+            case 8: // O
+                return perceiveOxygens(atomContainer, atom);
+            case 11: // Na
+                return perceiveSodium(atomContainer, atom);
+            case 12: // Mg
+                return perceiveMagnesium(atomContainer, atom);
+            case 13: // Al
+                return perceiveAluminium(atomContainer, atom);
+            case 14: // Si
+                return perceiveSilicon(atomContainer, atom);
+            case 15: // P
+                return perceivePhosphors(atomContainer, atom);
+            case 16: // S
+                return perceiveSulphurs(atomContainer, atom);
+            case 17: // Cl
+                return perceiveChlorine(atomContainer, atom);
+            case 19: // K
+                return perceivePotassium(atomContainer, atom);
+            case 20: // Ca
+                return perceiveCalcium(atomContainer, atom);
+            case 22: // Ti
+                return perceiveTitanium(atomContainer, atom);
+            case 23: // V
+                return perceiveVanadium(atomContainer, atom);
+            case 24: // Cr
+                return perceiveChromium(atomContainer, atom);
+            case 25: // Mn
+                return perceiveManganese(atomContainer, atom);
+            case 26: // Fe
+                return perceiveIron(atomContainer, atom);
+            case 27: // Co
+                return perceiveCobalt(atomContainer, atom);
+            case 28: // Ni
+                return perceiveNickel(atomContainer, atom);
+            case 29: // Cu
+                return perceiveCopper(atomContainer, atom);
+            case 30: // Zn
+                return perceiveZinc(atomContainer, atom);
+            case 31: // Ga
+                return perceiveGallium(atomContainer, atom);
+            case 32: // Ge
+                return perceiveGermanium(atomContainer, atom);
+            case 33: // As
+                return perceiveArsenic(atomContainer, atom);
+            case 34: // Se
+                return perceiveSelenium(atomContainer, atom);
+            case 35: // Br
+                return perceiveBromine(atomContainer, atom);
+            case 37: // Rb
+                return perceiveRubidium(atomContainer, atom);
+            case 38: // Sr
+                return perceiveStrontium(atomContainer, atom);
+            case 42: // Mo
+                return perceiveMolybdenum(atomContainer, atom);
+            case 44: // Ru
+                return perceiveRuthenium(atomContainer, atom);
+            case 47: // Ag
+                return perceiveSilver(atomContainer, atom);
+            case 48: // Cd
+                return perceiveCadmium(atomContainer, atom);
+            case 49: // In
+                return perceiveIndium(atomContainer, atom);
+            case 51: // Sb
+                return perceiveAntimony(atomContainer, atom);
+            case 52: // Te
+                return perceiveTellurium(atomContainer, atom);
+            case 56: // Ba
+                return perceiveBarium(atomContainer, atom);
+            case 64: // Gd
+                return perceiveGadolinum(atomContainer, atom);
+            case 78: // Pt
+                return perceivePlatinum(atomContainer, atom);
+            case 79: // Au
+                return perceiveGold(atomContainer, atom);
+            case 80: // Hg
+                return perceiveMercury(atomContainer, atom);
+            case 81: // Tl
+                return perceiveThallium(atomContainer, atom);
+            case 82: // Pb
+                return perceiveLead(atomContainer, atom);
+            case 88: // Ra
+                return perceiveRadium(atomContainer, atom);
+            case 90: // Th
+                return perceiveThorium(atomContainer, atom);
+            case 94: // Pu
+                return perceivePlutonium(atomContainer, atom);
+            default:
+                if (type == null) type = perceiveHalogens(atomContainer, atom);
+                if (type == null) type = perceiveCommonSalts(atomContainer, atom);
+                if (type == null) type = perceiveOrganometallicCenters(atomContainer, atom);
+                if (type == null) type = perceiveNobelGases(atomContainer, atom);
         }
         return type;
     }
     
     private IAtomType perceiveGallium(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+        IBond.Order maxBondOrder = getMaximumBondOrder(atomContainer, atom);
         if (!isCharged(atom) && maxBondOrder == IBond.Order.SINGLE &&
-            atomContainer.getConnectedAtomsCount(atom) <= 3) {
+            getConnectedAtomsCount(atomContainer, atom) <= 3) {
             IAtomType type = getAtomType("Ga");
             if (isAcceptable(atom, atomContainer, type)) return type;
         } else if (atom.getFormalCharge() == 3) {
@@ -230,13 +269,13 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     }
 
     private IAtomType perceiveGermanium(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+        IBond.Order maxBondOrder = getMaximumBondOrder(atomContainer, atom);
         if (!isCharged(atom) && maxBondOrder == IBond.Order.SINGLE &&
-            atomContainer.getConnectedAtomsCount(atom) <= 4) {
+            getConnectedAtomsCount(atomContainer, atom) <= 4) {
             IAtomType type = getAtomType("Ge");
             if (isAcceptable(atom, atomContainer, type)) return type;
         }
-        if (atom.getFormalCharge() == 0 && atomContainer.getConnectedAtomsCount(atom) == 3) {
+        if (atom.getFormalCharge() == 0 && getConnectedAtomsCount(atomContainer, atom) == 3) {
             IAtomType type = getAtomType("Ge.3");
             if (isAcceptable(atom, atomContainer, type)) return type;
         }
@@ -248,7 +287,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
             int doublebondcount = countAttachedDoubleBonds(atomContainer, atom);
             if (atom.getFormalCharge() != CDKConstants.UNSET
                     && atom.getFormalCharge() == 0) {
-                if (atomContainer.getConnectedAtomsCount(atom) == 0) {
+                if (getConnectedAtomsCount(atomContainer, atom) == 0) {
                 	if (atom.getImplicitHydrogenCount() != null && atom.getImplicitHydrogenCount() == 0 ) {
                 		IAtomType type = getAtomType("Se.2");
                 		if (isAcceptable(atom, atomContainer, type)) return type;
@@ -256,7 +295,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
                 		IAtomType type = getAtomType("Se.3");
                 		if (isAcceptable(atom, atomContainer, type)) return type;
                 	}
-                } else if (atomContainer.getConnectedAtomsCount(atom) == 1) {
+                } else if (getConnectedAtomsCount(atomContainer, atom) == 1) {
 
                     if (doublebondcount == 1) {
                         IAtomType type = getAtomType("Se.1");
@@ -265,7 +304,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
                         IAtomType type = getAtomType("Se.3");
                         if (isAcceptable(atom, atomContainer, type)) return type;
                     }
-                } else if (atomContainer.getConnectedAtomsCount(atom) == 2) {
+                } else if (getConnectedAtomsCount(atomContainer, atom) == 2) {
                     if (doublebondcount == 0) {
                         IAtomType type = getAtomType("Se.3");
                         if (isAcceptable(atom, atomContainer, type)) return type;
@@ -273,10 +312,10 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
                         IAtomType type = getAtomType("Se.sp2.2");
                         if (isAcceptable(atom, atomContainer, type)) return type;
                     }
-                } else if (atomContainer.getConnectedAtomsCount(atom) == 3) {
+                } else if (getConnectedAtomsCount(atomContainer, atom) == 3) {
                     IAtomType type = getAtomType("Se.sp3.3");
                     if (isAcceptable(atom, atomContainer, type)) return type;
-                } else if (atomContainer.getConnectedAtomsCount(atom) == 4) {
+                } else if (getConnectedAtomsCount(atomContainer, atom) == 4) {
                     if (doublebondcount == 2) {
                         IAtomType type = getAtomType("Se.sp3.4");
                         if (isAcceptable(atom, atomContainer, type)) return type;
@@ -284,20 +323,20 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
                         IAtomType type = getAtomType("Se.sp3d1.4");
                         if (isAcceptable(atom, atomContainer, type)) return type;
                     }
-                } else if (atomContainer.getConnectedAtomsCount(atom) == 5) {
+                } else if (getConnectedAtomsCount(atomContainer, atom) == 5) {
                     IAtomType type = getAtomType("Se.5");
                     if (isAcceptable(atom, atomContainer, type)) return type;
                 }
             } else if ((atom.getFormalCharge() != CDKConstants.UNSET && atom.getFormalCharge() == 4)
-                    && atomContainer.getConnectedAtomsCount(atom) == 0) {
+                    && getConnectedAtomsCount(atomContainer, atom) == 0) {
                 IAtomType type = getAtomType("Se.4plus");
                 if (isAcceptable(atom, atomContainer, type)) return type;
             } else if ((atom.getFormalCharge() != CDKConstants.UNSET && atom.getFormalCharge() == 1)
-                    && atomContainer.getConnectedAtomsCount(atom) == 3) {
+                    && getConnectedAtomsCount(atomContainer, atom) == 3) {
                 IAtomType type = getAtomType("Se.plus.3");
                 if (isAcceptable(atom, atomContainer, type)) return type;
             } else if ((atom.getFormalCharge() != CDKConstants.UNSET && atom.getFormalCharge() == -2)
-                    && atomContainer.getConnectedAtomsCount(atom) == 0) {
+                    && getConnectedAtomsCount(atomContainer, atom) == 0) {
                 IAtomType type = getAtomType("Se.2minus");
                 if (isAcceptable(atom, atomContainer, type)) return type;
             }
@@ -306,12 +345,12 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     }
 
     private IAtomType perceiveTellurium(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
-        if (!isCharged(atom) && maxBondOrder == IBond.Order.SINGLE && atomContainer.getConnectedAtomsCount(atom) <= 2) {
+        IBond.Order maxBondOrder = getMaximumBondOrder(atomContainer, atom);
+        if (!isCharged(atom) && maxBondOrder == IBond.Order.SINGLE && getConnectedAtomsCount(atomContainer, atom) <= 2) {
             IAtomType type = getAtomType("Te.3");
             if (isAcceptable(atom, atomContainer, type)) return type;
         } else if (atom.getFormalCharge() == 4) {
-            if (atomContainer.getConnectedAtomsCount(atom) == 0) {
+            if (getConnectedAtomsCount(atomContainer, atom) == 0) {
                 IAtomType type = getAtomType("Te.4plus");
                 if (isAcceptable(atom, atomContainer, type)) return type;
             }
@@ -321,17 +360,17 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
 
 	private IAtomType perceiveBorons(IAtomContainer atomContainer, IAtom atom)
 		throws CDKException {
-	    IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+	    IBond.Order maxBondOrder = getMaximumBondOrder(atomContainer, atom);
 	    if (atom.getFormalCharge() == -1 && 
 	        maxBondOrder == IBond.Order.SINGLE &&
-	        atomContainer.getConnectedAtomsCount(atom) <= 4) {
+	        getConnectedAtomsCount(atomContainer, atom) <= 4) {
 	        IAtomType type = getAtomType("B.minus");
 	        if (isAcceptable(atom, atomContainer, type)) return type;
 	    } else if (atom.getFormalCharge() == +3
-                && atomContainer.getConnectedAtomsCount(atom) == 4) {
+                && getConnectedAtomsCount(atomContainer, atom) == 4) {
             IAtomType type = getAtomType("B.3plus");
             if (isAcceptable(atom, atomContainer, type)) return type;
-	    } else if (atomContainer.getConnectedAtomsCount(atom) <= 3) {
+	    } else if (getConnectedAtomsCount(atomContainer, atom) <= 3) {
 	        IAtomType type = getAtomType("B");
 	        if (isAcceptable(atom, atomContainer, type)) return type;
 	    }
@@ -341,12 +380,12 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     private IAtomType perceiveBeryllium(IAtomContainer atomContainer, IAtom atom)
     	throws CDKException {
 		if (atom.getFormalCharge() == -2 &&
-		    atomContainer.getMaximumBondOrder(atom) == IBond.Order.SINGLE &&
-		    atomContainer.getConnectedAtomsCount(atom) <= 4) {
+		    getMaximumBondOrder(atomContainer, atom) == IBond.Order.SINGLE &&
+		    getConnectedAtomsCount(atomContainer, atom) <= 4) {
 		    IAtomType type = getAtomType("Be.2minus");
 		    if (isAcceptable(atom, atomContainer, type)) return type;
 		} else if (atom.getFormalCharge() == 0 &&
-                   atomContainer.getConnectedAtomsCount(atom) == 0) {
+                   getConnectedAtomsCount(atomContainer, atom) == 0) {
             IAtomType type = getAtomType("Be.neutral");
             if (isAcceptable(atom, atomContainer, type)) return type;
         }
@@ -354,11 +393,11 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     }
 
     private IAtomType perceiveCarbonRadicals(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        if (atomContainer.getConnectedBondsCount(atom) == 0) {
+        if (getConnectedBondsCount(atomContainer, atom) == 0) {
             IAtomType type = getAtomType("C.radical.planar");
             if (isAcceptable(atom, atomContainer, type)) return type;
-        } else if (atomContainer.getConnectedBondsCount(atom) <= 3) {
-            IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+        } else if (getConnectedBondsCount(atomContainer, atom) <= 3) {
+            IBond.Order maxBondOrder = getMaximumBondOrder(atomContainer, atom);
             if (maxBondOrder == IBond.Order.SINGLE) {
                 IAtomType type = getAtomType("C.radical.planar");
                 if (isAcceptable(atom, atomContainer, type)) return type;
@@ -386,7 +425,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
 	            IAtomType type = getAtomType("C.sp3");
 	            if (isAcceptable(atom, atomContainer, type)) return type;
 	        } else if (atom.getHybridization() == Hybridization.SP1) {
-	        	IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+	        	IBond.Order maxBondOrder = getMaximumBondOrder(atomContainer, atom);
 	        	if (maxBondOrder == Order.TRIPLE) {
 		            IAtomType type = getAtomType("C.sp");
 		            if (isAcceptable(atom, atomContainer, type)) return type;
@@ -403,11 +442,11 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
 	        if (isAcceptable(atom, atomContainer, type)) return type;
 	    } else if (isCharged(atom)) {
 	        if (atom.getFormalCharge() == 1) {
-	            if (atomContainer.getConnectedBondsCount(atom) == 0) {
+	            if (getConnectedBondsCount(atomContainer, atom) == 0) {
 	                IAtomType type = getAtomType("C.plus.sp2");
 	                if (isAcceptable(atom, atomContainer, type)) return type;
 	            } else {
-	                IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+	                IBond.Order maxBondOrder = getMaximumBondOrder(atomContainer, atom);
 	                if (maxBondOrder == CDKConstants.BONDORDER_TRIPLE) {
 	                    IAtomType type = getAtomType("C.plus.sp1");
 	                    if (isAcceptable(atom, atomContainer, type)) return type;
@@ -420,9 +459,9 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
 	                } 
 	            }
 	        } else if (atom.getFormalCharge() == -1) {
-	            IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+	            IBond.Order maxBondOrder = getMaximumBondOrder(atomContainer, atom);
 	            if (maxBondOrder == CDKConstants.BONDORDER_SINGLE &&
-	                    atomContainer.getConnectedBondsCount(atom) <= 3) {
+	                    getConnectedBondsCount(atomContainer, atom) <= 3) {
 	                if (isRingAtom(atom, atomContainer) && bothNeighborsAreSp2(atom, atomContainer)) {
 	                    IAtomType type = getAtomType("C.minus.planar");
 	                    if (isAcceptable(atom, atomContainer, type)) return type;
@@ -430,21 +469,21 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
 	                IAtomType type = getAtomType("C.minus.sp3");
 	                if (isAcceptable(atom, atomContainer, type)) return type;
 	            } else if (maxBondOrder == CDKConstants.BONDORDER_DOUBLE &&
-	                    atomContainer.getConnectedBondsCount(atom) <= 3) {
+	                    getConnectedBondsCount(atomContainer, atom) <= 3) {
 	                IAtomType type = getAtomType("C.minus.sp2");
 	                if (isAcceptable(atom, atomContainer, type)) return type;
 	            } else if (maxBondOrder == CDKConstants.BONDORDER_TRIPLE &&
-	                    atomContainer.getConnectedBondsCount(atom) <= 1) {
+	                    getConnectedBondsCount(atomContainer, atom) <= 1) {
 	                IAtomType type = getAtomType("C.minus.sp1");
 	                if (isAcceptable(atom, atomContainer, type)) return type;
 	            }
 	        }
 	        return null;
-	    } else if (atomContainer.getConnectedBondsCount(atom) > 4) {
+	    } else if (getConnectedBondsCount(atomContainer, atom) > 4) {
 	        // FIXME: I don't perceive carbons with more than 4 connections yet
 	        return null;
 	    } else { // OK, use bond order info
-	        IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+	        IBond.Order maxBondOrder = getMaximumBondOrder(atomContainer, atom);
 	        if (maxBondOrder == IBond.Order.QUADRUPLE) {
 	            // WTF??
 	            return null;
@@ -474,7 +513,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     }
 
     private boolean hasOneOrMoreSingleOrDoubleBonds(IAtomContainer atomContainer, IAtom atom) {
-    	for (IBond bond : atomContainer.getConnectedBondsList(atom)) {
+    	for (IBond bond : getConnectedBondsList(atomContainer, atom)) {
     		if (bond.getFlag(CDKConstants.SINGLE_OR_DOUBLE)) return true;
     	}
 		return false;
@@ -499,16 +538,16 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
 
     private IAtomType perceiveOxygenRadicals(IAtomContainer atomContainer, IAtom atom) throws CDKException {
         if (atom.getFormalCharge() == 0) {
-            if (atomContainer.getConnectedBondsCount(atom) <= 1) {
+            if (getConnectedBondsCount(atomContainer, atom) <= 1) {
                 IAtomType type = getAtomType("O.sp3.radical");
                 if (isAcceptable(atom, atomContainer, type)) return type;
             }
         } else if (atom.getFormalCharge() == +1) {
-            if (atomContainer.getConnectedBondsCount(atom) == 0) {
+            if (getConnectedBondsCount(atomContainer, atom) == 0) {
                 IAtomType type = getAtomType("O.plus.radical");
                 if (isAcceptable(atom, atomContainer, type)) return type;
-            } else if (atomContainer.getConnectedBondsCount(atom) <= 2) {
-                IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+            } else if (getConnectedBondsCount(atomContainer, atom) <= 2) {
+                IBond.Order maxBondOrder = getMaximumBondOrder(atomContainer, atom);
                 if (maxBondOrder == IBond.Order.SINGLE) {
                     IAtomType type = getAtomType("O.plus.radical");
                     if (isAcceptable(atom, atomContainer, type)) return type;
@@ -537,7 +576,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
 	    // if hybridization is given, use that
 	    if (hasHybridization(atom) && !isCharged(atom)) {
 	        if (atom.getHybridization() == Hybridization.SP2) {
-	            int connectedAtomsCount = atomContainer.getConnectedAtomsCount(atom);
+	            int connectedAtomsCount = getConnectedAtomsCount(atomContainer, atom);
 	            if (connectedAtomsCount == 1) {
 	                if (isCarboxylate(atom, atomContainer)) {
 	                    IAtomType type = getAtomType("O.sp2.co2");
@@ -559,7 +598,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
 	        }
 	    } else if (isCharged(atom)) {
 	        if (atom.getFormalCharge() == -1 &&
-	                atomContainer.getConnectedAtomsCount(atom) <= 1) {
+	                getConnectedAtomsCount(atomContainer, atom) <= 1) {
 	            if (isCarboxylate(atom, atomContainer)) {
 	                IAtomType type = getAtomType("O.minus.co2");
 	                if (isAcceptable(atom, atomContainer, type)) return type;
@@ -568,15 +607,15 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
 	                if (isAcceptable(atom, atomContainer, type)) return type;
 	            }
 	        } else if (atom.getFormalCharge() == -2 &&
-	                atomContainer.getConnectedAtomsCount(atom) == 0) {
+	                getConnectedAtomsCount(atomContainer, atom) == 0) {
 	            IAtomType type = getAtomType("O.minus2");
 	            if (isAcceptable(atom, atomContainer, type)) return type;
 	        } else if (atom.getFormalCharge() == +1) {
-	            if (atomContainer.getConnectedBondsCount(atom) == 0) {
+	            if (getConnectedBondsCount(atomContainer, atom) == 0) {
 	                IAtomType type = getAtomType("O.plus");
 	                if (isAcceptable(atom, atomContainer, type)) return type;
 	            }
-	            IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+	            IBond.Order maxBondOrder = getMaximumBondOrder(atomContainer, atom);
 	            if (maxBondOrder == CDKConstants.BONDORDER_DOUBLE) {
 	                IAtomType type = getAtomType("O.plus.sp2");
 	                if (isAcceptable(atom, atomContainer, type)) return type;
@@ -589,14 +628,14 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
 	            }
 	        }
 	        return null;
-	    } else if (atomContainer.getConnectedBondsCount(atom) > 2) {
+	    } else if (getConnectedBondsCount(atomContainer, atom) > 2) {
 	        // FIXME: I don't perceive carbons with more than 4 connections yet
 	        return null;
-	    } else if (atomContainer.getConnectedBondsCount(atom) == 0) {
+	    } else if (getConnectedBondsCount(atomContainer, atom) == 0) {
 	        IAtomType type = getAtomType("O.sp3");
 	        if (isAcceptable(atom, atomContainer, type)) return type;
 	    } else { // OK, use bond order info
-	        IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+	        IBond.Order maxBondOrder = getMaximumBondOrder(atomContainer, atom);
 	        if (maxBondOrder == CDKConstants.BONDORDER_DOUBLE) {
 	            if (isCarboxylate(atom, atomContainer)) {
 	                IAtomType type = getAtomType("O.sp2.co2");
@@ -607,7 +646,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
 	            }
 	        } else if (maxBondOrder == CDKConstants.BONDORDER_SINGLE) {
 	            int explicitHydrogens = countExplicitHydrogens(atom, atomContainer);
-	            int connectedHeavyAtoms = atomContainer.getConnectedBondsCount(atom) - explicitHydrogens; 
+	            int connectedHeavyAtoms = getConnectedBondsCount(atomContainer, atom) - explicitHydrogens; 
 	            if (connectedHeavyAtoms == 2) {
 	                // a O.sp3 which is expected to take part in an aromatic system
 	                if (isRingAtom(atom, atomContainer) && bothNeighborsAreSp2(atom, atomContainer)) {
@@ -627,7 +666,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
 
     private boolean isCarboxylate(IAtom atom, IAtomContainer container) {
         // assumes that the oxygen only has one neighbor (C=O, or C-[O-])
-        List<IAtom> neighbors = container.getConnectedAtomsList(atom);
+        List<IAtom> neighbors = getConnectedAtomsList(container, atom);
         if (neighbors.size() != 1) return false;
         IAtom carbon = neighbors.get(0);
         if (!"C".equals(carbon.getSymbol())) return false;
@@ -635,7 +674,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
         int oxygenCount = 0;
         int singleBondedNegativeOxygenCount = 0;
         int doubleBondedOxygenCount = 0;
-        for (IBond cBond : container.getConnectedBondsList(carbon)) {
+        for (IBond cBond : getConnectedBondsList(container, carbon)) {
             IAtom neighbor = cBond.getConnectedAtom(carbon);
             if ("O".equals(neighbor.getSymbol())) {
                 oxygenCount++;
@@ -653,7 +692,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
 
     private boolean atLeastTwoNeighborsAreSp2(IAtom atom, IAtomContainer atomContainer) {
     	int count = 0;
-    	Iterator<IAtom> atoms = atomContainer.getConnectedAtomsList(atom).iterator();
+    	Iterator<IAtom> atoms = getConnectedAtomsList(atomContainer, atom).iterator();
     	while (atoms.hasNext() && (count < 2)) {
     		IAtom nextAtom = atoms.next();
     		if (!nextAtom.getSymbol().equals("H")) {
@@ -678,9 +717,9 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     }
 
     private IAtomType perceiveNitrogenRadicals(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        if (atomContainer.getConnectedBondsCount(atom) >= 1 &&
-                atomContainer.getConnectedBondsCount(atom) <= 2) {
-            IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+        if (getConnectedBondsCount(atomContainer, atom) >= 1 &&
+                getConnectedBondsCount(atomContainer, atom) <= 2) {
+            IBond.Order maxBondOrder = getMaximumBondOrder(atomContainer, atom);
             if (atom.getFormalCharge() != CDKConstants.UNSET &&
                     atom.getFormalCharge() == +1) {
                 if (maxBondOrder == IBond.Order.DOUBLE) {
@@ -701,7 +740,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
                 }
             }
         } else {
-            IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+            IBond.Order maxBondOrder = getMaximumBondOrder(atomContainer, atom);
             if (atom.getFormalCharge() != CDKConstants.UNSET &&
                     atom.getFormalCharge() == +1 && maxBondOrder == IBond.Order.SINGLE) {
                 IAtomType type = getAtomType("N.plus.sp3.radical");
@@ -713,7 +752,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     private IAtomType perceiveMolybdenum(IAtomContainer atomContainer, IAtom atom) throws CDKException {
         if (atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0) {
-            int neighbors = atomContainer.getConnectedAtomsCount(atom);
+            int neighbors = getConnectedAtomsCount(atomContainer, atom);
             if (neighbors == 4) {
                 IAtomType type = getAtomType("Mo.4");
                 if (isAcceptable(atom, atomContainer, type)) {
@@ -733,7 +772,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
             return perceiveNitrogenRadicals(atomContainer, atom);
         } else if (hasHybridization(atom) && !isCharged(atom)) {
             if (atom.getHybridization() == Hybridization.SP1) {
-                int neighborCount = atomContainer.getConnectedAtomsCount(atom);
+                int neighborCount = getConnectedAtomsCount(atomContainer, atom);
                 if (neighborCount > 1) {
                     IAtomType type = getAtomType("N.sp1.2");
                     if (isAcceptable(atom, atomContainer, type)) return type;
@@ -750,9 +789,9 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
                     if (isAcceptable(atom, atomContainer, type)) return type;
                 }
                 // but an sp2 hyb N might N.sp2 or N.planar3 (pyrrole), so check for the latter
-            	int neighborCount = atomContainer.getConnectedAtomsCount(atom);
+            	int neighborCount = getConnectedAtomsCount(atomContainer, atom);
             	if (neighborCount == 4 &&
-            	    IBond.Order.DOUBLE == atomContainer.getMaximumBondOrder(atom)) {
+            	    IBond.Order.DOUBLE == getMaximumBondOrder(atomContainer, atom)) {
             	    IAtomType type = getAtomType("N.oxide");
                     if (isAcceptable(atom, atomContainer, type)) return type;
             	} else
@@ -761,7 +800,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
             		int ringSize = ring == null ? 0 : ring.getAtomCount();
             		if (ring != null && ring.getAtomCount() > 0) {
             			if (neighborCount == 3) {
-                            IBond.Order maxOrder = atomContainer.getMaximumBondOrder(atom);
+                            IBond.Order maxOrder = getMaximumBondOrder(atomContainer, atom);
                             if (maxOrder == IBond.Order.DOUBLE) {
                                 IAtomType type = getAtomType("N.sp2.3");
                                 if (isAcceptable(atom, atomContainer, type)) return type;
@@ -770,7 +809,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
                                 if (isAcceptable(atom, atomContainer, type)) return type;
                             }
             			} else if (neighborCount == 2) {
-            				IBond.Order maxOrder = atomContainer.getMaximumBondOrder(atom);
+            				IBond.Order maxOrder = getMaximumBondOrder(atomContainer, atom);
             				if (maxOrder == IBond.Order.SINGLE) {
             				    if (atom.getImplicitHydrogenCount() != CDKConstants.UNSET && atom.getImplicitHydrogenCount() == 1) {
             						IAtomType type = getAtomType("N.planar3");
@@ -792,8 +831,8 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
                 IAtomType type = getAtomType("N.sp3");
                 if (isAcceptable(atom, atomContainer, type)) return type;
             } else if (atom.getHybridization() == Hybridization.PLANAR3) {
-                IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
-                if (atomContainer.getConnectedAtomsCount(atom) == 3 &&
+                IBond.Order maxBondOrder = getMaximumBondOrder(atomContainer, atom);
+                if (getConnectedAtomsCount(atomContainer, atom) == 3 &&
                         maxBondOrder == CDKConstants.BONDORDER_DOUBLE &&
                         countAttachedDoubleBonds(atomContainer, atom, "O") == 2) {
                     IAtomType type = getAtomType("N.nitro");
@@ -804,9 +843,9 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
             }
         } else if (isCharged(atom)) {
             if (atom.getFormalCharge() == 1) {
-                IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+                IBond.Order maxBondOrder = getMaximumBondOrder(atomContainer, atom);
                 if (maxBondOrder == CDKConstants.BONDORDER_SINGLE ||
-                        atomContainer.getConnectedBondsCount(atom) == 0) {
+                        getConnectedBondsCount(atomContainer, atom) == 0) {
                     if (atom.getHybridization() == IAtomType.Hybridization.SP2) {
                         IAtomType type = getAtomType("N.plus.sp2");
                         if (isAcceptable(atom, atomContainer, type)) return type;
@@ -823,42 +862,42 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
                         if (isAcceptable(atom, atomContainer, type)) return type;
                     }
                 } else if (maxBondOrder == CDKConstants.BONDORDER_TRIPLE) {
-                    if (atomContainer.getConnectedBondsCount(atom) == 2) {
+                    if (getConnectedBondsCount(atomContainer, atom) == 2) {
                         IAtomType type = getAtomType("N.plus.sp1");
                         if (isAcceptable(atom, atomContainer, type)) return type;
                     }
                 }
             } else if (atom.getFormalCharge() == -1) {
-                IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+                IBond.Order maxBondOrder = getMaximumBondOrder(atomContainer, atom);
                 if (maxBondOrder == CDKConstants.BONDORDER_SINGLE) {
-                    if (atomContainer.getConnectedAtomsCount(atom) >= 2 &&
+                    if (getConnectedAtomsCount(atomContainer, atom) >= 2 &&
                     		bothNeighborsAreSp2(atom,atomContainer) &&
                     		isRingAtom(atom, atomContainer)) {
                         IAtomType type = getAtomType("N.minus.planar3");
                         if (isAcceptable(atom, atomContainer, type)) return type;
-                    } else if (atomContainer.getConnectedBondsCount(atom) <= 2) {
+                    } else if (getConnectedBondsCount(atomContainer, atom) <= 2) {
                         IAtomType type = getAtomType("N.minus.sp3");
                         if (isAcceptable(atom, atomContainer, type)) return type;
                     }
                 } else if (maxBondOrder == CDKConstants.BONDORDER_DOUBLE) {
-                    if (atomContainer.getConnectedBondsCount(atom) <= 1) {
+                    if (getConnectedBondsCount(atomContainer, atom) <= 1) {
                         IAtomType type = getAtomType("N.minus.sp2");
                         if (isAcceptable(atom, atomContainer, type)) return type;
                     }
                 }
             }
-        } else if (atomContainer.getConnectedBondsCount(atom) > 3) {
-            if (atomContainer.getConnectedBondsCount(atom) == 4 &&
+        } else if (getConnectedBondsCount(atomContainer, atom) > 3) {
+            if (getConnectedBondsCount(atomContainer, atom) == 4 &&
                 countAttachedDoubleBonds(atomContainer, atom) == 1) {
                 IAtomType type = getAtomType("N.oxide");
                 if (isAcceptable(atom, atomContainer, type)) return type;
             }
             return null;
-        } else if (atomContainer.getConnectedBondsCount(atom) == 0) {
+        } else if (getConnectedBondsCount(atomContainer, atom) == 0) {
             IAtomType type = getAtomType("N.sp3");
             if (isAcceptable(atom, atomContainer, type)) return type;
         } else if (hasOneOrMoreSingleOrDoubleBonds(atomContainer, atom)) {
-        	int connectedAtoms = atomContainer.getConnectedAtomsCount(atom) +
+        	int connectedAtoms = getConnectedAtomsCount(atomContainer, atom) +
         		(atom.getImplicitHydrogenCount() == CDKConstants.UNSET
         		    ? 0
         			: atom.getImplicitHydrogenCount());
@@ -869,7 +908,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
         	IAtomType type = getAtomType("N.sp2");
         	if (isAcceptable(atom, atomContainer, type)) return type;
         } else { // OK, use bond order info
-            IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+            IBond.Order maxBondOrder = getMaximumBondOrder(atomContainer, atom);
             if (maxBondOrder == CDKConstants.BONDORDER_SINGLE) {
                 if (isAmide(atom, atomContainer)) {
                     IAtomType type = getAtomType("N.amide");
@@ -879,14 +918,14 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
                     if (isAcceptable(atom, atomContainer, type)) return type;
                 }
                 int explicitHydrogens = countExplicitHydrogens(atom, atomContainer);
-                int connectedHeavyAtoms = atomContainer.getConnectedBondsCount(atom) - explicitHydrogens;
+                int connectedHeavyAtoms = getConnectedBondsCount(atomContainer, atom) - explicitHydrogens;
                 if (connectedHeavyAtoms == 2) {
-                	List<IBond> bonds = atomContainer.getConnectedBondsList(atom);
+                	List<IBond> bonds = getConnectedBondsList(atomContainer, atom);
                     if (bonds.get(0).getFlag(CDKConstants.ISAROMATIC) &&
                             bonds.get(1).getFlag(CDKConstants.ISAROMATIC)) {
                         Integer hCount = atom.getImplicitHydrogenCount();
                         if (hCount == CDKConstants.UNSET || hCount == 0) {
-                            if (atomContainer.getMaximumBondOrder(atom) == CDKConstants.BONDORDER_SINGLE &&
+                            if (getMaximumBondOrder(atomContainer, atom) == CDKConstants.BONDORDER_SINGLE &&
                                     isSingleHeteroAtom(atom, atomContainer)) {
                                 IAtomType type = getAtomType("N.planar3");
                                 if (isAcceptable(atom, atomContainer, type)) return type;
@@ -922,11 +961,11 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
                     if (isAcceptable(atom, atomContainer, type)) return type;
                 }
             } else if (maxBondOrder == CDKConstants.BONDORDER_DOUBLE) {
-                if (atomContainer.getConnectedAtomsCount(atom) == 3 &&
+                if (getConnectedAtomsCount(atomContainer, atom) == 3 &&
                         countAttachedDoubleBonds(atomContainer, atom, "O") == 2) {
                     IAtomType type = getAtomType("N.nitro");
                     if (isAcceptable(atom, atomContainer, type)) return type;
-                } else if (atomContainer.getConnectedAtomsCount(atom) == 3 &&
+                } else if (getConnectedAtomsCount(atomContainer, atom) == 3 &&
                         countAttachedDoubleBonds(atomContainer, atom) > 0) {
                     IAtomType type = getAtomType("N.sp2.3");
                     if (isAcceptable(atom, atomContainer, type)) return type;
@@ -934,7 +973,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
                 IAtomType type = getAtomType("N.sp2");
                 if (isAcceptable(atom, atomContainer, type)) return type;
             } else if (maxBondOrder == CDKConstants.BONDORDER_TRIPLE) {
-                int neighborCount = atomContainer.getConnectedAtomsCount(atom);
+                int neighborCount = getConnectedAtomsCount(atomContainer, atom);
                 if (neighborCount > 1) {
                     IAtomType type = getAtomType("N.sp1.2");
                     if (isAcceptable(atom, atomContainer, type)) return type;
@@ -959,7 +998,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
      */
     private boolean isSingleHeteroAtom(IAtom atom, IAtomContainer container) {
 
-        List<IAtom> connected = container.getConnectedAtomsList(atom);
+        List<IAtom> connected = getConnectedAtomsList(container, atom);
 
         for (IAtom atom1 : connected) {
 
@@ -974,7 +1013,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
                 return false;
 
             // check the second sphere
-            for (IAtom atom2 : container.getConnectedAtomsList(atom1)) {
+            for (IAtom atom2 : getConnectedAtomsList(container, atom1)) {
 
                 if (atom2 != atom
                    && container.getBond(atom1, atom2).getFlag(CDKConstants.ISAROMATIC)
@@ -991,11 +1030,28 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     }
 
     private boolean isRingAtom(IAtom atom, IAtomContainer atomContainer) {
+        Neighbours cache = neighbours.get();
+        if (cache != null && cache.container == atomContainer)
+            return cache.cyclic().contains(atom);
     	SpanningTree st = new SpanningTree(atomContainer);
         return st.getCyclicFragmentsContainer().contains(atom);
     }
 
     private IRing getRing(IAtom atom, IAtomContainer atomContainer) {
+        Neighbours cache = neighbours.get();
+        if (cache != null && cache.container == atomContainer) {
+            if (!cache.cyclic().contains(atom))
+                return null;
+            IRingSet set = cache.rings();
+            if (set == null)
+                return null;
+            for (int i=0; i<set.getAtomContainerCount(); i++) {
+                IRing ring = (IRing)set.getAtomContainer(i);
+                if (ring.contains(atom))
+                    return ring;
+            }
+            return null;
+        }
     	SpanningTree st = new SpanningTree(atomContainer);
     	try {
     		if (st.getCyclicFragmentsContainer().contains(atom)) {
@@ -1014,7 +1070,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     }
 
     private boolean isAmide(IAtom atom, IAtomContainer atomContainer) {
-    	List<IAtom> neighbors = atomContainer.getConnectedAtomsList(atom);
+    	List<IAtom> neighbors = getConnectedAtomsList(atomContainer, atom);
     	for (IAtom neighbor : neighbors) {
     		if (neighbor.getSymbol().equals("C")) {
     			if (countAttachedDoubleBonds(atomContainer, neighbor, "O") == 1) return true;
@@ -1024,7 +1080,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     }
 
     private boolean isThioAmide(IAtom atom, IAtomContainer atomContainer) {
-        List<IAtom> neighbors = atomContainer.getConnectedAtomsList(atom);
+        List<IAtom> neighbors = getConnectedAtomsList(atomContainer, atom);
         for (IAtom neighbor : neighbors) {
             if (neighbor.getSymbol().equals("C")) {
                 if (countAttachedDoubleBonds(atomContainer, neighbor, "S") == 1) return true;
@@ -1035,7 +1091,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
 
     private int countExplicitHydrogens(IAtom atom, IAtomContainer atomContainer) {
     	int count = 0;
-        for (IAtom aAtom : atomContainer.getConnectedAtomsList(atom)) {
+        for (IAtom aAtom : getConnectedAtomsList(atomContainer, atom)) {
             if (aAtom.getSymbol().equals("H")) {
                 count++;
             }
@@ -1054,7 +1110,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
                 if (isAcceptable(atom, atomContainer, type)) {
                     return type;
                 }
-                int neighbors = atomContainer.getConnectedAtomsCount(atom);
+                int neighbors = getConnectedAtomsCount(atomContainer, atom);
                 if (neighbors == 2) {
                     IAtomType type5 = getAtomType("Fe.2");
                     if (isAcceptable(atom, atomContainer, type5)) {
@@ -1083,7 +1139,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
                 }
             } else if ((atom.getFormalCharge() != null
                     && atom.getFormalCharge() == 2)) {
-                int neighbors = atomContainer.getConnectedAtomsCount(atom);
+                int neighbors = getConnectedAtomsCount(atomContainer, atom);
                 if (neighbors <= 1) {
                     IAtomType type = getAtomType("Fe.2plus");
                     if (isAcceptable(atom, atomContainer, type)) {
@@ -1092,7 +1148,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
                 }
             } else if ((atom.getFormalCharge() != null
                     && atom.getFormalCharge() == 1)) {
-                int neighbors = atomContainer.getConnectedAtomsCount(atom);
+                int neighbors = getConnectedAtomsCount(atomContainer, atom);
 
                 if (neighbors == 2) {
                     IAtomType type0 = getAtomType("Fe.plus");
@@ -1149,7 +1205,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
                 }
             } else if ((atom.getFormalCharge() != null
                     && atom.getFormalCharge() == +1)) {
-                int neighbors = atomContainer.getConnectedAtomsCount(atom);
+                int neighbors = getConnectedAtomsCount(atomContainer, atom);
                 if (neighbors <= 1) {  
                     IAtomType type = getAtomType("Hg.plus");
                     if (isAcceptable(atom, atomContainer, type)) {
@@ -1158,7 +1214,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
                 }
             } else if ((atom.getFormalCharge() != null
                     && atom.getFormalCharge() == 0)) {
-                int neighbors = atomContainer.getConnectedAtomsCount(atom);
+                int neighbors = getConnectedAtomsCount(atomContainer, atom);
                 if (neighbors == 2) {
                     IAtomType type = getAtomType("Hg.2");
                     if (isAcceptable(atom, atomContainer, type)) {
@@ -1182,8 +1238,8 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
 
     private IAtomType perceiveSulphurs(IAtomContainer atomContainer, IAtom atom)
     throws CDKException {
-        List<IBond> neighbors = atomContainer.getConnectedBondsList(atom);
-        IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+        List<IBond> neighbors = getConnectedBondsList(atomContainer, atom);
+        IBond.Order maxBondOrder = getMaximumBondOrder(atomContainer, atom);
         int neighborcount = neighbors.size();
         if (hasOneSingleElectron(atomContainer, atom)) {
             // no idea how to deal with this yet
@@ -1230,10 +1286,10 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
                 if (isAcceptable(atom, atomContainer, type)) return type;
             }
         } else if (neighborcount == 1) {
-            if (atomContainer.getConnectedBondsList(atom).get(0).getOrder() == CDKConstants.BONDORDER_DOUBLE) {
+            if (getConnectedBondsList(atomContainer, atom).get(0).getOrder() == CDKConstants.BONDORDER_DOUBLE) {
                 IAtomType type = getAtomType("S.2");
                 if (isAcceptable(atom, atomContainer, type)) return type;
-            } else if (atomContainer.getConnectedBondsList(atom).get(0).getOrder() == CDKConstants.BONDORDER_SINGLE) {
+            } else if (getConnectedBondsList(atomContainer, atom).get(0).getOrder() == CDKConstants.BONDORDER_SINGLE) {
                 IAtomType type = getAtomType("S.3");
                 if (isAcceptable(atom, atomContainer, type)) return type;
             }
@@ -1319,9 +1375,9 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
 
     private IAtomType perceivePhosphors(IAtomContainer atomContainer, IAtom atom)
     throws CDKException {
-        List<IBond> neighbors = atomContainer.getConnectedBondsList(atom);
+        List<IBond> neighbors = getConnectedBondsList(atomContainer, atom);
         int neighborcount = neighbors.size();
-        IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+        IBond.Order maxBondOrder = getMaximumBondOrder(atomContainer, atom);
         if (countSingleElectrons(atomContainer, atom) == 3) {
         	IAtomType type = getAtomType("P.se.3");
             if (isAcceptable(atom, atomContainer, type)) return type;
@@ -1389,7 +1445,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     
     private IAtomType perceiveHydrogens(IAtomContainer atomContainer, IAtom atom)
     throws CDKException {
-        int neighborcount = atomContainer.getConnectedBondsCount(atom);
+        int neighborcount = getConnectedBondsCount(atomContainer, atom);
         if (hasOneSingleElectron(atomContainer, atom)) {
             if ((atom.getFormalCharge() == CDKConstants.UNSET || atom.getFormalCharge() == 0) &&
                     neighborcount == 0) {
@@ -1422,7 +1478,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
 
     private IAtomType perceiveLithium(IAtomContainer atomContainer, IAtom atom)
     	throws CDKException {
-        int neighborcount = atomContainer.getConnectedBondsCount(atom);
+        int neighborcount = getConnectedBondsCount(atomContainer, atom);
         if (neighborcount == 1) {
             if (atom.getFormalCharge() == CDKConstants.UNSET ||
                     atom.getFormalCharge() == 0) {
@@ -1448,7 +1504,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     throws CDKException {
     	if ("F".equals(atom.getSymbol())) {
     		if (hasOneSingleElectron(atomContainer, atom)) {
-				if (atomContainer.getConnectedBondsCount(atom) == 0) {
+				if (getConnectedBondsCount(atomContainer, atom) == 0) {
 					if (atom.getFormalCharge() != CDKConstants.UNSET &&
 						atom.getFormalCharge() == +1) {
 						IAtomType type = getAtomType("F.plus.radical");
@@ -1458,8 +1514,8 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
 						IAtomType type = getAtomType("F.radical");
 						if (isAcceptable(atom, atomContainer, type)) return type;
 					}
-				} else if (atomContainer.getConnectedBondsCount(atom) <= 1) {
-					IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+				} else if (getConnectedBondsCount(atomContainer, atom) <= 1) {
+					IBond.Order maxBondOrder = getMaximumBondOrder(atomContainer, atom);
 					if (maxBondOrder == IBond.Order.SINGLE) {
 						IAtomType type = getAtomType("F.plus.radical");
 						if (isAcceptable(atom, atomContainer, type)) return type;
@@ -1472,7 +1528,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     				IAtomType type = getAtomType("F.minus");
     				if (isAcceptable(atom, atomContainer, type)) return type;
     			} else if (atom.getFormalCharge() == 1) {
-    				IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+    				IBond.Order maxBondOrder = getMaximumBondOrder(atomContainer, atom);
     				if (maxBondOrder == IBond.Order.DOUBLE) {
     					IAtomType type = getAtomType("F.plus.sp2");
     					if (isAcceptable(atom, atomContainer, type)) return type;
@@ -1481,8 +1537,8 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     					if (isAcceptable(atom, atomContainer, type)) return type;
     				}
     			}
-    		} else if (atomContainer.getConnectedBondsCount(atom) == 1 ||
-    				atomContainer.getConnectedBondsCount(atom) == 0) {
+    		} else if (getConnectedBondsCount(atomContainer, atom) == 1 ||
+    				getConnectedBondsCount(atomContainer, atom) == 0) {
     			IAtomType type = getAtomType("F");
     			if (isAcceptable(atom, atomContainer, type)) return type;
     		}
@@ -1498,14 +1554,14 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
             return null;
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == +1
-                && atomContainer.getConnectedBondsCount(atom) <= 4)) {
+                && getConnectedBondsCount(atomContainer, atom) <= 4)) {
             IAtomType type = getAtomType("As.plus");
             if (isAcceptable(atom, atomContainer, type)) {
                 return type;
             }
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0)) {
-            int neighbors = atomContainer.getConnectedAtomsCount(atom);
+            int neighbors = getConnectedAtomsCount(atomContainer, atom);
             if (neighbors == 4) {
                 IAtomType type = getAtomType("As.5");
                 if (isAcceptable(atom, atomContainer, type)) {
@@ -1541,7 +1597,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     private IAtomType perceiveThorium(IAtomContainer atomContainer, IAtom atom)
             throws CDKException {
         if ("Th".equals(atom.getSymbol())) {
-            if (atom.getFormalCharge() == 0 && atomContainer.getConnectedBondsCount(atom) == 0) {
+            if (atom.getFormalCharge() == 0 && getConnectedBondsCount(atomContainer, atom) == 0) {
                 IAtomType type = getAtomType("Th");
                 if (isAcceptable(atom, atomContainer, type)) {
                     return type;
@@ -1620,7 +1676,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
             }
         } else if (atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0) {
-            int neighbors = atomContainer.getConnectedAtomsCount(atom);
+            int neighbors = getConnectedAtomsCount(atomContainer, atom);
             if (neighbors == 1) {
                 IAtomType type = getAtomType("Cu.1");
                 if (isAcceptable(atom, atomContainer, type)) {
@@ -1656,7 +1712,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     private IAtomType perceiveAluminium(IAtomContainer atomContainer, IAtom atom) throws CDKException {
         if (atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 3) {
-            int connectedBondsCount = atomContainer.getConnectedBondsCount(atom);
+            int connectedBondsCount = getConnectedBondsCount(atomContainer, atom);
             if (connectedBondsCount == 0) {
                 IAtomType type = getAtomType("Al.3plus");
                 if (isAcceptable(atom, atomContainer, type)) {
@@ -1665,14 +1721,14 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
             }
         } else if (atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0
-                && atomContainer.getConnectedBondsCount(atom) == 3) {
+                && getConnectedBondsCount(atomContainer, atom) == 3) {
             IAtomType type = getAtomType("Al");
             if (isAcceptable(atom, atomContainer, type)) {
                 return type;
             }
         } else if (atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == -3
-                && atomContainer.getConnectedBondsCount(atom) == 6) {
+                && getConnectedBondsCount(atomContainer, atom) == 6) {
             IAtomType type = getAtomType("Al.3minus");
             if (isAcceptable(atom, atomContainer, type)) {
                 return type;
@@ -1684,22 +1740,22 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
         if (hasOneSingleElectron(atomContainer, atom)) {
             // no idea how to deal with this yet
             return null;
-        } else if (atomContainer.getConnectedBondsCount(atom) == 0
+        } else if (getConnectedBondsCount(atomContainer, atom) == 0
                 && (atom.getFormalCharge() != null
                 && atom.getFormalCharge() == 0)) {
             IAtomType type = getAtomType("Zn.metallic");
             if (isAcceptable(atom, atomContainer, type)) return type;
-        } else if (atomContainer.getConnectedBondsCount(atom) == 0
+        } else if (getConnectedBondsCount(atomContainer, atom) == 0
                 && (atom.getFormalCharge() != null
                 && atom.getFormalCharge() == 2)) {
             IAtomType type = getAtomType("Zn.2plus");
             if (isAcceptable(atom, atomContainer, type)) return type;
-        } else if (atomContainer.getConnectedBondsCount(atom) == 1
+        } else if (getConnectedBondsCount(atomContainer, atom) == 1
                 && (atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0)) {
             IAtomType type = getAtomType("Zn.1");
             if (isAcceptable(atom, atomContainer, type)) return type;
-        } else if (atomContainer.getConnectedBondsCount(atom) == 2
+        } else if (getConnectedBondsCount(atomContainer, atom) == 2
                 && (atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0)) {
             IAtomType type = getAtomType("Zn");
@@ -1710,28 +1766,28 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     private IAtomType perceiveChromium(IAtomContainer atomContainer, IAtom atom) throws CDKException {
         if (atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0
-                && atomContainer.getConnectedBondsCount(atom) == 6) {
+                && getConnectedBondsCount(atomContainer, atom) == 6) {
             IAtomType type = getAtomType("Cr");
             if (isAcceptable(atom, atomContainer, type)) {
                 return type;
             }
         } else if (atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0
-                && atomContainer.getConnectedBondsCount(atom) == 4) {
+                && getConnectedBondsCount(atomContainer, atom) == 4) {
             IAtomType type = getAtomType("Cr.4");
             if (isAcceptable(atom, atomContainer, type)) {
                 return type;
             }
         } else if (atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 6
-                && atomContainer.getConnectedBondsCount(atom) == 0) {
+                && getConnectedBondsCount(atomContainer, atom) == 0) {
             IAtomType type = getAtomType("Cr.6plus");
             if (isAcceptable(atom, atomContainer, type)) {
                 return type;
             }
         } else if (atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0
-                && atomContainer.getConnectedBondsCount(atom) == 0) {
+                && getConnectedBondsCount(atomContainer, atom) == 0) {
             IAtomType type = getAtomType("Cr.neutral");
             if (isAcceptable(atom, atomContainer, type)) {
                 return type;
@@ -1739,7 +1795,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
         } else if ("Cr".equals(atom.getSymbol())) {
             if (atom.getFormalCharge() != CDKConstants.UNSET
                     && atom.getFormalCharge() == 3
-                    && atomContainer.getConnectedBondsCount(atom) == 0) {
+                    && getConnectedBondsCount(atomContainer, atom) == 0) {
                 IAtomType type = getAtomType("Cr.3plus");
                 if (isAcceptable(atom, atomContainer, type)) {
                     return type;
@@ -1753,7 +1809,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     		if (hasOneSingleElectron(atomContainer, atom)) {
     			// no idea how to deal with this yet
     			return null;
-    		} else if (atomContainer.getConnectedBondsCount(atom) == 2) {
+    		} else if (getConnectedBondsCount(atomContainer, atom) == 2) {
     			IAtomType type = getAtomType("Po");
     			if (isAcceptable(atom, atomContainer, type)) return type;
     		}
@@ -1763,14 +1819,14 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     			return null;
     		} else if ((atom.getFormalCharge() != CDKConstants.UNSET &&
     				atom.getFormalCharge() == 0 &&
-    				atomContainer.getConnectedBondsCount(atom) <= 4)) {
+    				getConnectedBondsCount(atomContainer, atom) <= 4)) {
     			IAtomType type = getAtomType("Sn.sp3");
     			if (isAcceptable(atom, atomContainer, type)) return type;
     		}
     	} else if ("Sc".equals(atom.getSymbol())) {
     		if (atom.getFormalCharge() != CDKConstants.UNSET &&
     			atom.getFormalCharge() == -3 &&
-    			atomContainer.getConnectedBondsCount(atom) == 6) {
+    			getConnectedBondsCount(atomContainer, atom) == 6) {
     			IAtomType type = getAtomType("Sc.3minus");
     			if (isAcceptable(atom, atomContainer, type)) return type;
     		}
@@ -1789,21 +1845,21 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
             }
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0)
-                && atomContainer.getConnectedAtomsCount(atom) == 2) {
+                && getConnectedAtomsCount(atomContainer, atom) == 2) {
             IAtomType type = getAtomType("Ni");
             if (isAcceptable(atom, atomContainer, type)) {
                 return type;
             }
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0)
-                && atomContainer.getConnectedAtomsCount(atom) == 0) {
+                && getConnectedAtomsCount(atomContainer, atom) == 0) {
             IAtomType type = getAtomType("Ni.metallic");
             if (isAcceptable(atom, atomContainer, type)) {
                 return type;
             }
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 1)
-                && atomContainer.getConnectedAtomsCount(atom) == 1) {
+                && getConnectedAtomsCount(atomContainer, atom) == 1) {
             IAtomType type = getAtomType("Ni.plus");
             if (isAcceptable(atom, atomContainer, type)) {
                 return type;
@@ -1854,7 +1910,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     			return null;
     		} else if ((atom.getFormalCharge() == CDKConstants.UNSET ||
     				atom.getFormalCharge() == 0)) {
-            if (atomContainer.getConnectedBondsCount(atom) == 0) {
+            if (getConnectedBondsCount(atomContainer, atom) == 0) {
                 IAtomType type = getAtomType("Xe");
                 if (isAcceptable(atom, atomContainer, type)) return type;
             } else {
@@ -1881,13 +1937,13 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
             return null;
         } else if (atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0) {
-            if (atomContainer.getConnectedBondsCount(atom) == 2) {
+            if (getConnectedBondsCount(atomContainer, atom) == 2) {
                 IAtomType type = getAtomType("Si.2");
                 if (isAcceptable(atom, atomContainer, type)) return type;
-            } else if (atomContainer.getConnectedBondsCount(atom) == 3) {
+            } else if (getConnectedBondsCount(atomContainer, atom) == 3) {
                 IAtomType type = getAtomType("Si.3");
                 if (isAcceptable(atom, atomContainer, type)) return type;
-            } else if (atomContainer.getConnectedBondsCount(atom) == 4) {
+            } else if (getConnectedBondsCount(atomContainer, atom) == 4) {
                 IAtomType type = getAtomType("Si.sp3");
                 if (isAcceptable(atom, atomContainer, type)) return type;
             }
@@ -1905,7 +1961,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
             return null;
         } else if ((atom.getFormalCharge() != null
                 && atom.getFormalCharge() == 0)) {
-            int neighbors = atomContainer.getConnectedAtomsCount(atom);
+            int neighbors = getConnectedAtomsCount(atomContainer, atom);
             if (neighbors == 2) {
                 IAtomType type02 = getAtomType("Mn.2");
                 if (isAcceptable(atom, atomContainer, type02)) return type02;
@@ -1935,12 +1991,12 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
             if (isAcceptable(atom, atomContainer, type)) return type;
         } else if ((atom.getFormalCharge() == CDKConstants.UNSET
                 || atom.getFormalCharge() == 0)
-                && atomContainer.getConnectedAtomsCount(atom) == 1) {
+                && getConnectedAtomsCount(atomContainer, atom) == 1) {
             IAtomType type = getAtomType("Na");
             if (isAcceptable(atom, atomContainer, type)) return type;
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0)
-                && atomContainer.getConnectedAtomsCount(atom) == 0) {
+                && getConnectedAtomsCount(atomContainer, atom) == 0) {
             IAtomType type = getAtomType("Na.neutral");
             if (isAcceptable(atom, atomContainer, type)) return type;
         } 
@@ -1949,7 +2005,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     
     private IAtomType perceiveIodine(IAtomContainer atomContainer, IAtom atom) throws CDKException {
         if (hasOneSingleElectron(atomContainer, atom)) {
-            if (atomContainer.getConnectedBondsCount(atom) == 0) {
+            if (getConnectedBondsCount(atomContainer, atom) == 0) {
                 if (atom.getFormalCharge() != CDKConstants.UNSET &&
                     atom.getFormalCharge() == +1) {
                     IAtomType type = getAtomType("I.plus.radical");
@@ -1959,8 +2015,8 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
                     IAtomType type = getAtomType("I.radical");
                     if (isAcceptable(atom, atomContainer, type)) return type;
                 }
-            } else if (atomContainer.getConnectedBondsCount(atom) <= 1) {
-                IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+            } else if (getConnectedBondsCount(atomContainer, atom) <= 1) {
+                IBond.Order maxBondOrder = getMaximumBondOrder(atomContainer, atom);
                 if (maxBondOrder == IBond.Order.SINGLE) {
                     IAtomType type = getAtomType("I.plus.radical");
                     if (isAcceptable(atom, atomContainer, type)) return type;
@@ -1970,7 +2026,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
         } else if (atom.getFormalCharge() != CDKConstants.UNSET && 
                atom.getFormalCharge() != 0) {
       if (atom.getFormalCharge() == -1) {
-          if (atomContainer.getConnectedAtomsCount(atom) == 0) {
+          if (getConnectedAtomsCount(atomContainer, atom) == 0) {
               IAtomType type = getAtomType("I.minus");
               if (isAcceptable(atom, atomContainer, type)) return type;
           } else {
@@ -1978,7 +2034,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
               if (isAcceptable(atom, atomContainer, type)) return type;
           }
             } else if (atom.getFormalCharge() == 1) {
-                IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+                IBond.Order maxBondOrder = getMaximumBondOrder(atomContainer, atom);
                 if (maxBondOrder == IBond.Order.DOUBLE) {
                     IAtomType type = getAtomType("I.plus.sp2");
                     if (isAcceptable(atom, atomContainer, type)) return type;
@@ -1987,7 +2043,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
                     if (isAcceptable(atom, atomContainer, type)) return type;
                 }
             }
-        } else if (atomContainer.getConnectedBondsCount(atom) == 3) {
+        } else if (getConnectedBondsCount(atomContainer, atom) == 3) {
             int doubleBondCount = countAttachedDoubleBonds(atomContainer, atom);
             if (doubleBondCount == 2) {
                 IAtomType type = getAtomType("I.5");
@@ -1997,14 +2053,14 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
                 IAtomType type = getAtomType("I.sp3d2.3");
                 if (isAcceptable(atom, atomContainer, type)) return type;
             }
-        } else if (atomContainer.getConnectedBondsCount(atom) == 2) {
-            IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+        } else if (getConnectedBondsCount(atomContainer, atom) == 2) {
+            IBond.Order maxBondOrder = getMaximumBondOrder(atomContainer, atom);
             if (maxBondOrder == IBond.Order.DOUBLE) {
                 IAtomType type = getAtomType("I.3");
                 if (isAcceptable(atom, atomContainer, type)) return type;
             }
-        } else if (atomContainer.getConnectedBondsCount(atom) == 1 ||
-                atomContainer.getConnectedBondsCount(atom) == 0) {
+        } else if (getConnectedBondsCount(atomContainer, atom) == 1 ||
+                getConnectedBondsCount(atomContainer, atom) == 0) {
             IAtomType type = getAtomType("I");
             if (isAcceptable(atom, atomContainer, type)) return type;
         }
@@ -2038,7 +2094,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
             if (isAcceptable(atom, atomContainer, type)) return type;
         } else if (atom.getFormalCharge() == CDKConstants.UNSET
                 || atom.getFormalCharge() == 0) {
-            int neighbors = atomContainer.getConnectedAtomsCount(atom);
+            int neighbors = getConnectedAtomsCount(atomContainer, atom);
             if (neighbors == 1) {
                 IAtomType type = getAtomType("K.neutral");
                 if (isAcceptable(atom, atomContainer, type)) return type;
@@ -2050,7 +2106,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     }
     
     private IAtomType perceivePlutonium(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        if (atom.getFormalCharge() == 0 && atomContainer.getConnectedBondsCount(atom) == 0) {
+        if (atom.getFormalCharge() == 0 && getConnectedBondsCount(atomContainer, atom) == 0) {
             IAtomType type = getAtomType("Pu");
             if (isAcceptable(atom, atomContainer, type)) return type;
         }
@@ -2067,10 +2123,10 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
             if (isAcceptable(atom, atomContainer, type)) return type;
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0)) {
-            if (atomContainer.getConnectedAtomsCount(atom) == 0) {
+            if (getConnectedAtomsCount(atomContainer, atom) == 0) {
                 IAtomType type = getAtomType("Cd.metallic");
                 if (isAcceptable(atom, atomContainer, type)) return type;
-            } else if (atomContainer.getConnectedAtomsCount(atom) == 2) {
+            } else if (getConnectedAtomsCount(atomContainer, atom) == 2) {
                 IAtomType type = getAtomType("Cd.2");
                 if (isAcceptable(atom, atomContainer, type)) return type;
             }
@@ -2079,13 +2135,13 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     }
     
     private IAtomType perceiveIndium(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        if (atom.getFormalCharge() == 0 && atomContainer.getConnectedBondsCount(atom) == 3) {
+        if (atom.getFormalCharge() == 0 && getConnectedBondsCount(atomContainer, atom) == 3) {
             IAtomType type = getAtomType("In.3");
             if (isAcceptable(atom, atomContainer, type)) return type;
-        } else if (atom.getFormalCharge() == 3 && atomContainer.getConnectedBondsCount(atom) == 0) {
+        } else if (atom.getFormalCharge() == 3 && getConnectedBondsCount(atomContainer, atom) == 0) {
             IAtomType type = getAtomType("In.3plus");
             if (isAcceptable(atom, atomContainer, type)) return type;
-        } else if (atom.getFormalCharge() == 0 && atomContainer.getConnectedBondsCount(atom) == 1) {
+        } else if (atom.getFormalCharge() == 0 && getConnectedBondsCount(atomContainer, atom) == 1) {
             IAtomType type = getAtomType("In.1");
             if (isAcceptable(atom, atomContainer, type)) return type;
         } else {
@@ -2097,19 +2153,19 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     
     private IAtomType perceiveChlorine(IAtomContainer atomContainer, IAtom atom) throws CDKException {
         if (hasOneSingleElectron(atomContainer, atom)) {
-            if (atomContainer.getConnectedBondsCount(atom) > 1) {
+            if (getConnectedBondsCount(atomContainer, atom) > 1) {
                 if (atom.getFormalCharge() != CDKConstants.UNSET
                         && atom.getFormalCharge() == +1) {
                     IAtomType type = getAtomType("Cl.plus.radical");
                     if (isAcceptable(atom, atomContainer, type)) return type;
                 }
-            } else if (atomContainer.getConnectedBondsCount(atom) == 1) {
-                IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+            } else if (getConnectedBondsCount(atomContainer, atom) == 1) {
+                IBond.Order maxBondOrder = getMaximumBondOrder(atomContainer, atom);
                 if (maxBondOrder == IBond.Order.SINGLE) {
                     IAtomType type = getAtomType("Cl.plus.radical");
                     if (isAcceptable(atom, atomContainer, type)) return type;
                 }
-            } else if (atomContainer.getConnectedBondsCount(atom) == 0
+            } else if (getConnectedBondsCount(atomContainer, atom) == 0
                     && (atom.getFormalCharge() == CDKConstants.UNSET
                     || atom.getFormalCharge() == 0)) {
                 IAtomType type = getAtomType("Cl.radical");
@@ -2117,11 +2173,11 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
             }
         } else if (atom.getFormalCharge() == CDKConstants.UNSET
                 || atom.getFormalCharge() == 0) {
-            int neighborcount = atomContainer.getConnectedBondsCount(atom);
-            IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+            int neighborcount = getConnectedBondsCount(atomContainer, atom);
+            IBond.Order maxBondOrder = getMaximumBondOrder(atomContainer, atom);
 
             if (maxBondOrder == IBond.Order.DOUBLE) {
-                int neighbor = atomContainer.getConnectedAtomsCount(atom);
+                int neighbor = getConnectedAtomsCount(atomContainer, atom);
                 if (neighbor == 2) {
                     IAtomType type = getAtomType("Cl.2");
                     if (isAcceptable(atom, atomContainer, type)) return type;
@@ -2141,7 +2197,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
             IAtomType type = getAtomType("Cl.minus");
             if (isAcceptable(atom, atomContainer, type)) return type;
         } else if (atom.getFormalCharge() != CDKConstants.UNSET && atom.getFormalCharge() == 1) {
-            IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+            IBond.Order maxBondOrder = getMaximumBondOrder(atomContainer, atom);
             if (maxBondOrder == IBond.Order.DOUBLE) {
                 IAtomType type = getAtomType("Cl.plus.sp2");
                 if (isAcceptable(atom, atomContainer, type)) return type;
@@ -2150,16 +2206,16 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
                 if (isAcceptable(atom, atomContainer, type)) return type;
             }
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET
-                && atom.getFormalCharge() == +3) && atomContainer.getConnectedBondsCount(atom) == 4) {
+                && atom.getFormalCharge() == +3) && getConnectedBondsCount(atomContainer, atom) == 4) {
             IAtomType type = getAtomType("Cl.perchlorate.charged");
             if (isAcceptable(atom, atomContainer, type)) return type;
         } else {
             int doubleBonds = countAttachedDoubleBonds(atomContainer, atom);
-            if (atomContainer.getConnectedBondsCount(atom) == 3
+            if (getConnectedBondsCount(atomContainer, atom) == 3
                     && doubleBonds == 2) {
                 IAtomType type = getAtomType("Cl.chlorate");
                 if (isAcceptable(atom, atomContainer, type)) return type;
-            } else if (atomContainer.getConnectedBondsCount(atom) == 4
+            } else if (getConnectedBondsCount(atomContainer, atom) == 4
                     && doubleBonds == 3) {
                 IAtomType type = getAtomType("Cl.perchlorate");
                 if (isAcceptable(atom, atomContainer, type)) return type;
@@ -2173,7 +2229,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
             return null;
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0)) {
-            int neighbors = atomContainer.getConnectedAtomsCount(atom);
+            int neighbors = getConnectedAtomsCount(atomContainer, atom);
             if (neighbors == 1) {
                 IAtomType type = getAtomType("Ag.1");
                 if (isAcceptable(atom, atomContainer, type)) return type;
@@ -2192,7 +2248,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
         if (hasOneSingleElectron(atomContainer, atom)) {
             return null;
         }
-        int neighbors = atomContainer.getConnectedAtomsCount(atom);
+        int neighbors = getConnectedAtomsCount(atomContainer, atom);
         if ((atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0) && neighbors == 1) {
             IAtomType type = getAtomType("Au.1");
@@ -2218,19 +2274,19 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
                 // no idea how to deal with this yet
                 return null;
             } else if ((atom.getFormalCharge() != CDKConstants.UNSET
-                    && atom.getFormalCharge() == 2 && atomContainer.getConnectedAtomsCount(atom) == 0)) {
+                    && atom.getFormalCharge() == 2 && getConnectedAtomsCount(atomContainer, atom) == 0)) {
                 IAtomType type = getAtomType("Ca.2plus");
                 if (isAcceptable(atom, atomContainer, type)) {
                     return type;
                 }
             } else if ((atom.getFormalCharge() != CDKConstants.UNSET
-                    && atom.getFormalCharge() == 0 && atomContainer.getConnectedAtomsCount(atom) == 2)) {
+                    && atom.getFormalCharge() == 0 && getConnectedAtomsCount(atomContainer, atom) == 2)) {
                 IAtomType type = getAtomType("Ca.2");
                 if (isAcceptable(atom, atomContainer, type)) {
                     return type;
                 }
             } else if ((atom.getFormalCharge() != CDKConstants.UNSET
-                    && atom.getFormalCharge() == 0 && atomContainer.getConnectedAtomsCount(atom) == 1)) {
+                    && atom.getFormalCharge() == 0 && getConnectedAtomsCount(atomContainer, atom) == 1)) {
                 IAtomType type = getAtomType("Ca.1");
                 if (isAcceptable(atom, atomContainer, type)) {
                     return type;
@@ -2246,7 +2302,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
             return null;
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET &&
                 atom.getFormalCharge() == +2)) {
-            int neighbors = atomContainer.getConnectedAtomsCount(atom);
+            int neighbors = getConnectedAtomsCount(atomContainer, atom);
             if (neighbors == 4) {
                 IAtomType type = getAtomType("Pt.2plus.4");
                 if (isAcceptable(atom, atomContainer, type)) return type;
@@ -2256,7 +2312,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
             }
         } else if ((atom.getFormalCharge() == CDKConstants.UNSET ||
                 atom.getFormalCharge() == 0)) {
-            int neighbors = atomContainer.getConnectedAtomsCount(atom);
+            int neighbors = getConnectedAtomsCount(atomContainer, atom);
             if (neighbors == 2) {
                 IAtomType type = getAtomType("Pt.2");
                 if (isAcceptable(atom, atomContainer, type)) return type;
@@ -2276,12 +2332,12 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
             return null;
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET &&
                     atom.getFormalCharge() == 0 &&
-                    atomContainer.getConnectedBondsCount(atom) == 3)) {
+                    getConnectedBondsCount(atomContainer, atom) == 3)) {
             IAtomType type = getAtomType("Sb.3");
             if (isAcceptable(atom, atomContainer, type)) return type;
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET && 
                     atom.getFormalCharge() == 0 &&
-                    atomContainer.getConnectedBondsCount(atom) == 4)) {
+                    getConnectedBondsCount(atomContainer, atom) == 4)) {
             IAtomType type = getAtomType("Sb.4");
             if (isAcceptable(atom, atomContainer, type)) return type;
         }
@@ -2291,7 +2347,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     private IAtomType perceiveGadolinum(IAtomContainer atomContainer, IAtom atom) throws CDKException {
         if (atom.getFormalCharge() != CDKConstants.UNSET &&
             atom.getFormalCharge() == +3 &&
-            atomContainer.getConnectedBondsCount(atom) == 0) {
+            getConnectedBondsCount(atomContainer, atom) == 0) {
             IAtomType type = getAtomType("Gd.3plus");
             if (isAcceptable(atom, atomContainer, type)) {
                 return type;
@@ -2306,7 +2362,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
             return null;
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET &&
                     atom.getFormalCharge() == 0)) {
-            int neighbors = atomContainer.getConnectedAtomsCount(atom);
+            int neighbors = getConnectedAtomsCount(atomContainer, atom);
             if (neighbors == 4) {
                 IAtomType type = getAtomType("Mg.neutral");
                 if (isAcceptable(atom, atomContainer, type)) return type;
@@ -2331,17 +2387,17 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     private IAtomType perceiveThallium(IAtomContainer atomContainer, IAtom atom) throws CDKException {
         if (atom.getFormalCharge() != CDKConstants.UNSET &&
             atom.getFormalCharge() == +1 &&
-            atomContainer.getConnectedBondsCount(atom) == 0) {
+            getConnectedBondsCount(atomContainer, atom) == 0) {
             IAtomType type = getAtomType("Tl.plus");
             if (isAcceptable(atom, atomContainer, type)) return type;
         } else if (atom.getFormalCharge() != CDKConstants.UNSET &&
                    atom.getFormalCharge() == 0 &&
-                   atomContainer.getConnectedBondsCount(atom) == 0) {
+                   getConnectedBondsCount(atomContainer, atom) == 0) {
             IAtomType type = getAtomType("Tl");
             if (isAcceptable(atom, atomContainer, type)) return type;
         } else if (atom.getFormalCharge() != CDKConstants.UNSET &&
                    atom.getFormalCharge() == 0 &&
-                   atomContainer.getConnectedBondsCount(atom) == 1) {
+                   getConnectedBondsCount(atomContainer, atom) == 1) {
             IAtomType type = getAtomType("Tl.1");
             if (isAcceptable(atom, atomContainer, type)) return type;
         }
@@ -2351,17 +2407,17 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     private IAtomType perceiveLead(IAtomContainer atomContainer, IAtom atom) throws CDKException {
         if (atom.getFormalCharge() != CDKConstants.UNSET &&
             atom.getFormalCharge() == 0 &&
-            atomContainer.getConnectedBondsCount(atom) == 0) {
+            getConnectedBondsCount(atomContainer, atom) == 0) {
             IAtomType type = getAtomType("Pb.neutral");
             if (isAcceptable(atom, atomContainer, type)) return type;
         } else if (atom.getFormalCharge() != CDKConstants.UNSET &&
                    atom.getFormalCharge() == 2 &&
-                   atomContainer.getConnectedBondsCount(atom) == 0) {
+                   getConnectedBondsCount(atomContainer, atom) == 0) {
             IAtomType type = getAtomType("Pb.2plus");
             if (isAcceptable(atom, atomContainer, type)) return type;
         } else if (atom.getFormalCharge() != CDKConstants.UNSET &&
                    atom.getFormalCharge() == 0 &&
-                   atomContainer.getConnectedBondsCount(atom) == 1) {
+                   getConnectedBondsCount(atomContainer, atom) == 1) {
             IAtomType type = getAtomType("Pb.1");
             if (isAcceptable(atom, atomContainer, type)) return type;
         }
@@ -2382,17 +2438,17 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     private IAtomType perceiveTitanium(IAtomContainer atomContainer, IAtom atom) throws CDKException {
         if (atom.getFormalCharge() != CDKConstants.UNSET &&
             atom.getFormalCharge() == -3 &&
-            atomContainer.getConnectedBondsCount(atom) == 6) {
+            getConnectedBondsCount(atomContainer, atom) == 6) {
             IAtomType type = getAtomType("Ti.3minus");
             if (isAcceptable(atom, atomContainer, type)) return type;
         } else if ((atom.getFormalCharge() == CDKConstants.UNSET ||
                     atom.getFormalCharge() == 0) &&
-                   atomContainer.getConnectedBondsCount(atom) == 4) {
+                   getConnectedBondsCount(atomContainer, atom) == 4) {
             IAtomType type = getAtomType("Ti.sp3");
             if (isAcceptable(atom, atomContainer, type)) return type;
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0)
-                && atomContainer.getConnectedBondsCount(atom) == 2) {
+                && getConnectedBondsCount(atomContainer, atom) == 2) {
             IAtomType type = getAtomType("Ti.2");
             if (isAcceptable(atom, atomContainer, type)) return type;
         }
@@ -2402,12 +2458,12 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     private IAtomType perceiveVanadium(IAtomContainer atomContainer, IAtom atom) throws CDKException {
         if (atom.getFormalCharge() != CDKConstants.UNSET &&
                 atom.getFormalCharge() == -3 &&
-                atomContainer.getConnectedBondsCount(atom) == 6) {
+                getConnectedBondsCount(atomContainer, atom) == 6) {
             IAtomType type = getAtomType("V.3minus");
             if (isAcceptable(atom, atomContainer, type)) return type;
         } else if (atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == -3
-                && atomContainer.getConnectedBondsCount(atom) == 4) {
+                && getConnectedBondsCount(atomContainer, atom) == 4) {
             IAtomType type = getAtomType("V.3minus.4");
             if (isAcceptable(atom, atomContainer, type)) return type;
         }
@@ -2416,7 +2472,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     
     private IAtomType perceiveBromine(IAtomContainer atomContainer, IAtom atom) throws CDKException {
         if (hasOneSingleElectron(atomContainer, atom)) {
-            if (atomContainer.getConnectedBondsCount(atom) == 0) {
+            if (getConnectedBondsCount(atomContainer, atom) == 0) {
                 if (atom.getFormalCharge() != CDKConstants.UNSET &&
                         atom.getFormalCharge() == +1) {
                     IAtomType type = getAtomType("Br.plus.radical");
@@ -2426,8 +2482,8 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
                     IAtomType type = getAtomType("Br.radical");
                     if (isAcceptable(atom, atomContainer, type)) return type;
                 }
-            } else if (atomContainer.getConnectedBondsCount(atom) <= 1) {
-                IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+            } else if (getConnectedBondsCount(atomContainer, atom) <= 1) {
+                IBond.Order maxBondOrder = getMaximumBondOrder(atomContainer, atom);
                 if (maxBondOrder == IBond.Order.SINGLE) {
                     IAtomType type = getAtomType("Br.plus.radical");
                     if (isAcceptable(atom, atomContainer, type)) return type;
@@ -2439,7 +2495,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
             IAtomType type = getAtomType("Br.minus");
             if (isAcceptable(atom, atomContainer, type)) return type;
         } else if (atom.getFormalCharge() == 1) {
-            IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+            IBond.Order maxBondOrder = getMaximumBondOrder(atomContainer, atom);
             if (maxBondOrder == IBond.Order.DOUBLE) {
                 IAtomType type = getAtomType("Br.plus.sp2");
                 if (isAcceptable(atom, atomContainer, type)) return type;
@@ -2447,11 +2503,11 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
                 IAtomType type = getAtomType("Br.plus.sp3");
                 if (isAcceptable(atom, atomContainer, type)) return type;
             }
-        } else if (atomContainer.getConnectedBondsCount(atom) == 1 ||
-                atomContainer.getConnectedBondsCount(atom) == 0) {
+        } else if (getConnectedBondsCount(atomContainer, atom) == 1 ||
+                getConnectedBondsCount(atomContainer, atom) == 0) {
             IAtomType type = getAtomType("Br");
             if (isAcceptable(atom, atomContainer, type)) return type;
-        } else if (atomContainer.getConnectedBondsCount(atom) == 3) {
+        } else if (getConnectedBondsCount(atomContainer, atom) == 3) {
             IAtomType type = getAtomType("Br.3");
             if (isAcceptable(atom, atomContainer, type)) return type;
         }
@@ -2476,7 +2532,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
             if (isAcceptable(atom, atomContainer, type)) return type;
         } else if ((atom.getFormalCharge() == CDKConstants.UNSET ||
                 atom.getFormalCharge() == 0)) {
-            int neighbors = atomContainer.getConnectedAtomsCount(atom);
+            int neighbors = getConnectedAtomsCount(atomContainer, atom);
             if (neighbors == 2) {
                 IAtomType type = getAtomType("Co.2");
                 if (isAcceptable(atom, atomContainer, type)) return type;
@@ -2495,7 +2551,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
             }
         } else if ((atom.getFormalCharge() != null
                 && atom.getFormalCharge() == +1)) {
-            int neighbors = atomContainer.getConnectedAtomsCount(atom);
+            int neighbors = getConnectedAtomsCount(atomContainer, atom);
             if (neighbors == 2) {
                 IAtomType type = getAtomType("Co.plus.2");
                 if (isAcceptable(atom, atomContainer, type)) return type;
@@ -2528,7 +2584,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     }
 
     private boolean hasAromaticBond(IAtomContainer container, IAtom atom) {
-        List<IBond> neighbors = container.getConnectedBondsList(atom);
+        List<IBond> neighbors = getConnectedBondsList(container, atom);
         for (IBond bond : neighbors) {
             if (bond.getFlag(CDKConstants.ISAROMATIC)) return true;
         }
@@ -2547,7 +2603,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
      */
     private int countAttachedBonds(IAtomContainer container, IAtom atom, IBond.Order order, String symbol) {
     	// count the number of double bonded oxygens
-    	List<IBond> neighbors = container.getConnectedBondsList(atom);
+    	List<IBond> neighbors = getConnectedBondsList(container, atom);
     	int neighborcount = neighbors.size();
     	int doubleBondedAtoms = 0;
     	for (int i=neighborcount-1;i>=0;i--) {
@@ -2581,13 +2637,13 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     private boolean isAcceptable(IAtom atom, IAtomContainer container, IAtomType type) {
     	if (mode == REQUIRE_EXPLICIT_HYDROGENS) {
     		// make sure no implicit hydrogens were assumed
-    		int actualContainerCount = container.getConnectedAtomsCount(atom);
+    		int actualContainerCount = getConnectedAtomsCount(container, atom);
     		int requiredContainerCount = type.getFormalNeighbourCount();
     		if (actualContainerCount != requiredContainerCount)
     			return false;
     	} else if (atom.getImplicitHydrogenCount() != CDKConstants.UNSET) {
     		// confirm correct neighbour count
-    		int connectedAtoms = container.getConnectedAtomsCount(atom);
+    		int connectedAtoms = getConnectedAtomsCount(container, atom);
     		int hCount = atom.getImplicitHydrogenCount();
     		int actualNeighbourCount =  connectedAtoms + hCount;
     		int requiredNeighbourCount = type.getFormalNeighbourCount();
@@ -2598,7 +2654,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     	// confirm correct bond orders
         IBond.Order typeOrder = type.getMaxBondOrder(); 
     	if (typeOrder != null) {
-    		for (IBond bond : container.getConnectedBondsList(atom)) {
+    		for (IBond bond : getConnectedBondsList(container, atom)) {
     			IBond.Order order = bond.getOrder();
     			if (order != CDKConstants.UNSET && order != IBond.Order.UNSET) {
     				if (BondManipulator.isHigherOrder(order, typeOrder)) return false;
@@ -2612,7 +2668,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     	}
     		
     	// confirm correct valency
-    	if (type.getValency() != CDKConstants.UNSET && container.getBondOrderSum(atom) > type.getValency())
+    	if (type.getValency() != CDKConstants.UNSET && getBondOrderSum(container, atom) > type.getValency())
     		return false;
 
     	// confirm correct formal charge
@@ -2623,6 +2679,121 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     	return true;
     }
     
+    /**
+     * The bonds of each atom of a container, found in one pass over the bonds.
+     * The bond orders are read from the bonds when asked, so only the
+     * connections must not change while the cache is used.
+     */
+    private static final class Neighbours {
+
+        private final IAtomContainer          container;
+        private final Map<IAtom, List<IBond>> bonds;
+
+        private Neighbours(IAtomContainer container) {
+            this.container = container;
+            this.bonds     = new IdentityHashMap<IAtom, List<IBond>>(2 * container.getAtomCount());
+            for (IBond bond : container.bonds()) {
+                for (IAtom atom : bond.atoms()) {
+                    List<IBond> list = bonds.get(atom);
+                    if (list == null)
+                        bonds.put(atom, list = new ArrayList<IBond>(4));
+                    list.add(bond);
+                }
+            }
+        }
+
+        private List<IBond> bonds(IAtom atom) {
+            List<IBond> list = bonds.get(atom);
+            return list != null ? list : Collections.<IBond>emptyList();
+        }
+
+        // the ring perception is only done when a ring atom is asked for and
+        // at most once for all atoms
+        private SpanningTree   spanningTree;
+        private IAtomContainer cyclic;
+        private IRingSet       rings;
+        private boolean        ringsPerceived;
+
+        private IAtomContainer cyclic() {
+            if (cyclic == null) {
+                spanningTree = new SpanningTree(container);
+                cyclic       = spanningTree.getCyclicFragmentsContainer();
+            }
+            return cyclic;
+        }
+
+        private IRingSet rings() {
+            if (!ringsPerceived) {
+                cyclic();
+                try {
+                    rings = spanningTree.getAllRings();
+                } catch (NoSuchAtomException exception) {
+                    rings = null;
+                }
+                ringsPerceived = true;
+            }
+            return rings;
+        }
+    }
+
+    /**
+     * The cached bonds of an atom when the container is being typed by
+     * {@link #findMatchingAtomType(IAtomContainer)}, otherwise null.
+     */
+    private List<IBond> cachedBonds(IAtomContainer container, IAtom atom) {
+        Neighbours cache = neighbours.get();
+        return cache != null && cache.container == container ? cache.bonds(atom) : null;
+    }
+
+    private int getConnectedBondsCount(IAtomContainer container, IAtom atom) {
+        List<IBond> bonds = cachedBonds(container, atom);
+        return bonds != null ? bonds.size() : container.getConnectedBondsCount(atom);
+    }
+
+    private int getConnectedAtomsCount(IAtomContainer container, IAtom atom) {
+        List<IBond> bonds = cachedBonds(container, atom);
+        return bonds != null ? bonds.size() : container.getConnectedAtomsCount(atom);
+    }
+
+    private List<IBond> getConnectedBondsList(IAtomContainer container, IAtom atom) {
+        List<IBond> bonds = cachedBonds(container, atom);
+        return bonds != null ? bonds : container.getConnectedBondsList(atom);
+    }
+
+    private List<IAtom> getConnectedAtomsList(IAtomContainer container, IAtom atom) {
+        List<IBond> bonds = cachedBonds(container, atom);
+        if (bonds == null)
+            return container.getConnectedAtomsList(atom);
+        List<IAtom> atoms = new ArrayList<IAtom>(bonds.size());
+        for (IBond bond : bonds)
+            atoms.add(bond.getConnectedAtom(atom));
+        return atoms;
+    }
+
+    private IBond.Order getMaximumBondOrder(IAtomContainer container, IAtom atom) {
+        List<IBond> bonds = cachedBonds(container, atom);
+        if (bonds == null)
+            return container.getMaximumBondOrder(atom);
+        IBond.Order max = IBond.Order.SINGLE;
+        for (IBond bond : bonds) {
+            if (bond.getOrder().numeric() > max.numeric())
+                max = bond.getOrder();
+        }
+        return max;
+    }
+
+    private double getBondOrderSum(IAtomContainer container, IAtom atom) {
+        List<IBond> bonds = cachedBonds(container, atom);
+        if (bonds == null)
+            return container.getBondOrderSum(atom);
+        double sum = 0;
+        for (IBond bond : bonds) {
+            if (bond.getOrder() != null)
+                sum += bond.getOrder().numeric();
+        }
+        return sum;
+    }
+
     private boolean isHueckelNumber(int electronCount) {
         return (electronCount % 4 == 2) && (electronCount >= 2);
     }
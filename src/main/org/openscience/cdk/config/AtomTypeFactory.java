@@ -24,9 +24,11 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Hashtable;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.openscience.cdk.annotations.TestClass;
 import org.openscience.cdk.annotations.TestMethod;
@@ -97,8 +99,12 @@ public class AtomTypeFactory {
     
     private static ILoggingTool logger =
         LoggingToolFactory.createLoggingTool(AtomTypeFactory.class);
-    private static Map<String, AtomTypeFactory> tables = null;
+    private final static ConcurrentMap<String, AtomTypeFactory> tables =
+        new ConcurrentHashMap<String, AtomTypeFactory>();
     private List<IAtomType> atomTypes = null;
+    // the first atom type of each name and the atom types of each symbol
+    private Map<String, IAtomType>       typesByName   = null;
+    private Map<String, List<IAtomType>> typesBySymbol = null;
 
 	/**
 	 * Private constructor for the AtomTypeFactory singleton.
@@ -108,6 +114,7 @@ public class AtomTypeFactory {
     private AtomTypeFactory(String configFile, IChemObjectBuilder builder) {
         atomTypes = new ArrayList<IAtomType>(100);
         readConfiguration(configFile, builder);
+        index();
     }
 
 	/**
@@ -117,6 +124,7 @@ public class AtomTypeFactory {
     private AtomTypeFactory(InputStream ins, String format, IChemObjectBuilder builder) {
         atomTypes = new ArrayList<IAtomType>(100);
         readConfiguration(ins, format, builder);
+        index();
     }
 
     /**
@@ -164,13 +172,35 @@ public class AtomTypeFactory {
      */
     @TestMethod("testGetInstance_String_IChemObjectBuilder")
     public static AtomTypeFactory getInstance(String configFile, IChemObjectBuilder builder) {
-        if (tables == null) {
-            tables = new Hashtable<String, AtomTypeFactory>();
+        AtomTypeFactory factory = tables.get(configFile);
+        if (factory == null) {
+            // only the creation is locked, so a table is read once
+            synchronized (tables) {
+                factory = tables.get(configFile);
+                if (factory == null) {
+                    factory = new AtomTypeFactory(configFile, builder);
+                    tables.put(configFile, factory);
+                }
+            }
         }
-        if (!(tables.containsKey(configFile))) {
-            tables.put(configFile, new AtomTypeFactory(configFile, builder));
+        return factory;
+    }
+
+    /**
+     * Index the atom types by name and by element symbol, in the order of
+     * the list so that lookups give the same atom types as a scan.
+     */
+    private void index() {
+        typesByName   = new HashMap<String, IAtomType>(2 * atomTypes.size());
+        typesBySymbol = new HashMap<String, List<IAtomType>>();
+        for (IAtomType atomType : atomTypes) {
+            if (!typesByName.containsKey(atomType.getAtomTypeName()))
+                typesByName.put(atomType.getAtomTypeName(), atomType);
+            List<IAtomType> types = typesBySymbol.get(atomType.getSymbol());
+            if (types == null)
+                typesBySymbol.put(atomType.getSymbol(), types = new ArrayList<IAtomType>(4));
+            types.add(atomType);
         }
-        return tables.get(configFile);
     }
 
 	/**
@@ -280,11 +310,9 @@ public class AtomTypeFactory {
     @TestMethod("testGetAtomType_String,testGetAtomTypeFromJmol,testGetAtomTypeFromMM2,testGetAtomTypeFromPDB")
     public IAtomType getAtomType(String identifier) throws NoSuchAtomTypeException
 	{
-        for (IAtomType atomType : atomTypes) {
-            if (atomType.getAtomTypeName().equals(identifier)) {
-                return atomType;
-            }
-        }
+        IAtomType atomType = typesByName.get(identifier);
+        if (atomType != null)
+            return atomType;
         throw new NoSuchAtomTypeException("The AtomType " + identifier + " could not be found");
 	}
 
@@ -302,10 +330,9 @@ public class AtomTypeFactory {
 	{
         logger.debug("Request for atomtype for symbol ", symbol);
         List<IAtomType> atomList = new ArrayList<IAtomType>();
-        for (IAtomType atomType : atomTypes) {
-            // logger.debug("  does symbol match for: ", atomType);
-            if (atomType.getSymbol().equals(symbol)) {
-                // logger.debug("Atom type found for symbol: ", atomType);
+        List<IAtomType> matches  = typesBySymbol.get(symbol);
+        if (matches != null) {
+            for (IAtomType atomType : matches) {
                 IAtomType clone;
                 try {
                     clone = (IAtomType) atomType.clone();
@@ -26,8 +26,12 @@ package org.openscience.cdk.config;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.openscience.cdk.annotations.TestClass;
 import org.openscience.cdk.annotations.TestMethod;
@@ -59,6 +63,17 @@ import org.openscience.cdk.tools.LoggingToolFactory;
  *   Isotope major = factory.getMajorIsotope("H");
  * </pre> 
  *
+ * <p>The methods returning isotopes return copies which the caller may
+ * modify. Code that only reads the isotopes, for example to sum masses or
+ * abundances, can use the views, which return the shared isotopes of the
+ * factory without copying them:
+ * <pre>
+ *   for (IIsotope isotope : factory.getIsotopeView("Cl"))
+ *       mass += isotope.getExactMass() * isotope.getNaturalAbundance();
+ * </pre>
+ * The isotopes are indexed by symbol, atomic number and exact mass when
+ * the factory is created, so none of the lookups scans all isotopes.
+ *
  * @cdk.module core
  * @cdk.githash
  *
@@ -73,7 +88,19 @@ public class IsotopeFactory
 
 	private static IsotopeFactory ifac = null;
 	private List<IIsotope> isotopes = null;
-    private HashMap<String, IIsotope> majorIsotopes = null;
+    private Map<String, IIsotope> majorIsotopes = null;
+
+    /** The isotopes of each symbol and atomic number, in file order. */
+    private Map<String, List<IIsotope>> isotopesBySymbol;
+    private List<List<IIsotope>>        isotopesByNumber;
+
+    /** The major isotope of each atomic number, not copied. */
+    private IIsotope[] majorByNumber;
+
+    /** The isotopes with an exact mass and their position in the file, by ascending mass. */
+    private double[]   masses;
+    private IIsotope[] isotopesByMass;
+    private int[]      positionsByMass;
     private boolean debug = false;
     private static ILoggingTool logger =
         LoggingToolFactory.createLoggingTool(IsotopeFactory.class);
@@ -113,7 +140,124 @@ public class IsotopeFactory
               Isotope isotope = (Isotope)isotopes.elementAt(f);
           } What's this loop for?? */
 
-        majorIsotopes = new HashMap<String, IIsotope>();
+        index();
+    }
+
+    /**
+     * Index the isotopes by symbol, atomic number and exact mass, and find
+     * the major isotope of each element.
+     */
+    private void index() {
+        Map<String, List<IIsotope>> bySymbol = new HashMap<String, List<IIsotope>>();
+        List<List<IIsotope>>        byNumber = new ArrayList<List<IIsotope>>();
+        List<Integer>               withMass = new ArrayList<Integer>();
+        for (int i = 0; i < isotopes.size(); i++) {
+            IIsotope isotope = isotopes.get(i);
+            String   symbol  = isotope.getSymbol();
+            if (symbol != null) {
+                List<IIsotope> list = bySymbol.get(symbol);
+                if (list == null)
+                    bySymbol.put(symbol, list = new ArrayList<IIsotope>(4));
+                list.add(isotope);
+            }
+            Integer number = isotope.getAtomicNumber();
+            if (number != null && number >= 0) {
+                while (byNumber.size() <= number)
+                    byNumber.add(new ArrayList<IIsotope>(4));
+                byNumber.get(number).add(isotope);
+            }
+            if (isotope.getExactMass() != null)
+                withMass.add(i);
+        }
+
+        isotopesBySymbol = new HashMap<String, List<IIsotope>>(2 * bySymbol.size());
+        majorIsotopes    = new HashMap<String, IIsotope>(2 * bySymbol.size());
+        for (Map.Entry<String, List<IIsotope>> e : bySymbol.entrySet()) {
+            isotopesBySymbol.put(e.getKey(), Collections.unmodifiableList(e.getValue()));
+            IIsotope major = major(e.getValue());
+            try {
+                majorIsotopes.put(e.getKey(), (IIsotope) major.clone());
+            } catch (CloneNotSupportedException exception) {
+                logger.error("Could not clone IIsotope: ", exception.getMessage());
+                logger.debug(exception);
+            }
+        }
+        isotopesByNumber = new ArrayList<List<IIsotope>>(byNumber.size());
+        majorByNumber    = new IIsotope[byNumber.size()];
+        for (int number = 0; number < byNumber.size(); number++) {
+            List<IIsotope> list = byNumber.get(number);
+            isotopesByNumber.add(Collections.unmodifiableList(list));
+            majorByNumber[number] = list.isEmpty() ? null : major(list);
+        }
+
+        // a stable sort by mass keeps isotopes of equal mass in file order
+        Integer[] order = withMass.toArray(new Integer[withMass.size()]);
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                return Double.compare(isotopes.get(a).getExactMass(),
+                                      isotopes.get(b).getExactMass());
+            }
+        });
+        masses          = new double[order.length];
+        isotopesByMass  = new IIsotope[order.length];
+        positionsByMass = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            isotopesByMass[i]  = isotopes.get(order[i]);
+            masses[i]          = isotopesByMass[i].getExactMass();
+            positionsByMass[i] = order[i];
+        }
+    }
+
+    /**
+     * The most abundant isotope of a list, the first one if several are
+     * equally abundant.
+     */
+    private static IIsotope major(List<IIsotope> list) {
+        IIsotope major = null;
+        for (IIsotope isotope : list) {
+            if (major == null)
+                major = isotope;
+            else if (isotope.getNaturalAbundance() != null && (major.getNaturalAbundance() == null
+                     || isotope.getNaturalAbundance() > major.getNaturalAbundance()))
+                major = isotope;
+        }
+        return major;
+    }
+
+    /**
+     * The position of the first isotope with an exact mass of at least the
+     * given mass in the mass sorted index.
+     */
+    private int lowerBound(double mass) {
+        int lo = 0, hi = masses.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (masses[mid] < mass)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    private static IIsotope copy(IIsotope isotope) {
+        try {
+            return (IIsotope) isotope.clone();
+        } catch (CloneNotSupportedException e) {
+            logger.error("Could not clone IIsotope: ", e.getMessage());
+            logger.debug(e);
+            return null;
+        }
+    }
+
+    private static IIsotope[] copy(List<IIsotope> isotopes) {
+        List<IIsotope> list = new ArrayList<IIsotope>(isotopes.size());
+        for (IIsotope isotope : isotopes) {
+            IIsotope clone = copy(isotope);
+            if (clone != null)
+                list.add(clone);
+        }
+        return list.toArray(new IIsotope[list.size()]);
     }
 
 
@@ -154,19 +298,36 @@ public class IsotopeFactory
 	 */
     @TestMethod("testGetIsotopes_String")
     public IIsotope[] getIsotopes(String symbol) {
-        ArrayList<IIsotope> list = new ArrayList<IIsotope>();
-        for (IIsotope isotope : isotopes) {
-            if (isotope.getSymbol().equals(symbol)) {
-                try {
-                    IIsotope clone = (IIsotope) isotope.clone();
-                    list.add(clone);
-                } catch (CloneNotSupportedException e) {
-                    logger.error("Could not clone IIsotope: ", e.getMessage());
-                    logger.debug(e);
-                }
-            }
-        }
-        return list.toArray(new IIsotope[list.size()]);
+        return copy(getIsotopeView(symbol));
+    }
+
+    /**
+     * Gets a read-only list of the isotopes of an element. The isotopes are
+     * shared by all users of the factory and are not copied, they must not
+     * be modified. Use {@link #getIsotopes(String)} for copies.
+     *
+     * @param  symbol an element symbol to search for
+     * @return        the isotopes of the element, empty if the symbol is unknown
+     */
+    @TestMethod("testGetIsotopeView_String")
+    public List<IIsotope> getIsotopeView(String symbol) {
+        List<IIsotope> list = isotopesBySymbol.get(symbol);
+        return list != null ? list : Collections.<IIsotope>emptyList();
+    }
+
+    /**
+     * Gets a read-only list of the isotopes of an element. The isotopes are
+     * shared by all users of the factory and must not be modified.
+     *
+     * @param  atomicNumber the atomic number of the element
+     * @return              the isotopes of the element, empty if the atomic
+     *                      number is unknown
+     */
+    @TestMethod("testGetIsotopeView_int")
+    public List<IIsotope> getIsotopeView(int atomicNumber) {
+        if (atomicNumber < 0 || atomicNumber >= isotopesByNumber.size())
+            return Collections.emptyList();
+        return isotopesByNumber.get(atomicNumber);
     }
 
     /**
@@ -199,19 +360,46 @@ public class IsotopeFactory
 	 */
     @TestMethod("testGetIsotopes_double_double")
     public IIsotope[] getIsotopes(double exactMass, double difference) {
-    	ArrayList<IIsotope> list = new ArrayList<IIsotope>();
-    	for (IIsotope isotope : isotopes) {
-    		if (Math.abs(isotope.getExactMass() - exactMass) <= difference) {
-    			try {
-    				IIsotope clone = (IIsotope) isotope.clone();
-    				list.add(clone);
-    			} catch (CloneNotSupportedException e) {
-    				logger.error("Could not clone IIsotope: ", e.getMessage());
-    				logger.debug(e);
-    			}
-    		}
-    	}
-    	return list.toArray(new IIsotope[list.size()]);
+        // the matches are returned in file order, as they always were
+        int   from      = lowerBound(exactMass - difference);
+        int[] positions = new int[0];
+        int   count     = 0;
+        for (int i = from; i < masses.length && masses[i] - exactMass <= difference; i++) {
+            if (Math.abs(masses[i] - exactMass) > difference)
+                continue;
+            if (count == positions.length)
+                positions = Arrays.copyOf(positions, Math.max(4, 2 * count));
+            positions[count++] = positionsByMass[i];
+        }
+        Arrays.sort(positions, 0, count);
+        List<IIsotope> list = new ArrayList<IIsotope>(count);
+        for (int i = 0; i < count; i++)
+            list.add(isotopes.get(positions[i]));
+        return copy(list);
+    }
+
+    /**
+     * Gets a read-only list of the isotopes matching the searched exact mass
+     * within a certain difference, in order of ascending mass. The isotopes
+     * are found by a binary search, are shared by all users of the factory
+     * and must not be modified.
+     *
+     * @param  exactMass  search mass
+     * @param  difference mass the isotope is allowed to differ from the search mass
+     * @return            the matching isotopes
+     */
+    @TestMethod("testGetIsotopeView_double_double")
+    public List<IIsotope> getIsotopeView(double exactMass, double difference) {
+        int from = lowerBound(exactMass - difference);
+        int to   = from;
+        while (to < masses.length && masses[to] - exactMass <= difference)
+            to++;
+        // rounding may place an isotope just outside the window at the bounds
+        while (from < to && Math.abs(masses[from] - exactMass) > difference)
+            from++;
+        while (to > from && Math.abs(masses[to - 1] - exactMass) > difference)
+            to--;
+        return Collections.unmodifiableList(Arrays.asList(isotopesByMass).subList(from, to));
     }
     
     /**
@@ -223,17 +411,9 @@ public class IsotopeFactory
      */
     @TestMethod("testGetIsotope")
     public IIsotope getIsotope(String symbol, int massNumber) {
-        IIsotope ret = null;
-        for (IIsotope isotope : isotopes) {
-            if (isotope.getSymbol().equals(symbol) && isotope.getMassNumber() == massNumber) {
-                try {
-                    ret = (IIsotope) isotope.clone();
-                } catch (CloneNotSupportedException e) {
-                    logger.error("Could not clone IIsotope: ", e.getMessage());
-                    logger.debug(e);
-                }
-                return ret;
-            }
+        for (IIsotope isotope : getIsotopeView(symbol)) {
+            if (isotope.getMassNumber() == massNumber)
+                return copy(isotope);
         }
         return null;
     }
@@ -250,20 +430,14 @@ public class IsotopeFactory
     public IIsotope getIsotope(String symbol, double exactMass, double tolerance) {
         IIsotope ret     = null;
         double   minDiff = Double.MAX_VALUE;
-        for (IIsotope isotope : isotopes) {
+        for (IIsotope isotope : getIsotopeView(symbol)) {
             double diff = Math.abs(isotope.getExactMass() - exactMass);
-            if (isotope.getSymbol().equals(symbol) &&
-            	diff <= tolerance && diff < minDiff) {
-                try {
-                    ret = (IIsotope) isotope.clone();
-                    minDiff = diff;
-                } catch (CloneNotSupportedException e) {
-                    logger.error("Could not clone IIsotope: ", e.getMessage());
-                    logger.debug(e);
-                }
+            if (diff <= tolerance && diff < minDiff) {
+                ret     = isotope;
+                minDiff = diff;
             }
         }
-        return ret;
+        return ret != null ? copy(ret) : null;
     }
 
     /**
@@ -282,22 +456,8 @@ public class IsotopeFactory
     @TestMethod("testGetMajorIsotope_int")
     public IIsotope getMajorIsotope(int atomicNumber) {
         IIsotope major = null;
-        for (IIsotope isotope : isotopes) {
-            if (isotope.getAtomicNumber() == atomicNumber) {
-                try {
-                    if (major == null) {
-                        major = (IIsotope) isotope.clone();
-                    } else {
-                        if (isotope.getNaturalAbundance() > major.getNaturalAbundance()) {
-                            major = (IIsotope) isotope.clone();
-                        }
-                    }
-                } catch (CloneNotSupportedException e) {
-                    logger.error("Could not clone IIsotope: ", e.getMessage());
-                    logger.debug(e);
-                }
-            }
-        }
+        if (atomicNumber >= 0 && atomicNumber < majorByNumber.length && majorByNumber[atomicNumber] != null)
+            major = copy(majorByNumber[atomicNumber]);
         if (major == null) logger.error("Could not find major isotope for: ", atomicNumber);
         return major;
     }
@@ -321,32 +481,8 @@ public class IsotopeFactory
      */
     @TestMethod("testGetMajorIsotope_String")
     public IIsotope getMajorIsotope(String symbol) {
-        IIsotope major = null;
-        if (majorIsotopes.containsKey(symbol)) {
-            major = majorIsotopes.get(symbol);
-        } else {
-            for (IIsotope isotope : isotopes) {
-                if (isotope.getSymbol().equals(symbol)) {
-                    try {
-                        if (major == null) {
-                            major = (IIsotope) isotope.clone();
-                        } else {
-                            if (isotope.getNaturalAbundance() > major.getNaturalAbundance()) {
-                                major = (IIsotope) isotope.clone();
-                            }
-                        }
-                    } catch (CloneNotSupportedException e) {
-                        logger.error("Could not clone IIsotope: ", e.getMessage());
-                        logger.debug(e);
-                    }
-                }
-            }
-            if (major == null) {
-                logger.error("Could not find major isotope for: ", symbol);
-            } else {
-                majorIsotopes.put(symbol, major);
-            }
-        }
+        IIsotope major = majorIsotopes.get(symbol);
+        if (major == null) logger.error("Could not find major isotope for: ", symbol);
         return major;
     }
 
@@ -452,13 +588,13 @@ public class IsotopeFactory
 	 */
     @TestMethod("testGetNaturalMass_IElement")
 	public double getNaturalMass(IElement element){
-		IIsotope[] isotopes = getIsotopes(element.getSymbol());
+		List<IIsotope> isotopes = getIsotopeView(element.getSymbol());
 		double summedAbundances = 0;
 		double summedWeightedAbundances = 0;
 		double getNaturalMass = 0;
-		for (int i = 0; i < isotopes.length; i++) {
-			summedAbundances += isotopes[i].getNaturalAbundance();
-			summedWeightedAbundances += isotopes[i].getNaturalAbundance() * isotopes[i].getExactMass();
+		for (IIsotope isotope : isotopes) {
+			summedAbundances += isotope.getNaturalAbundance();
+			summedWeightedAbundances += isotope.getNaturalAbundance() * isotope.getExactMass();
 			getNaturalMass = summedWeightedAbundances / summedAbundances;
 		}
 		return getNaturalMass;
@@ -61,6 +61,8 @@ public final class NaturalElement implements IElement {
 	@Override public boolean getNotification() { return false; }
 	@Override public void notifyChanged() {}
 	@Override public void notifyChanged(IChemObjectChangeEvent evt) {}
+	@Override public void beginChanges() {}
+	@Override public void endChanges() {}
 
 	// unsupported methods
 
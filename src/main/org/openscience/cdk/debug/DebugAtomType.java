@@ -109,6 +109,16 @@ public class DebugAtomType extends AtomType
 		super.notifyChanged(evt);
 	}
 
+	public void beginChanges() {
+		logger.debug("Beginning changes");
+		super.beginChanges();
+	}
+
+	public void endChanges() {
+		logger.debug("Ending changes");
+		super.endChanges();
+	}
+
 	public void setProperty(Object description, Object property) {
 		logger.debug("Setting property: ", description + "=" + property);
 		super.setProperty(description, property);
@@ -0,0 +1,66 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.event;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Event fired once at the end of a batch of changes, see {@link
+ * org.openscience.cdk.interfaces.IChemObject#beginChanges()}. The source is
+ * the object of the batch and the changes are the sources of the events
+ * it would have fired during the batch, each of them once.
+ *
+ * @cdk.module data
+ * @cdk.githash
+ */
+public class ChemObjectChangeSetEvent extends ChemObjectChangeEvent
+{
+
+    private static final long serialVersionUID = -2286311316498361257L;
+
+    private final transient List<Object> changes;
+
+    /**
+     * Constructs a ChemObjectChangeSetEvent for the changes of a batch.
+     *
+     * @param   source  The reference to the object of the batch
+     * @param   changes The sources of the changes, in the order they first changed
+     */
+    public ChemObjectChangeSetEvent(Object source, List<Object> changes)
+    {
+        super(source);
+        this.changes = Collections.unmodifiableList(changes);
+    }
+
+    /**
+     * The sources of the changes of the batch, in the order they first
+     * changed.
+     *
+     * @return the changed objects
+     */
+    public List<Object> getChanges()
+    {
+        return changes;
+    }
+}
@@ -174,6 +174,17 @@ public class ExtendedFingerprinter implements IFingerprinter {
         return fingerprinter.getSize()+RESERVED_BITS;
     }
 
+    /**
+     * Use the string based path encoding of earlier versions for the path
+     * bits, see {@link Fingerprinter#setLegacyPathHashing(boolean)}.
+     *
+     * @param legacyPathHashing use the string based path encoding
+     */
+    @TestMethod("testLegacyPathHashing")
+    public void setLegacyPathHashing(boolean legacyPathHashing) {
+        fingerprinter.setLegacyPathHashing(legacyPathHashing);
+    }
+
     /** {@inheritDoc} */
 	@Override
     @TestMethod("testGetCountFingerprint")
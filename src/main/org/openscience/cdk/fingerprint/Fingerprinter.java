@@ -29,6 +29,7 @@ import org.openscience.cdk.annotations.TestClass;
 import org.openscience.cdk.annotations.TestMethod;
 import org.openscience.cdk.aromaticity.CDKHueckelAromaticityDetector;
 import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.graph.GraphUtil;
 import org.openscience.cdk.graph.PathTools;
 import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
@@ -87,6 +88,11 @@ import java.util.Set;
  *  high. </font>
  *  </p>
  *
+ *  The paths are hashed on the integer adjacency list of the molecule using
+ *  the {@link PathHasher}. Fingerprints created by earlier versions, where
+ *  each path was encoded as a string, can be reproduced by setting
+ *  {@link #setLegacyPathHashing(boolean)}.
+ *
  * @author         steinbeck
  * @cdk.created    2002-02-24
  * @cdk.keyword    fingerprint
@@ -105,6 +111,9 @@ public class Fingerprinter implements IFingerprinter {
 	private int size;
 	private int searchDepth;
 
+	/* encode paths as strings, as fingerprints created prior to PathHasher */
+	private boolean legacyPathHashing = false;
+
 	static int debugCounter = 0;
 
 	private static ILoggingTool logger =
@@ -179,7 +188,7 @@ public class Fingerprinter implements IFingerprinter {
 
         int[] hashes = findPathes(container, searchDepth);
         for (int hash : hashes) {
-            position = new java.util.Random(hash).nextInt(size);
+            position = PathHasher.position(hash, size);
             bitSet.set(position);
         }
 
@@ -207,14 +216,74 @@ public class Fingerprinter implements IFingerprinter {
      * Get all paths of lengths 0 to the specified length.
      *
      * This method will find all paths upto length N starting from each
-     * atom in the molecule and return the unique set of such paths.
+     * atom in the molecule and return the hashes of the unique set of such
+     * paths.
      *
      * @param container The molecule to search
      * @param searchDepth The maximum path length desired
-     * @return A Map of path strings, keyed on themselves
+     * @return the hashes of the unique paths
      */
     protected int[] findPathes(IAtomContainer container, int searchDepth) {
 
+        if (legacyPathHashing)
+            return findPathesLegacy(container, searchDepth);
+
+        int[][] graph = GraphUtil.toAdjList(container);
+        int[]   atoms = new int[graph.length];
+        int[][] bonds = PathHasher.bondLabels(graph);
+
+        for (int i = 0; i < atoms.length; i++) {
+            atoms[i] = getAtomLabel(container.getAtom(i));
+        }
+        for (IBond bond : container.bonds()) {
+            PathHasher.label(graph, bonds,
+                             container.getAtomNumber(bond.getAtom(0)),
+                             container.getAtomNumber(bond.getAtom(1)),
+                             getBondLabel(bond));
+        }
+
+        return PathHasher.hash(graph, atoms, bonds, searchDepth);
+    }
+
+    /**
+     * The integer label of an atom used when hashing paths. This is the
+     * atomic number or, for pseudo atoms and malformed symbols, one more
+     * than the last element currently supported.
+     *
+     * @param atom an atom
+     * @return the atom label
+     */
+    static int getAtomLabel(IAtom atom) {
+        if (!(atom instanceof IPseudoAtom)) {
+            Integer atnum = PeriodicTable.getAtomicNumber(atom.getSymbol());
+            if (atnum != null) return atnum;
+        }
+        return PeriodicTable.getElementCount() + 1;
+    }
+
+    /**
+     * The integer label of a bond used when hashing paths, this is derived
+     * from the {@link #getBondSymbol(IBond)} so that subclasses which
+     * override the symbol also change the hashed paths.
+     *
+     * @param bond a bond
+     * @return the bond label
+     */
+    private int getBondLabel(IBond bond) {
+        String symbol = getBondSymbol(bond);
+        return symbol.length() == 0 ? 0 : symbol.charAt(0);
+    }
+
+    /**
+     * Path hashing as used prior to {@link PathHasher}, each path is
+     * encoded as a string and the hash code of the string is used.
+     *
+     * @param container The molecule to search
+     * @param searchDepth The maximum path length desired
+     * @return the hashes of the unique paths
+     */
+    private int[] findPathesLegacy(IAtomContainer container, int searchDepth) {
+
         List<StringBuffer> allPaths = new ArrayList<StringBuffer>();
 
         Map<IAtom,Map<IAtom, IBond>> cache 
@@ -323,6 +392,29 @@ public class Fingerprinter implements IFingerprinter {
 		return searchDepth;
 	}
 
+    /**
+     * Encode the paths as strings and use the string hash code, as done by
+     * earlier versions of this class. This reproduces the fingerprints of
+     * those versions but is considerably slower. Default is false.
+     *
+     * @param legacyPathHashing use the string based path encoding
+     */
+    @TestMethod("testLegacyPathHashing")
+    public void setLegacyPathHashing(boolean legacyPathHashing) {
+        this.legacyPathHashing = legacyPathHashing;
+    }
+
+    /**
+     * Whether the paths are encoded as strings as done by earlier versions
+     * of this class.
+     *
+     * @return the string based path encoding is used
+     */
+    @TestMethod("testLegacyPathHashing")
+    public boolean isLegacyPathHashing() {
+        return legacyPathHashing;
+    }
+
     @TestMethod("testGetSize")
 	public int getSize() {
 		return size;
@@ -29,12 +29,12 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import java.util.Set;
 
 import org.openscience.cdk.annotations.TestClass;
 import org.openscience.cdk.annotations.TestMethod;
 import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.graph.GraphUtil;
 import org.openscience.cdk.graph.PathTools;
 import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
@@ -70,6 +70,10 @@ import org.openscience.cdk.tools.periodictable.PeriodicTable;
  * account aromaticity. Instead, it takes into account SP2
  * {@link Hybridization}.
  *
+ * <p>The paths are hashed with the {@link PathHasher}, the string based path
+ * encoding of earlier versions can be restored with
+ * {@link #setLegacyPathHashing(boolean)}.
+ *
  * @cdk.keyword    fingerprint
  * @cdk.keyword    similarity
  * @cdk.module     standard
@@ -86,6 +90,9 @@ public class HybridizationFingerprinter implements IFingerprinter {
 	private int size;
 	private int searchDepth;
 
+	/* encode paths as strings, as fingerprints created prior to PathHasher */
+	private boolean legacyPathHashing = false;
+
 	static int debugCounter = 0;
 
 	private static final Map<String, String> queryReplace 
@@ -145,7 +152,7 @@ public class HybridizationFingerprinter implements IFingerprinter {
                 percieveAtomTypesAndConfigureUnsetProperties(clonedContainer);
             int[] hashes = findPathes(clonedContainer, searchDepth);
             for (int hash : hashes) {
-                bitSet.set(new Random(hash).nextInt(size));
+                bitSet.set(PathHasher.position(hash, size));
             }
         } catch (CloneNotSupportedException exception) {
             throw new CDKException(
@@ -164,10 +171,41 @@ public class HybridizationFingerprinter implements IFingerprinter {
      *
      * @param  container    The molecule to search
      * @param  searchDepth  The maximum path length desired
-     * @return              A Map of path strings, keyed on themselves
+     * @return              the hashes of the unique paths
      */
     protected int[] findPathes(IAtomContainer container, int searchDepth) {
 
+        if (legacyPathHashing)
+            return findPathesLegacy(container, searchDepth);
+
+        int[][] graph = GraphUtil.toAdjList(container);
+        int[]   atoms = new int[graph.length];
+        int[][] bonds = PathHasher.bondLabels(graph);
+
+        for (int i = 0; i < atoms.length; i++) {
+            atoms[i] = Fingerprinter.getAtomLabel(container.getAtom(i));
+        }
+        for (IBond bond : container.bonds()) {
+            String symbol = getBondSymbol(bond);
+            PathHasher.label(graph, bonds,
+                             container.getAtomNumber(bond.getAtom(0)),
+                             container.getAtomNumber(bond.getAtom(1)),
+                             symbol.length() == 0 ? 0 : symbol.charAt(0));
+        }
+
+        return PathHasher.hash(graph, atoms, bonds, searchDepth);
+    }
+
+    /**
+     * Path hashing as used prior to {@link PathHasher}, each path is
+     * encoded as a string and the hash code of the string is used.
+     *
+     * @param  container    The molecule to search
+     * @param  searchDepth  The maximum path length desired
+     * @return              the hashes of the unique paths
+     */
+    private int[] findPathesLegacy(IAtomContainer container, int searchDepth) {
+
         List<StringBuffer> allPaths = new ArrayList<StringBuffer>();
 
         Map<IAtom,Map<IAtom, IBond>> cache 
@@ -291,6 +329,29 @@ public class HybridizationFingerprinter implements IFingerprinter {
 		return searchDepth;
 	}
 
+    /**
+     * Encode the paths as strings and use the string hash code, as done by
+     * earlier versions of this class. This reproduces the fingerprints of
+     * those versions but is considerably slower. Default is false.
+     *
+     * @param legacyPathHashing use the string based path encoding
+     */
+    @TestMethod("testLegacyPathHashing")
+    public void setLegacyPathHashing(boolean legacyPathHashing) {
+        this.legacyPathHashing = legacyPathHashing;
+    }
+
+    /**
+     * Whether the paths are encoded as strings as done by earlier versions
+     * of this class.
+     *
+     * @return the string based path encoding is used
+     */
+    @TestMethod("testLegacyPathHashing")
+    public boolean isLegacyPathHashing() {
+        return legacyPathHashing;
+    }
+
     @TestMethod("testGetSize")
 	public int getSize() {
 		return size;
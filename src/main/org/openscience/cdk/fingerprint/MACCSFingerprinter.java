@@ -30,7 +30,6 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.BitSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -42,9 +41,10 @@ import org.openscience.cdk.graph.ConnectivityChecker;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.interfaces.IAtomContainerSet;
 import org.openscience.cdk.interfaces.IBond;
-import org.openscience.cdk.interfaces.IRingSet;
-import org.openscience.cdk.ringsearch.AllRingsFinder;
+import org.openscience.cdk.interfaces.IChemObjectBuilder;
+import org.openscience.cdk.smiles.smarts.SMARTSPatternSet;
 import org.openscience.cdk.smiles.smarts.SMARTSQueryTool;
+import org.openscience.cdk.smiles.smarts.SMARTSTarget;
 import org.openscience.cdk.tools.ILoggingTool;
 import org.openscience.cdk.tools.LoggingToolFactory;
 
@@ -76,6 +76,12 @@ public class MACCSFingerprinter implements IFingerprinter {
         LoggingToolFactory.createLoggingTool(MACCSFingerprinter.class);
     private MaccsKey[] keys = null;
 
+    /* the compiled key patterns, the builder they were created with and the
+       key index of each pattern (keys without a pattern are excluded) */
+    private SMARTSPatternSet   patterns       = null;
+    private IChemObjectBuilder patternBuilder = null;
+    private int[]              patternKeys    = null;
+
     @TestMethod("testFingerprint")
     public MACCSFingerprinter() {
         try {
@@ -93,22 +99,44 @@ public class MACCSFingerprinter implements IFingerprinter {
                   throws CDKException {
         if (keys == null) 
             throw new CDKException("Could not setup key definitions");
+        return getBitFingerprint(new SMARTSTarget(atomContainer));
+    }
+
+    /**
+     * Calculate the fingerprint of a molecule which has already been prepared
+     * for SMARTS matching. The same target can be passed to other SMARTS based
+     * fingerprints and queries without repeating the preparation.
+     *
+     * @param target the prepared molecule
+     * @return the fingerprint
+     * @throws CDKException the fingerprint could not be calculated
+     */
+    @TestMethod("testPreparedTarget")
+    public IBitFingerprint getBitFingerprint(SMARTSTarget target)
+                  throws CDKException {
+        if (keys == null) 
+            throw new CDKException("Could not setup key definitions");
+
+        IAtomContainer atomContainer = target.getAtomContainer();
 
         int bitsetLength = keys.length;
         BitSet fingerPrint = new BitSet(bitsetLength);
 
-        SMARTSQueryTool sqt = new SMARTSQueryTool("C", atomContainer.getBuilder());
-        for (int i = 0; i < keys.length; i++) {
-            String smarts = keys[i].getSmarts();
-            if (smarts.equals("?")) continue;
+        // find which patterns are present, only the keys which require more
+        // than one occurrence need the matches to be enumerated
+        BitSet present = getPatterns(atomContainer.getBuilder()).matches(target);
+        SMARTSQueryTool sqt = null;
+        for (int j = present.nextSetBit(0); j >= 0; j = present.nextSetBit(j + 1)) {
+            int i     = patternKeys[j];
             int count = keys[i].getCount();
-
-            sqt.setSmarts(smarts);
-            boolean status = sqt.matches(atomContainer);
-            if (status) {
-                if (count == 0) fingerPrint.set(i, true);
-                else {
-                   List<List<Integer>> matches = sqt.getUniqueMatchingAtoms();
+            if (count == 0) fingerPrint.set(i, true);
+            else {
+                if (sqt == null)
+                    sqt = new SMARTSQueryTool(keys[i].getSmarts(), atomContainer.getBuilder());
+                else
+                    sqt.setSmarts(keys[i].getSmarts());
+                if (sqt.matches(target)) {
+                    List<List<Integer>> matches = sqt.getUniqueMatchingAtoms();
                     if (matches.size() > count) fingerPrint.set(i, true);
                 }
             }
@@ -118,15 +146,12 @@ public class MACCSFingerprinter implements IFingerprinter {
         // (bits 1,44,125,166) so let try and do those features by hand
 
         // bit 125 aromatic ring count > 1
-        AllRingsFinder ringFinder = new AllRingsFinder();
-        IRingSet rings = ringFinder.findAllRings(atomContainer);
         int ringCount = 0;
-        for (int i = 0; i < rings.getAtomContainerCount(); i++) {
-            IAtomContainer ring = rings.getAtomContainer(i);
+        for (int[] ring : target.rings()) {
             boolean allAromatic = true;
-            Iterator<IBond> bonds = ring.bonds().iterator();
-            while (bonds.hasNext()) {
-                IBond bond = bonds.next();
+            for (int k = 1; k < ring.length; k++) {
+                IBond bond = atomContainer.getBond(atomContainer.getAtom(ring[k - 1]),
+                                                   atomContainer.getAtom(ring[k]));
                 if (!bond.getFlag(CDKConstants.ISAROMATIC)) {
                     allAromatic = false;
                     break;
@@ -161,6 +186,28 @@ public class MACCSFingerprinter implements IFingerprinter {
         else return 0;
     }
 
+    /**
+     * Access the compiled key patterns, the patterns are compiled on first use
+     * and again only if a different builder is used.
+     */
+    private SMARTSPatternSet getPatterns(IChemObjectBuilder builder) throws CDKException {
+        if (patterns == null || patternBuilder != builder) {
+            List<String> smarts = new ArrayList<String>();
+            List<Integer> index = new ArrayList<Integer>();
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i].getSmarts().equals("?")) continue;
+                smarts.add(keys[i].getSmarts());
+                index.add(i);
+            }
+            patternKeys = new int[index.size()];
+            for (int i = 0; i < patternKeys.length; i++)
+                patternKeys[i] = index.get(i);
+            patterns       = new SMARTSPatternSet(smarts.toArray(new String[smarts.size()]), builder);
+            patternBuilder = builder;
+        }
+        return patterns;
+    }
+
     private MaccsKey[] readKeyDef() throws IOException, CDKException {
         List<MaccsKey> keys = new ArrayList<MaccsKey>();
         String filename = "org/openscience/cdk/fingerprint/data/maccs.txt";
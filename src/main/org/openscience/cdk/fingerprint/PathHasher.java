@@ -0,0 +1,297 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.fingerprint;
+
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+
+import java.util.Arrays;
+
+/**
+ * Enumerates all simple paths up to a given number of bonds on an adjacency
+ * list ({@link org.openscience.cdk.graph.GraphUtil#toAdjList}) and encodes
+ * each path as a rolling 64-bit hash over integer atom and bond labels. The
+ * forward and the reverse hash of a path are accumulated during the walk and
+ * the smaller one is used, the resulting hash is therefore independent of the
+ * direction the path was traversed. No strings or path lists are created.
+ *
+ * <blockquote><pre>
+ * int[][] graph = GraphUtil.toAdjList(container);
+ * int[]   atoms = ...; // label for each atom, e.g. the atomic number
+ * int[][] bonds = PathHasher.bondLabels(graph);
+ * for (IBond bond : container.bonds())
+ *     PathHasher.label(graph, bonds,
+ *                      container.getAtomNumber(bond.getAtom(0)),
+ *                      container.getAtomNumber(bond.getAtom(1)),
+ *                      label(bond));
+ * int[] hashes = PathHasher.hash(graph, atoms, bonds, 8);
+ * </pre></blockquote>
+ *
+ * The hashes are reproducible between runs and platforms as they only depend
+ * on the labels of the path.
+ *
+ * @cdk.module standard
+ * @cdk.githash
+ * @cdk.keyword fingerprint
+ * @see Fingerprinter
+ */
+@TestClass("org.openscience.cdk.fingerprint.PathHasherTest")
+public final class PathHasher {
+
+    /* multiplier of the polynomial rolling hash (odd, 64-bit) */
+    private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    /* offset applied to bond labels so they never coincide with atom labels */
+    private static final long BOND_OFFSET = 0x100000000L;
+
+    /* constants used by java.util.Random */
+    private static final long RANDOM_MULTIPLIER = 0x5DEECE66DL;
+    private static final long RANDOM_ADDEND     = 0xBL;
+    private static final long RANDOM_MASK       = (1L << 48) - 1;
+
+    /* the graph being walked and the labels of the atoms and bonds */
+    private final int[][]   graph;
+    private final int[]     atoms;
+    private final int[][]   bonds;
+    private final int       depth;
+
+    /* atoms on the current path */
+    private final boolean[] visited;
+
+    /* forward hash, reverse hash and the multiplier power at each depth */
+    private final long[]    forward, reverse, power;
+
+    /* the (canonical) hashes found so far */
+    private long[]          hashes = new long[64];
+    private int             count  = 0;
+
+    private PathHasher(int[][] graph, int[] atoms, int[][] bonds, int depth) {
+        this.graph   = graph;
+        this.atoms   = atoms;
+        this.bonds   = bonds;
+        this.depth   = depth;
+        this.visited = new boolean[graph.length];
+        this.forward = new long[2 * depth + 2];
+        this.reverse = new long[2 * depth + 2];
+        this.power   = new long[2 * depth + 2];
+    }
+
+    /**
+     * Hash all unique paths of the graph with up to <i>depth</i> bonds,
+     * including the paths of length 0 (single atoms). Paths which have the
+     * same labels, in either direction, have the same hash and are only
+     * reported once.
+     *
+     * @param graph adjacency list representation of the molecule
+     * @param atoms integer label for each atom
+     * @param bonds integer label for each bond, indexed as the adjacency
+     *              list (see {@link #bondLabels(int[][])}), may be null if
+     *              the bonds are not labelled
+     * @param depth the maximum number of bonds in a path
+     * @return the unique path hashes
+     */
+    @TestMethod("testHash_propane,testHash_bondLabels,testHash_direction,testHash_depth")
+    public static int[] hash(int[][] graph, int[] atoms, int[][] bonds, int depth) {
+
+        if (atoms.length != graph.length)
+            throw new IllegalArgumentException("an atom label must be provided for each vertex");
+        if (depth < 0)
+            throw new IllegalArgumentException("search depth must be positive");
+
+        PathHasher hasher = new PathHasher(graph, atoms, bonds, depth);
+        for (int v = 0; v < graph.length; v++) {
+            hasher.walk(v);
+        }
+        return hasher.unique();
+    }
+
+    /**
+     * Allocate storage for bond labels aligned with the provided adjacency
+     * list, that is the label of the bond between <i>v</i> and
+     * <i>graph[v][j]</i> is stored at <i>labels[v][j]</i>.
+     *
+     * @param graph adjacency list representation of the molecule
+     * @return storage for the bond labels (all 0)
+     */
+    @TestMethod("testHash_bondLabels")
+    public static int[][] bondLabels(int[][] graph) {
+        int[][] labels = new int[graph.length][];
+        for (int v = 0; v < graph.length; v++)
+            labels[v] = new int[graph[v].length];
+        return labels;
+    }
+
+    /**
+     * Set the label of the bond between the vertices <i>v</i> and <i>w</i>.
+     *
+     * @param graph  adjacency list representation of the molecule
+     * @param labels bond label storage
+     * @param v      a vertex
+     * @param w      a vertex adjacent to <i>v</i>
+     * @param label  the label of the bond
+     * @throws IllegalArgumentException the vertices were not adjacent
+     */
+    @TestMethod("testHash_bondLabels")
+    public static void label(int[][] graph, int[][] labels, int v, int w, int label) {
+        labels[v][indexOf(graph[v], w)] = label;
+        labels[w][indexOf(graph[w], v)] = label;
+    }
+
+    /**
+     * Map a path hash onto a bit position of a fingerprint of the given size.
+     * The result is identical to {@code new Random(hash).nextInt(size)} but
+     * does not allocate the generator.
+     *
+     * @param hash a path hash
+     * @param size the size of the fingerprint
+     * @return the position of the bit to set
+     */
+    @TestMethod("testPosition")
+    public static int position(int hash, int size) {
+
+        if (size <= 0)
+            throw new IllegalArgumentException("size must be positive");
+
+        long seed = (hash ^ RANDOM_MULTIPLIER) & RANDOM_MASK;
+
+        seed     = (seed * RANDOM_MULTIPLIER + RANDOM_ADDEND) & RANDOM_MASK;
+        int bits = (int) (seed >>> 17);
+
+        // power of two
+        if ((size & -size) == size)
+            return (int) ((size * (long) bits) >> 31);
+
+        int val = bits % size;
+        while (bits - val + (size - 1) < 0) {
+            seed = (seed * RANDOM_MULTIPLIER + RANDOM_ADDEND) & RANDOM_MASK;
+            bits = (int) (seed >>> 17);
+            val  = bits % size;
+        }
+        return val;
+    }
+
+    /**
+     * Walk all paths from the vertex <i>v</i>.
+     */
+    private void walk(int v) {
+        long label   = atoms[v];
+        forward[0]   = label;
+        reverse[0]   = label;
+        power[0]     = MULTIPLIER;
+        visited[v]   = true;
+        add(0);
+        walk(v, 0, 0);
+        visited[v]   = false;
+    }
+
+    /**
+     * Extend the current path, ending at <i>v</i>, with each unvisited
+     * neighbour.
+     *
+     * @param v      last vertex of the path
+     * @param length number of bonds in the current path
+     * @param i      index of the last hash in the hash stacks
+     */
+    private void walk(int v, int length, int i) {
+
+        if (length == depth)
+            return;
+
+        int[] ws = graph[v];
+        int[] bs = bonds != null ? bonds[v] : null;
+
+        for (int j = 0; j < ws.length; j++) {
+            int w = ws[j];
+            if (visited[w])
+                continue;
+
+            long bond = BOND_OFFSET + (bs != null ? bs[j] : 0);
+
+            append(i,     bond);
+            append(i + 1, atoms[w]);
+
+            visited[w] = true;
+            add(i + 2);
+            walk(w, length + 1, i + 2);
+            visited[w] = false;
+        }
+    }
+
+    /**
+     * Push a new label on to the hash stacks. The forward hash is
+     * <i>h' = h * m + x</i> and the reverse hash <i>h' = h + x * m^k</i>.
+     */
+    private void append(int i, long label) {
+        forward[i + 1] = forward[i] * MULTIPLIER + label;
+        reverse[i + 1] = reverse[i] + label * power[i];
+        power[i + 1]   = power[i] * MULTIPLIER;
+    }
+
+    /**
+     * Store the canonical hash at the index <i>i</i> of the hash stack.
+     */
+    private void add(int i) {
+        if (count == hashes.length)
+            hashes = Arrays.copyOf(hashes, count * 2);
+        hashes[count++] = Math.min(forward[i], reverse[i]);
+    }
+
+    /**
+     * Sort the path hashes, remove duplicates and fold each to an integer.
+     */
+    private int[] unique() {
+
+        Arrays.sort(hashes, 0, count);
+
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || hashes[i] != hashes[i - 1])
+                hashes[n++] = hashes[i];
+        }
+
+        int[] folded = new int[n];
+        for (int i = 0; i < n; i++)
+            folded[i] = fold(hashes[i]);
+        return folded;
+    }
+
+    /**
+     * Mix the bits of the 64-bit hash and fold it to 32-bits.
+     */
+    private static int fold(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int indexOf(int[] xs, int x) {
+        for (int i = 0; i < xs.length; i++)
+            if (xs[i] == x)
+                return i;
+        throw new IllegalArgumentException("vertices were not adjacent");
+    }
+
+}
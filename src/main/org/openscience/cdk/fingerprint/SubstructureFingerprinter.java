@@ -31,7 +31,9 @@ import org.openscience.cdk.annotations.TestClass;
 import org.openscience.cdk.annotations.TestMethod;
 import org.openscience.cdk.exception.CDKException;
 import org.openscience.cdk.interfaces.IAtomContainer;
-import org.openscience.cdk.smiles.smarts.SMARTSQueryTool;
+import org.openscience.cdk.interfaces.IChemObjectBuilder;
+import org.openscience.cdk.smiles.smarts.SMARTSPatternSet;
+import org.openscience.cdk.smiles.smarts.SMARTSTarget;
 
 import java.util.BitSet;
 import java.util.Map;
@@ -361,6 +363,10 @@ import java.util.Map;
  * </tbody></table>
  *
  *
+ * The SMARTS patterns are compiled once, on first use, into a
+ * {@link SMARTSPatternSet}. As recursive SMARTS queries hold a reference to the
+ * molecule being matched, an instance should not be shared between threads.
+ *
  * @author       egonw
  * @cdk.created  2005-12-30
  *
@@ -375,6 +381,10 @@ public class SubstructureFingerprinter implements IFingerprinter {
 
     private String[] smarts;
 
+    /* the compiled patterns and the builder they were created with */
+    private SMARTSPatternSet   patterns;
+    private IChemObjectBuilder patternBuilder;
+
     /**
      * Set up the fingerprinter to use the fragments from 
      * {@link org.openscience.cdk.fingerprint.StandardSubstructureSets}.
@@ -406,20 +416,40 @@ public class SubstructureFingerprinter implements IFingerprinter {
             throw new CDKException("No substructures were defined");
         }
 
-        int bitsetLength = smarts.length;
-        BitSet fingerPrint = new BitSet(bitsetLength);
-
-        SMARTSQueryTool sqt = new SMARTSQueryTool("C", atomContainer.getBuilder());
-        for (int i = 0; i < smarts.length; i++) {
-            String pattern = smarts[i];
+        return getBitFingerprint(new SMARTSTarget(atomContainer));
+    }
 
-            sqt.setSmarts(pattern);
-            boolean status = sqt.matches(atomContainer);
-            if (status) fingerPrint.set(i, true);
+    /**
+     * Calculate the fingerprint of a molecule which has already been prepared
+     * for SMARTS matching. The same target can be passed to other SMARTS based
+     * fingerprints and queries without repeating the preparation.
+     *
+     * @param target the prepared molecule
+     * @return the fingerprint
+     * @throws CDKException the fingerprint could not be calculated
+     */
+    @TestMethod("testPreparedTarget")
+    public IBitFingerprint getBitFingerprint(SMARTSTarget target) throws CDKException {
+        if (smarts == null) {
+            throw new CDKException("No substructures were defined");
         }
+        IAtomContainer atomContainer = target.getAtomContainer();
+        BitSet fingerPrint = getPatterns(atomContainer.getBuilder()).matches(target);
         return new BitSetFingerprint(fingerPrint);
     }
 
+    /**
+     * Access the compiled patterns, the patterns are compiled on first use and
+     * again only if a different builder is used.
+     */
+    private SMARTSPatternSet getPatterns(IChemObjectBuilder builder) throws CDKException {
+        if (patterns == null || patternBuilder != builder) {
+            patterns       = new SMARTSPatternSet(smarts, builder);
+            patternBuilder = builder;
+        }
+        return patterns;
+    }
+
     /** {@inheritDoc} */
     @TestMethod("testGetRawFingerprint")
     public Map<String, Integer> getRawFingerprint(IAtomContainer iAtomContainer) throws CDKException {
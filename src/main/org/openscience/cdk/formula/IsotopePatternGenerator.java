@@ -20,21 +20,35 @@
  */
 package org.openscience.cdk.formula;
 
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Set;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
 import org.openscience.cdk.config.IsotopeFactory;
 import org.openscience.cdk.interfaces.IIsotope;
 import org.openscience.cdk.interfaces.IMolecularFormula;
-import org.openscience.cdk.interfaces.IChemObjectBuilder;
 import org.openscience.cdk.tools.ILoggingTool;
 import org.openscience.cdk.tools.LoggingToolFactory;
-import org.openscience.cdk.tools.manipulator.MolecularFormulaManipulator;
 
 /**
  * Generates all Combinatorial chemical isotopes given a structure.
+ *
+ * <p>The isotope distribution of each element is raised to the number of
+ * atoms of that element by repeated squaring, so an element that occurs
+ * <i>n</i> times costs about log<sub>2</sub>(<i>n</i>) convolutions. After
+ * each convolution peaks closer than {@link #RESOLUTION} are merged and
+ * peaks far below the requested minimal abundance are dropped. The
+ * distributions of the elements are kept, so one generator can be used for
+ * many candidate formulas:
+ * <pre>
+ * IsotopePatternGenerator generator = new IsotopePatternGenerator(0.01);
+ * for (IMolecularFormula candidate : candidates)
+ *     patterns.add(generator.getIsotopes(candidate));
+ * double[] scores = new IsotopePatternSimilarity().compare(detected, patterns);
+ * </pre>
  * 
  * @cdk.module  formula
  * @author      Miguel Rojas Cherto
@@ -47,9 +61,22 @@ import org.openscience.cdk.tools.manipulator.MolecularFormulaManipulator;
 @TestClass("org.openscience.cdk.formula.IsotopePatternGeneratorTest")
 public class IsotopePatternGenerator{
 
-	private IChemObjectBuilder builder = null;
+	/** Peaks closer in mass than this are merged into one peak. */
+	public static final double RESOLUTION = 0.00005;
+
+	/**
+	 * Intermediate peaks are dropped when they are less abundant than this
+	 * fraction of minAbundance, relative to the most abundant peak.
+	 */
+	private static final double PRUNE_FACTOR = 1e-3;
+
+	/** Peaks of an intermediate distribution are never dropped above this. */
+	private static final double MIN_PRUNE = 1e-9;
+
 	private IsotopeFactory isoFactory;
-	private IsotopePattern abundance_Mass = null;
+
+	/** The isotope distribution of each element, fractions summing to one. */
+	private final Map<String, Distribution> elements = new ConcurrentHashMap<String, Distribution>();
 	
 	private ILoggingTool logger =
         LoggingToolFactory.createLoggingTool(IsotopePatternGenerator.class);
@@ -75,211 +102,230 @@ public class IsotopePatternGenerator{
 		minAbundance = minAb;
 		logger.info("Generating all Isotope structures with IsotopeGenerator");
 	}
+
 	/**
-	 * Get all combinatorial chemical isotopes given a structure. 
+	 * Get all combinatorial chemical isotopes given a structure. The
+	 * isotopes of the formula only count as their element. The peaks are
+	 * sorted by mass and their intensity is relative to the most abundant
+	 * peak, which is always part of the pattern. Other peaks are part of it
+	 * when their relative intensity is at least the minimal abundance.
 	 * 
 	 * @param molFor  The IMolecularFormula to start
 	 * @return        A IsotopePattern object containing the different combinations
 	 */
+	@TestMethod("testGetIsotopes_IMolecularFormula")
 	public IsotopePattern getIsotopes(IMolecularFormula molFor){
-    	
-		if(builder==null){
+		if (isoFactory == null) {
 			try {
 				isoFactory = IsotopeFactory.getInstance(molFor.getBuilder());
-				builder = molFor.getBuilder();
 			} catch (Exception e) {
-				e.printStackTrace();
+				logger.error("Could not load the IsotopeFactory: ", e.getMessage());
+				logger.debug(e);
+				return new IsotopePattern();
 			}
 		}
-    	String mf = MolecularFormulaManipulator.getString(molFor,true);
-    	
-		// Divide the chemical formula into tokens (element and coefficients)
-		HashMap<String, Integer> tokens = new HashMap<String, Integer>();
-		IMolecularFormula molecularFormula = MolecularFormulaManipulator.getMajorIsotopeMolecularFormula(mf, builder);
-		for(IIsotope isos :molecularFormula.isotopes())
-			tokens.put(isos.getSymbol(), molecularFormula.getIsotopeCount(isos));
 
-		int atomCount;
-		for(IIsotope isos : molecularFormula.isotopes()){
-			String elementSymbol = isos.getSymbol();
-			atomCount = tokens.get(elementSymbol);
-			
-			for (int i = 0; i < atomCount; i++) {
-				if (!calculateAbundanceAndMass(elementSymbol)) {
-				}
-			}
+		// the atom count of each element, in the order of the formula
+		Map<String, Integer> counts = new LinkedHashMap<String, Integer>();
+		for (IIsotope isotope : molFor.isotopes()) {
+			Integer count = counts.get(isotope.getSymbol());
+			counts.put(isotope.getSymbol(),
+			           (count != null ? count : 0) + molFor.getIsotopeCount(isotope));
 		}
-		
-		IsotopePattern isoP = IsotopePatternManipulator.sortAndNormalizedByIntensity(abundance_Mass);
-		isoP = cleanAbundance(isoP, minAbundance);
-		IsotopePattern isoPattern = IsotopePatternManipulator.sortByMass(isoP);
-	
-		return isoPattern;
 
+		double prune = Math.max(minAbundance * PRUNE_FACTOR, MIN_PRUNE);
+		Distribution pattern = null;
+		for (Map.Entry<String, Integer> e : counts.entrySet()) {
+			Distribution element = getDistribution(e.getKey());
+			if (element == null || e.getValue() <= 0)
+				continue;
+			Distribution power = element.power(e.getValue(), prune);
+			pattern = pattern == null ? power : pattern.convolve(power, prune);
+		}
+		return pattern != null ? toPattern(pattern) : new IsotopePattern();
 	}
+
 	/**
-	 * Calculates the mass and abundance of all isotopes generated by adding one
-	 * atom. Receives the periodic table element and calculate the isotopes, if
-	 * there exist a previous calculation, add these new isotopes. In the
-	 * process of adding the new isotopes, remove those that has an abundance
-	 * less than setup parameter minAbundance, and remove duplicated masses.
-	 * 
-	 * @param elementSymbol  The chemical element symbol
-	 * @return               
+	 * The isotope distribution of a single atom of an element.
+	 *
+	 * @param symbol the element symbol
+	 * @return       the distribution, null if the element has no isotopes
 	 */
-	private boolean calculateAbundanceAndMass(String elementSymbol) {
-
-		IIsotope[] isotopes = isoFactory.getIsotopes(elementSymbol);
-
-		if (isotopes == null)
-			return false;
-
-		if (isotopes.length == 0)
-			return false;
-
-		double mass, previousMass, abundance, totalAbundance, newAbundance;
-
-		HashMap<Double, Double> isotopeMassAndAbundance = new HashMap<Double, Double>();
-		IsotopePattern currentISOPattern = new IsotopePattern();
-
-		// Generate isotopes for the current atom (element)
-		for (int i = 0; i < isotopes.length; i++) {
-			mass = isotopes[i].getExactMass();
-			abundance = isotopes[i].getNaturalAbundance();
-			currentISOPattern.addIsotope(new IsotopeContainer(mass, abundance));
-		}
-
-		
-		// Verify if there is a previous calculation. If it exists, add the new
-		// isotopes
-		if (abundance_Mass == null) {
-
-			abundance_Mass = currentISOPattern;
-			return true;
-
-		} else {
-			for (int i = 0; i < abundance_Mass.getNumberOfIsotopes(); i++) {
-				totalAbundance = abundance_Mass.getIsotopes().get(i).getIntensity();
-
-				if (totalAbundance == 0)
+	private Distribution getDistribution(String symbol) {
+		Distribution distribution = elements.get(symbol);
+		if (distribution == null) {
+			// the isotopes are only read, no copies are needed
+			List<IIsotope> isotopes = isoFactory.getIsotopeView(symbol);
+			double[] mass      = new double[isotopes.size()];
+			double[] abundance = new double[isotopes.size()];
+			double   total     = 0;
+			int      size      = 0;
+			for (IIsotope isotope : isotopes) {
+				if (isotope.getExactMass() == null || isotope.getNaturalAbundance() == null
+				    || isotope.getNaturalAbundance() <= 0)
 					continue;
-
-				for (int j = 0; j < currentISOPattern.getNumberOfIsotopes(); j++) {
-
-					abundance = currentISOPattern.getIsotopes().get(j).getIntensity();
-					mass = abundance_Mass.getIsotopes().get(i).getMass();
-
-					if (abundance == 0)
-						continue;
-
-					newAbundance = totalAbundance * abundance * 0.01f;
-					mass += currentISOPattern.getIsotopes().get(j).getMass();
-
-					// Filter duplicated masses
-					previousMass = searchMass(isotopeMassAndAbundance.keySet(),
-							mass);
-					if (isotopeMassAndAbundance.containsKey(previousMass)) {
-						newAbundance += isotopeMassAndAbundance
-								.get(previousMass);
-						mass = previousMass;
-					}
-
-					// Filter isotopes too small
-					if (isNotZero(newAbundance)) {
-						isotopeMassAndAbundance.put(mass, newAbundance);
-					}
-					previousMass = 0;
-				}
+				mass[size]      = isotope.getExactMass();
+				abundance[size] = isotope.getNaturalAbundance();
+				total          += abundance[size];
+				size++;
 			}
-
-			Iterator<Double> itr = isotopeMassAndAbundance.keySet().iterator();
-			int i = 0;
-			abundance_Mass = new IsotopePattern();
-			while (itr.hasNext()) {
-				mass = itr.next();
-				abundance_Mass.addIsotope(new IsotopeContainer(mass, isotopeMassAndAbundance.get(mass)));
-				i++;
+			if (size == 0) {
+				logger.warn("No isotopes with an abundance for element: ", symbol);
+				return null;
 			}
+			for (int i = 0; i < size; i++)
+				abundance[i] /= total;
+			distribution = new Distribution(mass, abundance, size).merge(0);
+			elements.put(symbol, distribution);
 		}
-
-		return true;
-
+		return distribution;
 	}
 
 	/**
-	 * Search the key mass in this Set.
-	 * 
-	 * @param keySet  The Set object
-	 * @param mass    The mass to look for
-	 * @return        The key value
+	 * Normalize the intensities to the most abundant peak and keep the peaks
+	 * of at least the minimal abundance.
 	 */
-	private double searchMass(Set<Double> keySet, double mass) {
-		double TOLERANCE = 0.00005f;
-		double diff;
-		for (double key : keySet) {
-			diff = Math.abs(key - mass);
-			if (diff < TOLERANCE)
-				return key;
+	private IsotopePattern toPattern(Distribution distribution) {
+		double biggestIntensity = 0;
+		int    biggest          = 0;
+		for (int i = 0; i < distribution.size; i++) {
+			if (distribution.abundance[i] > biggestIntensity) {
+				biggestIntensity = distribution.abundance[i];
+				biggest          = i;
+			}
 		}
-
-		return 0.0d;
-	}
-
-	/**
-	 * Detection if the value is zero.
-	 * 
-	 * @param number The number to analyze
-	 * @return       TRUE, if it zero
-	 */
-	private boolean isNotZero(double number) {
-		double pow = (double) Math.pow(10, 6);
-		int fraction = (int) (number * pow);
-
-		if (fraction <= 0)
-			return false;
-
-		return true;
+		IsotopePattern pattern = new IsotopePattern();
+		boolean        first   = true;
+		for (int i = 0; i < distribution.size; i++) {
+			double intensity = distribution.abundance[i] / biggestIntensity;
+			if (i != biggest && intensity < minAbundance)
+				continue;
+			IsotopeContainer container = new IsotopeContainer(distribution.mass[i], intensity);
+			if (first)
+				pattern.setMonoIsotope(container);
+			else
+				pattern.addIsotope(container);
+			first = false;
+		}
+		return pattern;
 	}
 
 	/**
-	 * Normalize the intensity (relative abundance) of all isotopes in relation
-	 * of the most abundant isotope.
-	 * 
-	 * @param isopattern   The IsotopePattern object
-	 * @param minAbundance The minimum abundance
-	 * @return             The IsotopePattern cleaned
+	 * Peaks sorted by ascending mass on primitive arrays.
 	 */
-	private IsotopePattern cleanAbundance(IsotopePattern isopattern,
-			double minAbundance) {
-
-		double intensity, biggestIntensity = 0.0f;
+	private static final class Distribution {
 
-		for (IsotopeContainer sc : isopattern.getIsotopes()) {
-
-			intensity = sc.getIntensity();
-			if (intensity > biggestIntensity)
-				biggestIntensity = intensity;
+		private final double[] mass;
+		private final double[] abundance;
+		private final int      size;
 
+		private Distribution(double[] mass, double[] abundance, int size) {
+			this.mass      = mass;
+			this.abundance = abundance;
+			this.size      = size;
 		}
 
-		for (IsotopeContainer sc : isopattern.getIsotopes()) {
+		/**
+		 * This distribution raised to a power by repeated squaring.
+		 */
+		private Distribution power(int exponent, double prune) {
+			Distribution result = null;
+			Distribution square = this;
+			while (true) {
+				if ((exponent & 1) != 0)
+					result = result == null ? square : result.convolve(square, prune);
+				exponent >>>= 1;
+				if (exponent == 0)
+					return result;
+				square = square.convolve(square, prune);
+			}
+		}
 
-			intensity = sc.getIntensity();
-			intensity /= biggestIntensity;
-			if (intensity < 0)
-				intensity = 0;
+		/**
+		 * The distribution of the sum of this and another distribution.
+		 */
+		private Distribution convolve(Distribution other, double prune) {
+			int      n         = size * other.size;
+			double[] mass      = new double[n];
+			double[] abundance = new double[n];
+			for (int i = 0, k = 0; i < size; i++) {
+				for (int j = 0; j < other.size; j++, k++) {
+					mass[k]      = this.mass[i] + other.mass[j];
+					abundance[k] = this.abundance[i] * other.abundance[j];
+				}
+			}
+			sort(mass, abundance, 0, n - 1);
+			return new Distribution(mass, abundance, n).merge(prune);
+		}
 
-			sc.setIntensity(intensity);
+		/**
+		 * Merge peaks of a sorted distribution closer than the resolution
+		 * into their abundance weighted mean, and drop peaks below the prune
+		 * fraction of the most abundant peak.
+		 */
+		private Distribution merge(double prune) {
+			int    size = 0;
+			double max  = 0;
+			for (int i = 0; i < this.size; ) {
+				double first  = mass[i];
+				double weight = 0, sum = 0;
+				for (; i < this.size && mass[i] - first < RESOLUTION; i++) {
+					weight += abundance[i] * mass[i];
+					sum    += abundance[i];
+				}
+				mass[size]      = sum > 0 ? weight / sum : first;
+				abundance[size] = sum;
+				if (sum > max)
+					max = sum;
+				size++;
+			}
+			int kept = 0;
+			for (int i = 0; i < size; i++) {
+				if (abundance[i] < prune * max)
+					continue;
+				mass[kept]      = mass[i];
+				abundance[kept] = abundance[i];
+				kept++;
+			}
+			return new Distribution(mass, abundance, kept);
+		}
 
+		/**
+		 * Sort the peaks by mass, an in place quick sort of the two arrays.
+		 */
+		private static void sort(double[] mass, double[] abundance, int lo, int hi) {
+			while (hi - lo > 16) {
+				double pivot = median(mass[lo], mass[(lo + hi) >>> 1], mass[hi]);
+				int    i     = lo, j = hi;
+				while (i <= j) {
+					while (mass[i] < pivot) i++;
+					while (mass[j] > pivot) j--;
+					if (i <= j)
+						swap(mass, abundance, i++, j--);
+				}
+				// recurse into the smaller part, loop on the larger one
+				if (j - lo < hi - i) {
+					sort(mass, abundance, lo, j);
+					lo = i;
+				} else {
+					sort(mass, abundance, i, hi);
+					hi = j;
+				}
+			}
+			for (int i = lo + 1; i <= hi; i++) {
+				for (int j = i; j > lo && mass[j - 1] > mass[j]; j--)
+					swap(mass, abundance, j - 1, j);
+			}
 		}
 
-		IsotopePattern sortedIsoPattern = new IsotopePattern();
-		sortedIsoPattern.setMonoIsotope(new IsotopeContainer(isopattern.getIsotopes().get(0).getMass(),isopattern.getIsotopes().get(0).getIntensity()));
-		for (int i = 1; i < isopattern.getNumberOfIsotopes();i++) {
-			if (isopattern.getIsotopes().get(i).getIntensity() >= (minAbundance ))
-				sortedIsoPattern.addIsotope(new IsotopeContainer(isopattern.getIsotopes().get(i).getMass(),isopattern.getIsotopes().get(i).getIntensity()));
+		private static double median(double a, double b, double c) {
+			return a < b ? (b < c ? b : (a < c ? c : a))
+			             : (a < c ? a : (b < c ? c : b));
 		}
-		return sortedIsoPattern;
 
+		private static void swap(double[] mass, double[] abundance, int i, int j) {
+			double m = mass[i];      mass[i]      = mass[j];      mass[j]      = m;
+			double a = abundance[i]; abundance[i] = abundance[j]; abundance[j] = a;
+		}
 	}
-}
\ No newline at end of file
+}
@@ -1,5 +1,7 @@
 package org.openscience.cdk.formula;
 
+import java.util.List;
+
 import org.openscience.cdk.annotations.TestClass;
 import org.openscience.cdk.annotations.TestMethod;
 
@@ -109,6 +111,115 @@ public class IsotopePatternSimilarity{
 		return score / totalFactor;
     }
 
+    /**
+     * Compare one isotope abundance pattern with many others, for example a
+     * detected pattern with the predicted patterns of candidate formulas.
+     * The first pattern is normalized once and the peaks of each other
+     * pattern are found by a binary search on mass, so scoring thousands of
+     * candidates takes no more than a few milliseconds. Each score is the
+     * score of {@link #compare(IsotopePattern, IsotopePattern)} with the
+     * pattern of the list as second pattern.
+     *
+     * @param  isoto1   The Isotope pattern compared with all others
+     * @param  patterns The Isotope patterns to compare with
+     * @return          The hit score of similarity of each pattern, in the
+     *                  order of the list
+     */
+    @TestMethod("testCompare_IsotopePattern_List")
+    public double[] compare(IsotopePattern isoto1, List<IsotopePattern> patterns) {
+    	double charge;
+    	if (isoto1.getCharge() == 1)
+    		charge = massE;
+    	else if (isoto1.getCharge() == -1)
+    		charge = -massE;
+    	else
+    		charge = 0;
+    	Peaks    iso1   = new Peaks(isoto1, charge);
+    	double[] scores = new double[patterns.size()];
+    	for (int p = 0; p < scores.length; p++) {
+    		Peaks  iso2  = new Peaks(patterns.get(p), 0);
+    		double score = 0, totalFactor = 0;
+    		for (int i = 0; i < iso1.size; i++) {
+    			double mass   = iso1.mass[i];
+    			double factor = iso1.intensity[i];
+    			totalFactor  += factor;
+
+    			int closestDp = iso2.closest(mass, tolerance_ppm / mass);
+    			if (closestDp == -1)
+    				continue;
+
+    			double diffMass = Math.abs(mass - iso2.mass[closestDp]);
+    			double diffAbun = Math.abs(1.0d - (factor / iso2.intensity[closestDp]));
+    			double tempScore = 1 - (diffMass + diffAbun);
+    			if (tempScore < 0)
+    				tempScore = 0;
+    			score += tempScore * factor;
+    		}
+    		scores[p] = score / totalFactor;
+    	}
+    	return scores;
+    }
+
+    /**
+     * The peaks of a pattern sorted by mass with their intensity relative to
+     * the most abundant peak.
+     */
+    private static final class Peaks {
+
+    	private final double[] mass;
+    	private final double[] intensity;
+    	private final int      size;
+
+    	private Peaks(IsotopePattern pattern, double shift) {
+    		List<IsotopeContainer> isotopes = pattern.getIsotopes();
+    		size      = isotopes.size();
+    		mass      = new double[size];
+    		intensity = new double[size];
+    		double highest = 0;
+    		for (IsotopeContainer isotope : isotopes) {
+    			if (isotope.getIntensity() > highest)
+    				highest = isotope.getIntensity();
+    		}
+    		// patterns are short, an insertion sort by mass is enough
+    		for (int i = 0; i < size; i++) {
+    			IsotopeContainer isotope = isotopes.get(i);
+    			double m = isotope.getMass() + shift, a = isotope.getIntensity() / highest;
+    			int    j = i;
+    			for (; j > 0 && mass[j - 1] > m; j--) {
+    				mass[j]      = mass[j - 1];
+    				intensity[j] = intensity[j - 1];
+    			}
+    			mass[j]      = m;
+    			intensity[j] = a;
+    		}
+    	}
+
+    	/**
+    	 * The position of the peak closest to the mass within the tolerance,
+    	 * -1 if there is none.
+    	 */
+    	private int closest(double target, double tolerance) {
+    		int lo = 0, hi = size;
+    		while (lo < hi) {
+    			int mid = (lo + hi) >>> 1;
+    			if (mass[mid] < target)
+    				lo = mid + 1;
+    			else
+    				hi = mid;
+    		}
+    		int    best = -1;
+    		double diff = 100;
+    		for (int i = Math.max(lo - 1, 0); i <= lo && i < size; i++) {
+    			double tempDiff = Math.abs(target - mass[i]);
+    			if (tempDiff <= tolerance && tempDiff < diff) {
+    				diff = tempDiff;
+    				best = i;
+    			}
+    		}
+    		return best;
+    	}
+    }
+
     /**
      * Search and find the closest difference in an array in terms of mass and
 	 * intensity. Always return the position in this List.
@@ -427,6 +427,26 @@ public class MassToFormulaTool {
 		
 		return returnOrdered(mass, molecularFormulaSet);
 	}
+	/**
+	 * Get a generator of all molecular formulas of the element range with a
+	 * mass within the tolerance of the given mass. Unlike {@link #generate(double)}
+	 * the generator finds every formula in the mass window, applies the other
+	 * restrictions while it searches and creates the formulas when they are
+	 * asked for.
+	 *
+	 * @param  mass  molecular formula to create from the mass
+	 * @return       the generator, configured with the restrictions of this tool
+	 * @see          #setRestrictions(List)
+	 */
+	@TestMethod("testGetGenerator_double")
+	public MolecularFormulaGenerator getGenerator(double mass) {
+		MolecularFormulaGenerator generator = new MolecularFormulaGenerator(builder, mass, tolerance, mfRange);
+		generator.setRules(rules);
+		if (charge != null)
+			generator.setCharge(charge.intValue());
+		return generator;
+	}
+
 	/**
 	 * Put the order the List of IIsotope according the probability occurrence.
 	 * 
@@ -0,0 +1,503 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.formula;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.formula.rules.ChargeRule;
+import org.openscience.cdk.formula.rules.ElementRule;
+import org.openscience.cdk.formula.rules.IRule;
+import org.openscience.cdk.formula.rules.NitrogenRule;
+import org.openscience.cdk.formula.rules.RDBERule;
+import org.openscience.cdk.formula.rules.ToleranceRangeRule;
+import org.openscience.cdk.interfaces.IChemObjectBuilder;
+import org.openscience.cdk.interfaces.IIsotope;
+import org.openscience.cdk.interfaces.IMolecularFormula;
+import org.openscience.cdk.interfaces.IMolecularFormulaSet;
+import org.openscience.cdk.tools.ParallelLoop;
+
+/**
+ * Enumerates all molecular formulas of a {@link MolecularFormulaRange} with
+ * a mass within a tolerance of a given mass. Unlike the
+ * {@link MassToFormulaTool}, which follows a combination matrix, the
+ * generator is exhaustive and finds every formula in the mass window.
+ *
+ * <p>The isotopes are tried in order of descending mass. For each isotope
+ * only the counts are tried for which the mass of the remaining isotopes,
+ * from all at their minimal count to all at their maximal count, can still
+ * reach the mass window. The search works on a vector of counts and an
+ * {@link IMolecularFormula} is only created for the counts that are in the
+ * mass window and pass the rules:
+ * <ul>
+ *   <li>with a {@link RDBERule}, branches whose highest possible RDBE is below
+ *       the minimal RDBE of the rule are not searched;</li>
+ *   <li>with a {@link NitrogenRule}, counts of the wrong nitrogen parity are
+ *       dropped before a formula is made;</li>
+ *   <li>every other rule is applied to the formula, and formulas for which a
+ *       rule gives 0 are dropped. The {@link ElementRule},
+ *       {@link ChargeRule} and {@link ToleranceRangeRule} are not applied,
+ *       the range, charge and tolerance of the generator take their place.</li>
+ * </ul>
+ *
+ * <p>The formulas are created when they are asked for:
+ * <pre>
+ * MolecularFormulaGenerator generator = new MolecularFormulaGenerator(builder, 133.0042, 0.0005, range);
+ * generator.setRules(rules);
+ * IMolecularFormula formula;
+ * while ((formula = generator.getNextFormula()) != null)
+ *     ...
+ * </pre>
+ * With more than one thread, each count of the heaviest isotope is searched
+ * as a separate task. The formulas are still returned in the same order as
+ * by a single thread.
+ *
+ * @cdk.module  formula
+ * @cdk.githash
+ * @cdk.keyword molecular formula
+ * @cdk.keyword mass spectrometry
+ * @see MassToFormulaTool#getGenerator(double)
+ */
+@TestClass("org.openscience.cdk.formula.MolecularFormulaGeneratorTest")
+public class MolecularFormulaGenerator {
+
+    /** Elements whose count is added to the nitrogen count by the {@link NitrogenRule}. */
+    private static final Set<String> NITROGEN_LIKE = new HashSet<String>(Arrays.asList("N", "Co", "Hg", "Pt", "As"));
+
+    /** Allowed rounding error of the count bounds. */
+    private static final double EPSILON = 1e-9;
+
+    private final IChemObjectBuilder builder;
+    private final double             mass;
+    private final double             tolerance;
+
+    /** The isotopes, their mass and count range, by descending mass. */
+    private final IIsotope[] isotopes;
+    private final double[]   masses;
+    private final int[]      min, max;
+    private final int        n;
+
+    /** The mass of the isotopes from each position on, all at minimal and maximal count. */
+    private final double[]   minRest, maxRest;
+
+    /** The order of the isotopes in the formulas, C and H first, then alphabetical. */
+    private final int[]      order;
+
+    private List<IRule>      rules    = Collections.emptyList();
+    private Integer          charge;
+    private int              threads  = 1;
+
+    /** Doubled RDBE contribution per atom and its bound, null without RDBE pruning. */
+    private int[]            rdbeCoefficient;
+    private double[]         rdbeRest;
+    private double           rdbeMin;
+
+    /** Mass numbers for the nitrogen parity check, null without that check. */
+    private int[]            massNumbers;
+    private boolean[]        nitrogenLike;
+
+    // state of the enumeration
+    private boolean                               started;
+    private Cursor                                cursor;
+    private ExecutorService                       executor;
+    private int                                   nextSplit, lastSplit;
+    private final Deque<Future<List<IMolecularFormula>>> pending = new ArrayDeque<Future<List<IMolecularFormula>>>();
+    private Iterator<IMolecularFormula>           current;
+
+    /**
+     * Create a generator of the formulas of a range with a mass within the
+     * tolerance of the given mass.
+     *
+     * @param builder   builder for the formulas
+     * @param mass      the mass to find formulas for
+     * @param tolerance the largest allowed difference of the formula mass
+     * @param range     the isotopes and their count range
+     */
+    public MolecularFormulaGenerator(IChemObjectBuilder builder, double mass, double tolerance,
+                                     MolecularFormulaRange range) {
+        this.builder   = builder;
+        this.mass      = mass;
+        this.tolerance = tolerance;
+
+        List<IIsotope> list = new ArrayList<IIsotope>();
+        for (IIsotope isotope : range.isotopes())
+            list.add(isotope);
+        Collections.sort(list, new Comparator<IIsotope>() {
+            public int compare(IIsotope a, IIsotope b) {
+                return Double.compare(b.getExactMass(), a.getExactMass());
+            }
+        });
+        this.n        = list.size();
+        this.isotopes = list.toArray(new IIsotope[n]);
+        this.masses   = new double[n];
+        this.min      = new int[n];
+        this.max      = new int[n];
+        for (int i = 0; i < n; i++) {
+            masses[i] = isotopes[i].getExactMass();
+            min[i]    = range.getIsotopeCountMin(isotopes[i]);
+            max[i]    = range.getIsotopeCountMax(isotopes[i]);
+        }
+        this.minRest = new double[n + 1];
+        this.maxRest = new double[n + 1];
+        for (int i = n - 1; i >= 0; i--) {
+            minRest[i] = minRest[i + 1] + min[i] * masses[i];
+            maxRest[i] = maxRest[i + 1] + max[i] * masses[i];
+        }
+
+        Integer[] hill = new Integer[n];
+        for (int i = 0; i < n; i++)
+            hill[i] = i;
+        Arrays.sort(hill, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                int cmp = rank(isotopes[a].getSymbol()) - rank(isotopes[b].getSymbol());
+                if (cmp == 0)
+                    cmp = isotopes[a].getSymbol().compareTo(isotopes[b].getSymbol());
+                return cmp != 0 ? cmp : Double.compare(masses[a], masses[b]);
+            }
+        });
+        this.order = new int[n];
+        for (int i = 0; i < n; i++)
+            order[i] = hill[i];
+    }
+
+    private static int rank(String symbol) {
+        return "C".equals(symbol) ? 0 : "H".equals(symbol) ? 1 : 2;
+    }
+
+    /**
+     * Set the rules the formulas must pass. Must be set before the first
+     * formula is generated.
+     *
+     * @param rules the rules
+     */
+    @TestMethod("testSetRules")
+    public void setRules(List<IRule> rules) {
+        checkNotStarted();
+        this.rules           = new ArrayList<IRule>();
+        this.rdbeCoefficient = null;
+        this.massNumbers     = null;
+        for (IRule rule : rules) {
+            if (rule instanceof ElementRule || rule instanceof ChargeRule || rule instanceof ToleranceRangeRule)
+                continue;
+            this.rules.add(rule);
+            if (rule instanceof RDBERule)
+                initRDBE((RDBERule) rule);
+            else if (rule instanceof NitrogenRule)
+                initNitrogen();
+        }
+    }
+
+    /**
+     * Set the charge of the formulas, null for no charge. Must be set before
+     * the first formula is generated.
+     *
+     * @param charge the charge
+     */
+    @TestMethod("testSetCharge")
+    public void setCharge(Integer charge) {
+        checkNotStarted();
+        this.charge = charge;
+    }
+
+    /**
+     * Set the number of threads to search with. Must be set before the first
+     * formula is generated.
+     *
+     * @param threads the number of threads, at least 1
+     */
+    @TestMethod("testSetThreads")
+    public void setThreads(int threads) {
+        checkNotStarted();
+        if (threads < 1)
+            throw new IllegalArgumentException("at least one thread is required");
+        this.threads = threads;
+    }
+
+    private void checkNotStarted() {
+        if (started)
+            throw new IllegalStateException("the generation has already started");
+    }
+
+    /**
+     * The RDBE is 1 + sum(count * (valence - 2)) / 2 with the first
+     * oxidation state of each element, and for elements with more than one
+     * state the {@link RDBERule} adds up to 2 per atom.
+     */
+    private void initRDBE(RDBERule rule) {
+        int[]       coefficient = new int[n];
+        Set<String> symbols     = new HashSet<String>();
+        for (int i = 0; i < n; i++) {
+            int[] states = rule.getOxidationStates(isotopes[i].getSymbol());
+            // unknown elements or isotopes of the same element are left to the rule
+            if (states == null || !symbols.add(isotopes[i].getSymbol()))
+                return;
+            coefficient[i] = states[0] - 2 + (states.length > 1 ? 4 : 0);
+        }
+        rdbeCoefficient = coefficient;
+        rdbeMin         = (Double) rule.getParameters()[0];
+        rdbeRest        = new double[n + 1];
+        for (int i = n - 1; i >= 0; i--)
+            rdbeRest[i] = rdbeRest[i + 1] + (coefficient[i] > 0 ? max[i] : min[i]) * (double) coefficient[i];
+    }
+
+    private void initNitrogen() {
+        int[]     numbers = new int[n];
+        boolean[] like    = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            if (isotopes[i].getMassNumber() == null)
+                return;
+            numbers[i] = isotopes[i].getMassNumber();
+            like[i]    = NITROGEN_LIKE.contains(isotopes[i].getSymbol());
+        }
+        massNumbers  = numbers;
+        nitrogenLike = like;
+    }
+
+    /**
+     * The next formula in the mass window that passes the rules.
+     *
+     * @return the formula, null when all formulas were generated
+     * @throws CDKException a rule could not be applied
+     */
+    @TestMethod("testGetNextFormula")
+    public synchronized IMolecularFormula getNextFormula() throws CDKException {
+        if (!started)
+            start();
+        if (executor == null) {
+            if (cursor == null)
+                return null;
+            IMolecularFormula formula = cursor.nextFormula();
+            if (formula == null)
+                cursor = null;
+            return formula;
+        }
+        while (true) {
+            if (current != null && current.hasNext())
+                return current.next();
+            while (pending.size() < 2 * threads && nextSplit <= lastSplit) {
+                final int split = nextSplit++;
+                pending.add(executor.submit(new Callable<List<IMolecularFormula>>() {
+                    public List<IMolecularFormula> call() throws CDKException {
+                        List<IMolecularFormula> formulas = new ArrayList<IMolecularFormula>();
+                        Cursor            search   = new Cursor(split, split);
+                        IMolecularFormula formula;
+                        while ((formula = search.nextFormula()) != null)
+                            formulas.add(formula);
+                        return formulas;
+                    }
+                }));
+            }
+            if (pending.isEmpty()) {
+                cancel();
+                return null;
+            }
+            boolean done = false;
+            try {
+                current = ParallelLoop.get(pending.poll(), CDKException.class).iterator();
+                done    = true;
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new CDKException("interrupted while generating formulas", exception);
+            } finally {
+                if (!done)
+                    cancel();
+            }
+        }
+    }
+
+    /**
+     * All formulas in the mass window that pass the rules, in the order of
+     * the search.
+     *
+     * @return the formulas
+     * @throws CDKException a rule could not be applied
+     */
+    @TestMethod("testGetAllFormulas")
+    public IMolecularFormulaSet getAllFormulas() throws CDKException {
+        IMolecularFormulaSet set = builder.newInstance(IMolecularFormulaSet.class);
+        IMolecularFormula    formula;
+        while ((formula = getNextFormula()) != null)
+            set.addMolecularFormula(formula);
+        return set;
+    }
+
+    /**
+     * Stop the generation, no further formulas are returned.
+     */
+    @TestMethod("testCancel")
+    public synchronized void cancel() {
+        started = true;
+        cursor  = null;
+        current = null;
+        for (Future<List<IMolecularFormula>> future : pending)
+            future.cancel(true);
+        pending.clear();
+        nextSplit = lastSplit + 1;
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private void start() {
+        started = true;
+        int[] range = countRange(0, 0);
+        if (n == 0 || range[0] > range[1])
+            return;
+        if (threads == 1 || range[0] == range[1] || n == 1) {
+            cursor = new Cursor(range[0], range[1]);
+            return;
+        }
+        nextSplit = range[0];
+        lastSplit = range[1];
+        executor  = ParallelLoop.newPool(threads, "MolecularFormulaGenerator");
+    }
+
+    /**
+     * The counts of the isotope at a position that can still reach the mass
+     * window, given the mass of the isotopes before it.
+     */
+    private int[] countRange(int position, double partial) {
+        double lowest  = mass - tolerance - partial - maxRest[position + 1];
+        double highest = mass + tolerance - partial - minRest[position + 1];
+        int    from    = Math.max(min[position], (int) Math.ceil(lowest / masses[position] - EPSILON));
+        int    to      = Math.min(max[position], (int) Math.floor(highest / masses[position] + EPSILON));
+        return new int[]{from, to};
+    }
+
+    /**
+     * The nitrogen parity check of the {@link NitrogenRule} on a count vector.
+     */
+    private boolean nitrogenParity(int[] counts) {
+        long totalMass = 0;
+        int  nitrogens = 0;
+        for (int i = 0; i < n; i++) {
+            totalMass += (long) counts[i] * massNumbers[i];
+            if (nitrogenLike[i])
+                nitrogens += counts[i];
+        }
+        if (totalMass == 0)
+            return false;
+        boolean oddCharge = charge != null && charge % 2 != 0;
+        return ((totalMass % 2 == 1) == (nitrogens % 2 == 1)) != oddCharge;
+    }
+
+    private IMolecularFormula toFormula(int[] counts) {
+        IMolecularFormula formula = builder.newInstance(IMolecularFormula.class);
+        for (int i : order) {
+            if (counts[i] > 0)
+                formula.addIsotope(isotopes[i], counts[i]);
+        }
+        if (charge != null)
+            formula.setCharge(charge);
+        return formula;
+    }
+
+    private boolean passesRules(IMolecularFormula formula) throws CDKException {
+        for (IRule rule : rules) {
+            if (rule.validate(formula) == 0.0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * A depth first search over the counts of the isotopes, with the count of
+     * the heaviest isotope in a given range.
+     */
+    private final class Cursor {
+
+        private final int[]    counts  = new int[n];
+        private final int[]    upper   = new int[n];
+        /** Mass and doubled RDBE bound of the isotopes before each position. */
+        private final double[] partial = new double[n];
+        private final double[] rdbe    = new double[n];
+        private int            depth;
+
+        private Cursor(int from, int to) {
+            counts[0] = from - 1;
+            upper[0]  = to;
+        }
+
+        private IMolecularFormula nextFormula() throws CDKException {
+            int[] counts;
+            while ((counts = next()) != null) {
+                if (massNumbers != null && !nitrogenParity(counts))
+                    continue;
+                IMolecularFormula formula = toFormula(counts);
+                if (passesRules(formula))
+                    return formula;
+            }
+            return null;
+        }
+
+        /**
+         * The next counts with a mass in the window, null at the end.
+         */
+        private int[] next() {
+            int d = depth;
+            while (d >= 0) {
+                if (++counts[d] > upper[d]) {
+                    d--;
+                    continue;
+                }
+                double m = partial[d] + counts[d] * masses[d];
+                double r = 0;
+                if (rdbeCoefficient != null) {
+                    r = rdbe[d] + counts[d] * (double) rdbeCoefficient[d];
+                    if (2 + r + rdbeRest[d + 1] < 2 * rdbeMin)
+                        continue;
+                }
+                if (d == n - 1) {
+                    if (Math.abs(mass - m) < tolerance) {
+                        depth = d;
+                        return counts;
+                    }
+                    continue;
+                }
+                d++;
+                partial[d] = m;
+                rdbe[d]    = r;
+                int[] range = countRange(d, m);
+                counts[d] = range[0] - 1;
+                upper[d]  = range[1];
+            }
+            depth = -1;
+            return null;
+        }
+    }
+}
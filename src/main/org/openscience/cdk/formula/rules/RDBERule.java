@@ -234,6 +234,19 @@ public class RDBERule implements IRule{
 		return RDBEList;
 	}
 
+	/**
+	 * Get the common oxidation states of an element. The first one is used
+	 * for all atoms of the element, the others are tried for the elements
+	 * with more than one.
+	 * 
+	 * @param symbol The element symbol
+	 * @return       The oxidation states, null if the element is not known
+	 */
+	public int[] getOxidationStates(String symbol) {
+		int[] states = oxidationStateTable.get(symbol);
+		return states != null ? states.clone() : null;
+	}
+
 	/**
 	 * Get the common oxidation state given a atom.
 	 * 
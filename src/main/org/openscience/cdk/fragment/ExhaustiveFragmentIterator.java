@@ -0,0 +1,510 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.fragment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.openscience.cdk.CDKConstants;
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.hash.AtomEncoder;
+import org.openscience.cdk.hash.HashGeneratorMaker;
+import org.openscience.cdk.hash.MoleculeHashGenerator;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.smiles.SmilesGenerator;
+
+/**
+ * Lazily generates the fragments of the {@link ExhaustiveFragmenter}, the
+ * fragments are only split when more of them are requested. The fragments
+ * are returned in the order the fragmenter finds them: the unique
+ * parts of one split of a fragment and then, depth first, the fragments of
+ * each of these parts.
+ *
+ * <p>A fragment is a set of atoms of the parent molecule, stored as a bit
+ * set, and splitting it only walks the adjacency of the parent. The ring
+ * bonds of a fragment are the ring bonds of the parent, so the rings are
+ * found once. The atoms and bonds of a fragment are in the order in which
+ * {@link FragmentUtils#splitMolecule(IAtomContainer, IBond)} adds them, so
+ * that the fragments have the same SMILES as when they are split as
+ * containers. Each set of atoms is split at most once and a new part is
+ * first compared by a {@link MoleculeHashGenerator} hash code, the SMILES is
+ * only generated for parts whose hash code was not seen before. Two different
+ * fragments with the same hash code are very unlikely but the later of them
+ * would be missed.
+ *
+ * <pre>
+ * ExhaustiveFragmentIterator fragments = new ExhaustiveFragmentIterator(molecule, 6);
+ * fragments.setMaximumFragments(100);
+ * while (fragments.hasNext()) {
+ *     IAtomContainer fragment = fragments.next();
+ *     String smiles = fragments.getSmiles();
+ * }
+ * </pre>
+ *
+ * <p>The fragments share the atoms and bonds of the parent molecule. An
+ * iterator must not be used from several threads.
+ *
+ * @cdk.module  fragment
+ * @cdk.githash
+ * @cdk.keyword fragment
+ * @see ExhaustiveFragmenter
+ */
+@TestClass("org.openscience.cdk.fragment.ExhaustiveFragmentIteratorTest")
+public class ExhaustiveFragmentIterator implements Iterator<IAtomContainer> {
+
+    /**
+     * The atom properties which are written to the SMILES and the bond order
+     * sum, the atomic number may not be set. The values are combined with
+     * FNV-1a as the small values would collide in a sum.
+     */
+    private static final AtomEncoder ATOM = new AtomEncoder() {
+        public int encode(IAtom atom, IAtomContainer container) {
+            int hash = 0x811c9dc5;
+            hash = (hash ^ (atom.getSymbol() != null ? atom.getSymbol().hashCode() : 0)) * 0x01000193;
+            hash = (hash ^ (atom.getFormalCharge() != null ? atom.getFormalCharge() : 0)) * 0x01000193;
+            hash = (hash ^ (atom.getMassNumber() != null ? atom.getMassNumber() : 0)) * 0x01000193;
+            hash = (hash ^ (atom.getImplicitHydrogenCount() != null ? atom.getImplicitHydrogenCount() : 0)) * 0x01000193;
+            hash = (hash ^ (atom.getFlag(CDKConstants.ISAROMATIC) ? 1 : 0)) * 0x01000193;
+            return (hash ^ (int) (2 * container.getBondOrderSum(atom))) * 0x01000193;
+        }
+    };
+    private static final MoleculeHashGenerator HASH = new HashGeneratorMaker().depth(16)
+            .encode(ATOM).perturbed().molecular();
+
+    private final IAtomContainer molecule;
+    private final int            minFragSize;
+    private final SmilesGenerator smilesGenerator = new SmilesGenerator(true);
+
+    // the parent molecule: atoms, bonds, adjacent atoms and bonds of each atom
+    private final IAtom[]  atoms;
+    private final IBond[]  bonds;
+    private final int[][]  neighbours;
+    private final int[][]  incident;
+    private final int[]    begin, end;
+    private final boolean[] ringBond;
+
+    /** atom sets which were split or were found before */
+    private final Set<AtomSet> explored = new HashSet<AtomSet>();
+    private final Set<Long>    hashes   = new HashSet<Long>();
+    private final Set<String>  smiles   = new HashSet<String>();
+
+    /** the parts of each fragment on the current path, next part to split */
+    private final LinkedList<Frame>    stack   = new LinkedList<Frame>();
+    private final LinkedList<Fragment> pending = new LinkedList<Fragment>();
+
+    private int      maxFragments = -1;
+    private int      maxDepth     = -1;
+    private int      count;
+    private Fragment last;
+
+    /**
+     * Create an iterator over the fragments of a molecule with at least the
+     * given number of atoms.
+     *
+     * @param molecule    the molecule to fragment
+     * @param minFragSize the minimum number of atoms of a fragment
+     */
+    @TestMethod("testFragments")
+    public ExhaustiveFragmentIterator(IAtomContainer molecule, int minFragSize) {
+        this.molecule    = molecule;
+        this.minFragSize = minFragSize;
+
+        int n = molecule.getAtomCount(), m = molecule.getBondCount();
+        atoms = new IAtom[n];
+        bonds = new IBond[m];
+        begin = new int[m];
+        end   = new int[m];
+        int[] degree = new int[n];
+        for (int i = 0; i < n; i++)
+            atoms[i] = molecule.getAtom(i);
+        for (int i = 0; i < m; i++) {
+            bonds[i] = molecule.getBond(i);
+            begin[i] = molecule.getAtomNumber(bonds[i].getAtom(0));
+            end[i]   = molecule.getAtomNumber(bonds[i].getAtom(1));
+            degree[begin[i]]++;
+            degree[end[i]]++;
+        }
+        neighbours = new int[n][];
+        incident   = new int[n][];
+        for (int i = 0; i < n; i++) {
+            neighbours[i] = new int[degree[i]];
+            incident[i]   = new int[degree[i]];
+            degree[i] = 0;
+        }
+        for (int i = 0; i < m; i++) {
+            int u = begin[i], v = end[i];
+            neighbours[u][degree[u]]  = v;
+            incident[u][degree[u]++]  = i;
+            neighbours[v][degree[v]]  = u;
+            incident[v][degree[v]++]  = i;
+        }
+        ringBond = ringBonds();
+
+        // the molecule is the only part of a frame below the first split
+        long[] all = new long[(n + 63) >> 6];
+        for (int i = 0; i < n; i++)
+            all[i >> 6] |= 1L << i;
+        int[] order = new int[m];
+        for (int i = 0; i < m; i++)
+            order[i] = i;
+        List<Fragment> root = new ArrayList<Fragment>();
+        root.add(new Fragment(all, order));
+        stack.push(new Frame(root));
+    }
+
+    /**
+     * Stop after the given number of fragments, a negative number (the
+     * default) does not limit the fragments.
+     *
+     * @param maxFragments the maximum number of fragments
+     */
+    @TestMethod("testMaximumFragments")
+    public void setMaximumFragments(int maxFragments) {
+        this.maxFragments = maxFragments;
+    }
+
+    /**
+     * Only split the fragments the given number of times, a fragment of depth
+     * 1 is a part of the molecule split at one bond. A negative number (the
+     * default) does not limit the depth.
+     *
+     * @param maxDepth the maximum number of splits
+     */
+    @TestMethod("testMaximumDepth")
+    public void setMaximumDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * @inheritDoc
+     * @throws IllegalStateException the SMILES of a fragment could not be
+     *                               generated, the cause is a {@link CDKException}
+     */
+    @TestMethod("testFragments")
+    public boolean hasNext() {
+        if (maxFragments >= 0 && count >= maxFragments)
+            return false;
+        try {
+            while (pending.isEmpty() && !stack.isEmpty()) {
+                Frame frame = stack.peek();
+                if (frame.next == frame.parts.size()) {
+                    stack.pop();
+                    continue;
+                }
+                Fragment fragment = frame.parts.get(frame.next++);
+                if (maxDepth >= 0 && stack.size() > maxDepth)
+                    continue;
+                List<Fragment> parts = split(fragment);
+                if (!parts.isEmpty()) {
+                    stack.push(new Frame(parts));
+                    pending.addAll(parts);
+                }
+            }
+        } catch (CDKException e) {
+            throw new IllegalStateException("could not generate the SMILES of a fragment", e);
+        }
+        return !pending.isEmpty();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @TestMethod("testFragments")
+    public IAtomContainer next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        last = pending.poll();
+        count++;
+        return last.container;
+    }
+
+    /**
+     * The SMILES of the fragment last returned by {@link #next()}.
+     *
+     * @return the SMILES of the fragment
+     */
+    @TestMethod("testFragments")
+    public String getSmiles() {
+        if (last == null)
+            throw new IllegalStateException("next() was not invoked");
+        return last.smiles;
+    }
+
+    /**
+     * Removing fragments is not supported.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @TestMethod("testRemove")
+    public void remove() {
+        throw new UnsupportedOperationException("fragments can not be removed");
+    }
+
+    /**
+     * The new parts of the splits of a fragment at each of its splittable
+     * bonds. A bond is splittable if it is not in a ring and neither of its
+     * atoms is terminal in the fragment. Nothing is returned for fragments
+     * with less than 3 bonds or if the fragment was split before.
+     */
+    private List<Fragment> split(Fragment fragment) throws CDKException {
+        List<Fragment> parts = new ArrayList<Fragment>();
+        if (fragment.bonds.length < 3)
+            return parts;
+        long[] set  = fragment.atoms;
+        int[]  rank = new int[bonds.length];
+        Arrays.fill(rank, -1);
+        for (int i = 0; i < fragment.bonds.length; i++)
+            rank[fragment.bonds[i]] = i;
+        for (int b : fragment.bonds) {
+            int u = begin[b], v = end[b];
+            if (ringBond[b])
+                continue;
+            if (degree(set, u) == 1 || degree(set, v) == 1)
+                continue;
+            add(parts, side(set, rank, b, u, v));
+            add(parts, side(set, rank, b, v, u));
+        }
+        return parts;
+    }
+
+    /**
+     * Add a part to the parts of a split if it has the minimum size and was
+     * not found before.
+     */
+    private void add(List<Fragment> parts, Fragment part) throws CDKException {
+        if (part.order.length <= 2 || part.order.length < minFragSize)
+            return;
+        if (!explored.add(new AtomSet(part.atoms)))
+            return;
+        IAtomContainer container = molecule.getBuilder().newInstance(IAtomContainer.class);
+        for (int i : part.order)
+            container.addAtom(atoms[i]);
+        for (int b : part.bonds)
+            container.addBond(bonds[b]);
+        if (!hashes.add(HASH.generate(container)))
+            return;
+        String smi;
+        try {
+            // the rings and labels of the SMILES generation are attached to
+            // the atoms, they should not accumulate on those of the parent
+            smi = smilesGenerator.createSMILES((IAtomContainer) container.clone());
+        } catch (CloneNotSupportedException e) {
+            throw new CDKException("could not clone a fragment", e);
+        }
+        if (!smiles.add(smi))
+            return;
+        part.container = container;
+        part.smiles    = smi;
+        parts.add(part);
+    }
+
+    /**
+     * The atoms of a fragment connected to 'start' without the bond 'split'
+     * to 'other'. The bonds are visited as by
+     * {@link FragmentUtils#traverse(IAtomContainer, IAtom, List)}, depth
+     * first with the bonds of each atom in the order of the fragment (given
+     * by the rank of the bonds), and the atoms are in the order the bonds
+     * reach them.
+     */
+    private Fragment side(long[] set, int[] rank, int split, int start, int other) {
+        long[]    visited   = new long[set.length];
+        boolean[] used      = new boolean[bonds.length];
+        int[]     order     = new int[atoms.length];
+        int[]     bondOrder = new int[bonds.length];
+        int       natoms = 0, nbonds = 0;
+
+        // an atom is entered again through a ring bond, as by the recursion
+        int[]   stackAtom  = new int[bonds.length + 1];
+        int[][] stackBonds = new int[bonds.length + 1][];
+        int[]   stackPos   = new int[bonds.length + 1];
+        int     top        = 0;
+        used[split] = true;
+        visited[start >> 6] |= 1L << start;
+        order[natoms++] = start;
+        stackAtom[0]  = start;
+        stackBonds[0] = incident(start, rank);
+        while (top >= 0) {
+            int u = stackAtom[top];
+            if (stackPos[top] == stackBonds[top].length) {
+                top--;
+                continue;
+            }
+            int b = stackBonds[top][stackPos[top]++];
+            if (used[b])
+                continue;
+            used[b] = true;
+            bondOrder[nbonds++] = b;
+            int w = begin[b] == u ? end[b] : begin[b];
+            for (int i = 0; i < 2; i++) {
+                int atom = i == 0 ? begin[b] : end[b];
+                if (atom != other && !contains(visited, atom)) {
+                    visited[atom >> 6] |= 1L << atom;
+                    order[natoms++] = atom;
+                }
+            }
+            if (degree(set, w) == 1)
+                continue;
+            top++;
+            stackAtom[top]  = w;
+            stackBonds[top] = incident(w, rank);
+            stackPos[top]   = 0;
+        }
+        Fragment part = new Fragment(visited, Arrays.copyOf(bondOrder, nbonds));
+        part.order = Arrays.copyOf(order, natoms);
+        return part;
+    }
+
+    /**
+     * The bonds of an atom which are in a fragment, in the order of the
+     * fragment.
+     */
+    private int[] incident(int atom, int[] rank) {
+        int[] result = new int[incident[atom].length];
+        int   count  = 0;
+        for (int b : incident[atom]) {
+            if (rank[b] < 0)
+                continue;
+            int i = count++;
+            for (; i > 0 && rank[result[i - 1]] > rank[b]; i--)
+                result[i] = result[i - 1];
+            result[i] = b;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private int degree(long[] set, int atom) {
+        int degree = 0;
+        for (int w : neighbours[atom]) {
+            if (contains(set, w))
+                degree++;
+        }
+        return degree;
+    }
+
+    private static boolean contains(long[] set, int atom) {
+        return (set[atom >> 6] & (1L << atom)) != 0;
+    }
+
+    /**
+     * Mark the bonds of the parent which are in a ring, that is the bonds
+     * which are not a bridge of the graph.
+     */
+    private boolean[] ringBonds() {
+        int n = atoms.length;
+        boolean[] ring = new boolean[bonds.length];
+        Arrays.fill(ring, true);
+        int[] order = new int[n], low = new int[n];
+        int[] stackAtom = new int[n], stackBond = new int[n], stackPos = new int[n];
+        int time = 0;
+        for (int root = 0; root < n; root++) {
+            if (order[root] != 0)
+                continue;
+            int top = 0;
+            stackAtom[0] = root;
+            stackBond[0] = -1;
+            stackPos[0]  = 0;
+            order[root] = low[root] = ++time;
+            while (top >= 0) {
+                int u = stackAtom[top];
+                if (stackPos[top] < neighbours[u].length) {
+                    int w = neighbours[u][stackPos[top]];
+                    int b = incident[u][stackPos[top]++];
+                    if (b == stackBond[top])
+                        continue;
+                    if (order[w] == 0) {
+                        order[w] = low[w] = ++time;
+                        top++;
+                        stackAtom[top] = w;
+                        stackBond[top] = b;
+                        stackPos[top]  = 0;
+                    } else if (order[w] < low[u]) {
+                        low[u] = order[w];
+                    }
+                } else {
+                    if (top > 0) {
+                        int parent = stackAtom[top - 1];
+                        if (low[u] < low[parent])
+                            low[parent] = low[u];
+                        if (low[u] > order[parent])
+                            ring[stackBond[top]] = false;
+                    }
+                    top--;
+                }
+            }
+        }
+        return ring;
+    }
+
+    /** a set of atoms of the parent and the order of its atoms and bonds */
+    private static final class Fragment {
+        final long[]   atoms;
+        final int[]    bonds;
+        int[]          order;
+        IAtomContainer container;
+        String         smiles;
+
+        Fragment(long[] atoms, int[] bonds) {
+            this.atoms = atoms;
+            this.bonds = bonds;
+        }
+    }
+
+    /** the parts of a split and the next of them to split */
+    private static final class Frame {
+        final List<Fragment> parts;
+        int next;
+
+        Frame(List<Fragment> parts) {
+            this.parts = parts;
+        }
+    }
+
+    /** a bit set of atoms with value equality */
+    private static final class AtomSet {
+        final long[] words;
+        final int    hash;
+
+        AtomSet(long[] words) {
+            this.words = words;
+            this.hash  = Arrays.hashCode(words);
+        }
+
+        @Override public int hashCode() {
+            return hash;
+        }
+
+        @Override public boolean equals(Object o) {
+            return o instanceof AtomSet && Arrays.equals(words, ((AtomSet) o).words);
+        }
+    }
+}
@@ -27,14 +27,10 @@ package org.openscience.cdk.fragment;
 import org.openscience.cdk.annotations.TestClass;
 import org.openscience.cdk.annotations.TestMethod;
 import org.openscience.cdk.exception.CDKException;
-import org.openscience.cdk.graph.SpanningTree;
-import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
-import org.openscience.cdk.interfaces.IBond;
-import org.openscience.cdk.interfaces.IRingSet;
-import org.openscience.cdk.smiles.SmilesGenerator;
 import org.openscience.cdk.tools.ILoggingTool;
 import org.openscience.cdk.tools.LoggingToolFactory;
+import org.openscience.cdk.tools.ParallelLoop;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -47,6 +43,12 @@ import java.util.Map;
  * This fragmentation scheme simply breaks single non-ring bonds. By default
  * fragments smaller than 6 atoms in size are not considered, but this can be
  * changed by the user. Side chains are retained.
+ * <p/>
+ * The fragments are generated by an {@link ExhaustiveFragmentIterator}, which
+ * can also be used directly to process the fragments one at a time. The
+ * number of fragments and the number of splits can be limited for large
+ * molecules, and the fragments of several molecules can be generated in
+ * parallel with {@link #getFragments(List)}.
  *
  * @author Rajarshi Guha
  * @cdk.module  fragment
@@ -58,9 +60,11 @@ public class ExhaustiveFragmenter implements IFragmenter {
     private static final int DEFAULT_MIN_FRAG_SIZE = 6;
 
     Map<String, IAtomContainer> fragMap;
-    SmilesGenerator smilesGenerator;
     String[] fragments = null;
     int minFragSize = 6;
+    int maxFragments = -1;
+    int maxDepth = -1;
+    int threads = 1;
     private static ILoggingTool logger = LoggingToolFactory.createLoggingTool(ExhaustiveFragmenter.class);
 
     /**
@@ -80,7 +84,6 @@ public class ExhaustiveFragmenter implements IFragmenter {
     public ExhaustiveFragmenter(int minFragSize) {
         this.minFragSize = minFragSize;
         fragMap = new HashMap<String, IAtomContainer>();
-        smilesGenerator = new SmilesGenerator(true);
     }
 
     /**
@@ -93,6 +96,43 @@ public class ExhaustiveFragmenter implements IFragmenter {
         this.minFragSize = minFragSize;
     }
 
+    /**
+     * Set the maximum number of fragments of a molecule, a negative number
+     * (the default) does not limit the fragments.
+     *
+     * @param maxFragments the largest number of fragments that will be returned
+     * @see ExhaustiveFragmentIterator#setMaximumFragments(int)
+     */
+    @TestMethod("testMaximumFragments")
+    public void setMaximumFragments(int maxFragments) {
+        this.maxFragments = maxFragments;
+    }
+
+    /**
+     * Set the maximum number of splits of the molecule that lead to a
+     * fragment, a negative number (the default) does not limit the splits.
+     *
+     * @param maxDepth the largest number of splits
+     * @see ExhaustiveFragmentIterator#setMaximumDepth(int)
+     */
+    @TestMethod("testMaximumDepth")
+    public void setMaximumDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Set the number of threads of {@link #getFragments(List)}, the default
+     * is to use only the calling thread.
+     *
+     * @param threads the number of threads, at least 1
+     */
+    @TestMethod("testSetThreads")
+    public void setThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("at least one thread is required");
+        this.threads = threads;
+    }
+
     /**
      * Generate fragments for the input molecule.
      *
@@ -101,83 +141,72 @@ public class ExhaustiveFragmenter implements IFragmenter {
     @TestMethod("testEF1,testEF2,testEF3,testEF4,testEF5,testEF6,testEF7")
     public void generateFragments(IAtomContainer atomContainer) throws CDKException {
         fragMap.clear();
-        run(atomContainer);
+        generateFragments(atomContainer, fragMap);
+        logger.debug("Got " + fragMap.size() + " fragments");
     }
 
-    private List<IAtomContainer> run(IAtomContainer atomContainer) throws CDKException {
-
-        ArrayList<IAtomContainer> fragments = new ArrayList<IAtomContainer>();
-
-        if (atomContainer.getBondCount() < 3) return fragments;
-        List<IBond> splitableBonds = getSplitableBonds(atomContainer);
-        if (splitableBonds.size() == 0) return fragments;
-        logger.debug("Got " + splitableBonds.size() + " splittable bonds");
-
-        String tmpSmiles;
-        for (IBond bond : splitableBonds) {
-            List<IAtomContainer> parts = FragmentUtils.splitMolecule(atomContainer, bond);
-            // make sure we don't add the same fragment twice
-            for (IAtomContainer partContainer : parts) {
-                tmpSmiles = smilesGenerator.createSMILES(partContainer);;
-                if (partContainer.getAtomCount() >= minFragSize &&
-                        !fragMap.containsKey(tmpSmiles)) {
-                    fragments.add(partContainer);
-                    fragMap.put(tmpSmiles, partContainer);
-                }
+    /**
+     * Put the fragments of a molecule in the map of SMILES to fragments.
+     */
+    private void generateFragments(IAtomContainer atomContainer,
+                                   Map<String, IAtomContainer> fragments) throws CDKException {
+        ExhaustiveFragmentIterator iterator = fragmentIterator(atomContainer);
+        try {
+            while (iterator.hasNext()) {
+                IAtomContainer fragment = iterator.next();
+                fragments.put(iterator.getSmiles(), fragment);
             }
+        } catch (IllegalStateException exception) {
+            if (exception.getCause() instanceof CDKException)
+                throw (CDKException) exception.getCause();
+            throw exception;
         }
+    }
 
-        // try and partition the fragments
-        List<IAtomContainer> tmp = new ArrayList<IAtomContainer>(fragments);
-        for (IAtomContainer fragment : fragments) {
-            if (fragment.getBondCount() < 3 || fragment.getAtomCount() < minFragSize) continue;
-            if (getSplitableBonds(fragment).size() == 0) continue;
-
-            List<IAtomContainer> frags = run(fragment);
-            if (frags.size() == 0) continue;
-
-            for (IAtomContainer frag : frags) {
-                if (frag.getBondCount() < 3) continue;
-                tmpSmiles = smilesGenerator.createSMILES(frag);
-                if (frag.getAtomCount() >= minFragSize && !fragMap.containsKey(tmpSmiles)) {
-                    tmp.add(frag);
-                    fragMap.put(tmpSmiles, frag);
-                }
-            }
-        }
-        fragments = new ArrayList<IAtomContainer>(tmp);
-        return fragments;
+    /**
+     * Create an iterator over the fragments of a molecule with the minimum
+     * size, maximum number of fragments and maximum depth of this fragmenter.
+     *
+     * @param atomContainer the molecule to fragment
+     * @return the fragments of the molecule
+     */
+    @TestMethod("testFragmentIterator")
+    public ExhaustiveFragmentIterator fragmentIterator(IAtomContainer atomContainer) {
+        ExhaustiveFragmentIterator iterator = new ExhaustiveFragmentIterator(atomContainer, minFragSize);
+        iterator.setMaximumFragments(maxFragments);
+        iterator.setMaximumDepth(maxDepth);
+        return iterator;
     }
 
-    private List<IBond> getSplitableBonds(IAtomContainer atomContainer) throws CDKException {
-        // do ring detection
-        SpanningTree spanningTree = new SpanningTree(atomContainer);
-        IRingSet allRings = spanningTree.getAllRings();
-
-        // find the splitable bonds
-        ArrayList<IBond> splitableBonds = new ArrayList<IBond>();
-
-        for (IBond bond : atomContainer.bonds()) {
-            boolean isInRing = false;
-            boolean isTerminal = false;
-
-            // lets see if it's in a ring
-            IRingSet rings = allRings.getRings(bond);
-            if (rings.getAtomContainerCount() != 0)
-                isInRing = true;
-
-            // lets see if it is a terminal bond
-            for (IAtom atom : bond.atoms()) {
-                if (atomContainer.getConnectedAtomsCount(atom) == 1) {
-                    isTerminal = true;
-                    break;
-                }
+    /**
+     * Generate the fragments of several molecules, with the number of threads
+     * set by {@link #setThreads(int)}. The fragments of each molecule are the
+     * same as those of {@link #getFragments()} after {@link
+     * #generateFragments(IAtomContainer)} of the molecule, the fragments of
+     * this fragmenter are not changed.
+     *
+     * @param molecules the molecules to fragment
+     * @return the fragments of each molecule as SMILES strings, in the order
+     *         of the molecules
+     * @throws CDKException the SMILES of a fragment could not be generated
+     */
+    @TestMethod("testGetFragments_List,testSetThreads")
+    public List<String[]> getFragments(final List<IAtomContainer> molecules) throws CDKException {
+        final int n = molecules.size();
+        final String[][] results = new String[n][];
+        ParallelLoop.forEach(n, threads, "ExhaustiveFragmenter", new ParallelLoop.Body<CDKException>() {
+
+            public void run(int k) throws CDKException {
+                Map<String, IAtomContainer> fragments = new HashMap<String, IAtomContainer>();
+                generateFragments(molecules.get(k), fragments);
+                results[k] = fragments.keySet().toArray(new String[fragments.size()]);
             }
+        });
 
-            if (!(isInRing || isTerminal))
-                splitableBonds.add(bond);
-        }
-        return splitableBonds;
+        List<String[]> list = new ArrayList<String[]>(n);
+        for (String[] result : results)
+            list.add(result);
+        return list;
     }
 
     /**
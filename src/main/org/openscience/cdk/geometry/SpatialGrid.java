@@ -0,0 +1,329 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.geometry;
+
+import java.util.Arrays;
+
+import javax.vecmath.Point3d;
+
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.interfaces.IAtom;
+
+/**
+ * A cell list of points in 3D for finding all points within a radius of a
+ * location. Space is divided into cubic cells of a fixed size and the points
+ * of each cell are stored together, a query only looks at the cells that
+ * overlap the sphere. The coordinates are copied into primitive arrays and
+ * a cell is found through its coordinates packed into a single long, so a
+ * query does not box numbers or create keys.
+ *
+ * <pre>
+ * SpatialGrid grid = SpatialGrid.of(atoms, 4.0);
+ * int[] near = grid.neighbors(0, 4.0); // atoms within 4 &Aring; of the first atom
+ * </pre>
+ *
+ * <p>Queries are fastest for a radius about the size of a cell. The grid is
+ * not changed by queries and may be searched from several threads.
+ *
+ * @cdk.module  standard
+ * @cdk.githash
+ * @cdk.keyword neighbor list
+ * @cdk.keyword cell list
+ */
+@TestClass("org.openscience.cdk.geometry.SpatialGridTest")
+public final class SpatialGrid {
+
+    /** Bits of each cell coordinate in a packed key. */
+    private static final int  BITS = 21;
+    private static final int  MAX_CELLS = 1 << BITS;
+
+    private final double[] x, y, z;
+    private final double   cellSize;
+
+    // the cell of the lowest corner and the number of cells along each axis
+    private final long minX, minY, minZ;
+    private final int  spanX, spanY, spanZ;
+
+    // open addressing table from a packed cell key to the cell index
+    private final long[] table;
+    private final int[]  cells;
+    private final int    mask;
+
+    // the points of cell c are members[start[c]] ... members[start[c+1]-1]
+    private final int[] start;
+    private final int[] members;
+
+    /**
+     * Create a grid of points given as coordinate arrays of equal length.
+     *
+     * @param x        the x coordinates
+     * @param y        the y coordinates
+     * @param z        the z coordinates
+     * @param cellSize the edge length of a cell
+     * @throws IllegalArgumentException the arrays differ in length, the cell
+     *                                  size is not positive, a coordinate is
+     *                                  not finite or the points span too many
+     *                                  cells
+     */
+    public SpatialGrid(double[] x, double[] y, double[] z, double cellSize) {
+        if (x.length != y.length || x.length != z.length)
+            throw new IllegalArgumentException("coordinate arrays differ in length");
+        if (!(cellSize > 0) || Double.isInfinite(cellSize))
+            throw new IllegalArgumentException("cell size must be positive: " + cellSize);
+        int n = x.length;
+        this.x        = x.clone();
+        this.y        = y.clone();
+        this.z        = z.clone();
+        this.cellSize = cellSize;
+
+        long[] cx = new long[n], cy = new long[n], cz = new long[n];
+        long loX = Long.MAX_VALUE, loY = Long.MAX_VALUE, loZ = Long.MAX_VALUE;
+        long hiX = Long.MIN_VALUE, hiY = Long.MIN_VALUE, hiZ = Long.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            cx[i] = cell(this.x[i]);
+            cy[i] = cell(this.y[i]);
+            cz[i] = cell(this.z[i]);
+            loX = Math.min(loX, cx[i]); hiX = Math.max(hiX, cx[i]);
+            loY = Math.min(loY, cy[i]); hiY = Math.max(hiY, cy[i]);
+            loZ = Math.min(loZ, cz[i]); hiZ = Math.max(hiZ, cz[i]);
+        }
+        if (n == 0) {
+            loX = loY = loZ = 0;
+            hiX = hiY = hiZ = -1;
+        }
+        if (hiX - loX >= MAX_CELLS || hiY - loY >= MAX_CELLS || hiZ - loZ >= MAX_CELLS)
+            throw new IllegalArgumentException("points span too many cells of size " + cellSize);
+        this.minX  = loX;
+        this.minY  = loY;
+        this.minZ  = loZ;
+        this.spanX = (int) (hiX - loX + 1);
+        this.spanY = (int) (hiY - loY + 1);
+        this.spanZ = (int) (hiZ - loZ + 1);
+
+        int capacity = 2;
+        while (capacity < 2 * n)
+            capacity <<= 1;
+        this.table = new long[capacity];
+        this.cells = new int[capacity];
+        this.mask  = capacity - 1;
+        Arrays.fill(table, -1);
+
+        // assign each point to a cell and count the points of each cell
+        int[] cellOf = new int[n];
+        int[] counts = new int[n + 1];
+        int   ncells = 0;
+        for (int i = 0; i < n; i++) {
+            long key  = key(cx[i] - minX, cy[i] - minY, cz[i] - minZ);
+            int  slot = slot(key);
+            if (table[slot] < 0) {
+                table[slot] = key;
+                cells[slot] = ncells++;
+            }
+            cellOf[i] = cells[slot];
+            counts[cellOf[i]]++;
+        }
+
+        this.start = new int[ncells + 1];
+        for (int c = 0; c < ncells; c++)
+            start[c + 1] = start[c] + counts[c];
+        this.members = new int[n];
+        int[] next = Arrays.copyOf(start, ncells);
+        for (int i = 0; i < n; i++)
+            members[next[cellOf[i]]++] = i;
+    }
+
+    /**
+     * Create a grid of points.
+     *
+     * @param points   the points
+     * @param cellSize the edge length of a cell
+     * @return the grid, point <i>i</i> of the grid is points[i]
+     */
+    @TestMethod("testOf_Point3dArray")
+    public static SpatialGrid of(Point3d[] points, double cellSize) {
+        int      n = points.length;
+        double[] x = new double[n], y = new double[n], z = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = points[i].x;
+            y[i] = points[i].y;
+            z[i] = points[i].z;
+        }
+        return new SpatialGrid(x, y, z, cellSize);
+    }
+
+    /**
+     * Create a grid of the 3D coordinates of atoms.
+     *
+     * @param atoms    the atoms, each with 3D coordinates
+     * @param cellSize the edge length of a cell
+     * @return the grid, point <i>i</i> of the grid is atoms[i]
+     */
+    @TestMethod("testOf_IAtomArray")
+    public static SpatialGrid of(IAtom[] atoms, double cellSize) {
+        int      n = atoms.length;
+        double[] x = new double[n], y = new double[n], z = new double[n];
+        for (int i = 0; i < n; i++) {
+            Point3d p = atoms[i].getPoint3d();
+            x[i] = p.x;
+            y[i] = p.y;
+            z[i] = p.z;
+        }
+        return new SpatialGrid(x, y, z, cellSize);
+    }
+
+    /**
+     * The number of points in the grid.
+     *
+     * @return the number of points
+     */
+    @TestMethod("testSize")
+    public int size() {
+        return x.length;
+    }
+
+    /**
+     * The edge length of the cells.
+     *
+     * @return the cell size
+     */
+    @TestMethod("testSize")
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * The squared distance between two points of the grid.
+     *
+     * @param i a point
+     * @param j another point
+     * @return the squared distance
+     */
+    @TestMethod("testDistance2")
+    public double distance2(int i, int j) {
+        double dx = x[i] - x[j], dy = y[i] - y[j], dz = z[i] - z[j];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * The points within the radius of a location, that is at a distance of
+     * at most the radius.
+     *
+     * @param px     x coordinate of the location
+     * @param py     y coordinate of the location
+     * @param pz     z coordinate of the location
+     * @param radius the radius
+     * @return the points in ascending order
+     */
+    @TestMethod("testWithin")
+    public int[] within(double px, double py, double pz, double radius) {
+        return find(px, py, pz, radius, -1);
+    }
+
+    /**
+     * The other points within the radius of a point of the grid.
+     *
+     * @param i      a point of the grid
+     * @param radius the radius
+     * @return the points in ascending order, without i
+     */
+    @TestMethod("testNeighbors")
+    public int[] neighbors(int i, double radius) {
+        return find(x[i], y[i], z[i], radius, i);
+    }
+
+    private int[] find(double px, double py, double pz, double radius, int skip) {
+        if (!(radius >= 0))
+            throw new IllegalArgumentException("radius must not be negative: " + radius);
+        int[] found = new int[16];
+        int   count = 0;
+
+        // the range of cells that overlap the bounding box of the sphere
+        long loX = cell(px - radius) - minX, hiX = cell(px + radius) - minX;
+        long loY = cell(py - radius) - minY, hiY = cell(py + radius) - minY;
+        long loZ = cell(pz - radius) - minZ, hiZ = cell(pz + radius) - minZ;
+        if (x.length == 0 || hiX < 0 || hiY < 0 || hiZ < 0 || loX >= spanX || loY >= spanY || loZ >= spanZ)
+            return new int[0];
+        loX = Math.max(0, loX); hiX = Math.min(spanX - 1, hiX);
+        loY = Math.max(0, loY); hiY = Math.min(spanY - 1, hiY);
+        loZ = Math.max(0, loZ); hiZ = Math.min(spanZ - 1, hiZ);
+
+        double r2 = radius * radius;
+        for (long a = loX; a <= hiX; a++) {
+            for (long b = loY; b <= hiY; b++) {
+                for (long c = loZ; c <= hiZ; c++) {
+                    long key  = key(a, b, c);
+                    int  slot = slot(key);
+                    if (table[slot] < 0)
+                        continue;
+                    int cell = cells[slot];
+                    for (int m = start[cell]; m < start[cell + 1]; m++) {
+                        int    j  = members[m];
+                        double dx = x[j] - px, dy = y[j] - py, dz = z[j] - pz;
+                        if (j != skip && dx * dx + dy * dy + dz * dz <= r2) {
+                            if (count == found.length)
+                                found = Arrays.copyOf(found, 2 * count);
+                            found[count++] = j;
+                        }
+                    }
+                }
+            }
+        }
+        Arrays.sort(found, 0, count);
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * The slot of a key in the table, either the slot holding the key or the
+     * free slot where it would be stored.
+     */
+    private int slot(long key) {
+        int slot = (int) mix(key) & mask;
+        while (table[slot] >= 0 && table[slot] != key)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private long cell(double v) {
+        if (Double.isNaN(v) || Double.isInfinite(v))
+            throw new IllegalArgumentException("coordinate is not finite: " + v);
+        return (long) Math.floor(v / cellSize);
+    }
+
+    private static long key(long a, long b, long c) {
+        return (a << (2 * BITS)) | (b << BITS) | c;
+    }
+
+    /**
+     * The finalizer of the 64 bit MurmurHash3, spreads each input bit over
+     * the output.
+     */
+    private static long mix(long x) {
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        x *= 0xc4ceb9fe1a85ec53L;
+        x ^= x >>> 33;
+        return x;
+    }
+}
@@ -0,0 +1,499 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.geometry.alignment;
+
+import java.util.List;
+
+import javax.vecmath.Point3d;
+
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.tools.ParallelLoop;
+
+/**
+ * The minimal RMSD and superposition of many structures of the same atoms,
+ * such as the conformers of a molecule, with the quaternion characteristic
+ * polynomial (QCP) method ({@cdk.cite THE05}, {@cdk.cite LIU10}). The RMSD of
+ * a pair of structures only needs one pass over their coordinates and the
+ * largest root of a quartic polynomial, no eigen decomposition or objects.
+ *
+ * <p>The coordinates of all structures are kept centered in one flat array,
+ * x, y and z of each atom after each other. A {@link
+ * org.openscience.cdk.ConformerContainer}, for example as read by the {@link
+ * org.openscience.cdk.io.iterator.IteratingMDLConformerReader}, is a list of
+ * structures and can be used directly:
+ * <pre>
+ * ConformerContainer conformers = (ConformerContainer) reader.next();
+ * QCPAlignment alignment = QCPAlignment.of(conformers);
+ * alignment.setThreads(4);
+ * double[][] rmsd = alignment.rmsdMatrix();
+ * </pre>
+ *
+ * <p>With a threshold set, pairs that certainly differ by more than the
+ * threshold are not compared. The RMSD of two structures is at least the
+ * difference of their radii of gyration; when that exceeds the threshold it
+ * is returned instead of the RMSD. This is useful for clustering, where only
+ * RMSD values up to a cutoff matter.
+ *
+ * <p>The structures are fixed on creation and may be compared from several
+ * threads.
+ *
+ * @cdk.module  extra
+ * @cdk.githash
+ * @cdk.keyword RMSD
+ * @cdk.keyword alignment
+ * @cdk.keyword conformer
+ * @see KabschAlignment
+ */
+@TestClass("org.openscience.cdk.geometry.alignment.QCPAlignmentTest")
+public final class QCPAlignment {
+
+    /** Relative precision of the largest eigenvalue. */
+    private static final double EVAL_PRECISION = 1e-11;
+
+    /** Smallest squared norm of an eigenvector computed from a cofactor row. */
+    private static final double EVEC_PRECISION = 1e-6;
+
+    private final int      atoms;
+    private final int      structures;
+    // centered coordinates, structure s starts at s * 3 * atoms
+    private final double[] coordinates;
+    // the center and the sum of the squared centered coordinates of each structure
+    private final double[] centers;
+    private final double[] squares;
+
+    private double threshold = Double.POSITIVE_INFINITY;
+    private int    threads   = 1;
+
+    /**
+     * Create an alignment of structures given as one block of coordinates,
+     * x, y and z of each atom of the first structure, then of the second
+     * structure and so on.
+     *
+     * @param coordinates the coordinates of the structures
+     * @param atoms       the number of atoms of each structure
+     * @throws IllegalArgumentException the block is not a whole number of
+     *                                  structures
+     */
+    public QCPAlignment(double[] coordinates, int atoms) {
+        if (atoms < 1 || coordinates.length % (3 * atoms) != 0)
+            throw new IllegalArgumentException("coordinates are not a whole number of structures of " + atoms
+                    + " atoms");
+        this.atoms       = atoms;
+        this.structures  = coordinates.length / (3 * atoms);
+        this.coordinates = coordinates.clone();
+        this.centers     = new double[3 * structures];
+        this.squares     = new double[structures];
+        for (int s = 0; s < structures; s++) {
+            int offset = 3 * atoms * s;
+            squares[s] = center(this.coordinates, offset, atoms, centers, 3 * s);
+        }
+    }
+
+    /**
+     * Create an alignment of the 3D coordinates of structures with the same
+     * atoms, for example the conformers of a {@link
+     * org.openscience.cdk.ConformerContainer}.
+     *
+     * @param structures the structures
+     * @return the alignment, structure <i>i</i> is structures.get(i)
+     */
+    @TestMethod("testOf_List")
+    public static QCPAlignment of(List<IAtomContainer> structures) {
+        if (structures.isEmpty())
+            throw new IllegalArgumentException("no structures to align");
+        int[] all = new int[structures.get(0).getAtomCount()];
+        for (int i = 0; i < all.length; i++)
+            all[i] = i;
+        return of(structures, all);
+    }
+
+    /**
+     * Create an alignment of the 3D coordinates of some atoms of structures
+     * with the same atoms, for example only the heavy atoms.
+     *
+     * @param structures the structures
+     * @param atoms      the indices of the atoms to align
+     * @return the alignment, structure <i>i</i> is structures.get(i)
+     */
+    @TestMethod("testOf_List_intArray")
+    public static QCPAlignment of(List<IAtomContainer> structures, int[] atoms) {
+        int      n           = atoms.length;
+        double[] coordinates = new double[3 * n * structures.size()];
+        // get(i) is used as a ConformerContainer sets the coordinates of the conformer on access
+        for (int s = 0; s < structures.size(); s++) {
+            IAtomContainer structure = structures.get(s);
+            for (int i = 0; i < n; i++) {
+                Point3d p = structure.getAtom(atoms[i]).getPoint3d();
+                if (p == null)
+                    throw new IllegalArgumentException("structure " + s + " has an atom without 3D coordinates");
+                int offset = 3 * (n * s + i);
+                coordinates[offset]     = p.x;
+                coordinates[offset + 1] = p.y;
+                coordinates[offset + 2] = p.z;
+            }
+        }
+        return new QCPAlignment(coordinates, n);
+    }
+
+    /**
+     * The number of structures.
+     *
+     * @return the number of structures
+     */
+    @TestMethod("testSize")
+    public int size() {
+        return structures;
+    }
+
+    /**
+     * The number of atoms of each structure.
+     *
+     * @return the number of atoms
+     */
+    @TestMethod("testSize")
+    public int getAtomCount() {
+        return atoms;
+    }
+
+    /**
+     * Only RMSD values up to the threshold are needed. Pairs that certainly
+     * differ more get a lower bound of their RMSD that is larger than the
+     * threshold. The default is to compute every RMSD.
+     *
+     * @param threshold the largest RMSD of interest
+     */
+    @TestMethod("testSetThreshold")
+    public void setThreshold(double threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Set the number of threads for {@link #rmsd(int)}, {@link
+     * #rmsd(double[])} and {@link #rmsdMatrix()}. The default is to use only
+     * the calling thread.
+     *
+     * @param threads the number of threads, at least 1
+     */
+    @TestMethod("testSetThreads")
+    public void setThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("at least one thread is required");
+        this.threads = threads;
+    }
+
+    /**
+     * The minimal RMSD of two structures.
+     *
+     * @param i a structure
+     * @param j another structure
+     * @return the RMSD after the optimal superposition, 0 if i and j are
+     *         the same structure
+     */
+    @TestMethod("testRmsd_int_int")
+    public double rmsd(int i, int j) {
+        if (i == j)
+            return 0;
+        return rmsd(coordinates, 3 * atoms * i, squares[i], 3 * atoms * j, squares[j], threshold);
+    }
+
+    /**
+     * The minimal RMSD of a structure with each structure.
+     *
+     * @param i a structure
+     * @return the RMSD with each structure, 0 with itself
+     */
+    @TestMethod("testRmsd_int")
+    public double[] rmsd(final int i) {
+        final double[] result = new double[structures];
+        ParallelLoop.forEach(structures, threads, "QCPAlignment", new ParallelLoop.Body<RuntimeException>() {
+            public void run(int j) {
+                result[j] = rmsd(i, j);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * The minimal RMSD of other coordinates of the same atoms with each
+     * structure.
+     *
+     * @param query the x, y and z of each atom
+     * @return the RMSD with each structure
+     */
+    @TestMethod("testRmsd_doubleArray")
+    public double[] rmsd(double[] query) {
+        if (query.length != 3 * atoms)
+            throw new IllegalArgumentException("the query must have " + atoms + " atoms");
+        final double[] centered = new double[3 * atoms + 3 * atoms * structures];
+        System.arraycopy(query, 0, centered, 3 * atoms * structures, query.length);
+        System.arraycopy(coordinates, 0, centered, 0, coordinates.length);
+        final int      offset  = 3 * atoms * structures;
+        final double   squared = center(centered, offset, atoms, new double[3], 0);
+        final double[] result  = new double[structures];
+        ParallelLoop.forEach(structures, threads, "QCPAlignment", new ParallelLoop.Body<RuntimeException>() {
+            public void run(int j) {
+                result[j] = rmsd(centered, offset, squared, 3 * atoms * j, squares[j], threshold);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * The minimal RMSD of all pairs of structures.
+     *
+     * @return the symmetric matrix of the RMSD values, with 0 on the diagonal
+     */
+    @TestMethod("testRmsdMatrix")
+    public double[][] rmsdMatrix() {
+        final double[][] matrix = new double[structures][structures];
+        ParallelLoop.forEach(structures, threads, "QCPAlignment", new ParallelLoop.Body<RuntimeException>() {
+            public void run(int i) {
+                for (int j = i + 1; j < structures; j++)
+                    matrix[i][j] = rmsd(i, j);
+            }
+        });
+        for (int i = 0; i < structures; i++)
+            for (int j = 0; j < i; j++)
+                matrix[i][j] = matrix[j][i];
+        return matrix;
+    }
+
+    /**
+     * The rotation that superposes structure j onto structure i, after both
+     * are moved to their center.
+     *
+     * @param i the reference structure
+     * @param j the structure to rotate
+     * @return the rotation matrix, row by row
+     */
+    @TestMethod("testGetRotation")
+    public double[] getRotation(int i, int j) {
+        double[] inner = innerProduct(coordinates, 3 * atoms * i, 3 * atoms * j, atoms);
+        double   e0    = (squares[i] + squares[j]) / 2;
+        double   max   = largestEigenvalue(inner, e0);
+        return rotation(inner, max);
+    }
+
+    /**
+     * The coordinates of structure j superposed onto structure i.
+     *
+     * @param i the reference structure
+     * @param j the structure to move
+     * @return the x, y and z of each atom of j after the superposition
+     */
+    @TestMethod("testSuperpose")
+    public double[] superpose(int i, int j) {
+        double[] rotation = getRotation(i, j);
+        double[] result   = new double[3 * atoms];
+        int      offset   = 3 * atoms * j;
+        for (int a = 0; a < 3 * atoms; a += 3) {
+            double x = coordinates[offset + a], y = coordinates[offset + a + 1], z = coordinates[offset + a + 2];
+            result[a]     = rotation[0] * x + rotation[1] * y + rotation[2] * z + centers[3 * i];
+            result[a + 1] = rotation[3] * x + rotation[4] * y + rotation[5] * z + centers[3 * i + 1];
+            result[a + 2] = rotation[6] * x + rotation[7] * y + rotation[8] * z + centers[3 * i + 2];
+        }
+        return result;
+    }
+
+    /**
+     * The RMSD of two centered structures of a coordinate block.
+     */
+    private double rmsd(double[] block, int a, double squaresA, int b, double squaresB, double threshold) {
+        // the RMSD is at least the difference of the radii of gyration
+        double bound = Math.abs(Math.sqrt(squaresA / atoms) - Math.sqrt(squaresB / atoms));
+        if (bound > threshold)
+            return bound;
+        double[] inner = innerProduct(block, a, b, atoms);
+        double   e0    = (squaresA + squaresB) / 2;
+        double   max   = largestEigenvalue(inner, e0);
+        return Math.sqrt(Math.abs(2 * (e0 - max) / atoms));
+    }
+
+    /**
+     * Move a structure of the block to its center.
+     *
+     * @return the sum of the squared centered coordinates
+     */
+    private static double center(double[] block, int offset, int atoms, double[] center, int at) {
+        double x = 0, y = 0, z = 0;
+        int    end = offset + 3 * atoms;
+        for (int k = offset; k < end; k += 3) {
+            x += block[k];
+            y += block[k + 1];
+            z += block[k + 2];
+        }
+        x /= atoms;
+        y /= atoms;
+        z /= atoms;
+        double squared = 0;
+        for (int k = offset; k < end; k += 3) {
+            block[k]     -= x;
+            block[k + 1] -= y;
+            block[k + 2] -= z;
+            squared += block[k] * block[k] + block[k + 1] * block[k + 1] + block[k + 2] * block[k + 2];
+        }
+        center[at]     = x;
+        center[at + 1] = y;
+        center[at + 2] = z;
+        return squared;
+    }
+
+    /**
+     * The inner product matrix of the moving structure b with the reference
+     * structure a, element (r,c) is the sum of b_r a_c over all atoms.
+     */
+    private static double[] innerProduct(double[] block, int a, int b, int atoms) {
+        double sxx = 0, sxy = 0, sxz = 0, syx = 0, syy = 0, syz = 0, szx = 0, szy = 0, szz = 0;
+        for (int k = 0; k < 3 * atoms; k += 3) {
+            double ax = block[a + k], ay = block[a + k + 1], az = block[a + k + 2];
+            double bx = block[b + k], by = block[b + k + 1], bz = block[b + k + 2];
+            sxx += bx * ax;
+            sxy += bx * ay;
+            sxz += bx * az;
+            syx += by * ax;
+            syy += by * ay;
+            syz += by * az;
+            szx += bz * ax;
+            szy += bz * ay;
+            szz += bz * az;
+        }
+        return new double[]{sxx, sxy, sxz, syx, syy, syz, szx, szy, szz};
+    }
+
+    /**
+     * The largest root of the characteristic polynomial of the key matrix,
+     * found with Newton's method starting from the upper bound e0.
+     */
+    private static double largestEigenvalue(double[] s, double e0) {
+        double sxx = s[0], sxy = s[1], sxz = s[2], syx = s[3], syy = s[4], syz = s[5], szx = s[6], szy = s[7],
+                szz = s[8];
+        double sxx2 = sxx * sxx, syy2 = syy * syy, szz2 = szz * szz;
+        double sxy2 = sxy * sxy, syz2 = syz * syz, sxz2 = sxz * sxz;
+        double syx2 = syx * syx, szy2 = szy * szy, szx2 = szx * szx;
+
+        double syzSzymSyySzz2    = 2 * (syz * szy - syy * szz);
+        double sxx2Syy2Szz2Syz2Szy2 = syy2 + szz2 - sxx2 + syz2 + szy2;
+
+        double c2 = -2 * (sxx2 + syy2 + szz2 + sxy2 + syx2 + sxz2 + szx2 + syz2 + szy2);
+        double c1 = 8 * (sxx * syz * szy + syy * szx * sxz + szz * sxy * syx - sxx * syy * szz - syz * szx * sxy
+                - szy * syx * sxz);
+
+        double sxzpSzx = sxz + szx, syzpSzy = syz + szy, sxypSyx = sxy + syx;
+        double syzmSzy = syz - szy, sxzmSzx = sxz - szx, sxymSyx = sxy - syx;
+        double sxxpSyy = sxx + syy, sxxmSyy = sxx - syy;
+        double sxy2Sxz2Syx2Szx2 = sxy2 + sxz2 - syx2 - szx2;
+
+        double c0 = sxy2Sxz2Syx2Szx2 * sxy2Sxz2Syx2Szx2
+                + (sxx2Syy2Szz2Syz2Szy2 + syzSzymSyySzz2) * (sxx2Syy2Szz2Syz2Szy2 - syzSzymSyySzz2)
+                + (-sxzpSzx * syzmSzy + sxymSyx * (sxxmSyy - szz)) * (-sxzmSzx * syzpSzy + sxymSyx * (sxxmSyy + szz))
+                + (-sxzpSzx * syzpSzy - sxypSyx * (sxxpSyy - szz)) * (-sxzmSzx * syzmSzy - sxypSyx * (sxxpSyy + szz))
+                + (sxypSyx * syzpSzy + sxzpSzx * (sxxmSyy + szz)) * (-sxymSyx * syzmSzy + sxzpSzx * (sxxpSyy + szz))
+                + (sxypSyx * syzmSzy + sxzmSzx * (sxxmSyy - szz)) * (-sxymSyx * syzpSzy + sxzmSzx * (sxxpSyy - szz));
+
+        double lambda = e0;
+        for (int iteration = 0; iteration < 50; iteration++) {
+            double previous = lambda;
+            double x2 = lambda * lambda;
+            double b  = (x2 + c2) * lambda;
+            double a  = b + c1;
+            double delta = (a * lambda + c0) / (2 * x2 * lambda + b + a);
+            lambda -= delta;
+            if (Math.abs(lambda - previous) < Math.abs(EVAL_PRECISION * lambda))
+                break;
+        }
+        return lambda;
+    }
+
+    /**
+     * The rotation matrix of the eigenvector of the key matrix for the
+     * largest eigenvalue, from the cofactors of (K - max I).
+     */
+    private static double[] rotation(double[] s, double max) {
+        double sxx = s[0], sxy = s[1], sxz = s[2], syx = s[3], syy = s[4], syz = s[5], szx = s[6], szy = s[7],
+                szz = s[8];
+        double sxzpSzx = sxz + szx, syzpSzy = syz + szy, sxypSyx = sxy + syx;
+        double syzmSzy = syz - szy, sxzmSzx = sxz - szx, sxymSyx = sxy - syx;
+        double sxxpSyy = sxx + syy, sxxmSyy = sxx - syy;
+
+        double a11 = sxxpSyy + szz - max, a12 = syzmSzy, a13 = -sxzmSzx, a14 = sxymSyx;
+        double a21 = syzmSzy, a22 = sxxmSyy - szz - max, a23 = sxypSyx, a24 = sxzpSzx;
+        double a31 = a13, a32 = a23, a33 = syy - sxx - szz - max, a34 = syzpSzy;
+        double a41 = a14, a42 = a24, a43 = a34, a44 = szz - sxxpSyy - max;
+        double a3344_4334 = a33 * a44 - a43 * a34, a3244_4234 = a32 * a44 - a42 * a34;
+        double a3243_4233 = a32 * a43 - a42 * a33, a3143_4133 = a31 * a43 - a41 * a33;
+        double a3144_4134 = a31 * a44 - a41 * a34, a3142_4132 = a31 * a42 - a41 * a32;
+
+        double q1 = a22 * a3344_4334 - a23 * a3244_4234 + a24 * a3243_4233;
+        double q2 = -a21 * a3344_4334 + a23 * a3144_4134 - a24 * a3143_4133;
+        double q3 = a21 * a3244_4234 - a22 * a3144_4134 + a24 * a3142_4132;
+        double q4 = -a21 * a3243_4233 + a22 * a3143_4133 - a23 * a3142_4132;
+        double qsqr = q1 * q1 + q2 * q2 + q3 * q3 + q4 * q4;
+
+        // the cofactors of a row vanish when the row depends on the others,
+        // then another row is used
+        if (qsqr < EVEC_PRECISION) {
+            q1 = a12 * a3344_4334 - a13 * a3244_4234 + a14 * a3243_4233;
+            q2 = -a11 * a3344_4334 + a13 * a3144_4134 - a14 * a3143_4133;
+            q3 = a11 * a3244_4234 - a12 * a3144_4134 + a14 * a3142_4132;
+            q4 = -a11 * a3243_4233 + a12 * a3143_4133 - a13 * a3142_4132;
+            qsqr = q1 * q1 + q2 * q2 + q3 * q3 + q4 * q4;
+        }
+        if (qsqr < EVEC_PRECISION) {
+            double a1324_1423 = a13 * a24 - a14 * a23, a1224_1422 = a12 * a24 - a14 * a22;
+            double a1223_1322 = a12 * a23 - a13 * a22, a1124_1421 = a11 * a24 - a14 * a21;
+            double a1123_1321 = a11 * a23 - a13 * a21, a1122_1221 = a11 * a22 - a12 * a21;
+
+            q1 = a42 * a1324_1423 - a43 * a1224_1422 + a44 * a1223_1322;
+            q2 = -a41 * a1324_1423 + a43 * a1124_1421 - a44 * a1123_1321;
+            q3 = a41 * a1224_1422 - a42 * a1124_1421 + a44 * a1122_1221;
+            q4 = -a41 * a1223_1322 + a42 * a1123_1321 - a43 * a1122_1221;
+            qsqr = q1 * q1 + q2 * q2 + q3 * q3 + q4 * q4;
+
+            if (qsqr < EVEC_PRECISION) {
+                q1 = a32 * a1324_1423 - a33 * a1224_1422 + a34 * a1223_1322;
+                q2 = -a31 * a1324_1423 + a33 * a1124_1421 - a34 * a1123_1321;
+                q3 = a31 * a1224_1422 - a32 * a1124_1421 + a34 * a1122_1221;
+                q4 = -a31 * a1223_1322 + a32 * a1123_1321 - a33 * a1122_1221;
+                qsqr = q1 * q1 + q2 * q2 + q3 * q3 + q4 * q4;
+            }
+        }
+        if (qsqr < EVEC_PRECISION) {
+            // the structures are already superposed
+            return new double[]{1, 0, 0, 0, 1, 0, 0, 0, 1};
+        }
+
+        double norm = Math.sqrt(qsqr);
+        q1 /= norm;
+        q2 /= norm;
+        q3 /= norm;
+        q4 /= norm;
+
+        double a2 = q1 * q1, x2 = q2 * q2, y2 = q3 * q3, z2 = q4 * q4;
+        double xy = q2 * q3, az = q1 * q4, zx = q4 * q2, ay = q1 * q3, yz = q3 * q4, ax = q1 * q2;
+        return new double[]{a2 + x2 - y2 - z2, 2 * (xy - az), 2 * (zx + ay),
+                            2 * (xy + az), a2 - x2 + y2 - z2, 2 * (yz - ax),
+                            2 * (zx - ay), 2 * (yz + ax), a2 - x2 - y2 + z2};
+    }
+}
@@ -513,6 +513,14 @@ class ImmutableHydrogen implements IAtom {
     @TestMethod("testListenerStuff")
     public void notifyChanged(IChemObjectChangeEvent evt) {}
 
+    /** {@inheritDoc}} */
+    @TestMethod("testListenerStuff")
+    public void beginChanges() {}
+
+    /** {@inheritDoc}} */
+    @TestMethod("testListenerStuff")
+    public void endChanges() {}
+
     /** {@inheritDoc}} */
     @TestMethod("testListenerStuff")
     public void removeListener(IChemObjectListener col) {}
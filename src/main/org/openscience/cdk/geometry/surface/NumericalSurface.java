@@ -25,6 +25,7 @@ import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.tools.ILoggingTool;
 import org.openscience.cdk.tools.LoggingToolFactory;
+import org.openscience.cdk.tools.ParallelLoop;
 import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
 import org.openscience.cdk.tools.periodictable.PeriodicTable;
 
@@ -49,6 +50,10 @@ import java.util.Iterator;
  * Van der Waals surface. The accuracy can be increased by increasing the tessellation 
  * level, though the default of 4 is a good balance between accuracy and speed.
  *
+ * <p>The surface points of each atom only depend on its neighbors, for large
+ * structures such as proteins they can be computed with several threads,
+ * see {@link #setThreads(int)}.
+ *
  * @author      Rajarshi Guha
  * @cdk.created 2005-05-08  
  * @cdk.module  qsarmolecular
@@ -60,6 +65,7 @@ public class NumericalSurface {
         LoggingToolFactory.createLoggingTool(NumericalSurface.class);
     double solvent_radius = 1.4;
     int tesslevel = 4;
+    int threads = 1;
     IAtom[] atoms;
     ArrayList[] surf_points;
     double[] areas;
@@ -94,6 +100,18 @@ public class NumericalSurface {
         this.tesslevel = tesslevel;
     }
 
+    /**
+     * Set the number of threads that compute the surface points of the atoms.
+     * The default is to use only the calling thread.
+     *
+     * @param threads the number of threads, at least 1
+     */
+    public void setThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("at least one thread is required");
+        this.threads = threads;
+    }
+
     /**
      * Evaluate the surface.
      *
@@ -105,10 +123,11 @@ public class NumericalSurface {
         // get r_f and geometric center
         Point3d cp = new Point3d(0,0,0);
         double max_radius = 0;
+        final double[] radii = new double[atoms.length];
         for (int i = 0; i < atoms.length; i++) {
-            double vdwr = PeriodicTable.getVdwRadius(atoms[i].getSymbol());
-            if (vdwr+solvent_radius > max_radius)
-                max_radius = PeriodicTable.getVdwRadius(atoms[i].getSymbol())+solvent_radius;
+            radii[i] = PeriodicTable.getVdwRadius(atoms[i].getSymbol()) + solvent_radius;
+            if (radii[i] > max_radius)
+                max_radius = radii[i];
 
             cp.x = cp.x + atoms[i].getPoint3d().x;
             cp.y = cp.y + atoms[i].getPoint3d().y;
@@ -126,29 +145,24 @@ public class NumericalSurface {
 
 
         // get neighbor list
-        NeighborList nbrlist = new NeighborList(atoms, max_radius+solvent_radius);
+        final NeighborList nbrlist = new NeighborList(atoms, max_radius+solvent_radius);
         logger.info("Got neighbor list");
 
-        /*
-           for (int i = 0; i < atoms.length; i++) {
-           int[] nlist = nbrlist.getNeighbors(i);
-           logger.debug("Atom "+i+": ");
-           for (int j = 0; j < nlist.length; j++)
-           logger.debug(j+" ");
-           logger.debug("");
-           }
-           */
-
         // loop over atoms and get surface points
         this.surf_points = new ArrayList[ atoms.length ];
         this.areas = new double[ atoms.length ];
         this.volumes = new double[ atoms.length ];
 
-        for (int i = 0; i < atoms.length; i++) {
-            int point_density = tess.getNumberOfTriangles()*3;
-            Point3d[][] points = atomicSurfacePoints(nbrlist, i, atoms[i], tess);
-            translatePoints(i, points, point_density, atoms[i], cp);
-        }
+        final Point3d[] tess_points = tess.getTessAsPoint3ds();
+        final Point3d center = cp;
+        final int point_density = tess.getNumberOfTriangles()*3;
+        // each atom writes its own entries of the result arrays
+        ParallelLoop.forEach(atoms.length, threads, "NumericalSurface", new ParallelLoop.Body<RuntimeException>() {
+            public void run(int i) {
+                Point3d[][] points = atomicSurfacePoints(nbrlist, radii, i, tess_points);
+                translatePoints(i, points, point_density, radii[i], center);
+            }
+        });
         logger.info("Obtained points, areas and volumes");
 
     }
@@ -230,8 +244,8 @@ public class NumericalSurface {
     }
 
 
-    private void translatePoints(int atmIdx, Point3d[][] points, int point_density, IAtom atom, Point3d cp) {
-        double total_radius = PeriodicTable.getVdwRadius(atom.getSymbol()) + solvent_radius;
+    private void translatePoints(int atmIdx, Point3d[][] points, int point_density, double total_radius, Point3d cp) {
+        IAtom atom = atoms[atmIdx];
 
         double area = 4 * Math.PI * (total_radius*total_radius) * points.length / point_density;
 
@@ -259,9 +273,10 @@ public class NumericalSurface {
         this.surf_points[atmIdx] =  tmp;
     }
 
-    private Point3d[][] atomicSurfacePoints(NeighborList nbrlist, int currAtomIdx, IAtom atom, Tessellate tess) {
+    private Point3d[][] atomicSurfacePoints(NeighborList nbrlist, double[] radii, int currAtomIdx, Point3d[] tess_points) {
 
-        double total_radius = PeriodicTable.getVdwRadius(atom.getSymbol()) + solvent_radius;
+        IAtom atom = atoms[currAtomIdx];
+        double total_radius = radii[currAtomIdx];
         double total_radius2 = total_radius*total_radius;
         double twice_total_radius = 2*total_radius;
 
@@ -273,7 +288,7 @@ public class NumericalSurface {
             double z12 = atoms[nlist[i]].getPoint3d().z - atom.getPoint3d().z;
 
             double d2 = x12*x12 + y12*y12 + z12*z12;
-            double tmp = PeriodicTable.getVdwRadius(atoms[nlist[i]].getSymbol()) + solvent_radius;
+            double tmp = radii[nlist[i]];
             tmp = tmp * tmp;
             double thresh = (d2 + total_radius2 - tmp) / twice_total_radius;
 
@@ -283,7 +298,6 @@ public class NumericalSurface {
             data[i][3] = thresh;
         }
 
-        Point3d[] tess_points = tess.getTessAsPoint3ds();
         ArrayList points = new ArrayList();
         for (int i = 0; i < tess_points.length; i++) {
             Point3d pt = tess_points[i];
@@ -491,6 +491,14 @@ public final class AllPairsShortestPaths {
 
         }
 
+        public void beginChanges() {
+
+        }
+
+        public void endChanges() {
+
+        }
+
         public void setProperty(Object description, Object property) {
 
         }
@@ -27,16 +27,15 @@ package org.openscience.cdk.graph.rebond;
 import org.openscience.cdk.annotations.TestClass;
 import org.openscience.cdk.annotations.TestMethod;
 import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.geometry.SpatialGrid;
 import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.interfaces.IBond;
 
-import java.util.Iterator;
-
 /**
  * Provides tools to rebond a molecule from 3D coordinates only.
- * The algorithm uses an efficient algorithm using a
- * Binary Space Partitioning Tree (Bspt). It requires that the 
+ * The algorithm puts the atoms in a {@link SpatialGrid} and only
+ * looks at the atoms near each atom. It requires that the 
  * atom types are configured such that the covalent bond radii
  * for all atoms are set. The AtomTypeFactory can be used for this.
  *
@@ -49,7 +48,7 @@ import java.util.Iterator;
  * @cdk.module  standard
  * @cdk.githash
  *
- * @see org.openscience.cdk.graph.rebond.Bspt
+ * @see org.openscience.cdk.geometry.SpatialGrid
  */
 @TestClass("org.openscience.cdk.graph.rebond.RebondToolTest")
 public class RebondTool {
@@ -58,18 +57,15 @@ public class RebondTool {
   private double minBondDistance;
   private double bondTolerance;
     
-  private Bspt bspt;
-    
   public RebondTool(double maxCovalentRadius, double minBondDistance,
                     double bondTolerance) {
     this.maxCovalentRadius = maxCovalentRadius;
     this.bondTolerance = bondTolerance;
     this.minBondDistance = minBondDistance;    
-    this.bspt = null;
   }
     
   /**
-   * Rebonding using a Binary Space Partition Tree. Note, that any bonds
+   * Rebonding using a spatial grid. Note, that any bonds
    * defined will be deleted first. It assumes the unit of 3D space to
    * be 1 &Acircle;ngstrom.
    */
@@ -77,40 +73,30 @@ public class RebondTool {
   public void rebond(IAtomContainer container) throws CDKException {
     container.removeAllBonds();
     maxCovalentRadius = 0.0;
-    // construct a new binary space partition tree
-    bspt = new Bspt(3);
-    Iterator<IAtom> atoms = container.atoms().iterator();
-    while (atoms.hasNext()) {
-      IAtom atom = atoms.next();
-      double myCovalentRadius = atom.getCovalentRadius();
-      if (myCovalentRadius == 0.0) {
+    int n = container.getAtomCount();
+    IAtom[] atoms = new IAtom[n];
+    double[] radii = new double[n];
+    for (int i = 0; i < n; i++) {
+      atoms[i] = container.getAtom(i);
+      Double myCovalentRadius = atoms[i].getCovalentRadius();
+      if (myCovalentRadius == null || myCovalentRadius == 0.0) {
           throw new CDKException("Atom(s) does not have covalentRadius defined.");
       }
-      if (myCovalentRadius > maxCovalentRadius)
-        maxCovalentRadius = myCovalentRadius;
-      TupleAtom tupleAtom = new TupleAtom(atom);
-      bspt.addTuple(tupleAtom);
+      radii[i] = myCovalentRadius;
+      if (radii[i] > maxCovalentRadius)
+        maxCovalentRadius = radii[i];
     }
-    // rebond all atoms
-    atoms = container.atoms().iterator();
-    while (atoms.hasNext()) {
-      bondAtom(container, (IAtom)atoms.next());
-    }
-  }
-    
-  /**
-   * Rebonds one atom by looking up nearby atom using the binary space partition tree.
-   */
-  private void bondAtom(IAtomContainer container, IAtom atom) {
-    double myCovalentRadius = atom.getCovalentRadius();
-    double searchRadius = myCovalentRadius + maxCovalentRadius + bondTolerance;
-    Point tupleAtom = new Point(atom.getPoint3d().x, atom.getPoint3d().y, atom.getPoint3d().z);
-    for (Bspt.EnumerateSphere e = bspt.enumHemiSphere(tupleAtom, searchRadius); e.hasMoreElements(); ) {
-      IAtom atomNear = ((TupleAtom)e.nextElement()).getAtom();
-      if (atomNear != atom && container.getBond(atom, atomNear) == null) {
-        boolean bonded = isBonded(myCovalentRadius,  atomNear.getCovalentRadius(), e.foundDistance2());
-        if (bonded) {
-          IBond bond = atom.getBuilder().newInstance(IBond.class,atom, atomNear, IBond.Order.SINGLE);
+    if (n == 0)
+      return;
+    // cells of the longest possible bond, a search then looks at 27 cells
+    SpatialGrid grid = SpatialGrid.of(atoms, 2 * maxCovalentRadius + bondTolerance);
+    // rebond all atoms, each pair is looked at from the atom with the lower
+    // index so it is bonded at most once
+    for (int i = 0; i < n; i++) {
+      double searchRadius = radii[i] + maxCovalentRadius + bondTolerance;
+      for (int j : grid.neighbors(i, searchRadius)) {
+        if (j > i && isBonded(radii[i], radii[j], grid.distance2(i, j))) {
+          IBond bond = atoms[i].getBuilder().newInstance(IBond.class, atoms[i], atoms[j], IBond.Order.SINGLE);
           container.addBond(bond);
         }
       }
@@ -133,31 +119,5 @@ public class RebondTool {
       return false;
       return distance2 <= maxAcceptable2;
   }
-
-    
-  class TupleAtom implements Bspt.Tuple {
-    IAtom atom;
-        
-    TupleAtom(IAtom atom) {
-      this.atom = atom;
-    }
-        
-    public double getDimValue(int dim) {
-      if (dim == 0)
-        return atom.getPoint3d().x;
-      if (dim == 1)
-        return atom.getPoint3d().y;
-      return atom.getPoint3d().z;
-    }
-        
-    public IAtom getAtom() {
-      return this.atom;
-    }
-        
-    public String toString() {
-      return ("<" + atom.getPoint3d().x + "," + atom.getPoint3d().y + "," +
-              atom.getPoint3d().z + ">");
-    }
-  }
     
 }
@@ -53,7 +53,7 @@ public abstract class AbstractDiscretePartitionRefiner {
     
     /**
      * The best permutation is the one that gives the maximal 
-     * half-matrix string (so far) when applied to the graph.
+     * half-matrix (so far), read column by column, when applied to the graph.
      */
     private Permutation best;
     
@@ -242,7 +242,8 @@ public abstract class AbstractDiscretePartitionRefiner {
     /**
      * Get the best permutation found.
      * 
-     * @return the permutation that gives the maximal half-matrix string
+     * @return the permutation that gives the maximal half-matrix, read
+     *         column by column
      */
     @TestMethod("getBestTest")
     public Permutation getBest() {
@@ -303,7 +304,7 @@ public abstract class AbstractDiscretePartitionRefiner {
         Result result = Result.BETTER;
         if (bestExist) {
             pi1 = finer.setAsPermutation(firstNonDiscreteCell);
-            result = compareRowwise(pi1);
+            result = compareColumnwise(pi1);
         }
         
         // partition is discrete
@@ -361,15 +362,20 @@ public abstract class AbstractDiscretePartitionRefiner {
     
     /**
      * Check a permutation to see if it is better, equal, or worse than the 
-     * current best.
+     * current best. The upper half of the matrix is compared column by
+     * column, so that the entries of a partial permutation of the first
+     * <i>m</i> vertices are a prefix of the entries of any permutation that
+     * extends it. Pruning a partial permutation that is worse can then not
+     * lose a better permutation, which would make the best permutation
+     * depend on the order of the vertices.
      * 
      * @param perm the permutation to check
      * @return BETTER, EQUAL, or WORSE
      */
-    private Result compareRowwise(Permutation perm) {
+    private Result compareColumnwise(Permutation perm) {
         int m = perm.size();
-        for (int i = 0; i < m - 1; i++) {
-            for (int j = i + 1; j < m; j++) {
+        for (int j = 1; j < m; j++) {
+            for (int i = 0; i < j; i++) {
                 int x = getConnectivity(best.get(i), best.get(j));
                 int y = getConnectivity(perm.get(i), perm.get(j));
                 if (x > y) return Result.WORSE;
@@ -0,0 +1,195 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.group;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+
+/**
+ * A refiner for graphs given as adjacency arrays rather than as an atom
+ * container. The vertices are labelled by an initial ordered partition, for
+ * example of atom invariants, and the edges by an integer such as the bond
+ * order. As the refiner does not read or write the atoms, several refiners
+ * may work on the same molecule at the same time.
+ * 
+ * <p>The best permutation of a refined graph gives a canonical labelling:
+ * two graphs with the same edge labels and the same (ordered) initial
+ * partition get the same permuted graph if, and only if, they are
+ * isomorphic.
+ * 
+ * <pre>
+ *     GraphDiscretePartitionRefiner refiner = 
+ *         new GraphDiscretePartitionRefiner(graph, bondOrders);
+ *     refiner.refine(invariants);
+ *     int[] ranks = refiner.getCanonicalRanks();
+ * </pre>
+ * 
+ * @cdk.module group
+ * @cdk.githash
+ * @cdk.keyword canonicalization
+ */
+@TestClass("org.openscience.cdk.group.GraphDiscretePartitionRefinerTest")
+public class GraphDiscretePartitionRefiner extends AbstractDiscretePartitionRefiner {
+
+    /**
+     * The vertices adjacent to each vertex.
+     */
+    private final int[][] graph;
+
+    /**
+     * The label of the edge to each adjacent vertex, may be null.
+     */
+    private final int[][] edgeLabels;
+
+    /**
+     * Make a refiner for a graph with unlabelled edges.
+     * 
+     * @param graph the vertices adjacent to each vertex
+     */
+    @TestMethod("refineTest")
+    public GraphDiscretePartitionRefiner(int[][] graph) {
+        this(graph, null);
+    }
+
+    /**
+     * Make a refiner for a graph with labelled edges. The label of the edge
+     * from <i>i</i> to <code>graph[i][k]</code> is <code>edgeLabels[i][k]</code>
+     * and has to be positive.
+     * 
+     * @param graph      the vertices adjacent to each vertex
+     * @param edgeLabels the label of each edge, in the order of the graph
+     */
+    @TestMethod("refine_EdgeLabelsTest")
+    public GraphDiscretePartitionRefiner(int[][] graph, int[][] edgeLabels) {
+        this.graph = graph;
+        this.edgeLabels = edgeLabels;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    @TestMethod("refineTest")
+    public int getVertexCount() {
+        return graph.length;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    @TestMethod("refine_EdgeLabelsTest")
+    public int getConnectivity(int vertexI, int vertexJ) {
+        int[] connected = graph[vertexI];
+        for (int k = 0; k < connected.length; k++) {
+            if (connected[k] == vertexJ) {
+                return edgeLabels == null ? 1 : edgeLabels[vertexI][k];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Refine a partition of the vertices, the order of the cells is kept.
+     * 
+     * @param partition the initial partition of the vertices
+     */
+    @Override
+    @TestMethod("refineTest")
+    public void refine(Partition partition) {
+        int size = getVertexCount();
+        setup(new PermutationGroup(new Permutation(size)), 
+              new GraphEquitablePartitionRefiner(graph));
+        if (size > 0) {
+            super.refine(partition);
+        }
+    }
+
+    /**
+     * Refine the partition of the vertices into cells of equal invariants,
+     * see {@link #getInvariantPartition(long[])}.
+     * 
+     * @param invariants an invariant of each vertex
+     */
+    @TestMethod("refineTest,refine_InvariantsTest")
+    public void refine(long[] invariants) {
+        refine(getInvariantPartition(invariants));
+    }
+
+    /**
+     * The canonical rank of each vertex, from 0 to the number of vertices
+     * minus 1, under the best permutation of the last refinement.
+     * 
+     * @return the rank of each vertex
+     */
+    @TestMethod("refineTest,refine_InvariantsTest")
+    public int[] getCanonicalRanks() {
+        int size = getVertexCount();
+        int[] ranks = new int[size];
+        if (size > 0) {
+            Permutation best = getBest();
+            for (int i = 0; i < size; i++) {
+                ranks[best.get(i)] = i;
+            }
+        }
+        return ranks;
+    }
+
+    /**
+     * Partition the vertices into cells of equal invariants, the cells are
+     * in ascending order of invariant. So for the invariants [6, 7, 6, 8] the
+     * partition is [{0, 2}, {1}, {3}].
+     * 
+     * @param invariants an invariant of each vertex
+     * @return the ordered partition
+     */
+    @TestMethod("getInvariantPartitionTest")
+    public static Partition getInvariantPartition(final long[] invariants) {
+        int size = invariants.length;
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                if (invariants[a] != invariants[b]) {
+                    return invariants[a] < invariants[b] ? -1 : 1;
+                }
+                return a.compareTo(b);
+            }
+        });
+        Partition partition = new Partition();
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || invariants[order[i]] != invariants[order[i - 1]]) {
+                partition.addSingletonCell(order[i]);
+            } else {
+                partition.addToCell(partition.size() - 1, order[i]);
+            }
+        }
+        return partition;
+    }
+
+}
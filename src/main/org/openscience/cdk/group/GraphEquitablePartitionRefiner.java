@@ -0,0 +1,80 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.group;
+
+import java.util.Set;
+
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+
+/**
+ * Refiner for graphs given as adjacency arrays, which refines partitions of
+ * the vertices to equitable partitions. Used by the
+ * {@link GraphDiscretePartitionRefiner}.
+ * 
+ * @cdk.module group
+ * @cdk.githash
+ */
+@TestClass("org.openscience.cdk.group.GraphDiscretePartitionRefinerTest")
+public class GraphEquitablePartitionRefiner extends
+        AbstractEquitablePartitionRefiner implements IEquitablePartitionRefiner {
+
+    /**
+     * The adjacency arrays of the graph.
+     */
+    private final int[][] graph;
+
+    /**
+     * Make a refiner for the graph with the given adjacency arrays.
+     * 
+     * @param graph the vertices adjacent to each vertex
+     */
+    public GraphEquitablePartitionRefiner(int[][] graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    @TestMethod("refineTest")
+    public int neighboursInBlock(Set<Integer> block, int vertexIndex) {
+        int neighbours = 0;
+        for (int connected : graph[vertexIndex]) {
+            if (block.contains(connected)) {
+                neighbours++;
+            }
+        }
+        return neighbours;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    @TestMethod("refineTest")
+    public int getVertexCount() {
+        return graph.length;
+    }
+
+}
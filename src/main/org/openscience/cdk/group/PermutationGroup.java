@@ -343,10 +343,12 @@ public class PermutationGroup {
         
         int firstDiffIndex = base.firstIndexOfDifference(newBase);
         
+        // the identity at each base point is already in the new group,
+        // entering it again sifts it through all the levels for nothing
         for (int j = firstDiffIndex; j < size; j++) {
             for (int a = 0; a < size; a++) {
                 Permutation g = permutations[j][a];
-                if (g != null) {
+                if (g != null && a != base.get(j)) {
                     h.enter(g);
                 }
             }
@@ -381,10 +383,11 @@ public class PermutationGroup {
            permutations[i][g.get(base.get(i))] = new Permutation(g);
        }
        
+       // g times the identity at a base point is g, which is now in the group
        for (int j = 0; j <= i; j++) {
            for (int a = 0; a < deg; a++) {
                Permutation h = permutations[j][a];
-               if (h != null) {
+               if (h != null && a != base.get(j)) {
                    Permutation f = g.multiply(h);
                    enter(f);
                }
@@ -406,7 +409,8 @@ public class PermutationGroup {
             Permutation h = permutations[i][x];
             if (h == null) {
                 return i;
-            } else {
+            } else if (x != base.get(i)) {
+                // only sift by the permutations that are not the identity
                 permutation.setTo(h.invert().multiply(permutation));
             }
         }
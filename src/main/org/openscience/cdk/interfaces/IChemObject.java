@@ -95,6 +95,34 @@ public interface IChemObject extends ICDKObject {
 	 */
 	public void notifyChanged(IChemObjectChangeEvent evt);
 
+	/**
+	 * Start a batch of changes. Until the batch ends the listeners are not
+	 * notified of the changes of this object, or of those propagated to it,
+	 * and after the batch they are notified once of all of them. Batches may
+	 * be nested, the listeners are notified when the outermost batch ends.
+	 *
+	 * <pre>
+	 * container.beginChanges();
+	 * try {
+	 *     // add atoms and bonds ...
+	 * } finally {
+	 *     container.endChanges();
+	 * }
+	 * </pre>
+	 *
+	 * @see #endChanges()
+	 */
+	public void beginChanges();
+
+	/**
+	 * End a batch of changes started by {@link #beginChanges()}. If it is the
+	 * outermost batch and something changed, the listeners are notified once.
+	 *
+	 * @throws IllegalStateException no batch of changes was started
+	 * @see #beginChanges()
+	 */
+	public void endChanges();
+
 	/**
 	 * Sets a property for a IChemObject.
 	 *
@@ -0,0 +1,412 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.io.iterator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IChemObjectBuilder;
+import org.openscience.cdk.io.formats.IResourceFormat;
+import org.openscience.cdk.io.setting.BooleanIOSetting;
+import org.openscience.cdk.io.setting.IOSetting;
+import org.openscience.cdk.tools.ILoggingTool;
+import org.openscience.cdk.tools.LoggingToolFactory;
+
+/**
+ * Iterating MDL SDF reader which parses the records on several threads. One
+ * thread splits the input at the <code>$$$$</code> separators into chunks of
+ * whole records and a pool of worker threads parses the chunks, each worker
+ * with its own {@link IteratingSDFReader}. The records therefore give the same molecules,
+ * data items and error handler calls as when they are read with the
+ * {@link IteratingSDFReader}.
+ *
+ * <p>The molecules are by default returned in the order of the file. When
+ * the order is not needed each molecule can be returned as soon as it is
+ * parsed. At most <i>capacity</i> chunks are split off ahead of the
+ * molecule last returned, this bounds the memory used when the molecules
+ * are consumed more slowly than they are parsed.
+ *
+ * <p>The error handler is called from the worker threads and so must be
+ * thread safe. When skip is not set the iteration stops at the first record
+ * which gives no molecule, with unordered output the molecules returned
+ * before that point are those which happened to be parsed first.
+ *
+ * <p>Example use:
+ * <pre>
+ * ParallelIteratingSDFReader reader = new ParallelIteratingSDFReader(
+ *   new FileReader(sdfFile), DefaultChemObjectBuilder.getInstance(), 8
+ * );
+ * while (reader.hasNext()) {
+ *   IAtomContainer molecule = reader.next();
+ * }
+ * reader.close();
+ * </pre>
+ *
+ * @cdk.module io
+ * @cdk.githash
+ *
+ * @see IteratingSDFReader
+ *
+ * @cdk.keyword    file format, SDF
+ * @cdk.iooptions
+ */
+@TestClass("org.openscience.cdk.io.iterator.ParallelIteratingSDFReaderTest")
+public class ParallelIteratingSDFReader extends DefaultIteratingChemObjectReader<IAtomContainer> {
+
+    private static ILoggingTool logger =
+        LoggingToolFactory.createLoggingTool(ParallelIteratingSDFReader.class);
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    /** Number of characters after which a chunk of records is handed to a worker. */
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private BufferedReader     input;
+    private IChemObjectBuilder builder;
+    private final int          threads;
+    private final int          capacity;
+    private final boolean      ordered;
+
+    // if an error is encountered the reader will skip over the error
+    private boolean skip = false;
+
+    private BooleanIOSetting forceReadAs3DCoords;
+
+    // the running pipeline, created on the first call to hasNext()
+    private RecordPipeline<Record>          pipeline;
+    private ThreadLocal<IteratingSDFReader> recordReaders;
+    private Iterator<Record>                chunk;
+
+    private boolean         nextAvailableIsKnown;
+    private boolean         hasNext;
+    private IAtomContainer  nextMolecule;
+    private IResourceFormat currentFormat;
+
+    /**
+     * Constructs a reader which parses the records on the given number of
+     * threads and returns the molecules in the order of the input.
+     *
+     * @param in      the Reader to read from
+     * @param builder the builder
+     * @param threads number of parsing threads
+     */
+    @TestMethod("testSDF")
+    public ParallelIteratingSDFReader(Reader in, IChemObjectBuilder builder, int threads) {
+        this(in, builder, false, threads, 4 * threads, true);
+    }
+
+    /**
+     * Constructs a reader which parses the records on the given number of
+     * threads and returns the molecules in the order of the input.
+     *
+     * @param in      the InputStream to read from
+     * @param builder the builder
+     * @param threads number of parsing threads
+     */
+    @TestMethod("testReadDataItems")
+    public ParallelIteratingSDFReader(InputStream in, IChemObjectBuilder builder, int threads) {
+        this(new InputStreamReader(in), builder, threads);
+    }
+
+    /**
+     * Constructs a reader which parses the records on the given number of
+     * threads.
+     *
+     * @param in       the Reader to read from
+     * @param builder  the builder
+     * @param skip     whether to skip records which give no molecule
+     * @param threads  number of parsing threads
+     * @param capacity maximum number of chunks read ahead of the last molecule returned
+     * @param ordered  whether the molecules are returned in the order of the input
+     */
+    @TestMethod("testUnordered")
+    public ParallelIteratingSDFReader(Reader in, IChemObjectBuilder builder, boolean skip,
+                                      int threads, int capacity, boolean ordered) {
+        if (threads < 1)
+            throw new IllegalArgumentException("at least one thread is needed");
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity must be positive");
+        this.builder  = builder;
+        this.threads  = threads;
+        this.capacity = capacity;
+        this.ordered  = ordered;
+        setReader(in);
+        initIOSettings();
+        setSkip(skip);
+    }
+
+    @TestMethod("testSDF")
+    public IResourceFormat getFormat() {
+        return currentFormat;
+    }
+
+    /**
+     * Indicate whether the reader should skip over SDF records that cause
+     * problems. If true the reader will fetch the next molecule.
+     *
+     * @param skip ignore error molecules continue reading
+     */
+    @TestMethod("testBrokenSDF")
+    public void setSkip(boolean skip) {
+        this.skip = skip;
+    }
+
+    /**
+     * Returns true if another IAtomContainer can be read.
+     */
+    @TestMethod("testSDF")
+    public boolean hasNext() {
+
+        if (nextAvailableIsKnown) {
+            return hasNext;
+        }
+
+        if (pipeline == null)
+            start();
+
+        hasNext = false;
+        nextMolecule = null;
+        nextAvailableIsKnown = true;
+
+        try {
+            while (true) {
+                while (chunk.hasNext()) {
+                    Record record = chunk.next();
+                    if (record.molecule != null) {
+                        hasNext       = true;
+                        nextMolecule  = record.molecule;
+                        currentFormat = record.format;
+                        return true;
+                    } else if (!skip) {
+                        stop();
+                        return false;
+                    }
+                }
+                try {
+                    List<Record> records = pipeline.take();
+                    if (records == null)
+                        break;
+                    chunk = records.iterator();
+                } catch (ExecutionException exception) {
+                    logger.error("Error while reading next molecules: " +
+                                 exception.getMessage());
+                    logger.debug(exception);
+                    if (!skip)
+                        break;
+                }
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+
+        // reached end of file
+        stop();
+        return false;
+    }
+
+    /**
+     * Returns the next IAtomContainer.
+     */
+    @TestMethod("testSDF")
+    public IAtomContainer next() {
+        if (!nextAvailableIsKnown) {
+            hasNext();
+        }
+        nextAvailableIsKnown = false;
+        if (!hasNext) {
+            throw new NoSuchElementException();
+        }
+        return nextMolecule;
+    }
+
+    /**
+     * Stops the threads and closes the input.
+     */
+    @TestMethod("testClose")
+    public void close() throws IOException {
+        stop();
+        input.close();
+    }
+
+    public void setReader(Reader reader) {
+        stop();
+        if (reader instanceof BufferedReader) {
+            input = (BufferedReader) reader;
+        } else {
+            input = new BufferedReader(reader);
+        }
+        pipeline = null;
+        nextMolecule = null;
+        nextAvailableIsKnown = false;
+        hasNext = false;
+    }
+
+    public void setReader(InputStream reader) {
+        setReader(new InputStreamReader(reader));
+    }
+
+    private void initIOSettings() {
+        forceReadAs3DCoords = new BooleanIOSetting("ForceReadAs3DCoordinates", IOSetting.Importance.LOW,
+          "Should coordinates always be read as 3D?",
+          "false");
+        addSetting(forceReadAs3DCoords);
+    }
+
+    public void customizeJob() {
+        fireIOSettingQuestion(forceReadAs3DCoords);
+    }
+
+    /**
+     * Start the splitting thread and the workers. This is done on the first
+     * call to hasNext() so that the settings, error handler and reader mode
+     * set after construction are passed on to the record readers.
+     */
+    private void start() {
+        recordReaders = new ThreadLocal<IteratingSDFReader>() {
+            @Override protected IteratingSDFReader initialValue() {
+                return createRecordReader();
+            }
+        };
+        chunk    = Collections.<Record>emptyList().iterator();
+        pipeline = new RecordPipeline<Record>(new Splitter(input), threads, capacity, ordered,
+                                              "sdf", logger);
+    }
+
+    /**
+     * Stop the splitting thread and the workers, records not yet parsed are
+     * discarded.
+     */
+    private void stop() {
+        if (pipeline != null)
+            pipeline.stop();
+    }
+
+    private IteratingSDFReader createRecordReader() {
+        IteratingSDFReader reader = new IteratingSDFReader(new StringReader(""), builder);
+        reader.setErrorHandler(errorHandler);
+        reader.setReaderMode(mode);
+        for (IOSetting setting : getSettings()) {
+            if (reader.hasSetting(setting.getName())) {
+                try {
+                    reader.getSetting(setting.getName()).setSetting(setting.getSetting());
+                } catch (CDKException exception) {
+                    logger.warn("Could not pass on setting ", setting.getName(), ": ", exception.getMessage());
+                }
+            }
+        }
+        return reader;
+    }
+
+    /**
+     * A parsed record, the molecule is null if the record could not be read.
+     */
+    private static final class Record {
+        private final IAtomContainer  molecule;
+        private final IResourceFormat format;
+
+        private Record(IAtomContainer molecule, IResourceFormat format) {
+            this.molecule = molecule;
+            this.format   = format;
+        }
+    }
+
+    /**
+     * Parses a chunk of records.
+     */
+    private final class ChunkTask implements Callable<List<Record>> {
+
+        private final List<String> texts;
+
+        private ChunkTask(List<String> texts) {
+            this.texts = texts;
+        }
+
+        public List<Record> call() {
+            IteratingSDFReader reader  = recordReaders.get();
+            List<Record>       records = new ArrayList<Record>(texts.size());
+            for (String text : texts) {
+                reader.setReader(new StringReader(text));
+                if (reader.hasNext()) {
+                    IAtomContainer molecule = reader.next();
+                    records.add(new Record(molecule, reader.getFormat()));
+                } else {
+                    records.add(new Record(null, null));
+                }
+            }
+            return records;
+        }
+    }
+
+    /**
+     * Splits the input into records at the SDF record separators and hands
+     * chunks of records to the workers.
+     */
+    private final class Splitter implements RecordPipeline.Splitter<Record> {
+
+        private final BufferedReader input;
+
+        private Splitter(BufferedReader input) {
+            this.input = input;
+        }
+
+        public void split(RecordPipeline<Record> pipeline) throws IOException, InterruptedException {
+            List<String>  texts  = new ArrayList<String>();
+            int           size   = 0;
+            StringBuilder record = new StringBuilder(10000);
+            String        line;
+            while ((line = input.readLine()) != null) {
+                record.append(line).append(LINE_SEPARATOR);
+                if (line.trim().equals("$$$$")) {
+                    texts.add(record.toString());
+                    size += record.length();
+                    record.setLength(0);
+                    if (size >= CHUNK_SIZE) {
+                        pipeline.submit(new ChunkTask(texts));
+                        texts = new ArrayList<String>();
+                        size  = 0;
+                    }
+                }
+            }
+            // last record without a separator
+            if (record.toString().trim().length() > 0)
+                texts.add(record.toString());
+            if (!texts.isEmpty())
+                pipeline.submit(new ChunkTask(texts));
+        }
+    }
+}
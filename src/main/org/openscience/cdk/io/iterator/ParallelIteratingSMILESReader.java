@@ -0,0 +1,547 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.io.iterator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import org.openscience.cdk.CDKConstants;
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.exception.InvalidSmilesException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IChemObjectBuilder;
+import org.openscience.cdk.io.formats.IResourceFormat;
+import org.openscience.cdk.io.formats.SMILESFormat;
+import org.openscience.cdk.io.setting.BooleanIOSetting;
+import org.openscience.cdk.io.setting.IOSetting;
+import org.openscience.cdk.smiles.SmilesParser;
+import org.openscience.cdk.tools.ILoggingTool;
+import org.openscience.cdk.tools.LoggingToolFactory;
+
+/**
+ * Iterating SMILES reader which parses the lines on several threads. One
+ * thread reads the input in chunks of whole lines and a pool of worker
+ * threads parses the chunks, each worker with its own {@link SmilesParser}.
+ * The SMILES are parsed in place from the chunk, as bytes when reading from
+ * an InputStream, so that no string is made for them. Like the
+ * {@link IteratingSMILESReader} a line holds a SMILES, optionally followed by
+ * a space or tab and a title which is stored as {@link CDKConstants#TITLE}.
+ * Empty lines are skipped.
+ *
+ * <p>The molecules are returned in the order of the file. A line which can
+ * not be parsed is reported to the error handler with its line number, from
+ * the thread that iterates the reader and in the order of the file. When
+ * skip is set the reader continues with the next line, otherwise the
+ * iteration stops. The line of the molecule last returned is given by
+ * {@link #getLineNumber()}. At most <i>capacity</i> chunks are read ahead of
+ * the molecule last returned.
+ *
+ * <p>By default the molecules are typed, have their implicit hydrogens added
+ * and aromaticity perceived, as by {@link SmilesParser#parseSmiles(String)}.
+ * With the <code>ParseGraphOnly</code> setting only the connection table is
+ * parsed, see {@link SmilesParser#parseGraph(CharSequence, IAtomContainer)}.
+ *
+ * <p>Example use:
+ * <pre>
+ * ParallelIteratingSMILESReader reader = new ParallelIteratingSMILESReader(
+ *   new FileInputStream(smiFile), DefaultChemObjectBuilder.getInstance(), 8
+ * );
+ * reader.setSkip(true);
+ * reader.setErrorHandler(handler);
+ * while (reader.hasNext()) {
+ *   IAtomContainer molecule = reader.next();
+ * }
+ * reader.close();
+ * </pre>
+ *
+ * @cdk.module smiles
+ * @cdk.githash
+ *
+ * @see IteratingSMILESReader
+ *
+ * @cdk.keyword    file format, SMILES
+ * @cdk.iooptions
+ */
+@TestClass("org.openscience.cdk.io.iterator.ParallelIteratingSMILESReaderTest")
+public class ParallelIteratingSMILESReader extends DefaultIteratingChemObjectReader<IAtomContainer> {
+
+    private static ILoggingTool logger =
+        LoggingToolFactory.createLoggingTool(ParallelIteratingSMILESReader.class);
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** Number of bytes or characters after which a chunk of lines is handed to a worker. */
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    // one of the two is set
+    private Reader             reader;
+    private InputStream        stream;
+    private IChemObjectBuilder builder;
+    private final int          threads;
+    private final int          capacity;
+
+    // if an error is encountered the reader will skip over the error
+    private boolean skip = false;
+
+    private BooleanIOSetting graphOnly;
+
+    // the running pipeline, created on the first call to hasNext()
+    private RecordPipeline<Record>    pipeline;
+    private ThreadLocal<SmilesParser> parsers;
+    private boolean                   parseGraphOnly;
+    private Iterator<Record>          chunk;
+
+    private boolean        nextAvailableIsKnown;
+    private boolean        hasNext;
+    private IAtomContainer nextMolecule;
+    private int            nextLine;
+    private int            lineNumber;
+
+    /**
+     * Constructs a reader which parses the lines on the given number of
+     * threads.
+     *
+     * @param in      the Reader to read from
+     * @param builder the builder
+     * @param threads number of parsing threads
+     */
+    @TestMethod("testSMILESFile")
+    public ParallelIteratingSMILESReader(Reader in, IChemObjectBuilder builder, int threads) {
+        this(in, builder, false, threads, 4 * threads);
+    }
+
+    /**
+     * Constructs a reader which parses the lines as US-ASCII bytes, with a
+     * UTF-8 title, on the given number of threads.
+     *
+     * @param in      the InputStream to read from
+     * @param builder the builder
+     * @param threads number of parsing threads
+     */
+    @TestMethod("testInputStream")
+    public ParallelIteratingSMILESReader(InputStream in, IChemObjectBuilder builder, int threads) {
+        this(builder, false, threads, 4 * threads);
+        setReader(in);
+    }
+
+    /**
+     * Constructs a reader which parses the lines on the given number of
+     * threads.
+     *
+     * @param in       the Reader to read from
+     * @param builder  the builder
+     * @param skip     whether to skip lines which can not be parsed
+     * @param threads  number of parsing threads
+     * @param capacity maximum number of chunks read ahead of the last molecule returned
+     */
+    @TestMethod("testCapacity")
+    public ParallelIteratingSMILESReader(Reader in, IChemObjectBuilder builder, boolean skip,
+                                         int threads, int capacity) {
+        this(builder, skip, threads, capacity);
+        setReader(in);
+    }
+
+    private ParallelIteratingSMILESReader(IChemObjectBuilder builder, boolean skip, int threads, int capacity) {
+        if (threads < 1)
+            throw new IllegalArgumentException("at least one thread is needed");
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity must be positive");
+        this.builder  = builder;
+        this.threads  = threads;
+        this.capacity = capacity;
+        initIOSettings();
+        setSkip(skip);
+    }
+
+    /**
+     * Get the format for this reader.
+     *
+     * @return An instance of {@link SMILESFormat}
+     */
+    @TestMethod("testSMILESFile")
+    public IResourceFormat getFormat() {
+        return SMILESFormat.getInstance();
+    }
+
+    /**
+     * Indicate whether the reader should skip over lines that can not be
+     * parsed. If true the reader will fetch the next molecule.
+     *
+     * @param skip ignore error lines continue reading
+     */
+    @TestMethod("testErrors")
+    public void setSkip(boolean skip) {
+        this.skip = skip;
+    }
+
+    /**
+     * The line number, counted from 1, of the molecule last returned by
+     * {@link #next()}.
+     *
+     * @return the line number, 0 before the first molecule
+     */
+    @TestMethod("testErrors")
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Returns true if another IAtomContainer can be read.
+     */
+    @TestMethod("testSMILESFile")
+    public boolean hasNext() {
+
+        if (nextAvailableIsKnown) {
+            return hasNext;
+        }
+
+        if (pipeline == null)
+            start();
+
+        hasNext = false;
+        nextMolecule = null;
+        nextAvailableIsKnown = true;
+
+        try {
+            while (true) {
+                while (chunk.hasNext()) {
+                    Record record = chunk.next();
+                    if (record.molecule != null) {
+                        hasNext      = true;
+                        nextMolecule = record.molecule;
+                        nextLine     = record.line;
+                        return true;
+                    }
+                    try {
+                        handleError(record.exception.getMessage(), record.line, 0, 0, record.exception);
+                    } catch (CDKException exception) {
+                        stop();
+                        return false;
+                    }
+                    if (!skip) {
+                        stop();
+                        return false;
+                    }
+                }
+                try {
+                    List<Record> records = pipeline.take();
+                    if (records == null)
+                        break;
+                    chunk = records.iterator();
+                } catch (ExecutionException exception) {
+                    logger.error("Error while reading next molecules: ",
+                                 exception.getMessage());
+                    logger.debug(exception);
+                    if (!skip)
+                        break;
+                }
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+
+        // reached end of file
+        stop();
+        return false;
+    }
+
+    /**
+     * Returns the next IAtomContainer.
+     */
+    @TestMethod("testSMILESFile")
+    public IAtomContainer next() {
+        if (!nextAvailableIsKnown) {
+            hasNext();
+        }
+        nextAvailableIsKnown = false;
+        if (!hasNext) {
+            throw new NoSuchElementException();
+        }
+        lineNumber = nextLine;
+        return nextMolecule;
+    }
+
+    /**
+     * Stops the threads and closes the input.
+     */
+    @TestMethod("testClose")
+    public void close() throws IOException {
+        stop();
+        if (reader != null)
+            reader.close();
+        if (stream != null)
+            stream.close();
+    }
+
+    public void setReader(Reader reader) {
+        reset();
+        this.reader = reader;
+        this.stream = null;
+    }
+
+    public void setReader(InputStream reader) {
+        reset();
+        this.reader = null;
+        this.stream = reader;
+    }
+
+    private void reset() {
+        stop();
+        pipeline = null;
+        nextMolecule = null;
+        nextAvailableIsKnown = false;
+        hasNext = false;
+        lineNumber = 0;
+    }
+
+    private void initIOSettings() {
+        graphOnly = new BooleanIOSetting("ParseGraphOnly", IOSetting.Importance.LOW,
+          "Should only the connection table be parsed, without atom typing, hydrogens and aromaticity?",
+          "false");
+        addSetting(graphOnly);
+    }
+
+    public void customizeJob() {
+        fireIOSettingQuestion(graphOnly);
+    }
+
+    /**
+     * Start the splitting thread and the workers. This is done on the first
+     * call to hasNext() so that the settings set after construction are used.
+     */
+    private void start() {
+        parseGraphOnly = graphOnly.isSet();
+        parsers        = new ThreadLocal<SmilesParser>() {
+            @Override protected SmilesParser initialValue() {
+                return new SmilesParser(builder);
+            }
+        };
+        chunk    = Collections.<Record>emptyList().iterator();
+        pipeline = new RecordPipeline<Record>(new Splitter(reader, stream), threads, capacity, true,
+                                              "smiles", logger);
+    }
+
+    /**
+     * Stop the splitting thread and the workers, lines not yet parsed are
+     * discarded.
+     */
+    private void stop() {
+        if (pipeline != null)
+            pipeline.stop();
+    }
+
+    /**
+     * A parsed line, the molecule is null if the line could not be parsed.
+     */
+    private static final class Record {
+        private final int                    line;
+        private final IAtomContainer         molecule;
+        private final InvalidSmilesException exception;
+
+        private Record(int line, IAtomContainer molecule, InvalidSmilesException exception) {
+            this.line      = line;
+            this.molecule  = molecule;
+            this.exception = exception;
+        }
+    }
+
+    /**
+     * Parses the lines of a chunk of bytes or characters, only one of the
+     * two arrays is set.
+     */
+    private final class ChunkTask implements Callable<List<Record>> {
+
+        private final byte[] bytes;
+        private final char[] chars;
+        private final int    length;
+        private final int    firstLine;
+
+        private ChunkTask(byte[] bytes, char[] chars, int length, int firstLine) {
+            this.bytes     = bytes;
+            this.chars     = chars;
+            this.length    = length;
+            this.firstLine = firstLine;
+        }
+
+        public List<Record> call() {
+            SmilesParser parser  = parsers.get();
+            List<Record> records = new ArrayList<Record>();
+            int          line    = firstLine;
+            for (int begin = 0; begin < length; line++) {
+                int end = begin;
+                while (end < length && charAt(end) != '\n')
+                    end++;
+                int next = end + 1;
+
+                // trim and split off the title at the first space or tab
+                while (begin < end && charAt(begin) <= ' ')
+                    begin++;
+                while (end > begin && charAt(end - 1) <= ' ')
+                    end--;
+                int split = begin;
+                while (split < end && charAt(split) != ' ' && charAt(split) != '\t')
+                    split++;
+
+                if (begin < end)
+                    records.add(parse(parser, line, begin, split, end));
+                begin = next;
+            }
+            return records;
+        }
+
+        private Record parse(SmilesParser parser, int line, int begin, int split, int end) {
+            IAtomContainer molecule = builder.newInstance(IAtomContainer.class);
+            try {
+                if (bytes != null)
+                    parser.parseGraph(ByteBuffer.wrap(bytes, begin, split - begin), molecule);
+                else
+                    parser.parseGraph(CharBuffer.wrap(chars, begin, split - begin), molecule);
+            } catch (InvalidSmilesException exception) {
+                return new Record(line, null, exception);
+            }
+            if (!parseGraphOnly) {
+                parser.perceiveAtomTypes(molecule);
+                parser.addImplicitHydrogens(molecule);
+                parser.perceiveAromaticity(molecule);
+            }
+            if (split < end) {
+                int title = split;
+                while (charAt(title) <= ' ')
+                    title++;
+                molecule.setProperty(CDKConstants.TITLE,
+                                     bytes != null ? new String(bytes, title, end - title, UTF8)
+                                                   : new String(chars, title, end - title));
+            }
+            return new Record(line, molecule, null);
+        }
+
+        private char charAt(int index) {
+            return bytes != null ? (char) (bytes[index] & 0xff) : chars[index];
+        }
+    }
+
+    /**
+     * Reads the input in chunks which end at a line end and hands them to the
+     * workers.
+     */
+    private final class Splitter implements RecordPipeline.Splitter<Record> {
+
+        private final Reader           reader;
+        private final InputStream      stream;
+        private RecordPipeline<Record> pipeline;
+        private int                    line = 1;
+
+        private Splitter(Reader reader, InputStream stream) {
+            this.reader = reader;
+            this.stream = stream;
+        }
+
+        public void split(RecordPipeline<Record> pipeline) throws IOException, InterruptedException {
+            this.pipeline = pipeline;
+            if (stream != null)
+                splitBytes();
+            else
+                splitChars();
+        }
+
+        /**
+         * Read bytes until the chunk is full, and hand on the lines up to the
+         * last line end. The rest starts the next chunk.
+         */
+        private void splitBytes() throws IOException, InterruptedException {
+            byte[] buffer = new byte[CHUNK_SIZE];
+            int    filled = 0, read;
+            while ((read = stream.read(buffer, filled, buffer.length - filled)) != -1) {
+                filled += read;
+                if (filled < buffer.length)
+                    continue;
+                int end = filled;
+                while (end > 0 && buffer[end - 1] != '\n')
+                    end--;
+                if (end == 0) {
+                    // a line longer than the chunk
+                    buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+                    continue;
+                }
+                byte[] rest = new byte[Math.max(CHUNK_SIZE, 2 * (filled - end))];
+                System.arraycopy(buffer, end, rest, 0, filled - end);
+                submit(buffer, null, end);
+                buffer = rest;
+                filled = filled - end;
+            }
+            if (filled > 0)
+                submit(buffer, null, filled);
+        }
+
+        /**
+         * Like {@link #splitBytes()} for characters.
+         */
+        private void splitChars() throws IOException, InterruptedException {
+            char[] buffer = new char[CHUNK_SIZE];
+            int    filled = 0, read;
+            while ((read = reader.read(buffer, filled, buffer.length - filled)) != -1) {
+                filled += read;
+                if (filled < buffer.length)
+                    continue;
+                int end = filled;
+                while (end > 0 && buffer[end - 1] != '\n')
+                    end--;
+                if (end == 0) {
+                    // a line longer than the chunk
+                    buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+                    continue;
+                }
+                char[] rest = new char[Math.max(CHUNK_SIZE, 2 * (filled - end))];
+                System.arraycopy(buffer, end, rest, 0, filled - end);
+                submit(null, buffer, end);
+                buffer = rest;
+                filled = filled - end;
+            }
+            if (filled > 0)
+                submit(null, buffer, filled);
+        }
+
+        private void submit(byte[] bytes, char[] chars, int length) throws InterruptedException {
+            ChunkTask task = new ChunkTask(bytes, chars, length, line);
+            for (int i = 0; i < length; i++) {
+                if (bytes != null ? bytes[i] == '\n' : chars[i] == '\n')
+                    line++;
+            }
+            pipeline.submit(task);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.io.iterator;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.tools.ILoggingTool;
+import org.openscience.cdk.tools.ParallelLoop;
+
+/**
+ * The pipeline of the parallel iterating readers. One thread splits the
+ * input into chunks of records and a pool of worker threads parses the
+ * chunks. The thread which iterates the reader takes the parsed chunks in the
+ * order of the input, or when the order is not needed in the order in which
+ * they are parsed. At most <i>capacity</i> chunks are split off ahead of the
+ * chunk last taken.
+ *
+ * @param <R> the parsed record
+ *
+ * @cdk.module io
+ * @cdk.githash
+ *
+ * @see ParallelIteratingSDFReader
+ * @see ParallelIteratingSMILESReader
+ */
+@TestClass("org.openscience.cdk.io.iterator.RecordPipelineTest")
+final class RecordPipeline<R> {
+
+    /**
+     * Splits the input into chunks and submits a task to parse each chunk.
+     */
+    interface Splitter<R> {
+        void split(RecordPipeline<R> pipeline) throws IOException, InterruptedException;
+    }
+
+    /** Marks the end of the chunks in the result queue. */
+    private final Future<List<R>> end = new FutureTask<List<R>>(new Callable<List<R>>() {
+        public List<R> call() {
+            return null;
+        }
+    });
+
+    private final BlockingQueue<Future<List<R>>> results = new LinkedBlockingQueue<Future<List<R>>>();
+    private final Semaphore                      available;
+    private final boolean                        ordered;
+    private final ExecutorService                workers;
+    private final Thread                         splitter;
+
+    // number of chunks submitted, set by the splitter when it is done
+    private volatile int chunkCount;
+    private int          submitted;
+
+    private boolean endSeen;
+    private int     consumed;
+
+    /**
+     * Starts the splitting thread and the workers.
+     *
+     * @param split    splits the input into chunks
+     * @param threads  number of parsing threads
+     * @param capacity maximum number of chunks split off ahead of the chunk last taken
+     * @param ordered  whether the chunks are taken in the order of the input
+     * @param name     prefix of the thread names
+     * @param logger   logs the errors reading the input
+     */
+    RecordPipeline(final Splitter<R> split, int threads, int capacity, boolean ordered,
+                   final String name, final ILoggingTool logger) {
+        this.available = new Semaphore(capacity);
+        this.ordered   = ordered;
+        this.workers   = ParallelLoop.newPool(threads, name + "-parser");
+        this.splitter  = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    split.split(RecordPipeline.this);
+                } catch (IOException exception) {
+                    logger.error("Error while reading next molecule: ",
+                                 exception.getMessage());
+                    logger.debug(exception);
+                } catch (InterruptedException exception) {
+                    // the reader was stopped
+                } catch (RejectedExecutionException exception) {
+                    // the reader was stopped
+                } finally {
+                    chunkCount = submitted;
+                    results.add(end);
+                }
+            }
+        }, name + "-splitter");
+        splitter.setDaemon(true);
+        splitter.start();
+    }
+
+    /**
+     * Hands a chunk to the workers, called by the splitter. Waits while
+     * <i>capacity</i> chunks are ahead of the chunk last taken.
+     *
+     * @param parse parses the chunk
+     * @throws InterruptedException the pipeline was stopped
+     */
+    @TestMethod("testOrdered")
+    void submit(Callable<List<R>> parse) throws InterruptedException {
+        available.acquire();
+        FutureTask<List<R>> task = new FutureTask<List<R>>(parse) {
+            @Override protected void done() {
+                if (!ordered)
+                    results.add(this);
+            }
+        };
+        if (ordered)
+            results.add(task);
+        workers.execute(task);
+        submitted++;
+    }
+
+    /**
+     * Takes the next parsed chunk, waiting for it to be parsed.
+     *
+     * @return the records of the chunk, null when there are no more chunks
+     * @throws ExecutionException   the chunk could not be parsed
+     * @throws InterruptedException the thread was interrupted while waiting
+     */
+    @TestMethod("testOrdered,testUnordered")
+    List<R> take() throws ExecutionException, InterruptedException {
+        while (true) {
+            if (endSeen && consumed == chunkCount)
+                return null;
+            Future<List<R>> result = results.take();
+            if (result == end) {
+                endSeen = true;
+                continue;
+            }
+            consumed++;
+            available.release();
+            return result.get();
+        }
+    }
+
+    /**
+     * Stops the splitting thread and the workers, chunks not yet parsed are
+     * discarded.
+     */
+    @TestMethod("testStop")
+    void stop() {
+        splitter.interrupt();
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,412 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.io.random;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IChemFile;
+import org.openscience.cdk.interfaces.IChemModel;
+import org.openscience.cdk.interfaces.IChemObject;
+import org.openscience.cdk.interfaces.IChemObjectBuilder;
+import org.openscience.cdk.interfaces.IChemSequence;
+import org.openscience.cdk.io.ISimpleChemObjectReader;
+import org.openscience.cdk.io.MDLV2000Reader;
+import org.openscience.cdk.tools.ILoggingTool;
+import org.openscience.cdk.tools.LoggingToolFactory;
+import org.openscience.cdk.tools.ParallelLoop;
+
+/**
+ * Random access to the records of an SD file through memory maps. The SD
+ * file is mapped into memory and the record offsets are kept in a binary
+ * index file next to it, which is also mapped. When the index file is
+ * missing or does not match the SD file it is built in one pass over the
+ * file, split over several threads.
+ *
+ * <p>Unlike the {@link RandomAccessSDFReader}, {@link #readRecord(int)}
+ * takes no lock and may be called from several threads at once, each call
+ * parses the record with a new {@link MDLV2000Reader}. The list iterator
+ * methods keep a current record and should be used from one thread only.
+ *
+ * <p>Records are the text up to and including each line which is just
+ * <code>$$$$</code>, as for the {@link RandomAccessSDFReader}.
+ *
+ * <p>The index file holds a 32 byte header (magic number, version, the
+ * length and modification time of the SD file and the number of records)
+ * followed by the start offsets of the records and the end offset of the
+ * last record, as big endian longs.
+ *
+ * @cdk.module io
+ * @cdk.githash
+ * @see RandomAccessSDFReader
+ */
+@TestClass("org.openscience.cdk.io.random.MappedRandomAccessSDFReaderTest")
+public class MappedRandomAccessSDFReader extends DefaultRandomAccessChemObjectReader implements Closeable {
+
+    private static final ILoggingTool logger =
+        LoggingToolFactory.createLoggingTool(MappedRandomAccessSDFReader.class);
+
+    private static final int  INDEX_MAGIC   = 0x43444b49; // "CDKI"
+    private static final int  INDEX_VERSION = 1;
+    private static final int  HEADER_SIZE   = 32;
+    private static final int  SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK  = (1L << SEGMENT_SHIFT) - 1;
+
+    private final IChemObjectBuilder  builder;
+    private final String              filename;
+    private final FileInputStream     sdfInput;
+    private final long                length;
+    private final MappedByteBuffer[]  segments;
+    private final LongBuffer          offsets;
+    private final int                 records;
+    private final boolean             indexCreated;
+
+    private volatile int currentRecord = 0;
+
+    /**
+     * Opens an SD file, the index is kept in the file <i>file</i>.cdkidx.
+     *
+     * @param file    the SD file
+     * @param builder a chem object builder
+     * @throws IOException if the file could not be read or mapped
+     */
+    @TestMethod("testReadRecord")
+    public MappedRandomAccessSDFReader(File file, IChemObjectBuilder builder) throws IOException {
+        this(file, getIndexFile(file), builder);
+    }
+
+    /**
+     * Opens an SD file with the index kept in the given file.
+     *
+     * @param file      the SD file
+     * @param indexFile the index file
+     * @param builder   a chem object builder
+     * @throws IOException if the file could not be read or mapped
+     */
+    @TestMethod("testReuseIndex")
+    public MappedRandomAccessSDFReader(File file, File indexFile, IChemObjectBuilder builder) throws IOException {
+        this.builder   = builder;
+        this.filename  = file.getAbsolutePath();
+        this.sdfInput  = new FileInputStream(file);
+        this.length    = file.length();
+
+        FileChannel channel = sdfInput.getChannel();
+        segments = new MappedByteBuffer[(int) ((length + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+        for (int i = 0; i < segments.length; i++) {
+            long start = (long) i << SEGMENT_SHIFT;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(length - start, SEGMENT_MASK + 1));
+        }
+
+        LongBuffer index = loadIndex(indexFile, length, file.lastModified());
+        if (index == null) {
+            long now = System.currentTimeMillis();
+            long[] ends = buildIndex(Runtime.getRuntime().availableProcessors());
+            logger.info("Index created in " + (System.currentTimeMillis() - now) + " ms.");
+            saveIndex(indexFile, ends, length, file.lastModified());
+            index = loadIndex(indexFile, length, file.lastModified());
+            if (index == null) {
+                logger.warn("Could not use the index file ", indexFile, ", the index is kept in memory");
+                index = LongBuffer.wrap(ends);
+            }
+            indexCreated = true;
+        } else {
+            indexCreated = false;
+        }
+        this.offsets = index;
+        this.records = index.capacity() - 1;
+    }
+
+    /**
+     * The default index file of an SD file, the file name with the
+     * extension <i>.cdkidx</i> appended.
+     *
+     * @param file the SD file
+     * @return the index file
+     */
+    @TestMethod("testReuseIndex")
+    public static File getIndexFile(File file) {
+        return new File(file.getPath() + ".cdkidx");
+    }
+
+    /**
+     * Whether the index was built when this reader was opened, rather than
+     * loaded from the index file.
+     *
+     * @return the index was built
+     */
+    @TestMethod("testReuseIndex")
+    public boolean isIndexCreated() {
+        return indexCreated;
+    }
+
+    /**
+     * Returns the molecule at the given record, record numbers are zero
+     * based. This method may be called from several threads at once.
+     *
+     * @param record the record number
+     * @return the molecule
+     * @throws CDKException if there is no such record or it could not be read
+     */
+    @TestMethod("testReadRecord,testConcurrentReads")
+    public IChemObject readRecord(int record) throws CDKException {
+        String content = readContent(record);
+        currentRecord = record;
+        ISimpleChemObjectReader reader = new MDLV2000Reader(new StringReader(content), mode);
+        IChemFile chemFile = reader.read(builder.newInstance(IChemFile.class));
+        for (IChemSequence sequence : chemFile.chemSequences()) {
+            for (IChemModel model : sequence.chemModels()) {
+                Iterator<IAtomContainer> containers = model.getMoleculeSet().atomContainers().iterator();
+                if (containers.hasNext())
+                    return containers.next();
+            }
+        }
+        return chemFile;
+    }
+
+    /**
+     * Reads the text of a record.
+     *
+     * @param record the record number
+     * @return the text of the record
+     * @throws CDKException if there is no such record
+     */
+    @TestMethod("testReadRecord")
+    public String readContent(int record) throws CDKException {
+        if (record < 0 || record >= records)
+            throw new CDKException("No such record " + record);
+        long   start = offsets.get(record);
+        byte[] bytes = new byte[(int) (offsets.get(record + 1) - start)];
+        int    done  = 0;
+        while (done < bytes.length) {
+            long       position = start + done;
+            ByteBuffer segment  = segments[(int) (position >>> SEGMENT_SHIFT)].duplicate();
+            segment.position((int) (position & SEGMENT_MASK));
+            int n = Math.min(bytes.length - done, segment.remaining());
+            segment.get(bytes, done, n);
+            done += n;
+        }
+        return new String(bytes);
+    }
+
+    private byte byteAt(long position) {
+        return segments[(int) (position >>> SEGMENT_SHIFT)].get((int) (position & SEGMENT_MASK));
+    }
+
+    /**
+     * The end offsets of the records, the part of the file from
+     * <i>from</i> (inclusive) to <i>to</i> (exclusive) is searched for
+     * lines which are just <code>$$$$</code>.
+     */
+    private long[] recordEnds(long from, long to) {
+        long[] ends  = new long[16];
+        int    count = 0;
+        for (long p = from; p < to; p++) {
+            if (byteAt(p) != '$' || (p > 0 && byteAt(p - 1) != '\n' && byteAt(p - 1) != '\r'))
+                continue;
+            if (p + 4 > length || byteAt(p + 1) != '$' || byteAt(p + 2) != '$' || byteAt(p + 3) != '$')
+                continue;
+            long end = p + 4;
+            if (end < length && byteAt(end) == '\r')
+                end++;
+            if (end < length && byteAt(end) == '\n')
+                end++;
+            else if (end < length && byteAt(end - 1) != '\r')
+                continue; // not the whole line
+            if (count == ends.length) {
+                long[] tmp = new long[2 * count];
+                System.arraycopy(ends, 0, tmp, 0, count);
+                ends = tmp;
+            }
+            ends[count++] = end;
+        }
+        long[] result = new long[count];
+        System.arraycopy(ends, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * Builds the index by searching parts of the file on several threads,
+     * the result holds the start offset of the first record followed by the
+     * end offset of each record.
+     */
+    private long[] buildIndex(int threads) {
+        final int      parts = (int) Math.max(1, Math.min(threads, length >>> 20));
+        final long[][] found = new long[parts][];
+        ParallelLoop.forEach(parts, parts, "sdf-index", new ParallelLoop.Body<RuntimeException>() {
+            public void run(int i) {
+                found[i] = recordEnds(length * i / parts, length * (i + 1) / parts);
+            }
+        });
+        int count = 0;
+        for (long[] ends : found)
+            count += ends.length;
+        long[] index = new long[count + 1];
+        int    i     = 1;
+        for (long[] ends : found) {
+            System.arraycopy(ends, 0, index, i, ends.length);
+            i += ends.length;
+        }
+        return index;
+    }
+
+    private static void saveIndex(File file, long[] index, long length, long modified) {
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+            try {
+                out.writeInt(INDEX_MAGIC);
+                out.writeInt(INDEX_VERSION);
+                out.writeLong(length);
+                out.writeLong(modified);
+                out.writeLong(index.length - 1);
+                for (long offset : index)
+                    out.writeLong(offset);
+            } finally {
+                out.close();
+            }
+        } catch (IOException exception) {
+            logger.warn("Could not write index file ", file, ": ", exception.getMessage());
+            file.delete();
+        }
+    }
+
+    /**
+     * Map the index file, null if there is no index file or it does not
+     * match the SD file.
+     */
+    private static LongBuffer loadIndex(File file, long length, long modified) {
+        if (!file.exists())
+            return null;
+        try {
+            FileInputStream in = new FileInputStream(file);
+            try {
+                FileChannel channel = in.getChannel();
+                if (channel.size() < HEADER_SIZE + 8 || channel.size() > Integer.MAX_VALUE)
+                    return null;
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (buffer.getInt(0) != INDEX_MAGIC || buffer.getInt(4) != INDEX_VERSION
+                    || buffer.getLong(8) != length || buffer.getLong(16) != modified) {
+                    logger.info("Index file ", file, " does not match, creating new index.");
+                    return null;
+                }
+                long count = buffer.getLong(24);
+                if (HEADER_SIZE + 8 * (count + 1) != channel.size())
+                    return null;
+                buffer.position(HEADER_SIZE);
+                return buffer.slice().asLongBuffer();
+            } finally {
+                // the mapping stays valid after the channel is closed
+                in.close();
+            }
+        } catch (IOException exception) {
+            logger.warn("Could not read index file ", file, ": ", exception.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Closes the SD file. The memory maps are released when the reader is
+     * garbage collected.
+     */
+    @TestMethod("testReadRecord")
+    public void close() throws IOException {
+        sdfInput.close();
+    }
+
+    public int size() {
+        return records;
+    }
+
+    public IChemObject first() {
+        return readOrNull(0);
+    }
+
+    public IChemObject last() {
+        return readOrNull(records - 1);
+    }
+
+    public boolean hasNext() {
+        return currentRecord < (records - 1);
+    }
+
+    public boolean hasPrevious() {
+        return currentRecord > 0;
+    }
+
+    public IChemObject next() {
+        return readOrNull(currentRecord + 1);
+    }
+
+    public IChemObject previous() {
+        return readOrNull(currentRecord - 1);
+    }
+
+    public int nextIndex() {
+        return currentRecord + 1;
+    }
+
+    public int previousIndex() {
+        return currentRecord - 1;
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException("Cannot remove entries with " +
+            "the MappedRandomAccessSDFReader");
+    }
+
+    public void set(IChemObject object) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void add(IChemObject object) {
+        throw new UnsupportedOperationException();
+    }
+
+    private IChemObject readOrNull(int record) {
+        try {
+            return readRecord(record);
+        } catch (CDKException exception) {
+            logger.error(exception);
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return filename;
+    }
+}
@@ -62,6 +62,14 @@ import java.util.Map;
  *  the CDK model in this way the {@link RGraph} remains independent and may be used
  *  in other contexts.
  *
+ *  <p>The methods which only need to know whether, or how, the atoms of two
+ *  structures map ({@link #isIsomorph(IAtomContainer, IAtomContainer)},
+ *  {@link #isSubgraph(IAtomContainer, IAtomContainer)},
+ *  {@link #getIsomorphAtomsMap(IAtomContainer, IAtomContainer)} and
+ *  {@link #getSubgraphAtomsMap(IAtomContainer, IAtomContainer)}) use the
+ *  atom based {@link VentoFoggia} matcher and stop at the first mapping.
+ *  The methods returning bond mappings, or all the mappings, use the RGraph.
+ *
  *  <p>This algorithm derives from the algorithm described in
  *  {@cdk.cite HAN90} and modified in the thesis of T. Hanser {@cdk.cite HAN93}.
  *  
@@ -161,7 +169,8 @@ public class UniversalIsomorphismTester {
               return g1.getAtom(0).getSymbol().equals(atomSymbol);
 		  }
       }
-	  return (getIsomorphMap(g1, g2) != null);
+	  if (!VentoFoggia.supports(g2)) return (getIsomorphMap(g1, g2) != null);
+	  return atomMatcher(g2, true).matches(g1);
   }
 
 
@@ -207,7 +216,9 @@ public class UniversalIsomorphismTester {
 	  
       List<RMap> list = checkSingleAtomCases(g1, g2);
       if (list == null) {
-          return makeAtomsMapOfBondsMap(getIsomorphMap(g1, g2), g1, g2);
+          if (!VentoFoggia.supports(g2))
+              return makeAtomsMapOfBondsMap(getIsomorphMap(g1, g2), g1, g2);
+          return atomsMapOf(atomMatcher(g2, true).match(g1));
       } else if (list.isEmpty()) {
           return null;
       } else {
@@ -315,7 +326,9 @@ public class UniversalIsomorphismTester {
       throws CDKException {
       List<RMap> list = checkSingleAtomCases(g1, g2);
       if (list == null) {
-          return makeAtomsMapOfBondsMap(getSubgraphMap(g1, g2), g1, g2);
+          if (!VentoFoggia.supports(g2))
+              return makeAtomsMapOfBondsMap(getSubgraphMap(g1, g2), g1, g2);
+          return atomsMapOf(atomMatcher(g2, false).match(g1));
       } else if (list.isEmpty()) {
           return null;
       } else {
@@ -355,7 +368,39 @@ public class UniversalIsomorphismTester {
           return false;
       }
       if (!testSubgraphHeuristics(g1, g2)) return false;
-	  return (getSubgraphMap(g1, g2) != null);
+	  if (!VentoFoggia.supports(g2)) return (getSubgraphMap(g1, g2) != null);
+	  return atomMatcher(g2, false).matches(g1);
+  }
+
+  /**
+   * Creates the atom based matcher used for the queries which only need
+   * to know whether, or how, the atoms of g2 map to those of g1.
+   *
+   * @param  g2        the query structure
+   * @param  identical whether the whole of g1 must be matched
+   * @return           matcher with the timeout of this tester
+   */
+  private VentoFoggia atomMatcher(IAtomContainer g2, boolean identical) {
+      VentoFoggia vf = identical ? VentoFoggia.findIdentical(g2)
+                                 : VentoFoggia.findSubstructure(g2);
+      vf.setTimeout(timeout);
+      return vf;
+  }
+
+  /**
+   * Converts an atom mapping from the {@link VentoFoggia} matcher to a list
+   * of {@link RMap}s, RMap.id1 is the index of the atom in g1 and
+   * RMap.id2 the index of the atom in g2.
+   *
+   * @param  mapping the mapping, g2 atom index to g1 atom index, may be null
+   * @return         the atom mapping, null if mapping was null
+   */
+  private static List<RMap> atomsMapOf(int[] mapping) {
+      if (mapping == null) return null;
+      List<RMap> result = new ArrayList<RMap>(mapping.length);
+      for (int i = 0; i < mapping.length; i++)
+          result.add(new RMap(mapping[i], i));
+      return result;
   }
 
 
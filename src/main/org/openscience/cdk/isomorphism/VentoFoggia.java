@@ -0,0 +1,547 @@
+/*
+ * Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.isomorphism;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.openscience.cdk.CDKConstants;
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.graph.GraphUtil;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.isomorphism.matchers.IQueryAtom;
+import org.openscience.cdk.isomorphism.matchers.IQueryBond;
+
+/**
+ * A substructure (and structure identity) matcher in the spirit of the VF2
+ * algorithm of Cordella, Foggia, Sansone and Vento. Query atoms are mapped one
+ * at a time, in an order where each atom (bar the first of each component) is
+ * adjacent to an atom already mapped, the candidates for the next query atom
+ * are therefore only the neighbours of an already mapped target atom. The
+ * search runs on adjacency lists ({@link GraphUtil#toAdjList(IAtomContainer)})
+ * and uses no compatibility graph.
+ *
+ * The mappings are generated lazily, each mapping is an <i>int[]</i> which
+ * gives for each query atom index the index of the target atom it maps to.
+ * Only as much of the search space as is needed for the mappings consumed is
+ * explored, checking whether a query is present stops at the first mapping.
+ *
+ * <blockquote><pre>
+ * VentoFoggia vf = VentoFoggia.findSubstructure(query);
+ *
+ * // is the query present
+ * if (vf.matches(target)) { ... }
+ *
+ * // iterate over the mappings, query atom 'i' maps to target atom 'p[i]'
+ * for (int[] p : vf.matchAll(target)) { ... }
+ *
+ * // mappings which cover different target atoms
+ * for (int[] p : vf.uniqueMatches(target)) { ... }
+ *
+ * // count the mappings without creating them
+ * int n = vf.countMatches(target);
+ * </pre></blockquote>
+ *
+ * The query may be an {@link org.openscience.cdk.isomorphism.matchers.IQueryAtomContainer},
+ * in which case the {@link IQueryAtom}s and {@link IQueryBond}s decide what
+ * they match. Otherwise atoms match when they have the same symbol and bonds
+ * when they have the same order and aromaticity, or are both aromatic, as in
+ * the {@link UniversalIsomorphismTester}. A query without atoms has no
+ * mappings.
+ *
+ * @cdk.module standard
+ * @cdk.githash
+ * @cdk.keyword substructure search
+ * @cdk.keyword isomorphism
+ * @see UniversalIsomorphismTester
+ */
+@TestClass("org.openscience.cdk.isomorphism.VentoFoggiaTest")
+public final class VentoFoggia {
+
+    /* the query and its adjacency list, with the bonds aligned */
+    private final IAtomContainer query;
+    private final int[][]        qGraph;
+    private final IBond[][]      qBonds;
+
+    /* order in which the query atoms are mapped and for each the query atom
+       (mapped earlier) whose image's neighbours provide the candidates */
+    private final int[]          order, parent;
+
+    /* whether the whole target must be matched */
+    private final boolean        identical;
+
+    /* time in milliseconds the search may run, -1 for no limit */
+    private long                 timeout = -1;
+
+    private VentoFoggia(IAtomContainer query, boolean identical) {
+        this.query     = query;
+        this.identical = identical;
+        this.qGraph    = GraphUtil.toAdjList(query);
+        this.qBonds    = bondsOf(query, qGraph);
+        this.order     = new int[qGraph.length];
+        this.parent    = new int[qGraph.length];
+        matchingOrder(qGraph, order, parent);
+    }
+
+    /**
+     * Create a matcher which finds the query as a substructure of a target.
+     *
+     * @param query the query structure, may be a query atom container
+     * @return a substructure matcher
+     */
+    @TestMethod("benzeneInNaphthalene,lazyIteration,uniqueMatches")
+    public static VentoFoggia findSubstructure(IAtomContainer query) {
+        return new VentoFoggia(query, false);
+    }
+
+    /**
+     * Create a matcher which finds targets which are identical (isomorphic) to
+     * the query.
+     *
+     * @param query the query structure, may be a query atom container
+     * @return an identity matcher
+     */
+    @TestMethod("identical,cyclopropaneIsobutane")
+    public static VentoFoggia findIdentical(IAtomContainer query) {
+        return new VentoFoggia(query, true);
+    }
+
+    /**
+     * Check whether the query can be handled by this matcher, the atoms of
+     * every bond must have been added to the query. Queries built only from
+     * bonds and SMARTS queries whose recursive parts left bonds to atoms
+     * outside the container are not supported, these should be matched
+     * with the bond based {@link UniversalIsomorphismTester}.
+     *
+     * @param query the query structure
+     * @return whether the query can be matched
+     */
+    @TestMethod("supports")
+    public static boolean supports(IAtomContainer query) {
+        for (IBond bond : query.bonds()) {
+            for (IAtom atom : bond.atoms()) {
+                if (query.getAtomNumber(atom) < 0) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Set the time after which the search is abandoned, a search which times
+     * out reports the mappings found so far.
+     *
+     * @param timeout time in milliseconds, -1 for no limit
+     */
+    @TestMethod("timeout")
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Check whether the query is found in the target, the search stops at the
+     * first mapping.
+     *
+     * @param target the target structure
+     * @return the query was found
+     */
+    @TestMethod("benzeneInNaphthalene,identical")
+    public boolean matches(IAtomContainer target) {
+        return match(target) != null;
+    }
+
+    /**
+     * The first mapping of the query to the target.
+     *
+     * @param target the target structure
+     * @return the first mapping, null if the query was not found
+     */
+    @TestMethod("benzeneInNaphthalene")
+    public int[] match(IAtomContainer target) {
+        State state = new State(target);
+        return state.hasNext() ? state.next() : null;
+    }
+
+    /**
+     * All mappings of the query to the target. The mappings are generated as
+     * they are iterated over.
+     *
+     * @param target the target structure
+     * @return lazy iterable of the mappings
+     */
+    @TestMethod("benzeneInNaphthalene,lazyIteration")
+    public Iterable<int[]> matchAll(final IAtomContainer target) {
+        return new Iterable<int[]>() {
+            public Iterator<int[]> iterator() {
+                return new State(target);
+            }
+        };
+    }
+
+    /**
+     * The mappings of the query to the target which cover a different set of
+     * target atoms. Of the mappings which differ only in how the query is
+     * rotated or reflected onto the same atoms, only the first is reported.
+     *
+     * @param target the target structure
+     * @return lazy iterable of the unique mappings
+     */
+    @TestMethod("uniqueMatches")
+    public Iterable<int[]> uniqueMatches(final IAtomContainer target) {
+        return new Iterable<int[]>() {
+            public Iterator<int[]> iterator() {
+                return new UniqueIterator(new State(target), target.getAtomCount());
+            }
+        };
+    }
+
+    /**
+     * Count the mappings of the query to the target, the mappings are not
+     * stored.
+     *
+     * @param target the target structure
+     * @return number of mappings
+     */
+    @TestMethod("benzeneInNaphthalene,countMatches")
+    public int countMatches(IAtomContainer target) {
+        State state = new State(target);
+        int   count = 0;
+        while (state.advance())
+            count++;
+        return count;
+    }
+
+    /**
+     * Count the mappings of the query to the target which cover a different
+     * set of target atoms.
+     *
+     * @param target the target structure
+     * @return number of unique mappings
+     * @see #uniqueMatches(IAtomContainer)
+     */
+    @TestMethod("uniqueMatches")
+    public int countUniqueMatches(IAtomContainer target) {
+        int count = 0;
+        for (Iterator<int[]> it = uniqueMatches(target).iterator(); it.hasNext(); it.next())
+            count++;
+        return count;
+    }
+
+    /**
+     * The state of the search of one target. The state is advanced one
+     * mapping at a time.
+     */
+    private final class State implements Iterator<int[]> {
+
+        private final IAtomContainer target;
+        private final int[][]        tGraph;
+        private final IBond[][]      tBonds;
+
+        /* mapping of query to target atoms and target to query atoms */
+        private final int[]          m1, m2;
+
+        /* index of the next candidate to try at each depth */
+        private final int[]          next;
+
+        /* atom compatibility, 0 = not known, 1 = compatible, 2 = incompatible */
+        private final byte[]         compatible;
+
+        /* number of mapped atoms, -1 once the search is exhausted */
+        private int                  size = 0;
+
+        /* whether the current mapping has been reported */
+        private boolean              pending = false;
+
+        private final long           start = System.currentTimeMillis();
+        private int                  steps = 0;
+
+        private State(IAtomContainer target) {
+            this.target     = target;
+            this.tGraph     = GraphUtil.toAdjList(target);
+            this.tBonds     = bondsOf(target, tGraph);
+            this.m1         = new int[qGraph.length];
+            this.m2         = new int[tGraph.length];
+            this.next       = new int[qGraph.length];
+            this.compatible = new byte[qGraph.length * tGraph.length];
+            Arrays.fill(m1, -1);
+            Arrays.fill(m2, -1);
+            if (qGraph.length == 0 || qGraph.length > tGraph.length
+                || (identical && (qGraph.length != tGraph.length
+                                  || query.getBondCount() != target.getBondCount())))
+                size = -1;
+        }
+
+        /**
+         * Advance the search to the next complete mapping.
+         *
+         * @return whether there was another mapping
+         */
+        private boolean advance() {
+
+            if (size < 0)
+                return false;
+
+            // backtrack from the last mapping
+            if (size == order.length)
+                unmap(order[--size]);
+
+            while (size >= 0) {
+
+                if (timeout >= 0 && (++steps & 0xff) == 0
+                    && System.currentTimeMillis() - start > timeout) {
+                    size = -1;
+                    return false;
+                }
+
+                int u = order[size];
+                int n = nextCandidate(size);
+
+                if (n < 0) {
+                    next[size] = 0;
+                    if (--size >= 0)
+                        unmap(order[size]);
+                    continue;
+                }
+
+                if (feasible(u, n)) {
+                    m1[u] = n;
+                    m2[n] = u;
+                    if (++size == order.length)
+                        return true;
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * The next target atom to try for the query atom at the given depth,
+         * -1 if there are no more candidates.
+         */
+        private int nextCandidate(int depth) {
+            int p = parent[depth];
+            if (p < 0)
+                return next[depth] < tGraph.length ? next[depth]++ : -1;
+            int[] ws = tGraph[m1[p]];
+            return next[depth] < ws.length ? ws[next[depth]++] : -1;
+        }
+
+        private void unmap(int u) {
+            m2[m1[u]] = -1;
+            m1[u]     = -1;
+        }
+
+        /**
+         * Check whether the query atom <i>u</i> can be mapped to the target
+         * atom <i>n</i> given the atoms mapped so far.
+         */
+        private boolean feasible(int u, int n) {
+
+            if (m2[n] >= 0)
+                return false;
+
+            int qDeg = qGraph[u].length;
+            int tDeg = tGraph[n].length;
+            if (identical ? qDeg != tDeg : qDeg > tDeg)
+                return false;
+
+            if (!atomMatches(u, n))
+                return false;
+
+            // each mapped neighbour of the query atom must be mapped to a
+            // neighbour of the target atom, connected by a matching bond
+            for (int j = 0; j < qDeg; j++) {
+                int w = m1[qGraph[u][j]];
+                if (w < 0)
+                    continue;
+                int k = indexOf(tGraph[n], w);
+                if (k < 0 || !bondMatches(qBonds[u][j], tBonds[n][k]))
+                    return false;
+            }
+
+            return true;
+        }
+
+        private boolean atomMatches(int u, int n) {
+            int i = u * tGraph.length + n;
+            if (compatible[i] == 0)
+                compatible[i] = VentoFoggia.atomMatches(query.getAtom(u), target.getAtom(n)) ? (byte) 1 : (byte) 2;
+            return compatible[i] == 1;
+        }
+
+        /** {@inheritDoc} */
+        public boolean hasNext() {
+            if (!pending)
+                pending = advance();
+            return pending;
+        }
+
+        /** {@inheritDoc} */
+        public int[] next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            pending = false;
+            return m1.clone();
+        }
+
+        /** {@inheritDoc} */
+        public void remove() {
+            throw new UnsupportedOperationException("mappings can not be removed");
+        }
+    }
+
+    /**
+     * Filters mappings which cover the same target atoms as a mapping already
+     * reported.
+     */
+    private static final class UniqueIterator implements Iterator<int[]> {
+
+        private final Iterator<int[]> mappings;
+        private final Set<BitSet>     seen = new HashSet<BitSet>();
+        private final int             n;
+        private int[]                 current;
+
+        private UniqueIterator(Iterator<int[]> mappings, int n) {
+            this.mappings = mappings;
+            this.n        = n;
+        }
+
+        /** {@inheritDoc} */
+        public boolean hasNext() {
+            while (current == null && mappings.hasNext()) {
+                int[]  mapping = mappings.next();
+                BitSet atoms   = new BitSet(n);
+                for (int v : mapping)
+                    atoms.set(v);
+                if (seen.add(atoms))
+                    current = mapping;
+            }
+            return current != null;
+        }
+
+        /** {@inheritDoc} */
+        public int[] next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            int[] mapping = current;
+            current = null;
+            return mapping;
+        }
+
+        /** {@inheritDoc} */
+        public void remove() {
+            throw new UnsupportedOperationException("mappings can not be removed");
+        }
+    }
+
+    /**
+     * Whether a query atom matches a target atom.
+     */
+    private static boolean atomMatches(IAtom queryAtom, IAtom targetAtom) {
+        if (queryAtom instanceof IQueryAtom)
+            return ((IQueryAtom) queryAtom).matches(targetAtom);
+        return queryAtom.getSymbol() != null && queryAtom.getSymbol().equals(targetAtom.getSymbol());
+    }
+
+    /**
+     * Whether a query bond matches a target bond.
+     */
+    private static boolean bondMatches(IBond queryBond, IBond targetBond) {
+        if (queryBond instanceof IQueryBond)
+            return ((IQueryBond) queryBond).matches(targetBond);
+        boolean queryAromatic  = queryBond.getFlag(CDKConstants.ISAROMATIC);
+        boolean targetAromatic = targetBond.getFlag(CDKConstants.ISAROMATIC);
+        return (queryBond.getOrder() == targetBond.getOrder() && queryAromatic == targetAromatic)
+               || (queryAromatic && targetAromatic);
+    }
+
+    /**
+     * The bonds of the container aligned with the adjacency list, the bond
+     * between <i>v</i> and <i>graph[v][j]</i> is <i>bonds[v][j]</i>. The
+     * adjacency list is filled in bond order, as is done here.
+     */
+    private static IBond[][] bondsOf(IAtomContainer container, int[][] graph) {
+        IBond[][] bonds  = new IBond[graph.length][];
+        int[]     degree = new int[graph.length];
+        for (int v = 0; v < graph.length; v++)
+            bonds[v] = new IBond[graph[v].length];
+        for (IBond bond : container.bonds()) {
+            int v = container.getAtomNumber(bond.getAtom(0));
+            int w = container.getAtomNumber(bond.getAtom(1));
+            bonds[v][degree[v]++] = bond;
+            bonds[w][degree[w]++] = bond;
+        }
+        return bonds;
+    }
+
+    /**
+     * Determine the order the query atoms are mapped. Each connected component
+     * starts with its atom of highest degree and continues breadth first, such
+     * that every other atom has a parent which is mapped before it.
+     */
+    private static void matchingOrder(int[][] graph, int[] order, int[] parent) {
+
+        int       n       = graph.length;
+        boolean[] visited = new boolean[n];
+        int       size    = 0;
+
+        while (size < n) {
+
+            int start = -1;
+            for (int v = 0; v < n; v++) {
+                if (!visited[v] && (start < 0 || graph[v].length > graph[start].length))
+                    start = v;
+            }
+
+            int head = size;
+            order[size]    = start;
+            parent[size++] = -1;
+            visited[start] = true;
+
+            while (head < size) {
+                int v = order[head++];
+                for (int w : graph[v]) {
+                    if (!visited[w]) {
+                        visited[w]     = true;
+                        parent[size]   = v;
+                        order[size++]  = w;
+                    }
+                }
+            }
+        }
+    }
+
+    private static int indexOf(int[] xs, int x) {
+        for (int i = 0; i < xs.length; i++)
+            if (xs[i] == x)
+                return i;
+        return -1;
+    }
+}
@@ -145,11 +145,14 @@ public class QueryChemObject implements IChemObject {
      */
     public void notifyChanged() {
         if (getNotification() && getListenerCount() > 0) {
+            if (changeDepth > 0) {
+                changed = true;
+                return;
+            }
+            IChemObjectChangeEvent event = new QueryChemObjectChangeEvent(this);
             List<IChemObjectListener> listeners = lazyChemObjectListeners();
             for (Object listener : listeners) {
-                ((IChemObjectListener) listener).stateChanged(
-                        new QueryChemObjectChangeEvent(this)
-                );
+                ((IChemObjectListener) listener).stateChanged(event);
             }
         }
     }
@@ -166,6 +169,10 @@ public class QueryChemObject implements IChemObject {
      */
     public void notifyChanged(IChemObjectChangeEvent evt) {
         if (getNotification() && getListenerCount() > 0) {
+            if (changeDepth > 0) {
+                changed = true;
+                return;
+            }
             List<IChemObjectListener> listeners = lazyChemObjectListeners();
             for (Object listener : listeners) {
                 ((IChemObjectListener) listener).stateChanged(evt);
@@ -173,6 +180,28 @@ public class QueryChemObject implements IChemObject {
         }
     }
 
+    /**
+     *  Start a batch of changes, the listeners are notified once when the
+     *  outermost batch ends.
+     */
+    public void beginChanges() {
+        changeDepth++;
+    }
+
+    /**
+     *  End a batch of changes started by {@link #beginChanges()}.
+     *
+     *@throws  IllegalStateException  no batch of changes was started
+     */
+    public void endChanges() {
+        if (changeDepth == 0)
+            throw new IllegalStateException("no batch of changes was started");
+        if (--changeDepth == 0 && changed) {
+            changed = false;
+            notifyChanged();
+        }
+    }
+
 
     /**
      * Lazy creation of properties hash.
@@ -338,6 +367,10 @@ public class QueryChemObject implements IChemObject {
 
     private boolean doNotification = true;
 
+    /** the depth of the nested batches of changes and whether they changed */
+    private int     changeDepth;
+    private boolean changed;
+
     /**
      * @inheritDoc
      */
@@ -386,8 +419,10 @@ public class QueryChemObject implements IChemObject {
 
      @Override
      public Object clone() throws CloneNotSupportedException {
-         // TODO Auto-generated method stub
-         return super.clone();
+         QueryChemObject clone = (QueryChemObject) super.clone();
+         clone.changeDepth = 0;
+         clone.changed = false;
+         return clone;
      }
 
      class QueryChemObjectChangeEvent extends EventObject
@@ -24,18 +24,13 @@
 package org.openscience.cdk.isomorphism.matchers.smarts;
 
 import java.util.BitSet;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
 
 import org.openscience.cdk.exception.CDKException;
 import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
-import org.openscience.cdk.interfaces.IBond;
-import org.openscience.cdk.isomorphism.UniversalIsomorphismTester;
+import org.openscience.cdk.isomorphism.VentoFoggia;
 import org.openscience.cdk.isomorphism.matchers.IQueryAtom;
 import org.openscience.cdk.isomorphism.matchers.IQueryAtomContainer;
-import org.openscience.cdk.isomorphism.mcss.RMap;
 import org.openscience.cdk.tools.ILoggingTool;
 import org.openscience.cdk.tools.LoggingToolFactory;
 
@@ -112,74 +107,10 @@ public class RecursiveSmartsAtom extends SMARTSAtom {
      * @throws CDKException
      */
     private void initilizeBitSets() throws CDKException {
-		List<List<RMap>> bondMappings = null;
-		bondMappings = new UniversalIsomorphismTester().getSubgraphMaps(atomContainer, recursiveQuery);
-
 		bitSet = new BitSet(atomContainer.getAtomCount());
-		
-		for (List<RMap> bondMapping : bondMappings) {
-			Collections.sort(bondMapping, new Comparator<RMap>() {
-				public int compare(RMap r1, RMap r2) {
-					if (r1.getId2() > r2.getId2()) return 1;
-					else if (r1.getId2() == r2.getId2()) return 0;
-					else return -1;
-				}
-			});
-			RMap rmap0 = bondMapping.get(0);
-			IBond bond0 = atomContainer.getBond(rmap0.getId1());
-			IAtom atom0 = bond0.getAtom(0);
-			IAtom atom1 = bond0.getAtom(1);				
-			IBond qbond0 = recursiveQuery.getBond(rmap0.getId2());
-			IQueryAtom qatom0 = (IQueryAtom)qbond0.getAtom(0);
-			IQueryAtom qatom1 = (IQueryAtom)qbond0.getAtom(1);
-			
-			if ( (qatom0.matches(atom0) && qatom1.matches(atom1))
-					&& (qatom0.matches(atom1) && qatom1.matches(atom0)) ) { // they match each other no matter what order
-				if (bondMapping.size() > 1) { // look for the second bond
-					IBond bond1 = atomContainer.getBond(bondMapping.get(1).getId1());
-					IBond qbond1 = recursiveQuery.getBond(bondMapping.get(1).getId2());
-					if (recursiveQuery.getAtomNumber(qatom0) == 0) {
-						if (qbond1.contains(qatom0) && bond1.contains(atom0)) { // atom0 <-> qatom0
-							bitSet.set(atomContainer.getAtomNumber(atom0), true);
-						} else if (qbond1.contains(qatom0) && bond1.contains(atom1)) { // atom1 <-> qatom0
-							bitSet.set(atomContainer.getAtomNumber(atom1), true);
-						} else if (!qbond1.contains(qatom0) && bond1.contains(atom0)) { // ! (qatom0 <-> atom0)
-							bitSet.set(atomContainer.getAtomNumber(atom1), true);
-						} else { // (!qbond1.contains(qatom0) && bond1.contains(atom1) // ! (qatom0 <-> atom1 ) 
-							bitSet.set(atomContainer.getAtomNumber(atom0), true);							
-						}
-					} else {
-						if (qbond1.contains(qatom1) && bond1.contains(atom0)) { 
-							bitSet.set(atomContainer.getAtomNumber(atom0), true);
-						} else if (qbond1.contains(qatom1) && bond1.contains(atom1)) {
-							bitSet.set(atomContainer.getAtomNumber(atom1), true);
-						} else if (!qbond1.contains(qatom1) && bond1.contains(atom1)) {
-							bitSet.set(atomContainer.getAtomNumber(atom0), true);
-						} else {
-							bitSet.set(atomContainer.getAtomNumber(atom1), true);							
-						}						
-					}
-				} else {
-					// both matches
-					bitSet.set(atomContainer.getAtomNumber(atom1), true);
-					bitSet.set(atomContainer.getAtomNumber(atom0), true);
-				}
-			} else {
-				if (recursiveQuery.getAtomNumber(qatom0) == 0) { // starts from qatom1
-					if (qatom0.matches(atom0) && qatom1.matches(atom1)) {
-						bitSet.set(atomContainer.getAtomNumber(atom0), true);
-					} else {
-						bitSet.set(atomContainer.getAtomNumber(atom1), true);
-					}
-				} else { // qatom1 is the first atom
-					if (qatom0.matches(atom1) && qatom1.matches(atom0)) {
-						bitSet.set(atomContainer.getAtomNumber(atom0), true);
-					} else {
-						bitSet.set(atomContainer.getAtomNumber(atom1), true);
-					}
-				}
-			}
-		}    		
+		for (int[] mapping : VentoFoggia.findSubstructure(recursiveQuery).matchAll(atomContainer)) {
+			bitSet.set(mapping[0]);
+		}
     }
 
 	public IQueryAtomContainer getRecursiveQuery() {
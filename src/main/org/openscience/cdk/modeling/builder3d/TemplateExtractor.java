@@ -35,7 +35,6 @@ import java.util.Map;
 
 import org.openscience.cdk.CDKConstants;
 import org.openscience.cdk.fingerprint.HybridizationFingerprinter;
-import org.openscience.cdk.fingerprint.IFingerprinter;
 import org.openscience.cdk.fingerprint.BitSetFingerprint;
 import org.openscience.cdk.fingerprint.Fingerprinter;
 import org.openscience.cdk.fingerprint.IBitFingerprint;
@@ -377,9 +376,11 @@ public class TemplateExtractor {
 		AllRingsFinder allRingsFinder = new AllRingsFinder();
 		allRingsFinder.setTimeout(10000); // 10 seconds
 
-		IFingerprinter fingerPrinter = new HybridizationFingerprinter(
+		HybridizationFingerprinter fingerPrinter = new HybridizationFingerprinter(
 		    HybridizationFingerprinter.DEFAULT_SIZE, HybridizationFingerprinter.DEFAULT_SEARCH_DEPTH
 		);
+		// must match the path hashing of TemplateHandler3D
+		fingerPrinter.setLegacyPathHashing(true);
 		IAtomContainer m = null;
 		IteratingSDFReader imdl=null;
 		//QueryAtomContainer query=null;
@@ -201,7 +201,10 @@ public class TemplateHandler3D {
 
         //logger.debug("Map Template...START---Number of Ring Atoms:"+NumberOfRingAtoms);
         IAtomContainer ringSystemAnyBondAnyAtom = AtomContainerManipulator.anonymise(ringSystems);
-        BitSet ringSystemFingerprint = new HybridizationFingerprinter().getBitFingerprint(ringSystemAnyBondAnyAtom).asBitSet();
+        // the stored template fingerprints were made with the string based path hashing
+        HybridizationFingerprinter fingerprinter = new HybridizationFingerprinter();
+        fingerprinter.setLegacyPathHashing(true);
+        BitSet ringSystemFingerprint = fingerprinter.getBitFingerprint(ringSystemAnyBondAnyAtom).asBitSet();
         boolean flagMaxSubstructure = false;
         boolean flagSecondbest=false;
         for (int i = 0; i < fingerprintData.size(); i++) {
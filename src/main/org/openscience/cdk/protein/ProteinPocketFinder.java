@@ -24,11 +24,18 @@ import java.io.BufferedWriter;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.Hashtable;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import javax.vecmath.Point3d;
 
@@ -47,6 +54,7 @@ import org.openscience.cdk.protein.data.PDBAtom;
 import org.openscience.cdk.tools.GridGenerator;
 import org.openscience.cdk.tools.ILoggingTool;
 import org.openscience.cdk.tools.LoggingToolFactory;
+import org.openscience.cdk.tools.ParallelLoop;
 import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
 import org.openscience.cdk.tools.periodictable.PeriodicTable;
 
@@ -54,6 +62,12 @@ import org.openscience.cdk.tools.periodictable.PeriodicTable;
  * The detection of pocket and cavities in a bioPolymer is done similar to the program 
  * LIGSITE {@cdk.cite MH1997}.
  * 
+ * <p>The grid is stored as one array of short integers. The scans along
+ * the axes and diagonals handle independent planes of the grid and can use
+ * several threads, see {@link #setThreads(int)}. The pockets of many
+ * biopolymers can be found with one pocket finder, which reuses its grid,
+ * see {@link #sitefinder(List)}.
+ *
  * <p>TODO: Optimisation of the cubic grid placement 
  *
  * @author      cho
@@ -81,10 +95,16 @@ public class ProteinPocketFinder {
 	// points
 	IBioPolymer protein = null;
 	String vanDerWaalsFile="org/openscience/cdk/config/data/pdb_atomtypes.xml";
-	double[][][] grid = null;
+	// the grid values, point (x,y,z) at (x * sizeY + y) * sizeZ + z, the
+	// array is reused when a new grid needs no more points
+	short[] grid = null;
+	int sizeX = 0;
+	int sizeY = 0;
+	int sizeZ = 0;
 	GridGenerator gridGenerator = new GridGenerator();
-	Map<String,Integer> visited = new Hashtable<String,Integer>();
 	List<List<Point3d>> pockets = new ArrayList<List<Point3d>>();
+	int threads = 1;
+	ExecutorService executor = null;
 
 	/**
 	 * @param biopolymerFile The file name containing the protein
@@ -110,17 +130,24 @@ public class ProteinPocketFinder {
 	}
 
 	public ProteinPocketFinder(String biopolymerFile, double[][][] grid) {
-		this.grid = grid;
+		setGrid(grid);
 		gridGenerator.setGrid(grid);
 		readBioPolymer(biopolymerFile);
 	}
 
 	public ProteinPocketFinder(IBioPolymer protein, double[][][] grid) {
 		this.protein = protein;
-		this.grid = grid;
+		setGrid(grid);
 		gridGenerator.setGrid(grid);
 	}
 
+	/**
+	 * Creates a pocket finder without a biopolymer, for example to find
+	 * the pockets of many biopolymers with {@link #sitefinder(List)}.
+	 */
+	public ProteinPocketFinder() {
+	}
+
 	/**
 	 * Creates from a PDB File a BioPolymer.
 	 */
@@ -185,8 +212,33 @@ public class ProteinPocketFinder {
 	public void createCubicGrid() {
 //		logger.debug("	CREATE CUBIC GRID");
 		gridGenerator.setDimension(findGridBoundaries(), true);
-		gridGenerator.generateGrid();
-		this.grid = gridGenerator.getGrid();
+		gridGenerator.generateDimensions();
+		int[] dim = gridGenerator.getDim();
+		allocateGrid(dim[0] + 1, dim[1] + 1, dim[2] + 1);
+	}
+
+	/**
+	 * Sets the size of the grid, the grid array is only reallocated when it
+	 * is too small. The values of the grid points are not cleared.
+	 */
+	private void allocateGrid(int sizeX, int sizeY, int sizeZ) {
+		long points = (long) sizeX * sizeY * sizeZ;
+		if (points > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("grid of " + points + " points is too large");
+		}
+		if (grid == null || grid.length < points) {
+			grid = new short[(int) points];
+		}
+		this.sizeX = sizeX;
+		this.sizeY = sizeY;
+		this.sizeZ = sizeZ;
+	}
+
+	/**
+	 * The position of a grid point in the grid array.
+	 */
+	private int index(int x, int y, int z) {
+		return (x * sizeY + y) * sizeZ + z;
 	}
 
 	/**
@@ -201,7 +253,7 @@ public class ProteinPocketFinder {
 	public void assignProteinToGrid() throws Exception {
 //		logger.debug.print("	ASSIGN PROTEIN TO GRID");
 		// 1. Step: Set all grid points to solvent accessible
-		this.grid = gridGenerator.initializeGrid(this.grid, 0);
+		Arrays.fill(grid, 0, sizeX * sizeY * sizeZ, (short) 0);
 		// 2. Step Grid points inaccessible to solvent are assigend a value of -1
 		// set grid points around (r_atom+r_solv) to -1
 		IAtom[] atoms = AtomContainerManipulator.getAtomArray(protein);
@@ -211,6 +263,9 @@ public class ProteinPocketFinder {
 		int[] dim = gridGenerator.getDim();
 		//int proteinAtomCount = 0;//Debugging
 		int[] minMax = { 0, 0, 0, 0, 0, 0 };
+		// the grid point and the box of grid points of each atom
+		int[][] boxes = new int[atoms.length][];
+		int count = 0;
 
 		for (int i = 0; i < atoms.length; i++) {
 			if (((PDBAtom) atoms[i]).getHetAtom()) {
@@ -218,7 +273,6 @@ public class ProteinPocketFinder {
 			}
 			gridPoint = gridGenerator.getGridPointFrom3dCoordinates(atoms[i]
 					.getPoint3d());
-			this.grid[(int) gridPoint.x][(int) gridPoint.y][(int) gridPoint.z] = -1;
 			vdWRadius = PeriodicTable.getVdwRadius(atoms[i].getSymbol());
 			if (vdWRadius == 0) {
 				vdWRadius = rAtom;
@@ -235,21 +289,44 @@ public class ProteinPocketFinder {
 			minMax[4] = (int) gridPoint.z - checkGridPoints;
 			minMax[5] = (int) gridPoint.z + checkGridPoints;
 			minMax = checkBoundaries(minMax, dim);
-			for (int x = minMax[0]; x <= minMax[1]; x++) {
-				for (int y = minMax[2]; y <= minMax[3]; y++) {
-					for (int z = minMax[4]; z <= minMax[5]; z++) {
-						this.grid[x][y][z] = this.grid[x][y][z] - 1;
-						//proteinAtomCount++;//Debugging
-					}
-				}
-
-			}
+			boxes[count++] = new int[]{ (int) gridPoint.x, (int) gridPoint.y, (int) gridPoint.z,
+					minMax[0], minMax[1], minMax[2], minMax[3], minMax[4], minMax[5] };
 		}// for atoms.length
+		fillProteinBoxes(boxes, count);
 
 //		logger.debug("- checkGridPoints>" + checkGridPoints
 //				+ " ProteinGridPoints>" + proteinAtomCount);
 	}
 
+	/**
+	 * Assigns the boxes of the atoms to the grid. The atoms are applied in
+	 * order to each x plane, the planes are independent and may be filled by
+	 * different threads.
+	 */
+	private void fillProteinBoxes(final int[][] boxes, final int atomCount) {
+		forEachSlice(sizeX, new Slice() {
+			public void scan(int x) {
+				for (int i = 0; i < atomCount; i++) {
+					int[] box = boxes[i];
+					if (box[0] == x) {
+						grid[index(box[0], box[1], box[2])] = -1;
+					}
+					if (x < box[3] || x > box[4]) {
+						continue;
+					}
+					for (int y = box[5]; y <= box[6]; y++) {
+						int position = index(x, y, box[7]);
+						for (int z = box[7]; z <= box[8]; z++, position++) {
+							if (grid[position] > Short.MIN_VALUE) {
+								grid[position]--;
+							}
+						}
+					}
+				}
+			}
+		});
+	}
+
 	public void debuggCheckPSPEvent() {
 		logger.debug("	debugg_checkPSPEvent");
 		int[] dim = gridGenerator.getDim();
@@ -259,28 +336,14 @@ public class ProteinPocketFinder {
 		for (int x = 0; x <= dim[0]; x++) {
 			for (int y = 0; y <= dim[1]; y++) {
 				for (int z = 0; z <= dim[2]; z++) {
-
-					if (this.grid[x][y][z] == 0) {
-						pspEvents[0]++;
-					} else if (this.grid[x][y][z] == 1) {
-						pspEvents[1]++;
-					} else if (this.grid[x][y][z] == 2) {
-						pspEvents[2]++;
-					} else if (this.grid[x][y][z] == 3) {
-						pspEvents[3]++;
-					} else if (this.grid[x][y][z] == 4) {
-						pspEvents[4]++;
-					} else if (this.grid[x][y][z] == 5) {
-						pspEvents[5]++;
-					} else if (this.grid[x][y][z] == 6) {
-						pspEvents[6]++;
-					} else if (this.grid[x][y][z] == 7) {
-						pspEvents[7]++;
-					} else if (this.grid[x][y][z] >= 7) {
+					int value = this.grid[index(x, y, z)];
+					if (value >= 0 && value <= 7) {
+						pspEvents[value]++;
+					} else if (value > 7) {
 						pspEvents[8]++;
 					}
 
-					if (this.grid[x][y][z] < 0) {
+					if (value < 0) {
 						proteinGrid++;
 					}
 				}
@@ -296,9 +359,6 @@ public class ProteinPocketFinder {
 			logger.debug(" " + i + ":" + pspEvents[i]);
 		}
 		logger.debug(" pspAll>" + sum);
-		// logger.debug(" PSPAll:"+pspAll+" minPSP:"+minPSP+"
-		// #pspMin:"+pspMin+" psp7:"+psp7+" proteinGridPoints:"+proteinGrid
-		// +" solventGridPoints:"+solventGrid);
 	}
 
 	/**
@@ -307,6 +367,54 @@ public class ProteinPocketFinder {
 	 *
 	 */
 	public void sitefinder() {
+		boolean started = startThreads();
+		try {
+			findSites();
+		} finally {
+			if (started) {
+				stopThreads();
+			}
+		}
+	}
+
+	/**
+	 * Finds the pockets of several biopolymers one after another. The grid
+	 * array and the threads are shared by all of them, the grid is only
+	 * reallocated for a biopolymer that needs more grid points than the ones
+	 * before it. After the call the last biopolymer is the protein of the
+	 * pocket finder.
+	 *
+	 * @param proteins the biopolymers
+	 * @return the pockets of each biopolymer, biggest first, with the 3D
+	 *         coordinates of the pocket grid points
+	 */
+	public List<List<List<Point3d>>> sitefinder(List<IBioPolymer> proteins) {
+		List<List<List<Point3d>>> result = new ArrayList<List<List<Point3d>>>(proteins.size());
+		boolean started = startThreads();
+		try {
+			for (IBioPolymer biopolymer : proteins) {
+				this.protein = biopolymer;
+				createCubicGrid();
+				findSites();
+				List<List<Point3d>> coordinates = new ArrayList<List<Point3d>>(pockets.size());
+				for (List<Point3d> pocket : pockets) {
+					List<Point3d> points = new ArrayList<Point3d>(pocket.size());
+					for (Point3d gridPoint : pocket) {
+						points.add(gridGenerator.getCoordinatesFromGridPoint(gridPoint));
+					}
+					coordinates.add(points);
+				}
+				result.add(coordinates);
+			}
+		} finally {
+			if (started) {
+				stopThreads();
+			}
+		}
+		return result;
+	}
+
+	private void findSites() {
 		//logger.debug("SITEFINDER");
 		try {
 			assignProteinToGrid();
@@ -317,9 +425,6 @@ public class ProteinPocketFinder {
 		// 3. Step scan allong x,y,z axis and the diagonals, if PSP event add +1
 		// to grid cell
 		int[] dim = gridGenerator.getDim();
-//		logger.debug("	SITEFINDER-SCAN - dim:" + dim[0] + " grid:"
-//				+ this.grid[0].length + " grid point sum:" + this.grid.length
-//				* this.grid[0].length * this.grid[0][0].length);
 		axisScanX(dim[2], dim[1], dim[0]);// x-Axis
 		axisScanY(dim[2], dim[0], dim[1]);// y-Axis
 		axisScanZ(dim[0], dim[1], dim[2]);// z-Axis
@@ -341,34 +446,13 @@ public class ProteinPocketFinder {
 	 *
 	 */
 	private void sortPockets() {
-//		logger.debug("	SORT POCKETS Start#:" + pockets.size());
-		Hashtable<Integer,List<Integer>> hashPockets = new Hashtable<Integer,List<Integer>>();
-		List<Point3d> pocket;
-		List<List<Point3d>> sortPockets = new ArrayList<List<Point3d>>(pockets.size());
-		for (int i = 0; i < pockets.size(); i++) {
-			pocket = pockets.get(i);
-			if (hashPockets.containsKey(Integer.valueOf(pocket.size()))) {
-			    List<Integer> tmp = hashPockets.get(Integer.valueOf(pocket.size()));
-				tmp.add(i);
-				hashPockets.put(pocket.size(), tmp);
-			} else {
-				List<Integer> value = new ArrayList<Integer>();
-				value.add(i);
-				hashPockets.put(pocket.size(), value);
-			}
-		}
-
-		List<Integer> keys = new ArrayList<Integer>(hashPockets.keySet());
-		Collections.sort(keys);
-		for (int i = keys.size() - 1; i >= 0; i--) {
-			List<Integer> value = hashPockets.get(keys.get(i));
-//			logger.debug("key:" + i + " Value" + keys.get(i)
-//					+ " #Pockets:" + value.size());
-			for (int j = 0; j < value.size(); j++) {
-				sortPockets.add(pockets.get(value.get(j)));
+		List<List<Point3d>> sortPockets = new ArrayList<List<Point3d>>(pockets);
+		// stable, pockets of equal size stay in the order they were found
+		Collections.sort(sortPockets, new Comparator<List<Point3d>>() {
+			public int compare(List<Point3d> a, List<Point3d> b) {
+				return b.size() - a.size();
 			}
-		}
-//		logger.debug("	SORT POCKETS End#:" + sortPockets.size());
+		});
 		pockets = sortPockets;
 	}
 
@@ -376,92 +460,136 @@ public class ProteinPocketFinder {
 	 * Method which finds the pocket, with a simple nearest neighbour clustering. The points
 	 * which should be clustered or form a pocket can be determined with:
 	 * 	minPSPocket, minPSCluster, linkageRadius, and pocketSize.
+	 *
+	 * <p>The grid points with at least minPSCluster PSP events are joined with
+	 * a union-find when they are within the linkageRadius (in grid points) of
+	 * each other. A cluster with at least one grid point of minPSPocket events
+	 * and at least pocketSize grid points is a pocket.
 	 */
 	private void findPockets() {
 		int[] dim = gridGenerator.getDim();
-//		logger.debug("	FIND POCKETS>dimx:" + dim[0] + " dimy:" + dim[1]
-//				+ " dimz:" + dim[2] + " linkageRadius>" + linkageRadius
-//				+ " latticeConstant>" + latticeConstant + " pocketSize:"
-//				+ pocketSize + " minPSPocket:" + minPSPocket + " minPSCluster:"
-//				+ minPSCluster);
-		//int pointsVisited = 0;//Debugging
-		//int significantPointsVisited = 0;//Debugging
-		for (int x = 0; x < dim[0]; x++) {
-			for (int y = 0; y < dim[1]; y++) {
-				for (int z = 0; z < dim[2]; z++) {
-					// logger.debug.print(" x:"+x+" y:"+y+" z:"+z);
-					Point3d start = new Point3d(x, y, z);
-					//pointsVisited++;
-					if (this.grid[x][y][z] >= minPSPocket
-							& !visited.containsKey(x + "." + y + "."+ z)) {
-						List<Point3d> subPocket = new ArrayList<Point3d>();
-						// logger.debug.print("new Point: "+grid[x][y][z]);
-						//significantPointsVisited++;
-						// logger.debug("visited:"+pointsVisited);
-						subPocket = this
-								.clusterPSPPocket(start, subPocket, dim);
-						if (subPocket != null && subPocket.size() >= pocketSize) {
-							pockets.add(subPocket);
+		int reach = (int) Math.floor(linkageRadius);
+		pockets = new ArrayList<List<Point3d>>();
+
+		// the grid points that may be clustered, in ascending position
+		int[] members = new int[64];
+		int count = 0;
+		for (int x = 0; x <= dim[0]; x++) {
+			for (int y = 0; y <= dim[1]; y++) {
+				for (int z = 0; z <= dim[2]; z++) {
+					if (grid[index(x, y, z)] >= minPSCluster) {
+						if (count == members.length) {
+							members = Arrays.copyOf(members, 2 * count);
 						}
-						// logger.debug(" Points visited:"+pointsVisited+"
-						// subPocketSize:"+subPocket.size()+"
-						// pocketsSize:"+pockets.size()
-						// +" hashtable:"+visited.size());
+						members[count++] = index(x, y, z);
+					}
+				}
+			}
+		}
 
+		// link each grid point to the grid points before it within reach
+		int[] parent = new int[count];
+		for (int i = 0; i < count; i++) {
+			parent[i] = i;
+			int x = members[i] / (sizeY * sizeZ);
+			int y = members[i] / sizeZ % sizeY;
+			int z = members[i] % sizeZ;
+			for (int k = Math.max(0, x - reach); k <= Math.min(dim[0], x + reach); k++) {
+				for (int m = Math.max(0, y - reach); m <= Math.min(dim[1], y + reach); m++) {
+					for (int l = Math.max(0, z - reach); l <= Math.min(dim[2], z + reach); l++) {
+						int position = index(k, m, l);
+						if (position >= members[i]) {
+							continue;
+						}
+						int j = Arrays.binarySearch(members, 0, i, position);
+						if (j >= 0) {
+							union(parent, i, j);
+						}
 					}
 				}
 			}
+		}
 
+		// a cluster is found at its first grid point with enough PSP events
+		// (the points on the upper faces of the grid do not start a cluster)
+		Map<Integer,List<Point3d>> clusters = new LinkedHashMap<Integer,List<Point3d>>();
+		Map<Integer,List<Point3d>> others = new HashMap<Integer,List<Point3d>>();
+		for (int i = 0; i < count; i++) {
+			int root = find(parent, i);
+			int x = members[i] / (sizeY * sizeZ);
+			int y = members[i] / sizeZ % sizeY;
+			int z = members[i] % sizeZ;
+			List<Point3d> cluster = clusters.get(root);
+			if (cluster == null) {
+				cluster = others.get(root);
+				if (cluster == null) {
+					cluster = new ArrayList<Point3d>();
+					others.put(root, cluster);
+				}
+				if (grid[members[i]] >= minPSPocket && x < dim[0] && y < dim[1] && z < dim[2]) {
+					clusters.put(root, others.remove(root));
+				}
+			}
+			cluster.add(new Point3d(x, y, z));
+		}
+		for (List<Point3d> cluster : clusters.values()) {
+			if (cluster.size() >= pocketSize) {
+				pockets.add(cluster);
+			}
 		}
-//		try {
-//			logger.debug("	->>>> #pockets:" + pockets.size()
-//					+ " significantPointsVisited:" + significantPointsVisited
-//					+ " keys:" + visited.size() + " PointsVisited:"
-//					+ pointsVisited);
-//		} catch (Exception ex1) {
-//			logger.debug
-//					.println("Problem in System.out due to " + ex1.toString());
-//		}
+	}
 
+	private static int find(int[] parent, int i) {
+		while (parent[i] != i) {
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+		return i;
+	}
+
+	private static void union(int[] parent, int i, int j) {
+		int a = find(parent, i), b = find(parent, j);
+		// the smaller position is the root, so roots do not depend on the order
+		if (a < b) {
+			parent[b] = a;
+		} else if (b < a) {
+			parent[a] = b;
+		}
 	}
 
 	/**
-	 * Method performs the clustering, is called by findPockets().
+	 * Method performs the clustering of a single root grid point, the grid
+	 * points with at least minPSCluster PSP events that are connected to the
+	 * root within the linkageRadius are added to the list.
 	 */
 	public List<Point3d> clusterPSPPocket(Point3d root, List<Point3d> sub_Pocket, int[] dim) {
-		// logger.debug(" ****** New Root ******:"+root.x+" "+root.y+"
-		// "+root.z);
-		visited.put((int) root.x + "." + (int) root.y + "."
-                + (int) root.z, new Integer(1));
-		int[] minMax = { 0, 0, 0, 0, 0, 0 };
-		minMax[0] = (int) (root.x - linkageRadius);
-		minMax[1] = (int) (root.x + linkageRadius);
-		minMax[2] = (int) (root.y - linkageRadius);
-		minMax[3] = (int) (root.y + linkageRadius);
-		minMax[4] = (int) (root.z - linkageRadius);
-		minMax[5] = (int) (root.z + linkageRadius);
-		minMax = checkBoundaries(minMax, dim);
-		// logger.debug("cluster:"+minMax[0]+" "+minMax[1]+" "+minMax[2]+"
-		// "+minMax[3]+" "+minMax[4]+" "+minMax[5]+" ");
-		for (int k = minMax[0]; k <= minMax[1]; k++) {
-			for (int m = minMax[2]; m <= minMax[3]; m++) {
-				for (int l = minMax[4]; l <= minMax[5]; l++) {
-					Point3d node = new Point3d(k, m, l);
-					// logger.debug(" clusterPSPPocket:"+root.x+"
-					// "+root.y+" "+root.z+" ->"+k+" "+m+" "+l+"
-					// #>"+this.grid[k][m][l]+" key:"+visited.containsKey(new
-					// String(k+"."+m+"."+l)));
-					if (this.grid[k][m][l] >= minPSCluster
-							&& !visited.containsKey(k + "." + m
-                            + "." + l)) {
-						// logger.debug(" ---->FOUND");
-						sub_Pocket.add(node);
-						this.clusterPSPPocket(node, sub_Pocket, dim);
+		BitSet visited = new BitSet();
+		Deque<int[]> stack = new ArrayDeque<int[]>();
+		stack.push(new int[]{ (int) root.x, (int) root.y, (int) root.z });
+		visited.set(index((int) root.x, (int) root.y, (int) root.z));
+		while (!stack.isEmpty()) {
+			int[] point = stack.pop();
+			int[] minMax = { 0, 0, 0, 0, 0, 0 };
+			minMax[0] = (int) (point[0] - linkageRadius);
+			minMax[1] = (int) (point[0] + linkageRadius);
+			minMax[2] = (int) (point[1] - linkageRadius);
+			minMax[3] = (int) (point[1] + linkageRadius);
+			minMax[4] = (int) (point[2] - linkageRadius);
+			minMax[5] = (int) (point[2] + linkageRadius);
+			minMax = checkBoundaries(minMax, dim);
+			for (int k = minMax[0]; k <= minMax[1]; k++) {
+				for (int m = minMax[2]; m <= minMax[3]; m++) {
+					for (int l = minMax[4]; l <= minMax[5]; l++) {
+						int position = index(k, m, l);
+						if (this.grid[position] >= minPSCluster && !visited.get(position)) {
+							visited.set(position);
+							stack.push(new int[]{ k, m, l });
+						}
 					}
 				}
 			}
+			sub_Pocket.add(new Point3d(point[0], point[1], point[2]));
 		}
-		sub_Pocket.add(root);
 		return sub_Pocket;
 	}
 
@@ -495,14 +623,70 @@ public class ProteinPocketFinder {
 	}
 
 	/**
-	 * Method which assigns upon a PSP event +1 to these grid points.
+	 * Method scans a line of grid points and assigns upon a PSP event +1
+	 * to the solvent grid points between two protein grid points.
+	 *
+	 * @param first  position of the first grid point
+	 * @param step   distance between the positions of two grid points
+	 * @param length number of grid points
+	 */
+	private void scanLine(int first, int step, int length) {
+		int open = -1;// the first solvent point after a protein point
+		for (int t = 0, position = first; t < length; t++, position += step) {
+			if (grid[position] < 0) {
+				if (open >= 0) {
+					for (int p = first + open * step; p != position; p += step) {
+						grid[p]++;
+					}
+				}
+				open = t + 1;
+			}
+		}
+	}
+
+	/**
+	 * The scan of all lines through one plane of the grid. The lines of
+	 * different planes do not share grid points.
+	 */
+	private interface Slice {
+		void scan(int plane);
+	}
+
+	/**
+	 * Runs the scan of each plane, with several threads when
+	 * threads is larger than 1.
 	 */
-	private void firePSPEvent(List<Point3d> line) {
-		for (int i = 0; i < line.size(); i++) {
-			this.grid[(int)line.get(i).x][(int)line.get(i).y][(int)line.get(i).z] = 
-			    this.grid[(int)line.get(i).x][(int)line.get(i).y][(int)line.get(i).z] + 1;
+	private void forEachSlice(final int planes, final Slice slice) {
+		boolean started = startThreads();
+		try {
+			ParallelLoop.forEach(planes, executor, threads, new ParallelLoop.Body<RuntimeException>() {
+				public void run(int plane) {
+					slice.scan(plane);
+				}
+			});
+		} finally {
+			if (started) {
+				stopThreads();
+			}
+		}
+	}
+
+	/**
+	 * Starts the threads if they are needed and not yet running.
+	 *
+	 * @return whether the threads were started
+	 */
+	private boolean startThreads() {
+		if (threads == 1 || executor != null) {
+			return false;
 		}
+		executor = ParallelLoop.newPool(threads, "ProteinPocketFinder");
+		return true;
+	}
 
+	private void stopThreads() {
+		executor.shutdownNow();
+		executor = null;
 	}
 
 	/**
@@ -512,46 +696,18 @@ public class ProteinPocketFinder {
 	 * @param dimL second dimension 
 	 * @param dimM third dimension
 	 */
-	public void diagonalAxisScanXZY(int dimK, int dimL, int dimM) {
+	public void diagonalAxisScanXZY(int dimK, int dimL, final int dimM) {
 		// x min ->x max;left upper corner z+y max->min//1
-		//logger.debug("	diagonalAxisScanXZY");
-		if (dimM < dimL) {
-			dimL = dimM;
-		}
-		//int gridPoints = 0;//Debugging
-		List<Point3d> line = new ArrayList<Point3d>();
-		int pspEvent = 0;
-		int m = 0;
-		for (int j = dimM; j >= 1; j--) {// z
-			line.clear();
-			pspEvent = 0;
-			for (int k = 0; k <= dimK; k++) {// min -> max; x
-				m = dimM;// m==y
-				line.clear();
-				pspEvent = 0;
-				for (int l = dimL; l >= 0; l--) {// z
-					//gridPoints++;
-					if (grid[k][m][l] < 0) {
-						if (pspEvent < 2) {
-							line.clear();
-							pspEvent = 1;
-						} else if (pspEvent == 2) {
-							firePSPEvent(line);
-							line.clear();
-							pspEvent = 1;
-						}
-					} else {
-						if (pspEvent == 1 | pspEvent == 2) {
-							line.add(new Point3d(k, m, l));
-							pspEvent = 2;
-						}
-					}
-					m--;
-				}// for l
+		final int first = Math.min(dimL, dimM);
+		forEachSlice(dimK + 1, new Slice() {
+			public void scan(int k) {// x
+				int l = first;// z
+				for (int j = dimM; j >= 1; j--) {
+					scanLine(index(k, dimM, l), -sizeZ - 1, l + 1);
+					l = j;
+				}
 			}
-			dimL = j;
-		}
-		//logger.debug(" #gridPoints>" + gridPoints);
+		});
 	}
 
 	/**
@@ -561,46 +717,18 @@ public class ProteinPocketFinder {
 	 * @param dimL second dimension 
 	 * @param dimM third dimension
 	 */
-	public void diagonalAxisScanYZX(int dimK, int dimL, int dimM) {
+	public void diagonalAxisScanYZX(int dimK, int dimL, final int dimM) {
 		// y min -> y max; right lower corner zmax->zmin, xmax ->min//4
-		// logger.debug.print(" diagonalAxisScanYZX");
-		//int gridPoints = 0;//Debugging
-		if (dimM < dimL) {
-			dimL = dimM;
-		}
-		List<Point3d> line = new ArrayList<Point3d>();
-		int pspEvent = 0;
-		int m = 0;
-		for (int j = dimM; j >= 1; j--) {// z
-			line.clear();
-			pspEvent = 0;
-			for (int k = 0; k <= dimK; k++) {// min -> max; y
-				m = dimM;// m==x
-				line.clear();
-				pspEvent = 0;
-				for (int l = dimL; l >= 0; l--) {// z
-					//gridPoints++;
-					if (grid[m][k][l] < 0) {
-						if (pspEvent < 2) {
-							line.clear();
-							pspEvent = 1;
-						} else if (pspEvent == 2) {
-							firePSPEvent(line);
-							line.clear();
-							pspEvent = 1;
-						}
-					} else {
-						if (pspEvent == 1 | pspEvent == 2) {
-							line.add(new Point3d(m, k, l));
-							pspEvent = 2;
-						}
-					}
-					m--;
-				}// for l
+		final int first = Math.min(dimL, dimM);
+		forEachSlice(dimK + 1, new Slice() {
+			public void scan(int k) {// y
+				int l = first;// z
+				for (int j = dimM; j >= 1; j--) {
+					scanLine(index(dimM, k, l), -sizeY * sizeZ - 1, l + 1);
+					l = j;
+				}
 			}
-			dimL = j;
-		}
-		// logger.debug(" #gridPoints>"+gridPoints);
+		});
 	}
 
 	/**
@@ -612,46 +740,16 @@ public class ProteinPocketFinder {
 	 */
 	public void diagonalAxisScanYXZ(int dimK, int dimL, int dimM) {
 		// y min -> y max; left lower corner z max->min, x min->max//2
-		// logger.debug.print(" diagonalAxisScanYXZ");
-		//int gridPoints = 0;//Debugging
-		if (dimM < dimL) {
-			dimL = dimM;
-		} else {
-			dimM = dimL;
-		}
-		List<Point3d> line = new ArrayList<Point3d>();
-		int pspEvent = 0;
-		int l = 0;
-		for (int j = dimL; j >= 1; j--) {// z
-			line.clear();
-			pspEvent = 0;
-			for (int k = 0; k <= dimK; k++) {// min -> max; y
-				line.clear();
-				pspEvent = 0;
-				l = 0;// x
-				for (int m = dimM; m >= 0; m--) {// z
-					//gridPoints++;
-					if (grid[l][k][m] < 0) {
-						if (pspEvent < 2) {
-							line.clear();
-							pspEvent = 1;
-						} else if (pspEvent == 2) {
-							firePSPEvent(line);
-							line.clear();
-							pspEvent = 1;
-						}
-					} else {
-						if (pspEvent == 1 | pspEvent == 2) {
-							line.add(new Point3d(l, k, m));
-							pspEvent = 2;
-						}
-					}
-					l++;
-				}// for m;z
-			}// for k;y
-			dimM = j;
-		}
-		// logger.debug(" #gridPoints>"+gridPoints);
+		final int first = Math.min(dimL, dimM);
+		forEachSlice(dimK + 1, new Slice() {
+			public void scan(int k) {// y
+				int m = first;// z
+				for (int j = first; j >= 1; j--) {
+					scanLine(index(0, k, m), sizeY * sizeZ - 1, m + 1);
+					m = j;
+				}
+			}
+		});
 	}
 
 	/**
@@ -663,46 +761,16 @@ public class ProteinPocketFinder {
 	 */
 	public void diagonalAxisScanXYZ(int dimK, int dimL, int dimM) {
 		// x min -> xmax;left lower corner z max->min, y min->max//3
-		// logger.debug.print(" diagonalAxisScanXYZ");
-		//int gridPoints = 0;//Debugging
-		if (dimM < dimL) {
-			dimL = dimM;
-		} else {
-			dimM = dimL;
-		}
-		List<Point3d> line = new ArrayList<Point3d>();
-		int pspEvent = 0;
-		int l = 0;
-		for (int j = dimL; j >= 1; j--) {// z
-			line.clear();
-			pspEvent = 0;
-			for (int k = 0; k <= dimK; k++) {// min -> max;x
-				line.clear();
-				pspEvent = 0;
-				l = 0;// y
-				for (int m = dimM; m >= 0; m--) {// z
-					//gridPoints++;
-					if (grid[k][l][m] < 0) {
-						if (pspEvent < 2) {
-							line.clear();
-							pspEvent = 1;
-						} else if (pspEvent == 2) {
-							firePSPEvent(line);
-							line.clear();
-							pspEvent = 1;
-						}
-					} else {
-						if (pspEvent == 1 | pspEvent == 2) {
-							line.add(new Point3d(k, l, m));
-							pspEvent = 2;
-						}
-					}
-					l++;
-				}// for m;z
-			}// for k;x
-			dimM = j;
-		}
-		// logger.debug(" #gridPoints>"+gridPoints);
+		final int first = Math.min(dimL, dimM);
+		forEachSlice(dimK + 1, new Slice() {
+			public void scan(int k) {// x
+				int m = first;// z
+				for (int j = first; j >= 1; j--) {
+					scanLine(index(k, 0, m), sizeZ - 1, m + 1);
+					m = j;
+				}
+			}
+		});
 	}
 
 	/**
@@ -712,39 +780,15 @@ public class ProteinPocketFinder {
 	 * @param dimL second dimension
 	 * @param dimM third dimension
 	 */
-	public void axisScanX(int dimK, int dimL, int dimM) {
+	public void axisScanX(int dimK, final int dimL, final int dimM) {
 		// z,y,x
-//		logger.debug.print("	diagonalAxisScanX");
-		//int gridPoints = 0;//Debugging
-		List<Point3d> line = new ArrayList<Point3d>();
-		int pspEvent = 0;
-		for (int k = 0; k <= dimK; k++) {
-			line.clear();
-			pspEvent = 0;
-			for (int l = 0; l <= dimL; l++) {
-				line.clear();
-				pspEvent = 0;
-				for (int m = 0; m <= dimM; m++) {
-					//gridPoints++;
-					if (grid[m][l][k] < 0) {
-						if (pspEvent < 2) {
-							pspEvent = 1;
-							line.clear();
-						} else if (pspEvent == 2) {
-							firePSPEvent(line);
-							line.clear();
-							pspEvent = 1;
-						}
-					} else {
-						if (pspEvent == 1 | pspEvent == 2) {
-							line.add(new Point3d(m, l, k));
-							pspEvent = 2;
-						}
-					}
+		forEachSlice(dimK + 1, new Slice() {
+			public void scan(int k) {
+				for (int l = 0; l <= dimL; l++) {
+					scanLine(index(0, l, k), sizeY * sizeZ, dimM + 1);
 				}
 			}
-		}
-//		logger.debug(" #gridPoints>" + gridPoints);
+		});
 	}
 
 	/**
@@ -754,37 +798,15 @@ public class ProteinPocketFinder {
 	 * @param dimL second dimension
 	 * @param dimM third dimension
 	 */
-	public void axisScanY(int dimK, int dimL, int dimM) {
+	public void axisScanY(int dimK, final int dimL, final int dimM) {
 		// z,x,y
-		List<Point3d> line = new ArrayList<Point3d>();
-		int pspEvent = 0;
-		for (int k = 0; k <= dimK; k++) {
-			line.clear();
-			pspEvent = 0;
-			for (int l = 0; l <= dimL; l++) {
-				line.clear();
-				pspEvent = 0;
-				for (int m = 0; m <= dimM; m++) {
-					if (grid[l][m][k] < 0) {
-						if (pspEvent < 2) {
-							pspEvent = 1;
-							line.clear();
-						} else if (pspEvent == 2) {
-							// if (line.size()>2){
-							firePSPEvent(line);
-							// }
-							line.clear();
-							pspEvent = 1;
-						}
-					} else {
-						if (pspEvent > 0) {
-							line.add(new Point3d(l, m, k));
-							pspEvent = 2;
-						}
-					}
+		forEachSlice(dimK + 1, new Slice() {
+			public void scan(int k) {
+				for (int l = 0; l <= dimL; l++) {
+					scanLine(index(l, 0, k), sizeZ, dimM + 1);
 				}
 			}
-		}
+		});
 	}
 
 	/**
@@ -794,35 +816,15 @@ public class ProteinPocketFinder {
 	 * @param dimL second dimension
 	 * @param dimM third dimension
 	 */
-	public void axisScanZ(int dimK, int dimL, int dimM) {
+	public void axisScanZ(int dimK, final int dimL, final int dimM) {
 		// x,y,z
-		List<Point3d> line = new ArrayList<Point3d>();
-		int pspEvent = 0;
-		for (int k = 0; k <= dimK; k++) {
-			line.clear();
-			pspEvent = 0;
-			for (int l = 0; l <= dimL; l++) {
-				line.clear();
-				pspEvent = 0;
-				for (int m = 0; m <= dimM; m++) {
-					if (grid[k][l][m] < 0) {
-						if (pspEvent < 2) {
-							pspEvent = 1;
-							line.clear();
-						} else if (pspEvent == 2) {
-							firePSPEvent(line);
-							line.clear();
-							pspEvent = 1;
-						}
-					} else {
-						if (pspEvent > 0) {
-							line.add(new Point3d(k, l, m));
-							pspEvent = 2;
-						}
-					}
+		forEachSlice(dimK + 1, new Slice() {
+			public void scan(int k) {
+				for (int l = 0; l <= dimL; l++) {
+					scanLine(index(k, l, 0), 1, dimM + 1);
 				}
 			}
-		}
+		});
 	}
 
 
@@ -858,6 +860,7 @@ public class ProteinPocketFinder {
 	 */
 	public void gridToPmesh(String outPutFileName) {
 		try {
+			gridGenerator.setGrid(getGrid());
 			gridGenerator.writeGridInPmeshFormat(outPutFileName);
 		} catch (IOException e) {
 			logger.debug(e);
@@ -869,6 +872,7 @@ public class ProteinPocketFinder {
 	 */
 	public void pspGridToPmesh(String outPutFileName) {
 		try {
+			gridGenerator.setGrid(getGrid());
 			gridGenerator.writeGridInPmeshFormat(outPutFileName, minPSPocket);
 		} catch (IOException e) {
 			logger.debug(e);
@@ -880,6 +884,7 @@ public class ProteinPocketFinder {
 	 */
 	public void proteinGridToPmesh(String outPutFileName) {
 		try {
+			gridGenerator.setGrid(getGrid());
 			gridGenerator.writeGridInPmeshFormat(outPutFileName, -1);
 		} catch (IOException e) {
 			logger.debug(e);
@@ -916,18 +921,61 @@ public class ProteinPocketFinder {
 
 
 	/**
-	 * @return 	Returns the grid.
+	 * @return 	Returns a copy of the grid.
 	 */
 	public double[][][] getGrid() {
-		return grid;
+		if (grid == null) {
+			return null;
+		}
+		double[][][] copy = new double[sizeX][sizeY][sizeZ];
+		for (int x = 0; x < sizeX; x++) {
+			for (int y = 0; y < sizeY; y++) {
+				for (int z = 0; z < sizeZ; z++) {
+					copy[x][y][z] = grid[index(x, y, z)];
+				}
+			}
+		}
+		return copy;
 	}
 
 
 	/**
-	 * @param  grid The grid to set.
+	 * @param  grid The grid to set, the values are stored as short integers.
 	 */
 	public void setGrid(double[][][] grid) {
-		this.grid = grid;
+		if (grid == null) {
+			this.grid = null;
+			sizeX = sizeY = sizeZ = 0;
+			return;
+		}
+		allocateGrid(grid.length, grid[0].length, grid[0][0].length);
+		for (int x = 0; x < sizeX; x++) {
+			for (int y = 0; y < sizeY; y++) {
+				for (int z = 0; z < sizeZ; z++) {
+					double value = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, grid[x][y][z]));
+					this.grid[index(x, y, z)] = (short) value;
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * @return Returns the number of threads that scan the grid.
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+
+	/**
+	 * @param threads The number of threads that scan the grid, at least 1.
+	 */
+	public void setThreads(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("at least one thread is required");
+		}
+		this.threads = threads;
 	}
 
 
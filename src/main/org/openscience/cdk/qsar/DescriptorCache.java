@@ -0,0 +1,572 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.qsar;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.atomtype.CDKAtomTypeMatcher;
+import org.openscience.cdk.charges.GasteigerMarsiliPartialCharges;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.graph.PathTools;
+import org.openscience.cdk.graph.matrix.AdjacencyMatrix;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IAtomType;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.interfaces.IRing;
+import org.openscience.cdk.interfaces.IRingSet;
+import org.openscience.cdk.ringsearch.AllRingsFinder;
+import org.openscience.cdk.ringsearch.SSSRFinder;
+import org.openscience.cdk.tools.CDKHydrogenAdder;
+import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
+import org.openscience.cdk.tools.manipulator.AtomTypeManipulator;
+
+/**
+ * Intermediate results that several descriptors calculate for the same
+ * molecule: prepared copies of the molecule, ring sets, topological distances
+ * and partial charges. The {@link DescriptorEngine} opens a cache for each
+ * molecule it processes, and the descriptors use the static methods of this
+ * class instead of calculating these results themselves.
+ *
+ * <p>When no cache is open on the current thread, or the container is not the
+ * molecule of the open cache or a copy handed out by it, the static methods
+ * calculate the result and nothing is cached. Copies are handed out as new
+ * objects that the descriptor may change, ring sets are rebuilt on the atoms
+ * and bonds of the container they are asked for. Topological distances and
+ * charges are handed out as new arrays.
+ *
+ * <pre>
+ * DescriptorCache cache = DescriptorCache.open(molecule);
+ * try {
+ *     for (IMolecularDescriptor descriptor : descriptors)
+ *         values.add(descriptor.calculate(molecule));
+ * } finally {
+ *     cache.close();
+ * }
+ * </pre>
+ *
+ * <p>A cache may be used from several threads at once. Results are only
+ * reused for containers which are unchanged since the result was
+ * calculated: the same elements, formal charges and implicit hydrogen counts
+ * of the atoms, and the same atoms and orders of the bonds.
+ *
+ * @cdk.module qsarmolecular
+ * @cdk.githash
+ * @see DescriptorEngine
+ */
+@TestClass("org.openscience.cdk.qsar.DescriptorCacheTest")
+public final class DescriptorCache {
+
+    private static final ThreadLocal<DescriptorCache> CURRENT = new ThreadLocal<DescriptorCache>();
+
+    private final IAtomContainer molecule;
+
+    // the cache that was open on the thread before this one was opened
+    private DescriptorCache previous;
+
+    // the molecule as given, without hydrogens, and with explicit hydrogens;
+    // every copy handed out belongs to the shape it was made from
+    private final Shape                      original;
+    private Shape                            hydrogenFree;
+    private Shape                            explicitHydrogens;
+    private Shape                            configuredHydrogenFree;
+    private CDKException                     configureFailure;
+    private final Map<IAtomContainer, Shape> shapes = new IdentityHashMap<IAtomContainer, Shape>();
+
+    // number of results taken from the cache
+    private int                              reused;
+
+    private DescriptorCache(IAtomContainer molecule) {
+        this.molecule = molecule;
+        this.original = new Shape(molecule);
+        shapes.put(molecule, original);
+    }
+
+    /**
+     * Open a cache for a molecule on the current thread, the cache is used
+     * until it is closed.
+     *
+     * @param molecule the molecule to calculate descriptors for
+     * @return the open cache
+     */
+    @TestMethod("testOpen")
+    public static DescriptorCache open(IAtomContainer molecule) {
+        DescriptorCache cache = new DescriptorCache(molecule);
+        cache.previous = bind(cache);
+        return cache;
+    }
+
+    /**
+     * Close the cache, the cache that was open before on this thread is used
+     * again.
+     */
+    @TestMethod("testOpen")
+    public void close() {
+        bind(previous);
+    }
+
+    /**
+     * The molecule the cache was opened for.
+     *
+     * @return the molecule
+     */
+    @TestMethod("testOpen")
+    public IAtomContainer getMolecule() {
+        return molecule;
+    }
+
+    /**
+     * The number of rings, distances and charges which were taken from the
+     * cache rather than calculated.
+     *
+     * @return number of reused results
+     */
+    synchronized int getReusedCount() {
+        return reused;
+    }
+
+    /**
+     * Use a cache on the current thread, for sharing the cache of a molecule
+     * with the threads that calculate its descriptors.
+     *
+     * @param cache the cache to use, or null
+     * @return the cache that was used before
+     */
+    static DescriptorCache bind(DescriptorCache cache) {
+        DescriptorCache before = CURRENT.get();
+        if (cache == null)
+            CURRENT.remove();
+        else
+            CURRENT.set(cache);
+        return before;
+    }
+
+    /**
+     * A copy of a container, made with {@link IAtomContainer#clone()}.
+     *
+     * @param container the molecule
+     * @return a new copy
+     * @throws CloneNotSupportedException the container could not be copied
+     */
+    @TestMethod("testCopies")
+    public static IAtomContainer getCopy(IAtomContainer container) throws CloneNotSupportedException {
+        DescriptorCache cache = CURRENT.get();
+        if (cache == null)
+            return (IAtomContainer) container.clone();
+        synchronized (cache) {
+            Shape shape = cache.shape(container);
+            if (shape == null)
+                return (IAtomContainer) container.clone();
+            return cache.register((IAtomContainer) container.clone(), shape);
+        }
+    }
+
+    /**
+     * A copy of a container without hydrogens, made with
+     * {@link AtomContainerManipulator#removeHydrogens(IAtomContainer)}.
+     *
+     * @param container the molecule
+     * @return a new copy without hydrogens
+     */
+    @TestMethod("testCopies")
+    public static IAtomContainer getHydrogenFreeCopy(IAtomContainer container) {
+        DescriptorCache cache = CURRENT.get();
+        if (cache == null || container != cache.molecule)
+            return AtomContainerManipulator.removeHydrogens(container);
+        synchronized (cache) {
+            if (!cache.original.matches(container))
+                return AtomContainerManipulator.removeHydrogens(container);
+            try {
+                return cache.register((IAtomContainer) cache.hydrogenFree().reference.clone(), cache.hydrogenFree);
+            } catch (CloneNotSupportedException exception) {
+                return AtomContainerManipulator.removeHydrogens(container);
+            }
+        }
+    }
+
+    /**
+     * A copy of a container without hydrogens, of which each atom is
+     * configured with the type found by the {@link CDKAtomTypeMatcher} and
+     * has its implicit hydrogens added.
+     *
+     * @param container the molecule
+     * @return a new configured copy without hydrogens
+     * @throws CDKException an atom could not be typed or hydrogens could not
+     *                      be added
+     */
+    @TestMethod("testCopies")
+    public static IAtomContainer getConfiguredHydrogenFreeCopy(IAtomContainer container) throws CDKException {
+        DescriptorCache cache = CURRENT.get();
+        if (cache == null || container != cache.molecule)
+            return configureHydrogenFree(AtomContainerManipulator.removeHydrogens(container));
+        synchronized (cache) {
+            if (!cache.original.matches(container))
+                return configureHydrogenFree(AtomContainerManipulator.removeHydrogens(container));
+            if (cache.configuredHydrogenFree == null && cache.configureFailure == null) {
+                try {
+                    cache.configuredHydrogenFree = new Shape(configureHydrogenFree(
+                        (IAtomContainer) cache.hydrogenFree().reference.clone()
+                    ));
+                } catch (CloneNotSupportedException exception) {
+                    cache.configureFailure = new CDKException("Could not copy the molecule", exception);
+                } catch (CDKException exception) {
+                    cache.configureFailure = exception;
+                }
+            }
+            if (cache.configureFailure != null)
+                throw cache.configureFailure;
+            try {
+                return cache.register((IAtomContainer) cache.configuredHydrogenFree.reference.clone(),
+                                      cache.configuredHydrogenFree);
+            } catch (CloneNotSupportedException exception) {
+                throw new CDKException("Could not copy the molecule", exception);
+            }
+        }
+    }
+
+    /**
+     * A copy of a container of which the atom types are perceived and
+     * configured and all hydrogens are explicit.
+     *
+     * @param container the molecule
+     * @return a new copy with explicit hydrogens
+     * @throws CDKException the atoms could not be typed or hydrogens could
+     *                      not be added
+     * @see AtomContainerManipulator#percieveAtomTypesAndConfigureAtoms(IAtomContainer)
+     * @see AtomContainerManipulator#convertImplicitToExplicitHydrogens(IAtomContainer)
+     */
+    @TestMethod("testCopies")
+    public static IAtomContainer getExplicitHydrogenCopy(IAtomContainer container) throws CDKException {
+        DescriptorCache cache = CURRENT.get();
+        if (cache == null || container != cache.molecule)
+            return explicitHydrogens(container);
+        synchronized (cache) {
+            if (!cache.original.matches(container))
+                return explicitHydrogens(container);
+            if (cache.explicitHydrogens == null)
+                cache.explicitHydrogens = new Shape(explicitHydrogens(container));
+            try {
+                return cache.register((IAtomContainer) cache.explicitHydrogens.reference.clone(),
+                                      cache.explicitHydrogens);
+            } catch (CloneNotSupportedException exception) {
+                throw new CDKException("Could not copy the molecule", exception);
+            }
+        }
+    }
+
+    /**
+     * The smallest set of smallest rings of a container.
+     *
+     * @param container the molecule or a copy handed out by the cache
+     * @return the rings, on the atoms and bonds of the container
+     * @see SSSRFinder#findSSSR()
+     */
+    @TestMethod("testRings")
+    public static IRingSet getSSSR(IAtomContainer container) {
+        DescriptorCache cache = CURRENT.get();
+        if (cache == null)
+            return new SSSRFinder(container).findSSSR();
+        synchronized (cache) {
+            Shape shape = cache.shape(container);
+            if (shape == null)
+                return new SSSRFinder(container).findSSSR();
+            if (shape.sssr == null)
+                shape.sssr = new Rings(shape.reference, new SSSRFinder(shape.reference).findSSSR());
+            else
+                cache.reused++;
+            return shape.sssr.on(container);
+        }
+    }
+
+    /**
+     * All rings of a container.
+     *
+     * @param container the molecule or a copy handed out by the cache
+     * @return the rings, on the atoms and bonds of the container
+     * @throws CDKException the rings could not be found in time
+     * @see AllRingsFinder#findAllRings(IAtomContainer)
+     */
+    @TestMethod("testRings")
+    public static IRingSet getAllRings(IAtomContainer container) throws CDKException {
+        DescriptorCache cache = CURRENT.get();
+        if (cache == null)
+            return new AllRingsFinder().findAllRings(container);
+        synchronized (cache) {
+            Shape shape = cache.shape(container);
+            if (shape == null)
+                return new AllRingsFinder().findAllRings(container);
+            if (shape.allRings == null && shape.allRingsFailure == null) {
+                try {
+                    shape.allRings = new Rings(shape.reference, new AllRingsFinder().findAllRings(shape.reference));
+                } catch (CDKException exception) {
+                    shape.allRingsFailure = exception;
+                }
+            } else {
+                cache.reused++;
+            }
+            if (shape.allRingsFailure != null)
+                throw shape.allRingsFailure;
+            return shape.allRings.on(container);
+        }
+    }
+
+    /**
+     * The number of bonds on the shortest path between each pair of atoms,
+     * a large number for atoms that are not connected.
+     *
+     * @param container the molecule or a copy handed out by the cache
+     * @return the topological distances, a new matrix
+     * @see PathTools#computeFloydAPSP(int[][])
+     */
+    @TestMethod("testDistances")
+    public static int[][] getTopologicalDistances(IAtomContainer container) {
+        DescriptorCache cache = CURRENT.get();
+        if (cache == null)
+            return PathTools.computeFloydAPSP(AdjacencyMatrix.getMatrix(container));
+        synchronized (cache) {
+            Shape shape = cache.shape(container);
+            if (shape == null)
+                return PathTools.computeFloydAPSP(AdjacencyMatrix.getMatrix(container));
+            if (shape.distances == null)
+                shape.distances = PathTools.computeFloydAPSP(AdjacencyMatrix.getMatrix(shape.reference));
+            else
+                cache.reused++;
+            int[][] distances = new int[shape.distances.length][];
+            for (int i = 0; i < distances.length; i++)
+                distances[i] = shape.distances[i].clone();
+            return distances;
+        }
+    }
+
+    /**
+     * The Gasteiger-Marsili sigma partial charges of the atoms of a
+     * container, calculated on a copy with the default number of iterations.
+     *
+     * @param container the molecule or a copy handed out by the cache
+     * @return the charge of each atom, a new array
+     * @throws CDKException the charges could not be calculated
+     * @see GasteigerMarsiliPartialCharges#assignGasteigerMarsiliSigmaPartialCharges(IAtomContainer, boolean)
+     */
+    @TestMethod("testCharges,testChangedMolecule")
+    public static double[] getGasteigerMarsiliCharges(IAtomContainer container) throws CDKException {
+        DescriptorCache cache = CURRENT.get();
+        if (cache == null)
+            return gasteigerMarsiliCharges(container);
+        synchronized (cache) {
+            Shape shape = cache.shape(container);
+            if (shape == null)
+                return gasteigerMarsiliCharges(container);
+            if (shape.charges == null && shape.chargesFailure == null) {
+                try {
+                    shape.charges = gasteigerMarsiliCharges(shape.reference);
+                } catch (CDKException exception) {
+                    shape.chargesFailure = exception;
+                }
+            } else {
+                cache.reused++;
+            }
+            if (shape.chargesFailure != null)
+                throw shape.chargesFailure;
+            return shape.charges.clone();
+        }
+    }
+
+    /**
+     * The shape of a container, null if the container is not known or was
+     * changed since it was handed out.
+     */
+    private Shape shape(IAtomContainer container) {
+        Shape shape = shapes.get(container);
+        return shape != null && shape.matches(container) ? shape : null;
+    }
+
+    private IAtomContainer register(IAtomContainer copy, Shape shape) {
+        shapes.put(copy, shape);
+        return copy;
+    }
+
+    private Shape hydrogenFree() {
+        if (hydrogenFree == null)
+            hydrogenFree = new Shape(AtomContainerManipulator.removeHydrogens(molecule));
+        return hydrogenFree;
+    }
+
+    private static IAtomContainer configureHydrogenFree(IAtomContainer container) throws CDKException {
+        CDKAtomTypeMatcher matcher = CDKAtomTypeMatcher.getInstance(container.getBuilder());
+        Iterator<IAtom>    atoms   = container.atoms().iterator();
+        while (atoms.hasNext()) {
+            IAtom atom = atoms.next();
+            try {
+                IAtomType type = matcher.findMatchingAtomType(container, atom);
+                AtomTypeManipulator.configure(atom, type);
+            } catch (Exception exception) {
+                throw new CDKException("Error in atom typing: " + exception.getMessage(), exception);
+            }
+        }
+        try {
+            CDKHydrogenAdder.getInstance(container.getBuilder()).addImplicitHydrogens(container);
+        } catch (Exception exception) {
+            throw new CDKException("Error in hydrogen addition: " + exception.getMessage(), exception);
+        }
+        return container;
+    }
+
+    private static IAtomContainer explicitHydrogens(IAtomContainer container) throws CDKException {
+        IAtomContainer copy;
+        try {
+            copy = (IAtomContainer) container.clone();
+        } catch (CloneNotSupportedException exception) {
+            throw new CDKException("Could not copy the molecule", exception);
+        }
+        AtomContainerManipulator.percieveAtomTypesAndConfigureAtoms(copy);
+        CDKHydrogenAdder.getInstance(copy.getBuilder()).addImplicitHydrogens(copy);
+        AtomContainerManipulator.convertImplicitToExplicitHydrogens(copy);
+        return copy;
+    }
+
+    private static double[] gasteigerMarsiliCharges(IAtomContainer container) throws CDKException {
+        try {
+            IAtomContainer copy = (IAtomContainer) container.clone();
+            new GasteigerMarsiliPartialCharges().assignGasteigerMarsiliSigmaPartialCharges(copy, true);
+            double[] charges = new double[copy.getAtomCount()];
+            for (int i = 0; i < charges.length; i++)
+                charges[i] = copy.getAtom(i).getCharge();
+            return charges;
+        } catch (Exception exception) {
+            throw new CDKException("Could not assign Gasteiger-Marsili charges: " + exception.getMessage(), exception);
+        }
+    }
+
+    /**
+     * A container from which copies are made, with the results calculated on
+     * it. The copies have the atoms and bonds in the same order.
+     */
+    private static final class Shape {
+
+        private final IAtomContainer reference;
+        private final int[]          state;
+
+        private Rings        sssr;
+        private Rings        allRings;
+        private CDKException allRingsFailure;
+        private int[][]      distances;
+        private double[]     charges;
+        private CDKException chargesFailure;
+
+        private Shape(IAtomContainer reference) {
+            this.reference = reference;
+            this.state     = state(reference);
+        }
+
+        /**
+         * Whether the container still is in the state of the reference, its
+         * results can then be used for the container.
+         */
+        private boolean matches(IAtomContainer container) {
+            return Arrays.equals(state, state(container));
+        }
+
+        /**
+         * The state the results depend on: for each atom its element, formal
+         * charge and implicit hydrogen count, for each bond the indices of its
+         * atoms and its order. A copy has the state of the container it was
+         * made from.
+         */
+        private static int[] state(IAtomContainer container) {
+            int                 atomCount = container.getAtomCount();
+            int                 bondCount = container.getBondCount();
+            int[]               state     = new int[2 + 3 * atomCount + 3 * bondCount];
+            Map<IAtom, Integer> index     = new IdentityHashMap<IAtom, Integer>(2 * atomCount);
+            int                 k         = 0;
+            state[k++] = atomCount;
+            state[k++] = bondCount;
+            for (int i = 0; i < atomCount; i++) {
+                IAtom atom = container.getAtom(i);
+                if (!index.containsKey(atom))
+                    index.put(atom, i);
+                state[k++] = atom.getSymbol() != null ? atom.getSymbol().hashCode() : 0;
+                state[k++] = valueOf(atom.getFormalCharge());
+                state[k++] = valueOf(atom.getImplicitHydrogenCount());
+            }
+            for (int i = 0; i < bondCount; i++) {
+                IBond bond = container.getBond(i);
+                state[k++] = indexOf(index, bond.getAtom(0));
+                state[k++] = indexOf(index, bond.getAtom(1));
+                state[k++] = bond.getOrder() != null ? bond.getOrder().ordinal() : -1;
+            }
+            return state;
+        }
+
+        private static int valueOf(Integer value) {
+            return value != null ? value : Integer.MIN_VALUE;
+        }
+
+        private static int indexOf(Map<IAtom, Integer> index, IAtom atom) {
+            Integer i = atom != null ? index.get(atom) : null;
+            return i != null ? i : -1;
+        }
+    }
+
+    /**
+     * A ring set stored as the atom and bond indices of each ring, so it can
+     * be rebuilt on any container of the same shape.
+     */
+    private static final class Rings {
+
+        private final int[][] atoms;
+        private final int[][] bonds;
+
+        private Rings(IAtomContainer container, IRingSet rings) {
+            int n = rings.getAtomContainerCount();
+            atoms = new int[n][];
+            bonds = new int[n][];
+            for (int i = 0; i < n; i++) {
+                IAtomContainer ring = rings.getAtomContainer(i);
+                atoms[i] = new int[ring.getAtomCount()];
+                bonds[i] = new int[ring.getBondCount()];
+                for (int j = 0; j < atoms[i].length; j++)
+                    atoms[i][j] = container.getAtomNumber(ring.getAtom(j));
+                for (int j = 0; j < bonds[i].length; j++)
+                    bonds[i][j] = container.getBondNumber(ring.getBond(j));
+            }
+        }
+
+        private IRingSet on(IAtomContainer container) {
+            IRingSet rings = container.getBuilder().newInstance(IRingSet.class);
+            for (int i = 0; i < atoms.length; i++) {
+                IRing ring = container.getBuilder().newInstance(IRing.class);
+                for (int atom : atoms[i])
+                    ring.addAtom(container.getAtom(atom));
+                for (int bond : bonds[i])
+                    ring.addBond(container.getBond(bond));
+                rings.addAtomContainer(ring);
+            }
+            return rings;
+        }
+    }
+}
@@ -36,6 +36,7 @@ import org.openscience.cdk.interfaces.IBond;
 import org.openscience.cdk.interfaces.IChemObjectBuilder;
 import org.openscience.cdk.tools.ILoggingTool;
 import org.openscience.cdk.tools.LoggingToolFactory;
+import org.openscience.cdk.tools.ParallelLoop;
 
 import java.io.File;
 import java.io.IOException;
@@ -47,9 +48,18 @@ import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
 import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
@@ -94,6 +104,11 @@ public class DescriptorEngine {
         LoggingToolFactory.createLoggingTool(DescriptorEngine.class);
     private final IChemObjectBuilder builder;
 
+    private int             threads = 1;
+    private ExecutorService executor;
+    /** Time in milliseconds after which an idle thread of the engine ends. */
+    long                    keepAlive = 10000;
+
     /**
      * Instantiates the DescriptorEngine.
      * <p/>
@@ -165,22 +180,208 @@ public class DescriptorEngine {
      * specifications are used to create a <code>DescriptorValue</code>
      * object which is then added to the molecule as a property keyed
      * on the <code>DescriptorSpecification</code> object for that descriptor
+     * <p/>
+     * Intermediate results that several descriptors need, such as ring sets
+     * and topological distances, are calculated once through a
+     * {@link DescriptorCache}. When more than one thread is set the
+     * descriptors are calculated in parallel, each on its own copy of the
+     * molecule, and the values are stored on the molecule afterwards.
      *
      * @param molecule The molecule for which we want to calculate descriptors
      * @throws CDKException if an error occured during descriptor calculation or the descriptors and/or
      *                      specifications have not been initialized
+     * @see #setThreads(int)
      */
     public void process(IAtomContainer molecule) throws CDKException {
 
+        checkInitialized();
+
+        if (threads > 1) {
+            processInParallel(molecule);
+            return;
+        }
+
+        DescriptorCache cache = DescriptorCache.open(molecule);
+        try {
+            DescriptorValue[][] values = new DescriptorValue[descriptors.size()][];
+            for (int i = 0; i < values.length; i++)
+                values[i] = calculate(descriptors.get(i), molecule);
+            store(descriptors, molecule, values);
+        } finally {
+            cache.close();
+        }
+    }
+
+    /**
+     * Calculates the descriptors for a sequence of molecules, for example
+     * the molecules of an iterating reader. The molecules are taken from the
+     * input as they are needed and processed on the threads set with
+     * {@link #setThreads(int)}, each molecule with a set of instances of the
+     * descriptors which no other thread uses at the same time. The returned
+     * iterator gives the molecules in the order of the input once their
+     * descriptors are stored, as by {@link #process(IAtomContainer)}.
+     * <p/>
+     * An exception of a descriptor is thrown by the returned iterator as
+     * an {@link IllegalStateException}.
+     *
+     * @param molecules the molecules to calculate the descriptors of, only
+     *                  read from the thread that uses the returned iterator
+     * @return the molecules with their descriptors
+     * @throws CDKException the descriptors and/or specifications have not been
+     *                      initialized or could not be instantiated for each thread
+     */
+    @TestMethod("testProcess_Iterator")
+    public <T extends IAtomContainer> Iterator<T> process(final Iterator<T> molecules) throws CDKException {
+        checkInitialized();
+        final int                                  workers   = threads;
+        final ExecutorService                      pool      = ParallelLoop.newPool(workers, "descriptor-engine", keepAlive, TimeUnit.MILLISECONDS);
+        final Queue<List<IDescriptor>>             available = new ConcurrentLinkedQueue<List<IDescriptor>>();
+        final LinkedList<Future<T>>                pending   = new LinkedList<Future<T>>();
+        for (int i = 0; i < workers; i++)
+            available.add(copyDescriptors());
+
+        return new Iterator<T>() {
+
+            public boolean hasNext() {
+                fill();
+                if (pending.isEmpty())
+                    pool.shutdown();
+                return !pending.isEmpty();
+            }
+
+            public T next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                Future<T> future = pending.removeFirst();
+                try {
+                    return future.get();
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    pool.shutdownNow();
+                    throw new IllegalStateException("interrupted while calculating descriptors", exception);
+                } catch (ExecutionException exception) {
+                    pool.shutdownNow();
+                    throw new IllegalStateException("could not calculate descriptors", exception.getCause());
+                } finally {
+                    fill();
+                }
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            // keep twice as many molecules in progress as there are threads
+            private void fill() {
+                while (pending.size() < 2 * workers && molecules.hasNext()) {
+                    final T molecule = molecules.next();
+                    pending.add(pool.submit(new Callable<T>() {
+                        public T call() throws CDKException {
+                            // no more tasks run at once than there are copies
+                            List<IDescriptor>   own    = available.poll();
+                            DescriptorCache     cache  = DescriptorCache.open(molecule);
+                            DescriptorValue[][] values = new DescriptorValue[own.size()][];
+                            try {
+                                for (int i = 0; i < values.length; i++)
+                                    values[i] = calculate(own.get(i), molecule);
+                                store(own, molecule, values);
+                            } finally {
+                                cache.close();
+                                available.offer(own);
+                            }
+                            return molecule;
+                        }
+                    }));
+                }
+            }
+        };
+    }
+
+    /**
+     * Sets the number of threads used to calculate descriptors, by default 1.
+     * With more than one thread {@link #process(IAtomContainer)} calculates
+     * the descriptors of a molecule in parallel and
+     * {@link #process(Iterator)} calculates the descriptors of several
+     * molecules at once.
+     *
+     * @param threads the number of threads
+     */
+    @TestMethod("testProcess_Threads")
+    public synchronized void setThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("at least one thread is needed");
+        this.threads = threads;
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    /**
+     * Calculate the descriptors of one molecule on the threads of the engine.
+     * Each descriptor works on its own copy of the molecule with the atoms
+     * and bonds in the same order, the values are stored on the molecule in
+     * the order of the descriptors once all are calculated.
+     */
+    private void processInParallel(final IAtomContainer molecule) throws CDKException {
+        final DescriptorCache     cache  = DescriptorCache.open(molecule);
+        final DescriptorValue[][] values = new DescriptorValue[descriptors.size()][];
+        try {
+            ParallelLoop.forEach(values.length, executor(), threads, new ParallelLoop.Body<CloneNotSupportedException>() {
+                public void run(int i) throws CloneNotSupportedException {
+                    DescriptorCache before = DescriptorCache.bind(cache);
+                    try {
+                        values[i] = calculate(descriptors.get(i), DescriptorCache.getCopy(molecule));
+                    } finally {
+                        DescriptorCache.bind(before);
+                    }
+                }
+            });
+            store(descriptors, molecule, values);
+        } catch (CloneNotSupportedException exception) {
+            throw new CDKException("could not calculate descriptors: " + exception.getMessage(), exception);
+        } finally {
+            cache.close();
+        }
+    }
+
+    private void checkInitialized() throws CDKException {
         if (descriptors == null || speclist == null) throw new CDKException("Descriptors have not been instantiated");
         if (speclist.size() != descriptors.size())
             throw new CDKException("Number of specs and descriptors do not match");
+    }
 
+    /**
+     * Calculate a descriptor for a molecule, giving one value for a molecular
+     * descriptor and a value for each atom or bond for an atomic or bond
+     * descriptor, null for an unknown type of descriptor.
+     */
+    private static DescriptorValue[] calculate(IDescriptor descriptor, IAtomContainer molecule) {
+        if (descriptor instanceof IMolecularDescriptor) {
+            return new DescriptorValue[]{((IMolecularDescriptor) descriptor).calculate(molecule)};
+        } else if (descriptor instanceof IAtomicDescriptor) {
+            DescriptorValue[] values = new DescriptorValue[molecule.getAtomCount()];
+            for (int i = 0; i < values.length; i++)
+                values[i] = ((IAtomicDescriptor) descriptor).calculate(molecule.getAtom(i), molecule);
+            return values;
+        } else if (descriptor instanceof IBondDescriptor) {
+            DescriptorValue[] values = new DescriptorValue[molecule.getBondCount()];
+            for (int i = 0; i < values.length; i++)
+                values[i] = ((IBondDescriptor) descriptor).calculate(molecule.getBond(i), molecule);
+            return values;
+        }
+        return null;
+    }
 
+    /**
+     * Store the values of the descriptors on the molecule, its atoms or its
+     * bonds.
+     */
+    private void store(List<IDescriptor> descriptors, IAtomContainer molecule, DescriptorValue[][] values) {
         for (int i = 0; i < descriptors.size(); i++) {
             IDescriptor descriptor = descriptors.get(i);
             if (descriptor instanceof IMolecularDescriptor) {
-                DescriptorValue value = ((IMolecularDescriptor) descriptor).calculate(molecule);
+                DescriptorValue value = values[i][0];
                 if (value.getException() == null) molecule.setProperty(speclist.get(i), value);
                 else {
                     logger.error("Could not calculate descriptor value for: ", descriptor.getClass().getName());
@@ -188,10 +389,9 @@ public class DescriptorEngine {
                 }
                 logger.debug("Calculated molecular descriptors...");
             } else if (descriptor instanceof IAtomicDescriptor) {
-                Iterator atoms = molecule.atoms().iterator();
-                while (atoms.hasNext()) {
-                    IAtom atom = (IAtom) atoms.next();
-                    DescriptorValue value = ((IAtomicDescriptor) descriptor).calculate(atom, molecule);
+                for (int j = 0; j < values[i].length; j++) {
+                    IAtom atom = molecule.getAtom(j);
+                    DescriptorValue value = values[i][j];
                     if (value.getException() == null) atom.setProperty(speclist.get(i), value);
                     else {
                         logger.error("Could not calculate descriptor value for: ", descriptor.getClass().getName());
@@ -200,10 +400,9 @@ public class DescriptorEngine {
                 }
                 logger.debug("Calculated atomic descriptors...");
             } else if (descriptor instanceof IBondDescriptor) {
-                Iterator bonds = molecule.bonds().iterator();
-                while (bonds.hasNext()) {
-                    IBond bond = (IBond) bonds.next();
-                    DescriptorValue value = ((IBondDescriptor) descriptor).calculate(bond, molecule);
+                for (int j = 0; j < values[i].length; j++) {
+                    IBond bond = molecule.getBond(j);
+                    DescriptorValue value = values[i][j];
                     if (value.getException() == null) bond.setProperty(speclist.get(i), value);
                     else {
                         logger.error("Could not calculate descriptor value for: ", descriptor.getClass().getName());
@@ -217,6 +416,36 @@ public class DescriptorEngine {
         }
     }
 
+    /**
+     * New instances of the descriptors with the same parameters, for
+     * calculating descriptors on another thread.
+     */
+    private List<IDescriptor> copyDescriptors() throws CDKException {
+        List<IDescriptor> copies = new ArrayList<IDescriptor>(descriptors.size());
+        for (IDescriptor descriptor : descriptors) {
+            try {
+                IDescriptor copy = instantiate(descriptor.getClass());
+                if (builder != null)
+                    copy.initialise(builder);
+                Object[] parameters = descriptor.getParameters();
+                if (parameters != null && parameters.length > 0)
+                    copy.setParameters(parameters);
+                copies.add(copy);
+            } catch (CDKException exception) {
+                throw exception;
+            } catch (Exception exception) {
+                throw new CDKException("Could not instantiate " + descriptor.getClass().getName(), exception);
+            }
+        }
+        return copies;
+    }
+
+    private synchronized ExecutorService executor() {
+        if (executor == null)
+            executor = ParallelLoop.newPool(threads, "descriptor-engine", keepAlive, TimeUnit.MILLISECONDS);
+        return executor;
+    }
+
     /**
      * Returns the type of the descriptor as defined in the descriptor dictionary.
      * <p/>
@@ -34,18 +34,16 @@ import org.openscience.cdk.charges.GasteigerPEPEPartialCharges;
 import org.openscience.cdk.charges.Polarizability;
 import org.openscience.cdk.config.IsotopeFactory;
 import org.openscience.cdk.exception.CDKException;
-import org.openscience.cdk.graph.PathTools;
-import org.openscience.cdk.graph.matrix.AdjacencyMatrix;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.interfaces.IBond;
 import org.openscience.cdk.qsar.AbstractMolecularDescriptor;
+import org.openscience.cdk.qsar.DescriptorCache;
 import org.openscience.cdk.qsar.DescriptorSpecification;
 import org.openscience.cdk.qsar.DescriptorValue;
 import org.openscience.cdk.qsar.IMolecularDescriptor;
 import org.openscience.cdk.qsar.result.DoubleArrayResult;
 import org.openscience.cdk.qsar.result.DoubleArrayResultType;
 import org.openscience.cdk.qsar.result.IDescriptorResult;
-import org.openscience.cdk.tools.CDKHydrogenAdder;
 import org.openscience.cdk.tools.ILoggingTool;
 import org.openscience.cdk.tools.LoggingToolFactory;
 import org.openscience.cdk.tools.LonePairElectronChecker;
@@ -318,19 +316,10 @@ public class BCUTDescriptor extends AbstractMolecularDescriptor implements IMole
     public DescriptorValue calculate(IAtomContainer container) {
         int counter;
         IAtomContainer molecule;
-        try {
-            molecule = (IAtomContainer) container.clone();
-        } catch (CloneNotSupportedException e) {
-            logger.debug("Error during clone");
-            return getDummyDescriptorValue(new CDKException("Error occured during clone " + e));
-        }
 
         // add H's in case they're not present
         try {
-            AtomContainerManipulator.percieveAtomTypesAndConfigureAtoms(molecule);
-            CDKHydrogenAdder hAdder = CDKHydrogenAdder.getInstance(molecule.getBuilder());
-            hAdder.addImplicitHydrogens(molecule);
-            AtomContainerManipulator.convertImplicitToExplicitHydrogens(molecule);
+            molecule = DescriptorCache.getExplicitHydrogenCopy(container);
         } catch (Exception e) {
             return getDummyDescriptorValue(new CDKException("Could not add hydrogens: " + e.getMessage(), e));
         }
@@ -412,7 +401,7 @@ public class BCUTDescriptor extends AbstractMolecularDescriptor implements IMole
         double[] eval2 = eigenDecomposition.getRealEigenvalues();
 
 
-        int[][] topoDistance = PathTools.computeFloydAPSP(AdjacencyMatrix.getMatrix(molecule));
+        int[][] topoDistance = DescriptorCache.getTopologicalDistances(molecule);
 
         // get polarizability weighted BCUT
         Polarizability pol = new Polarizability();
@@ -27,6 +27,7 @@ import org.openscience.cdk.geometry.GeometryTools;
 import org.openscience.cdk.geometry.surface.NumericalSurface;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.qsar.AbstractMolecularDescriptor;
+import org.openscience.cdk.qsar.DescriptorCache;
 import org.openscience.cdk.qsar.DescriptorSpecification;
 import org.openscience.cdk.qsar.DescriptorValue;
 import org.openscience.cdk.qsar.IMolecularDescriptor;
@@ -254,10 +255,10 @@ public class CPSADescriptor extends AbstractMolecularDescriptor implements IMole
 //            logger.debug(e);
 //        }
 
-        GasteigerMarsiliPartialCharges peoe;
         try {
-            peoe = new GasteigerMarsiliPartialCharges();
-            peoe.assignGasteigerMarsiliSigmaPartialCharges(container, true);
+            double[] charges = DescriptorCache.getGasteigerMarsiliCharges(atomContainer);
+            for (int i = 0; i < charges.length; i++)
+                container.getAtom(i).setCharge(charges[i]);
         } catch (Exception e) {
             logger.debug("Error in assigning Gasteiger-Marsilli charges");
             for (int i = 0; i < 29; i++) retval.add(Double.NaN);
@@ -22,16 +22,14 @@ package org.openscience.cdk.qsar.descriptors.molecular;
 import org.openscience.cdk.annotations.TestClass;
 import org.openscience.cdk.annotations.TestMethod;
 import org.openscience.cdk.exception.CDKException;
-import org.openscience.cdk.graph.PathTools;
-import org.openscience.cdk.graph.matrix.AdjacencyMatrix;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.qsar.AbstractMolecularDescriptor;
+import org.openscience.cdk.qsar.DescriptorCache;
 import org.openscience.cdk.qsar.DescriptorSpecification;
 import org.openscience.cdk.qsar.DescriptorValue;
 import org.openscience.cdk.qsar.IMolecularDescriptor;
 import org.openscience.cdk.qsar.result.IDescriptorResult;
 import org.openscience.cdk.qsar.result.IntegerResult;
-import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
 
 
 /**
@@ -145,11 +143,10 @@ public class EccentricConnectivityIndexDescriptor extends AbstractMolecularDescr
 
     @TestMethod("testCalculate_IAtomContainer")
     public DescriptorValue calculate(IAtomContainer container) {
-        IAtomContainer local = AtomContainerManipulator.removeHydrogens(container);
+        IAtomContainer local = DescriptorCache.getHydrogenFreeCopy(container);
 
         int natom = local.getAtomCount();
-        int[][] admat = AdjacencyMatrix.getMatrix(local);
-        int[][] distmat = PathTools.computeFloydAPSP(admat);
+        int[][] distmat = DescriptorCache.getTopologicalDistances(local);
         
         int eccenindex = 0;
         for (int i = 0; i < natom; i++) {
@@ -29,12 +29,12 @@ import org.openscience.cdk.interfaces.IBond;
 import org.openscience.cdk.interfaces.IRing;
 import org.openscience.cdk.interfaces.IRingSet;
 import org.openscience.cdk.qsar.AbstractMolecularDescriptor;
+import org.openscience.cdk.qsar.DescriptorCache;
 import org.openscience.cdk.qsar.DescriptorSpecification;
 import org.openscience.cdk.qsar.DescriptorValue;
 import org.openscience.cdk.qsar.IMolecularDescriptor;
 import org.openscience.cdk.qsar.result.DoubleResult;
 import org.openscience.cdk.qsar.result.IDescriptorResult;
-import org.openscience.cdk.ringsearch.AllRingsFinder;
 import org.openscience.cdk.tools.CDKHydrogenAdder;
 import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
 
@@ -229,7 +229,7 @@ public class TPSADescriptor extends AbstractMolecularDescriptor implements IMole
     public DescriptorValue calculate(IAtomContainer atomContainer) {
         IAtomContainer ac;
         try {
-            ac = (IAtomContainer) atomContainer.clone();
+            ac = DescriptorCache.getCopy(atomContainer);
         } catch (CloneNotSupportedException e) {
             return getDummyDescriptorValue(e);
         }
@@ -238,7 +238,7 @@ public class TPSADescriptor extends AbstractMolecularDescriptor implements IMole
         // calculate the set of all rings
         IRingSet rs;
         try {
-            rs = (new AllRingsFinder()).findAllRings(ac);
+            rs = DescriptorCache.getAllRings(ac);
         } catch (CDKException e) {
             return getDummyDescriptorValue(e);
         }
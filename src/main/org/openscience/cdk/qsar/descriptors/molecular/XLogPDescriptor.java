@@ -37,14 +37,13 @@ import org.openscience.cdk.isomorphism.matchers.smarts.AromaticAtom;
 import org.openscience.cdk.isomorphism.matchers.smarts.AromaticQueryBond;
 import org.openscience.cdk.isomorphism.mcss.RMap;
 import org.openscience.cdk.qsar.AbstractMolecularDescriptor;
+import org.openscience.cdk.qsar.DescriptorCache;
 import org.openscience.cdk.qsar.DescriptorSpecification;
 import org.openscience.cdk.qsar.DescriptorValue;
 import org.openscience.cdk.qsar.IMolecularDescriptor;
 import org.openscience.cdk.qsar.result.DoubleResult;
 import org.openscience.cdk.qsar.result.IDescriptorResult;
 import org.openscience.cdk.ringsearch.SSSRFinder;
-import org.openscience.cdk.tools.CDKHydrogenAdder;
-import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
 import org.openscience.cdk.tools.manipulator.RingSetManipulator;
 
 import java.util.ArrayList;
@@ -209,18 +208,12 @@ public class XLogPDescriptor extends AbstractMolecularDescriptor implements IMol
     public DescriptorValue calculate(IAtomContainer atomContainer) {
         IAtomContainer ac;
         try {
-            ac = (IAtomContainer) atomContainer.clone();
-            AtomContainerManipulator.percieveAtomTypesAndConfigureAtoms(ac);
-            CDKHydrogenAdder hAdder = CDKHydrogenAdder.getInstance(ac.getBuilder());
-            hAdder.addImplicitHydrogens(ac);
-            AtomContainerManipulator.convertImplicitToExplicitHydrogens(ac);
-        } catch (CloneNotSupportedException e) {
-            return getDummyDescriptorValue(e);
+            ac = DescriptorCache.getExplicitHydrogenCopy(atomContainer);
         } catch (CDKException e) {
             return getDummyDescriptorValue(e);
         }
 
-        IRingSet rs = (IRingSet) new SSSRFinder(ac).findSSSR();
+        IRingSet rs = DescriptorCache.getSSSR(ac);
         IRingSet atomRingSet=null;
         if (checkAromaticity) {
             try {                
@@ -150,6 +150,24 @@ public class ChemObject implements Serializable, IChemObject, Cloneable
 	 */
 	public void notifyChanged(IChemObjectChangeEvent evt) {}
 
+	/**
+	 *  Start a batch of changes, there are no notifications to batch.
+	 */
+	public void beginChanges() {
+		changeDepth++;
+	}
+
+	/**
+	 *  End a batch of changes started by {@link #beginChanges()}.
+	 *
+	 *@throws  IllegalStateException  no batch of changes was started
+	 */
+	public void endChanges() {
+		if (changeDepth == 0)
+			throw new IllegalStateException("no batch of changes was started");
+		changeDepth--;
+	}
+
 	/**
 	 * Lazy creation of properties hash.
 	 *
@@ -261,6 +279,7 @@ public class ChemObject implements Serializable, IChemObject, Cloneable
 	public Object clone() throws CloneNotSupportedException
 	{
 		ChemObject clone = (ChemObject)super.clone();
+		clone.changeDepth = 0;
 		// clone the flags
 		clone.flags = this.getFlagValue();
 
@@ -412,6 +431,9 @@ public class ChemObject implements Serializable, IChemObject, Cloneable
 
 	private boolean doNotification = true;
 
+	/** the depth of the nested batches of changes */
+	private transient int changeDepth;
+
 	public void setNotification(boolean bool) {
 		this.doNotification = bool;
 	}
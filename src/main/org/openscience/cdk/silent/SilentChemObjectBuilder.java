@@ -85,9 +85,13 @@ import org.openscience.cdk.stereo.TetrahedralChirality;
 public class SilentChemObjectBuilder implements IChemObjectBuilder {
 
 	private static IChemObjectBuilder instance = null;
+	private static IChemObjectBuilder indexedInstance = null;
 	private final DynamicFactory factory = new DynamicFactory(200);
 
-	private SilentChemObjectBuilder() {
+	/**
+	 * @param indexed create {@link IndexedAtomContainer}s for {@link IAtomContainer}
+	 */
+	private SilentChemObjectBuilder(boolean indexed) {
 
         // self reference required for stereo-elements
         final IChemObjectBuilder self = this;
@@ -108,7 +112,8 @@ public class SilentChemObjectBuilder implements IChemObjectBuilder {
         factory.register(ILonePair.class,          LonePair.class);
 
         // atom containers
-        factory.register(IAtomContainer.class, AtomContainer.class);
+        factory.register(IAtomContainer.class,
+                         indexed ? IndexedAtomContainer.class : AtomContainer.class);
         factory.register(IRing.class,          Ring.class);
         factory.register(ICrystal.class,       Crystal.class);
         factory.register(IPolymer.class,       Polymer.class);
@@ -181,11 +186,31 @@ public class SilentChemObjectBuilder implements IChemObjectBuilder {
      */
 	public static IChemObjectBuilder getInstance() {
 		if (instance == null) {
-			instance = new SilentChemObjectBuilder();
+			instance = new SilentChemObjectBuilder(false);
 		}
 		return instance;
 	}
 
+    /**
+     * Access the singleton instance of the SilentChemObjectBuilder which creates
+     * {@link IndexedAtomContainer}s for {@link IAtomContainer}. All other
+     * objects are the same as those of {@link #getInstance()}. <p/>
+     * <pre>{@code
+     * IChemObjectBuilder builder = SilentChemObjectBuilder.getIndexedInstance();
+     *
+     * // an IndexedAtomContainer
+     * IAtomContainer container = builder.newInstance(IAtomContainer.class);
+     * }</pre>
+     *
+     * @return a SilentChemObjectBuilder instance creating indexed atom containers
+     */
+	public static IChemObjectBuilder getIndexedInstance() {
+		if (indexedInstance == null) {
+			indexedInstance = new SilentChemObjectBuilder(true);
+		}
+		return indexedInstance;
+	}
+
     /**
      * @inheritDoc
      */
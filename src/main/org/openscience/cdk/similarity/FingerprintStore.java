@@ -0,0 +1,578 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.similarity;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.fingerprint.IBitFingerprint;
+import org.openscience.cdk.fingerprint.IFingerprinter;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.tools.ParallelLoop;
+
+/**
+ * A store of bit fingerprints for Tanimoto similarity searches. The
+ * fingerprints are packed one after another into a single <code>long[]</code>
+ * and kept sorted by their number of set bits (popcount), which is stored
+ * with each fingerprint.
+ *
+ * <p>Searches use the bound of Swamidass and Baldi, the Tanimoto coefficient
+ * of fingerprints with <i>a</i> and <i>b</i> bits set is at most
+ * min(a,b)/max(a,b). A threshold search therefore only compares the query
+ * with the fingerprints whose popcount lies in a range, and a search for the
+ * <i>k</i> most similar fingerprints compares the fingerprints in order of
+ * decreasing bound until the bound falls below the <i>k</i>th best
+ * similarity. Large stores are searched on several threads.
+ *
+ * <pre>
+ * FingerprintStore store = new FingerprintStore(new Fingerprinter());
+ * for (IAtomContainer molecule : molecules)
+ *     store.add(molecule);
+ * for (FingerprintStore.Hit hit : store.findNearest(fingerprinter.getBitFingerprint(query), 10))
+ *     System.out.println(hit.getIndex() + " " + hit.getSimilarity());
+ * </pre>
+ *
+ * <p>The fingerprints are identified by the order they were added in. Adding
+ * fingerprints is not thread safe, once they are added the store may be
+ * searched from several threads.
+ *
+ * @cdk.module fingerprint
+ * @cdk.githash
+ * @cdk.keyword similarity, tanimoto
+ * @see Tanimoto
+ */
+@TestClass("org.openscience.cdk.similarity.FingerprintStoreTest")
+public class FingerprintStore {
+
+    private static final int FILE_MAGIC   = 0x43444b46; // "CDKF"
+    private static final int FILE_VERSION = 1;
+    private static final int HEADER_SIZE  = 16;
+
+    /** Fewer fingerprints than this per thread are searched on one thread. */
+    private static final int MIN_ROWS_PER_TASK = 20000;
+
+    /** Orders hits from the most to the least similar, then by index. */
+    static final Comparator<Hit> BEST_FIRST = new Comparator<Hit>() {
+        public int compare(Hit a, Hit b) {
+            if (a.similarity != b.similarity)
+                return a.similarity > b.similarity ? -1 : 1;
+            return a.index < b.index ? -1 : a.index > b.index ? 1 : 0;
+        }
+    };
+
+    private final IFingerprinter fingerprinter;
+    private final int            size;
+    private final int            words;
+
+    // the fingerprints in rows of 'words' longs with their popcounts and
+    // indices, the rows are in order of popcount when 'sorted' == 'count'
+    private long[] bits;
+    private int[]  popcounts;
+    private int[]  ids;
+    private int    count;
+    private int    sorted;
+
+    private int             threads = Runtime.getRuntime().availableProcessors();
+    private ExecutorService executor;
+
+    /**
+     * Create an empty store for fingerprints of the given number of bits.
+     *
+     * @param size number of bits of the fingerprints
+     */
+    @TestMethod("testFindSimilar")
+    public FingerprintStore(int size) {
+        this(null, size);
+    }
+
+    /**
+     * Create an empty store for the fingerprints of a fingerprinter, the
+     * molecules can then be added with {@link #add(IAtomContainer)}.
+     *
+     * @param fingerprinter the fingerprinter
+     */
+    @TestMethod("testFingerprinter")
+    public FingerprintStore(IFingerprinter fingerprinter) {
+        this(fingerprinter, fingerprinter.getSize());
+    }
+
+    private FingerprintStore(IFingerprinter fingerprinter, int size) {
+        if (size <= 0)
+            throw new IllegalArgumentException("fingerprint size must be positive");
+        this.fingerprinter = fingerprinter;
+        this.size          = size;
+        this.words         = (size + 63) >>> 6;
+        this.bits          = new long[16 * words];
+        this.popcounts     = new int[16];
+        this.ids           = new int[16];
+    }
+
+    /**
+     * Set the number of threads used for searching, by default the number of
+     * available processors.
+     *
+     * @param threads number of threads
+     */
+    @TestMethod("testParallelSearch")
+    public synchronized void setThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("at least one thread is needed");
+        this.threads = threads;
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    /**
+     * Number of fingerprints in the store.
+     *
+     * @return number of fingerprints
+     */
+    @TestMethod("testFindSimilar")
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Number of bits of the fingerprints.
+     *
+     * @return the fingerprint size
+     */
+    @TestMethod("testFindSimilar")
+    public int getFingerprintSize() {
+        return size;
+    }
+
+    /**
+     * Add the fingerprint of a molecule, the store must have been created
+     * with a fingerprinter.
+     *
+     * @param molecule the molecule
+     * @return the index of the fingerprint
+     * @throws CDKException if the fingerprint could not be calculated
+     */
+    @TestMethod("testFingerprinter")
+    public int add(IAtomContainer molecule) throws CDKException {
+        if (fingerprinter == null)
+            throw new IllegalStateException("the store was created without a fingerprinter");
+        return add(fingerprinter.getBitFingerprint(molecule));
+    }
+
+    /**
+     * Add a fingerprint.
+     *
+     * @param fingerprint the fingerprint
+     * @return the index of the fingerprint
+     * @throws IllegalArgumentException if the fingerprint has bits beyond the size of the store
+     */
+    @TestMethod("testFindSimilar")
+    public int add(IBitFingerprint fingerprint) {
+        long[] packed = pack(fingerprint);
+        if (count == popcounts.length)
+            grow(2 * count);
+        System.arraycopy(packed, 0, bits, count * words, words);
+        popcounts[count] = popcount(packed);
+        ids[count]       = count;
+        return count++;
+    }
+
+    /**
+     * The fingerprint with the given index.
+     *
+     * @param index index of the fingerprint
+     * @return the set bits of the fingerprint
+     */
+    @TestMethod("testSaveLoad")
+    public BitSet getFingerprint(int index) {
+        if (index < 0 || index >= count)
+            throw new IndexOutOfBoundsException("no fingerprint " + index);
+        sort();
+        int row = 0;
+        while (ids[row] != index)
+            row++;
+        BitSet fingerprint = new BitSet(size);
+        for (int i = 0; i < words; i++) {
+            long word = bits[row * words + i];
+            while (word != 0) {
+                int bit = Long.numberOfTrailingZeros(word);
+                fingerprint.set(64 * i + bit);
+                word &= word - 1;
+            }
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Find the fingerprints with a Tanimoto coefficient of at least the
+     * threshold to the query.
+     *
+     * @param query     the query fingerprint
+     * @param threshold the minimum similarity, greater than 0
+     * @return the hits, the most similar first
+     */
+    @TestMethod("testFindSimilar,testParallelSearch")
+    public List<Hit> findSimilar(IBitFingerprint query, final double threshold) {
+        if (threshold <= 0 || threshold > 1)
+            throw new IllegalArgumentException("threshold must be in (0,1]");
+        sort();
+        final long[] q  = pack(query);
+        final int    qc = popcount(q);
+        // Tanimoto <= min(a,b)/max(a,b), only popcounts in [t*a, a/t] can reach the threshold
+        final int min = (int) Math.ceil(threshold * qc - 1e-9);
+        final int max = (int) Math.floor(qc / threshold + 1e-9);
+
+        List<Hit> hits = new ArrayList<Hit>();
+        for (List<Hit> part : inParallel(new Slice() {
+            public List<Hit> search(int from, int to) {
+                List<Hit> hits = new ArrayList<Hit>();
+                int end = lowerBound(from, to, max + 1);
+                for (int row = lowerBound(from, to, min); row < end; row++) {
+                    double similarity = similarity(q, qc, row);
+                    if (similarity >= threshold)
+                        hits.add(new Hit(ids[row], similarity));
+                }
+                return hits;
+            }
+        }))
+            hits.addAll(part);
+        Collections.sort(hits, BEST_FIRST);
+        return hits;
+    }
+
+    /**
+     * Find the <i>k</i> fingerprints with the highest Tanimoto coefficient to
+     * the query. Of equally similar fingerprints the ones added first are
+     * preferred.
+     *
+     * @param query the query fingerprint
+     * @param k     number of hits
+     * @return the hits, the most similar first
+     */
+    @TestMethod("testFindNearest,testParallelSearch")
+    public List<Hit> findNearest(IBitFingerprint query, final int k) {
+        if (k < 1)
+            throw new IllegalArgumentException("k must be positive");
+        sort();
+        final long[] q  = pack(query);
+        final int    qc = popcount(q);
+
+        List<Hit> hits = new ArrayList<Hit>();
+        for (List<Hit> part : inParallel(new Slice() {
+            public List<Hit> search(int from, int to) {
+                // the worst hit of the k best at the head
+                PriorityQueue<Hit> best = new PriorityQueue<Hit>(k, Collections.reverseOrder(BEST_FIRST));
+                // walk outwards from the query popcount, always to the side with the higher bound
+                int right = lowerBound(from, to, qc);
+                int left  = right - 1;
+                while (left >= from || right < to) {
+                    double leftBound  = left >= from ? bound(qc, popcounts[left]) : -1;
+                    double rightBound = right < to ? bound(qc, popcounts[right]) : -1;
+                    int    row;
+                    double bound;
+                    if (leftBound >= rightBound) {
+                        row   = left--;
+                        bound = leftBound;
+                    } else {
+                        row   = right++;
+                        bound = rightBound;
+                    }
+                    if (best.size() == k && bound < best.peek().similarity)
+                        break;
+                    Hit hit = new Hit(ids[row], similarity(q, qc, row));
+                    if (best.size() < k) {
+                        best.add(hit);
+                    } else if (BEST_FIRST.compare(hit, best.peek()) < 0) {
+                        best.poll();
+                        best.add(hit);
+                    }
+                }
+                return new ArrayList<Hit>(best);
+            }
+        }))
+            hits.addAll(part);
+        Collections.sort(hits, BEST_FIRST);
+        return hits.size() > k ? new ArrayList<Hit>(hits.subList(0, k)) : hits;
+    }
+
+    /**
+     * Save the store to a file, through a memory map of the file.
+     *
+     * @param file the file to write
+     * @throws IOException if the file could not be written
+     */
+    @TestMethod("testSaveLoad")
+    public void save(File file) throws IOException {
+        sort();
+        RandomAccessFile out = new RandomAccessFile(file, "rw");
+        try {
+            out.setLength(0);
+            FileChannel channel = out.getChannel();
+            ByteBuffer  header  = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + 8L * count);
+            header.putInt(FILE_MAGIC).putInt(FILE_VERSION).putInt(size).putInt(count);
+            header.asIntBuffer().put(popcounts, 0, count);
+            header.position(HEADER_SIZE + 4 * count);
+            header.asIntBuffer().put(ids, 0, count);
+            long position = HEADER_SIZE + 8L * count;
+            int  rows     = rowsPerMap();
+            for (int row = 0; row < count; row += rows) {
+                int n = Math.min(rows, count - row);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, 8L * n * words);
+                buffer.asLongBuffer().put(bits, row * words, n * words);
+                buffer.force();
+                position += 8L * n * words;
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Load a store saved with {@link #save(File)}, through a memory map of
+     * the file.
+     *
+     * @param file the file to read
+     * @return the store
+     * @throws IOException if the file could not be read or is not a saved store
+     */
+    @TestMethod("testSaveLoad")
+    public static FingerprintStore load(File file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = in.getChannel();
+            if (channel.size() < HEADER_SIZE)
+                throw new IOException("Not a fingerprint store: " + file);
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != FILE_MAGIC)
+                throw new IOException("Not a fingerprint store: " + file);
+            if (header.getInt() != FILE_VERSION)
+                throw new IOException("Unsupported fingerprint store version: " + file);
+            int size  = header.getInt();
+            int count = header.getInt();
+
+            FingerprintStore store = new FingerprintStore(null, size);
+            if (channel.size() != HEADER_SIZE + 8L * count + 8L * count * store.words)
+                throw new IOException("Truncated fingerprint store: " + file);
+            store.grow(Math.max(count, 16));
+            ByteBuffer numbers = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, 8L * count);
+            numbers.asIntBuffer().get(store.popcounts, 0, count);
+            numbers.position(4 * count);
+            numbers.asIntBuffer().get(store.ids, 0, count);
+            long position = HEADER_SIZE + 8L * count;
+            int  rows     = store.rowsPerMap();
+            for (int row = 0; row < count; row += rows) {
+                int n = Math.min(rows, count - row);
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, 8L * n * store.words);
+                buffer.asLongBuffer().get(store.bits, row * store.words, n * store.words);
+                position += 8L * n * store.words;
+            }
+            store.count  = count;
+            store.sorted = count;
+            return store;
+        } finally {
+            in.close();
+        }
+    }
+
+    /** Number of rows which fit in one memory map. */
+    private int rowsPerMap() {
+        return Math.max(1, (1 << 30) / (8 * words));
+    }
+
+    private static double bound(int a, int b) {
+        if (a == 0 && b == 0)
+            return 0;
+        return a < b ? (double) a / b : (double) b / a;
+    }
+
+    private double similarity(long[] query, int queryCount, int row) {
+        int common = 0;
+        int offset = row * words;
+        for (int i = 0; i < words; i++)
+            common += Long.bitCount(bits[offset + i] & query[i]);
+        int union = queryCount + popcounts[row] - common;
+        return union == 0 ? 0 : (double) common / union;
+    }
+
+    /** The first row in [from,to) with a popcount of at least <i>c</i>. */
+    private int lowerBound(int from, int to, int c) {
+        int lo = from, hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (popcounts[mid] < c)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Pack the bits of a fingerprint into longs. The size of a bit set based
+     * fingerprint depends on how the bit set was created, so the set bits are
+     * checked rather than the size.
+     */
+    private long[] pack(IBitFingerprint fingerprint) {
+        long[] packed = new long[words];
+        BitSet set    = fingerprint.asBitSet();
+        if (set.length() > size)
+            throw new IllegalArgumentException("Fingerprint has bits set beyond the size of " + size);
+        for (int bit = set.nextSetBit(0); bit >= 0; bit = set.nextSetBit(bit + 1))
+            packed[bit >>> 6] |= 1L << bit;
+        return packed;
+    }
+
+    private static int popcount(long[] packed) {
+        int c = 0;
+        for (long word : packed)
+            c += Long.bitCount(word);
+        return c;
+    }
+
+    private void grow(int capacity) {
+        long[] newBits = new long[capacity * words];
+        System.arraycopy(bits, 0, newBits, 0, count * words);
+        int[] newPopcounts = new int[capacity];
+        System.arraycopy(popcounts, 0, newPopcounts, 0, count);
+        int[] newIds = new int[capacity];
+        System.arraycopy(ids, 0, newIds, 0, count);
+        bits      = newBits;
+        popcounts = newPopcounts;
+        ids       = newIds;
+    }
+
+    /**
+     * Sort the rows by popcount, a counting sort over the rows in the order
+     * they were added, so rows of the same popcount stay in that order.
+     */
+    private synchronized void sort() {
+        if (sorted == count)
+            return;
+        int[] offsets = new int[size + 2];
+        for (int row = 0; row < count; row++)
+            offsets[popcounts[row] + 1]++;
+        for (int c = 0; c <= size; c++)
+            offsets[c + 1] += offsets[c];
+        long[] newBits      = new long[bits.length];
+        int[]  newPopcounts = new int[popcounts.length];
+        int[]  newIds       = new int[ids.length];
+        int[]  rows         = new int[count];
+        for (int row = 0; row < count; row++)
+            rows[ids[row]] = row;
+        for (int id = 0; id < count; id++) {
+            int row = rows[id];
+            int to  = offsets[popcounts[row]]++;
+            System.arraycopy(bits, row * words, newBits, to * words, words);
+            newPopcounts[to] = popcounts[row];
+            newIds[to]       = id;
+        }
+        bits      = newBits;
+        popcounts = newPopcounts;
+        ids       = newIds;
+        sorted    = count;
+    }
+
+    /** A part of a search, over the rows from <i>from</i> to <i>to</i>. */
+    private interface Slice {
+        List<Hit> search(int from, int to);
+    }
+
+    /**
+     * Run a search over all rows, split into slices which are searched on
+     * several threads when the store is large.
+     */
+    private List<List<Hit>> inParallel(final Slice slice) {
+        final int tasks = Math.max(1, Math.min(threads, count / MIN_ROWS_PER_TASK));
+        if (tasks == 1)
+            return Collections.singletonList(slice.search(0, count));
+        final int             rows  = count;
+        final List<List<Hit>> parts = new ArrayList<List<Hit>>(Collections.<List<Hit>>nCopies(tasks, null));
+        ParallelLoop.forEach(tasks, executor(), tasks, new ParallelLoop.Body<RuntimeException>() {
+            public void run(int i) {
+                int from = (int) ((long) rows * i / tasks);
+                int to   = (int) ((long) rows * (i + 1) / tasks);
+                parts.set(i, slice.search(from, to));
+            }
+        });
+        return parts;
+    }
+
+    private synchronized ExecutorService executor() {
+        if (executor == null)
+            executor = ParallelLoop.newPool(threads, "fingerprint-search");
+        return executor;
+    }
+
+    /**
+     * A fingerprint found by a search, also used for the hits of a
+     * {@link MinHashIndex}.
+     */
+    public static final class Hit {
+
+        private final int    index;
+        private final double similarity;
+
+        Hit(int index, double similarity) {
+            this.index      = index;
+            this.similarity = similarity;
+        }
+
+        /**
+         * The index of the fingerprint, in the order they were added.
+         *
+         * @return the index
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * The similarity of the fingerprint and the query, the Tanimoto
+         * coefficient for a search of this store.
+         *
+         * @return the similarity
+         */
+        public double getSimilarity() {
+            return similarity;
+        }
+
+        @Override
+        public String toString() {
+            return index + ":" + similarity;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.similarity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.fingerprint.ICountFingerprint;
+import org.openscience.cdk.similarity.FingerprintStore.Hit;
+import org.openscience.cdk.similarity.SparseCountVector.Measure;
+
+/**
+ * A locality sensitive hashing index of count fingerprints for searches that
+ * do not compare the query with every fingerprint.
+ *
+ * <p>Each fingerprint gets a MinHash signature of <i>bands</i> &times;
+ * <i>rows</i> values. A hash with count <i>c</i> is expanded to the
+ * <i>c</i> elements (hash, 1) ... (hash, c), so that the chance that two
+ * fingerprints have the same minimum for a hash function is their MinMax
+ * coefficient (weighted Jaccard). The signature is split into bands of
+ * <i>rows</i> values and fingerprints with an equal band are candidates.
+ * The candidates are then scored exactly with the {@link Measure} of the
+ * index. The chance of a fingerprint with MinMax coefficient <i>s</i> to the
+ * query being a candidate is 1 - (1 - s<sup>rows</sup>)<sup>bands</sup>,
+ * more bands find more of the dissimilar fingerprints and more rows fewer.
+ *
+ * <pre>
+ * MinHashIndex index = new MinHashIndex();
+ * for (IAtomContainer molecule : molecules)
+ *     index.add(fingerprinter.getCountFingerprint(molecule));
+ * List&lt;FingerprintStore.Hit&gt; hits = index.findSimilar(SparseCountVector.of(query), 0.7);
+ * </pre>
+ *
+ * <p>Adding fingerprints is not thread safe, once they are added the index
+ * may be searched from several threads.
+ *
+ * @cdk.module fingerprint
+ * @cdk.githash
+ * @cdk.keyword similarity, MinHash
+ * @cdk.keyword locality sensitive hashing
+ * @see SparseCountVector
+ */
+@TestClass("org.openscience.cdk.similarity.MinHashIndexTest")
+public class MinHashIndex {
+
+    private final Measure measure;
+    private final int     bands;
+    private final int     rows;
+    private final long[]  seeds;
+
+    private final List<SparseCountVector> vectors = new ArrayList<SparseCountVector>();
+
+    // the band keys of each fingerprint, key << 32 | index, the entries of a
+    // band are sorted for lookup when 'sorted' == vectors.size()
+    private long[][] buckets;
+    private int      sorted;
+
+    /**
+     * Create an index of 32 bands of 4 rows which scores the candidates with
+     * the MinMax coefficient. A fingerprint with a coefficient of 0.5 to the
+     * query is found with a chance of 87%, one of 0.7 with more than 99%.
+     */
+    public MinHashIndex() {
+        this(Measure.MIN_MAX, 32, 4);
+    }
+
+    /**
+     * Create an index with the given bands and rows per band.
+     *
+     * @param measure the coefficient to score the candidates with
+     * @param bands   number of bands of the signature
+     * @param rows    number of MinHash values per band
+     */
+    public MinHashIndex(Measure measure, int bands, int rows) {
+        if (bands < 1 || rows < 1)
+            throw new IllegalArgumentException("at least one band and row are required");
+        this.measure = measure;
+        this.bands   = bands;
+        this.rows    = rows;
+        this.seeds   = new long[bands * rows];
+        long seed = 0x2545F4914F6CDD1DL;
+        for (int i = 0; i < seeds.length; i++)
+            seeds[i] = seed = mix(seed + 0x9E3779B97F4A7C15L);
+        this.buckets = new long[bands][16];
+    }
+
+    /**
+     * The number of fingerprints in the index.
+     *
+     * @return the number of fingerprints
+     */
+    @TestMethod("testAdd")
+    public int size() {
+        return vectors.size();
+    }
+
+    /**
+     * Add a count fingerprint to the index.
+     *
+     * @param fingerprint a count fingerprint
+     * @return the index of the fingerprint
+     */
+    @TestMethod("testAdd")
+    public int add(ICountFingerprint fingerprint) {
+        return add(SparseCountVector.of(fingerprint));
+    }
+
+    /**
+     * Add a count vector to the index.
+     *
+     * @param vector a count vector
+     * @return the index of the vector
+     */
+    @TestMethod("testAdd")
+    public int add(SparseCountVector vector) {
+        int   index = vectors.size();
+        int[] keys  = bandKeys(vector);
+        if (index == buckets[0].length) {
+            for (int b = 0; b < bands; b++)
+                buckets[b] = Arrays.copyOf(buckets[b], 2 * index);
+        }
+        // the entries are appended at the end and sorted on the next search
+        for (int b = 0; b < bands; b++)
+            buckets[b][index] = entry(keys[b], index);
+        vectors.add(vector);
+        return index;
+    }
+
+    /**
+     * Access a count vector of the index.
+     *
+     * @param index the index of the vector
+     * @return the count vector
+     */
+    @TestMethod("testAdd")
+    public SparseCountVector getVector(int index) {
+        return vectors.get(index);
+    }
+
+    /**
+     * The indices of the fingerprints that share at least one band with the
+     * query, in ascending order.
+     *
+     * @param query the query vector
+     * @return the candidates
+     */
+    @TestMethod("testCandidates")
+    public int[] candidates(SparseCountVector query) {
+        sort();
+        int   n     = sorted;
+        int[] keys  = bandKeys(query);
+        int[] found = new int[16];
+        int   count = 0;
+        for (int b = 0; b < bands; b++) {
+            long[] bucket = buckets[b];
+            long   lower  = entry(keys[b], 0);
+            int    pos    = Arrays.binarySearch(bucket, 0, n, lower);
+            if (pos < 0)
+                pos = -pos - 1;
+            for (; pos < n && (int) (bucket[pos] >> 32) == keys[b]; pos++) {
+                if (count == found.length)
+                    found = Arrays.copyOf(found, 2 * count);
+                found[count++] = (int) bucket[pos];
+            }
+        }
+        Arrays.sort(found, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || found[unique - 1] != found[i])
+                found[unique++] = found[i];
+        }
+        return Arrays.copyOf(found, unique);
+    }
+
+    /**
+     * Find the candidates with a coefficient of at least the threshold to
+     * the query. Fingerprints that are not a candidate are not found, even if
+     * they are similar enough.
+     *
+     * @param query     the query vector
+     * @param threshold the minimum coefficient
+     * @return the hits, most similar first
+     */
+    @TestMethod("testFindSimilar")
+    public List<Hit> findSimilar(SparseCountVector query, double threshold) {
+        List<Hit> hits = new ArrayList<Hit>();
+        for (int index : candidates(query)) {
+            double similarity = SparseCountVector.similarity(measure, query, vectors.get(index));
+            if (similarity >= threshold)
+                hits.add(new Hit(index, similarity));
+        }
+        Collections.sort(hits, FingerprintStore.BEST_FIRST);
+        return hits;
+    }
+
+    /**
+     * Find the <i>k</i> candidates most similar to the query.
+     *
+     * @param query the query vector
+     * @param k     the maximum number of hits
+     * @return the hits, most similar first
+     */
+    @TestMethod("testFindNearest")
+    public List<Hit> findNearest(SparseCountVector query, int k) {
+        List<Hit> hits = findSimilar(query, Double.NEGATIVE_INFINITY);
+        return hits.size() > k ? new ArrayList<Hit>(hits.subList(0, k)) : hits;
+    }
+
+    /**
+     * Sort the band entries that were added since the last search.
+     */
+    private synchronized void sort() {
+        int n = vectors.size();
+        if (sorted == n)
+            return;
+        for (int b = 0; b < bands; b++)
+            Arrays.sort(buckets[b], 0, n);
+        sorted = n;
+    }
+
+    /**
+     * The key of each band of the MinHash signature of a vector.
+     */
+    private int[] bandKeys(SparseCountVector vector) {
+        long[] minima = new long[seeds.length];
+        Arrays.fill(minima, Long.MAX_VALUE);
+        for (int i = 0; i < vector.size(); i++) {
+            long hash = (long) vector.getHash(i) << 32;
+            for (int c = 1, count = vector.getCount(i); c <= count; c++) {
+                long element = mix(hash | c);
+                for (int s = 0; s < seeds.length; s++) {
+                    long value = mix(element ^ seeds[s]);
+                    if (value < minima[s])
+                        minima[s] = value;
+                }
+            }
+        }
+        int[] keys = new int[bands];
+        for (int b = 0; b < bands; b++) {
+            long key = b;
+            for (int r = 0; r < rows; r++)
+                key = mix(key ^ minima[b * rows + r]);
+            keys[b] = (int) (key ^ (key >>> 32));
+        }
+        return keys;
+    }
+
+    private static long entry(int key, int index) {
+        return ((long) key << 32) | (index & 0xffffffffL);
+    }
+
+    /**
+     * The finalizer of the 64 bit MurmurHash3, spreads each input bit over
+     * the output.
+     */
+    private static long mix(long x) {
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        x *= 0xc4ceb9fe1a85ec53L;
+        x ^= x >>> 33;
+        return x;
+    }
+}
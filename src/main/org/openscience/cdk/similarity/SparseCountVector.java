@@ -0,0 +1,354 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.similarity;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.fingerprint.ICountFingerprint;
+
+/**
+ * An immutable count fingerprint of hashes in ascending order, each with a
+ * positive count. The sums of the counts and of the squared counts are
+ * computed once, so comparing two vectors takes a single merge of the two
+ * hash arrays.
+ *
+ * <pre>
+ * SparseCountVector query = SparseCountVector.of(fingerprinter.getCountFingerprint(molecule));
+ * double[] scores = SparseCountVector.score(Measure.TANIMOTO, query, vectors, null);
+ * </pre>
+ *
+ * <p>The coefficients of two empty vectors are 0.
+ *
+ * @cdk.module fingerprint
+ * @cdk.githash
+ * @cdk.keyword similarity, tanimoto
+ * @see Tanimoto
+ * @see MinHashIndex
+ */
+@TestClass("org.openscience.cdk.similarity.SparseCountVectorTest")
+public final class SparseCountVector {
+
+    /**
+     * The similarity coefficients of count vectors, where <i>xy</i> is the
+     * dot product of the two vectors, <i>x</i> and <i>y</i> their sums of
+     * squared counts and <i>min</i> and <i>max</i> the sums of the smaller
+     * and larger count of each hash.
+     */
+    public enum Measure {
+        /** The continuous Tanimoto coefficient, xy / (x + y - xy). */
+        TANIMOTO,
+        /** The Dice coefficient, 2xy / (x + y). */
+        DICE,
+        /** The cosine coefficient, xy / sqrt(x y). */
+        COSINE,
+        /** The MinMax coefficient, min / max, also see {@link Tanimoto#method2}. */
+        MIN_MAX
+    }
+
+    private final int[] hashes;
+    private final int[] counts;
+    private final long  sum;
+    private final long  squares;
+
+    private SparseCountVector(int[] hashes, int[] counts, int length) {
+        this.hashes = length == hashes.length ? hashes : Arrays.copyOf(hashes, length);
+        this.counts = length == counts.length ? counts : Arrays.copyOf(counts, length);
+        long sum = 0, squares = 0;
+        for (int i = 0; i < length; i++) {
+            sum     += counts[i];
+            squares += (long) counts[i] * counts[i];
+        }
+        this.sum     = sum;
+        this.squares = squares;
+    }
+
+    /**
+     * Create a vector of the given hashes and counts. The hashes may be in
+     * any order, the counts of equal hashes are added and hashes with a
+     * count of 0 are left out.
+     *
+     * @param hashes the hashes
+     * @param counts the count of each hash
+     * @return the vector
+     * @throws IllegalArgumentException a count is negative or the arrays
+     *                                  differ in length
+     */
+    @TestMethod("testOf")
+    public static SparseCountVector of(int[] hashes, int[] counts) {
+        if (hashes.length != counts.length)
+            throw new IllegalArgumentException("as many counts as hashes are required");
+        int n = hashes.length;
+
+        boolean ascending = true;
+        for (int i = 1; i < n && ascending; i++)
+            ascending = hashes[i - 1] < hashes[i];
+
+        // order by hash through a packed sort, keeping the pair together
+        int[] sortedHashes = hashes.clone(), sortedCounts = counts.clone();
+        if (!ascending) {
+            long[] pairs = new long[n];
+            for (int i = 0; i < n; i++)
+                pairs[i] = ((long) hashes[i] << 32) | (i & 0xffffffffL);
+            Arrays.sort(pairs);
+            for (int i = 0; i < n; i++) {
+                sortedHashes[i] = (int) (pairs[i] >> 32);
+                sortedCounts[i] = counts[(int) pairs[i]];
+            }
+        }
+
+        int length = 0;
+        for (int i = 0; i < n; i++) {
+            int count = sortedCounts[i];
+            if (count < 0)
+                throw new IllegalArgumentException("negative count for hash " + sortedHashes[i]);
+            if (count == 0)
+                continue;
+            if (length > 0 && sortedHashes[length - 1] == sortedHashes[i]) {
+                sortedCounts[length - 1] += count;
+            } else {
+                sortedHashes[length] = sortedHashes[i];
+                sortedCounts[length] = count;
+                length++;
+            }
+        }
+        return new SparseCountVector(sortedHashes, sortedCounts, length);
+    }
+
+    /**
+     * Create a vector of a count fingerprint. The counts are read through
+     * {@link ICountFingerprint#getCount(int)} and so follow a fingerprint
+     * that behaves as bit fingerprint.
+     *
+     * @param fingerprint a count fingerprint
+     * @return the vector
+     */
+    @TestMethod("testOf_ICountFingerprint")
+    public static SparseCountVector of(ICountFingerprint fingerprint) {
+        int   n      = fingerprint.numOfPopulatedbins();
+        int[] hashes = new int[n];
+        int[] counts = new int[n];
+        for (int i = 0; i < n; i++) {
+            hashes[i] = fingerprint.getHash(i);
+            counts[i] = fingerprint.getCount(i);
+        }
+        return of(hashes, counts);
+    }
+
+    /**
+     * Create a vector of raw features and their counts. The features are
+     * hashed with {@link String#hashCode()} like the
+     * {@link org.openscience.cdk.fingerprint.IntArrayCountFingerprint}.
+     *
+     * @param features the features with their counts
+     * @return the vector
+     */
+    @TestMethod("testOf_Map")
+    public static SparseCountVector of(Map<String, Integer> features) {
+        int[] hashes = new int[features.size()];
+        int[] counts = new int[features.size()];
+        int   i      = 0;
+        for (Map.Entry<String, Integer> e : features.entrySet()) {
+            hashes[i] = e.getKey().hashCode();
+            counts[i] = e.getValue();
+            i++;
+        }
+        return of(hashes, counts);
+    }
+
+    /**
+     * The number of hashes with a count.
+     *
+     * @return the number of populated bins
+     */
+    @TestMethod("testOf")
+    public int size() {
+        return hashes.length;
+    }
+
+    /**
+     * The hash at the given position, the hashes are in ascending order.
+     *
+     * @param index position of the hash
+     * @return the hash
+     */
+    @TestMethod("testOf")
+    public int getHash(int index) {
+        return hashes[index];
+    }
+
+    /**
+     * The count at the given position.
+     *
+     * @param index position of the hash
+     * @return the (positive) count
+     */
+    @TestMethod("testOf")
+    public int getCount(int index) {
+        return counts[index];
+    }
+
+    /**
+     * The sum of all counts.
+     *
+     * @return the total count
+     */
+    @TestMethod("testOf")
+    public long getTotalCount() {
+        return sum;
+    }
+
+    /**
+     * The continuous Tanimoto coefficient of this and another vector, the
+     * same value as {@link Tanimoto#calculate(ICountFingerprint, ICountFingerprint)}.
+     *
+     * @param other another vector
+     * @return the coefficient
+     */
+    @TestMethod("testTanimoto")
+    public double tanimoto(SparseCountVector other) {
+        return similarity(Measure.TANIMOTO, this, other);
+    }
+
+    /**
+     * The Dice coefficient of this and another vector.
+     *
+     * @param other another vector
+     * @return the coefficient
+     */
+    @TestMethod("testDice")
+    public double dice(SparseCountVector other) {
+        return similarity(Measure.DICE, this, other);
+    }
+
+    /**
+     * The cosine coefficient of this and another vector.
+     *
+     * @param other another vector
+     * @return the coefficient
+     */
+    @TestMethod("testCosine")
+    public double cosine(SparseCountVector other) {
+        return similarity(Measure.COSINE, this, other);
+    }
+
+    /**
+     * The MinMax coefficient of this and another vector, the same value as
+     * {@link Tanimoto#method2(ICountFingerprint, ICountFingerprint)}.
+     *
+     * @param other another vector
+     * @return the coefficient
+     */
+    @TestMethod("testMinMax")
+    public double minMax(SparseCountVector other) {
+        return similarity(Measure.MIN_MAX, this, other);
+    }
+
+    /**
+     * The coefficient of two vectors for the given measure.
+     *
+     * @param measure the coefficient to calculate
+     * @param a       a vector
+     * @param b       another vector
+     * @return the coefficient
+     */
+    @TestMethod("testTanimoto,testDice,testCosine,testMinMax")
+    public static double similarity(Measure measure, SparseCountVector a, SparseCountVector b) {
+        int[] ah = a.hashes, ac = a.counts, bh = b.hashes, bc = b.counts;
+        int   an = ah.length, bn = bh.length;
+        long  xy = 0, min = 0;
+        int   i  = 0, j = 0;
+        while (i < an && j < bn) {
+            int x = ah[i], y = bh[j];
+            if (x < y) {
+                i++;
+            } else if (x > y) {
+                j++;
+            } else {
+                int c = ac[i], d = bc[j];
+                xy  += (long) c * d;
+                min += c < d ? c : d;
+                i++;
+                j++;
+            }
+        }
+        return coefficient(measure, xy, min, a, b);
+    }
+
+    /**
+     * Score a query against many vectors. The query arrays are read once and
+     * no objects are created, so repeatedly scoring into the same array does
+     * not produce garbage.
+     *
+     * @param measure the coefficient to calculate
+     * @param query   the query vector
+     * @param targets the vectors to compare the query with
+     * @param scores  array for the coefficients, reused when it is at least
+     *                as long as the targets, may be null
+     * @return the coefficient of the query and each target, in the order of
+     *         the targets
+     */
+    @TestMethod("testScore")
+    public static double[] score(Measure measure, SparseCountVector query,
+                                 List<SparseCountVector> targets, double[] scores) {
+        int n = targets.size();
+        if (scores == null || scores.length < n)
+            scores = new double[n];
+        for (int t = 0; t < n; t++)
+            scores[t] = similarity(measure, query, targets.get(t));
+        return scores;
+    }
+
+    private static double coefficient(Measure measure, long xy, long min, SparseCountVector a, SparseCountVector b) {
+        long x = a.squares, y = b.squares;
+        switch (measure) {
+            case TANIMOTO:
+                return x + y == 0 ? 0 : (double) xy / (x + y - xy);
+            case DICE:
+                return x + y == 0 ? 0 : 2.0 * xy / (x + y);
+            case COSINE:
+                return x == 0 || y == 0 ? 0 : xy / Math.sqrt((double) x * y);
+            case MIN_MAX:
+                long max = a.sum + b.sum - min;
+                return max == 0 ? 0 : (double) min / max;
+            default:
+                throw new IllegalArgumentException("unknown measure " + measure);
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof SparseCountVector))
+            return false;
+        SparseCountVector that = (SparseCountVector) obj;
+        return Arrays.equals(hashes, that.hashes) && Arrays.equals(counts, that.counts);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(hashes) + Arrays.hashCode(counts);
+    }
+}
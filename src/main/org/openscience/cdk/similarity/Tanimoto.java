@@ -204,9 +204,13 @@ public class Tanimoto
 		long xy=0, 
 		     x=0, 
 		     y=0;
+		boolean merge = isAscending(fp1) && isAscending(fp2);
+		if ( merge ) {
+			xy = mergeProduct(fp1, fp2);
+		}
 		for ( int i= 0; i<fp1.numOfPopulatedbins(); i++ ) {
 			int hash = fp1.getHash(i);
-			for ( int j =0; j<fp2.numOfPopulatedbins(); j++ ) {
+			for ( int j =0; !merge && j<fp2.numOfPopulatedbins(); j++ ) {
 				if ( hash == fp2.getHash(j) ) {
 					xy += fp1.getCount(i) * fp2.getCount(j);
 				}
@@ -218,6 +222,43 @@ public class Tanimoto
 		}
 	    return ( (double)xy / (x + y - xy) );
 	}
+
+	/**
+	 * Sum of the count products of the hashes two count fingerprints share,
+	 * merging their sorted hash lists.
+	 */
+	private static long mergeProduct( ICountFingerprint fp1,
+	                                  ICountFingerprint fp2 ) {
+		long xy = 0;
+		int i = 0, j = 0;
+		while ( i < fp1.numOfPopulatedbins() && j < fp2.numOfPopulatedbins() ) {
+			int hash1 = fp1.getHash(i), hash2 = fp2.getHash(j);
+			if ( hash1 < hash2 ) {
+				i++;
+			} else if ( hash1 > hash2 ) {
+				j++;
+			} else {
+				xy += fp1.getCount(i++) * fp2.getCount(j++);
+			}
+		}
+		return xy;
+	}
+
+	/**
+	 * Whether the hashes of a count fingerprint are in strictly ascending
+	 * order, as they are for an {@link IntArrayCountFingerprint}.
+	 */
+	private static boolean isAscending( ICountFingerprint fp ) {
+		if ( fp instanceof IntArrayCountFingerprint ) {
+			return true;
+		}
+		for ( int i = 1; i < fp.numOfPopulatedbins(); i++ ) {
+			if ( fp.getHash(i - 1) >= fp.getHash(i) ) {
+				return false;
+			}
+		}
+		return true;
+	}
     
     /**
      * Calculates Tanimoto distance for two count fingerprints using method 1.
@@ -245,37 +286,32 @@ public class Tanimoto
     	
     		long maxSum = 0,
     		     minSum = 0;
+    		int n1 = fp1.numOfPopulatedbins(),
+    		    n2 = fp2.numOfPopulatedbins();
     		int i = 0, 
     		    j = 0;
-    		while ( i < fp1.numOfPopulatedbins() 
-    				|| j < fp2.numOfPopulatedbins() ) {
-    			Integer hash1 = i < fp1.numOfPopulatedbins() ? fp1.getHash(i) 
-    					                                     : null;
-    			Integer hash2 = j < fp2.numOfPopulatedbins() ? fp2.getHash(j) 
-    					                                     : null;
-    			Integer count1 = i < fp1.numOfPopulatedbins() ? fp1.getCount(i) 
-    					                                      : null;
-    			Integer count2 = j < fp2.numOfPopulatedbins() ? fp2.getCount(j) 
-    					                                      : null;
-    			
-    			if ( count2 == null || (hash1 != null && hash1 < hash2) ) {
-    			maxSum += count1;
-    				i++;
-    				continue;
+    		while ( i < n1 && j < n2 ) {
+    			int hash1 = fp1.getHash(i),
+    			    hash2 = fp2.getHash(j);
+    			if ( hash1 < hash2 ) {
+    				maxSum += fp1.getCount(i++);
     			}
-    			if ( count1 == null || (hash2 != null && hash1 > hash2 ) ) {
-    				maxSum += count2;
-    				j++;
-    				continue;
+    			else if ( hash1 > hash2 ) {
+    				maxSum += fp2.getCount(j++);
     			}
-    			
-    			if ( hash1.equals(hash2) ) {
+    			else {
+    				int count1 = fp1.getCount(i++),
+    				    count2 = fp2.getCount(j++);
     				maxSum += Math.max(count1, count2);
     				minSum += Math.min(count1, count2);
-    				i++;
-    				j++;
     			}
     		}
+    		while ( i < n1 ) {
+    			maxSum += fp1.getCount(i++);
+    		}
+    		while ( j < n2 ) {
+    			maxSum += fp2.getCount(j++);
+    		}
     		return ((double)minSum) / maxSum;
     }
 }
@@ -0,0 +1,491 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.smiles;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.openscience.cdk.CDKConstants;
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.config.IsotopeFactory;
+import org.openscience.cdk.group.GraphDiscretePartitionRefiner;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.interfaces.IIsotope;
+import org.openscience.cdk.interfaces.IPseudoAtom;
+
+/**
+ * Generates canonical SMILES without stereochemistry, for example to find
+ * duplicate structures. The atoms and bonds are copied into adjacency
+ * arrays and the canonical ranks are the best permutation of a
+ * {@link GraphDiscretePartitionRefiner}, started from the partition of the
+ * atoms by their SMILES atom symbol (element, aromaticity, mass number,
+ * hydrogen count and charge). Two molecules therefore get the same SMILES
+ * if, and only if, they are isomorphic with the same atom symbols and bond
+ * orders.
+ *
+ * <p>Unlike the {@link SmilesGenerator} the generator does not label or
+ * otherwise change the molecule and keeps no state between calls, so one
+ * instance may be used from several threads without locking:
+ * <pre>
+ * CanonicalSmilesGenerator generator = new CanonicalSmilesGenerator(true);
+ * String smiles = generator.create(phenol); // Oc1ccccc1
+ * </pre>
+ *
+ * <p>Aromaticity is not perceived. When the aromaticity flag is used, atoms
+ * and bonds flagged as {@link CDKConstants#ISAROMATIC} are written in lower
+ * case and without bond symbol, otherwise the bond orders are written and
+ * different Kekul&eacute; structures of a molecule give different SMILES.
+ * Hydrogens are written in brackets when they differ from the count a SMILES
+ * parser would add, an unset implicit hydrogen count is left to the parser.
+ *
+ * @cdk.module smiles
+ * @cdk.githash
+ * @cdk.keyword SMILES, generator
+ * @cdk.keyword canonicalization
+ * @see SmilesGenerator
+ */
+@TestClass("org.openscience.cdk.smiles.CanonicalSmilesGeneratorTest")
+public final class CanonicalSmilesGenerator {
+
+    /** The mass number of the major isotope of each element, by symbol. */
+    private static final ConcurrentMap<String, Integer> MAJOR_MASS_NUMBERS = new ConcurrentHashMap<String, Integer>();
+
+    /** Label of aromatic bonds for the refiner, as in the AtomDiscretePartitionRefiner. */
+    private static final int AROMATIC = 5;
+
+    private final boolean useAromaticityFlag;
+
+    /**
+     * Create a generator that writes the bond orders.
+     */
+    public CanonicalSmilesGenerator() {
+        this(false);
+    }
+
+    /**
+     * Create a generator.
+     *
+     * @param useAromaticityFlag write atoms and bonds flagged as aromatic in
+     *                           lower case and without bond symbol
+     */
+    public CanonicalSmilesGenerator(boolean useAromaticityFlag) {
+        this.useAromaticityFlag = useAromaticityFlag;
+    }
+
+    /**
+     * Create the canonical SMILES of a molecule. Disconnected parts are
+     * separated by a '.'.
+     *
+     * @param molecule the molecule
+     * @return the canonical SMILES
+     * @throws IllegalArgumentException a bond contained an atom that is not
+     *                                  in the molecule
+     */
+    @TestMethod("testCreate,testCreate_Order,testCreate_Aromatic,testCreate_Disconnected")
+    public String create(IAtomContainer molecule) {
+        Graph graph = new Graph(molecule);
+        if (graph.order() == 0)
+            return "";
+        return new Writer(graph, rank(graph)).write();
+    }
+
+    /**
+     * The canonical rank of each atom of a molecule, from 0 to the number of
+     * atoms minus 1. Atoms that are related by symmetry get different ranks.
+     *
+     * @param molecule the molecule
+     * @return the rank of each atom, in the order of the atoms
+     */
+    @TestMethod("testGetCanonicalRanks")
+    public int[] getCanonicalRanks(IAtomContainer molecule) {
+        return rank(new Graph(molecule));
+    }
+
+    /**
+     * Rank the atoms, the initial partition orders the atoms by their symbol
+     * so that the ranks only depend on what is written.
+     */
+    private static int[] rank(Graph graph) {
+        TreeSet<String> symbols = new TreeSet<String>(Arrays.asList(graph.symbols));
+        List<String>    order   = new ArrayList<String>(symbols);
+        long[]          invariants = new long[graph.order()];
+        for (int i = 0; i < invariants.length; i++)
+            invariants[i] = Collections.binarySearch(order, graph.symbols[i]);
+        GraphDiscretePartitionRefiner refiner = new GraphDiscretePartitionRefiner(graph.adjacency, graph.labels);
+        refiner.refine(invariants);
+        return refiner.getCanonicalRanks();
+    }
+
+    /**
+     * The molecule as adjacency arrays with the bond label and the SMILES
+     * symbol of the atoms.
+     */
+    private final class Graph {
+
+        final int[][]   adjacency;
+        final int[][]   labels;
+        final String[]  symbols;
+        final boolean[] aromatic;
+
+        Graph(IAtomContainer molecule) {
+            int n = molecule.getAtomCount();
+            Map<IAtom, Integer> index = new IdentityHashMap<IAtom, Integer>(2 * n);
+            for (int i = 0; i < n; i++)
+                index.put(molecule.getAtom(i), i);
+
+            int[] degree = new int[n];
+            int   m      = molecule.getBondCount();
+            int[] from   = new int[m], to = new int[m], label = new int[m];
+            for (int b = 0; b < m; b++) {
+                IBond   bond = molecule.getBond(b);
+                Integer v    = index.get(bond.getAtom(0));
+                Integer w    = index.get(bond.getAtom(1));
+                if (v == null || w == null)
+                    throw new IllegalArgumentException("bond at index " + b + " contained an atom not present in molecule");
+                from[b]  = v;
+                to[b]    = w;
+                label[b] = label(bond);
+                degree[v]++;
+                degree[w]++;
+            }
+
+            adjacency = new int[n][];
+            labels    = new int[n][];
+            for (int i = 0; i < n; i++) {
+                adjacency[i] = new int[degree[i]];
+                labels[i]    = new int[degree[i]];
+                degree[i]    = 0;
+            }
+            for (int b = 0; b < m; b++) {
+                int v = from[b], w = to[b];
+                labels[v][degree[v]]      = label[b];
+                adjacency[v][degree[v]++] = w;
+                labels[w][degree[w]]      = label[b];
+                adjacency[w][degree[w]++] = v;
+            }
+
+            symbols  = new String[n];
+            aromatic = new boolean[n];
+            for (int i = 0; i < n; i++) {
+                IAtom atom = molecule.getAtom(i);
+                aromatic[i] = useAromaticityFlag && atom.getFlag(CDKConstants.ISAROMATIC);
+                symbols[i]  = symbol(atom, aromatic[i], labels[i]);
+            }
+        }
+
+        int order() {
+            return adjacency.length;
+        }
+
+        int label(IBond bond) {
+            if (useAromaticityFlag && bond.getFlag(CDKConstants.ISAROMATIC))
+                return AROMATIC;
+            return bond.getOrder() == null ? 1 : bond.getOrder().numeric();
+        }
+
+        String symbol(IAtom atom, boolean aromatic, int[] bondLabels) {
+            String  element  = atom instanceof IPseudoAtom ? "*" : atom.getSymbol();
+            String  symbol   = aromatic ? element.toLowerCase() : element;
+
+            int valence = aromatic ? 1 : 0;
+            for (int label : bondLabels)
+                valence += label == AROMATIC ? 1 : label;
+            int     implied    = impliedHydrogens(element, valence, aromatic);
+            int     hydrogens  = atom.getImplicitHydrogenCount() == null ? implied : atom.getImplicitHydrogenCount();
+            int     charge     = atom.getFormalCharge() == null ? 0 : atom.getFormalCharge();
+            Integer massNumber = atom.getMassNumber();
+            if (massNumber != null && !(atom instanceof IPseudoAtom) && massNumber.equals(majorMassNumber(atom)))
+                massNumber = null;
+
+            boolean organic = aromatic ? "b".equals(symbol) || "c".equals(symbol) || "n".equals(symbol)
+                                         || "o".equals(symbol) || "p".equals(symbol) || "s".equals(symbol)
+                                       : "*".equals(symbol) || impliedHydrogens(element, 0, false) >= 0;
+            if (organic && charge == 0 && massNumber == null && hydrogens == implied)
+                return symbol;
+
+            StringBuilder sb = new StringBuilder("[");
+            if (massNumber != null)
+                sb.append(massNumber);
+            sb.append(symbol);
+            if (hydrogens > 0)
+                sb.append('H');
+            if (hydrogens > 1)
+                sb.append(hydrogens);
+            if (charge != 0) {
+                sb.append(charge > 0 ? '+' : '-');
+                if (Math.abs(charge) > 1)
+                    sb.append(Math.abs(charge));
+            }
+            return sb.append(']').toString();
+        }
+    }
+
+    /**
+     * The hydrogens a SMILES parser adds to an atom of the organic subset,
+     * the next normal valence above the bond order sum minus that sum.
+     * Aromatic atoms only have their lowest normal valence.
+     *
+     * @return the implied hydrogens, -1 if the element is not in the organic
+     *         subset
+     */
+    private static int impliedHydrogens(String element, int valence, boolean aromatic) {
+        int[] valences;
+        if ("C".equals(element))
+            valences = new int[]{4};
+        else if ("N".equals(element) || "P".equals(element))
+            valences = new int[]{3, 5};
+        else if ("O".equals(element))
+            valences = new int[]{2};
+        else if ("S".equals(element))
+            valences = new int[]{2, 4, 6};
+        else if ("B".equals(element))
+            valences = new int[]{3};
+        else if ("F".equals(element) || "Cl".equals(element) || "Br".equals(element) || "I".equals(element))
+            valences = new int[]{1};
+        else if ("*".equals(element))
+            return 0;
+        else
+            return -1;
+        for (int i = 0; i < (aromatic ? 1 : valences.length); i++)
+            if (valences[i] >= valence)
+                return valences[i] - valence;
+        return 0;
+    }
+
+    /**
+     * The mass number of the major isotope of the element of an atom. The
+     * isotope factory is only asked once per element.
+     */
+    private static Integer majorMassNumber(IAtom atom) {
+        String  symbol     = atom.getSymbol();
+        Integer massNumber = MAJOR_MASS_NUMBERS.get(symbol);
+        if (massNumber == null) {
+            try {
+                IsotopeFactory factory = IsotopeFactory.getInstance(atom.getBuilder());
+                IIsotope       major;
+                synchronized (factory) {
+                    major = factory.getMajorIsotope(symbol);
+                }
+                massNumber = major == null || major.getMassNumber() == null ? -1 : major.getMassNumber();
+            } catch (IOException exception) {
+                massNumber = -1;
+            }
+            MAJOR_MASS_NUMBERS.putIfAbsent(symbol, massNumber);
+        }
+        return massNumber;
+    }
+
+    /**
+     * Writes the SMILES of a ranked graph. A first depth first search finds
+     * the ring closures, the second writes the atoms. Each search visits the
+     * neighbours of an atom in order of rank and starts each part of the
+     * molecule at its atom of lowest degree and rank.
+     */
+    private static final class Writer {
+
+        private static final int UNVISITED = -2;
+
+        private final Graph           graph;
+        private final int[]           ranks;
+        private final int[][]         neighbours;
+        private final int[]           parents;
+        private final boolean[]       open;
+        private final boolean[]       written;
+        private final List<int[]>[]   rings;
+        private final boolean[]       ringNumberUsed = new boolean[100];
+        private final StringBuilder   sb             = new StringBuilder();
+        private final Comparator<int[]> byRank       = new Comparator<int[]>() {
+            public int compare(int[] a, int[] b) {
+                return ranks[a[0]] - ranks[b[0]];
+            }
+        };
+
+        Writer(Graph graph, int[] ranks) {
+            int n = graph.order();
+            this.graph      = graph;
+            this.ranks      = ranks;
+            this.neighbours = new int[n][];
+            this.parents    = new int[n];
+            this.open       = new boolean[n];
+            this.written    = new boolean[n];
+            @SuppressWarnings("unchecked")
+            List<int[]>[] rings = (List<int[]>[]) new List<?>[n];
+            this.rings      = rings;
+            // the positions in the adjacency of each atom, ascending by the
+            // rank of the neighbour
+            for (int v = 0; v < n; v++) {
+                int    d    = graph.adjacency[v].length;
+                long[] keys = new long[d];
+                for (int k = 0; k < d; k++)
+                    keys[k] = ((long) ranks[graph.adjacency[v][k]] << 32) | k;
+                Arrays.sort(keys);
+                neighbours[v] = new int[d];
+                for (int k = 0; k < d; k++)
+                    neighbours[v][k] = (int) keys[k];
+            }
+        }
+
+        String write() {
+            int n = graph.order();
+            Arrays.fill(parents, UNVISITED);
+            for (int part = 0; ; part++) {
+                int start = -1;
+                for (int v = 0; v < n; v++) {
+                    if (parents[v] == UNVISITED && (start < 0 || isBetterStart(v, start)))
+                        start = v;
+                }
+                if (start < 0)
+                    break;
+                findRings(start, -1);
+                if (part > 0)
+                    sb.append('.');
+                write(start, 0);
+            }
+            return sb.toString();
+        }
+
+        private boolean isBetterStart(int v, int start) {
+            int dv = graph.adjacency[v].length, ds = graph.adjacency[start].length;
+            return dv != ds ? dv < ds : ranks[v] < ranks[start];
+        }
+
+        /**
+         * Mark the tree of atoms below 'v' and record each ring closure as
+         * {neighbour, bond label, ring number} at both of its atoms.
+         */
+        private void findRings(int v, int parent) {
+            parents[v] = parent;
+            open[v]    = true;
+            for (int k : neighbours[v]) {
+                int w = graph.adjacency[v][k];
+                if (w == parent)
+                    continue;
+                if (parents[w] == UNVISITED) {
+                    findRings(w, v);
+                } else if (open[w]) {
+                    // w is an ancestor of v, the bond closes a ring
+                    addRing(v, new int[]{w, graph.labels[v][k], 0});
+                    addRing(w, new int[]{v, graph.labels[v][k], 0});
+                }
+            }
+            open[v] = false;
+        }
+
+        private void addRing(int v, int[] closure) {
+            if (rings[v] == null)
+                rings[v] = new ArrayList<int[]>(2);
+            rings[v].add(closure);
+        }
+
+        /**
+         * Write the atom 'v', its ring closures and its branches.
+         */
+        private void write(int v, int bondLabel) {
+            if (bondLabel > 0)
+                writeBond(v, parents[v], bondLabel);
+            sb.append(graph.symbols[v]);
+            written[v] = true;
+
+            if (rings[v] != null) {
+                List<int[]> closures = rings[v];
+                Collections.sort(closures, byRank);
+                for (int[] closure : closures) {
+                    int w = closure[0];
+                    if (written[w]) {
+                        sb.append(ringNumber(closure[2]));
+                        ringNumberUsed[closure[2]] = false;
+                    } else {
+                        int number = 1;
+                        while (number < ringNumberUsed.length && ringNumberUsed[number])
+                            number++;
+                        if (number == ringNumberUsed.length)
+                            throw new IllegalArgumentException("more than 99 rings are open at the same time");
+                        ringNumberUsed[number] = true;
+                        for (int[] other : rings[w]) {
+                            if (other[0] == v)
+                                other[2] = number;
+                        }
+                        writeBond(v, w, closure[1]);
+                        sb.append(ringNumber(number));
+                    }
+                }
+            }
+
+            int last = -1;
+            for (int k : neighbours[v]) {
+                if (parents[graph.adjacency[v][k]] == v)
+                    last = k;
+            }
+            for (int k : neighbours[v]) {
+                int w = graph.adjacency[v][k];
+                if (parents[w] != v)
+                    continue;
+                if (k != last)
+                    sb.append('(');
+                write(w, graph.labels[v][k]);
+                if (k != last)
+                    sb.append(')');
+            }
+        }
+
+        /**
+         * Write the symbol of a bond, single and aromatic bonds have none
+         * except a single bond between two aromatic atoms.
+         */
+        private void writeBond(int v, int w, int label) {
+            switch (label) {
+                case 1:
+                    if (graph.aromatic[v] && graph.aromatic[w])
+                        sb.append('-');
+                    break;
+                case 2:
+                    sb.append('=');
+                    break;
+                case 3:
+                    sb.append('#');
+                    break;
+                case 4:
+                    sb.append('$');
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private static String ringNumber(int number) {
+            return number < 10 ? Integer.toString(number) : "%" + number;
+        }
+    }
+}
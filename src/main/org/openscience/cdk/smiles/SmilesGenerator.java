@@ -80,6 +80,10 @@ import java.util.Vector;
  * In absence of such configuration it is possible that different forms
  * of the same molecule will not result in the same canonical SMILES.
  *
+ * <p>The methods are synchronized as the generator keeps the state of the
+ * current molecule. For canonical SMILES without stereochemistry on several
+ * threads use the {@link CanonicalSmilesGenerator}.
+ *
  * @author         Oliver Horlacher
  * @author         Stefan Kuhn (chiral smiles)
  * @cdk.created    2002-02-26
@@ -23,7 +23,8 @@
  */
 package org.openscience.cdk.smiles;
 
-import java.util.Enumeration;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -77,6 +78,21 @@ import org.openscience.cdk.tools.periodictable.PeriodicTable;
  * features are supported: reaction smiles, partitioned structures, charged
  * atoms, implicit hydrogen count, '*' and isotope information.
  *
+ * <p>When only the connection table is needed, for example to hash or
+ * fingerprint many structures, {@link #parseGraph(CharSequence, IAtomContainer)}
+ * fills a reusable molecule and leaves out the atom typing, hydrogen adding
+ * and aromaticity perception that {@link #parseSmiles(String)} does:
+ * <pre>
+ *   IAtomContainer molecule = builder.newInstance(IAtomContainer.class);
+ *   for (String smi : smiles) {
+ *     sp.parseGraph(smi, molecule);
+ *     // use the molecule, or complete the steps when needed
+ *     sp.perceiveAtomTypes(molecule);
+ *     sp.addImplicitHydrogens(molecule);
+ *     sp.perceiveAromaticity(molecule);
+ *   }
+ * </pre>
+ *
  * <p>See {@cdk.cite WEI88} for further information.
  *
  * @author         Christoph Steinbeck
@@ -138,14 +154,26 @@ public class SmilesParser {
 	IBond.Order bondStatusForRingClosure = IBond.Order.SINGLE;
     boolean bondIsAromatic = false;
     // array of atoms that initiated a ring closure
-	IAtom[] rings = null;
+	IAtom[] rings = new IAtom[MAX_RING_COUNT];
     // array of atoms that complete a ring closure
-    IAtom[] ringOtherAtoms = null;
-	IBond.Order[] ringbonds = null;
+    IAtom[] ringOtherAtoms = new IAtom[MAX_RING_COUNT];
+	IBond.Order[] ringbonds = new IBond.Order[MAX_RING_COUNT];
 	int thisRing = -1;
 	IAtomContainer molecule = null;
 	String currentSymbol = null;
-	Map<IAtom,TemporaryChiralityStorage> chiralityInfo = null;
+	Map<IAtom,TemporaryChiralityStorage> chiralityInfo = new HashMap<IAtom,TemporaryChiralityStorage>();
+	Stack<IAtom> atomStack = new Stack<IAtom>();
+	Stack<IBond.Order> bondStack = new Stack<IBond.Order>();
+
+	// ring closures are numbered 0-9 and %10-%99
+	private final static int MAX_RING_COUNT = 100;
+
+	// the one letter symbols, so that parsing an atom does not make a string
+	private final static String[] SYMBOLS = new String[128];
+	static {
+		for (char c = 'A'; c <= 'z'; c++)
+			SYMBOLS[c] = String.valueOf(c);
+	}
 	
 	/**
 	 * Internal storage for temporary stereochemistry info. In particular, the atoms
@@ -236,8 +264,37 @@ public class SmilesParser {
 	 */
     @TestMethod("testAromaticSmiles,testSFBug1296113")
     public IAtomContainer parseSmiles(String smiles) throws InvalidSmilesException {
-        IAtomContainer molecule = this.parseString(smiles);
-		
+        IAtomContainer molecule = parseGraph(smiles, builder.newInstance(IAtomContainer.class));
+        perceiveAtomTypes(molecule);
+        addImplicitHydrogens(molecule);
+        perceiveAromaticity(molecule);
+		return molecule;
+	}
+
+    /**
+     * Parses a SMILES into the given molecule in a single pass over the
+     * characters, without atom typing, hydrogen adding or aromaticity
+     * perception. The atoms, bonds and stereo elements of the molecule are
+     * replaced, its properties are kept, so that one instance can be reused
+     * for many SMILES. Atoms written in brackets have their implicit hydrogen
+     * count set, those of the organic subset have it unset, and lower case
+     * atoms are flagged {@link CDKConstants#SINGLE_OR_DOUBLE}. The remaining
+     * work of {@link #parseSmiles(String)} can be done afterwards with
+     * {@link #perceiveAtomTypes(IAtomContainer)},
+     * {@link #addImplicitHydrogens(IAtomContainer)} and
+     * {@link #perceiveAromaticity(IAtomContainer)}, in that order.
+     *
+     * @param smiles   the SMILES to parse
+     * @param molecule the molecule to fill
+     * @return the given molecule
+     * @throws InvalidSmilesException thrown when the SMILES is invalid
+     */
+    @TestMethod("testParseGraph,testParseGraph_Reuse")
+    public IAtomContainer parseGraph(CharSequence smiles, IAtomContainer molecule) throws InvalidSmilesException {
+        molecule.removeAllElements();
+        molecule.setFlag(CDKConstants.SINGLE_OR_DOUBLE, false);
+        this.parseString(smiles, molecule);
+
 		// analyze the chirality info
 		for (IAtom atom : chiralityInfo.keySet()) {
 		    TemporaryChiralityStorage chirality = chiralityInfo.get(atom);
@@ -253,8 +310,36 @@ public class SmilesParser {
 		    );
 		    molecule.addStereoElement(l4Chiral);
 		}
+		chiralityInfo.clear();
+		return molecule;
+    }
+
+    /**
+     * Parses the US-ASCII encoded SMILES between the position and the limit
+     * of a buffer into the given molecule, see
+     * {@link #parseGraph(CharSequence, IAtomContainer)}. The bytes are read
+     * in place and the position of the buffer is not changed.
+     *
+     * @param smiles   buffer with the SMILES to parse
+     * @param molecule the molecule to fill
+     * @return the given molecule
+     * @throws InvalidSmilesException thrown when the SMILES is invalid
+     */
+    @TestMethod("testParseGraph_ByteBuffer")
+    public IAtomContainer parseGraph(ByteBuffer smiles, IAtomContainer molecule) throws InvalidSmilesException {
+        return parseGraph(new AsciiSequence(smiles, smiles.position(), smiles.remaining()), molecule);
+    }
 
-        // perceive atom types
+    /**
+     * Perceives the CDK atom types of a molecule made by
+     * {@link #parseGraph(CharSequence, IAtomContainer)}. The aromaticity
+     * flags of the atoms are kept and atoms without a matching type get the
+     * type name "X".
+     *
+     * @param molecule the molecule to type
+     */
+    @TestMethod("testParseGraph_Steps")
+    public void perceiveAtomTypes(IAtomContainer molecule) {
         CDKAtomTypeMatcher matcher = CDKAtomTypeMatcher.getInstance(molecule.getBuilder());
         int i = 0;
         for (IAtom atom : molecule.atoms()) {
@@ -273,50 +358,15 @@ public class SmilesParser {
                     atom.setAtomTypeName("X");
             }
         }
-        this.addImplicitHydrogens(molecule);
-        
-        // Set the flag SINGLE_OR_DOUBLE to false if the bond with it isn't in a ring.
-       if (molecule.getFlag(CDKConstants.SINGLE_OR_DOUBLE)) {
-        	SpanningTree molTree = new SpanningTree(molecule);
-        	try {
-        		IRingSet rings = molTree.getAllRings();
-        		for (int j = 0; j < rings.getAtomContainerCount(); j++) {
-        			for (IBond bond : rings.getAtomContainer(j).bonds())
-        				if (bond.getAtom(0).getFlag(CDKConstants.SINGLE_OR_DOUBLE) &&
-        						bond.getAtom(1).getFlag(CDKConstants.SINGLE_OR_DOUBLE)
-        						) {
-        					bond.setFlag(CDKConstants.SINGLE_OR_DOUBLE, true);
-        				}
-        		}
-        	} catch (NoSuchAtomException exception) {
-        		logger.error("Caught unexpected Exception while identifying the rings.");
-        		logger.debug(exception);
-        	}
-        }
-        
-        if (!preservingAromaticity ) {
-            this.perceiveAromaticity(molecule);
-        }
-        else  {
-            for (IBond bond : molecule.bonds() ) {
-                if(!bond.getFlag(CDKConstants.ISAROMATIC) &&
-                    bond.getAtom(0).getFlag(CDKConstants.ISAROMATIC) &&
-                    bond.getAtom(1).getFlag(CDKConstants.ISAROMATIC)) {
-                       bond.setFlag(CDKConstants.ISAROMATIC,true);
-                   }
-            }
-        }
-
-		return molecule;
-	}
+    }
 
 	/**
 	 * This routine parses the smiles string into a molecule but does not add hydrogens, saturate, or perceive aromaticity
 	 * @param smiles
-	 * @return
+	 * @param molecule the empty molecule to add the atoms and bonds to
 	 * @throws InvalidSmilesException
 	 */
-	private IAtomContainer parseString(String smiles) throws InvalidSmilesException
+	private void parseString(CharSequence smiles, IAtomContainer molecule) throws InvalidSmilesException
 	{
 		logger.debug("parseSmiles()...");
 		IBond bond = null;
@@ -326,36 +376,36 @@ public class SmilesParser {
 		boolean bondExists = true;
 		thisRing = -1;
 		currentSymbol = null;
-		molecule = builder.newInstance(IAtomContainer.class);
+		this.molecule = molecule;
 		position = 0;
-		chiralityInfo = new HashMap<IAtom,TemporaryChiralityStorage>();
-		// we don't want more than 1024 rings
-		final int MAX_RING_COUNT = 1024;
-		rings = new IAtom[MAX_RING_COUNT];
-        ringOtherAtoms = new IAtom[MAX_RING_COUNT];
-		ringbonds = new IBond.Order[MAX_RING_COUNT];
-		for (int f = 0; f < MAX_RING_COUNT; f++) {
-			rings[f] = null;
-            ringOtherAtoms[f] = null;
-			ringbonds[f] = null;
-		}
+		// the ring state is kept between calls and is cleared, as a ring
+		// closure number has at most two digits there are no more than 100
+		Arrays.fill(rings, null);
+		Arrays.fill(ringOtherAtoms, null);
+		Arrays.fill(ringbonds, null);
+		chiralityInfo.clear();
+		atomStack.clear();
+		bondStack.clear();
+		boolean debug = logger.isDebugEnabled();
+
+		if (smiles.length() == 0)
+			throw new InvalidSmilesException("Error while parsing char: the SMILES is empty");
 
 		char mychar = 'X';
-		char[] chars = new char[1];
 		IAtom lastNode = null;
-		Stack<IAtom> atomStack = new Stack<IAtom>();
-		Stack<IBond.Order> bondStack = new Stack<IBond.Order>();
 		IAtom atom = null;
 		do
 		{
 			try
 			{
 				mychar = smiles.charAt(position);
-				logger.debug("");
-				logger.debug("Processing: " + mychar);
-				if (lastNode != null)
-				{
-					logger.debug("Lastnode: ", lastNode.hashCode());
+				if (debug) {
+					logger.debug("");
+					logger.debug("Processing: ", mychar);
+					if (lastNode != null)
+					{
+						logger.debug("Lastnode: ", lastNode.hashCode());
+					}
 				}
 				if ((mychar >= 'A' && mychar <= 'Z') || (mychar >= 'a' && mychar <= 'z') ||
 						(mychar == '*'))
@@ -375,9 +425,9 @@ public class SmilesParser {
 						{
 							if (currentSymbol.length() == 1)
 							{
-								if (!(currentSymbol.toUpperCase()).equals(currentSymbol))
+								if (Character.isLowerCase(mychar))
 								{
-									currentSymbol = currentSymbol.toUpperCase();
+									currentSymbol = symbol(Character.toUpperCase(mychar));
 									atom = builder.newInstance(IAtom.class,currentSymbol);
 									atom.setHybridization(Hybridization.SP2);
 									// If the letter is small we rise the flag
@@ -406,10 +456,12 @@ public class SmilesParser {
 					}
 					addAtomToActiveChiralities(lastNode, atom);
 					molecule.addAtom(atom);
-					logger.debug("Adding atom ", atom.hashCode());
+					if (debug)
+						logger.debug("Adding atom ", atom.hashCode());
 					if ((lastNode != null) && bondExists)
 					{
-						logger.debug("Creating bond between ", atom.getSymbol(), " and ", lastNode.getSymbol());
+						if (debug)
+							logger.debug("Creating bond between ", atom.getSymbol(), " and ", lastNode.getSymbol());
 						bond = builder.newInstance(IBond.class,atom, lastNode, bondStatus);
                         if (bondIsAromatic) {
                             bond.setFlag(CDKConstants.ISAROMATIC, true);
@@ -449,43 +501,28 @@ public class SmilesParser {
 				} else if (mychar == '(')
 				{
 					atomStack.push(lastNode);
-					logger.debug("Stack:");
-					Enumeration<IAtom> ses = atomStack.elements();
-					while (ses.hasMoreElements())
-					{
-						IAtom a = ses.nextElement();
-						logger.debug("", a.hashCode());
-					}
-					logger.debug("------");
+					if (debug)
+						logger.debug("Stack: ", atomStack.size());
 					bondStack.push(bondStatus);
 					position++;
 				} else if (mychar == ')')
 				{
 					lastNode = (IAtom) atomStack.pop();
-					logger.debug("Stack:");
-					Enumeration<IAtom> ses = atomStack.elements();
-					while (ses.hasMoreElements())
-					{
-						IAtom a = ses.nextElement();
-						logger.debug("", a.hashCode());
-					}
-					logger.debug("------");
+					if (debug)
+						logger.debug("Stack: ", atomStack.size());
 					bondStatus = bondStack.pop();
 					position++;
 				} else if (mychar >= '0' && mychar <= '9')
 				{
 					status = 2;
-					chars[0] = mychar;
-					currentSymbol = new String(chars);
-					thisRing = (Integer.valueOf(currentSymbol)).intValue();
+					thisRing = mychar - '0';
 					handleRing(lastNode);
 					position++;
 				} else if (mychar == '%')
 				{
-					currentSymbol = getRingNumber(smiles, position);
-					thisRing = (Integer.valueOf(currentSymbol)).intValue();
+					thisRing = getRingNumber(smiles, position);
 					handleRing(lastNode);
-					position += currentSymbol.length() + 1;
+					position += 3;
 				} else if (mychar == '[')
 				{
 					currentSymbol = getAtomString(smiles, position);
@@ -568,52 +605,31 @@ public class SmilesParser {
 				}
 			} catch (InvalidSmilesException exc)
 			{
-				logger.error("InvalidSmilesException while parsing char (in parseSmiles()) '" + 
-					mychar + "': " + exc.getMessage());
+				logger.error("InvalidSmilesException while parsing char (in parseSmiles()) '", 
+					mychar, "': ", exc.getMessage());
 				logger.debug(exc);
 				throw exc;
 			} catch (Exception exception)
 			{
-				logger.error("Error while parsing char '" + mychar + "': " + exception.getMessage());
+				logger.error("Error while parsing char '", mychar, "': ", exception.getMessage());
 				logger.debug(exception);
 				throw new InvalidSmilesException("Error while parsing char: " + mychar, exception);
 			}
-			logger.debug("Parsing next char");
 		} while (position < smiles.length());
 
 
         if (thisRing != -1 && ringbonds[thisRing] != null && rings[thisRing] != null)
             throw new InvalidSmilesException("Rings weren't properly closed. Check ring numbers");
-
-		return molecule;
 	}
 
-	private String getAtomString(String smiles, int pos) throws InvalidSmilesException
+
+	private String getAtomString(CharSequence smiles, int pos) throws InvalidSmilesException
 	{
 		logger.debug("getAtomString()");
-		StringBuffer atomString = new StringBuffer();
-		try
-		{
-			for (int f = pos + 1; f < smiles.length(); f++)
-			{
-				char character = smiles.charAt(f);
-				if (character == ']')
-				{
-					break;
-				} else
-				{
-					atomString.append(character);
-				}
-			}
-		} catch (Exception exception)
-		{
-			String message = "Problem parsing Atom specification given in brackets.\n";
-			message += "Invalid SMILES string was: " + smiles;
-			logger.error(message);
-			logger.debug(exception);
-			throw new InvalidSmilesException(message, exception);
-		}
-		return atomString.toString();
+		int end = pos + 1;
+		while (end < smiles.length() && smiles.charAt(end) != ']')
+			end++;
+		return smiles.subSequence(pos + 1, end).toString();
 	}
 
 	private int getCharge(String chargeString, int position)
@@ -656,7 +672,7 @@ public class SmilesParser {
 
 	private int getImplicitHydrogenCount(String s, int position)
 	{
-		logger.debug("getImplicitHydrogenCount(): Parsing implicit hydrogens from: " + s);
+		logger.debug("getImplicitHydrogenCount(): Parsing implicit hydrogens from: ", s);
 
         // from the calling code, we only come here if we hit an H
         //
@@ -695,7 +711,7 @@ public class SmilesParser {
 
 	private String getElementSymbol(String s, int pos)
 	{
-		logger.debug("getElementSymbol(): Parsing element symbol (pos=" + pos + ") from: " + s);
+		logger.debug("getElementSymbol(): Parsing element symbol (pos=", pos, ") from: ", s);
 		// try to match elements not in the organic subset.
 		// first, the two char elements
 		if (pos < s.length() - 1)
@@ -741,35 +757,42 @@ public class SmilesParser {
 	 *  See: <a href="http://www.daylight.com/dayhtml/smiles/smiles-atoms.html">
 	 *  http://www.daylight.com/dayhtml/smiles/smiles-atoms.html</a> .
 	 */
-	private String getSymbolForOrganicSubsetElement(String s, int pos)
+	private String getSymbolForOrganicSubsetElement(CharSequence s, int pos)
 	{
 		logger.debug("getSymbolForOrganicSubsetElement(): Parsing organic subset element from: ", s);
+		char c = s.charAt(pos);
 		if (pos < s.length() - 1)
 		{
-			String possibleSymbol = s.substring(pos, pos + 2);
-			if (("ClBr".indexOf(possibleSymbol) >= 0))
-			{
-				return possibleSymbol;
-			}
+			char next = s.charAt(pos + 1);
+			if (c == 'C' && next == 'l')
+				return "Cl";
+			if (c == 'B' && next == 'r')
+				return "Br";
 		}
-		if ("BbCcNnOoFPSsI".indexOf((s.charAt(pos))) >= 0)
+		if ("BbCcNnOoFPSsI".indexOf(c) >= 0)
 		{
-			return s.substring(pos, pos + 1);
+			return symbol(c);
 		}
-		if ("fpi".indexOf((s.charAt(pos))) >= 0)
+		if ("fpi".indexOf(c) >= 0)
 		{
-			logger.warn("Element ", s, " is normally not sp2 hybridisized!");
-			return s.substring(pos, pos + 1);
+			logger.warn("Element ", c, " is normally not sp2 hybridisized!");
+			return symbol(c);
 		}
 		logger.warn("Subset element not found!");
 		return null;
 	}
 
+	/**
+	 * The string of a one letter element symbol.
+	 */
+	private static String symbol(char c) {
+		return c < SYMBOLS.length && SYMBOLS[c] != null ? SYMBOLS[c] : String.valueOf(c);
+	}
 
 	/**
 	 *  Gets the RingNumber attribute of the SmilesParser object
 	 */
-	private String getRingNumber(String s, int pos) throws InvalidSmilesException {
+	private int getRingNumber(CharSequence s, int pos) throws InvalidSmilesException {
 		logger.debug("getRingNumber()");
 		pos++;
 
@@ -777,13 +800,11 @@ public class SmilesParser {
 		if (pos >= s.length() - 1)
 			throw new InvalidSmilesException("Percent sign ring closure numbers must be two-digit.");
 
-		String retString = s.substring(pos, pos + 2);
-
-		if (retString.charAt(0) < '0' || retString.charAt(0) > '9' || 
-			retString.charAt(1) < '0' || retString.charAt(1) > '9')
+		char tens = s.charAt(pos), ones = s.charAt(pos + 1);
+		if (tens < '0' || tens > '9' || ones < '0' || ones > '9')
 			throw new InvalidSmilesException("Percent sign ring closure numbers must be two-digit.");
 
-		return retString;
+		return 10 * (tens - '0') + (ones - '0');
 	}
 
 	private IAtom assembleAtom(String s, IAtom lastNode, boolean bondExists) throws InvalidSmilesException
@@ -800,7 +821,7 @@ public class SmilesParser {
 			try
 			{
 				mychar = s.charAt(position);
-				logger.debug("Parsing char: " + mychar);
+				logger.debug("Parsing char: ", mychar);
 				if ((mychar >= 'A' && mychar <= 'Z') || (mychar >= 'a' && mychar <= 'z'))
 				{
 					currentSymbol = getElementSymbol(s, position);
@@ -879,7 +900,7 @@ public class SmilesParser {
 			try
 			{
 				mychar = s.charAt(position);
-				logger.debug("Parsing char: " + mychar);
+				logger.debug("Parsing char: ", mychar);
 				if (mychar == 'H')
 				{
 					// count implicit hydrogens
@@ -1017,7 +1038,16 @@ public class SmilesParser {
         }
     }
 
-    private void addImplicitHydrogens(IAtomContainer container) {
+    /**
+     * Adds the implicit hydrogens of the atoms of a molecule made by
+     * {@link #parseGraph(CharSequence, IAtomContainer)} that were not
+     * written in brackets. The atoms must be typed first, see
+     * {@link #perceiveAtomTypes(IAtomContainer)}.
+     *
+     * @param container the molecule to add the hydrogens to
+     */
+    @TestMethod("testParseGraph_Steps")
+    public void addImplicitHydrogens(IAtomContainer container) {
 		try {
 			logger.debug("before H-adding: ", container);
 			Iterator<IAtom> atoms = container.atoms().iterator();
@@ -1033,7 +1063,52 @@ public class SmilesParser {
 		}
 	}
 
-	private void perceiveAromaticity(IAtomContainer m) {
+    /**
+     * Flags the ring bonds between lower case atoms of a molecule made by
+     * {@link #parseGraph(CharSequence, IAtomContainer)} as
+     * {@link CDKConstants#SINGLE_OR_DOUBLE} and perceives the aromaticity,
+     * or when aromaticity is preserved flags the bonds between aromatic atoms
+     * as aromatic. The atoms must be typed first, see
+     * {@link #perceiveAtomTypes(IAtomContainer)}.
+     *
+     * @param molecule the molecule to perceive the aromaticity of
+     */
+    @TestMethod("testParseGraph_Steps")
+    public void perceiveAromaticity(IAtomContainer molecule) {
+        // Set the flag SINGLE_OR_DOUBLE to false if the bond with it isn't in a ring.
+       if (molecule.getFlag(CDKConstants.SINGLE_OR_DOUBLE)) {
+        	SpanningTree molTree = new SpanningTree(molecule);
+        	try {
+        		IRingSet rings = molTree.getAllRings();
+        		for (int j = 0; j < rings.getAtomContainerCount(); j++) {
+        			for (IBond bond : rings.getAtomContainer(j).bonds())
+        				if (bond.getAtom(0).getFlag(CDKConstants.SINGLE_OR_DOUBLE) &&
+        						bond.getAtom(1).getFlag(CDKConstants.SINGLE_OR_DOUBLE)
+        						) {
+        					bond.setFlag(CDKConstants.SINGLE_OR_DOUBLE, true);
+        				}
+        		}
+        	} catch (NoSuchAtomException exception) {
+        		logger.error("Caught unexpected Exception while identifying the rings.");
+        		logger.debug(exception);
+        	}
+        }
+        
+        if (!preservingAromaticity ) {
+            this.detectAromaticity(molecule);
+        }
+        else  {
+            for (IBond bond : molecule.bonds() ) {
+                if(!bond.getFlag(CDKConstants.ISAROMATIC) &&
+                    bond.getAtom(0).getFlag(CDKConstants.ISAROMATIC) &&
+                    bond.getAtom(1).getFlag(CDKConstants.ISAROMATIC)) {
+                       bond.setFlag(CDKConstants.ISAROMATIC,true);
+                   }
+            }
+        }
+    }
+
+	private void detectAromaticity(IAtomContainer m) {
 	    IAtomContainerSet moleculeSet = ConnectivityChecker.partitionIntoMolecules(m);
 		logger.debug("#mols ", moleculeSet.getAtomContainerCount());
 		for (int i = 0; i < moleculeSet.getAtomContainerCount(); i++) {
@@ -1070,5 +1145,42 @@ public class SmilesParser {
         return preservingAromaticity;
     }
 	
-}
+    /**
+     * A view of US-ASCII bytes as characters, the bytes are not copied.
+     */
+    private static final class AsciiSequence implements CharSequence {
 
+        private final ByteBuffer buffer;
+        private final int        offset, length;
+
+        AsciiSequence(ByteBuffer buffer, int offset, int length) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public int length() {
+            return length;
+        }
+
+        public char charAt(int index) {
+            if (index < 0 || index >= length)
+                throw new IndexOutOfBoundsException("index " + index + " of " + length);
+            return (char) (buffer.get(offset + index) & 0xff);
+        }
+
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > length || start > end)
+                throw new IndexOutOfBoundsException("range " + start + "-" + end + " of " + length);
+            return new AsciiSequence(buffer, offset + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            char[] chars = new char[length];
+            for (int i = 0; i < length; i++)
+                chars[i] = charAt(i);
+            return new String(chars);
+        }
+    }
+}
@@ -0,0 +1,507 @@
+/*
+ * Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.smiles.smarts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openscience.cdk.CDKConstants;
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.interfaces.IChemObjectBuilder;
+import org.openscience.cdk.isomorphism.UniversalIsomorphismTester;
+import org.openscience.cdk.isomorphism.VentoFoggia;
+import org.openscience.cdk.isomorphism.matchers.IQueryAtom;
+import org.openscience.cdk.isomorphism.matchers.IQueryBond;
+import org.openscience.cdk.isomorphism.matchers.QueryAtomContainer;
+import org.openscience.cdk.isomorphism.matchers.smarts.AliphaticSymbolAtom;
+import org.openscience.cdk.isomorphism.matchers.smarts.AromaticAtom;
+import org.openscience.cdk.isomorphism.matchers.smarts.AromaticQueryBond;
+import org.openscience.cdk.isomorphism.matchers.smarts.AromaticSymbolAtom;
+import org.openscience.cdk.isomorphism.matchers.smarts.AtomicNumberAtom;
+import org.openscience.cdk.isomorphism.matchers.smarts.LogicalOperatorAtom;
+import org.openscience.cdk.isomorphism.matchers.smarts.LogicalOperatorBond;
+import org.openscience.cdk.isomorphism.matchers.smarts.OrderQueryBond;
+import org.openscience.cdk.isomorphism.matchers.smarts.RingAtom;
+import org.openscience.cdk.isomorphism.matchers.smarts.RingBond;
+import org.openscience.cdk.isomorphism.matchers.smarts.SmallestRingAtom;
+import org.openscience.cdk.smiles.smarts.parser.SMARTSParser;
+import org.openscience.cdk.smiles.smarts.parser.TokenMgrError;
+import org.openscience.cdk.tools.periodictable.PeriodicTable;
+
+/**
+ * A set of SMARTS patterns which are compiled once and then tested for their
+ * presence in any number of target molecules. This is used by the
+ * SMARTS based fingerprints, which only need to know whether each pattern
+ * occurs and not where. <p/>
+ *
+ * Compared to calling {@link SMARTSQueryTool#matches(IAtomContainer)} for each
+ * pattern in turn the set:
+ * <ul>
+ *     <li>parses each distinct SMARTS only once</li>
+ *     <li>initializes (rings, aromaticity, valences) the target only once, see
+ *         {@link SMARTSTarget}</li>
+ *     <li>derives from each query the minimum number of atoms of each element,
+ *         aromatic and ring atoms and bonds of each type it requires, patterns
+ *         requiring the same features are grouped and the group is screened
+ *         out when the target cannot satisfy them</li>
+ *     <li>stops the search for a pattern at the first match</li>
+ * </ul>
+ *
+ * <pre>
+ * SMARTSPatternSet patterns = new SMARTSPatternSet(new String[]{"C=O", "c1ccccc1"},
+ *                                                  DefaultChemObjectBuilder.getInstance());
+ * BitSet present = patterns.matches(molecule);
+ * </pre>
+ *
+ * As recursive SMARTS atoms store the molecule being matched a pattern set
+ * should not be shared between threads.
+ *
+ * @cdk.module smarts
+ * @cdk.githash
+ * @cdk.keyword SMARTS
+ * @cdk.keyword substructure search
+ * @see SMARTSQueryTool
+ */
+@TestClass("org.openscience.cdk.smiles.smarts.SMARTSPatternSetTest")
+public final class SMARTSPatternSet {
+
+    /* indices of the features in a screen */
+    private static final int ATOMS          = 0;
+    private static final int BONDS          = 1;
+    private static final int AROMATIC_ATOMS = 2;
+    private static final int RING_ATOMS     = 3;
+    private static final int AROMATIC_BONDS = 4;
+    private static final int SINGLE_BONDS   = 5;
+    private static final int DOUBLE_BONDS   = 6;
+    private static final int TRIPLE_BONDS   = 7;
+    private static final int RING_BONDS     = 8;
+    private static final int ELEMENTS       = 9;
+
+    /* number of features (fixed features and one per element) */
+    private static final int N_FEATURES     = ELEMENTS + PeriodicTable.getElementCount() + 1;
+
+    /* the SMARTS patterns, in the order provided */
+    private final String[]             smarts;
+
+    /* index of the compiled query for each pattern */
+    private final int[]                patternQuery;
+
+    /* the distinct compiled queries */
+    private final QueryAtomContainer[] queries;
+
+    /* the queries of each screen group */
+    private final int[][]              groupQueries;
+
+    /* the required features (keys and minimum counts) of each screen group */
+    private final int[][]              groupKeys;
+    private final int[][]              groupMins;
+
+    /* patterns which match each distinct query */
+    private final int[][]              queryPatterns;
+
+    /* matcher of each distinct query, null if the query is matched on its bonds */
+    private final VentoFoggia[]        matchers;
+
+    private final UniversalIsomorphismTester uit = new UniversalIsomorphismTester();
+
+    /**
+     * Compile the provided SMARTS patterns.
+     *
+     * @param smarts  the SMARTS patterns
+     * @param builder the builder used to create the queries
+     * @throws CDKException one of the patterns could not be parsed
+     */
+    @TestMethod("testMatches,testDuplicates")
+    public SMARTSPatternSet(String[] smarts, IChemObjectBuilder builder) throws CDKException {
+
+        this.smarts       = smarts.clone();
+        this.patternQuery = new int[smarts.length];
+
+        Map<String, Integer>     compiled = new HashMap<String, Integer>();
+        List<QueryAtomContainer> queries  = new ArrayList<QueryAtomContainer>();
+        List<List<Integer>>      patterns = new ArrayList<List<Integer>>();
+
+        for (int i = 0; i < smarts.length; i++) {
+            Integer index = compiled.get(smarts[i]);
+            if (index == null) {
+                index = queries.size();
+                queries.add(parse(smarts[i], i, builder));
+                patterns.add(new ArrayList<Integer>(2));
+                compiled.put(smarts[i], index);
+            }
+            patternQuery[i] = index;
+            patterns.get(index).add(i);
+        }
+
+        this.queries       = queries.toArray(new QueryAtomContainer[queries.size()]);
+        this.queryPatterns = new int[queries.size()][];
+        this.matchers      = new VentoFoggia[queries.size()];
+        for (int i = 0; i < queryPatterns.length; i++) {
+            queryPatterns[i] = toArray(patterns.get(i));
+            if (VentoFoggia.supports(this.queries[i]))
+                matchers[i]  = VentoFoggia.findSubstructure(this.queries[i]);
+        }
+
+        // group the queries on their required features
+        Map<String, Integer> screens    = new HashMap<String, Integer>();
+        List<int[]>          keys       = new ArrayList<int[]>();
+        List<int[]>          mins       = new ArrayList<int[]>();
+        List<List<Integer>>  groups     = new ArrayList<List<Integer>>();
+
+        for (int i = 0; i < this.queries.length; i++) {
+            int[] required = requiredFeatures(this.queries[i]);
+            int   n        = 0;
+            for (int count : required)
+                if (count > 0) n++;
+            int[] key = new int[n];
+            int[] min = new int[n];
+            n = 0;
+            for (int f = 0; f < required.length; f++) {
+                if (required[f] > 0) {
+                    key[n] = f;
+                    min[n] = required[f];
+                    n++;
+                }
+            }
+            String  id    = Arrays.toString(key) + Arrays.toString(min);
+            Integer group = screens.get(id);
+            if (group == null) {
+                group = groups.size();
+                screens.put(id, group);
+                keys.add(key);
+                mins.add(min);
+                groups.add(new ArrayList<Integer>());
+            }
+            groups.get(group).add(i);
+        }
+
+        this.groupKeys    = keys.toArray(new int[keys.size()][]);
+        this.groupMins    = mins.toArray(new int[mins.size()][]);
+        this.groupQueries = new int[groups.size()][];
+        for (int i = 0; i < groupQueries.length; i++)
+            groupQueries[i] = toArray(groups.get(i));
+    }
+
+    /**
+     * The number of patterns in the set.
+     *
+     * @return number of patterns
+     */
+    @TestMethod("testMatches")
+    public int size() {
+        return smarts.length;
+    }
+
+    /**
+     * Access the SMARTS pattern at the given index.
+     *
+     * @param i index of the pattern
+     * @return the SMARTS pattern
+     */
+    @TestMethod("testMatches")
+    public String getSmarts(int i) {
+        return smarts[i];
+    }
+
+    /**
+     * Determine which patterns are present in the target molecule. The
+     * molecule is initialized (rings, aromaticity, valences) as done by
+     * {@link SMARTSQueryTool}.
+     *
+     * @param atomContainer the target molecule
+     * @return a bit set, with a bit set for each pattern that was found
+     * @throws CDKException the molecule could not be initialized or matched
+     */
+    @TestMethod("testMatches,testDuplicates,testScreen")
+    public BitSet matches(IAtomContainer atomContainer) throws CDKException {
+        return matches(new SMARTSTarget(atomContainer));
+    }
+
+    /**
+     * Determine which patterns are present in a target molecule which has
+     * already been prepared.
+     *
+     * @param target the prepared target molecule
+     * @return a bit set, with a bit set for each pattern that was found
+     * @throws CDKException the molecule could not be matched
+     */
+    @TestMethod("testPreparedTarget")
+    public BitSet matches(SMARTSTarget target) throws CDKException {
+
+        IAtomContainer atomContainer = target.getAtomContainer();
+
+        int[]  features = targetFeatures(atomContainer);
+        BitSet result   = new BitSet(smarts.length);
+
+        for (int g = 0; g < groupQueries.length; g++) {
+            if (!screen(groupKeys[g], groupMins[g], features))
+                continue;
+            for (int q : groupQueries[g]) {
+                if (matches(q, atomContainer)) {
+                    for (int p : queryPatterns[q])
+                        result.set(p);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Check whether the query is present in the target, the search stops at
+     * the first match. Queries whose recursive parts left bonds to atoms
+     * outside the query are matched with the bond based isomorphism tester.
+     */
+    private boolean matches(int q, IAtomContainer atomContainer) throws CDKException {
+
+        QueryAtomContainer query = queries[q];
+        SMARTSQueryTool.initializeRecursiveSmarts(query, atomContainer);
+
+        if (matchers[q] != null)
+            return matchers[q].matches(atomContainer);
+
+        if (query.getAtomCount() == 1) {
+            IQueryAtom queryAtom = (IQueryAtom) query.getAtom(0);
+            for (IAtom atom : atomContainer.atoms()) {
+                if (queryAtom.matches(atom))
+                    return true;
+            }
+            return false;
+        }
+
+        return uit.getSubgraphMap(atomContainer, query) != null;
+    }
+
+    /**
+     * Check the target provides at least the minimum count of each feature.
+     */
+    private static boolean screen(int[] keys, int[] mins, int[] features) {
+        for (int i = 0; i < keys.length; i++) {
+            if (features[keys[i]] < mins[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Count the features of an initialized target molecule.
+     */
+    private static int[] targetFeatures(IAtomContainer atomContainer) {
+
+        int[] features = new int[N_FEATURES];
+
+        features[ATOMS] = atomContainer.getAtomCount();
+        features[BONDS] = atomContainer.getBondCount();
+
+        for (IAtom atom : atomContainer.atoms()) {
+            if (atom.getFlag(CDKConstants.ISAROMATIC))
+                features[AROMATIC_ATOMS]++;
+            if (atom.getFlag(CDKConstants.ISINRING))
+                features[RING_ATOMS]++;
+            Integer element = atom.getSymbol() != null ? PeriodicTable.getAtomicNumber(atom.getSymbol()) : null;
+            if (element != null && element > 0 && ELEMENTS + element < N_FEATURES)
+                features[ELEMENTS + element]++;
+        }
+
+        for (IBond bond : atomContainer.bonds()) {
+            if (bond.getFlag(CDKConstants.ISINRING))
+                features[RING_BONDS]++;
+            if (bond.getFlag(CDKConstants.ISAROMATIC))
+                features[AROMATIC_BONDS]++;
+            else if (bond.getOrder() == IBond.Order.SINGLE)
+                features[SINGLE_BONDS]++;
+            else if (bond.getOrder() == IBond.Order.DOUBLE)
+                features[DOUBLE_BONDS]++;
+            else if (bond.getOrder() == IBond.Order.TRIPLE)
+                features[TRIPLE_BONDS]++;
+        }
+
+        return features;
+    }
+
+    /**
+     * Determine the features any match of the query requires. As each query
+     * atom and bond maps to a distinct target atom and bond, the number of
+     * query atoms (bonds) which require a feature is a lower bound on the
+     * number of target atoms (bonds) with the feature.
+     */
+    private static int[] requiredFeatures(QueryAtomContainer query) {
+
+        int[] required = new int[N_FEATURES];
+
+        required[ATOMS] = query.getAtomCount();
+        required[BONDS] = query.getBondCount();
+
+        for (IAtom atom : query.atoms()) {
+            IQueryAtom queryAtom = (IQueryAtom) atom;
+            int element = element(queryAtom);
+            if (element > 0 && ELEMENTS + element < N_FEATURES)
+                required[ELEMENTS + element]++;
+            if (aromatic(queryAtom))
+                required[AROMATIC_ATOMS]++;
+            if (ring(queryAtom))
+                required[RING_ATOMS]++;
+        }
+
+        for (IBond bond : query.bonds()) {
+            if (!(bond instanceof IQueryBond))
+                continue;
+            IQueryBond queryBond = (IQueryBond) bond;
+            int type = bondType(queryBond);
+            if (type > 0)
+                required[type]++;
+            if (ringBond(queryBond))
+                required[RING_BONDS]++;
+        }
+
+        return required;
+    }
+
+    /**
+     * The atomic number a query atom requires, 0 if it does not require a
+     * specific element.
+     */
+    private static int element(IQueryAtom atom) {
+        if (atom instanceof AliphaticSymbolAtom || atom instanceof AromaticSymbolAtom) {
+            Integer element = PeriodicTable.getAtomicNumber(atom.getSymbol());
+            return element != null ? element : 0;
+        } else if (atom instanceof AtomicNumberAtom) {
+            return atom.getAtomicNumber() != null ? atom.getAtomicNumber() : 0;
+        } else if (atom instanceof LogicalOperatorAtom) {
+            LogicalOperatorAtom op = (LogicalOperatorAtom) atom;
+            if (op.getRight() == null)
+                return "not".equals(op.getOperator()) ? 0 : element(op.getLeft());
+            int left  = element(op.getLeft());
+            int right = element(op.getRight());
+            if ("and".equals(op.getOperator()))
+                return left != 0 ? left : right;
+            if ("or".equals(op.getOperator()))
+                return left == right ? left : 0;
+        }
+        return 0;
+    }
+
+    /**
+     * Whether the query atom only matches aromatic atoms.
+     */
+    private static boolean aromatic(IQueryAtom atom) {
+        if (atom instanceof AromaticSymbolAtom || atom instanceof AromaticAtom) {
+            return true;
+        } else if (atom instanceof LogicalOperatorAtom) {
+            LogicalOperatorAtom op = (LogicalOperatorAtom) atom;
+            if (op.getRight() == null)
+                return !"not".equals(op.getOperator()) && aromatic(op.getLeft());
+            if ("and".equals(op.getOperator()))
+                return aromatic(op.getLeft()) || aromatic(op.getRight());
+            if ("or".equals(op.getOperator()))
+                return aromatic(op.getLeft()) && aromatic(op.getRight());
+        }
+        return false;
+    }
+
+    /**
+     * Whether the query atom only matches ring atoms.
+     */
+    private static boolean ring(IQueryAtom atom) {
+        if (atom instanceof RingAtom || atom instanceof SmallestRingAtom) {
+            return true;
+        } else if (atom instanceof LogicalOperatorAtom) {
+            LogicalOperatorAtom op = (LogicalOperatorAtom) atom;
+            if (op.getRight() == null)
+                return !"not".equals(op.getOperator()) && ring(op.getLeft());
+            if ("and".equals(op.getOperator()))
+                return ring(op.getLeft()) || ring(op.getRight());
+            if ("or".equals(op.getOperator()))
+                return ring(op.getLeft()) && ring(op.getRight());
+        }
+        return false;
+    }
+
+    /**
+     * The bond feature a query bond requires, 0 if none.
+     */
+    private static int bondType(IQueryBond bond) {
+        if (bond instanceof AromaticQueryBond) {
+            return AROMATIC_BONDS;
+        } else if (bond instanceof OrderQueryBond) {
+            if (bond.getFlag(CDKConstants.ISAROMATIC))
+                return 0;
+            IBond.Order order = bond.getOrder();
+            if (order == IBond.Order.SINGLE) return SINGLE_BONDS;
+            if (order == IBond.Order.DOUBLE) return DOUBLE_BONDS;
+            if (order == IBond.Order.TRIPLE) return TRIPLE_BONDS;
+        } else if (bond instanceof LogicalOperatorBond) {
+            LogicalOperatorBond op = (LogicalOperatorBond) bond;
+            if (op.getRight() == null)
+                return "not".equals(op.getOperator()) ? 0 : bondType(op.getLeft());
+            int left  = bondType(op.getLeft());
+            int right = bondType(op.getRight());
+            if ("and".equals(op.getOperator()))
+                return left != 0 ? left : right;
+            if ("or".equals(op.getOperator()))
+                return left == right ? left : 0;
+        }
+        return 0;
+    }
+
+    /**
+     * Whether the query bond only matches ring bonds.
+     */
+    private static boolean ringBond(IQueryBond bond) {
+        if (bond instanceof RingBond) {
+            return true;
+        } else if (bond instanceof LogicalOperatorBond) {
+            LogicalOperatorBond op = (LogicalOperatorBond) bond;
+            if (op.getRight() == null)
+                return !"not".equals(op.getOperator()) && ringBond(op.getLeft());
+            if ("and".equals(op.getOperator()))
+                return ringBond(op.getLeft()) || ringBond(op.getRight());
+            if ("or".equals(op.getOperator()))
+                return ringBond(op.getLeft()) && ringBond(op.getRight());
+        }
+        return false;
+    }
+
+    private static QueryAtomContainer parse(String smarts, int index, IChemObjectBuilder builder) throws CDKException {
+        try {
+            return SMARTSParser.parse(smarts, builder);
+        } catch (TokenMgrError error) {
+            throw new CDKException("Error parsing SMARTS pattern " + index + ": " + smarts, error);
+        } catch (IllegalArgumentException error) {
+            throw new CDKException("Error parsing SMARTS pattern " + index + ": " + smarts, error);
+        }
+    }
+
+    private static int[] toArray(List<Integer> xs) {
+        int[] array = new int[xs.size()];
+        for (int i = 0; i < array.length; i++)
+            array[i] = xs.get(i);
+        return array;
+    }
+}
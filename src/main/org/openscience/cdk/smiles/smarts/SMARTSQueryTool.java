@@ -22,39 +22,33 @@ package org.openscience.cdk.smiles.smarts;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
-import org.openscience.cdk.CDKConstants;
 import org.openscience.cdk.annotations.TestClass;
 import org.openscience.cdk.annotations.TestMethod;
-import org.openscience.cdk.aromaticity.CDKHueckelAromaticityDetector;
 import org.openscience.cdk.exception.CDKException;
 import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.interfaces.IBond;
 import org.openscience.cdk.interfaces.IChemObjectBuilder;
-import org.openscience.cdk.interfaces.IRingSet;
 import org.openscience.cdk.isomorphism.UniversalIsomorphismTester;
+import org.openscience.cdk.isomorphism.VentoFoggia;
 import org.openscience.cdk.isomorphism.matchers.IQueryAtom;
 import org.openscience.cdk.isomorphism.matchers.QueryAtomContainer;
 import org.openscience.cdk.isomorphism.matchers.smarts.HydrogenAtom;
 import org.openscience.cdk.isomorphism.matchers.smarts.LogicalOperatorAtom;
 import org.openscience.cdk.isomorphism.matchers.smarts.RecursiveSmartsAtom;
 import org.openscience.cdk.isomorphism.mcss.RMap;
-import org.openscience.cdk.ringsearch.AllRingsFinder;
-import org.openscience.cdk.ringsearch.SSSRFinder;
 import org.openscience.cdk.smiles.smarts.parser.SMARTSParser;
 import org.openscience.cdk.smiles.smarts.parser.TokenMgrError;
 import org.openscience.cdk.tools.ILoggingTool;
 import org.openscience.cdk.tools.LoggingToolFactory;
-import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
 
 /**
  * This class provides a easy to use wrapper around SMARTS matching functionality. <p/> User code that wants to do
- * SMARTS matching should use this rather than using SMARTSParser (and UniversalIsomorphismTester) directly. Example
+ * SMARTS matching should use this rather than using SMARTSParser (and VentoFoggia) directly. Example
  * usage would be
  * <p/>
  * <pre>
@@ -226,28 +220,72 @@ public class SMARTSQueryTool {
             initializeMolecule();
         }
 
+        return match();
+    }
+
+    /**
+     * Perform a SMARTS match against a target which has already been prepared. The preparation (ring perception,
+     * aromaticity etc) is not repeated, a single target can therefore be matched by any number of queries.
+     *
+     * @param target the prepared target molecule
+     * @return true if the pattern is found in the target molecule, false otherwise
+     * @throws CDKException if there is an error in isomorphism perception
+     * @see #matches(org.openscience.cdk.interfaces.IAtomContainer)
+     */
+    @TestMethod("testPreparedTarget")
+    public boolean matches(SMARTSTarget target) throws CDKException {
+        this.atomContainer = target.getAtomContainer();
+        return match();
+    }
+
+    /**
+     * Match the query against the current, initialized, target molecule.
+     */
+    private boolean match() throws CDKException {
+
         // First calculate the recursive smarts
         initializeRecursiveSmarts(this.atomContainer);
 
+        // recursive parts may leave bonds to atoms outside the query, the bond based matcher handles these
+        if (!VentoFoggia.supports(query)) {
+            matchingAtoms = matchBonds();
+            return matchingAtoms.size() != 0;
+        }
+
+        // each mapping lists the target atoms matched by the query atoms, in query atom order
+        matchingAtoms = new ArrayList<List<Integer>>();
+        for (int[] mapping : VentoFoggia.findSubstructure(query).matchAll(this.atomContainer)) {
+            List<Integer> tmp = new ArrayList<Integer>(mapping.length);
+            for (int idx : mapping)
+                tmp.add(idx);
+            matchingAtoms.add(tmp);
+        }
+
+        return matchingAtoms.size() != 0;
+    }
+
+    /**
+     * Match the query with the {@link UniversalIsomorphismTester}, used for queries the atom based matcher does not
+     * support.
+     */
+    private List<List<Integer>> matchBonds() throws CDKException {
         // lets see if we have a single atom query
         if (query.getAtomCount() == 1) {
             // lets get the query atom
             IQueryAtom queryAtom = (IQueryAtom) query.getAtom(0);
 
-            matchingAtoms = new ArrayList<List<Integer>>();
+            List<List<Integer>> atomMapping = new ArrayList<List<Integer>>();
             for (IAtom atom : this.atomContainer.atoms()) {
                 if (queryAtom.matches(atom)) {
                     List<Integer> tmp = new ArrayList<Integer>();
                     tmp.add(this.atomContainer.getAtomNumber(atom));
-                    matchingAtoms.add(tmp);
+                    atomMapping.add(tmp);
                 }
             }
-        } else {
-            List bondMapping = new UniversalIsomorphismTester().getSubgraphMaps(this.atomContainer, query);
-            matchingAtoms = getAtomMappings(bondMapping, this.atomContainer);
+            return atomMapping;
         }
-
-        return matchingAtoms.size() != 0;
+        List bondMapping = new UniversalIsomorphismTester().getSubgraphMaps(this.atomContainer, query);
+        return getAtomMappings(bondMapping, this.atomContainer);
     }
 
     /**
@@ -313,145 +351,16 @@ public class SMARTSQueryTool {
 
     /**
      * Prepare the target molecule for analysis. <p/> We perform ring perception and aromaticity detection and set up
-     * the appropriate properties. Right now, this function is called each time we need to do a query and this is
-     * inefficient.
+     * the appropriate properties. To prepare a molecule once for many queries use a {@link SMARTSTarget}.
      *
      * @throws CDKException if there is a problem in ring perception or aromaticity detection, which is usually related
      *                      to a timeout in the ring finding code.
      */
     private void initializeMolecule() throws CDKException {
-        // Code copied from
-        // org.openscience.cdk.qsar.descriptors.atomic.AtomValenceDescriptor;
-        Map<String, Integer> valencesTable = new HashMap<String, Integer>();
-        valencesTable.put("H", 1);
-        valencesTable.put("Li", 1);
-        valencesTable.put("Be", 2);
-        valencesTable.put("B", 3);
-        valencesTable.put("C", 4);
-        valencesTable.put("N", 5);
-        valencesTable.put("O", 6);
-        valencesTable.put("F", 7);
-        valencesTable.put("Na", 1);
-        valencesTable.put("Mg", 2);
-        valencesTable.put("Al", 3);
-        valencesTable.put("Si", 4);
-        valencesTable.put("P", 5);
-        valencesTable.put("S", 6);
-        valencesTable.put("Cl", 7);
-        valencesTable.put("K", 1);
-        valencesTable.put("Ca", 2);
-        valencesTable.put("Ga", 3);
-        valencesTable.put("Ge", 4);
-        valencesTable.put("As", 5);
-        valencesTable.put("Se", 6);
-        valencesTable.put("Br", 7);
-        valencesTable.put("Rb", 1);
-        valencesTable.put("Sr", 2);
-        valencesTable.put("In", 3);
-        valencesTable.put("Sn", 4);
-        valencesTable.put("Sb", 5);
-        valencesTable.put("Te", 6);
-        valencesTable.put("I", 7);
-        valencesTable.put("Cs", 1);
-        valencesTable.put("Ba", 2);
-        valencesTable.put("Tl", 3);
-        valencesTable.put("Pb", 4);
-        valencesTable.put("Bi", 5);
-        valencesTable.put("Po", 6);
-        valencesTable.put("At", 7);
-        valencesTable.put("Fr", 1);
-        valencesTable.put("Ra", 2);
-        valencesTable.put("Cu", 2);
-        valencesTable.put("Mn", 2);
-        valencesTable.put("Co", 2);
-
-        // do all ring perception
-        AllRingsFinder arf = new AllRingsFinder();
-        IRingSet allRings;
-        try {
-            allRings = arf.findAllRings(atomContainer);
-        } catch (CDKException e) {
-            logger.debug(e.toString());
-            throw new CDKException(e.toString(), e);
-        }
-
-        // sets SSSR information
-        SSSRFinder finder = new SSSRFinder(atomContainer);
-        IRingSet sssr = finder.findEssentialRings();
-
-        for (IAtom atom : atomContainer.atoms()) {
-
-            // add a property to each ring atom that will be an array of
-            // Integers, indicating what size ring the given atom belongs to
-            // Add SSSR ring counts
-            if (allRings.contains(atom)) { // it's in a ring
-                atom.setFlag(CDKConstants.ISINRING, true);
-                // lets find which ring sets it is a part of
-                List<Integer> ringsizes = new ArrayList<Integer>();
-                IRingSet currentRings = allRings.getRings(atom);
-                int min = 0;
-                for (int i = 0; i < currentRings.getAtomContainerCount(); i++) {
-                    int size = currentRings.getAtomContainer(i).getAtomCount();
-                    if (min > size) min = size;
-                    ringsizes.add(size);
-                }
-                atom.setProperty(CDKConstants.RING_SIZES, ringsizes);
-                atom.setProperty(CDKConstants.SMALLEST_RINGS, sssr.getRings(atom));
-            } else {
-                atom.setFlag(CDKConstants.ISINRING, false);
-            }
-
-            // determine how many rings bonds each atom is a part of
-            int hCount;
-            if (atom.getImplicitHydrogenCount() == CDKConstants.UNSET) hCount = 0;
-            else hCount = atom.getImplicitHydrogenCount();
-
-            List<IAtom> connectedAtoms = atomContainer.getConnectedAtomsList(atom);
-            int total = hCount + connectedAtoms.size();
-            for (IAtom connectedAtom : connectedAtoms) {
-                if (connectedAtom.getSymbol().equals("H")) {
-                    hCount++;
-                }
-            }
-            atom.setProperty(CDKConstants.TOTAL_CONNECTIONS, total);
-            atom.setProperty(CDKConstants.TOTAL_H_COUNT, hCount);
-
-            if (valencesTable.get(atom.getSymbol()) != null) {
-                int formalCharge = atom.getFormalCharge() == CDKConstants.UNSET ? 0 : atom.getFormalCharge();
-                atom.setValency(valencesTable.get(atom.getSymbol()) - formalCharge);
-            }
-        }
-
-        for (IBond bond : atomContainer.bonds()) {
-            if (allRings.getRings(bond).getAtomContainerCount() > 0) {
-                bond.setFlag(CDKConstants.ISINRING, true);
-            }
-        }
-
-        for (IAtom atom : atomContainer.atoms()) {
-            List<IAtom> connectedAtoms = atomContainer.getConnectedAtomsList(atom);
-
-            int counter = 0;
-            IAtom any;
-            for (IAtom connectedAtom : connectedAtoms) {
-                any = connectedAtom;
-                if (any.getFlag(CDKConstants.ISINRING)) {
-                    counter++;
-                }
-            }
-            atom.setProperty(CDKConstants.RING_CONNECTIONS, counter);
-        }
-
-        // check for atomaticity
-        try {
-            AtomContainerManipulator.percieveAtomTypesAndConfigureAtoms(atomContainer);
-            CDKHueckelAromaticityDetector.detectAromaticity(atomContainer);
-        } catch (CDKException e) {
-            logger.debug(e.toString());
-            throw new CDKException(e.toString(), e);
-        }
+        new SMARTSTarget(atomContainer);
     }
 
+
     /**
      * Initializes recursive smarts atoms in the query.
      * <p/>
@@ -462,6 +371,17 @@ public class SMARTSQueryTool {
      * @throws CDKException
      */
     private void initializeRecursiveSmarts(IAtomContainer atomContainer) throws CDKException {
+        initializeRecursiveSmarts(query, atomContainer);
+    }
+
+    /**
+     * Initializes recursive smarts atoms in the provided query.
+     *
+     * @param query         a parsed SMARTS query
+     * @param atomContainer the target molecule
+     * @throws CDKException
+     */
+    static void initializeRecursiveSmarts(IAtomContainer query, IAtomContainer atomContainer) throws CDKException {
         for (IAtom atom : query.atoms()) {
             initializeRecursiveSmartsAtom(atom, atomContainer);
         }
@@ -474,7 +394,7 @@ public class SMARTSQueryTool {
      * @param atomContainer
      * @throws CDKException
      */
-    private void initializeRecursiveSmartsAtom(IAtom atom, IAtomContainer atomContainer) throws CDKException {
+    private static void initializeRecursiveSmartsAtom(IAtom atom, IAtomContainer atomContainer) throws CDKException {
         if (atom instanceof LogicalOperatorAtom) {
             initializeRecursiveSmartsAtom(((LogicalOperatorAtom) atom).getLeft(), atomContainer);
             if (((LogicalOperatorAtom) atom).getRight() != null) {
@@ -0,0 +1,437 @@
+/*
+ * Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.smiles.smarts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openscience.cdk.CDKConstants;
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.aromaticity.CDKHueckelAromaticityDetector;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.graph.AllCycles;
+import org.openscience.cdk.graph.EssentialCycles;
+import org.openscience.cdk.graph.GraphUtil;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.interfaces.IRing;
+import org.openscience.cdk.interfaces.IRingSet;
+import org.openscience.cdk.ringsearch.RingSearch;
+import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
+
+/**
+ * A target molecule prepared for SMARTS matching. Preparing the target
+ * perceives the rings (membership, sizes, smallest set of rings), ring
+ * connectivity, total connectivity and hydrogen count, valence, atom types and
+ * aromaticity. The values are stored in primitive arrays and on the atoms and
+ * bonds of the molecule (where the SMARTS query atoms look for them) such that
+ * any number of queries can be matched without repeating the perception.
+ *
+ * <blockquote><pre>
+ * SMARTSTarget    target = new SMARTSTarget(molecule);
+ * SMARTSQueryTool sqt    = new SMARTSQueryTool("c1ccccc1", builder);
+ * for (String smarts : filters) {
+ *     sqt.setSmarts(smarts);
+ *     if (sqt.matches(target))
+ *         ...
+ * }
+ * </pre></blockquote>
+ *
+ * All simple rings are found using {@link RingSearch} to partition the
+ * molecule into isolated and fused ring systems and {@link AllCycles} on each
+ * fused system. The smallest set of rings are the {@link EssentialCycles}. If
+ * the molecule was modified after it was prepared a new target should be
+ * created.
+ *
+ * @cdk.module smarts
+ * @cdk.githash
+ * @cdk.keyword SMARTS
+ * @see SMARTSQueryTool#matches(SMARTSTarget)
+ * @see SMARTSPatternSet#matches(SMARTSTarget)
+ */
+@TestClass("org.openscience.cdk.smiles.smarts.SMARTSTargetTest")
+public final class SMARTSTarget {
+
+    /**
+     * Escape clause for the all cycles search, the value is that of {@link
+     * org.openscience.cdk.ringsearch.AllRingsFinder.Threshold#PubChem_99}.
+     */
+    private static final int MAX_DEGREE = 684;
+
+    /* number of valence electrons of elements, indexed by symbol */
+    private static final Map<String, Integer> VALENCES = new HashMap<String, Integer>();
+
+    static {
+        // Code copied from
+        // org.openscience.cdk.qsar.descriptors.atomic.AtomValenceDescriptor;
+        String[][] groups = {
+            {"H", "Li", "Na", "K", "Rb", "Cs", "Fr"},
+            {"Be", "Mg", "Ca", "Sr", "Ba", "Ra", "Cu", "Mn", "Co"},
+            {"B", "Al", "Ga", "In", "Tl"},
+            {"C", "Si", "Ge", "Sn", "Pb"},
+            {"N", "P", "As", "Sb", "Bi"},
+            {"O", "S", "Se", "Te", "Po"},
+            {"F", "Cl", "Br", "I", "At"}
+        };
+        for (int i = 0; i < groups.length; i++)
+            for (String symbol : groups[i])
+                VALENCES.put(symbol, i + 1);
+    }
+
+    /* the prepared molecule and its adjacency list */
+    private final IAtomContainer container;
+    private final int[][]        graph;
+
+    /* all simple rings, as closed paths of atom indices */
+    private final int[][]        rings;
+
+    /* whether each atom and bond is in a ring */
+    private final boolean[]      ringAtoms, ringBonds;
+
+    /* sizes (sorted, unique) of all simple rings each atom belongs to */
+    private final int[][]        ringSizes;
+
+    /* number of smallest (essential) rings each atom belongs to */
+    private final int[]          sssrCounts;
+
+    /* number of ring neighbours, total connections (including hydrogens)
+       total hydrogen count and valence of each atom */
+    private final int[]          ringConnections, totalConnections, totalHCounts, valences;
+
+    /**
+     * Prepare the given molecule for SMARTS matching.
+     *
+     * @param container the molecule
+     * @throws CDKException the rings could not be perceived (the molecule was
+     *                      too complex) or atom typing/aromaticity failed
+     */
+    @TestMethod("testRings,testFused,testSpiro,testBridge,testAromaticity")
+    public SMARTSTarget(IAtomContainer container) throws CDKException {
+
+        this.container = container;
+
+        int n = container.getAtomCount();
+
+        this.graph            = GraphUtil.toAdjList(container);
+        this.ringAtoms        = new boolean[n];
+        this.ringBonds        = new boolean[container.getBondCount()];
+        this.ringSizes        = new int[n][];
+        this.sssrCounts       = new int[n];
+        this.ringConnections  = new int[n];
+        this.totalConnections = new int[n];
+        this.totalHCounts     = new int[n];
+        this.valences         = new int[n];
+
+        List<int[]> rings    = new ArrayList<int[]>();
+        List<int[]> smallest = new ArrayList<int[]>();
+        perceiveRings(rings, smallest);
+        this.rings = rings.toArray(new int[rings.size()][]);
+
+        // ring sizes of each atom
+        int[][] sizes  = new int[n][4];
+        int[]   nSizes = new int[n];
+        for (int[] ring : rings) {
+            int size = ring.length - 1;
+            for (int i = 0; i < size; i++) {
+                int v = ring[i];
+                ringAtoms[v] = true;
+                if (nSizes[v] == sizes[v].length)
+                    sizes[v] = Arrays.copyOf(sizes[v], nSizes[v] * 2);
+                sizes[v][nSizes[v]++] = size;
+            }
+        }
+        for (int v = 0; v < n; v++)
+            ringSizes[v] = unique(sizes[v], nSizes[v]);
+
+        // number of essential rings of each atom, the rings themselves are
+        // also stored on the atoms for the ring membership query atom
+        IRingSet[] atomRings = new IRingSet[n];
+        for (int v = 0; v < n; v++)
+            if (ringAtoms[v])
+                atomRings[v] = container.getBuilder().newInstance(IRingSet.class);
+        for (int[] path : smallest) {
+            IRing ring = toRing(path);
+            for (int i = 0; i < path.length - 1; i++) {
+                sssrCounts[path[i]]++;
+                atomRings[path[i]].addAtomContainer(ring);
+            }
+        }
+
+        for (int v = 0; v < n; v++) {
+            IAtom atom = container.getAtom(v);
+
+            int hCount = atom.getImplicitHydrogenCount() == CDKConstants.UNSET ? 0
+                                                                               : atom.getImplicitHydrogenCount();
+            totalConnections[v] = hCount + graph[v].length;
+            for (int w : graph[v]) {
+                if ("H".equals(container.getAtom(w).getSymbol()))
+                    hCount++;
+                if (ringAtoms[w])
+                    ringConnections[v]++;
+            }
+            totalHCounts[v] = hCount;
+
+            Integer valence = VALENCES.get(atom.getSymbol());
+            if (valence != null) {
+                int formalCharge = atom.getFormalCharge() == CDKConstants.UNSET ? 0 : atom.getFormalCharge();
+                valences[v] = valence - formalCharge;
+                atom.setValency(valences[v]);
+            }
+
+            atom.setFlag(CDKConstants.ISINRING, ringAtoms[v]);
+            if (ringAtoms[v]) {
+                List<Integer> ringsizes = new ArrayList<Integer>(ringSizes[v].length);
+                for (int size : ringSizes[v])
+                    ringsizes.add(size);
+                atom.setProperty(CDKConstants.RING_SIZES, ringsizes);
+                atom.setProperty(CDKConstants.SMALLEST_RINGS, atomRings[v]);
+            }
+            atom.setProperty(CDKConstants.TOTAL_CONNECTIONS, totalConnections[v]);
+            atom.setProperty(CDKConstants.TOTAL_H_COUNT, totalHCounts[v]);
+            atom.setProperty(CDKConstants.RING_CONNECTIONS, ringConnections[v]);
+        }
+
+        for (int e = 0; e < ringBonds.length; e++)
+            container.getBond(e).setFlag(CDKConstants.ISINRING, ringBonds[e]);
+
+        // check for aromaticity
+        AtomContainerManipulator.percieveAtomTypesAndConfigureAtoms(container);
+        CDKHueckelAromaticityDetector.detectAromaticity(container);
+    }
+
+    /**
+     * Find all simple rings and the smallest set of rings. Each ring is stored
+     * as closed path of atom indices (the first and last index are the same).
+     * The ring bonds are marked as the rings are found.
+     *
+     * @param rings    all simple rings
+     * @param smallest the essential rings
+     * @throws CDKException the search for all simple rings was aborted
+     */
+    private void perceiveRings(List<int[]> rings, List<int[]> smallest) throws CDKException {
+
+        RingSearch search = new RingSearch(container, graph);
+
+        // isolated rings are both the only ring and the smallest ring of
+        // their atoms, the atoms only need to be put in order
+        for (int[] isolated : search.isolated()) {
+            int[] path = GraphUtil.cycle(graph, isolated);
+            rings.add(path);
+            smallest.add(path);
+            markBonds(path);
+        }
+
+        for (int[] fused : search.fused()) {
+
+            int[][]   subgraph = GraphUtil.subgraph(graph, fused);
+            AllCycles cycles   = new AllCycles(subgraph, fused.length, MAX_DEGREE);
+
+            if (!cycles.completed())
+                throw new CDKException("Threshold exceeded for all rings perception");
+
+            for (int[] path : cycles.paths()) {
+                rings.add(translate(path, fused));
+                markBonds(rings.get(rings.size() - 1));
+            }
+            for (int[] path : new EssentialCycles(subgraph).paths())
+                smallest.add(translate(path, fused));
+        }
+    }
+
+    /**
+     * Mark the bonds along a closed path as ring bonds.
+     */
+    private void markBonds(int[] path) {
+        for (int i = 1; i < path.length; i++) {
+            IBond bond = container.getBond(container.getAtom(path[i - 1]),
+                                           container.getAtom(path[i]));
+            ringBonds[container.getBondNumber(bond)] = true;
+        }
+    }
+
+    /**
+     * Create a ring from a closed path of atom indices.
+     */
+    private IRing toRing(int[] path) {
+        IRing   ring  = container.getBuilder().newInstance(IRing.class);
+        IAtom[] atoms = new IAtom[path.length - 1];
+        for (int i = 0; i < atoms.length; i++)
+            atoms[i] = container.getAtom(path[i]);
+        ring.setAtoms(atoms);
+        for (int i = 1; i < path.length; i++)
+            ring.addBond(container.getBond(atoms[i - 1], container.getAtom(path[i])));
+        return ring;
+    }
+
+    /**
+     * The molecule this target was prepared from.
+     *
+     * @return the molecule
+     */
+    @TestMethod("testRings")
+    public IAtomContainer getAtomContainer() {
+        return container;
+    }
+
+    /**
+     * All simple rings of the molecule. Each ring is a closed path of atom
+     * indices, the first and last index are the same.
+     *
+     * @return the rings
+     */
+    @TestMethod("testFused")
+    public int[][] rings() {
+        int[][] copy = new int[rings.length][];
+        for (int i = 0; i < rings.length; i++)
+            copy[i] = rings[i].clone();
+        return copy;
+    }
+
+    /**
+     * Whether the atom at index <i>i</i> belongs to a ring.
+     *
+     * @param i atom index
+     * @return the atom is a ring atom
+     */
+    @TestMethod("testRings,testBridge")
+    public boolean isRingAtom(int i) {
+        return ringAtoms[i];
+    }
+
+    /**
+     * Whether the bond at index <i>i</i> belongs to a ring.
+     *
+     * @param i bond index
+     * @return the bond is a ring bond
+     */
+    @TestMethod("testBridge")
+    public boolean isRingBond(int i) {
+        return ringBonds[i];
+    }
+
+    /**
+     * The size of the smallest ring the atom at index <i>i</i> belongs to.
+     *
+     * @param i atom index
+     * @return the smallest ring size, 0 if the atom is not in a ring
+     */
+    @TestMethod("testRings,testFused")
+    public int smallestRingSize(int i) {
+        return ringSizes[i].length > 0 ? ringSizes[i][0] : 0;
+    }
+
+    /**
+     * The sizes of all rings the atom at index <i>i</i> belongs to.
+     *
+     * @param i atom index
+     * @return the ring sizes, in ascending order
+     */
+    @TestMethod("testFused")
+    public int[] ringSizes(int i) {
+        return ringSizes[i].clone();
+    }
+
+    /**
+     * The number of rings of the smallest set of smallest rings the atom at
+     * index <i>i</i> belongs to.
+     *
+     * @param i atom index
+     * @return the number of smallest rings
+     */
+    @TestMethod("testFused,testSpiro")
+    public int sssrCount(int i) {
+        return sssrCounts[i];
+    }
+
+    /**
+     * The number of ring atoms connected to the atom at index <i>i</i>.
+     *
+     * @param i atom index
+     * @return the number of ring neighbours
+     */
+    @TestMethod("testRings")
+    public int ringConnectionCount(int i) {
+        return ringConnections[i];
+    }
+
+    /**
+     * The total number of connections, including implicit hydrogens, of the
+     * atom at index <i>i</i>.
+     *
+     * @param i atom index
+     * @return the total number of connections
+     */
+    @TestMethod("testRings")
+    public int totalConnectionCount(int i) {
+        return totalConnections[i];
+    }
+
+    /**
+     * The total number of hydrogens, implicit and explicit, of the atom at
+     * index <i>i</i>.
+     *
+     * @param i atom index
+     * @return the total hydrogen count
+     */
+    @TestMethod("testRings")
+    public int totalHydrogenCount(int i) {
+        return totalHCounts[i];
+    }
+
+    /**
+     * The valence of the atom at index <i>i</i>, the number of valence
+     * electrons less the formal charge.
+     *
+     * @param i atom index
+     * @return the valence, 0 if not known for the element
+     */
+    @TestMethod("testRings")
+    public int valence(int i) {
+        return valences[i];
+    }
+
+    /**
+     * Translate a path in a subgraph back to the atom indices of the molecule.
+     */
+    private static int[] translate(int[] path, int[] mapping) {
+        int[] translated = new int[path.length];
+        for (int i = 0; i < path.length; i++)
+            translated[i] = mapping[path[i]];
+        return translated;
+    }
+
+    /**
+     * Sort the first <i>n</i> values and remove duplicates.
+     */
+    private static int[] unique(int[] xs, int n) {
+        Arrays.sort(xs, 0, n);
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || xs[i] != xs[i - 1])
+                xs[m++] = xs[i];
+        }
+        return Arrays.copyOf(xs, m);
+    }
+}
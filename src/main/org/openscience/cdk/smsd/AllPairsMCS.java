@@ -0,0 +1,328 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.smsd;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.smsd.global.SearchContext;
+import org.openscience.cdk.smsd.interfaces.Algorithm;
+import org.openscience.cdk.smsd.tools.MolHandler;
+import org.openscience.cdk.tools.ParallelLoop;
+
+/**
+ * Computes the MCS of all pairs of a list of molecules, with several
+ * threads. Each pair is searched with its own {@link Isomorphism} and
+ * {@link SearchContext}, so a slow pair times out on its own and does not
+ * hold up the other pairs. The result of each pair has its MCS, whether it
+ * timed out and how long the search took.
+ *
+ * <pre>
+ * AllPairsMCS allPairs = new AllPairsMCS(Algorithm.DEFAULT, true);
+ * allPairs.setThreads(4);
+ * allPairs.setTimeOut(0.05);
+ * for (AllPairsMCS.Result result : allPairs.compare(molecules))
+ *     System.out.println(result.getFirst() + " " + result.getSecond() + " "
+ *                        + result.getSize() + " " + result.getTime());
+ * </pre>
+ *
+ * The molecules are prepared (hydrogens, atom types, aromaticity) once
+ * before the searches and are not modified.
+ *
+ * @cdk.module smsd
+ * @cdk.githash
+ * @cdk.keyword MCS
+ * @cdk.keyword parallel
+ */
+@TestClass("org.openscience.cdk.smsd.AllPairsMCSTest")
+public class AllPairsMCS {
+
+    private final Algorithm algorithm;
+    private final boolean matchBonds;
+    private boolean removeHydrogen = true;
+    private boolean cleanAndConfigure = true;
+    private double timeOut = -1;
+    private long maxSteps = -1;
+    private int threads = 1;
+    private volatile boolean cancelled = false;
+    private final Set<SearchContext> running = new HashSet<SearchContext>();
+
+    /**
+     * The MCS of a pair of molecules.
+     */
+    public static final class Result {
+
+        private final int first;
+        private final int second;
+        private final Map<Integer, Integer> mapping;
+        private final double tanimoto;
+        private final boolean timeOut;
+        private final double time;
+
+        Result(int first, int second, Map<Integer, Integer> mapping, double tanimoto, boolean timeOut, double time) {
+            this.first = first;
+            this.second = second;
+            this.mapping = mapping;
+            this.tanimoto = tanimoto;
+            this.timeOut = timeOut;
+            this.time = time;
+        }
+
+        /**
+         * The index of the first molecule, the query of the search.
+         * @return index in the list of molecules
+         */
+        @TestMethod("testCompare")
+        public int getFirst() {
+            return first;
+        }
+
+        /**
+         * The index of the second molecule, the target of the search.
+         * @return index in the list of molecules
+         */
+        @TestMethod("testCompare")
+        public int getSecond() {
+            return second;
+        }
+
+        /**
+         * The atom indices of the first molecule mapped to those of the
+         * second molecule.
+         * @return the first MCS mapping
+         */
+        @TestMethod("testCompare")
+        public Map<Integer, Integer> getMapping() {
+            return mapping;
+        }
+
+        /**
+         * The number of atoms of the MCS.
+         * @return the MCS size
+         */
+        @TestMethod("testCompare")
+        public int getSize() {
+            return mapping.size();
+        }
+
+        /**
+         * The Tanimoto similarity of the pair, see
+         * {@link Isomorphism#getTanimotoSimilarity()}.
+         * @return similarity between 0 and 1
+         */
+        @TestMethod("testCompare")
+        public double getTanimotoSimilarity() {
+            return tanimoto;
+        }
+
+        /**
+         * Whether the search of the pair timed out, ran out of steps or was
+         * cancelled, the MCS may then be smaller than the maximum.
+         * @return true if the search stopped early
+         */
+        @TestMethod("testSetTimeOut")
+        public boolean isTimeOut() {
+            return timeOut;
+        }
+
+        /**
+         * The wall clock time of the search of the pair.
+         * @return time in milliseconds
+         */
+        @TestMethod("testCompare")
+        public double getTime() {
+            return time;
+        }
+    }
+
+    /**
+     * Create a driver that searches each pair with the given algorithm.
+     * @param algorithm the MCS algorithm
+     * @param matchBonds true if the bond types should match
+     */
+    @TestMethod("testCompare")
+    public AllPairsMCS(Algorithm algorithm, boolean matchBonds) {
+        this.algorithm = algorithm;
+        this.matchBonds = matchBonds;
+    }
+
+    /**
+     * Set the preparation of the molecules, by default the hydrogens are
+     * removed and the molecules are cleaned and configured.
+     * @param removeHydrogen true to remove the hydrogens before the search
+     * @param cleanAndConfigure true to perceive the atom types and aromaticity
+     */
+    @TestMethod("testCompare")
+    public void setPreparation(boolean removeHydrogen, boolean cleanAndConfigure) {
+        this.removeHydrogen = removeHydrogen;
+        this.cleanAndConfigure = cleanAndConfigure;
+    }
+
+    /**
+     * Set the timeout of the search of each pair. By default the bond
+     * sensitive and bond insensitive timeouts of {@link Isomorphism} are used.
+     * @param timeOut timeout in minutes, -1 for the default
+     */
+    @TestMethod("testSetTimeOut")
+    public void setTimeOut(double timeOut) {
+        this.timeOut = timeOut;
+    }
+
+    /**
+     * Set the step budget of the search of each pair, see
+     * {@link SearchContext#step()}.
+     * @param maxSteps the maximum number of steps, -1 for unlimited
+     */
+    @TestMethod("testSetTimeOut")
+    public void setMaxSteps(long maxSteps) {
+        this.maxSteps = maxSteps;
+    }
+
+    /**
+     * Set the number of threads, the default is to use only the calling
+     * thread.
+     * @param threads the number of threads, at least 1
+     */
+    @TestMethod("testSetThreads")
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("at least one thread is required");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Cancel the searches, may be called from another thread while
+     * {@link #compare(List)} runs. The searches in progress stop with their
+     * mappings so far and the pairs that were not started are skipped. Like
+     * a {@link SearchContext} the cancellation is permanent, later compares
+     * return no results.
+     */
+    @TestMethod("testCancel")
+    public void cancel() {
+        synchronized (running) {
+            cancelled = true;
+            for (SearchContext context : running) {
+                context.cancel();
+            }
+        }
+    }
+
+    /**
+     * Compute the MCS of each pair i &lt; j of the molecules.
+     * @param molecules the molecules
+     * @return the result of each pair, in the order (0,1), (0,2) ... (1,2)
+     * ..., without the pairs that were skipped after a cancel
+     * @throws CDKException if a molecule could not be searched
+     */
+    @TestMethod("testCompare")
+    public List<Result> compare(List<? extends IAtomContainer> molecules) throws CDKException {
+        final IAtomContainer[] prepared = new IAtomContainer[molecules.size()];
+        for (int i = 0; i < prepared.length; i++) {
+            prepared[i] = new MolHandler(molecules.get(i), removeHydrogen, cleanAndConfigure).getMolecule();
+        }
+        final int n = prepared.length * (prepared.length - 1) / 2;
+        final int[] firsts = new int[n];
+        final int[] seconds = new int[n];
+        for (int i = 0, k = 0; i < prepared.length; i++) {
+            for (int j = i + 1; j < prepared.length; j++, k++) {
+                firsts[k] = i;
+                seconds[k] = j;
+            }
+        }
+        final Result[] results = new Result[n];
+        try {
+            ParallelLoop.forEach(n, threads, "AllPairsMCS", new ParallelLoop.Body<Exception>() {
+
+                public void run(int k) throws Exception {
+                    if (!cancelled) {
+                        results[k] = compare(prepared, firsts[k], seconds[k]);
+                    }
+                }
+            });
+        } catch (CDKException exception) {
+            throw exception;
+        } catch (RuntimeException exception) {
+            throw exception;
+        } catch (Exception exception) {
+            throw new IllegalStateException("could not compare the molecules: " + exception, exception);
+        } finally {
+            // the searches still running end at their next check
+            if (Thread.currentThread().isInterrupted()) {
+                cancel();
+            }
+        }
+
+        List<Result> list = new ArrayList<Result>(n);
+        for (Result result : results) {
+            if (result != null) {
+                list.add(result);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Search one pair with its own search context.
+     */
+    private Result compare(IAtomContainer[] molecules, int i, int j) throws Exception {
+        double limit = timeOut;
+        if (limit == -1) {
+            Isomorphism defaults = new Isomorphism(algorithm, matchBonds);
+            limit = matchBonds ? defaults.getBondSensitiveTimeOut() : defaults.getBondInSensitiveTimeOut();
+        }
+        SearchContext context = new SearchContext(limit, maxSteps);
+        synchronized (running) {
+            if (cancelled) {
+                context.cancel();
+            }
+            running.add(context);
+        }
+        try {
+            long start = System.nanoTime();
+            Isomorphism comparison = new Isomorphism(algorithm, matchBonds);
+            comparison.setSearchContext(context);
+            comparison.init(molecules[i], molecules[j], removeHydrogen, false);
+            Map<Integer, Integer> mapping = new TreeMap<Integer, Integer>();
+            if (comparison.getFirstMapping() != null) {
+                mapping.putAll(comparison.getFirstMapping());
+            }
+            double tanimoto = comparison.getTanimotoSimilarity();
+            double time = (System.nanoTime() - start) / 1e6;
+            return new Result(i, j, Collections.unmodifiableMap(mapping), tanimoto, comparison.isTimeOut(), time);
+        } finally {
+            synchronized (running) {
+                running.remove(context);
+            }
+        }
+    }
+}
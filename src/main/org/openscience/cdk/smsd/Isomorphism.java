@@ -49,7 +49,7 @@ import org.openscience.cdk.smsd.algorithm.vflib.VFlibMCSHandler;
 import org.openscience.cdk.smsd.algorithm.vflib.VFlibSubStructureHandler;
 import org.openscience.cdk.smsd.algorithm.vflib.VFlibTurboHandler;
 import org.openscience.cdk.smsd.filters.ChemicalFilters;
-import org.openscience.cdk.smsd.global.TimeOut;
+import org.openscience.cdk.smsd.global.SearchContext;
 import org.openscience.cdk.smsd.interfaces.AbstractMCS;
 import org.openscience.cdk.smsd.interfaces.Algorithm;
 import org.openscience.cdk.smsd.tools.MolHandler;
@@ -182,6 +182,7 @@ public final class Isomorphism extends AbstractMCS implements Serializable {
     private double bondInSensitiveTimeOut = 1.00;//mins
     private boolean subGraph = false;
     private boolean matchBonds = false;
+    private SearchContext context = null;
 
     /**
      * This is the algorithm factory and entry port for all the MCS algorithm in the Isomorphism
@@ -206,12 +207,13 @@ public final class Isomorphism extends AbstractMCS implements Serializable {
         allBondMCS = new ArrayList<Map<IBond, IBond>>();
         firstBondMCS = new HashMap<IBond, IBond>();
 
-        setTime(bondTypeFlag);
         setMatchBonds(bondTypeFlag);
     }
 
     private synchronized void mcsBuilder(MolHandler mol1, MolHandler mol2) {
 
+        initContext();
+
         int rBondCount = mol1.getMolecule().getBondCount();
         int pBondCount = mol2.getMolecule().getBondCount();
 
@@ -234,6 +236,8 @@ public final class Isomorphism extends AbstractMCS implements Serializable {
 
     private synchronized void mcsBuilder(IQueryAtomContainer mol1, IAtomContainer mol2) {
 
+        initContext();
+
         int rBondCount = mol1.getBondCount();
         int pBondCount = mol2.getBondCount();
 
@@ -332,6 +336,7 @@ public final class Isomorphism extends AbstractMCS implements Serializable {
     private synchronized void cdkMCSAlgorithm() {
         CDKMCSHandler mcs = null;
         mcs = new CDKMCSHandler();
+        mcs.setSearchContext(context);
 
         if (queryMol == null) {
             mcs.set(rMol, pMol);
@@ -353,6 +358,7 @@ public final class Isomorphism extends AbstractMCS implements Serializable {
     private synchronized void cdkSubgraphAlgorithm() {
         CDKSubGraphHandler mcs = null;
         mcs = new CDKSubGraphHandler();
+        mcs.setSearchContext(context);
 
         if (queryMol == null) {
             mcs.set(rMol, pMol);
@@ -375,6 +381,7 @@ public final class Isomorphism extends AbstractMCS implements Serializable {
     private synchronized void mcsPlusAlgorithm() {
         MCSPlusHandler mcs = null;
         mcs = new MCSPlusHandler();
+        mcs.setSearchContext(context);
 
         if (queryMol == null) {
             mcs.set(rMol, pMol);
@@ -395,6 +402,7 @@ public final class Isomorphism extends AbstractMCS implements Serializable {
     private void vfLibMCS() {
         VFlibMCSHandler mcs = null;
         mcs = new VFlibMCSHandler();
+        mcs.setSearchContext(context);
         if (queryMol == null) {
             mcs.set(rMol, pMol);
         } else {
@@ -413,6 +421,7 @@ public final class Isomorphism extends AbstractMCS implements Serializable {
     private void subStructureHandler() {
         VFlibSubStructureHandler subGraphTurboSearch = null;
         subGraphTurboSearch = new VFlibSubStructureHandler();
+        subGraphTurboSearch.setSearchContext(context);
         if (queryMol == null) {
             subGraphTurboSearch.set(rMol, pMol);
         } else {
@@ -431,6 +440,7 @@ public final class Isomorphism extends AbstractMCS implements Serializable {
     private void turboSubStructureHandler() {
         VFlibTurboHandler subGraphTurboSearch = null;
         subGraphTurboSearch = new VFlibTurboHandler();
+        subGraphTurboSearch.setSearchContext(context);
         if (queryMol == null) {
             subGraphTurboSearch.set(rMol, pMol);
         } else {
@@ -450,6 +460,8 @@ public final class Isomorphism extends AbstractMCS implements Serializable {
         SingleMappingHandler mcs = null;
 
         mcs = new SingleMappingHandler(removeHydrogen);
+
+        mcs.setSearchContext(context);
         if (queryMol == null) {
             mcs.set(rMol, pMol);
         } else {
@@ -552,22 +564,38 @@ public final class Isomorphism extends AbstractMCS implements Serializable {
         vfLibMCS();
     }
 
-    private void setTime(boolean bondTypeFlag) {
-        if (bondTypeFlag) {
-            TimeOut tmo = TimeOut.getInstance();
-            tmo.setTimeOut(getBondSensitiveTimeOut());
+    /**
+     * Each init uses its own search context, either the one set by the
+     * user or one with the timeout of the bond match mode.
+     */
+    private void initContext() {
+        if (getSearchContext() != null) {
+            context = getSearchContext();
+        } else if (isMatchBonds()) {
+            context = new SearchContext(getBondSensitiveTimeOut());
         } else {
-            TimeOut tmo = TimeOut.getInstance();
-            tmo.setTimeOut(getBondInSensitiveTimeOut());
+            context = new SearchContext(getBondInSensitiveTimeOut());
         }
     }
 
+    /**
+     * Returns true if the last algorithm run of the search timed out, ran
+     * out of steps or was cancelled.
+     * @return true if the search stopped early
+     */
+    @TestMethod("testIsTimeOut")
     public boolean isTimeOut() {
-        return TimeOut.getInstance().isTimeOutFlag();
+        return context != null && context.isTimeOutFlag();
     }
 
+    /**
+     * Clear the timeout flag of the last search.
+     */
+    @TestMethod("testIsTimeOut")
     public void resetTimeOut() {
-        TimeOut.getInstance().setTimeOutFlag(false);
+        if (context != null) {
+            context.restart();
+        }
     }
 
     private void clearMaps() {
@@ -34,6 +34,7 @@ import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.interfaces.IBond;
 import org.openscience.cdk.isomorphism.matchers.IQueryAtomContainer;
+import org.openscience.cdk.smsd.global.SearchContext;
 import org.openscience.cdk.smsd.helper.BinaryTree;
 
 /**
@@ -71,6 +72,7 @@ public final class McGregor {
     };
     private boolean newMatrix = false;
     private boolean bondMatch = false;
+    private SearchContext context = null;
 
     /**
      * Constructor for the McGregor algorithm.
@@ -430,6 +432,11 @@ public final class McGregor {
         int neighborBondNumA = mcGregorHelper.getNeighborBondNumA();
         int neighborBondNumB = mcGregorHelper.getNeighborBondNumB();
 
+        // stop extending when the search times out, the current mapping is kept
+        if (context != null && context.step()) {
+            setFinalMappings(mappedAtoms, mappedAtomCount);
+            return 0;
+        }
 
 //        //check possible mappings:
         boolean furtherMappingFlag = McGregorChecks.isFurtherMappingPossible(source, target, mcGregorHelper, isBondMatch());
@@ -1011,4 +1018,13 @@ public final class McGregor {
     private void setBondMatch(boolean bondMatch) {
         this.bondMatch = bondMatch;
     }
+
+    /**
+     * Set the limits of the search, without a context the extension runs
+     * until it is complete.
+     * @param context the search context
+     */
+    public void setSearchContext(SearchContext context) {
+        this.context = context;
+    }
 }
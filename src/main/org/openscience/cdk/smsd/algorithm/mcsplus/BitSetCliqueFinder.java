@@ -0,0 +1,399 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.smsd.algorithm.mcsplus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Stack;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.smsd.global.SearchContext;
+import org.openscience.cdk.tools.ParallelLoop;
+
+/**
+ * The c-clique enumeration of {@link BKKCKCF} on a compatibility graph
+ * with <code>long[]</code> bit set adjacency. The candidate, excluded and
+ * d-edge sets of a branch are bit sets, so the neighbourhood intersections
+ * are a few word operations instead of list searches. The finder reports
+ * the same maximum cliques in the same order as {@link BKKCKCF}, and
+ * {@link MCSPlus} therefore finds the same mappings with either of them.
+ *
+ * <p>Only the cliques of the largest size are kept, a branch is cut when
+ * the clique of the branch together with a greedy colouring of its
+ * candidates can not reach that size. The branches of the start vertices
+ * are independent of each other and may be searched by several threads,
+ * they share the size of the largest clique found so far.
+ *
+ * @cdk.module smsd
+ * @cdk.githash
+ */
+@TestClass("org.openscience.cdk.smsd.algorithm.mcsplus.BitSetCliqueFinderTest")
+public class BitSetCliqueFinder {
+
+    private final SearchContext context;
+    private final int threads;
+    private final int words;
+    /** the vertices in the order of the compatibility graph nodes */
+    private final int[] vertices;
+    /** neighbours of each vertex in the order of the c-edges and d-edges */
+    private final int[][] neighbours;
+    private final long[][] cAdjacency;
+    private final long[][] dAdjacency;
+    private final long[][] adjacency;
+    private final AtomicInteger bestCliqueSize = new AtomicInteger();
+    /** single vertex cliques share one list, as in {@link BKKCKCF} */
+    private final List<Integer> startClique = new ArrayList<Integer>();
+    private final List<List<Integer>> maxCliquesSet = new ArrayList<List<Integer>>();
+
+    /**
+     * Creates a new clique finder and enumerates the maximum c-cliques of
+     * the compatibility graph with the calling thread.
+     * @param compGraphNodes the nodes of the compatibility graph, three
+     * values per node with the node id last
+     * @param cEdges C-Edges set of allowed edges
+     * @param dEdges D-Edges set of prohibited edges
+     * @param context limits of the search, the enumeration stops with the
+     * cliques found so far when it times out
+     */
+    protected BitSetCliqueFinder(List<Integer> compGraphNodes, List<Integer> cEdges, List<Integer> dEdges,
+            SearchContext context) {
+        this(compGraphNodes, cEdges, dEdges, context, 1);
+    }
+
+    /**
+     * Creates a new clique finder and enumerates the maximum c-cliques of
+     * the compatibility graph.
+     * @param compGraphNodes the nodes of the compatibility graph, three
+     * values per node with the node id last
+     * @param cEdges C-Edges set of allowed edges
+     * @param dEdges D-Edges set of prohibited edges
+     * @param context limits of the search, the enumeration stops with the
+     * cliques found so far when it times out
+     * @param threads the number of threads, at least 1
+     */
+    protected BitSetCliqueFinder(List<Integer> compGraphNodes, List<Integer> cEdges, List<Integer> dEdges,
+            SearchContext context, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("at least one thread is required");
+        }
+        this.context = context;
+        this.threads = threads;
+        this.vertices = new int[compGraphNodes.size() / 3];
+        int maxId = 0;
+        for (int a = 0; a < vertices.length; a++) {
+            vertices[a] = compGraphNodes.get(a * 3 + 2);
+            maxId = Math.max(maxId, vertices[a]);
+        }
+        maxId = Math.max(maxId, Math.max(maxId(cEdges), maxId(dEdges)));
+        this.words = (maxId >> 6) + 1;
+        this.cAdjacency = new long[maxId + 1][words];
+        this.dAdjacency = new long[maxId + 1][words];
+        this.adjacency = new long[maxId + 1][words];
+        this.neighbours = new int[maxId + 1][];
+        int[] degree = new int[maxId + 1];
+        countNeighbours(cEdges, degree);
+        countNeighbours(dEdges, degree);
+        for (int v = 0; v <= maxId; v++) {
+            neighbours[v] = new int[degree[v]];
+            degree[v] = 0;
+        }
+        addNeighbours(cEdges, cAdjacency, degree);
+        addNeighbours(dEdges, dAdjacency, degree);
+        init();
+    }
+
+    /**
+     * The size of the largest clique.
+     * @return number of vertices of the maximum cliques
+     */
+    @TestMethod("testCliques")
+    protected int getBestCliqueSize() {
+        return bestCliqueSize.get();
+    }
+
+    /**
+     * The maximum cliques, the last clique found on top.
+     * @return the cliques as lists of vertex ids
+     */
+    @TestMethod("testCliques")
+    protected Stack<List<Integer>> getMaxCliqueSet() {
+        Stack<List<Integer>> solution = new Stack<List<Integer>>();
+        solution.addAll(maxCliquesSet);
+        return solution;
+    }
+
+    private static int maxId(List<Integer> edges) {
+        int max = 0;
+        for (Integer vertex : edges) {
+            max = Math.max(max, vertex);
+        }
+        return max;
+    }
+
+    private static void countNeighbours(List<Integer> edges, int[] degree) {
+        for (int a = 0; a + 1 < edges.size(); a += 2) {
+            degree[edges.get(a)]++;
+            degree[edges.get(a + 1)]++;
+        }
+    }
+
+    private void addNeighbours(List<Integer> edges, long[][] typeAdjacency, int[] degree) {
+        for (int a = 0; a + 1 < edges.size(); a += 2) {
+            int u = edges.get(a);
+            int v = edges.get(a + 1);
+            neighbours[u][degree[u]++] = v;
+            neighbours[v][degree[v]++] = u;
+            set(typeAdjacency[u], v);
+            set(typeAdjacency[v], u);
+            set(adjacency[u], v);
+            set(adjacency[v], u);
+        }
+    }
+
+    /**
+     * Set up the branch of each start vertex, the neighbours of a start
+     * vertex are not used as start vertices, and search the branches.
+     */
+    private void init() {
+        long[] processed = new long[words];
+        long[] removed = new long[words];
+        long[] excludedC = new long[words];
+        List<Branch> branches = new ArrayList<Branch>();
+        for (int u : vertices) {
+            if (contains(removed, u)) {
+                continue;
+            }
+            Branch branch = new Branch(u);
+            branch.potentialC = andNot(cAdjacency[u], processed);
+            branch.excluded = and(cAdjacency[u], processed);
+            branch.potentialD = andNot(dAdjacency[u], processed);
+            long[] processedD = and(dAdjacency[u], processed);
+            for (int w = 0; w < words; w++) {
+                excludedC[w] |= processedD[w];
+                removed[w] |= adjacency[u][w];
+            }
+            branch.excludedC = excludedC.clone();
+            branches.add(branch);
+            set(processed, u);
+        }
+        if (branches.isEmpty()) {
+            return;
+        }
+        search(branches);
+
+        startClique.add(branches.get(branches.size() - 1).start);
+        int best = bestCliqueSize.get();
+        for (Branch branch : branches) {
+            if (branch.bestCliqueSize == best) {
+                maxCliquesSet.addAll(branch.cliques);
+            }
+        }
+    }
+
+    private void search(final List<Branch> branches) {
+        ParallelLoop.forEach(branches.size(), threads, "BitSetCliqueFinder", new ParallelLoop.Body<RuntimeException>() {
+
+            public void run(int k) {
+                Branch branch = branches.get(k);
+                int[] clique = {branch.start};
+                enumerateCliques(branch, clique, 1, branch.potentialC, branch.potentialD,
+                        branch.excluded, branch.excludedC, neighbours[branch.start]);
+            }
+        });
+    }
+
+    /**
+     * Extend the clique by each candidate in the order of the neighbours of
+     * the last vertex of the clique, a candidate that is a neighbour of an
+     * earlier candidate of this call is skipped.
+     */
+    private void enumerateCliques(Branch branch, int[] clique, int cliqueSize, long[] potentialC,
+            long[] potentialD, long[] excluded, long[] excludedC, int[] order) {
+        if (isTimeOut()) {
+            return;
+        }
+        if (isEmpty(potentialC) && isEmpty(excluded)) {
+            record(branch, clique, cliqueSize);
+            return;
+        }
+        if (cliqueSize + colourBound(potentialC, potentialD, bestCliqueSize.get() - cliqueSize)
+                < bestCliqueSize.get()) {
+            return;
+        }
+
+        long[] skipped = new long[words];
+        for (int v : order) {
+            if (!contains(potentialC, v) || contains(skipped, v)) {
+                continue;
+            }
+            clear(potentialC, v);
+            long[] cNeighbours = cAdjacency[v];
+            long[] vNeighbours = adjacency[v];
+            long[] nextC = new long[words];
+            long[] nextD = new long[words];
+            long[] nextExcluded = new long[words];
+            long[] nextExcludedC = new long[words];
+            for (int w = 0; w < words; w++) {
+                // d-edge candidates joined by a c-edge become candidates
+                nextC[w] = (potentialC[w] | potentialD[w] & cNeighbours[w]) & vNeighbours[w];
+                nextD[w] = potentialD[w] & ~cNeighbours[w] & vNeighbours[w];
+                nextExcluded[w] = excluded[w] & vNeighbours[w];
+                nextExcludedC[w] = excludedC[w] & ~cNeighbours[w] & vNeighbours[w];
+                skipped[w] |= vNeighbours[w];
+            }
+            if (cliqueSize == clique.length) {
+                int[] grown = new int[2 * cliqueSize];
+                System.arraycopy(clique, 0, grown, 0, cliqueSize);
+                clique = grown;
+            }
+            clique[cliqueSize] = v;
+            enumerateCliques(branch, clique, cliqueSize + 1, nextC, nextD, nextExcluded, nextExcludedC,
+                    neighbours[v]);
+            set(excluded, v);
+        }
+    }
+
+    /**
+     * An upper bound of the vertices a clique can gain from the candidates,
+     * the number of colours of a greedy colouring of the candidates. The
+     * colouring stops when the bound exceeds the limit.
+     */
+    private int colourBound(long[] potentialC, long[] potentialD, int limit) {
+        long[] uncoloured = new long[words];
+        int count = 0;
+        for (int w = 0; w < words; w++) {
+            uncoloured[w] = potentialC[w] | potentialD[w];
+            count += Long.bitCount(uncoloured[w]);
+        }
+        if (count <= limit) {
+            return count;
+        }
+        long[] colourClass = new long[words];
+        int colours = 0;
+        while (colours <= limit && !isEmpty(uncoloured)) {
+            colours++;
+            System.arraycopy(uncoloured, 0, colourClass, 0, words);
+            for (int w = 0; w < words; w++) {
+                while (colourClass[w] != 0) {
+                    int v = (w << 6) + Long.numberOfTrailingZeros(colourClass[w]);
+                    clear(uncoloured, v);
+                    for (int x = w; x < words; x++) {
+                        colourClass[x] &= ~adjacency[v][x];
+                    }
+                    colourClass[w] &= colourClass[w] - 1;
+                }
+            }
+        }
+        return colours;
+    }
+
+    private void record(Branch branch, int[] clique, int cliqueSize) {
+        int best = bestCliqueSize.get();
+        while (cliqueSize > best && !bestCliqueSize.compareAndSet(best, cliqueSize)) {
+            best = bestCliqueSize.get();
+        }
+        if (cliqueSize < best) {
+            return;
+        }
+        if (cliqueSize > branch.bestCliqueSize) {
+            branch.cliques.clear();
+            branch.bestCliqueSize = cliqueSize;
+        }
+        if (cliqueSize == 1) {
+            branch.cliques.add(startClique);
+        } else {
+            List<Integer> list = new ArrayList<Integer>(cliqueSize);
+            for (int i = 0; i < cliqueSize; i++) {
+                list.add(clique[i]);
+            }
+            branch.cliques.add(list);
+        }
+    }
+
+    private boolean isTimeOut() {
+        if (threads == 1) {
+            return context.step();
+        }
+        synchronized (context) {
+            return context.step();
+        }
+    }
+
+    private long[] and(long[] a, long[] b) {
+        long[] result = new long[words];
+        for (int w = 0; w < words; w++) {
+            result[w] = a[w] & b[w];
+        }
+        return result;
+    }
+
+    private long[] andNot(long[] a, long[] b) {
+        long[] result = new long[words];
+        for (int w = 0; w < words; w++) {
+            result[w] = a[w] & ~b[w];
+        }
+        return result;
+    }
+
+    private static boolean isEmpty(long[] set) {
+        for (long word : set) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean contains(long[] set, int v) {
+        return (set[v >> 6] & (1L << v)) != 0;
+    }
+
+    private static void set(long[] set, int v) {
+        set[v >> 6] |= 1L << v;
+    }
+
+    private static void clear(long[] set, int v) {
+        set[v >> 6] &= ~(1L << v);
+    }
+
+    /**
+     * The start vertex of a branch with the sets it starts with and the
+     * largest cliques found in it.
+     */
+    private static class Branch {
+
+        private final int start;
+        private long[] potentialC;
+        private long[] potentialD;
+        private long[] excluded;
+        private long[] excludedC;
+        private int bestCliqueSize = 0;
+        private final List<List<Integer>> cliques = new ArrayList<List<Integer>>();
+
+        private Branch(int start) {
+            this.start = start;
+        }
+    }
+}
@@ -32,8 +32,8 @@ import org.openscience.cdk.annotations.TestClass;
 import org.openscience.cdk.exception.CDKException;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.smsd.algorithm.mcgregor.McGregor;
+import org.openscience.cdk.smsd.global.SearchContext;
 import org.openscience.cdk.smsd.global.TimeOut;
-import org.openscience.cdk.smsd.tools.TimeManager;
 
 /**
  * This class handles MCS plus algorithm which is a combination of
@@ -45,35 +45,35 @@ import org.openscience.cdk.smsd.tools.TimeManager;
 @TestClass("org.openscience.cdk.smsd.SMSDBondSensitiveTest")
 public class MCSPlus {
 
+    private final SearchContext context;
+    private int threads = 1;
+
     /**
-    * Default constructor added 
+    * Default constructor added, the search is limited by the
+    * {@link TimeOut} timeout
     */
     public MCSPlus(){
-        
-    }
-
-    private static TimeManager timeManager = null;
-
-    /**
-     * @return the timeout
-     */
-    protected synchronized static double getTimeout() {
-        return TimeOut.getInstance().getTimeOut();
+        this(new SearchContext(TimeOut.getInstance().getTimeOut()));
     }
 
     /**
-     * @return the timeManager
+     * Constructor for a search with the given limits.
+     * @param context the search context
      */
-    protected synchronized static TimeManager getTimeManager() {
-        return timeManager;
+    public MCSPlus(SearchContext context) {
+        this.context = context;
     }
 
     /**
-     * @param aTimeManager the timeManager to set
+     * Set the number of threads of the clique search, the default is to use
+     * only the calling thread.
+     * @param threads the number of threads, at least 1
      */
-    protected synchronized static void setTimeManager(TimeManager aTimeManager) {
-        TimeOut.getInstance().setTimeOutFlag(false);
-        timeManager = aTimeManager;
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("at least one thread is required");
+        }
+        this.threads = threads;
     }
 
     /**
@@ -87,6 +87,7 @@ public class MCSPlus {
     protected List<List<Integer>> getOverlaps(IAtomContainer ac1, IAtomContainer ac2, boolean shouldMatchBonds) throws CDKException {
         Stack<List<Integer>> maxCliqueSet = null;
         List<List<Integer>> mappings = new ArrayList<List<Integer>>();
+        context.restart();
         try {
             GenerateCompatibilityGraph gcg = new GenerateCompatibilityGraph(ac1, ac2, shouldMatchBonds);
             List<Integer> comp_graph_nodes = gcg.getCompGraphNodes();
@@ -98,7 +99,7 @@ public class MCSPlus {
 //            System.err.println("C_edges: " + C_edges.size());
 //            System.out.println("D_edges: " + D_edges.size());
 
-            BKKCKCF init = new BKKCKCF(comp_graph_nodes, C_edges, D_edges);
+            BitSetCliqueFinder init = new BitSetCliqueFinder(comp_graph_nodes, C_edges, D_edges, context, threads);
             maxCliqueSet = init.getMaxCliqueSet();
 
 //            System.err.println("**************************************************");
@@ -112,6 +113,7 @@ public class MCSPlus {
                 int clique_size = clique_List.size();
                 if (clique_size < ac1.getAtomCount() && clique_size < ac2.getAtomCount()) {
                     McGregor mgit = new McGregor(ac1, ac2, mappings, shouldMatchBonds);
+                    mgit.setSearchContext(context);
                     mgit.startMcGregorIteration(mgit.getMCSSize(), clique_List, comp_graph_nodes);
                     mappings = mgit.getMappings();
                     mgit = null;
@@ -129,11 +131,12 @@ public class MCSPlus {
         return mappings;
     }
 
-    public synchronized static boolean isTimeOut() {
-        if (getTimeout() > -1 && getTimeManager().getElapsedTimeInMinutes() > getTimeout()) {
-            TimeOut.getInstance().setTimeOutFlag(true);
-            return true;
-        }
-        return false;
+    /**
+     * Returns true if the last search timed out, ran out of steps or was
+     * cancelled.
+     * @return true if the search stopped early
+     */
+    public boolean isTimeOut() {
+        return context.isTimeOut();
     }
 }
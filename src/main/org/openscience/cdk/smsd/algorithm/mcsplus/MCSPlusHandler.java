@@ -50,13 +50,14 @@ import org.openscience.cdk.smsd.tools.MolHandler;
 @TestClass("org.openscience.cdk.smsd.SMSDBondSensitiveTest")
 public class MCSPlusHandler extends AbstractMCSAlgorithm implements IMCSBase {
 
-    private static List<Map<IAtom, IAtom>> allAtomMCS = null;
-    private static Map<IAtom, IAtom> atomsMCS = null;
-    private static Map<Integer, Integer> firstMCS = null;
-    private static List<Map<Integer, Integer>> allMCS = null;
+    private List<Map<IAtom, IAtom>> allAtomMCS = null;
+    private Map<IAtom, IAtom> atomsMCS = null;
+    private Map<Integer, Integer> firstMCS = null;
+    private List<Map<Integer, Integer>> allMCS = null;
     private IAtomContainer source = null;
     private IAtomContainer target = null;
     private boolean flagExchange = false;
+    private int threads = 1;
 
     /**
      * Constructor for the MCS Plus algorithm class
@@ -90,6 +91,19 @@ public class MCSPlusHandler extends AbstractMCSAlgorithm implements IMCSBase {
         this.target = target;
     }
 
+    /**
+     * Set the number of threads of the clique search, the default is to use
+     * only the calling thread.
+     * @param threads the number of threads, at least 1
+     */
+    @TestMethod("testSetThreads")
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("at least one thread is required");
+        }
+        this.threads = threads;
+    }
+
     /** {@inheritDoc}
      * Function is called by the main program and serves as a starting point for the comparison procedure.
      *
@@ -100,11 +114,13 @@ public class MCSPlusHandler extends AbstractMCSAlgorithm implements IMCSBase {
     public synchronized void searchMCS(boolean shouldMatchBonds) {
         List<List<Integer>> mappings = null;
         try {
+            MCSPlus mcsPlus = new MCSPlus(getSearchContext());
+            mcsPlus.setThreads(threads);
             if (source.getAtomCount() >= target.getAtomCount()) {
-                mappings = new MCSPlus().getOverlaps(source, target, shouldMatchBonds);
+                mappings = mcsPlus.getOverlaps(source, target, shouldMatchBonds);
             } else {
                 flagExchange = true;
-                mappings = new MCSPlus().getOverlaps(target, source, shouldMatchBonds);
+                mappings = mcsPlus.getOverlaps(target, source, shouldMatchBonds);
             }
             PostFilter.filter(mappings);
             setAllMapping();
@@ -70,6 +70,7 @@ import org.openscience.cdk.smsd.algorithm.matchers.BondMatcher;
 import org.openscience.cdk.smsd.algorithm.matchers.DefaultBondMatcher;
 import org.openscience.cdk.smsd.algorithm.matchers.DefaultMatcher;
 import org.openscience.cdk.smsd.algorithm.matchers.DefaultRGraphAtomMatcher;
+import org.openscience.cdk.smsd.global.SearchContext;
 import org.openscience.cdk.smsd.global.TimeOut;
 import org.openscience.cdk.smsd.tools.TimeManager;
 import org.openscience.cdk.tools.manipulator.BondManipulator;
@@ -130,6 +131,7 @@ public class CDKMCS {
     final static int ID1 = 0;
     final static int ID2 = 1;
     private static TimeManager timeManager = null;
+    private static final ThreadLocal<SearchContext> CONTEXT = new ThreadLocal<SearchContext>();
 
     ///////////////////////////////////////////////////////////////////////////
     //                            Query Methods
@@ -498,9 +500,14 @@ public class CDKMCS {
         List<List<CDKRMap>> rMapsList = new ArrayList<List<CDKRMap>>();
         // build the CDKRGraph corresponding to this problem
         CDKRGraph rGraph = buildRGraph(sourceGraph, targetGraph, shouldMatchBonds);
-        setTimeManager(new TimeManager());
+        SearchContext context = getSearchContext();
+        if (context == null) {
+            context = new SearchContext(getTimeout());
+        }
+        context.restart();
+        rGraph.setSearchContext(context);
         // parse the CDKRGraph with the given constrains and options
-        rGraph.parse(sourceBitSet, targetBitSet, findAllStructure, findAllMap, getTimeManager());
+        rGraph.parse(sourceBitSet, targetBitSet, findAllStructure, findAllMap, null);
         List<BitSet> solutionList = rGraph.getSolutions();
 
         // conversions of CDKRGraph's internal solutions to G1/G2 mappings
@@ -1161,26 +1168,51 @@ public class CDKMCS {
         return TimeOut.getInstance().getTimeOut();
     }
 
+    /**
+     * Set the limits of the searches of the current thread. Without a
+     * context each search is limited by the {@link TimeOut} timeout.
+     * @param context the search context, null to remove it
+     */
+    public static void setSearchContext(SearchContext context) {
+        if (context == null) {
+            CONTEXT.remove();
+        } else {
+            CONTEXT.set(context);
+        }
+    }
+
+    /**
+     * Returns the limits of the searches of the current thread.
+     * @return the search context, null if none was set
+     */
+    public static SearchContext getSearchContext() {
+        return CONTEXT.get();
+    }
+
     /**
      * @return the timeManager
+     * @deprecated the searches are limited by the {@link SearchContext}
      */
+    @Deprecated
     protected synchronized static TimeManager getTimeManager() {
         return timeManager;
     }
 
     /**
      * @param aTimeManager the timeManager to set
+     * @deprecated the searches are limited by the {@link SearchContext}
      */
+    @Deprecated
     protected synchronized static void setTimeManager(TimeManager aTimeManager) {
-        TimeOut.getInstance().setTimeOutFlag(false);
         timeManager = aTimeManager;
     }
 
-    public synchronized static boolean isTimeOut() {
-        if (getTimeout() > -1 && getTimeManager().getElapsedTimeInMinutes() > getTimeout()) {
-            TimeOut.getInstance().setTimeOutFlag(true);
-            return true;
-        }
-        return false;
+    /**
+     * Returns true if the search context of the current thread timed out.
+     * @return true if the search stopped early
+     */
+    public static boolean isTimeOut() {
+        SearchContext context = getSearchContext();
+        return context != null && context.isTimeOut();
     }
 }
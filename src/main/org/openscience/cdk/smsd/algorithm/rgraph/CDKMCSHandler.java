@@ -104,6 +104,7 @@ public class CDKMCSHandler extends AbstractMCSAlgorithm implements IMCSBase {
     public void searchMCS(boolean shouldMatchBonds) {
 
         CDKRMapHandler rmap = new CDKRMapHandler();
+        CDKMCS.setSearchContext(getSearchContext());
 
         try {
 
@@ -128,6 +129,8 @@ public class CDKMCSHandler extends AbstractMCSAlgorithm implements IMCSBase {
         } catch (CDKException e) {
             rmap = null;
 //            System.err.println("WARNING: graphContainer: most probably time out error ");
+        } finally {
+            CDKMCS.setSearchContext(null);
         }
     }
 
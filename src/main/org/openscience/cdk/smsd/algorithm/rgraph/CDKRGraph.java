@@ -35,6 +35,7 @@ import java.util.Iterator;
 import java.util.List;
 import org.openscience.cdk.annotations.TestClass;
 import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.smsd.global.SearchContext;
 import org.openscience.cdk.smsd.tools.TimeManager;
 
 /**
@@ -126,7 +127,8 @@ public class CDKRGraph {
     private boolean stop = false;
     private int nbIteration = 0;
     private BitSet graphBitSet = null;
-    // -1 for infinite search and one min is 1
+    // limits of the search, null for an unlimited search
+    private SearchContext context = null;
 
     /**
      * Constructor for the CDKRGraph object and creates an empty CDKRGraph.
@@ -137,8 +139,17 @@ public class CDKRGraph {
         graphBitSet = new BitSet();
     }
 
+    /**
+     * Set the limits of the search, the parsing stops when the context
+     * times out.
+     * @param context the search context, null for an unlimited search
+     */
+    public void setSearchContext(SearchContext context) {
+        this.context = context;
+    }
+
     private boolean checkTimeOut() throws CDKException {
-        if (CDKMCS.isTimeOut()) {
+        if (context != null && context.step()) {
             setStop(true);
             return true;
         }
@@ -219,7 +230,7 @@ public class CDKRGraph {
      * @param  targetBitSet  constrain on the graph G2
      * @param  findAllStructure true if we want all results to be generated
      * @param  findAllMap true is we want all possible 'mappings'
-     * @param timeManager
+     * @param timeManager not used, the limits are set with {@link #setSearchContext(SearchContext)}
      * @throws CDKException
      */
     public void parse(BitSet sourceBitSet, BitSet targetBitSet, boolean findAllStructure, boolean findAllMap, TimeManager timeManager) throws CDKException {
@@ -61,7 +61,7 @@ public class CDKRMapHandler {
      * @return the source
      */
     public static IAtomContainer getSource() {
-        return source;
+        return SOURCE.get();
     }
 
     /**
@@ -69,7 +69,7 @@ public class CDKRMapHandler {
      * @param aSource the source to set
      */
     public static void setSource(IAtomContainer aSource) {
-        source = aSource;
+        SOURCE.set(aSource);
     }
 
     /**
@@ -77,7 +77,7 @@ public class CDKRMapHandler {
      * @return the target
      */
     public static IAtomContainer getTarget() {
-        return target;
+        return TARGET.get();
     }
 
     /**
@@ -85,11 +85,12 @@ public class CDKRMapHandler {
      * @param aTarget the target to set
      */
     public static void setTarget(IAtomContainer aTarget) {
-        target = aTarget;
+        TARGET.set(aTarget);
     }
     private List<Map<Integer, Integer>> mappings;
-    private static IAtomContainer source;
-    private static IAtomContainer target;
+    // the molecules of the search of each thread
+    private static final ThreadLocal<IAtomContainer> SOURCE = new ThreadLocal<IAtomContainer>();
+    private static final ThreadLocal<IAtomContainer> TARGET = new ThreadLocal<IAtomContainer>();
     private boolean timeoutFlag = false;
 
     /**
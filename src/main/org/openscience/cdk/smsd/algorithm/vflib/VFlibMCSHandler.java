@@ -67,12 +67,12 @@ import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
 @TestClass("org.openscience.cdk.smsd.algorithm.vflib.VFlibMCSHandlerTest")
 public class VFlibMCSHandler extends AbstractMCSAlgorithm implements IMCSBase {
 
-    private static List<Map<IAtom, IAtom>> allAtomMCS = null;
-    private static Map<IAtom, IAtom> atomsMCS = null;
-    private static List<Map<IAtom, IAtom>> allAtomMCSCopy = null;
-    private static Map<Integer, Integer> firstMCS = null;
-    private static List<Map<Integer, Integer>> allMCS = null;
-    private static List<Map<Integer, Integer>> allMCSCopy = null;
+    private List<Map<IAtom, IAtom>> allAtomMCS = null;
+    private Map<IAtom, IAtom> atomsMCS = null;
+    private List<Map<IAtom, IAtom>> allAtomMCSCopy = null;
+    private Map<Integer, Integer> firstMCS = null;
+    private List<Map<Integer, Integer>> allMCS = null;
+    private List<Map<Integer, Integer>> allMCSCopy = null;
     private List<Map<INode, IAtom>> vfLibSolutions = null;
     private IQueryAtomContainer queryMol = null;
     private IAtomContainer mol1 = null;
@@ -105,6 +105,7 @@ public class VFlibMCSHandler extends AbstractMCSAlgorithm implements IMCSBase {
     @Override
     @TestMethod("testSearchMCS")
     public void searchMCS(boolean bondTypeMatch) {
+        getSearchContext().restart();
         setBondMatchFlag(bondTypeMatch);
         searchVFMCSMappings();
         boolean flag = mcgregorFlag();
@@ -224,7 +225,7 @@ public class VFlibMCSHandler extends AbstractMCSAlgorithm implements IMCSBase {
         vfLibSolutions = new ArrayList<Map<INode, IAtom>>();
         if (queryMol != null) {
             query = new QueryCompiler(queryMol).compile();
-            mapper = new VFMCSMapper(query);
+            mapper = new VFMCSMapper(query, getSearchContext());
             List<Map<INode, IAtom>> maps = mapper.getMaps(getProductMol());
             if (maps != null) {
                 vfLibSolutions.addAll(maps);
@@ -232,7 +233,7 @@ public class VFlibMCSHandler extends AbstractMCSAlgorithm implements IMCSBase {
             setVFMappings(true, query);
         } else if (countR <= countP) {
             query = new QueryCompiler(mol1, isBondMatchFlag()).compile();
-            mapper = new VFMCSMapper(query);
+            mapper = new VFMCSMapper(query, getSearchContext());
             List<Map<INode, IAtom>> maps = mapper.getMaps(getProductMol());
             if (maps != null) {
                 vfLibSolutions.addAll(maps);
@@ -240,7 +241,7 @@ public class VFlibMCSHandler extends AbstractMCSAlgorithm implements IMCSBase {
             setVFMappings(true, query);
         } else {
             query = new QueryCompiler(getProductMol(), isBondMatchFlag()).compile();
-            mapper = new VFMCSMapper(query);
+            mapper = new VFMCSMapper(query, getSearchContext());
             List<Map<INode, IAtom>> maps = mapper.getMaps(getReactantMol());
             if (maps != null) {
                 vfLibSolutions.addAll(maps);
@@ -275,6 +276,7 @@ public class VFlibMCSHandler extends AbstractMCSAlgorithm implements IMCSBase {
                     }
                 }
             }
+            mgit.setSearchContext(getSearchContext());
             mgit.startMcGregorIteration(mgit.getMCSSize(), tMapping); //Start McGregor search
             mappings = mgit.getMappings();
             mgit = null;
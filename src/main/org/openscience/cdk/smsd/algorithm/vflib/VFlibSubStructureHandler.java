@@ -66,12 +66,12 @@ import org.openscience.cdk.tools.LoggingToolFactory;
 @TestClass("org.openscience.cdk.smsd.algorithm.vflib.VFlibTurboHandlerTest")
 public class VFlibSubStructureHandler extends AbstractSubGraph implements IMCSBase {
 
-    private static List<Map<IAtom, IAtom>> allAtomMCS = null;
-    private static Map<IAtom, IAtom> atomsMCS = null;
-    private static List<Map<IAtom, IAtom>> allAtomMCSCopy = null;
-    private static Map<Integer, Integer> firstMCS = null;
-    private static List<Map<Integer, Integer>> allMCS = null;
-    private static List<Map<Integer, Integer>> allMCSCopy = null;
+    private List<Map<IAtom, IAtom>> allAtomMCS = null;
+    private Map<IAtom, IAtom> atomsMCS = null;
+    private List<Map<IAtom, IAtom>> allAtomMCSCopy = null;
+    private Map<Integer, Integer> firstMCS = null;
+    private List<Map<Integer, Integer>> allMCS = null;
+    private List<Map<Integer, Integer>> allMCSCopy = null;
     private IQueryAtomContainer queryMol = null;
     private IAtomContainer mol1 = null;
     private IAtomContainer mol2 = null;
@@ -189,7 +189,7 @@ public class VFlibSubStructureHandler extends AbstractSubGraph implements IMCSBa
         vfLibSolutions = new ArrayList<Map<INode, IAtom>>();
         if (queryMol != null) {
             query = new QueryCompiler(queryMol).compile();
-            mapper = new VFMapper(query);
+            mapper = new VFMapper(query, getSearchContext());
             if (mapper.hasMap(getProductMol())) {
                 List<Map<INode, IAtom>> maps = mapper.getMaps(getProductMol());
                 if (maps != null) {
@@ -199,7 +199,7 @@ public class VFlibSubStructureHandler extends AbstractSubGraph implements IMCSBa
             setVFMappings(true, query);
         } else if (getReactantMol().getAtomCount() <= getProductMol().getAtomCount()) {
             query = new QueryCompiler(mol1, isBondMatchFlag()).compile();
-            mapper = new VFMapper(query);
+            mapper = new VFMapper(query, getSearchContext());
             if (mapper.hasMap(getProductMol())) {
                 List<Map<INode, IAtom>> maps = mapper.getMaps(getProductMol());
                 if (maps != null) {
@@ -209,7 +209,7 @@ public class VFlibSubStructureHandler extends AbstractSubGraph implements IMCSBa
             setVFMappings(true, query);
         } else {
             query = new QueryCompiler(getProductMol(), isBondMatchFlag()).compile();
-            mapper = new VFMapper(query);
+            mapper = new VFMapper(query, getSearchContext());
             if (mapper.hasMap(getReactantMol())) {
                 List<Map<INode, IAtom>> maps = mapper.getMaps(getReactantMol());
                 if (maps != null) {
@@ -268,6 +268,7 @@ public class VFlibSubStructureHandler extends AbstractSubGraph implements IMCSBa
 
     @Override
     public boolean isSubgraph(boolean shouldMatchBonds) {
+        getSearchContext().restart();
         setBondMatchFlag(shouldMatchBonds);
         searchVFMappings();
 //        boolean flag = mcgregorFlag();
@@ -67,12 +67,12 @@ import org.openscience.cdk.tools.LoggingToolFactory;
 @TestClass("org.openscience.cdk.smsd.algorithm.vflib.VFlibTurboHandlerTest")
 public class VFlibTurboHandler extends AbstractSubGraph implements IMCSBase {
 
-    private static List<Map<IAtom, IAtom>> allAtomMCS = null;
-    private static Map<IAtom, IAtom> atomsMCS = null;
-    private static List<Map<IAtom, IAtom>> allAtomMCSCopy = null;
-    private static Map<Integer, Integer> firstMCS = null;
-    private static List<Map<Integer, Integer>> allMCS = null;
-    private static List<Map<Integer, Integer>> allMCSCopy = null;
+    private List<Map<IAtom, IAtom>> allAtomMCS = null;
+    private Map<IAtom, IAtom> atomsMCS = null;
+    private List<Map<IAtom, IAtom>> allAtomMCSCopy = null;
+    private Map<Integer, Integer> firstMCS = null;
+    private List<Map<Integer, Integer>> allMCS = null;
+    private List<Map<Integer, Integer>> allMCSCopy = null;
     private IQueryAtomContainer queryMol = null;
     private IAtomContainer mol1 = null;
     private IAtomContainer mol2 = null;
@@ -195,7 +195,7 @@ public class VFlibTurboHandler extends AbstractSubGraph implements IMCSBase {
         vfLibSolutions = new HashMap<INode, IAtom>();
         if (queryMol != null) {
             query = new QueryCompiler(queryMol).compile();
-            mapper = new VFMapper(query);
+            mapper = new VFMapper(query, getSearchContext());
             if (mapper.hasMap(getProductMol())) {
                 Map<INode, IAtom> map = mapper.getFirstMap(getProductMol());
                 if (map != null) {
@@ -205,7 +205,7 @@ public class VFlibTurboHandler extends AbstractSubGraph implements IMCSBase {
             setVFMappings(true, query);
         } else if (getReactantMol().getAtomCount() <= getProductMol().getAtomCount()) {
             query = new QueryCompiler(mol1, isBondMatchFlag()).compile();
-            mapper = new VFMapper(query);
+            mapper = new VFMapper(query, getSearchContext());
             if (mapper.hasMap(getProductMol())) {
                 Map<INode, IAtom> map = mapper.getFirstMap(getProductMol());
                 if (map != null) {
@@ -215,7 +215,7 @@ public class VFlibTurboHandler extends AbstractSubGraph implements IMCSBase {
             setVFMappings(true, query);
         } else {
             query = new QueryCompiler(getProductMol(), isBondMatchFlag()).compile();
-            mapper = new VFMapper(query);
+            mapper = new VFMapper(query, getSearchContext());
             if (mapper.hasMap(getReactantMol())) {
                 Map<INode, IAtom> map = mapper.getFirstMap(getReactantMol());
                 if (map != null) {
@@ -230,6 +230,7 @@ public class VFlibTurboHandler extends AbstractSubGraph implements IMCSBase {
         List<List<Integer>> mappings = new ArrayList<List<Integer>>();
         for (Map<Integer, Integer> firstPassMappings : allMCSCopy) {
             McGregor mgit = new McGregor(getReactantMol(), getProductMol(), mappings, isBondMatchFlag());
+            mgit.setSearchContext(getSearchContext());
             mgit.startMcGregorIteration(mgit.getMCSSize(), firstPassMappings); //Start McGregor search
             mappings = mgit.getMappings();
             mgit = null;
@@ -326,6 +327,7 @@ public class VFlibTurboHandler extends AbstractSubGraph implements IMCSBase {
 
     @Override
     public boolean isSubgraph(boolean shouldMatchBonds) {
+        getSearchContext().restart();
         setBondMatchFlag(shouldMatchBonds);
         searchVFMappings();
 //        boolean flag = mcgregorFlag();
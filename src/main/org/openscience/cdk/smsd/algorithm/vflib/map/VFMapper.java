@@ -62,8 +62,8 @@ import org.openscience.cdk.smsd.algorithm.vflib.interfaces.INode;
 import org.openscience.cdk.smsd.algorithm.vflib.interfaces.IQuery;
 import org.openscience.cdk.smsd.algorithm.vflib.interfaces.IState;
 import org.openscience.cdk.smsd.algorithm.vflib.query.QueryCompiler;
+import org.openscience.cdk.smsd.global.SearchContext;
 import org.openscience.cdk.smsd.global.TimeOut;
-import org.openscience.cdk.smsd.tools.TimeManager;
 
 /**
  * This class finds MCS between query and target molecules
@@ -79,36 +79,23 @@ public class VFMapper implements IMapper {
     private IQuery query;
     private List<Map<INode, IAtom>> maps;
     private int currentMCSSize = -1;
-    private static TimeManager timeManager = null;
+    private final SearchContext context;
 
     /**
-     * @return the timeout
-     */
-    protected synchronized static double getTimeout() {
-        return TimeOut.getInstance().getTimeOut();
-    }
-
-    /**
-     * @return the timeManager
-     */
-    protected synchronized static TimeManager getTimeManager() {
-        return timeManager;
-    }
-
-    /**
-     * @param aTimeManager the timeManager to set
+     *
+     * @param query
      */
-    protected synchronized static void setTimeManager(TimeManager aTimeManager) {
-        TimeOut.getInstance().setTimeOutFlag(false);
-        timeManager = aTimeManager;
+    public VFMapper(IQuery query) {
+        this(query, new SearchContext(TimeOut.getInstance().getTimeOut()));
     }
 
     /**
-     *
+     * Create a mapper which stops the search when the context times out.
      * @param query
+     * @param context limits of the search
      */
-    public VFMapper(IQuery query) {
-        setTimeManager(new TimeManager());
+    public VFMapper(IQuery query, SearchContext context) {
+        this.context = context;
         this.query = query;
         this.maps = new ArrayList<Map<INode, IAtom>>();
     }
@@ -119,7 +106,7 @@ public class VFMapper implements IMapper {
      * @param bondMatcher
      */
     public VFMapper(IAtomContainer queryMolecule, boolean bondMatcher) {
-        setTimeManager(new TimeManager());
+        this.context = new SearchContext(TimeOut.getInstance().getTimeOut());
         this.query = new QueryCompiler(queryMolecule, bondMatcher).compile();
         this.maps = new ArrayList<Map<INode, IAtom>>();
     }
@@ -213,7 +200,7 @@ public class VFMapper implements IMapper {
     }
 
     private void mapAll(IState state) {
-        if (state.isDead()) {
+        if (state.isDead() || context.step()) {
             return;
         }
 
@@ -241,7 +228,7 @@ public class VFMapper implements IMapper {
     }
 
     private boolean mapFirst(IState state) {
-        if (state.isDead()) {
+        if (state.isDead() || context.step()) {
             return false;
         }
 
@@ -271,11 +258,12 @@ public class VFMapper implements IMapper {
         return false;
     }
 
-    public synchronized static boolean isTimeOut() {
-        if (getTimeout() > -1 && getTimeManager().getElapsedTimeInMinutes() > getTimeout()) {
-            TimeOut.getInstance().setTimeOutFlag(true);
-            return true;
-        }
-        return false;
+    /**
+     * Returns true if the search timed out, ran out of steps or was
+     * cancelled.
+     * @return true if the search stopped early
+     */
+    public boolean isTimeOut() {
+        return context.isTimeOut();
     }
 }
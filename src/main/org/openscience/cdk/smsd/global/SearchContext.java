@@ -0,0 +1,206 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.smsd.global;
+
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+
+/**
+ * The limits of one search: a timeout, a budget of search steps and a
+ * cancellation flag. {@link TimeOut} holds a single timeout for all
+ * searches of the JVM, a context belongs to one invocation so that
+ * searches in different threads have their own limits and can be cancelled
+ * from another thread.
+ *
+ * <pre>
+ * SearchContext context = new SearchContext(0.5, 100000);
+ * Isomorphism comparison = new Isomorphism(Algorithm.DEFAULT, true);
+ * comparison.setSearchContext(context);
+ * comparison.init(query, target, true, true);
+ * if (comparison.isTimeOut()) ...
+ * </pre>
+ *
+ * Each algorithm calls {@link #restart()} when it starts, the timeout and
+ * the step budget apply to each algorithm run, as the {@link TimeOut} did.
+ * Cancellation is permanent. A context is used by one search at a time,
+ * only {@link #cancel()} may be called from another thread.
+ *
+ * @cdk.module smsd
+ * @cdk.githash
+ */
+@TestClass("org.openscience.cdk.smsd.global.SearchContextTest")
+public class SearchContext {
+
+    private final double timeout;
+    private final long maxSteps;
+    private long start;
+    private long steps;
+    private boolean timeOutFlag = false;
+    private volatile boolean cancelled = false;
+
+    /**
+     * Create a context without a timeout or step budget, the search only
+     * stops when it is cancelled.
+     */
+    @TestMethod("testCancel")
+    public SearchContext() {
+        this(-1, -1);
+    }
+
+    /**
+     * Create a context with a timeout.
+     *
+     * @param timeout timeout in minutes, -1 for infinite
+     */
+    @TestMethod("testTimeOut")
+    public SearchContext(double timeout) {
+        this(timeout, -1);
+    }
+
+    /**
+     * Create a context with a timeout and a budget of search steps. A step
+     * is a node of the search tree, e.g. a state of the VF2 matcher or a
+     * clique extension.
+     *
+     * @param timeout  timeout in minutes, -1 for infinite
+     * @param maxSteps the maximum number of steps per algorithm run, -1 for
+     *                 unlimited
+     */
+    @TestMethod("testStep")
+    public SearchContext(double timeout, long maxSteps) {
+        this.timeout = timeout;
+        this.maxSteps = maxSteps;
+        restart();
+    }
+
+    /**
+     * The timeout of each algorithm run.
+     *
+     * @return timeout in minutes, -1 for infinite
+     */
+    @TestMethod("testTimeOut")
+    public double getTimeOut() {
+        return timeout;
+    }
+
+    /**
+     * The step budget of each algorithm run.
+     *
+     * @return the maximum number of steps, -1 for unlimited
+     */
+    @TestMethod("testStep")
+    public long getMaxSteps() {
+        return maxSteps;
+    }
+
+    /**
+     * Start the clock and the step count again and clear the timeout flag,
+     * called at the start of each algorithm run.
+     */
+    @TestMethod("testRestart")
+    public void restart() {
+        this.start = System.nanoTime();
+        this.steps = 0;
+        this.timeOutFlag = false;
+    }
+
+    /**
+     * Cancel the search, the algorithms stop at their next check and
+     * return the mappings found so far. May be called from any thread.
+     */
+    @TestMethod("testCancel")
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    /**
+     * Whether the search was cancelled.
+     *
+     * @return true if {@link #cancel()} was called
+     */
+    @TestMethod("testCancel")
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Count a step of the search and check the limits.
+     *
+     * @return true if the search should stop
+     */
+    @TestMethod("testStep")
+    public boolean step() {
+        steps++;
+        return isTimeOut();
+    }
+
+    /**
+     * The number of steps since the last restart.
+     *
+     * @return the step count
+     */
+    @TestMethod("testStep")
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * Check whether the search was cancelled, ran out of steps or exceeded
+     * the timeout. Once true, it stays true until the next restart.
+     *
+     * @return true if the search should stop
+     */
+    @TestMethod("testTimeOut")
+    public boolean isTimeOut() {
+        if (!timeOutFlag) {
+            timeOutFlag = cancelled
+                    || (maxSteps > -1 && steps > maxSteps)
+                    || (timeout > -1 && getElapsedTimeInMinutes() > timeout);
+        }
+        return timeOutFlag;
+    }
+
+    /**
+     * Return true if a timeout occurred, without checking the limits again.
+     *
+     * @return the timeout flag
+     */
+    @TestMethod("testTimeOut")
+    public boolean isTimeOutFlag() {
+        return timeOutFlag;
+    }
+
+    /**
+     * The time since the last restart.
+     *
+     * @return elapsed time in milliseconds
+     */
+    @TestMethod("testRestart")
+    public double getElapsedTimeInMilliSeconds() {
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    private double getElapsedTimeInMinutes() {
+        return getElapsedTimeInMilliSeconds() / (60 * 1000);
+    }
+}
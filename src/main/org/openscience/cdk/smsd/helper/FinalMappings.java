@@ -34,6 +34,7 @@ import org.openscience.cdk.smsd.interfaces.IFinalMapping;
 
 /**
  * Class that stores raw mapping(s) after each algorithm is executed.
+ * Each thread has its own instance, so searches may run in parallel.
  * @cdk.module smsd
  * @cdk.githash
  * @author Syed Asad Rahman <asad@ebi.ac.uk>
@@ -41,8 +42,14 @@ import org.openscience.cdk.smsd.interfaces.IFinalMapping;
 @TestClass("org.openscience.cdk.smsd.helper.FinalMappingsTest")
 public class FinalMappings implements IFinalMapping {
 
-    private static List<Map<Integer, Integer>> mappings = null;
-    private static FinalMappings instance = null;
+    private static final ThreadLocal<FinalMappings> INSTANCE = new ThreadLocal<FinalMappings>() {
+
+        @Override
+        protected FinalMappings initialValue() {
+            return new FinalMappings();
+        }
+    };
+    private final List<Map<Integer, Integer>> mappings;
 
     protected FinalMappings() {
         mappings = new ArrayList<Map<Integer, Integer>>();
@@ -50,14 +57,11 @@ public class FinalMappings implements IFinalMapping {
 
     /**
      * Stores mapping solutions
-     * @return instance of this object
+     * @return instance of this object for the current thread
      */
     @TestMethod("testGetInstance")
-    synchronized public static FinalMappings getInstance() {
-        if (instance == null) {
-            instance = new FinalMappings();
-        }
-        return instance;
+    public static FinalMappings getInstance() {
+        return INSTANCE.get();
     }
 
     /**
@@ -95,7 +99,7 @@ public class FinalMappings implements IFinalMapping {
      */
     @TestMethod("testClear")
     synchronized public void clear() {
-        FinalMappings.mappings.clear();
+        mappings.clear();
     }
 
     /**
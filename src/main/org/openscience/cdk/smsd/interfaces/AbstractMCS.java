@@ -31,6 +31,7 @@ import org.openscience.cdk.exception.CDKException;
 import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.isomorphism.matchers.IQueryAtomContainer;
+import org.openscience.cdk.smsd.global.SearchContext;
 
 /**
  * Interface for all MCS algorithms.
@@ -41,6 +42,8 @@ import org.openscience.cdk.isomorphism.matchers.IQueryAtomContainer;
 @TestClass("org.openscience.cdk.smsd.interfaces.AbstractMCSTest")
 public abstract class AbstractMCS {
 
+    private SearchContext searchContext = null;
+
     /**
      * initialize query and target molecules.
      *
@@ -212,4 +215,22 @@ public abstract class AbstractMCS {
      * @param bondInSensitiveTimeOut the bond insensitive 
      */
     public abstract void setBondInSensitiveTimeOut(double bondInSensitiveTimeOut);
+
+    /**
+     * get the limits of the search, null if the bond sensitive and
+     * bond insensitive timeouts are used
+     * @return the search context
+     */
+    public SearchContext getSearchContext() {
+        return searchContext;
+    }
+
+    /**
+     * set the limits of the search, a context with a timeout replaces the
+     * bond sensitive and bond insensitive timeouts
+     * @param searchContext the search context, null to use the timeouts
+     */
+    public void setSearchContext(SearchContext searchContext) {
+        this.searchContext = searchContext;
+    }
 }
@@ -25,6 +25,8 @@
 package org.openscience.cdk.smsd.interfaces;
 
 import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.smsd.global.SearchContext;
+import org.openscience.cdk.smsd.global.TimeOut;
 
 /**
  * Interface for MCS search algorithm.
@@ -35,6 +37,28 @@ import org.openscience.cdk.annotations.TestClass;
 @TestClass("org.openscience.cdk.smsd.interfaces.AbstractMCSAlgorithmTest")
 public abstract class AbstractMCSAlgorithm {
 
+    private SearchContext searchContext = null;
+
+    /**
+     * Returns the limits of the search. If none was set a context with the
+     * timeout of {@link TimeOut} is created.
+     * @return the search context
+     */
+    public SearchContext getSearchContext() {
+        if (searchContext == null) {
+            searchContext = new SearchContext(TimeOut.getInstance().getTimeOut());
+        }
+        return searchContext;
+    }
+
+    /**
+     * Set the limits of the search.
+     * @param searchContext the search context
+     */
+    public void setSearchContext(SearchContext searchContext) {
+        this.searchContext = searchContext;
+    }
+
     /** 
      * Initialise the MCS search algorithm. Each MCS algorithm should contain
      * this method.
@@ -96,6 +96,8 @@ public class CDKHydrogenAdder {
 
 	/**
 	 * Sets implicit hydrogen counts for all atoms in the given IAtomContainer.
+	 * The listeners of the container are notified once, see
+	 * {@link IAtomContainer#beginChanges()}.
 	 * 
 	 * @param  container The molecule to which H's will be added
 	 * @throws CDKException Throws if insufficient information is present
@@ -104,11 +106,16 @@ public class CDKHydrogenAdder {
 	 */
     @TestMethod("testMethane,testFormaldehyde,testHCN")
     public void addImplicitHydrogens(IAtomContainer container) throws CDKException {
-        for (IAtom atom : container.atoms()) {
-            if ( !(atom instanceof IPseudoAtom) ){
-                addImplicitHydrogens(container, atom);
+        container.beginChanges();
+        try {
+            for (IAtom atom : container.atoms()) {
+                if ( !(atom instanceof IPseudoAtom) ){
+                    addImplicitHydrogens(container, atom);
+                }
             }
-        }        
+        } finally {
+            container.endChanges();
+        }
     }
 	
 	/**
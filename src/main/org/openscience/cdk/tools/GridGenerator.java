@@ -131,6 +131,17 @@ public class GridGenerator {
 	 * variable extendGrid.
 	 */
 	public void generateGrid() {
+		generateDimensions();
+		grid = new double[dim[0] + 1][dim[1] + 1][dim[2] + 1];
+	}
+
+	/**
+	 * Method extends the given boundaries (dimensions) with the variable
+	 * extendGrid and calculates the number of grid points along each axis,
+	 * like {@link #generateGrid()} but without creating the grid. This
+	 * allows a caller to store the grid points in its own array.
+	 */
+	public void generateDimensions() {
 		minx = minx - extendGrid;
 		maxx = maxx + extendGrid;
 		miny = miny - extendGrid;
@@ -141,8 +152,6 @@ public class GridGenerator {
 		dim[0] = (int) Math.round(Math.abs(maxx - minx) / latticeConstant);
 		dim[1] = (int) Math.round(Math.abs(maxy - miny) / latticeConstant);
 		dim[2] = (int) Math.round(Math.abs(maxz - minz) / latticeConstant);
-
-		grid = new double[dim[0] + 1][dim[1] + 1][dim[2] + 1];
 	}
 
 	/**
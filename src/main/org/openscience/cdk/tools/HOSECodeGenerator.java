@@ -27,9 +27,12 @@ package org.openscience.cdk.tools;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.openscience.cdk.CDKConstants;
 import org.openscience.cdk.annotations.TestClass;
@@ -296,6 +299,56 @@ public class HOSECodeGenerator implements java.io.Serializable
 		return HOSECode.toString();
 	}
 
+	/**
+	 * Produces the HOSE codes of all atoms of the {@link IAtomContainer} <code>ac</code>, the
+	 * same codes as {@link #getHOSECode(IAtomContainer, IAtom, int)} gives for each atom.
+	 * The canonical labels, the ring perception and the atom invariants are computed once
+	 * for the whole molecule and the spheres of each atom are searched on arrays, which is
+	 * much faster than asking for the code of one atom after the other.
+	 * The same requirements on aromaticity and hydrogens apply.
+	 *
+	 * @param  ac  The {@link IAtomContainer} for which to produce the HOSE codes
+	 * @param  noOfSpheres  The number of spheres to look at
+	 * @return The HOSE code of each atom, in the order of the atoms
+	 * @exception  org.openscience.cdk.exception.CDKException  Thrown if something is wrong
+	 */
+	@TestMethod("testGetHOSECodes")
+	public String[] getHOSECodes(IAtomContainer ac, int noOfSpheres) throws CDKException
+	{
+		return getHOSECodes(ac, noOfSpheres, false);
+	}
+
+	/**
+	 * Produces the HOSE codes of all atoms of the {@link IAtomContainer} <code>ac</code>, the
+	 * same codes as {@link #getHOSECode(IAtomContainer, IAtom, int, boolean)} gives for each atom.
+	 *
+	 * @param  ac  The {@link IAtomContainer} for which to produce the HOSE codes
+	 * @param  noOfSpheres  The number of spheres to look at
+	 * @param  ringsize  The size of the ring(s) an atom is in is included in its center atom code
+	 * @return The HOSE code of each atom, in the order of the atoms
+	 * @exception  org.openscience.cdk.exception.CDKException  Thrown if something is wrong
+	 * @see #getHOSECodes(IAtomContainer, int)
+	 */
+	@TestMethod("testGetHOSECodes_Ringsize")
+	public String[] getHOSECodes(IAtomContainer ac, int noOfSpheres, boolean ringsize) throws CDKException
+	{
+		ensureIsotopeFactory(ac.getBuilder());
+		new CanonicalLabeler().canonLabel(ac);
+		IRingSet rings = ringsize ? new SSSRFinder(ac).findSSSR() : null;
+		MoleculeSpheres molecule = new MoleculeSpheres(ac, noOfSpheres);
+		String[] codes = new String[ac.getAtomCount()];
+		for (int i = 0; i < codes.length; i++)
+		{
+			IAtom root = ac.getAtom(i);
+			int partnerCount = molecule.neighbours[i].length +
+			        (root.getImplicitHydrogenCount() == CDKConstants.UNSET ? 0 : root.getImplicitHydrogenCount());
+			String center = root.getSymbol() + "-" + partnerCount + molecule.charges[i] +
+			        (ringsize ? getRingcode(root, rings) : "") + ";";
+			codes[i] = molecule.code(i, center);
+		}
+		return codes;
+	}
+
 	private void createCenterCode(IAtom root, IAtomContainer ac, boolean ringsize)
 	{
 		int partnerCount = 0;
@@ -309,6 +362,10 @@ public class HOSECodeGenerator implements java.io.Serializable
 		if(ac!=acold){
 			soar=new SSSRFinder(ac).findSSSR();
 		}
+		return getRingcode(root, soar);
+	}
+
+	private String getRingcode(IAtom root, IRingSet soar){
 		boolean[] bool=new boolean[1000];
 		StringBuffer sb=new StringBuffer();
 		for(int i=0;i<soar.getRings(root).getAtomContainerCount();i++){
@@ -860,6 +917,304 @@ public class HOSECodeGenerator implements java.io.Serializable
 	}
   
   
+	/**
+	 *  The spheres of all atoms of a molecule, searched on arrays. It follows
+	 *  the steps of <code>breadthFirstSearch()</code> and <code>createCode()</code>
+	 *  for one root atom after the other, with the nodes of the spheres kept in
+	 *  parallel arrays instead of TreeNodes and the atom invariants shared by all
+	 *  roots.
+	 */
+	class MoleculeSpheres
+	{
+		/** The root node, the source of the nodes of the first sphere. */
+		private static final int ROOT = -1;
+
+		private final int maxSphere;
+
+		// the atom invariants, the neighbours and bond types in the order of
+		// getConnectedAtomsList()
+		final int[][] neighbours;
+		final int[][] bondTypes;
+		final String[] charges;
+		private final String[] symbols;
+		private final long[] labels;
+		private final boolean[] expandable;
+		private final boolean[] hydrogen;
+		private final double[] ranks;
+
+		// the nodes of the spheres of the current root, a node is an atom
+		// index, or -1 for a terminal ',' node, with its source node
+		private int[] nodeAtom = new int[64];
+		private int[] nodeSource = new int[64];
+		private int[] nodeBond = new int[64];
+		private int[] nodeRanking = new int[64];
+		private String[] nodeString = new String[64];
+		private boolean[] nodeStopper = new boolean[64];
+		private int nodeCount;
+		private int root;
+		private final int[][] spheres;
+		private final int[] sphereSize;
+		private final boolean[] visited;
+
+		MoleculeSpheres(IAtomContainer ac, int maxSphere) throws CDKException
+		{
+			this.maxSphere = maxSphere;
+			int n = ac.getAtomCount();
+			Map<IAtom,Integer> index = new HashMap<IAtom,Integer>();
+			for (int i = 0; i < n; i++)
+				index.put(ac.getAtom(i), i);
+			int[] degree = new int[n];
+			for (IBond bond : ac.bonds())
+			{
+				degree[index.get(bond.getAtom(0))]++;
+				degree[index.get(bond.getAtom(1))]++;
+			}
+			neighbours = new int[n][];
+			bondTypes = new int[n][];
+			for (int i = 0; i < n; i++)
+			{
+				neighbours[i] = new int[degree[i]];
+				bondTypes[i] = new int[degree[i]];
+				degree[i] = 0;
+			}
+			for (IBond bond : ac.bonds())
+			{
+				int a = index.get(bond.getAtom(0)), b = index.get(bond.getAtom(1));
+				int type;
+				if (bond.getFlag(CDKConstants.ISAROMATIC))
+					type = 4;
+				else if (bond.getOrder() == null)
+					type = -1;
+				else
+					type = bond.getOrder().numeric();
+				neighbours[a][degree[a]] = b;
+				bondTypes[a][degree[a]++] = type;
+				neighbours[b][degree[b]] = a;
+				bondTypes[b][degree[b]++] = type;
+			}
+			symbols = new String[n];
+			charges = new String[n];
+			labels = new long[n];
+			expandable = new boolean[n];
+			hydrogen = new boolean[n];
+			ranks = new double[n];
+			for (int i = 0; i < n; i++)
+			{
+				IAtom atom = ac.getAtom(i);
+				symbols[i] = atom.getSymbol();
+				charges[i] = createChargeCode(atom);
+				Long label = (Long) atom.getProperty(InvPair.CANONICAL_LABEL);
+				labels[i] = label == null ? Long.MIN_VALUE : label;
+				expandable[i] = "&;#:,".indexOf(symbols[i]) < 0;
+				hydrogen[i] = "H".equals(symbols[i]);
+				ranks[i] = Double.NaN;
+			}
+			spheres = new int[maxSphere + 1][16];
+			sphereSize = new int[maxSphere + 1];
+			visited = new boolean[n];
+		}
+
+		/**
+		 *  The HOSE code of one root atom.
+		 */
+		String code(int root, String center) throws CDKException
+		{
+			this.root = root;
+			nodeCount = 0;
+			sphereSize[0] = 0;
+			for (int k = 0; k < neighbours[root].length; k++)
+			{
+				int atom = neighbours[root][k];
+				if (!hydrogen[atom])
+					addNode(0, atom, ROOT, bondType(root, k));
+			}
+			sortByLabel(0);
+			for (int sphere = 1; sphere <= maxSphere; sphere++)
+			{
+				sphereSize[sphere] = 0;
+				for (int i = 0; i < sphereSize[sphere - 1]; i++)
+				{
+					int node = spheres[sphere - 1][i];
+					int atom = nodeAtom[node];
+					if (atom < 0 || !expandable[atom] || hydrogen[atom])
+						continue;
+					if (neighbours[atom].length == 1)
+					{
+						addNode(sphere, -1, node, 0);
+						continue;
+					}
+					int from = sourceAtom(node);
+					for (int k = 0; k < neighbours[atom].length; k++)
+					{
+						if (neighbours[atom][k] != from)
+							addNode(sphere, neighbours[atom][k], node, bondType(atom, k));
+					}
+				}
+				sortByLabel(sphere);
+			}
+
+			// rank the nodes by the degrees of their successors, then by
+			// element and bond, within the order of their branch
+			for (int sphere = maxSphere; sphere > 0; sphere--)
+			{
+				for (int i = 0; i < sphereSize[sphere]; i++)
+				{
+					int node = spheres[sphere][i];
+					int atom = nodeAtom[node];
+					nodeRanking[nodeSource[node]] += atom < 0 ? 0 : neighbours[atom].length;
+				}
+			}
+			for (int sphere = 0; sphere < maxSphere; sphere++)
+			{
+				for (int i = 0; i < sphereSize[sphere]; i++)
+				{
+					int node = spheres[sphere][i];
+					int atom = nodeAtom[node];
+					long score = (long) (atom < 0 ? getElementRank(",") : rank(atom));
+					if (nodeBond[node] > 4)
+						throw new CDKException("Unknown bond type encountered in HOSECodeGenerator");
+					score += bondRankings[nodeBond[node]] + nodeRanking[node];
+					String localscore = Long.toString(score);
+					while (localscore.length() < 6)
+						localscore = "0" + localscore;
+					nodeString[node] = nodeSource[node] == ROOT ? localscore : nodeString[nodeSource[node]] + localscore;
+				}
+				sortByScore(sphere);
+			}
+
+			StringBuffer code = new StringBuffer(center);
+			Arrays.fill(visited, false);
+			for (int sphere = 0; sphere < maxSphere; sphere++)
+			{
+				int size = sphereSize[sphere];
+				if (size > 0)
+				{
+					int branch = sourceAtom(spheres[sphere][0]);
+					for (int i = 0; i < size; i++)
+					{
+						int node = spheres[sphere][i];
+						int source = nodeSource[node];
+						int atom = nodeAtom[node];
+						boolean stopped = source != ROOT && nodeStopper[source];
+						if (!stopped && sourceAtom(node) != branch)
+						{
+							branch = sourceAtom(node);
+							code.append(',');
+						}
+						if (!stopped)
+						{
+							code.append(bondSymbols[nodeBond[node]]);
+							if (atom >= 0 && !visited[atom])
+							{
+								code.append(getElementSymbol(symbols[atom]));
+							}
+							else if (atom >= 0)
+							{
+								code.append('&');
+								nodeStopper[node] = true;
+							}
+							if (atom >= 0)
+								code.append(charges[atom]);
+						}
+						if (atom >= 0)
+							visited[atom] = true;
+						if (stopped)
+							nodeStopper[node] = true;
+					}
+				}
+				code.append(sphereDelimiters[sphere]);
+			}
+			for (int f = maxSphere; f < 4; f++)
+				code.append(sphereDelimiters[f]);
+			return code.toString();
+		}
+
+		private int bondType(int atom, int k) throws CDKException
+		{
+			int type = bondTypes[atom][k];
+			if (type < 0)
+				throw new CDKException("Error in HOSECodeGenerator: bond without order at atom " + (atom + 1));
+			return type;
+		}
+
+		private int sourceAtom(int node)
+		{
+			int source = nodeSource[node];
+			return source == ROOT ? root : nodeAtom[source];
+		}
+
+		private double rank(int atom)
+		{
+			if (Double.isNaN(ranks[atom]))
+				ranks[atom] = getElementRank(symbols[atom]);
+			return ranks[atom];
+		}
+
+		private void addNode(int sphere, int atom, int source, int bondType)
+		{
+			if (nodeCount == nodeAtom.length)
+			{
+				int capacity = 2 * nodeCount;
+				nodeAtom = Arrays.copyOf(nodeAtom, capacity);
+				nodeSource = Arrays.copyOf(nodeSource, capacity);
+				nodeBond = Arrays.copyOf(nodeBond, capacity);
+				nodeRanking = Arrays.copyOf(nodeRanking, capacity);
+				nodeString = Arrays.copyOf(nodeString, capacity);
+				nodeStopper = Arrays.copyOf(nodeStopper, capacity);
+			}
+			int node = nodeCount++;
+			nodeAtom[node] = atom;
+			nodeSource[node] = source;
+			nodeBond[node] = bondType;
+			nodeRanking[node] = 0;
+			nodeStopper[node] = false;
+			if (sphereSize[sphere] == spheres[sphere].length)
+				spheres[sphere] = Arrays.copyOf(spheres[sphere], 2 * sphereSize[sphere]);
+			spheres[sphere][sphereSize[sphere]++] = node;
+		}
+
+		/**
+		 *  Stable sort of a sphere by the canonical label of the atoms, terminal
+		 *  nodes first, as the TreeNodeComparator does.
+		 */
+		private void sortByLabel(int sphere)
+		{
+			int[] nodes = spheres[sphere];
+			for (int i = 1; i < sphereSize[sphere]; i++)
+			{
+				int node = nodes[i];
+				long label = label(node);
+				int j = i - 1;
+				for (; j >= 0 && label(nodes[j]) > label; j--)
+					nodes[j + 1] = nodes[j];
+				nodes[j + 1] = node;
+			}
+		}
+
+		/**
+		 *  Stable sort of a sphere by descending string score, as
+		 *  <code>sortNodesByScore()</code> does.
+		 */
+		private void sortByScore(int sphere)
+		{
+			int[] nodes = spheres[sphere];
+			for (int i = 1; i < sphereSize[sphere]; i++)
+			{
+				int node = nodes[i];
+				String score = nodeString[node];
+				int j = i - 1;
+				for (; j >= 0 && nodeString[nodes[j]].compareTo(score) < 0; j--)
+					nodes[j + 1] = nodes[j];
+				nodes[j + 1] = node;
+			}
+		}
+
+		private long label(int node)
+		{
+			return nodeAtom[node] < 0 ? Long.MIN_VALUE : labels[nodeAtom[node]];
+		}
+	}
+
 	public List<IAtom> getNodesInSphere(int sphereNumber){
 		sphereNodes = spheres[sphereNumber-1];
 		List<IAtom> atoms=new ArrayList<IAtom>();
@@ -0,0 +1,315 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.tools;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+/**
+ * An index of chemical shifts by HOSE code, for predicting the shifts of all
+ * atoms of many molecules. Each shift is recorded for its HOSE code and for
+ * the codes of the same atom with fewer spheres. A code is looked up with as
+ * many spheres as possible, falling back to fewer spheres down to the first
+ * one, like the one sphere table of the {@link
+ * BremserOneSphereHOSECodePredictor}.
+ *
+ * <pre>
+ * HOSECodeShiftIndex index = new HOSECodeShiftIndex(4);
+ * for (int i = 0; i &lt; assigned.size(); i++)
+ *     index.add(assigned.get(i), shifts.get(i));
+ * for (IAtomContainer molecule : library)
+ *     double[] predicted = index.predict(molecule);
+ * </pre>
+ *
+ * <p>The codes of a molecule are generated with {@link
+ * HOSECodeGenerator#getHOSECodes(IAtomContainer, int)}, so the molecules must
+ * have their hydrogens and aromaticity set up as the generator requires.
+ * Adding shifts is not thread safe, once they are added the index may be
+ * used from several threads.
+ *
+ * @cdk.module  extra
+ * @cdk.githash
+ * @cdk.keyword HOSE code
+ * @cdk.keyword NMR
+ * @see HOSECodeGenerator
+ */
+@TestClass("org.openscience.cdk.tools.HOSECodeShiftIndexTest")
+public class HOSECodeShiftIndex implements java.io.Serializable {
+
+    private static final long serialVersionUID = 2916537451038123472L;
+
+    /** The delimiters of the first four spheres, also appended to shorter codes. */
+    private static final String DELIMITERS = "(//)";
+
+    private final int                     maxSpheres;
+    private final Map<String, ShiftRange> ranges = new HashMap<String, ShiftRange>();
+
+    /**
+     * The shifts of all atoms with the same HOSE code.
+     */
+    public static final class ShiftRange implements java.io.Serializable {
+
+        private static final long serialVersionUID = -1286359146358425186L;
+
+        private final String code;
+        private final int    spheres;
+        private int          count;
+        private double       sum, squares;
+        private double       min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+
+        private ShiftRange(String code, int spheres) {
+            this.code    = code;
+            this.spheres = spheres;
+        }
+
+        private void add(double shift) {
+            count++;
+            sum     += shift;
+            squares += shift * shift;
+            if (shift < min) min = shift;
+            if (shift > max) max = shift;
+        }
+
+        /** The HOSE code of the atoms. */
+        public String getCode() {
+            return code;
+        }
+
+        /** The number of spheres of the code. */
+        public int getSpheres() {
+            return spheres;
+        }
+
+        /** The number of shifts recorded for the code. */
+        public int getCount() {
+            return count;
+        }
+
+        /** The mean of the shifts. */
+        public double getShift() {
+            return sum / count;
+        }
+
+        /** The sample standard deviation of the shifts, 0 for a single shift. */
+        public double getStandardDeviation() {
+            if (count < 2)
+                return 0;
+            double variance = (squares - sum * sum / count) / (count - 1);
+            return variance > 0 ? Math.sqrt(variance) : 0;
+        }
+
+        /** The smallest shift. */
+        public double getMinShift() {
+            return min;
+        }
+
+        /** The largest shift. */
+        public double getMaxShift() {
+            return max;
+        }
+
+        public String toString() {
+            return "delta: " + getShift() + " for code " + code + " from " + count + " shifts in range " + min + "-"
+                    + max;
+        }
+    }
+
+    /**
+     * Create an index of HOSE codes with up to four spheres.
+     */
+    public HOSECodeShiftIndex() {
+        this(4);
+    }
+
+    /**
+     * Create an index of HOSE codes with up to the given number of spheres.
+     *
+     * @param maxSpheres the number of spheres of the codes of a molecule
+     */
+    public HOSECodeShiftIndex(int maxSpheres) {
+        if (maxSpheres < 1)
+            throw new IllegalArgumentException("at least one sphere is required");
+        this.maxSpheres = maxSpheres;
+    }
+
+    /**
+     * The number of spheres of the codes generated for a molecule.
+     *
+     * @return the number of spheres
+     */
+    @TestMethod("testAdd_IAtomContainer")
+    public int getMaxSpheres() {
+        return maxSpheres;
+    }
+
+    /**
+     * The number of distinct HOSE codes in the index, counting the codes of
+     * each number of spheres.
+     *
+     * @return the number of codes
+     */
+    @TestMethod("testAdd_String")
+    public int size() {
+        return ranges.size();
+    }
+
+    /**
+     * Record the shift of an atom with the given HOSE code, for the code and
+     * for the code with each smaller number of spheres.
+     *
+     * @param hoseCode the HOSE code of the atom
+     * @param shift    the shift of the atom
+     */
+    @TestMethod("testAdd_String")
+    public void add(String hoseCode, double shift) {
+        for (int spheres = getSphereCount(hoseCode); spheres > 0; spheres--) {
+            String     code  = truncate(hoseCode, spheres);
+            ShiftRange range = ranges.get(code);
+            if (range == null)
+                ranges.put(code, range = new ShiftRange(code, spheres));
+            range.add(shift);
+        }
+    }
+
+    /**
+     * Record the shifts of the atoms of a molecule.
+     *
+     * @param molecule the molecule
+     * @param shifts   the shift of each atom, in the order of the atoms,
+     *                 {@link Double#NaN} for atoms without a shift
+     * @throws CDKException the HOSE codes could not be generated
+     */
+    @TestMethod("testAdd_IAtomContainer")
+    public void add(IAtomContainer molecule, double[] shifts) throws CDKException {
+        if (shifts.length != molecule.getAtomCount())
+            throw new IllegalArgumentException("a shift is required for each atom");
+        String[] codes = new HOSECodeGenerator().getHOSECodes(molecule, maxSpheres);
+        for (int i = 0; i < codes.length; i++) {
+            if (!Double.isNaN(shifts[i]))
+                add(codes[i], shifts[i]);
+        }
+    }
+
+    /**
+     * Find the shifts of a HOSE code with as many of its spheres as are in
+     * the index.
+     *
+     * @param hoseCode a HOSE code
+     * @return the shifts of the longest matching code, null if not even the
+     *         first sphere is in the index
+     */
+    @TestMethod("testFind")
+    public ShiftRange find(String hoseCode) {
+        for (int spheres = getSphereCount(hoseCode); spheres > 0; spheres--) {
+            ShiftRange range = ranges.get(truncate(hoseCode, spheres));
+            if (range != null)
+                return range;
+        }
+        return null;
+    }
+
+    /**
+     * Predict the shift of an atom with the given HOSE code.
+     *
+     * @param hoseCode a HOSE code
+     * @return the mean shift of the longest matching code
+     * @throws CDKException no sphere of the code is in the index
+     */
+    @TestMethod("testPredict_String")
+    public double predict(String hoseCode) throws CDKException {
+        ShiftRange range = hoseCode == null ? null : find(hoseCode);
+        if (range == null)
+            throw new CDKException("No prediction available for HOSE code " + hoseCode);
+        return range.getShift();
+    }
+
+    /**
+     * Predict the shifts of all atoms of a molecule.
+     *
+     * @param molecule the molecule
+     * @return the predicted shift of each atom, in the order of the atoms,
+     *         {@link Double#NaN} for atoms of which no sphere is in the index
+     * @throws CDKException the HOSE codes could not be generated
+     */
+    @TestMethod("testPredict_IAtomContainer")
+    public double[] predict(IAtomContainer molecule) throws CDKException {
+        String[] codes  = new HOSECodeGenerator().getHOSECodes(molecule, maxSpheres);
+        double[] shifts = new double[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            ShiftRange range = find(codes[i]);
+            shifts[i] = range == null ? Double.NaN : range.getShift();
+        }
+        return shifts;
+    }
+
+    /**
+     * The number of spheres of a HOSE code, not counting empty spheres at
+     * the end. The center code before the ';' is optional.
+     *
+     * @param hoseCode a HOSE code
+     * @return the number of spheres, at least 1
+     */
+    @TestMethod("testGetSphereCount")
+    public static int getSphereCount(String hoseCode) {
+        int spheres = 0, sphere = 0;
+        int start   = hoseCode.indexOf(';') + 1;
+        for (int i = start; i < hoseCode.length(); i++) {
+            char c = hoseCode.charAt(i);
+            if (c == '(' || c == '/' || c == ')') {
+                sphere++;
+                if (i > start && !isDelimiter(hoseCode.charAt(i - 1)))
+                    spheres = sphere;
+            }
+        }
+        return Math.max(spheres, 1);
+    }
+
+    /**
+     * The HOSE code with only the given number of spheres, the code
+     * generated for the same atom with fewer spheres.
+     *
+     * @param hoseCode a HOSE code
+     * @param spheres  the number of spheres to keep
+     * @return the shorter code, or the code if it has no more spheres
+     */
+    @TestMethod("testTruncate")
+    public static String truncate(String hoseCode, int spheres) {
+        int sphere = 0;
+        for (int i = hoseCode.indexOf(';') + 1; i < hoseCode.length(); i++) {
+            if (isDelimiter(hoseCode.charAt(i)) && ++sphere == spheres) {
+                String code = hoseCode.substring(0, i + 1);
+                return spheres < DELIMITERS.length() ? code + DELIMITERS.substring(spheres) : code;
+            }
+        }
+        return hoseCode;
+    }
+
+    private static boolean isDelimiter(char c) {
+        return c == '(' || c == '/' || c == ')';
+    }
+}
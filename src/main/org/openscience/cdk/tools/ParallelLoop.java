@@ -0,0 +1,250 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.tools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+
+/**
+ * Runs a loop over the indices 0 to n-1 on several threads. The indices are
+ * handed out one at a time, so a thread which is done with an index takes
+ * the next one not yet taken. The body of the loop must only write state of
+ * its own index. An exception of the body stops the handing out of indices,
+ * and once the other threads are done with their index it is thrown by the
+ * loop as it was thrown by the body.
+ *
+ * <pre>
+ * ParallelLoop.forEach(atoms.length, threads, "surface", new ParallelLoop.Body&lt;RuntimeException&gt;() {
+ *     public void run(int i) {
+ *         points[i] = surfacePoints(atoms[i]);
+ *     }
+ * });
+ * </pre>
+ *
+ * The threads are daemon threads, so a pool of {@link #newPool(int, String)}
+ * which is not shut down does not keep the JVM running, and they end when
+ * they have been idle for a while.
+ *
+ * @cdk.module core
+ * @cdk.githash
+ */
+@TestClass("org.openscience.cdk.tools.ParallelLoopTest")
+public final class ParallelLoop {
+
+    /** Time in seconds after which an idle thread of a pool ends. */
+    private static final long KEEP_ALIVE = 10;
+
+    /**
+     * The body of a loop, run once for each index.
+     *
+     * @param <E> the checked exception of the body
+     */
+    public interface Body<E extends Exception> {
+        void run(int index) throws E;
+    }
+
+    private ParallelLoop() {
+    }
+
+    /**
+     * A pool of daemon threads which end after being idle for ten seconds.
+     *
+     * @param threads the number of threads
+     * @param name    the name of the threads
+     * @return the pool
+     */
+    @TestMethod("testNewPool")
+    public static ExecutorService newPool(int threads, String name) {
+        return newPool(threads, name, KEEP_ALIVE, TimeUnit.SECONDS);
+    }
+
+    /**
+     * A pool of daemon threads which end after being idle for the given time.
+     *
+     * @param threads   the number of threads
+     * @param name      the name of the threads
+     * @param keepAlive the time after which an idle thread ends
+     * @param unit      the unit of the time
+     * @return the pool
+     */
+    @TestMethod("testNewPool")
+    public static ExecutorService newPool(int threads, final String name, long keepAlive, TimeUnit unit) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+            threads, threads, keepAlive, unit, new LinkedBlockingQueue<Runnable>(),
+            new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, name);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }
+        );
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Run the body for each index from 0 to n-1, on at most the given number
+     * of new threads which end with the loop. With one thread or index the
+     * body is run by the calling thread.
+     *
+     * @param n       the number of indices
+     * @param threads the number of threads
+     * @param name    the name of the threads
+     * @param body    the body of the loop
+     * @throws E the first exception of the body
+     * @throws IllegalStateException the calling thread was interrupted, the
+     *                               interrupt flag is set again
+     */
+    @TestMethod("testForEach,testForEach_Exception")
+    public static <E extends Exception> void forEach(int n, int threads, String name, Body<E> body) throws E {
+        int nthreads = Math.min(threads, n);
+        if (nthreads <= 1) {
+            for (int i = 0; i < n; i++)
+                body.run(i);
+            return;
+        }
+        ExecutorService pool = newPool(nthreads, name);
+        try {
+            forEach(n, pool, nthreads, body);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Run the body for each index from 0 to n-1 on the threads of a pool,
+     * with at most the given number of tasks. With one thread or index the
+     * body is run by the calling thread.
+     *
+     * @param n       the number of indices
+     * @param pool    the pool, which is not shut down
+     * @param threads the number of tasks given to the pool
+     * @param body    the body of the loop
+     * @throws E the first exception of the body
+     * @throws IllegalStateException the calling thread was interrupted, the
+     *                               interrupt flag is set again
+     */
+    @TestMethod("testForEach_Pool")
+    public static <E extends Exception> void forEach(final int n, ExecutorService pool, int threads,
+                                                     final Body<E> body) throws E {
+        int ntasks = Math.min(threads, n);
+        if (ntasks <= 1) {
+            for (int i = 0; i < n; i++)
+                body.run(i);
+            return;
+        }
+        final AtomicInteger  next    = new AtomicInteger();
+        List<Future<Object>> futures = new ArrayList<Future<Object>>(ntasks);
+        for (int t = 0; t < ntasks; t++) {
+            futures.add(pool.submit(new Callable<Object>() {
+                public Object call() throws Exception {
+                    int i;
+                    while ((i = next.getAndIncrement()) < n) {
+                        try {
+                            body.run(i);
+                        } catch (Exception exception) {
+                            next.set(n);
+                            throw exception;
+                        } catch (Error error) {
+                            next.set(n);
+                            throw error;
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+        Throwable failure = null;
+        try {
+            for (Future<Object> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException exception) {
+                    if (failure == null)
+                        failure = exception.getCause();
+                }
+            }
+        } catch (InterruptedException exception) {
+            next.set(n);
+            for (Future<Object> future : futures)
+                future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for the threads", exception);
+        }
+        if (failure != null)
+            ParallelLoop.<E>rethrow(failure);
+    }
+
+    /**
+     * Wait for the result of a task, an exception of the task is thrown as
+     * it was thrown by the task.
+     *
+     * @param future the task
+     * @param type   the checked exception of the task
+     * @return the result of the task
+     * @throws E                    the exception of the task
+     * @throws InterruptedException the calling thread was interrupted
+     * @throws IllegalStateException the task failed with another checked exception
+     */
+    @TestMethod("testGet")
+    public static <T, E extends Exception> T get(Future<T> future, Class<E> type) throws E, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (type.isInstance(cause))
+                throw type.cast(cause);
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IllegalStateException("the task failed: " + cause, cause);
+        }
+    }
+
+    /**
+     * Throw an exception of the body of a loop, a checked exception is one
+     * the body declares.
+     */
+    @SuppressWarnings("unchecked")
+    private static <E extends Exception> void rethrow(Throwable failure) throws E {
+        if (failure instanceof RuntimeException)
+            throw (RuntimeException) failure;
+        if (failure instanceof Error)
+            throw (Error) failure;
+        throw (E) failure;
+    }
+}
@@ -21,13 +21,21 @@
 package org.openscience.cdk.tools;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.openscience.cdk.CDKConstants;
 import org.openscience.cdk.annotations.TestClass;
 import org.openscience.cdk.annotations.TestMethod;
 import org.openscience.cdk.aromaticity.CDKHueckelAromaticityDetector;
 import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.hash.AtomEncoder;
+import org.openscience.cdk.hash.BasicAtomEncoder;
+import org.openscience.cdk.hash.HashGeneratorMaker;
+import org.openscience.cdk.hash.MoleculeHashGenerator;
 import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.interfaces.IAtomContainerSet;
@@ -66,6 +74,12 @@ import org.openscience.cdk.reaction.type.parameters.SetReactionCenter;
  * <p>Moreover you must put the parameter as true</p>
  * <p>If the reactive center is not localized then the reaction process will
  * try to find automatically the possible reactive center.</p>
+ * 
+ * <p>The structures are explored breadth first, every structure found is
+ * appended to the result and the reactions are applied to it in turn. A
+ * product is only compared with the isomorphism tester to the structures
+ * with the same hash code, the reactions of a structure may be applied by
+ * several threads, see {@link #setThreads(int)}.</p>
  *  
  * @author       Miguel Rojas
  * @cdk.created  2006-5-05
@@ -84,6 +98,27 @@ public class StructureResonanceGenerator {
 	private boolean lookingSymmetry;
 	/** TODO: REACT: some time takes too much time. At the moment fixed to 50 structures*/
 	private int maxStructures = 50;
+	/** number of threads which apply the reactions to a structure*/
+	private int threads = 1;
+
+	/** symbol of the atom, query atoms of the duplicate test match the symbol*/
+	private static final AtomEncoder SYMBOL = new AtomEncoder() {
+		public int encode(IAtom atom, IAtomContainer container) {
+			return atom.getSymbol() != null ? atom.getSymbol().hashCode() : 32451169;
+		}
+	};
+	/** formal charge of the atom, an unset charge is 0 as for the query atoms*/
+	private static final AtomEncoder CHARGE = new AtomEncoder() {
+		public int encode(IAtom atom, IAtomContainer container) {
+			return atom.getFormalCharge() != null ? atom.getFormalCharge() : 0;
+		}
+	};
+	/** hash code of a structure, the same for all structures that existAC finds equal*/
+	private static final MoleculeHashGenerator HASH = new HashGeneratorMaker().depth(8)
+			.encode(SYMBOL).encode(CHARGE).encode(BasicAtomEncoder.BOND_ORDER_SUM).molecular();
+	/** as HASH without the bond orders, aromatic bonds match bonds of any order*/
+	private static final MoleculeHashGenerator SYMMETRY_HASH = new HashGeneratorMaker().depth(8)
+			.encode(SYMBOL).encode(CHARGE).molecular();
 	/**
 	 * Construct an instance of StructureResonanceGenerator. Default restrictions 
 	 * are initiated.
@@ -150,6 +185,27 @@ public class StructureResonanceGenerator {
 	public int getMaximalStructures(){
 		return maxStructures;
 	}
+	/**
+	 * Set the number of threads which apply the reactions to a structure, the
+	 * default is to use only the calling thread. With several threads each
+	 * reaction is applied to its own copy of the structure, the reactive
+	 * centers marked by the reactions are copied back to the structure.
+	 * 
+	 * <p>Unlike with one thread, a reaction does not see the reactive centers
+	 * that the other reactions mark on the same structure, only those marked
+	 * before. The reactive centers set by the user, and those each reaction
+	 * finds itself, are the same, so the default reactions give the same
+	 * structures with any number of threads. Reactions which rely on the
+	 * centers marked by another reaction should be used with one thread.</p>
+	 * 
+	 * @param threads the number of threads, at least 1
+	 */
+	@TestMethod("testSetThreads_int")
+	public void setThreads(int threads){
+		if (threads < 1)
+			throw new IllegalArgumentException("at least one thread is required");
+		this.threads = threads;
+	}
 	/**
 	 * Set the default reactions that must be presents to generate the resonance.
 	 *
@@ -231,35 +287,73 @@ public class StructureResonanceGenerator {
     	int countStructure = 0;
     	IAtomContainerSet setOfMol = molecule.getBuilder().newInstance(IAtomContainerSet.class);
 		setOfMol.addAtomContainer(molecule);
+		StructureIndex index = new StructureIndex(setOfMol);
+		index.add(molecule);
 		
 		for(int i = 0 ; i < setOfMol.getAtomContainerCount() ; i++){
 			IAtomContainer mol = setOfMol.getAtomContainer(i);
-            for (IReactionProcess aReactionsList : reactionsList) {
-                IReactionProcess reaction = aReactionsList;
-                IAtomContainerSet setOfReactants = molecule.getBuilder().newInstance(IAtomContainerSet.class);
-                setOfReactants.addAtomContainer(mol);
-                try {
-                    IReactionSet setOfReactions = reaction.initiate(setOfReactants, null);
+            for (IReactionSet setOfReactions : initiate(mol)) {
+                if (setOfReactions != null)
                     if (setOfReactions.getReactionCount() != 0)
                         for (int k = 0; k < setOfReactions.getReactionCount(); k++)
                             for (int j = 0; j < setOfReactions.getReaction(k).getProducts().getAtomContainerCount(); j++)
                             {
                                 IAtomContainer product = setOfReactions.getReaction(k).getProducts().getAtomContainer(j);
-                                if (!existAC(setOfMol, product)) {
+                                if (!existAC(index, product)) {
                                     setOfMol.addAtomContainer(product);
+                                    index.add(product);
                                     countStructure++;
                                     if (countStructure > maxStructures)
                                         return setOfMol;
                                 }
                             }
-                } catch (CDKException e) {
-                    e.printStackTrace();
-                }
             }
 		}
 		return setOfMol;
 	}
 
+	/**
+	 * Apply each reaction to a structure. The reaction sets are in the order of
+	 * the reactions, a reaction which fails has a null entry.
+	 * 
+	 * @param mol the structure
+	 * @return    the reaction sets
+	 */
+	private List<IReactionSet> initiate(final IAtomContainer mol) {
+		final IReactionSet[]   reactionSets = new IReactionSet[reactionsList.size()];
+		final IAtomContainer[] reactants    = new IAtomContainer[reactionSets.length];
+		/* with several threads each reaction has its own copy of the structure*/
+		boolean copy = threads > 1 && reactionSets.length > 1;
+		for (int i = 0; i < reactants.length; i++) {
+			try {
+				reactants[i] = copy ? (IAtomContainer) mol.clone() : mol;
+			} catch (CloneNotSupportedException e) {
+				throw new IllegalStateException("could not copy the structure", e);
+			}
+		}
+		ParallelLoop.forEach(reactionSets.length, threads, "StructureResonanceGenerator", new ParallelLoop.Body<RuntimeException>() {
+			public void run(int i) {
+				IAtomContainerSet setOfReactants = mol.getBuilder().newInstance(IAtomContainerSet.class);
+				setOfReactants.addAtomContainer(reactants[i]);
+				try {
+					reactionSets[i] = reactionsList.get(i).initiate(setOfReactants, null);
+				} catch (CDKException e) {
+					logger.error("Could not apply the reaction: ", e.getMessage());
+					logger.debug(e);
+				}
+			}
+		});
+		for (int r = 0; copy && r < reactants.length; r++) {
+			for (int i = 0; i < mol.getAtomCount(); i++)
+				if (reactants[r].getAtom(i).getFlag(CDKConstants.REACTIVE_CENTER))
+					mol.getAtom(i).setFlag(CDKConstants.REACTIVE_CENTER, true);
+			for (int i = 0; i < mol.getBondCount(); i++)
+				if (reactants[r].getBond(i).getFlag(CDKConstants.REACTIVE_CENTER))
+					mol.getBond(i).setFlag(CDKConstants.REACTIVE_CENTER, true);
+		}
+		return Arrays.asList(reactionSets);
+	}
+
 	/**
 	 * <p>Get the container which is found resonance from a IMolecule. 
 	 * It is based on looking if the order of the bond changes.</p>
@@ -403,16 +497,94 @@ public class StructureResonanceGenerator {
     	
     	return null;
 	}
+	/**
+	 * The structures found so far by their hash code. A product is only
+	 * compared to the structures with its hash code, the hash code is the same
+	 * for all structures {@link #existAC(StructureIndex, IAtomContainer)} finds
+	 * equal. The structures which the pairwise search would have compared are
+	 * prepared as it did, so the IDs and aromaticity of the structures are the
+	 * same.
+	 */
+	private class StructureIndex {
+
+		private final IAtomContainerSet set;
+		private final Map<Long, List<Integer>> structures = new HashMap<Long, List<Integer>>();
+		private int prepared = 0;
+
+		private StructureIndex(IAtomContainerSet set) {
+			this.set = set;
+		}
+
+		private long hash(IAtomContainer atomContainer) {
+			return lookingSymmetry ? SYMMETRY_HASH.generate(atomContainer) : HASH.generate(atomContainer);
+		}
+
+		/**
+		 * Add the last structure of the set.
+		 */
+		private void add(IAtomContainer atomContainer) {
+			Long key = hash(atomContainer);
+			List<Integer> indices = structures.get(key);
+			if (indices == null) {
+				indices = new ArrayList<Integer>(1);
+				structures.put(key, indices);
+			}
+			indices.add(set.getAtomContainerCount() - 1);
+		}
+
+		/**
+		 * The indices of the structures with the hash code of the atomContainer.
+		 */
+		private List<Integer> candidates(IAtomContainer atomContainer) {
+			List<Integer> indices = structures.get(hash(atomContainer));
+			return indices != null ? indices : Collections.<Integer>emptyList();
+		}
+
+		/**
+		 * Set the IDs and the aromaticity of the structures up to the given one.
+		 *
+		 * @return the structure
+		 */
+		private IAtomContainer prepare(int index) {
+			for (; prepared <= index; prepared++) {
+				IAtomContainer ss = set.getAtomContainer(prepared);
+				for(int j = 0 ; j < ss.getAtomCount(); j++)
+					ss.getAtom(j).setID(""+ss.getAtomNumber(ss.getAtom(j)));
+				if (lookingSymmetry) {
+					try {
+						CDKHueckelAromaticityDetector.detectAromaticity(ss);
+					} catch (CDKException e1) {
+						logger.debug(e1);
+					}
+				}
+			}
+			return set.getAtomContainer(index);
+		}
+
+		/**
+		 * Set the IDs and the aromaticity of all structures.
+		 */
+		private void prepareAll() {
+			if (set.getAtomContainerCount() > 0)
+				prepare(set.getAtomContainerCount() - 1);
+		}
+	}
+
 	/**
 	 * Search if the setOfAtomContainer contains the atomContainer
 	 *  
 	 * 
-	 * @param set            ISetOfAtomContainer object where to search
+	 * @param index          StructureIndex of the set where to search
 	 * @param atomContainer  IAtomContainer to search
 	 * @return   			 True, if the atomContainer is contained
 	 */
-	private boolean existAC(IAtomContainerSet set, IAtomContainer atomContainer) {
+	private boolean existAC(StructureIndex index, IAtomContainer atomContainer) {
 
+		List<Integer> candidates = index.candidates(atomContainer);
+		if (candidates.isEmpty()) {
+			index.prepareAll();
+			return false;
+		}
 		IAtomContainer acClone = null;
     	try {
     		acClone = (IAtomContainer) atomContainer.clone();
@@ -441,11 +613,8 @@ public class StructureResonanceGenerator {
 				}
 		}
 		UniversalIsomorphismTester universalIsomorphismTester = new UniversalIsomorphismTester();
-		for(int i = 0 ; i < set.getAtomContainerCount(); i++){
-			IAtomContainer ss = set.getAtomContainer(i);
-			for(int j = 0 ; j < ss.getAtomCount(); j++)
-//				if(ss.getAtom(j).getID() == null)
-					ss.getAtom(j).setID(""+ss.getAtomNumber(ss.getAtom(j)));
+		for(int i : candidates){
+			IAtomContainer ss = index.prepare(i);
 				
 			try {
 				
@@ -469,6 +638,7 @@ public class StructureResonanceGenerator {
 				logger.debug(e1);
 			}
 		}
+		index.prepareAll();
 		return false;
 	}
 }
@@ -114,23 +114,28 @@ public class AtomContainerManipulator {
             // it should complain
 	    return false;
         } else {
-            container.setAtom(container.getAtomNumber(atom), newAtom);
-            for (IElectronContainer eContainer : container.electronContainers()) {
-                if (eContainer instanceof IBond) {
-                    IBond bond = (IBond) eContainer;
-                    if (bond.contains(atom)) {
-                        for (int j = 0; j < bond.getAtomCount(); j++) {
-                            if (atom.equals(bond.getAtom(j))) {
-                                bond.setAtom(newAtom, j);
+            container.beginChanges();
+            try {
+                container.setAtom(container.getAtomNumber(atom), newAtom);
+                for (IElectronContainer eContainer : container.electronContainers()) {
+                    if (eContainer instanceof IBond) {
+                        IBond bond = (IBond) eContainer;
+                        if (bond.contains(atom)) {
+                            for (int j = 0; j < bond.getAtomCount(); j++) {
+                                if (atom.equals(bond.getAtom(j))) {
+                                    bond.setAtom(newAtom, j);
+                                }
                             }
                         }
-                    }
-                } else if (eContainer instanceof ILonePair) {
-                    ILonePair lonePair = (ILonePair) eContainer;
-                    if (atom.equals(lonePair.getAtom())) {
-                        lonePair.setAtom(newAtom);
+                    } else if (eContainer instanceof ILonePair) {
+                        ILonePair lonePair = (ILonePair) eContainer;
+                        if (atom.equals(lonePair.getAtom())) {
+                            lonePair.setAtom(newAtom);
+                        }
                     }
                 }
+            } finally {
+                container.endChanges();
             }
             return true;
         }
@@ -369,9 +374,14 @@ public class AtomContainerManipulator {
                 }
             }
         }
-        for (Integer index : atomIndex) atomContainer.getAtom(index).setImplicitHydrogenCount(0);
-        for (IAtom atom : hydrogens) atomContainer.addAtom(atom);
-        for (IBond bond : newBonds) atomContainer.addBond(bond);
+        atomContainer.beginChanges();
+        try {
+            for (Integer index : atomIndex) atomContainer.getAtom(index).setImplicitHydrogenCount(0);
+            for (IAtom atom : hydrogens) atomContainer.addAtom(atom);
+            for (IBond bond : newBonds) atomContainer.addBond(bond);
+        } finally {
+            atomContainer.endChanges();
+        }
     }
 
     /**
@@ -747,8 +757,13 @@ public class AtomContainerManipulator {
      */
     public static void setAtomProperties(IAtomContainer container, Object propKey, Object propVal) {
         if (container != null) {
-            for (IAtom atom : container.atoms()) {
-                atom.setProperty(propKey, propVal);
+            container.beginChanges();
+            try {
+                for (IAtom atom : container.atoms()) {
+                    atom.setProperty(propKey, propVal);
+                }
+            } finally {
+                container.endChanges();
             }
         }
     }
@@ -900,11 +915,16 @@ public class AtomContainerManipulator {
     @TestMethod("testPerceiveAtomTypesAndConfigureAtoms")
     public static void percieveAtomTypesAndConfigureAtoms(IAtomContainer container) throws CDKException {
 		CDKAtomTypeMatcher matcher = CDKAtomTypeMatcher.getInstance(container.getBuilder());
-        for (IAtom atom : container.atoms()) {
-            if (!(atom instanceof IPseudoAtom)) {
-                IAtomType matched = matcher.findMatchingAtomType(container, atom);
-                if (matched != null) AtomTypeManipulator.configure(atom, matched);
+        container.beginChanges();
+        try {
+            for (IAtom atom : container.atoms()) {
+                if (!(atom instanceof IPseudoAtom)) {
+                    IAtomType matched = matcher.findMatchingAtomType(container, atom);
+                    if (matched != null) AtomTypeManipulator.configure(atom, matched);
+                }
             }
+        } finally {
+            container.endChanges();
         }
 	}
 
@@ -922,9 +942,14 @@ public class AtomContainerManipulator {
       @TestMethod("testPerceiveAtomTypesAndConfigureAtoms")
       public static void percieveAtomTypesAndConfigureUnsetProperties(IAtomContainer container) throws CDKException {
       CDKAtomTypeMatcher matcher = CDKAtomTypeMatcher.getInstance(container.getBuilder());
-          for (IAtom atom : container.atoms()) {
-              IAtomType matched = matcher.findMatchingAtomType(container, atom);
-              if (matched != null) AtomTypeManipulator.configureUnsetProperties(atom, matched);
+          container.beginChanges();
+          try {
+              for (IAtom atom : container.atoms()) {
+                  IAtomType matched = matcher.findMatchingAtomType(container, atom);
+                  if (matched != null) AtomTypeManipulator.configureUnsetProperties(atom, matched);
+              }
+          } finally {
+              container.endChanges();
           }
     }
 
@@ -944,22 +969,27 @@ public class AtomContainerManipulator {
      */
     @TestMethod("testClearConfig")
     public static void clearAtomConfigurations(IAtomContainer container) {
-        for (IAtom atom : container.atoms()) {
-            atom.setAtomTypeName((String) CDKConstants.UNSET);
-            atom.setMaxBondOrder((IBond.Order) CDKConstants.UNSET);
-            atom.setBondOrderSum((Double) CDKConstants.UNSET);
-            atom.setCovalentRadius((Double) CDKConstants.UNSET);
-            atom.setValency((Integer) CDKConstants.UNSET);
-            atom.setFormalCharge((Integer) CDKConstants.UNSET);
-            atom.setHybridization((IAtomType.Hybridization) CDKConstants.UNSET);
-            atom.setFormalNeighbourCount((Integer) CDKConstants.UNSET);
-            atom.setFlag(CDKConstants.IS_HYDROGENBOND_ACCEPTOR, false);
-            atom.setFlag(CDKConstants.IS_HYDROGENBOND_DONOR, false);
-            atom.setProperty(CDKConstants.CHEMICAL_GROUP_CONSTANT, CDKConstants.UNSET);
-            atom.setFlag(CDKConstants.ISAROMATIC, false);
-            atom.setProperty("org.openscience.cdk.renderer.color", CDKConstants.UNSET);
-            atom.setAtomicNumber((Integer) CDKConstants.UNSET);
-            atom.setExactMass((Double) CDKConstants.UNSET);
+        container.beginChanges();
+        try {
+            for (IAtom atom : container.atoms()) {
+                atom.setAtomTypeName((String) CDKConstants.UNSET);
+                atom.setMaxBondOrder((IBond.Order) CDKConstants.UNSET);
+                atom.setBondOrderSum((Double) CDKConstants.UNSET);
+                atom.setCovalentRadius((Double) CDKConstants.UNSET);
+                atom.setValency((Integer) CDKConstants.UNSET);
+                atom.setFormalCharge((Integer) CDKConstants.UNSET);
+                atom.setHybridization((IAtomType.Hybridization) CDKConstants.UNSET);
+                atom.setFormalNeighbourCount((Integer) CDKConstants.UNSET);
+                atom.setFlag(CDKConstants.IS_HYDROGENBOND_ACCEPTOR, false);
+                atom.setFlag(CDKConstants.IS_HYDROGENBOND_DONOR, false);
+                atom.setProperty(CDKConstants.CHEMICAL_GROUP_CONSTANT, CDKConstants.UNSET);
+                atom.setFlag(CDKConstants.ISAROMATIC, false);
+                atom.setProperty("org.openscience.cdk.renderer.color", CDKConstants.UNSET);
+                atom.setAtomicNumber((Integer) CDKConstants.UNSET);
+                atom.setExactMass((Double) CDKConstants.UNSET);
+            }
+        } finally {
+            container.endChanges();
         }
     }
 
@@ -0,0 +1,125 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.silent.Atom;
+import org.openscience.cdk.silent.Bond;
+
+/**
+ * @cdk.module test-core
+ */
+public class AtomContainerIndexTest {
+
+    @Test public void testIndex() {
+        IAtom[] atoms = {new Atom("C"), new Atom("C"), new Atom("O"), null};
+        IBond[] bonds = {new Bond(atoms[0], atoms[1]), new Bond(atoms[1], atoms[2]), null};
+
+        AtomContainerIndex index = new AtomContainerIndex(atoms, 3, bonds, 2);
+        Assert.assertEquals(0, index.atomNumber(atoms[0]));
+        Assert.assertEquals(2, index.atomNumber(atoms[2]));
+        Assert.assertEquals(1, index.bondNumber(bonds[1]));
+        Assert.assertEquals(2, index.degree(atoms[1]));
+        Assert.assertEquals(Arrays.asList(bonds[0], bonds[1]), index.bonds(atoms[1]));
+        Assert.assertSame(bonds[1], index.bond(atoms[2], atoms[1]));
+        Assert.assertNull(index.bond(atoms[0], atoms[2]));
+
+        // append an atom and a bond
+        IAtom n = new Atom("N");
+        IBond b = new Bond(atoms[0], n);
+        index.addAtom(n, 3);
+        index.addBond(b, 2);
+        Assert.assertEquals(3, index.atomNumber(n));
+        Assert.assertEquals(2, index.bondNumber(b));
+        Assert.assertEquals(Arrays.asList(bonds[0], b), index.bonds(atoms[0]));
+
+        // an atom already indexed keeps its first position
+        index.addAtom(n, 4);
+        Assert.assertEquals(3, index.atomNumber(n));
+
+        Assert.assertEquals(-1, index.atomNumber(new Atom("C")));
+        Assert.assertEquals(-1, index.bondNumber(new Bond()));
+        Assert.assertEquals(0, index.degree(new Atom("C")));
+    }
+
+    @Test public void testBondOnly() {
+        IAtom[] atoms = {new Atom("C"), new Atom("O")};
+        IBond[] bonds = {new Bond(atoms[0], atoms[1])};
+
+        AtomContainerIndex index = new AtomContainerIndex(new IAtom[0], 0, bonds, 1);
+        Assert.assertEquals(-1, index.atomNumber(atoms[0]));
+        Assert.assertEquals(1, index.bonds(atoms[0]).size());
+        Assert.assertSame(bonds[0], index.bond(atoms[0], atoms[1]));
+    }
+
+    @Test public void testConnected() {
+        IAtom[] atoms = {new Atom("C"), new Atom("C"), new Atom("O")};
+        IBond[] bonds = {new Bond(atoms[0], atoms[1]), new Bond(atoms[1], atoms[2])};
+
+        AtomContainerIndex index = new AtomContainerIndex(atoms, 3, bonds, 2);
+        Assert.assertEquals(Arrays.asList(atoms[0], atoms[2]), index.connectedAtoms(atoms[1]));
+        Assert.assertEquals(Arrays.asList(bonds[0], bonds[1]), index.connectedBonds(atoms[1]));
+        // the lists are copies
+        index.connectedBonds(atoms[1]).clear();
+        Assert.assertEquals(2, index.degree(atoms[1]));
+        Assert.assertTrue(index.connectedAtoms(new Atom("N")).isEmpty());
+    }
+
+    @Test public void testBondOrders() {
+        IAtom[] atoms = {new Atom("C"), new Atom("C"), new Atom("O")};
+        IBond[] bonds = {new Bond(atoms[0], atoms[1]), new Bond(atoms[1], atoms[2], IBond.Order.DOUBLE)};
+
+        AtomContainerIndex index = new AtomContainerIndex(atoms, 3, bonds, 2);
+        Assert.assertEquals(3.0, index.bondOrderSum(atoms[1]), 0.0);
+        Assert.assertEquals(IBond.Order.DOUBLE, index.maximumBondOrder(atoms[1]));
+        Assert.assertEquals(IBond.Order.SINGLE, index.minimumBondOrder(atoms[1]));
+        Assert.assertEquals(IBond.Order.DOUBLE, index.minimumBondOrder(atoms[2]));
+        Assert.assertEquals(0.0, index.bondOrderSum(new Atom("N")), 0.0);
+    }
+
+    @Test public void testRemove() {
+        IAtom   c1    = new Atom("C"), c2 = new Atom("C"), o = new Atom("O");
+        IBond   b1    = new Bond(c1, c2), b2 = new Bond(c2, o);
+        IAtom[] atoms = {c1, c2, o, c2};
+        IBond[] bonds = {b1, b2};
+
+        AtomContainerIndex index = new AtomContainerIndex(atoms, 4, bonds, 2);
+        Assert.assertEquals(1, index.atomNumber(c2));
+
+        // remove the first c2, the repeated c2 moves to position 2
+        atoms = new IAtom[]{c1, o, c2, null};
+        index.removeAtom(c2, 1, atoms, 3);
+        Assert.assertEquals(0, index.atomNumber(c1));
+        Assert.assertEquals(1, index.atomNumber(o));
+        Assert.assertEquals(2, index.atomNumber(c2));
+
+        bonds = new IBond[]{b2, null};
+        index.removeBond(b1, 0, bonds, 1);
+        Assert.assertEquals(-1, index.bondNumber(b1));
+        Assert.assertEquals(0, index.bondNumber(b2));
+        Assert.assertEquals(0, index.degree(c1));
+        Assert.assertEquals(Arrays.asList(b2), index.bonds(c2));
+        Assert.assertNull(index.bond(c1, c2));
+    }
+}
@@ -20,14 +20,20 @@
  */
 package org.openscience.cdk;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.openscience.cdk.event.ChemObjectChangeSetEvent;
 import org.openscience.cdk.interfaces.AbstractAtomContainerTest;
 import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.interfaces.IBond;
 import org.openscience.cdk.interfaces.IChemObject;
+import org.openscience.cdk.interfaces.IChemObjectChangeEvent;
+import org.openscience.cdk.interfaces.IChemObjectListener;
 import org.openscience.cdk.interfaces.ILonePair;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.interfaces.ITestObjectBuilder;
@@ -96,4 +102,32 @@ public class AtomContainerTest extends AbstractAtomContainerTest {
         Assert.assertEquals(4, container.getAtomCount());
         Assert.assertEquals(3, container.getBondCount());
     }
+
+    @Test public void testBeginChanges_AtomContainer() {
+        final List<IChemObjectChangeEvent> events = new ArrayList<IChemObjectChangeEvent>();
+        IAtomContainer container = new AtomContainer();
+        IAtom c1 = new Atom("C");
+        IAtom c2 = new Atom("C");
+        container.addAtom(c1);
+        container.addListener(new IChemObjectListener() {
+            public void stateChanged(IChemObjectChangeEvent event) {
+                events.add(event);
+            }
+        });
+        container.beginChanges();
+        container.addAtom(c2);
+        container.addBond(new Bond(c1, c2));
+        c1.setImplicitHydrogenCount(3);
+        c2.setImplicitHydrogenCount(3);
+        c1.setFormalCharge(0);
+        Assert.assertEquals(0, events.size());
+        container.endChanges();
+        Assert.assertEquals(1, events.size());
+        Assert.assertEquals(container, events.get(0).getSource());
+        List<Object> changes = ((ChemObjectChangeSetEvent) events.get(0)).getChanges();
+        Assert.assertEquals(3, changes.size());
+        Assert.assertEquals(container, changes.get(0));
+        Assert.assertEquals(c1, changes.get(1));
+        Assert.assertEquals(c2, changes.get(2));
+    }
 }
@@ -24,10 +24,16 @@
  */
 package org.openscience.cdk;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.openscience.cdk.event.ChemObjectChangeSetEvent;
 import org.openscience.cdk.interfaces.IChemObject;
+import org.openscience.cdk.interfaces.IChemObjectChangeEvent;
+import org.openscience.cdk.interfaces.IChemObjectListener;
 import org.openscience.cdk.interfaces.AbstractChemObjectTest;
 import org.openscience.cdk.interfaces.ITestObjectBuilder;
 
@@ -74,4 +80,75 @@ public class ChemObjectTest extends AbstractChemObjectTest {
         co2.setID(new String("a2"));
         Assert.assertFalse(co1.compare(co2));
     }
+
+    @Test public void testBeginChanges_Notification() {
+        final List<IChemObjectChangeEvent> events = new ArrayList<IChemObjectChangeEvent>();
+        IChemObject chemObject = new ChemObject();
+        chemObject.addListener(new IChemObjectListener() {
+            public void stateChanged(IChemObjectChangeEvent event) {
+                events.add(event);
+            }
+        });
+        chemObject.beginChanges();
+        chemObject.setID("Changed");
+        chemObject.beginChanges();
+        chemObject.setProperty("Changed", "Yes");
+        chemObject.setFlag(CDKConstants.ISAROMATIC, true);
+        chemObject.endChanges();
+        Assert.assertEquals(0, events.size());
+        chemObject.endChanges();
+        Assert.assertEquals(1, events.size());
+        Assert.assertTrue(events.get(0) instanceof ChemObjectChangeSetEvent);
+        Assert.assertEquals(chemObject, events.get(0).getSource());
+        List<Object> changes = ((ChemObjectChangeSetEvent) events.get(0)).getChanges();
+        Assert.assertEquals(1, changes.size());
+        Assert.assertEquals(chemObject, changes.get(0));
+
+        // notifications are immediate again
+        chemObject.setID("Again");
+        Assert.assertEquals(2, events.size());
+        Assert.assertFalse(events.get(1) instanceof ChemObjectChangeSetEvent);
+    }
+
+    @Test public void testEndChanges_Unchanged() {
+        final List<IChemObjectChangeEvent> events = new ArrayList<IChemObjectChangeEvent>();
+        IChemObject chemObject = new ChemObject();
+        chemObject.addListener(new IChemObjectListener() {
+            public void stateChanged(IChemObjectChangeEvent event) {
+                events.add(event);
+            }
+        });
+        chemObject.beginChanges();
+        chemObject.getID();
+        chemObject.endChanges();
+        Assert.assertEquals(0, events.size());
+    }
+
+    @Test public void testEndChanges_Notification_false() {
+        final List<IChemObjectChangeEvent> events = new ArrayList<IChemObjectChangeEvent>();
+        IChemObject chemObject = new ChemObject();
+        chemObject.addListener(new IChemObjectListener() {
+            public void stateChanged(IChemObjectChangeEvent event) {
+                events.add(event);
+            }
+        });
+        chemObject.setNotification(false);
+        chemObject.beginChanges();
+        chemObject.setID("Changed");
+        chemObject.endChanges();
+        Assert.assertEquals(0, events.size());
+    }
+
+    @Test public void testClone_Changes() throws Exception {
+        ChemObject chemObject = new ChemObject();
+        chemObject.beginChanges();
+        ChemObject clone = (ChemObject) chemObject.clone();
+        chemObject.endChanges();
+        try {
+            clone.endChanges();
+            Assert.fail("the clone is not in a batch of changes");
+        } catch (IllegalStateException exception) {
+            // expected
+        }
+    }
 }
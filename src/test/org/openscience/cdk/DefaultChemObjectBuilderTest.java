@@ -21,6 +21,7 @@ package org.openscience.cdk;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.interfaces.IChemObjectBuilder;
 
 /**
@@ -42,4 +43,15 @@ public class DefaultChemObjectBuilderTest extends AbstractChemObjectBuilderTest
         Assert.assertTrue(builder instanceof DefaultChemObjectBuilder);
     }
 
+    @Test public void testGetIndexedInstance() {
+        IChemObjectBuilder builder = DefaultChemObjectBuilder.getIndexedInstance();
+        Assert.assertTrue(builder instanceof DefaultChemObjectBuilder);
+        Assert.assertNotSame(DefaultChemObjectBuilder.getInstance(), builder);
+        Assert.assertSame(builder, DefaultChemObjectBuilder.getIndexedInstance());
+        IAtomContainer container = builder.newInstance(IAtomContainer.class);
+        Assert.assertTrue(container instanceof IndexedAtomContainer);
+        Assert.assertSame(builder, container.getBuilder());
+        Assert.assertFalse(DefaultChemObjectBuilder.getInstance().newInstance(IAtomContainer.class) instanceof IndexedAtomContainer);
+    }
+
 }
@@ -107,6 +107,29 @@ public class CDKAtomTypeMatcherTest extends AbstractCDKAtomTypeTest {
         }
     }
 
+    /**
+     * Typing all atoms at once, with the bonds of each atom found once, gives
+     * the same atom types as typing the atoms one by one.
+     */
+    @Test public void testFindMatchingAtomType_IAtomContainer_Molecules() throws Exception {
+        CDKAtomTypeMatcher matcher = CDKAtomTypeMatcher.getInstance(
+            DefaultChemObjectBuilder.getInstance());
+        IAtomContainer[] molecules = {
+            MoleculeFactory.makeAdenine(), MoleculeFactory.makeIndole(),
+            MoleculeFactory.makeAzulene(), MoleculeFactory.makePiperidine(),
+            MoleculeFactory.makeTetrahydropyran(), MoleculeFactory.makeAlphaPinene()
+        };
+        for (IAtomContainer mol : molecules) {
+            IAtomType[] types = matcher.findMatchingAtomType(mol);
+            Assert.assertEquals(mol.getAtomCount(), types.length);
+            for (int i=0; i<types.length; i++) {
+                IAtomType type = matcher.findMatchingAtomType(mol, mol.getAtom(i));
+                Assert.assertNotNull(type);
+                Assert.assertEquals(type.getAtomTypeName(), types[i].getAtomTypeName());
+            }
+        }
+    }
+
     @Test public void testDummy() throws Exception {
         IAtomContainer mol = new AtomContainer();
         IAtom atom = new PseudoAtom("R");
@@ -127,6 +127,35 @@ public class AtomTypeFactoryTest extends CDKTestCase {
 		Assert.assertEquals(IBond.Order.TRIPLE, atomType.getMaxBondOrder());
 	}
 
+    /**
+     * The atom types found by name and by symbol are those of the list, in
+     * the order of the list.
+     */
+    @Test
+    public void testGetAtomType_Index() throws Exception {
+        AtomTypeFactory factory = AtomTypeFactory.getInstance(
+            "org/openscience/cdk/dict/data/cdk-atom-types.owl", new ChemObject().getBuilder()
+        );
+        Assert.assertSame(factory, AtomTypeFactory.getInstance(
+            "org/openscience/cdk/dict/data/cdk-atom-types.owl", new ChemObject().getBuilder()
+        ));
+        IAtomType[] all = factory.getAllAtomTypes();
+        for (IAtomType type : all) {
+            IAtomType named = factory.getAtomType(type.getAtomTypeName());
+            Assert.assertEquals(type.getAtomTypeName(), named.getAtomTypeName());
+            Assert.assertEquals(type.getSymbol(), named.getSymbol());
+
+            IAtomType[] sameSymbol = factory.getAtomTypes(type.getSymbol());
+            int j = 0;
+            for (IAtomType other : all) {
+                if (other.getSymbol().equals(type.getSymbol()))
+                    Assert.assertEquals(other.getAtomTypeName(), sameSymbol[j++].getAtomTypeName());
+            }
+            Assert.assertEquals(j, sameSymbol.length);
+        }
+        Assert.assertEquals(0, factory.getAtomTypes("Xx").length);
+    }
+
     @Test
 	public void testGetAtomTypes_String() throws Exception {
 		IAtomType[] atomTypes = atf.getAtomTypes("C");
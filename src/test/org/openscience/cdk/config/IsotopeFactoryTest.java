@@ -29,6 +29,7 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
 
 import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilder;
@@ -345,6 +346,57 @@ public class IsotopeFactoryTest extends CDKTestCase
         Assert.assertEquals(13, match.getMassNumber().intValue());
     }
 
+    @Test public void testGetIsotopeView_String() throws Exception {
+        IsotopeFactory isofac = IsotopeFactory.getInstance(new ChemObject().getBuilder());
+        List<IIsotope> view = isofac.getIsotopeView("He");
+        Assert.assertEquals(8, view.size());
+        Assert.assertSame(view.get(0), isofac.getIsotopeView("He").get(0));
+        IIsotope[] copies = isofac.getIsotopes("He");
+        for (int i = 0; i < copies.length; i++) {
+            Assert.assertNotSame(view.get(i), copies[i]);
+            Assert.assertEquals(view.get(i).getMassNumber(), copies[i].getMassNumber());
+        }
+        Assert.assertTrue(isofac.getIsotopeView("Xx").isEmpty());
+    }
+
+    @Test(expected=UnsupportedOperationException.class)
+    public void testGetIsotopeView_String_ReadOnly() throws Exception {
+        IsotopeFactory isofac = IsotopeFactory.getInstance(new ChemObject().getBuilder());
+        isofac.getIsotopeView("C").clear();
+    }
+
+    @Test public void testGetIsotopeView_int() throws Exception {
+        IsotopeFactory isofac = IsotopeFactory.getInstance(new ChemObject().getBuilder());
+        Assert.assertEquals(isofac.getIsotopeView("Cl"), isofac.getIsotopeView(17));
+        Assert.assertTrue(isofac.getIsotopeView(-1).isEmpty());
+        Assert.assertTrue(isofac.getIsotopeView(1000).isEmpty());
+    }
+
+    /**
+     * The binary search must find the same isotopes as comparing the mass of
+     * every isotope.
+     */
+    @Test public void testGetIsotopeView_double_double() throws Exception {
+        IsotopeFactory isofac = IsotopeFactory.getInstance(new ChemObject().getBuilder());
+        IIsotope[] all = isofac.getIsotopes();
+        double[][] windows = {{87.90, 0.01}, {12.0, 0.0}, {12.0, 0.5}, {0.0, 0.5}, {100.0, 3.0}, {400.0, 1.0}};
+        for (double[] window : windows) {
+            List<IIsotope> view = isofac.getIsotopeView(window[0], window[1]);
+            int expected = 0;
+            for (IIsotope isotope : all) {
+                if (Math.abs(isotope.getExactMass() - window[0]) <= window[1])
+                    expected++;
+            }
+            Assert.assertEquals(expected, view.size());
+            Assert.assertEquals(expected, isofac.getIsotopes(window[0], window[1]).length);
+            for (int i = 0; i < view.size(); i++) {
+                Assert.assertEquals(window[0], view.get(i).getExactMass(), window[1]);
+                if (i > 0)
+                    Assert.assertTrue(view.get(i - 1).getExactMass() <= view.get(i).getExactMass());
+            }
+        }
+    }
+
     /**
      * @cdk.bug 3534288
      */
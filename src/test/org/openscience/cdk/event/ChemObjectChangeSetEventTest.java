@@ -0,0 +1,58 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.event;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.Atom;
+import org.openscience.cdk.AtomContainer;
+import org.openscience.cdk.CDKTestCase;
+
+/**
+ * Checks the functionality of the ChemObjectChangeSetEvent class.
+ *
+ * @cdk.module test-data
+ *
+ * @see org.openscience.cdk.event.ChemObjectChangeSetEvent
+ */
+public class ChemObjectChangeSetEventTest extends CDKTestCase {
+
+    @Test public void testChemObjectChangeSetEvent_Object_List() {
+        AtomContainer container = new AtomContainer();
+        List<Object> changes = new ArrayList<Object>();
+        changes.add(container);
+        changes.add(new Atom());
+        ChemObjectChangeSetEvent event = new ChemObjectChangeSetEvent(container, changes);
+        Assert.assertEquals(container, event.getSource());
+        Assert.assertEquals(changes, event.getChanges());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testGetChanges() {
+        List<Object> changes = new ArrayList<Object>();
+        new ChemObjectChangeSetEvent(new Atom(), changes).getChanges().add(new Atom());
+    }
+}
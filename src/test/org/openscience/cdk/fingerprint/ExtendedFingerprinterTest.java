@@ -87,6 +87,17 @@ public class ExtendedFingerprinterTest extends AbstractFixedLengthFingerprinterT
 	}
 	
 	
+	@Test public void testLegacyPathHashing() throws java.lang.Exception {
+		ExtendedFingerprinter fingerprinter = new ExtendedFingerprinter();
+		fingerprinter.setLegacyPathHashing(true);
+		IAtomContainer mol = MoleculeFactory.makeIndole();
+		BitSet bs = fingerprinter.getBitFingerprint(mol).asBitSet();
+		IAtomContainer frag1 = MoleculeFactory.makePyrrole();
+		BitSet bs1 = fingerprinter.getBitFingerprint(frag1).asBitSet();
+		Assert.assertTrue(FingerprinterTool.isSubset(bs, bs1));
+		Assert.assertFalse(FingerprinterTool.isSubset(bs1, bs));
+	}
+
 	@Test public void testGetSize() throws java.lang.Exception {
 		IFingerprinter fingerprinter = new ExtendedFingerprinter(512);
 		Assert.assertNotNull(fingerprinter);
@@ -133,10 +133,39 @@ public class FingerprinterTest extends AbstractFixedLengthFingerprinterTest {
     Assert.assertNotNull(fingerprinter);
     IAtomContainer mol = MoleculeFactory.makeIndole();
     BitSet bs = fingerprinter.getBitFingerprint(mol).asBitSet();
+    Assert.assertEquals(992, bs.length()); // highest set bit
+    Assert.assertEquals(1024, bs.size()); // actual bit set size
+  }
+
+  @Test public void testFingerprinterBitSetSize_legacy() throws Exception {
+    Fingerprinter fingerprinter = new Fingerprinter(1024,7);
+    fingerprinter.setLegacyPathHashing(true);
+    IAtomContainer mol = MoleculeFactory.makeIndole();
+    BitSet bs = fingerprinter.getBitFingerprint(mol).asBitSet();
     Assert.assertEquals(994, bs.length()); // highest set bit
     Assert.assertEquals(1024, bs.size()); // actual bit set size
   }
 
+  @Test public void testLegacyPathHashing() throws Exception {
+    Fingerprinter fingerprinter = new Fingerprinter();
+    Assert.assertFalse(fingerprinter.isLegacyPathHashing());
+    fingerprinter.setLegacyPathHashing(true);
+    Assert.assertTrue(fingerprinter.isLegacyPathHashing());
+  }
+
+  /**
+   * The same unique paths are found by the string based and the hashed path
+   * encoding.
+   */
+  @Test public void testFindPathes_legacy() throws Exception {
+    Fingerprinter fingerprinter = new Fingerprinter();
+    IAtomContainer mol = MoleculeFactory.makeIndole();
+    int hashed = fingerprinter.findPathes(mol, 7).length;
+    fingerprinter.setLegacyPathHashing(true);
+    int legacy = fingerprinter.findPathes(mol, 7).length;
+    Assert.assertEquals(legacy, hashed);
+  }
+
 	/**
 	 * @cdk.bug 1851202
 	 */
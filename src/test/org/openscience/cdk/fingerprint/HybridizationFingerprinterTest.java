@@ -22,6 +22,11 @@
  */
 package org.openscience.cdk.fingerprint;
 
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.templates.MoleculeFactory;
+
 /**
  * @cdk.module test-standard
  */
@@ -31,5 +36,19 @@ public class HybridizationFingerprinterTest extends AbstractFingerprinterTest {
         return new HybridizationFingerprinter();
     }
 
+    /**
+     * The string encoding labelled the first atom of a path differently to
+     * the others, a path and its reverse were therefore counted separately.
+     */
+    @Test public void testLegacyPathHashing() throws Exception {
+        HybridizationFingerprinter fingerprinter = new HybridizationFingerprinter();
+        Assert.assertFalse(fingerprinter.isLegacyPathHashing());
+        IAtomContainer mol = MoleculeFactory.makeIndole();
+        Assert.assertEquals(61, fingerprinter.findPathes(mol, 7).length);
+        fingerprinter.setLegacyPathHashing(true);
+        Assert.assertTrue(fingerprinter.isLegacyPathHashing());
+        Assert.assertEquals(108, fingerprinter.findPathes(mol, 7).length);
+    }
+
 }
 
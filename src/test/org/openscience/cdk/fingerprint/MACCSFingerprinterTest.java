@@ -32,6 +32,7 @@ import org.openscience.cdk.aromaticity.CDKHueckelAromaticityDetector;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.silent.SilentChemObjectBuilder;
 import org.openscience.cdk.smiles.SmilesParser;
+import org.openscience.cdk.smiles.smarts.SMARTSTarget;
 import org.openscience.cdk.tools.ILoggingTool;
 import org.openscience.cdk.tools.LoggingToolFactory;
 import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
@@ -116,4 +117,15 @@ public class MACCSFingerprinterTest extends AbstractFixedLengthFingerprinterTest
         Assert.assertTrue(FingerprinterTool.isSubset(bs2, bs3));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testPreparedTarget() throws Exception {
+        SmilesParser       parser    = new SmilesParser(SilentChemObjectBuilder.getInstance());
+        MACCSFingerprinter printer   = new MACCSFingerprinter();
+        IAtomContainer     container = parser.parseSmiles("c1ccccc1CCc1ccccc1.OCC(N)C");
+        SMARTSTarget       target    = new SMARTSTarget(container);
+        BitSet             bs        = printer.getBitFingerprint(target).asBitSet();
+        Assert.assertEquals(printer.getBitFingerprint(container).asBitSet(), bs);
+        Assert.assertTrue(bs.get(124));
+        Assert.assertTrue(bs.get(165));
+    }
+}
@@ -0,0 +1,99 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.fingerprint;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @cdk.module test-standard
+ */
+public class PathHasherTest {
+
+    /* propane: C-C-C */
+    private final int[][] propane = new int[][]{{1}, {0, 2}, {1}};
+
+    @Test public void testHash_propane() {
+        // C, CC, CCC
+        int[] hashes = PathHasher.hash(propane, new int[]{6, 6, 6}, null, 8);
+        assertThat(hashes.length, is(3));
+    }
+
+    @Test public void testHash_depth() {
+        assertThat(PathHasher.hash(propane, new int[]{6, 6, 6}, null, 0).length, is(1));
+        assertThat(PathHasher.hash(propane, new int[]{6, 6, 6}, null, 1).length, is(2));
+        // ethanol: C, O, CC, CO, CCO
+        assertThat(PathHasher.hash(propane, new int[]{6, 6, 8}, null, 2).length, is(5));
+    }
+
+    @Test public void testHash_direction() {
+        // the labels are the same when read from either end
+        int[] a = PathHasher.hash(propane, new int[]{6, 6, 8}, null, 8);
+        int[] b = PathHasher.hash(propane, new int[]{8, 6, 6}, null, 8);
+        assertThat(a, is(b));
+    }
+
+    @Test public void testHash_bondLabels() {
+        int[][] bonds = PathHasher.bondLabels(propane);
+        int[] unlabelled = PathHasher.hash(propane, new int[]{6, 6, 6}, bonds, 8);
+        PathHasher.label(propane, bonds, 0, 1, '=');
+        PathHasher.label(propane, bonds, 1, 2, '-');
+        assertThat(bonds[1][0], is((int) '='));
+        assertThat(bonds[2][0], is((int) '-'));
+        int[] labelled = PathHasher.hash(propane, new int[]{6, 6, 6}, bonds, 8);
+        // C, C=C, C-C, C=C-C
+        assertThat(labelled.length, is(4));
+        assertThat(unlabelled.length, is(3));
+        Arrays.sort(labelled);
+        assertThat(Arrays.binarySearch(labelled, unlabelled[0]) < 0
+                           || Arrays.binarySearch(labelled, unlabelled[1]) < 0,
+                   is(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLabel_nonAdjacent() {
+        PathHasher.label(propane, PathHasher.bondLabels(propane), 0, 2, '-');
+    }
+
+    @Test public void testHash_reproducible() {
+        int[] hashes = PathHasher.hash(propane, new int[]{6, 6, 8}, null, 8);
+        assertThat(hashes, is(PathHasher.hash(propane, new int[]{6, 6, 8}, null, 8)));
+        assertThat(hashes, is(not(PathHasher.hash(propane, new int[]{6, 7, 8}, null, 8))));
+    }
+
+    @Test public void testPosition() {
+        Random rnd = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            int hash = rnd.nextInt();
+            assertThat(PathHasher.position(hash, 1024), is(new Random(hash).nextInt(1024)));
+            assertThat(PathHasher.position(hash, 1000), is(new Random(hash).nextInt(1000)));
+            assertThat(PathHasher.position(hash, 881), is(new Random(hash).nextInt(881)));
+        }
+    }
+}
@@ -28,6 +28,7 @@ import org.junit.Test;
 import org.openscience.cdk.DefaultChemObjectBuilder;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.smiles.SmilesParser;
+import org.openscience.cdk.smiles.smarts.SMARTSTarget;
 
 import java.util.BitSet;
 
@@ -106,5 +107,13 @@ public class SubstructureFingerprinterTest extends AbstractFixedLengthFingerprin
     	SubstructureFingerprinter printer = new SubstructureFingerprinter(smarts);
     	Assert.assertEquals(printer.getSubstructure(1), smarts[1]);
     }
-}
 
+    @Test
+    public void testPreparedTarget() throws Exception {
+        SmilesParser              sp        = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        SubstructureFingerprinter printer   = new SubstructureFingerprinter();
+        IAtomContainer            container = sp.parseSmiles("c1ccccc1CC(=O)O");
+        BitSet                    expected  = printer.getBitFingerprint(container).asBitSet();
+        Assert.assertEquals(expected, printer.getBitFingerprint(new SMARTSTarget(container)).asBitSet());
+    }
+}
@@ -256,5 +256,47 @@ public class IsotopePatternGeneratorTest extends CDKTestCase{
 		Assert.assertEquals(1, isoPattern.getNumberOfIsotopes());
 		
 	}
-}
 
+	/**
+	 * A generator keeps no state of a previous formula.
+	 */
+	@Test
+	public void testGetIsotopes_Reuse(){
+		IMolecularFormula bromine = MolecularFormulaManipulator.getMajorIsotopeMolecularFormula("Br2", builder);
+		IMolecularFormula carbon  = MolecularFormulaManipulator.getMajorIsotopeMolecularFormula("C10", builder);
+		IsotopePatternGenerator isotopeGe = new IsotopePatternGenerator(0.001);
+		isotopeGe.getIsotopes(bromine);
+		IsotopePattern reused = isotopeGe.getIsotopes(carbon);
+		IsotopePattern fresh  = new IsotopePatternGenerator(0.001).getIsotopes(carbon);
+		Assert.assertEquals(fresh.getNumberOfIsotopes(), reused.getNumberOfIsotopes());
+		for (int i = 0; i < fresh.getNumberOfIsotopes(); i++) {
+			Assert.assertEquals(fresh.getIsotope(i).getMass(), reused.getIsotope(i).getMass(), 0.000001);
+			Assert.assertEquals(fresh.getIsotope(i).getIntensity(), reused.getIsotope(i).getIntensity(), 0.000001);
+		}
+	}
+
+	/**
+	 * The distribution of C100H200 is found by squaring, the second peak is
+	 * the most abundant one.
+	 */
+	@Test
+	public void testGetIsotopes_LargeFormula(){
+		IMolecularFormula molFor = MolecularFormulaManipulator.getMajorIsotopeMolecularFormula("C100H200", builder);
+		IsotopePattern isoPattern = new IsotopePatternGenerator(0.1).getIsotopes(molFor);
+
+		Assert.assertEquals(1401.5650, isoPattern.getIsotope(0).getMass(), 0.001);
+		Assert.assertEquals(0.925, isoPattern.getIsotope(0).getIntensity(), 0.01);
+		Assert.assertEquals(1402.5684, isoPattern.getIsotope(1).getMass(), 0.001);
+		Assert.assertEquals(1.0, isoPattern.getIsotope(1).getIntensity(), 0.0001);
+		Assert.assertEquals(1403.5717, isoPattern.getIsotope(2).getMass(), 0.001);
+		Assert.assertEquals(0.535, isoPattern.getIsotope(2).getIntensity(), 0.01);
+		for (int i = 1; i < isoPattern.getNumberOfIsotopes(); i++)
+			Assert.assertTrue(isoPattern.getIsotope(i - 1).getMass() < isoPattern.getIsotope(i).getMass());
+	}
+
+	@Test
+	public void testGetIsotopes_Empty(){
+		IsotopePattern isoPattern = new IsotopePatternGenerator().getIsotopes(new MolecularFormula());
+		Assert.assertEquals(0, isoPattern.getNumberOfIsotopes());
+	}
+}
@@ -1,5 +1,8 @@
 package org.openscience.cdk.formula;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Assert;
 import org.junit.Test;
 import org.openscience.cdk.CDKTestCase;
@@ -138,5 +141,32 @@ public class IsotopePatternSimilarityTest extends CDKTestCase{
 		Assert.assertEquals(0.97, score,.01);
 	}
 
+    /**
+     * Scoring a list of patterns gives the scores of comparing them one by one.
+     */
+    @Test
+	public void testCompare_IsotopePattern_List() {
+		IsotopePatternSimilarity is = new IsotopePatternSimilarity();
+
+		IsotopePattern spExp = new IsotopePattern();
+		spExp.setCharge(1);
+		spExp.setMonoIsotope(new IsotopeContainer(156.07770, 1));
+		spExp.addIsotope(new IsotopeContainer(157.07503, 0.0101));
+		spExp.addIsotope(new IsotopeContainer(157.08059, 0.074));
+		spExp.addIsotope(new IsotopeContainer(158.08135, 0.0024));
+
+		String[] listMF = {"C4H8N6O","C2H12N4O4","C3H12N2O5","C6H10N3O2","CH10N5O4","C4H14NO5"};
+		IsotopePatternGenerator isotopeGe = new IsotopePatternGenerator(0.01);
+		List<IsotopePattern> patterns = new ArrayList<IsotopePattern>();
+		for (String mf : listMF) {
+			IMolecularFormula formula = MolecularFormulaManipulator.getMajorIsotopeMolecularFormula(mf, builder);
+			patterns.add(IsotopePatternManipulator.normalize(isotopeGe.getIsotopes(formula)));
+		}
 
+		double[] scores = is.compare(spExp, patterns);
+		Assert.assertEquals(listMF.length, scores.length);
+		for (int i = 0; i < listMF.length; i++)
+			Assert.assertEquals(is.compare(spExp, patterns.get(i)), scores[i], 0.0000001);
+		Assert.assertEquals(0, is.compare(spExp, new ArrayList<IsotopePattern>()).length);
+	}
 }
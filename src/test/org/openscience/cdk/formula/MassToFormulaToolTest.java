@@ -22,8 +22,10 @@ package org.openscience.cdk.formula;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -856,5 +858,23 @@ public class MassToFormulaToolTest extends CDKTestCase {
 		
 	}
 
+	/**
+	 * The generator finds all formulas of generate(double) and also the
+	 * ones the combination matrix misses.
+	 */
+	@Test
+	public void testGetGenerator_double() throws Exception {
+		MassToFormulaTool mfTool = new MassToFormulaTool(builder);
+		IMolecularFormulaSet mfSet = mfTool.generate(133.004242);
+		MolecularFormulaGenerator generator = mfTool.getGenerator(133.004242);
+		Set<String> generated = new HashSet<String>();
+		IMolecularFormula formula;
+		while ((formula = generator.getNextFormula()) != null) {
+			Assert.assertEquals(133.004242, MolecularFormulaManipulator.getTotalExactMass(formula), 0.05);
+			generated.add(MolecularFormulaManipulator.getString(formula));
+		}
+		for (IMolecularFormula mf : mfSet.molecularFormulas())
+			Assert.assertTrue(generated.contains(MolecularFormulaManipulator.getString(mf)));
+		Assert.assertTrue(generated.size() >= mfSet.size());
+	}
 }
-
@@ -0,0 +1,180 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.formula;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.config.IsotopeFactory;
+import org.openscience.cdk.formula.rules.IRule;
+import org.openscience.cdk.formula.rules.NitrogenRule;
+import org.openscience.cdk.formula.rules.RDBERule;
+import org.openscience.cdk.interfaces.IChemObjectBuilder;
+import org.openscience.cdk.interfaces.IIsotope;
+import org.openscience.cdk.interfaces.IMolecularFormula;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+import org.openscience.cdk.tools.manipulator.MolecularFormulaManipulator;
+
+/**
+ * @cdk.module test-formula
+ */
+public class MolecularFormulaGeneratorTest extends CDKTestCase {
+
+    private final static IChemObjectBuilder builder = SilentChemObjectBuilder.getInstance();
+
+    private static MolecularFormulaRange range() throws Exception {
+        IsotopeFactory ifac = IsotopeFactory.getInstance(builder);
+        MolecularFormulaRange range = new MolecularFormulaRange();
+        range.addIsotope(ifac.getMajorIsotope("C"), 0, 12);
+        range.addIsotope(ifac.getMajorIsotope("H"), 0, 24);
+        range.addIsotope(ifac.getMajorIsotope("N"), 0, 4);
+        range.addIsotope(ifac.getMajorIsotope("O"), 0, 6);
+        range.addIsotope(ifac.getMajorIsotope("S"), 0, 2);
+        return range;
+    }
+
+    /**
+     * All formulas of the range in the mass window that pass the rules, by
+     * trying every combination of counts.
+     */
+    private static Set<String> bruteForce(double mass, double tolerance, List<IRule> rules, Integer charge) throws Exception {
+        IsotopeFactory ifac = IsotopeFactory.getInstance(builder);
+        IIsotope c = ifac.getMajorIsotope("C"), h = ifac.getMajorIsotope("H"), n = ifac.getMajorIsotope("N");
+        IIsotope o = ifac.getMajorIsotope("O"), s = ifac.getMajorIsotope("S");
+        Set<String> formulas = new HashSet<String>();
+        for (int nc = 0; nc <= 12; nc++)
+            for (int nh = 0; nh <= 24; nh++)
+                for (int nn = 0; nn <= 4; nn++)
+                    for (int no = 0; no <= 6; no++)
+                        for (int ns = 0; ns <= 2; ns++) {
+                            double m = nc * c.getExactMass() + nh * h.getExactMass() + nn * n.getExactMass()
+                                     + no * o.getExactMass() + ns * s.getExactMass();
+                            if (Math.abs(mass - m) >= tolerance)
+                                continue;
+                            IMolecularFormula formula = new MolecularFormula();
+                            if (nc > 0) formula.addIsotope(c, nc);
+                            if (nh > 0) formula.addIsotope(h, nh);
+                            if (nn > 0) formula.addIsotope(n, nn);
+                            if (no > 0) formula.addIsotope(o, no);
+                            if (ns > 0) formula.addIsotope(s, ns);
+                            if (charge != null) formula.setCharge(charge);
+                            boolean valid = true;
+                            for (IRule rule : rules)
+                                valid = valid && rule.validate(formula) != 0.0;
+                            if (valid)
+                                formulas.add(MolecularFormulaManipulator.getString(formula));
+                        }
+        return formulas;
+    }
+
+    private static List<String> generate(MolecularFormulaGenerator generator) throws Exception {
+        List<String> formulas = new ArrayList<String>();
+        for (IMolecularFormula formula : generator.getAllFormulas().molecularFormulas())
+            formulas.add(MolecularFormulaManipulator.getString(formula));
+        return formulas;
+    }
+
+    @Test
+    public void testGetAllFormulas() throws Exception {
+        MolecularFormulaGenerator generator = new MolecularFormulaGenerator(builder, 137.0381, 0.05, range());
+        List<String> formulas = generate(generator);
+        Assert.assertEquals(formulas.size(), new HashSet<String>(formulas).size());
+        Assert.assertEquals(bruteForce(137.0381, 0.05, new ArrayList<IRule>(), null), new HashSet<String>(formulas));
+    }
+
+    @Test
+    public void testGetNextFormula() throws Exception {
+        MolecularFormulaGenerator generator = new MolecularFormulaGenerator(builder, 137.06881, 0.0001, range());
+        IMolecularFormula formula = generator.getNextFormula();
+        Assert.assertNotNull(formula);
+        Assert.assertEquals("C4H11NO4", MolecularFormulaManipulator.getString(formula));
+        Assert.assertNull(generator.getNextFormula());
+        Assert.assertNull(generator.getNextFormula());
+    }
+
+    @Test
+    public void testSetRules() throws Exception {
+        List<IRule> rules = new ArrayList<IRule>();
+        rules.add(new RDBERule());
+        rules.add(new NitrogenRule());
+        MolecularFormulaGenerator generator = new MolecularFormulaGenerator(builder, 182.0, 0.1, range());
+        generator.setRules(rules);
+        List<String> formulas = generate(generator);
+        Assert.assertFalse(formulas.isEmpty());
+        Assert.assertEquals(bruteForce(182.0, 0.1, rules, null), new HashSet<String>(formulas));
+    }
+
+    @Test
+    public void testSetCharge() throws Exception {
+        List<IRule> rules = new ArrayList<IRule>();
+        rules.add(new NitrogenRule());
+        MolecularFormulaGenerator generator = new MolecularFormulaGenerator(builder, 182.0, 0.1, range());
+        generator.setRules(rules);
+        generator.setCharge(1);
+        IMolecularFormula formula = generator.getNextFormula();
+        Assert.assertEquals(1, formula.getCharge().intValue());
+        List<String> formulas = generate(generator);
+        formulas.add(MolecularFormulaManipulator.getString(formula));
+        Assert.assertEquals(bruteForce(182.0, 0.1, rules, 1), new HashSet<String>(formulas));
+    }
+
+    @Test
+    public void testSetThreads() throws Exception {
+        MolecularFormulaGenerator single = new MolecularFormulaGenerator(builder, 250.1, 0.2, range());
+        MolecularFormulaGenerator parallel = new MolecularFormulaGenerator(builder, 250.1, 0.2, range());
+        parallel.setThreads(3);
+        List<String> expected = generate(single);
+        Assert.assertFalse(expected.isEmpty());
+        Assert.assertEquals(expected, generate(parallel));
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void testSetThreads_Started() throws Exception {
+        MolecularFormulaGenerator generator = new MolecularFormulaGenerator(builder, 250.1, 0.2, range());
+        generator.getNextFormula();
+        generator.setThreads(2);
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        MolecularFormulaGenerator generator = new MolecularFormulaGenerator(builder, 250.1, 0.2, range());
+        generator.setThreads(2);
+        Assert.assertNotNull(generator.getNextFormula());
+        generator.cancel();
+        Assert.assertNull(generator.getNextFormula());
+    }
+
+    /**
+     * A mass outside the range of the formulas gives no formulas.
+     */
+    @Test
+    public void testOutOfRange() throws Exception {
+        Assert.assertNull(new MolecularFormulaGenerator(builder, 2000.0, 0.1, range()).getNextFormula());
+        Assert.assertNull(new MolecularFormulaGenerator(builder, 0.5, 0.1, range()).getNextFormula());
+    }
+}
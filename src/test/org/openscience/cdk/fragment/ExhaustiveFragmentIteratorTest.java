@@ -0,0 +1,203 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.fragment;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.graph.SpanningTree;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.interfaces.IRingSet;
+import org.openscience.cdk.smiles.SmilesGenerator;
+import org.openscience.cdk.smiles.SmilesParser;
+
+/**
+ * @cdk.module test-fragment
+ */
+public class ExhaustiveFragmentIteratorTest extends CDKTestCase {
+
+    static SmilesParser smilesParser;
+
+    @BeforeClass
+    public static void setup() {
+        smilesParser = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+    }
+
+    @Test
+    public void testFragments() throws Exception {
+        IAtomContainer mol = smilesParser.parseSmiles("c1ccccc1Cc1ccccc1");
+        ExhaustiveFragmentIterator iterator = new ExhaustiveFragmentIterator(mol, 6);
+        Set<String> smiles = new HashSet<String>();
+        while (iterator.hasNext()) {
+            IAtomContainer fragment = iterator.next();
+            for (IAtom atom : fragment.atoms())
+                Assert.assertTrue(mol.contains(atom));
+            smiles.add(iterator.getSmiles());
+        }
+        Assert.assertEquals(2, smiles.size());
+        Assert.assertTrue(smiles.contains("c1ccccc1"));
+        Assert.assertTrue(smiles.contains("Cc1ccccc1"));
+    }
+
+    @Test
+    public void testFragments_Small() throws Exception {
+        Assert.assertFalse(new ExhaustiveFragmentIterator(smilesParser.parseSmiles("CCC"), 6).hasNext());
+        Assert.assertFalse(new ExhaustiveFragmentIterator(smilesParser.parseSmiles("C1CCCC1"), 3).hasNext());
+    }
+
+    /**
+     * The same as the recursive fragmentation, each fragment is returned once.
+     */
+    @Test
+    public void testFragments_Unique() throws Exception {
+        IAtomContainer mol = smilesParser.parseSmiles("C1(c2ccccc2)(CC(CC1)CCc1ccccc1)CC1C=CC=C1");
+        ExhaustiveFragmentIterator iterator = new ExhaustiveFragmentIterator(mol, 6);
+        Set<String> smiles = new HashSet<String>();
+        int count = 0;
+        while (iterator.hasNext()) {
+            iterator.next();
+            smiles.add(iterator.getSmiles());
+            count++;
+        }
+        Assert.assertEquals(26, count);
+        Assert.assertEquals(26, smiles.size());
+        Assert.assertTrue(smiles.contains("CC2CCC(C)(c1ccccc1)C2"));
+    }
+
+    /**
+     * The fragments have the SMILES of the fragments split as containers
+     * with {@link FragmentUtils#splitMolecule(IAtomContainer, IBond)}, which
+     * depend on the order of the atoms for the carboxyl group.
+     */
+    @Test
+    public void testFragments_SplitMolecule() throws Exception {
+        String[] inputs = {"C1CCC(CC1)C(CC)C(=O)OCCN(C)C", "C1(c2ccccc2)(CC(CC1)CCc1ccccc1)CC1C=CC=C1",
+                           "OC(=O)CC(N)C(=O)NC(Cc1ccccc1)C(=O)OC"};
+        for (String input : inputs) {
+            for (int minFragSize : new int[]{3, 6}) {
+                IAtomContainer mol = smilesParser.parseSmiles(input);
+                Set<String> expected = new HashSet<String>();
+                split(smilesParser.parseSmiles(input), minFragSize, new SmilesGenerator(true), expected);
+                ExhaustiveFragmentIterator iterator = new ExhaustiveFragmentIterator(mol, minFragSize);
+                Set<String> smiles = new HashSet<String>();
+                while (iterator.hasNext()) {
+                    iterator.next();
+                    smiles.add(iterator.getSmiles());
+                }
+                Assert.assertEquals(input, expected, smiles);
+            }
+        }
+    }
+
+    /**
+     * The recursive fragmentation of containers of the ExhaustiveFragmenter
+     * before the iterator.
+     */
+    private static List<IAtomContainer> split(IAtomContainer container, int minFragSize,
+                                              SmilesGenerator generator, Set<String> found) throws Exception {
+        List<IAtomContainer> fragments = new ArrayList<IAtomContainer>();
+        if (container.getBondCount() < 3)
+            return fragments;
+        for (IBond bond : splittableBonds(container)) {
+            for (IAtomContainer part : FragmentUtils.splitMolecule(container, bond)) {
+                if (part.getAtomCount() >= minFragSize && found.add(generator.createSMILES(part)))
+                    fragments.add(part);
+            }
+        }
+        for (IAtomContainer fragment : fragments) {
+            if (fragment.getBondCount() >= 3 && !splittableBonds(fragment).isEmpty())
+                split(fragment, minFragSize, generator, found);
+        }
+        return fragments;
+    }
+
+    private static List<IBond> splittableBonds(IAtomContainer container) throws Exception {
+        List<IBond> bonds = new ArrayList<IBond>();
+        IRingSet    rings = new SpanningTree(container).getAllRings();
+        for (IBond bond : container.bonds()) {
+            if (rings.getRings(bond).getAtomContainerCount() != 0)
+                continue;
+            if (container.getConnectedAtomsCount(bond.getAtom(0)) == 1
+                || container.getConnectedAtomsCount(bond.getAtom(1)) == 1)
+                continue;
+            bonds.add(bond);
+        }
+        return bonds;
+    }
+
+    @Test
+    public void testMaximumFragments() throws Exception {
+        IAtomContainer mol = smilesParser.parseSmiles("C1(c2ccccc2)(CC(CC1)CCc1ccccc1)CC1C=CC=C1");
+        ExhaustiveFragmentIterator iterator = new ExhaustiveFragmentIterator(mol, 6);
+        iterator.setMaximumFragments(3);
+        int count = 0;
+        while (iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+        Assert.assertEquals(3, count);
+    }
+
+    @Test
+    public void testMaximumDepth() throws Exception {
+        IAtomContainer mol = smilesParser.parseSmiles("C1(c2ccccc2)(CC(CC1)CCc1ccccc1)CC1C=CC=C1");
+        int[] expected = {0, 10, 21, 26, 26};
+        for (int depth = 0; depth < expected.length; depth++) {
+            ExhaustiveFragmentIterator iterator = new ExhaustiveFragmentIterator(mol, 6);
+            iterator.setMaximumDepth(depth);
+            int count = 0;
+            while (iterator.hasNext()) {
+                iterator.next();
+                count++;
+            }
+            Assert.assertEquals(expected[depth], count);
+        }
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testNext_NoSuchElement() throws Exception {
+        new ExhaustiveFragmentIterator(smilesParser.parseSmiles("CCC"), 6).next();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testGetSmiles_NoNext() throws Exception {
+        new ExhaustiveFragmentIterator(smilesParser.parseSmiles("c1ccccc1CC"), 6).getSmiles();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testRemove() throws Exception {
+        ExhaustiveFragmentIterator iterator = new ExhaustiveFragmentIterator(smilesParser.parseSmiles("c1ccccc1CC"), 6);
+        iterator.next();
+        iterator.remove();
+    }
+}
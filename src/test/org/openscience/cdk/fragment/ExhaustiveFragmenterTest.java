@@ -27,6 +27,9 @@ import org.openscience.cdk.DefaultChemObjectBuilder;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.smiles.SmilesParser;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Test exhaustive fragmenter.
  *
@@ -139,4 +142,76 @@ public class ExhaustiveFragmenterTest extends CDKTestCase {
         Assert.assertEquals(1,frags.length);
         Assert.assertTrue(frags[0].equals("C1CCCCC1"));                
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testMaximumFragments() throws Exception {
+        IAtomContainer mol = smilesParser.parseSmiles("C1(c2ccccc2)(CC(CC1)CCc1ccccc1)CC1C=CC=C1");
+        ExhaustiveFragmenter fragmenter = new ExhaustiveFragmenter();
+        fragmenter.setMaximumFragments(5);
+        fragmenter.generateFragments(mol);
+        Assert.assertEquals(5, fragmenter.getFragments().length);
+    }
+
+    @Test
+    public void testMaximumDepth() throws Exception {
+        IAtomContainer mol = smilesParser.parseSmiles("C1(c2ccccc2)(CC(CC1)CCc1ccccc1)CC1C=CC=C1");
+        ExhaustiveFragmenter fragmenter = new ExhaustiveFragmenter();
+        fragmenter.setMaximumDepth(1);
+        fragmenter.generateFragments(mol);
+        Assert.assertEquals(10, fragmenter.getFragments().length);
+        fragmenter.setMaximumDepth(2);
+        fragmenter.generateFragments(mol);
+        Assert.assertEquals(21, fragmenter.getFragments().length);
+    }
+
+    @Test
+    public void testFragmentIterator() throws Exception {
+        IAtomContainer mol = smilesParser.parseSmiles("c1ccccc1Cc1ccccc1");
+        ExhaustiveFragmenter fragmenter = new ExhaustiveFragmenter();
+        fragmenter.setMaximumFragments(1);
+        ExhaustiveFragmentIterator iterator = fragmenter.fragmentIterator(mol);
+        Assert.assertTrue(iterator.hasNext());
+        Assert.assertEquals(7, iterator.next().getAtomCount());
+        Assert.assertEquals("Cc1ccccc1", iterator.getSmiles());
+        Assert.assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testGetFragments_List() throws Exception {
+        List<IAtomContainer> mols = new ArrayList<IAtomContainer>();
+        mols.add(smilesParser.parseSmiles("c1ccccc1Cc1ccccc1"));
+        mols.add(smilesParser.parseSmiles("CCC"));
+        mols.add(smilesParser.parseSmiles("C1(c2ccccc2)(CC(CC1)CCc1ccccc1)CC1C=CC=C1"));
+        ExhaustiveFragmenter fragmenter = new ExhaustiveFragmenter();
+        List<String[]> frags = fragmenter.getFragments(mols);
+        Assert.assertEquals(3, frags.size());
+        for (int i = 0; i < mols.size(); i++) {
+            fragmenter.generateFragments(mols.get(i));
+            Assert.assertArrayEquals(fragmenter.getFragments(), frags.get(i));
+        }
+        Assert.assertEquals(0, frags.get(1).length);
+        Assert.assertEquals(26, frags.get(2).length);
+    }
+
+    @Test
+    public void testSetThreads() throws Exception {
+        List<IAtomContainer> mols = new ArrayList<IAtomContainer>();
+        for (int i = 0; i < 4; i++) {
+            mols.add(smilesParser.parseSmiles("c1ccccc1Cc1ccccc1"));
+            mols.add(smilesParser.parseSmiles("C1(c2ccccc2)(CC(CC1)CCc1ccccc1)CC1C=CC=C1"));
+            mols.add(smilesParser.parseSmiles("C1CCCCC1CC"));
+        }
+        ExhaustiveFragmenter fragmenter = new ExhaustiveFragmenter();
+        List<String[]> expected = fragmenter.getFragments(mols);
+        fragmenter.setThreads(3);
+        List<String[]> frags = fragmenter.getFragments(mols);
+        Assert.assertEquals(expected.size(), frags.size());
+        for (int i = 0; i < expected.size(); i++)
+            Assert.assertArrayEquals(expected.get(i), frags.get(i));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetThreads_Zero() {
+        new ExhaustiveFragmenter().setThreads(0);
+    }
+}
@@ -0,0 +1,128 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.geometry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.vecmath.Point3d;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.Atom;
+import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.interfaces.IAtom;
+
+/**
+ * @cdk.module test-standard
+ */
+public class SpatialGridTest extends CDKTestCase {
+
+    @Test
+    public void testSize() {
+        SpatialGrid grid = new SpatialGrid(new double[]{0, 1}, new double[]{0, 1}, new double[]{0, 1}, 2.5);
+        Assert.assertEquals(2, grid.size());
+        Assert.assertEquals(2.5, grid.getCellSize(), 0.0);
+    }
+
+    @Test
+    public void testDistance2() {
+        SpatialGrid grid = new SpatialGrid(new double[]{0, 1}, new double[]{0, 2}, new double[]{0, 3}, 1.0);
+        Assert.assertEquals(14.0, grid.distance2(0, 1), 1e-10);
+    }
+
+    @Test
+    public void testOf_Point3dArray() {
+        SpatialGrid grid = SpatialGrid.of(new Point3d[]{new Point3d(0, 0, 0), new Point3d(1, 0, 0),
+                new Point3d(3, 0, 0)}, 1.5);
+        Assert.assertArrayEquals(new int[]{1}, grid.neighbors(0, 1.0));
+        Assert.assertArrayEquals(new int[]{0, 2}, grid.neighbors(1, 2.0));
+    }
+
+    @Test
+    public void testOf_IAtomArray() {
+        IAtom[] atoms = new IAtom[]{new Atom("C", new Point3d(0, 0, 0)), new Atom("O", new Point3d(0, 0, -1.2))};
+        SpatialGrid grid = SpatialGrid.of(atoms, 3.0);
+        Assert.assertArrayEquals(new int[]{1}, grid.neighbors(0, 1.5));
+        Assert.assertArrayEquals(new int[0], grid.neighbors(0, 1.0));
+    }
+
+    @Test
+    public void testWithin() {
+        SpatialGrid grid = new SpatialGrid(new double[]{-5, 0, 5}, new double[]{0, 0, 0}, new double[]{0, 0, 0}, 1.0);
+        Assert.assertArrayEquals(new int[]{0, 1, 2}, grid.within(0, 0, 0, 5.0));
+        Assert.assertArrayEquals(new int[]{1}, grid.within(0, 0, 0, 4.9));
+        Assert.assertArrayEquals(new int[]{2}, grid.within(8, 0, 0, 3.0));
+        Assert.assertArrayEquals(new int[0], grid.within(100, 0, 0, 3.0));
+        Assert.assertArrayEquals(new int[0], grid.within(-100, 0, 0, 3.0));
+    }
+
+    @Test
+    public void testWithin_Empty() {
+        SpatialGrid grid = new SpatialGrid(new double[0], new double[0], new double[0], 1.0);
+        Assert.assertEquals(0, grid.size());
+        Assert.assertArrayEquals(new int[0], grid.within(0, 0, 0, 10.0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCellSize_Zero() {
+        new SpatialGrid(new double[]{0}, new double[]{0}, new double[]{0}, 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCoordinate_NaN() {
+        new SpatialGrid(new double[]{Double.NaN}, new double[]{0}, new double[]{0}, 1.0);
+    }
+
+    /**
+     * The neighbors found through the grid are the ones found by comparing
+     * all pairs, also for radii smaller and larger than the cells.
+     */
+    @Test
+    public void testNeighbors() {
+        Random   random = new Random(42);
+        int      n      = 500;
+        double[] x      = new double[n], y = new double[n], z = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = 40 * random.nextDouble() - 20;
+            y[i] = 40 * random.nextDouble() - 20;
+            z[i] = 10 * random.nextDouble();
+        }
+        SpatialGrid grid = new SpatialGrid(x, y, z, 3.0);
+        for (double radius : new double[]{0.5, 3.0, 7.5}) {
+            for (int i = 0; i < n; i++) {
+                List<Integer> expected = new ArrayList<Integer>();
+                for (int j = 0; j < n; j++) {
+                    double dx = x[i] - x[j], dy = y[i] - y[j], dz = z[i] - z[j];
+                    if (j != i && dx * dx + dy * dy + dz * dz <= radius * radius)
+                        expected.add(j);
+                }
+                int[] actual = grid.neighbors(i, radius);
+                Assert.assertEquals(expected.size(), actual.length);
+                for (int k = 0; k < actual.length; k++)
+                    Assert.assertEquals((int) expected.get(k), actual[k]);
+            }
+        }
+    }
+}
@@ -0,0 +1,278 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.geometry.alignment;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.vecmath.Point3d;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.Atom;
+import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.ConformerContainer;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.io.iterator.IteratingMDLConformerReader;
+
+/**
+ * @cdk.module test-extra
+ */
+public class QCPAlignmentTest extends CDKTestCase {
+
+    private static final double[] P1 = {
+        16.754, 20.462, 45.049, 19.609, 18.145, 46.011, 17.101, 17.256, 48.707,
+        13.963, 18.314, 46.820, 14.151, 15.343, 44.482, 14.959, 12.459, 46.880,
+        11.987, 13.842, 48.862, 9.586, 12.770, 46.123, 11.006, 9.245, 46.116,
+        10.755, 9.090, 49.885
+    };
+
+    private static final double[] P2 = {
+        70.246, 317.510, 188.263, 73.457, 317.369, 190.340, 71.257, 318.976, 193.018,
+        68.053, 317.543, 191.651, 68.786, 313.954, 192.637, 70.248, 314.486, 196.151,
+        67.115, 316.584, 196.561, 64.806, 313.610, 196.423, 66.804, 311.735, 199.035,
+        66.863, 314.832, 201.113
+    };
+
+    /** P1, then P2, then P1 rotated about z and moved. */
+    private static QCPAlignment alignment() {
+        double[] block = new double[3 * P1.length];
+        System.arraycopy(P1, 0, block, 0, P1.length);
+        System.arraycopy(P2, 0, block, P1.length, P2.length);
+        double cos = Math.cos(1.1), sin = Math.sin(1.1);
+        for (int k = 0; k < P1.length; k += 3) {
+            block[2 * P1.length + k]     = cos * P1[k] - sin * P1[k + 1] + 4.2;
+            block[2 * P1.length + k + 1] = sin * P1[k] + cos * P1[k + 1] - 7.5;
+            block[2 * P1.length + k + 2] = P1[k + 2] + 1.3;
+        }
+        return new QCPAlignment(block, 10);
+    }
+
+    /** The plain RMSD of two coordinate arrays, without superposition. */
+    private static double rmsd(double[] a, double[] b) {
+        double sum = 0;
+        for (int k = 0; k < a.length; k++)
+            sum += (a[k] - b[k]) * (a[k] - b[k]);
+        return Math.sqrt(sum / (a.length / 3));
+    }
+
+    /** Random structures of n atoms, each a noisy copy of the first. */
+    private static QCPAlignment random(int structures, int n) {
+        java.util.Random random = new java.util.Random(42);
+        double[] block = new double[3 * n * structures];
+        for (int k = 0; k < 3 * n; k++)
+            block[k] = 10 * random.nextDouble();
+        for (int s = 1; s < structures; s++)
+            for (int k = 0; k < 3 * n; k++)
+                block[3 * n * s + k] = block[k] + random.nextGaussian() * s / structures;
+        return new QCPAlignment(block, n);
+    }
+
+    @Test
+    public void testSize() {
+        QCPAlignment alignment = alignment();
+        Assert.assertEquals(3, alignment.size());
+        Assert.assertEquals(10, alignment.getAtomCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPartialStructure() {
+        new QCPAlignment(new double[10], 2);
+    }
+
+    @Test
+    public void testRmsd_int_int() {
+        QCPAlignment alignment = alignment();
+        Assert.assertEquals(0.13479726, alignment.rmsd(0, 1), 0.00000001);
+        Assert.assertEquals(0.13479726, alignment.rmsd(1, 0), 0.00000001);
+        Assert.assertEquals(0, alignment.rmsd(0, 2), 1e-6);
+        Assert.assertEquals(0, alignment.rmsd(1, 1), 1e-6);
+    }
+
+    @Test
+    public void testKabschAlignment() throws Exception {
+        QCPAlignment alignment = random(5, 30);
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < 5; j++) {
+                Atom[] a = new Atom[30], b = new Atom[30];
+                double[] x = alignment.superpose(i, i), y = alignment.superpose(j, j);
+                for (int k = 0; k < 30; k++) {
+                    a[k] = new Atom("C", new Point3d(x[3 * k], x[3 * k + 1], x[3 * k + 2]));
+                    b[k] = new Atom("C", new Point3d(y[3 * k], y[3 * k + 1], y[3 * k + 2]));
+                }
+                KabschAlignment kabsch = new KabschAlignment(a, b);
+                kabsch.align();
+                Assert.assertEquals(kabsch.getRMSD(), alignment.rmsd(i, j), 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public void testRmsd_int() {
+        QCPAlignment alignment = alignment();
+        double[] rmsd = alignment.rmsd(1);
+        Assert.assertEquals(3, rmsd.length);
+        Assert.assertEquals(0.13479726, rmsd[0], 0.00000001);
+        Assert.assertEquals(0, rmsd[1], 0);
+        Assert.assertEquals(0.13479726, rmsd[2], 0.00000001);
+    }
+
+    @Test
+    public void testRmsd_doubleArray() {
+        QCPAlignment alignment = alignment();
+        double[] rmsd = alignment.rmsd(P2);
+        Assert.assertEquals(0.13479726, rmsd[0], 0.00000001);
+        Assert.assertEquals(0, rmsd[1], 1e-6);
+        Assert.assertEquals(0.13479726, rmsd[2], 0.00000001);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRmsd_doubleArray_wrongSize() {
+        alignment().rmsd(new double[3]);
+    }
+
+    @Test
+    public void testRmsdMatrix() {
+        QCPAlignment alignment = random(12, 20);
+        double[][] matrix = alignment.rmsdMatrix();
+        for (int i = 0; i < 12; i++) {
+            Assert.assertEquals(0, matrix[i][i], 0);
+            for (int j = 0; j < 12; j++) {
+                Assert.assertEquals(matrix[i][j], matrix[j][i], 0);
+                Assert.assertEquals(alignment.rmsd(i, j), matrix[i][j], 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testGetRotation() {
+        QCPAlignment alignment = alignment();
+        double[] r = alignment.getRotation(0, 2);
+        // the rotation of P1 about z by 1.1 is undone
+        double cos = Math.cos(1.1), sin = Math.sin(1.1);
+        Assert.assertArrayEquals(new double[]{cos, sin, 0, -sin, cos, 0, 0, 0, 1}, r, 1e-6);
+        // a proper rotation, orthonormal with determinant 1
+        double det = r[0] * (r[4] * r[8] - r[5] * r[7]) - r[1] * (r[3] * r[8] - r[5] * r[6])
+                + r[2] * (r[3] * r[7] - r[4] * r[6]);
+        Assert.assertEquals(1, det, 1e-9);
+        Assert.assertArrayEquals(new double[]{1, 0, 0, 0, 1, 0, 0, 0, 1}, alignment.getRotation(1, 1), 1e-9);
+    }
+
+    @Test
+    public void testSuperpose() {
+        QCPAlignment alignment = alignment();
+        Assert.assertArrayEquals(P1, alignment.superpose(0, 2), 1e-6);
+        Assert.assertEquals(0.13479726, rmsd(P1, alignment.superpose(0, 1)), 0.00000001);
+        Assert.assertEquals(0.13479726, rmsd(P2, alignment.superpose(1, 0)), 0.00000001);
+        QCPAlignment random = random(4, 25);
+        for (int i = 0; i < 4; i++)
+            for (int j = 0; j < 4; j++)
+                Assert.assertEquals(random.rmsd(i, j), rmsd(random.superpose(i, i), random.superpose(i, j)), 1e-6);
+    }
+
+    @Test
+    public void testSetThreshold() {
+        QCPAlignment alignment = alignment();
+        // the radii of gyration of P1 and P2 differ by less than their RMSD
+        alignment.setThreshold(0.1);
+        Assert.assertEquals(0.13479726, alignment.rmsd(0, 1), 0.00000001);
+
+        // a scaled copy differs by at least the difference of the radii of gyration
+        double[] block = new double[2 * P1.length];
+        for (int k = 0; k < P1.length; k++) {
+            block[k]             = P1[k];
+            block[P1.length + k] = 2 * P1[k];
+        }
+        QCPAlignment scaled = new QCPAlignment(block, 10);
+        double rmsd = scaled.rmsd(0, 1);
+        scaled.setThreshold(0.5);
+        double bound = scaled.rmsd(0, 1);
+        Assert.assertTrue(bound > 0.5);
+        Assert.assertTrue(bound <= rmsd + 1e-9);
+        scaled.setThreshold(rmsd + 1);
+        Assert.assertEquals(rmsd, scaled.rmsd(0, 1), 0);
+    }
+
+    @Test
+    public void testSetThreads() {
+        QCPAlignment alignment = random(40, 15);
+        double[][] serial = alignment.rmsdMatrix();
+        double[] row = alignment.rmsd(3);
+        alignment.setThreads(4);
+        double[][] parallel = alignment.rmsdMatrix();
+        for (int i = 0; i < serial.length; i++)
+            Assert.assertArrayEquals(serial[i], parallel[i], 0);
+        Assert.assertArrayEquals(row, alignment.rmsd(3), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetThreads_zero() {
+        alignment().setThreads(0);
+    }
+
+    @Test
+    public void testOf_List() throws Exception {
+        InputStream ins = this.getClass().getClassLoader().getResourceAsStream("data/mdl/iterconftest.sdf");
+        IteratingMDLConformerReader reader = new IteratingMDLConformerReader(ins,
+                DefaultChemObjectBuilder.getInstance());
+        reader.next();
+        ConformerContainer conformers = (ConformerContainer) reader.next();
+        QCPAlignment alignment = QCPAlignment.of(conformers);
+        Assert.assertEquals(18, alignment.size());
+        Assert.assertEquals(conformers.get(0).getAtomCount(), alignment.getAtomCount());
+        double[][] matrix = alignment.rmsdMatrix();
+        for (int j = 1; j < 18; j++)
+            Assert.assertTrue(matrix[0][j] > 0);
+
+        // the RMSD of a conformer with its own coordinates
+        IAtomContainer conformer = conformers.get(5);
+        double[] query = new double[3 * conformer.getAtomCount()];
+        for (int i = 0; i < conformer.getAtomCount(); i++) {
+            Point3d p = conformer.getAtom(i).getPoint3d();
+            query[3 * i]     = p.x;
+            query[3 * i + 1] = p.y;
+            query[3 * i + 2] = p.z;
+        }
+        Assert.assertEquals(0, alignment.rmsd(query)[5], 1e-6);
+        Assert.assertArrayEquals(matrix[5], alignment.rmsd(5), 1e-6);
+    }
+
+    @Test
+    public void testOf_List_intArray() {
+        List<IAtomContainer> structures = new ArrayList<IAtomContainer>();
+        for (double[] p : new double[][]{P1, P2}) {
+            IAtomContainer structure = DefaultChemObjectBuilder.getInstance().newInstance(IAtomContainer.class);
+            // an extra atom that is not aligned
+            structure.addAtom(new Atom("H", new Point3d(p == P1 ? 100 : -100, 0, 0)));
+            for (int k = 0; k < p.length; k += 3)
+                structure.addAtom(new Atom("C", new Point3d(p[k], p[k + 1], p[k + 2])));
+            structures.add(structure);
+        }
+        QCPAlignment alignment = QCPAlignment.of(structures, new int[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10});
+        Assert.assertEquals(10, alignment.getAtomCount());
+        Assert.assertEquals(0.13479726, alignment.rmsd(0, 1), 0.00000001);
+        Assert.assertTrue(QCPAlignment.of(structures).rmsd(0, 1) > 1);
+    }
+}
@@ -0,0 +1,93 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.geometry.surface;
+
+import javax.vecmath.Point3d;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.Atom;
+import org.openscience.cdk.AtomContainer;
+import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.tools.periodictable.PeriodicTable;
+
+/**
+ * @cdk.module test-qsarmolecular
+ */
+public class NumericalSurfaceTest extends CDKTestCase {
+
+    @Test
+    public void testCalculateSurface_Atom() {
+        IAtomContainer container = new AtomContainer();
+        container.addAtom(new Atom("C", new Point3d(0, 0, 0)));
+        NumericalSurface surface = new NumericalSurface(container);
+        surface.calculateSurface();
+        double radius = PeriodicTable.getVdwRadius("C") + 1.4;
+        Assert.assertEquals(4 * Math.PI * radius * radius, surface.getTotalSurfaceArea(), 1e-6);
+    }
+
+    /**
+     * Both atoms of a close pair bury part of the surface of the other.
+     */
+    @Test
+    public void testCalculateSurface_Pair() throws Exception {
+        IAtomContainer container = new AtomContainer();
+        container.addAtom(new Atom("C", new Point3d(0.1, 0.1, 0.1)));
+        container.addAtom(new Atom("C", new Point3d(1.6, 0.1, 0.1)));
+        NumericalSurface surface = new NumericalSurface(container);
+        surface.calculateSurface();
+        double radius = PeriodicTable.getVdwRadius("C") + 1.4;
+        double sphere = 4 * Math.PI * radius * radius;
+        Assert.assertTrue(surface.getSurfaceArea(0) < sphere);
+        Assert.assertTrue(surface.getSurfaceArea(1) < sphere);
+        Assert.assertEquals(surface.getSurfaceArea(0), surface.getSurfaceArea(1), 1e-6);
+    }
+
+    @Test
+    public void testSetThreads() throws Exception {
+        IAtomContainer container = new AtomContainer();
+        for (int i = 0; i < 6; i++)
+            for (int j = 0; j < 6; j++)
+                for (int k = 0; k < 3; k++)
+                    container.addAtom(new Atom(k == 1 ? "O" : "C", new Point3d(1.5 * i, 1.5 * j, 1.5 * k)));
+        NumericalSurface serial = new NumericalSurface(container);
+        serial.calculateSurface();
+        NumericalSurface parallel = new NumericalSurface(container);
+        parallel.setThreads(3);
+        parallel.calculateSurface();
+        Assert.assertArrayEquals(serial.getAllSurfaceAreas(), parallel.getAllSurfaceAreas(), 0.0);
+        for (int i = 0; i < container.getAtomCount(); i++) {
+            Point3d[] expected = serial.getSurfacePoints(i);
+            Point3d[] actual   = parallel.getSurfacePoints(i);
+            Assert.assertEquals(expected.length, actual.length);
+            for (int j = 0; j < expected.length; j++)
+                Assert.assertEquals(0.0, expected[j].distance(actual[j]), 0.0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetThreads_Zero() {
+        new NumericalSurface(new AtomContainer()).setThreads(0);
+    }
+}
@@ -0,0 +1,154 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.group;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.CDKTestCase;
+
+/**
+ * @cdk.module test-group
+ */
+public class GraphDiscretePartitionRefinerTest extends CDKTestCase {
+
+    @Test
+    public void getInvariantPartitionTest() {
+        Partition partition = GraphDiscretePartitionRefiner.getInvariantPartition(new long[]{6, 7, 6, 8});
+        Assert.assertEquals(new Partition(new int[][]{{0, 2}, {1}, {3}}), partition);
+        Assert.assertEquals(0, GraphDiscretePartitionRefiner.getInvariantPartition(new long[0]).size());
+    }
+
+    @Test
+    public void refineTest() {
+        // a path 0-1-2-3, the ends and the middle are equivalent
+        int[][] path = {{1}, {0, 2}, {1, 3}, {2}};
+        GraphDiscretePartitionRefiner refiner = new GraphDiscretePartitionRefiner(path);
+        refiner.refine(new long[4]);
+        Assert.assertEquals(4, refiner.getVertexCount());
+        assertIsPermutation(refiner.getCanonicalRanks());
+        Assert.assertEquals(2, refiner.getAutomorphismGroup().order());
+
+        // the cells keep the order of the invariants, so vertices with a
+        // larger invariant get a larger rank
+        refiner.refine(new long[]{1, 0, 0, 0});
+        Assert.assertEquals(3, refiner.getCanonicalRanks()[0]);
+        Assert.assertEquals(1, refiner.getAutomorphismGroup().order());
+    }
+
+    @Test
+    public void refine_EdgeLabelsTest() {
+        // C=C-C with the double bond as label 2
+        int[][] graph  = {{1}, {0, 2}, {1}};
+        int[][] labels = {{2}, {2, 1}, {1}};
+        GraphDiscretePartitionRefiner refiner = new GraphDiscretePartitionRefiner(graph, labels);
+        Assert.assertEquals(2, refiner.getConnectivity(0, 1));
+        Assert.assertEquals(1, refiner.getConnectivity(2, 1));
+        Assert.assertEquals(0, refiner.getConnectivity(0, 2));
+        refiner.refine(new long[3]);
+        // the labels break the symmetry of the ends
+        Assert.assertEquals(1, refiner.getAutomorphismGroup().order());
+    }
+
+    /**
+     * Relabelled random graphs have the same canonical form, which is the
+     * same for graphs that are not isomorphic only by chance.
+     */
+    @Test
+    public void refine_InvariantsTest() {
+        Random random = new Random(42);
+        for (int trial = 0; trial < 50; trial++) {
+            int         n      = 4 + random.nextInt(12);
+            boolean[][] matrix = new boolean[n][n];
+            for (int i = 0; i < n; i++)
+                for (int j = i + 1; j < n; j++)
+                    if (random.nextInt(3) == 0)
+                        matrix[i][j] = matrix[j][i] = true;
+            long[] invariants = new long[n];
+            for (int i = 0; i < n; i++)
+                invariants[i] = random.nextInt(2);
+
+            String expected = canonicalForm(matrix, invariants);
+            for (int relabel = 0; relabel < 5; relabel++) {
+                List<Integer> order = new ArrayList<Integer>();
+                for (int i = 0; i < n; i++)
+                    order.add(i);
+                Collections.shuffle(order, random);
+                boolean[][] permuted    = new boolean[n][n];
+                long[]      invariants2 = new long[n];
+                for (int i = 0; i < n; i++) {
+                    invariants2[order.get(i)] = invariants[i];
+                    for (int j = 0; j < n; j++)
+                        permuted[order.get(i)][order.get(j)] = matrix[i][j];
+                }
+                Assert.assertEquals(expected, canonicalForm(permuted, invariants2));
+            }
+        }
+    }
+
+    /**
+     * The adjacency matrix and the invariants in the order of the
+     * canonical ranks.
+     */
+    private static String canonicalForm(boolean[][] matrix, long[] invariants) {
+        int n = matrix.length;
+        int[][] graph = new int[n][];
+        for (int i = 0; i < n; i++) {
+            int degree = 0;
+            for (int j = 0; j < n; j++)
+                if (matrix[i][j])
+                    degree++;
+            graph[i] = new int[degree];
+            for (int j = 0, k = 0; j < n; j++)
+                if (matrix[i][j])
+                    graph[i][k++] = j;
+        }
+        GraphDiscretePartitionRefiner refiner = new GraphDiscretePartitionRefiner(graph);
+        refiner.refine(invariants);
+        int[] ranks = refiner.getCanonicalRanks();
+        assertIsPermutation(ranks);
+        int[] vertexOf = new int[n];
+        for (int i = 0; i < n; i++)
+            vertexOf[ranks[i]] = i;
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            sb.append(invariants[vertexOf[i]]).append(':');
+            for (int j = 0; j < n; j++)
+                sb.append(matrix[vertexOf[i]][vertexOf[j]] ? '1' : '0');
+            sb.append(' ');
+        }
+        return sb.toString();
+    }
+
+    private static void assertIsPermutation(int[] ranks) {
+        boolean[] seen = new boolean[ranks.length];
+        for (int rank : ranks) {
+            Assert.assertFalse(seen[rank]);
+            seen[rank] = true;
+        }
+    }
+}
@@ -433,6 +433,28 @@ public abstract class AbstractChemObjectTest extends AbstractCDKObjectTest {
         Assert.assertNull(listener.event);
     }
 
+    @Test public void testBeginChanges() {
+        IChemObject chemObject = newChemObject();
+        chemObject.beginChanges();
+        chemObject.beginChanges();
+        chemObject.setID("Changed");
+        chemObject.endChanges();
+        chemObject.endChanges();
+        Assert.assertEquals("Changed", chemObject.getID());
+    }
+
+    @Test public void testEndChanges() {
+        IChemObject chemObject = newChemObject();
+        chemObject.beginChanges();
+        chemObject.endChanges();
+        try {
+            chemObject.endChanges();
+            Assert.fail("the batch of changes was already ended");
+        } catch (IllegalStateException exception) {
+            // expected
+        }
+    }
+
     @Test public void testCompare_Object() {
         // Added to keep the Coverage checker happy, but since the
         // compare(Object) method is not part of the interface, nothing is tested
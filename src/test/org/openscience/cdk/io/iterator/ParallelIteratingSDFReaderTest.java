@@ -0,0 +1,196 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.io.iterator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.CDKConstants;
+import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.io.formats.MDLV2000Format;
+import org.openscience.cdk.io.listener.IChemObjectIOListener;
+import org.openscience.cdk.io.setting.IOSetting;
+
+/**
+ * @cdk.module test-io
+ */
+public class ParallelIteratingSDFReaderTest extends CDKTestCase {
+
+    @Test public void testSDF() throws Exception {
+        InputStream ins = getClass().getClassLoader().getResourceAsStream("data/mdl/test2.sdf");
+        ParallelIteratingSDFReader reader = new ParallelIteratingSDFReader(
+            new InputStreamReader(ins), DefaultChemObjectBuilder.getInstance(), 4
+        );
+
+        int molCount = 0;
+        while (reader.hasNext()) {
+            IAtomContainer molecule = reader.next();
+            Assert.assertNotNull(molecule);
+            molCount++;
+            Assert.assertEquals(MDLV2000Format.getInstance(), reader.getFormat());
+        }
+        reader.close();
+
+        Assert.assertEquals(6, molCount);
+    }
+
+    @Test public void testReadDataItems() throws Exception {
+        InputStream ins = getClass().getClassLoader().getResourceAsStream("data/mdl/test.sdf");
+        ParallelIteratingSDFReader reader = new ParallelIteratingSDFReader(
+            ins, DefaultChemObjectBuilder.getInstance(), 2
+        );
+
+        IAtomContainer m = reader.next();
+        Assert.assertEquals("2-methylbenzo-1,4-quinone", m.getProperty(CDKConstants.TITLE));
+        Assert.assertEquals("553-97-9", m.getProperty("E_CAS"));
+        m = reader.next();
+        Assert.assertEquals("120-78-5", m.getProperty("E_CAS"));
+        reader.close();
+    }
+
+    /**
+     * The molecules are returned in the order of the file, also when the
+     * capacity is smaller than the number of threads.
+     */
+    @Test public void testOrdered() throws Exception {
+        String       sdf      = repeat("data/mdl/test.sdf", 100);
+        List<String> expected = describe(new IteratingSDFReader(new StringReader(sdf),
+                                                                DefaultChemObjectBuilder.getInstance()));
+        Assert.assertTrue(expected.size() > 100);
+        for (int capacity : new int[]{1, 3, 100}) {
+            ParallelIteratingSDFReader reader = new ParallelIteratingSDFReader(
+                new StringReader(sdf), DefaultChemObjectBuilder.getInstance(), false, 4, capacity, true
+            );
+            Assert.assertEquals(expected, describe(reader));
+        }
+    }
+
+    @Test public void testUnordered() throws Exception {
+        String       sdf      = repeat("data/mdl/test.sdf", 100);
+        List<String> expected = describe(new IteratingSDFReader(new StringReader(sdf),
+                                                                DefaultChemObjectBuilder.getInstance()));
+        ParallelIteratingSDFReader reader = new ParallelIteratingSDFReader(
+            new StringReader(sdf), DefaultChemObjectBuilder.getInstance(), false, 4, 8, false
+        );
+        List<String> actual = describe(reader);
+        Collections.sort(expected);
+        Collections.sort(actual);
+        Assert.assertEquals(expected, actual);
+    }
+
+    /**
+     * @cdk.bug 3488307
+     */
+    @Test public void testBrokenSDF() throws Exception {
+        InputStream in = getClass().getClassLoader().getResourceAsStream("data/mdl/bug3488307.sdf");
+        ParallelIteratingSDFReader reader = new ParallelIteratingSDFReader(
+            in, DefaultChemObjectBuilder.getInstance(), 2
+        );
+        reader.setSkip(true);
+        int count = 0;
+        while (reader.hasNext()) {
+            reader.next();
+            count++;
+        }
+        reader.close();
+        Assert.assertEquals(3, count);
+    }
+
+    @Test public void testNo3DCoordsButForcedAs() throws Exception {
+        InputStream ins = getClass().getClassLoader().getResourceAsStream("data/mdl/no3dStructures.sdf");
+        ParallelIteratingSDFReader reader = new ParallelIteratingSDFReader(
+            ins, DefaultChemObjectBuilder.getInstance(), 2
+        );
+        reader.addChemObjectIOListener(new IChemObjectIOListener() {
+            public void processIOSettingQuestion(IOSetting setting) {
+                if ("ForceReadAs3DCoordinates".equals(setting.getName())) {
+                    try {
+                        setting.setSetting("true");
+                    } catch (CDKException e) {
+                        Assert.fail(e.getMessage());
+                    }
+                }
+            }
+        });
+        reader.customizeJob();
+        int count = 0;
+        while (reader.hasNext()) {
+            IAtomContainer mol = reader.next();
+            Assert.assertNull(mol.getAtom(0).getPoint2d());
+            Assert.assertNotNull(mol.getAtom(0).getPoint3d());
+            count++;
+        }
+        reader.close();
+        Assert.assertEquals(2, count);
+    }
+
+    /**
+     * Closing the reader before all records are read stops the threads.
+     */
+    @Test public void testClose() throws Exception {
+        ParallelIteratingSDFReader reader = new ParallelIteratingSDFReader(
+            new StringReader(repeat("data/mdl/test.sdf", 100)), DefaultChemObjectBuilder.getInstance(), false, 2, 2, true
+        );
+        Assert.assertTrue(reader.hasNext());
+        Assert.assertNotNull(reader.next());
+        reader.close();
+    }
+
+    private static List<String> describe(IIteratingChemObjectReader<IAtomContainer> reader) throws IOException {
+        List<String> descriptions = new ArrayList<String>();
+        while (reader.hasNext()) {
+            IAtomContainer molecule = reader.next();
+            descriptions.add(molecule.getProperty(CDKConstants.TITLE) + " " +
+                             molecule.getProperty("E_CAS") + " " +
+                             molecule.getAtomCount() + " " + molecule.getBondCount());
+        }
+        reader.close();
+        return descriptions;
+    }
+
+    private String repeat(String path, int times) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(
+            getClass().getClassLoader().getResourceAsStream(path)
+        ));
+        StringBuilder sdf = new StringBuilder();
+        String        line;
+        while ((line = in.readLine()) != null)
+            sdf.append(line).append('\n');
+        in.close();
+        StringBuilder repeated = new StringBuilder();
+        for (int i = 0; i < times; i++)
+            repeated.append(sdf);
+        return repeated.toString();
+    }
+}
@@ -0,0 +1,203 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.io.iterator;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.CDKConstants;
+import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.io.IChemObjectReaderErrorHandler;
+import org.openscience.cdk.io.formats.SMILESFormat;
+
+/**
+ * @cdk.module test-smiles
+ */
+public class ParallelIteratingSMILESReaderTest extends CDKTestCase {
+
+    private static final String DRUGS = "data/smiles/drugs.smi";
+
+    @Test public void testSMILESFile() throws Exception {
+        List<IAtomContainer> expected = readSerial(getClass().getClassLoader().getResourceAsStream(DRUGS));
+        ParallelIteratingSMILESReader reader = new ParallelIteratingSMILESReader(
+            new InputStreamReader(getClass().getClassLoader().getResourceAsStream(DRUGS)),
+            DefaultChemObjectBuilder.getInstance(), 3
+        );
+        Assert.assertEquals(SMILESFormat.getInstance(), reader.getFormat());
+        assertSameMolecules(expected, reader);
+        reader.close();
+    }
+
+    @Test public void testInputStream() throws Exception {
+        List<IAtomContainer> expected = readSerial(getClass().getClassLoader().getResourceAsStream(DRUGS));
+        ParallelIteratingSMILESReader reader = new ParallelIteratingSMILESReader(
+            getClass().getClassLoader().getResourceAsStream(DRUGS),
+            DefaultChemObjectBuilder.getInstance(), 2
+        );
+        assertSameMolecules(expected, reader);
+        reader.close();
+    }
+
+    /**
+     * More lines than fit in a chunk, read with a single chunk ahead.
+     */
+    @Test public void testCapacity() throws Exception {
+        StringBuilder input = new StringBuilder();
+        for (int i = 1; i <= 5000; i++)
+            input.append("C(C)CN").append(i % 10).append("CCCCCCC").append(i % 10).append(" line").append(i).append('\n');
+        ParallelIteratingSMILESReader reader = new ParallelIteratingSMILESReader(
+            new StringReader(input.toString()), DefaultChemObjectBuilder.getInstance(), false, 2, 1
+        );
+        ParallelIteratingSMILESReader bytes = new ParallelIteratingSMILESReader(
+            new ByteArrayInputStream(input.toString().getBytes("US-ASCII")), DefaultChemObjectBuilder.getInstance(), 2
+        );
+        for (ParallelIteratingSMILESReader r : new ParallelIteratingSMILESReader[]{reader, bytes}) {
+            int count = 0;
+            while (r.hasNext()) {
+                IAtomContainer molecule = r.next();
+                count++;
+                Assert.assertEquals(count, r.getLineNumber());
+                Assert.assertEquals("line" + count, molecule.getProperty(CDKConstants.TITLE));
+                Assert.assertEquals(11, molecule.getAtomCount());
+            }
+            Assert.assertEquals(5000, count);
+            r.close();
+        }
+    }
+
+    @Test public void testErrors() throws Exception {
+        String input = "CCO ethanol\n"
+                     + "C1CC\n"
+                     + "\n"
+                     + "c1ccccc1\tbenzene\r\n"
+                     + "C[Xx]C\n"
+                     + "  CC(=O)O  acetic acid  \n";
+        final List<Integer> rows = new ArrayList<Integer>();
+        IChemObjectReaderErrorHandler handler = new IChemObjectReaderErrorHandler() {
+            public void handleError(String message) {
+                Assert.fail("no line number");
+            }
+            public void handleError(String message, Exception exception) {
+                Assert.fail("no line number");
+            }
+            public void handleError(String message, int row, int colStart, int colEnd) {
+                rows.add(row);
+            }
+            public void handleError(String message, int row, int colStart, int colEnd, Exception exception) {
+                rows.add(row);
+            }
+        };
+
+        ParallelIteratingSMILESReader reader = new ParallelIteratingSMILESReader(
+            new StringReader(input), DefaultChemObjectBuilder.getInstance(), 2
+        );
+        reader.setSkip(true);
+        reader.setErrorHandler(handler);
+        List<String> titles = new ArrayList<String>();
+        List<Integer> lines = new ArrayList<Integer>();
+        while (reader.hasNext()) {
+            titles.add((String) reader.next().getProperty(CDKConstants.TITLE));
+            lines.add(reader.getLineNumber());
+        }
+        reader.close();
+        Assert.assertEquals("[ethanol, benzene, acetic acid]", titles.toString());
+        Assert.assertEquals("[1, 4, 6]", lines.toString());
+        Assert.assertEquals("[2, 5]", rows.toString());
+
+        // without skipping the reader stops at the first error
+        rows.clear();
+        reader.setReader(new StringReader(input));
+        reader.setSkip(false);
+        int count = 0;
+        while (reader.hasNext()) {
+            reader.next();
+            count++;
+        }
+        reader.close();
+        Assert.assertEquals(1, count);
+        Assert.assertEquals("[2]", rows.toString());
+    }
+
+    @Test public void testGraphOnly() throws Exception {
+        ParallelIteratingSMILESReader reader = new ParallelIteratingSMILESReader(
+            new StringReader("c1ccccc1\n[NH4+]\n"), DefaultChemObjectBuilder.getInstance(), 1
+        );
+        reader.getSetting("ParseGraphOnly").setSetting("true");
+        IAtomContainer benzene = reader.next();
+        for (IAtom atom : benzene.atoms()) {
+            Assert.assertNull(atom.getAtomTypeName());
+            Assert.assertNull(atom.getImplicitHydrogenCount());
+            Assert.assertTrue(atom.getFlag(CDKConstants.SINGLE_OR_DOUBLE));
+        }
+        IAtomContainer ammonium = reader.next();
+        Assert.assertEquals(4, ammonium.getAtom(0).getImplicitHydrogenCount().intValue());
+        Assert.assertFalse(reader.hasNext());
+        reader.close();
+    }
+
+    @Test public void testClose() throws Exception {
+        ParallelIteratingSMILESReader reader = new ParallelIteratingSMILESReader(
+            getClass().getClassLoader().getResourceAsStream(DRUGS), DefaultChemObjectBuilder.getInstance(), 2
+        );
+        Assert.assertTrue(reader.hasNext());
+        reader.next();
+        reader.close();
+    }
+
+    private static List<IAtomContainer> readSerial(InputStream in) throws Exception {
+        IteratingSMILESReader reader = new IteratingSMILESReader(in, DefaultChemObjectBuilder.getInstance());
+        List<IAtomContainer> molecules = new ArrayList<IAtomContainer>();
+        while (reader.hasNext())
+            molecules.add(reader.next());
+        reader.close();
+        return molecules;
+    }
+
+    private static void assertSameMolecules(List<IAtomContainer> expected, ParallelIteratingSMILESReader reader) {
+        int count = 0;
+        while (reader.hasNext()) {
+            IAtomContainer actual   = reader.next();
+            IAtomContainer molecule = expected.get(count++);
+            Assert.assertEquals(count, reader.getLineNumber());
+            Assert.assertEquals((String) molecule.getProperty(CDKConstants.TITLE), (String) actual.getProperty(CDKConstants.TITLE));
+            Assert.assertEquals(molecule.getAtomCount(), actual.getAtomCount());
+            Assert.assertEquals(molecule.getBondCount(), actual.getBondCount());
+            for (int i = 0; i < molecule.getAtomCount(); i++) {
+                Assert.assertEquals(molecule.getAtom(i).getAtomTypeName(), actual.getAtom(i).getAtomTypeName());
+                Assert.assertEquals(molecule.getAtom(i).getImplicitHydrogenCount(), actual.getAtom(i).getImplicitHydrogenCount());
+                Assert.assertEquals(molecule.getAtom(i).getFlag(CDKConstants.ISAROMATIC),
+                                    actual.getAtom(i).getFlag(CDKConstants.ISAROMATIC));
+            }
+        }
+        Assert.assertEquals(expected.size(), count);
+    }
+}
@@ -0,0 +1,117 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.io.iterator;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.tools.ILoggingTool;
+import org.openscience.cdk.tools.LoggingToolFactory;
+
+/**
+ * @cdk.module test-io
+ */
+public class RecordPipelineTest extends CDKTestCase {
+
+    private static ILoggingTool logger =
+        LoggingToolFactory.createLoggingTool(RecordPipelineTest.class);
+
+    /**
+     * Splits off the given number of chunks, the later chunks are parsed
+     * faster than the earlier ones.
+     */
+    private static RecordPipeline.Splitter<Integer> chunks(final int n) {
+        return new RecordPipeline.Splitter<Integer>() {
+            public void split(RecordPipeline<Integer> pipeline) throws IOException, InterruptedException {
+                for (int i = 0; i < n; i++) {
+                    final int chunk = i;
+                    pipeline.submit(new Callable<List<Integer>>() {
+                        public List<Integer> call() throws InterruptedException {
+                            Thread.sleep((n - chunk) % 5);
+                            return Collections.singletonList(chunk);
+                        }
+                    });
+                }
+            }
+        };
+    }
+
+    @Test public void testOrdered() throws Exception {
+        RecordPipeline<Integer> pipeline = new RecordPipeline<Integer>(chunks(50), 4, 3, true, "test", logger);
+        for (int i = 0; i < 50; i++)
+            Assert.assertEquals(Collections.singletonList(i), pipeline.take());
+        Assert.assertNull(pipeline.take());
+        pipeline.stop();
+    }
+
+    @Test public void testUnordered() throws Exception {
+        RecordPipeline<Integer> pipeline = new RecordPipeline<Integer>(chunks(50), 4, 3, false, "test", logger);
+        SortedSet<Integer> taken = new TreeSet<Integer>();
+        List<Integer>      chunk;
+        while ((chunk = pipeline.take()) != null)
+            taken.addAll(chunk);
+        Assert.assertEquals(50, taken.size());
+        Assert.assertEquals(0, (int) taken.first());
+        Assert.assertEquals(49, (int) taken.last());
+        pipeline.stop();
+    }
+
+    /**
+     * No more than capacity chunks are split off when none is taken, and the
+     * splitter ends when the pipeline is stopped.
+     */
+    @Test public void testStop() throws Exception {
+        final AtomicInteger  submitted = new AtomicInteger();
+        final CountDownLatch ended     = new CountDownLatch(1);
+        RecordPipeline<Integer> pipeline = new RecordPipeline<Integer>(new RecordPipeline.Splitter<Integer>() {
+            public void split(RecordPipeline<Integer> pipeline) throws IOException, InterruptedException {
+                try {
+                    while (true) {
+                        pipeline.submit(new Callable<List<Integer>>() {
+                            public List<Integer> call() {
+                                return Collections.emptyList();
+                            }
+                        });
+                        submitted.incrementAndGet();
+                    }
+                } finally {
+                    ended.countDown();
+                }
+            }
+        }, 2, 3, true, "test", logger);
+        Thread.sleep(100);
+        Assert.assertEquals(3, submitted.get());
+        pipeline.stop();
+        Assert.assertTrue(ended.await(10, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,179 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.io.random;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IChemObject;
+
+/**
+ * @cdk.module test-extra
+ */
+public class MappedRandomAccessSDFReaderTest extends CDKTestCase {
+
+    private static final String[] MDLNUMBERS = {
+        "MFCD00000387", "MFCD00000661", "MFCD00000662",
+        "MFCD00000663", "MFCD00000664", "MFCD03453215"
+    };
+
+    @Test public void testReadRecord() throws Exception {
+        File sdf = copy("data/mdl/test2.sdf", 1);
+        try {
+            MappedRandomAccessSDFReader reader = new MappedRandomAccessSDFReader(
+                sdf, DefaultChemObjectBuilder.getInstance()
+            );
+            Assert.assertEquals(6, reader.size());
+            for (int i = reader.size() - 1; i >= 0; i--) {
+                IChemObject m = reader.readRecord(i);
+                Assert.assertTrue(m instanceof IAtomContainer);
+                Assert.assertEquals(MDLNUMBERS[i], m.getProperty("MDLNUMBER"));
+                Assert.assertTrue(((IAtomContainer) m).getAtomCount() > 0);
+            }
+            Assert.assertTrue(reader.readContent(5).trim().endsWith("$$$$"));
+            reader.close();
+
+            // the same records as the text index
+            RandomAccessSDFReader text = new RandomAccessSDFReader(sdf, DefaultChemObjectBuilder.getInstance());
+            Assert.assertEquals(text.size(), reader.size());
+            text.close();
+        } finally {
+            delete(sdf);
+        }
+    }
+
+    @Test public void testReuseIndex() throws Exception {
+        File sdf = copy("data/mdl/test2.sdf", 1);
+        try {
+            MappedRandomAccessSDFReader reader = new MappedRandomAccessSDFReader(
+                sdf, DefaultChemObjectBuilder.getInstance()
+            );
+            Assert.assertTrue(reader.isIndexCreated());
+            Assert.assertTrue(MappedRandomAccessSDFReader.getIndexFile(sdf).exists());
+            reader.close();
+
+            reader = new MappedRandomAccessSDFReader(sdf, DefaultChemObjectBuilder.getInstance());
+            Assert.assertFalse(reader.isIndexCreated());
+            Assert.assertEquals(6, reader.size());
+            Assert.assertEquals(MDLNUMBERS[3], reader.readRecord(3).getProperty("MDLNUMBER"));
+            reader.close();
+
+            // an index of another file is not used
+            File other = copy("data/mdl/test2.sdf", 3);
+            try {
+                reader = new MappedRandomAccessSDFReader(
+                    other, MappedRandomAccessSDFReader.getIndexFile(sdf), DefaultChemObjectBuilder.getInstance()
+                );
+                Assert.assertTrue(reader.isIndexCreated());
+                Assert.assertEquals(18, reader.size());
+                reader.close();
+            } finally {
+                delete(other);
+            }
+        } finally {
+            delete(sdf);
+        }
+    }
+
+    @Test public void testConcurrentReads() throws Exception {
+        final File sdf = copy("data/mdl/test2.sdf", 50);
+        try {
+            final MappedRandomAccessSDFReader reader = new MappedRandomAccessSDFReader(
+                sdf, DefaultChemObjectBuilder.getInstance()
+            );
+            Assert.assertEquals(300, reader.size());
+            final AtomicInteger errors  = new AtomicInteger();
+            List<Thread>        threads = new ArrayList<Thread>();
+            for (int t = 0; t < 4; t++) {
+                final int offset = t;
+                Thread thread = new Thread() {
+                    public void run() {
+                        try {
+                            for (int i = offset; i < reader.size(); i += 3) {
+                                if (!MDLNUMBERS[i % 6].equals(reader.readRecord(i).getProperty("MDLNUMBER")))
+                                    errors.incrementAndGet();
+                            }
+                        } catch (Exception exception) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                };
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads)
+                thread.join();
+            Assert.assertEquals(0, errors.get());
+            reader.close();
+        } finally {
+            delete(sdf);
+        }
+    }
+
+    /**
+     * A temporary file with the records of an SD file repeated, the blank
+     * lines at the end of the file are dropped so that the title line of
+     * the repeated first record is kept.
+     */
+    private File copy(String path, int times) throws Exception {
+        InputStream           in      = getClass().getClassLoader().getResourceAsStream(path);
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        byte[] buf = new byte[1024];
+        int len;
+        while ((len = in.read(buf)) > 0)
+            content.write(buf, 0, len);
+        in.close();
+        String text = content.toString();
+        int    end  = text.length();
+        while (end > 0 && Character.isWhitespace(text.charAt(end - 1)))
+            end--;
+        byte[] records = (text.substring(0, end) + "\n").getBytes();
+
+        File         f   = File.createTempFile("tmp", ".sdf");
+        OutputStream out = new FileOutputStream(f);
+        try {
+            for (int i = 0; i < times; i++)
+                out.write(records);
+        } finally {
+            out.close();
+        }
+        return f;
+    }
+
+    private static void delete(File sdf) {
+        MappedRandomAccessSDFReader.getIndexFile(sdf).delete();
+        RandomAccessReader.getIndexFile(sdf.getAbsolutePath()).delete();
+        sdf.delete();
+    }
+}
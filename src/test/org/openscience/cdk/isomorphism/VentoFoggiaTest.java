@@ -0,0 +1,211 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.isomorphism;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.CDKConstants;
+import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.graph.AtomContainerAtomPermutor;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.isomorphism.matchers.QueryAtomContainerCreator;
+import org.openscience.cdk.smiles.SmilesParser;
+
+/**
+ * @cdk.module test-standard
+ */
+public class VentoFoggiaTest extends CDKTestCase {
+
+    private final SmilesParser sp = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+
+    @Test
+    public void benzeneInNaphthalene() throws Exception {
+        IAtomContainer query  = sp.parseSmiles("C1=CC=CC=C1");
+        IAtomContainer target = sp.parseSmiles("C1=CC=C2C=CC=CC2=C1");
+        markAromatic(query);
+        markAromatic(target);
+        VentoFoggia vf = VentoFoggia.findSubstructure(query);
+        Assert.assertTrue(vf.matches(target));
+        assertMapping(query, target, vf.match(target));
+
+        // 12 automorphisms of benzene onto each of the two rings
+        int count = 0;
+        for (int[] mapping : vf.matchAll(target)) {
+            assertMapping(query, target, mapping);
+            count++;
+        }
+        Assert.assertEquals(24, count);
+        Assert.assertEquals(24, vf.countMatches(target));
+
+        Assert.assertFalse(vf.matches(sp.parseSmiles("C1CCCCC1")));
+        Assert.assertNull(vf.match(sp.parseSmiles("C1CCCCC1")));
+    }
+
+    @Test
+    public void lazyIteration() throws Exception {
+        IAtomContainer  target = sp.parseSmiles("CCCCCCCC");
+        Iterator<int[]> it     = VentoFoggia.findSubstructure(sp.parseSmiles("CCC")).matchAll(target).iterator();
+        Assert.assertTrue(it.hasNext());
+        Assert.assertTrue(it.hasNext());
+        int[] first = it.next();
+        Assert.assertEquals(3, first.length);
+        Assert.assertNotNull(target.getBond(target.getAtom(first[0]), target.getAtom(first[1])));
+        Assert.assertNotNull(target.getBond(target.getAtom(first[1]), target.getAtom(first[2])));
+        int count = 1;
+        while (it.hasNext()) {
+            Assert.assertFalse(Arrays.equals(first, it.next()));
+            count++;
+        }
+        // 6 paths of three atoms, each in both directions
+        Assert.assertEquals(12, count);
+    }
+
+    @Test
+    public void uniqueMatches() throws Exception {
+        IAtomContainer query  = sp.parseSmiles("C1=CC=CC=C1");
+        IAtomContainer target = sp.parseSmiles("C1=CC=C2C=CC=CC2=C1");
+        markAromatic(query);
+        markAromatic(target);
+        VentoFoggia vf    = VentoFoggia.findSubstructure(query);
+        int         count = 0;
+        for (int[] mapping : vf.uniqueMatches(target)) {
+            assertMapping(query, target, mapping);
+            count++;
+        }
+        Assert.assertEquals(2, count);
+        Assert.assertEquals(2, vf.countUniqueMatches(target));
+    }
+
+    /**
+     * For queries of more than one bond the atom mappings correspond to the
+     * bond mappings of the RGraph.
+     */
+    @Test
+    public void countMatches() throws Exception {
+        UniversalIsomorphismTester uit = new UniversalIsomorphismTester();
+        String[][] pairs = {
+            {"CCC", "CCCO"},
+            {"CCO", "OCCOCCO"},
+            {"CC(C)C", "CC(C)(C)CC"},
+            {"CC=O", "CC(=O)OC(=O)C"},
+            {"C1CCCCC1", "C1CCC2CCCCC2C1"}
+        };
+        for (String[] pair : pairs) {
+            IAtomContainer query  = sp.parseSmiles(pair[0]);
+            IAtomContainer target = sp.parseSmiles(pair[1]);
+            Assert.assertEquals(pair[0] + " in " + pair[1],
+                                uit.getSubgraphAtomsMaps(target, query).size(),
+                                VentoFoggia.findSubstructure(query).countMatches(target));
+        }
+    }
+
+    @Test
+    public void identical() throws Exception {
+        IAtomContainer query = sp.parseSmiles("CC1=CC(O)=CC=C1N");
+        AtomContainerAtomPermutor permutor = new AtomContainerAtomPermutor(query);
+        VentoFoggia vf = VentoFoggia.findIdentical(query);
+        for (int i = 0; i < 10 && permutor.hasNext(); i++) {
+            IAtomContainer target = permutor.next();
+            Assert.assertTrue(vf.matches(target));
+            assertMapping(query, target, vf.match(target));
+        }
+        Assert.assertFalse(vf.matches(sp.parseSmiles("CC1=CC(O)=CC=C1NC")));
+        Assert.assertFalse(vf.matches(sp.parseSmiles("CC1=CC(N)=CC=C1O")));
+        Assert.assertTrue(VentoFoggia.findSubstructure(query).matches(sp.parseSmiles("CC1=CC(O)=CC=C1NC")));
+    }
+
+    /**
+     * The atoms are matched, so cyclopropane is not found in isobutane,
+     * unlike a comparison of the bonds alone.
+     */
+    @Test
+    public void cyclopropaneIsobutane() throws Exception {
+        IAtomContainer cyclopropane = QueryAtomContainerCreator.createAnyAtomAnyBondContainer(sp.parseSmiles("C1CC1"), false);
+        IAtomContainer isobutane    = sp.parseSmiles("CC(C)C");
+        Assert.assertFalse(VentoFoggia.findSubstructure(cyclopropane).matches(isobutane));
+        Assert.assertFalse(VentoFoggia.findIdentical(cyclopropane).matches(sp.parseSmiles("CCC")));
+        Assert.assertTrue(VentoFoggia.findIdentical(cyclopropane).matches(sp.parseSmiles("C1CN1")));
+    }
+
+    @Test
+    public void disconnectedQuery() throws Exception {
+        VentoFoggia vf = VentoFoggia.findSubstructure(sp.parseSmiles("O.O"));
+        Assert.assertFalse(vf.matches(sp.parseSmiles("CCO")));
+        Assert.assertTrue(vf.matches(sp.parseSmiles("OCCO")));
+        Assert.assertEquals(2, vf.countMatches(sp.parseSmiles("OCCO")));
+    }
+
+    /**
+     * A bond to an atom which was not added to the query can not be matched
+     * on the atoms.
+     */
+    @Test
+    public void supports() throws Exception {
+        IAtomContainer query = sp.parseSmiles("CCO");
+        Assert.assertTrue(VentoFoggia.supports(query));
+        IAtom outside = query.getBuilder().newInstance(IAtom.class, "N");
+        query.addBond(query.getBuilder().newInstance(IBond.class, query.getAtom(2), outside));
+        Assert.assertFalse(VentoFoggia.supports(query));
+    }
+
+    @Test
+    public void timeout() throws Exception {
+        IAtomContainer query  = sp.parseSmiles("CCCC");
+        IAtomContainer target = sp.parseSmiles("C1CCCCCCCCCCC1");
+        VentoFoggia    vf     = VentoFoggia.findSubstructure(query);
+        vf.setTimeout(10000);
+        Assert.assertEquals(24, vf.countMatches(target));
+        vf.setTimeout(-1);
+        Assert.assertEquals(24, vf.countMatches(target));
+    }
+
+    private static void markAromatic(IAtomContainer container) {
+        for (int i = 0; i < container.getAtomCount(); i++)
+            container.getAtom(i).setFlag(CDKConstants.ISAROMATIC, true);
+        for (IBond bond : container.bonds())
+            bond.setFlag(CDKConstants.ISAROMATIC, true);
+    }
+
+    /**
+     * Check the mapping is injective, preserves the symbols and maps every
+     * query bond to a target bond.
+     */
+    private static void assertMapping(IAtomContainer query, IAtomContainer target, int[] mapping) {
+        Assert.assertNotNull(mapping);
+        Assert.assertEquals(query.getAtomCount(), mapping.length);
+        BitSet used = new BitSet();
+        for (int i = 0; i < mapping.length; i++) {
+            Assert.assertFalse(used.get(mapping[i]));
+            used.set(mapping[i]);
+            Assert.assertEquals(query.getAtom(i).getSymbol(), target.getAtom(mapping[i]).getSymbol());
+        }
+        for (IBond bond : query.bonds()) {
+            int u = query.getAtomNumber(bond.getAtom(0));
+            int v = query.getAtomNumber(bond.getAtom(1));
+            Assert.assertNotNull(target.getBond(target.getAtom(mapping[u]), target.getAtom(mapping[v])));
+        }
+    }
+}
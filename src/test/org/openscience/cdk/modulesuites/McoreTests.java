@@ -22,6 +22,7 @@ package org.openscience.cdk.modulesuites;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
+import org.openscience.cdk.AtomContainerIndexTest;
 import org.openscience.cdk.CDKConstantsTest;
 import org.openscience.cdk.CDKTest;
 import org.openscience.cdk.DynamicFactoryTest;
@@ -66,6 +67,7 @@ import org.openscience.cdk.stereo.DoubleBondStereochemistryTest;
 import org.openscience.cdk.tools.DataFeaturesTest;
 import org.openscience.cdk.tools.LoggingToolFactoryTest;
 import org.openscience.cdk.tools.SystemOutLoggingToolTest;
+import org.openscience.cdk.tools.ParallelLoopTest;
 import org.openscience.cdk.tools.manipulator.BondManipulatorTest;
 import org.openscience.cdk.tools.periodictable.ElementPTFactoryTest;
 import org.openscience.cdk.tools.periodictable.ElementPTReaderTest;
@@ -82,6 +84,7 @@ import org.openscience.cdk.tools.periodictable.PeriodicTableTest;
     CoreCoverageTest.class,
 
     CDKTest.class,
+    AtomContainerIndexTest.class,
     CDKConstantsTest.class,
     DataFeaturesTest.class,
 
@@ -115,6 +118,7 @@ import org.openscience.cdk.tools.periodictable.PeriodicTableTest;
     NoSuchAtomTypeExceptionTest.class,
     LoggingToolFactoryTest.class,
     SystemOutLoggingToolTest.class,
+    ParallelLoopTest.class,
     BondManipulatorTest.class,
     AdjacencyMatrixTest.class,
     PathToolsTest.class,
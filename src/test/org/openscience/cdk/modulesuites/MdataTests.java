@@ -29,6 +29,7 @@ import org.junit.runners.Suite.SuiteClasses;
 import org.openscience.cdk.AminoAcidTest;
 import org.openscience.cdk.AtomContainerSetTest;
 import org.openscience.cdk.AtomContainerTest;
+import org.openscience.cdk.IndexedAtomContainerTest;
 import org.openscience.cdk.AtomParityTest;
 import org.openscience.cdk.AtomTest;
 import org.openscience.cdk.AtomTypeTest;
@@ -61,6 +62,7 @@ import org.openscience.cdk.SingleElectronTest;
 import org.openscience.cdk.StrandTest;
 import org.openscience.cdk.coverage.DataCoverageTest;
 import org.openscience.cdk.event.ChemObjectChangeEventTest;
+import org.openscience.cdk.event.ChemObjectChangeSetEventTest;
 import org.openscience.cdk.formula.AdductFormulaTest;
 import org.openscience.cdk.formula.MolecularFormulaSetTest;
 import org.openscience.cdk.formula.MolecularFormulaTest;
@@ -80,6 +82,7 @@ import org.openscience.cdk.protein.data.PDBStructureTest;
         
     AminoAcidTest.class,
     AtomContainerTest.class,
+    IndexedAtomContainerTest.class,
     AtomParityTest.class,
     AtomTest.class,
     AtomTypeTest.class,
@@ -119,6 +122,7 @@ import org.openscience.cdk.protein.data.PDBStructureTest;
 
     // test from test.event
     ChemObjectChangeEventTest.class,
+    ChemObjectChangeSetEventTest.class,
         
     // tests from test.protein.data
     PDBAtomTest.class,
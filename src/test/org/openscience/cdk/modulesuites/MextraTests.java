@@ -27,6 +27,7 @@ import org.openscience.cdk.CloneAtomContainerTest;
 import org.openscience.cdk.coverage.ExtraCoverageTest;
 import org.openscience.cdk.geometry.RDFCalculatorTest;
 import org.openscience.cdk.geometry.alignment.KabschAlignmentTest;
+import org.openscience.cdk.geometry.alignment.QCPAlignmentTest;
 import org.openscience.cdk.graph.invariant.EquivalentClassPartitionerTest;
 import org.openscience.cdk.index.CASNumberTest;
 import org.openscience.cdk.io.CrystClustReaderTest;
@@ -36,10 +37,13 @@ import org.openscience.cdk.io.INChIPlainTextReaderTest;
 import org.openscience.cdk.io.INChIReaderTest;
 import org.openscience.cdk.io.ShelXWriterTest;
 import org.openscience.cdk.io.iterator.IteratingMDLConformerReaderTest;
+import org.openscience.cdk.io.random.MappedRandomAccessSDFReaderTest;
 import org.openscience.cdk.io.random.RandomAccessTest;
 import org.openscience.cdk.iupac.ParserTest;
+import org.openscience.cdk.protein.ProteinPocketFinderTest;
 import org.openscience.cdk.reaction.ReactionChainTest;
 import org.openscience.cdk.tools.BremserPredictorTest;
+import org.openscience.cdk.tools.HOSECodeShiftIndexTest;
 import org.openscience.cdk.tools.DeAromatizationToolTest;
 import org.openscience.cdk.tools.HOSECodeAnalyserTest;
 
@@ -54,6 +58,7 @@ import org.openscience.cdk.tools.HOSECodeAnalyserTest;
     CloneAtomContainerTest.class,
     RDFCalculatorTest.class,
     KabschAlignmentTest.class,
+    QCPAlignmentTest.class,
     CASNumberTest.class,
     HOSECodeAnalyserTest.class,
     DeAromatizationToolTest.class,
@@ -65,9 +70,12 @@ import org.openscience.cdk.tools.HOSECodeAnalyserTest;
     IteratingMDLConformerReaderTest.class,
     ExtraReaderFactoryTest.class,
     RandomAccessTest.class,
+    MappedRandomAccessSDFReaderTest.class,
     BremserPredictorTest.class,
+    HOSECodeShiftIndexTest.class,
     ParserTest.class,
     ReactionChainTest.class,
     EquivalentClassPartitionerTest.class,
+    ProteinPocketFinderTest.class,
 })
 public class MextraTests {}
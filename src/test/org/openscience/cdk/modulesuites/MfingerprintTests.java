@@ -32,7 +32,10 @@ import org.openscience.cdk.fingerprint.PubchemFingerprinterTest;
 import org.openscience.cdk.fingerprint.ShortestPathFingerprinterTest;
 import org.openscience.cdk.fingerprint.ShortestPathWalkerTest;
 import org.openscience.cdk.similarity.DistanceMomentTest;
+import org.openscience.cdk.similarity.FingerprintStoreTest;
 import org.openscience.cdk.similarity.LingoSimilarityTest;
+import org.openscience.cdk.similarity.MinHashIndexTest;
+import org.openscience.cdk.similarity.SparseCountVectorTest;
 import org.openscience.cdk.similarity.TanimotoTest;
 
 /**
@@ -48,6 +51,9 @@ import org.openscience.cdk.similarity.TanimotoTest;
     EStateFingerprinterTest.class,
     PubchemFingerprinterTest.class,
     DistanceMomentTest.class,
+    FingerprintStoreTest.class,
+    SparseCountVectorTest.class,
+    MinHashIndexTest.class,
     TanimotoTest.class,
     LingoSimilarityTest.class,
     KlekotaRothFingerprinterTest.class,
@@ -31,6 +31,7 @@ import org.openscience.cdk.formula.IsotopePatternManipulatorTest;
 import org.openscience.cdk.formula.IsotopePatternSimilarityTest;
 import org.openscience.cdk.formula.IsotopePatternTest;
 import org.openscience.cdk.formula.MassToFormulaToolTest;
+import org.openscience.cdk.formula.MolecularFormulaGeneratorTest;
 import org.openscience.cdk.formula.MolecularFormulaRangeTest;
 import org.openscience.cdk.tools.manipulator.MolecularFormulaManipulatorTest;
 import org.openscience.cdk.tools.manipulator.MolecularFormulaRangeManipulatorTest;
@@ -49,6 +50,7 @@ import org.openscience.cdk.tools.manipulator.MolecularFormulaRangeManipulatorTes
     IsotopePatternSimilarityTest.class,
     IsotopePatternTest.class,
     MassToFormulaToolTest.class,
+    MolecularFormulaGeneratorTest.class,
     MolecularFormulaManipulatorTest.class,
     MolecularFormulaRangeManipulatorTest.class,
     MolecularFormulaRangeTest.class,
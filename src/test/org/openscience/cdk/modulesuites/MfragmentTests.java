@@ -22,6 +22,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 import org.openscience.cdk.coverage.FragmentCoverageTest;
+import org.openscience.cdk.fragment.ExhaustiveFragmentIteratorTest;
 import org.openscience.cdk.fragment.ExhaustiveFragmenterTest;
 import org.openscience.cdk.fragment.FragmentUtilsTest;
 import org.openscience.cdk.fragment.MurckoFragmenterTest;
@@ -35,6 +36,7 @@ import org.openscience.cdk.fragment.MurckoFragmenterTest;
 
     MurckoFragmenterTest.class,
     ExhaustiveFragmenterTest.class,
+    ExhaustiveFragmentIteratorTest.class,
     FragmentUtilsTest.class
 })
 public class MfragmentTests {}
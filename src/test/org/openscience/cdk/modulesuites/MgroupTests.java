@@ -30,6 +30,7 @@ import org.openscience.cdk.group.BondDiscretePartitionRefinerTest;
 import org.openscience.cdk.group.BondEquitablePartitionRefinerTest;
 import org.openscience.cdk.group.BondGroupTests;
 import org.openscience.cdk.group.DisjointSetForestTest;
+import org.openscience.cdk.group.GraphDiscretePartitionRefinerTest;
 import org.openscience.cdk.group.PartitionTest;
 import org.openscience.cdk.group.PermutationGroupTest;
 import org.openscience.cdk.group.PermutationTest;
@@ -50,6 +51,7 @@ import org.openscience.cdk.group.PermutationTest;
         BondEquitablePartitionRefinerTest.class,
         BondGroupTests.class,
         DisjointSetForestTest.class,
+        GraphDiscretePartitionRefinerTest.class,
         PartitionTest.class,
         PermutationTest.class,
         PermutationGroupTest.class
@@ -57,6 +57,8 @@ import org.openscience.cdk.io.XYZReaderTest;
 import org.openscience.cdk.io.XYZWriterTest;
 import org.openscience.cdk.io.cml.CMLIOTests;
 import org.openscience.cdk.io.iterator.IteratingSDFReaderTest;
+import org.openscience.cdk.io.iterator.ParallelIteratingSDFReaderTest;
+import org.openscience.cdk.io.iterator.RecordPipelineTest;
 import org.openscience.cdk.io.iterator.IteratingPCCompoundASNReaderTest;
 import org.openscience.cdk.io.iterator.IteratingPCCompoundXMLReaderTest;
 import org.openscience.cdk.io.iterator.IteratingPCSubstancesXMLReaderTest;
@@ -104,6 +106,8 @@ import org.openscience.cdk.io.program.Mopac7WriterTest;
 
         // cdk.io.iterator package
     IteratingSDFReaderTest.class,
+    ParallelIteratingSDFReaderTest.class,
+    RecordPipelineTest.class,
     IteratingPCCompoundASNReaderTest.class,
     IteratingPCCompoundXMLReaderTest.class,
     IteratingPCSubstancesXMLReaderTest.class        
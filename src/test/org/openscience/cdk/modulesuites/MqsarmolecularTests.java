@@ -23,7 +23,9 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 import org.openscience.cdk.coverage.QsarmolecularCoverageTest;
+import org.openscience.cdk.geometry.surface.NumericalSurfaceTest;
 import org.openscience.cdk.graph.matrix.TopologicalMatrixTest;
+import org.openscience.cdk.qsar.DescriptorCacheTest;
 import org.openscience.cdk.qsar.DescriptorEngineTest;
 import org.openscience.cdk.qsar.DescriptorNamesTest;
 import org.openscience.cdk.qsar.descriptors.molecular.ALOGPDescriptorTest;
@@ -88,6 +90,7 @@ import org.openscience.cdk.qsar.descriptors.molecular.ZagrebIndexDescriptorTest;
         // Individual Tests - Please add correlatively  
     ChiIndexUtilsTest.class,
     DescriptorEngineTest.class,
+    DescriptorCacheTest.class,
     DescriptorNamesTest.class,
 
 //      from cdk.test.qsar.molecular
@@ -137,6 +140,7 @@ import org.openscience.cdk.qsar.descriptors.molecular.ZagrebIndexDescriptorTest;
     HybridizationRatioDescriptorTest.class,
     FMFDescriptorTest.class,
     FragmentComplexityDescriptorTest.class,
-    TopologicalMatrixTest.class
+    TopologicalMatrixTest.class,
+    NumericalSurfaceTest.class
 })
 public class MqsarmolecularTests {}
@@ -30,6 +30,7 @@ import org.openscience.cdk.coverage.SilentCoverageTest;
 import org.openscience.cdk.silent.AminoAcidTest;
 import org.openscience.cdk.silent.AtomContainerSetTest;
 import org.openscience.cdk.silent.AtomContainerTest;
+import org.openscience.cdk.silent.IndexedAtomContainerTest;
 import org.openscience.cdk.silent.AtomParityTest;
 import org.openscience.cdk.silent.AtomTest;
 import org.openscience.cdk.silent.AtomTypeTest;
@@ -74,6 +75,7 @@ import org.openscience.cdk.silent.StrandTest;
     SilentChemObjectBuilderTest.class,
     AminoAcidTest.class,
     AtomContainerTest.class,
+    IndexedAtomContainerTest.class,
     AtomParityTest.class,
     AtomTest.class,
     AtomTypeTest.class,
@@ -33,6 +33,8 @@ import org.openscience.cdk.io.SMILES2Mol2WriterTest;
 import org.openscience.cdk.io.SMILESReaderTest;
 import org.openscience.cdk.io.SMILESWriterTest;
 import org.openscience.cdk.io.iterator.IteratingSMILESReaderTest;
+import org.openscience.cdk.io.iterator.ParallelIteratingSMILESReaderTest;
+import org.openscience.cdk.smiles.CanonicalSmilesGeneratorTest;
 import org.openscience.cdk.smiles.DeduceBondSystemToolTest;
 import org.openscience.cdk.smiles.FixBondOrdersToolTest;
 import org.openscience.cdk.smiles.SmilesGeneratorTest;
@@ -50,10 +52,12 @@ import org.openscience.cdk.normalize.NormalizerTest;
     SMILESReaderTest.class,
     SMILESWriterTest.class,
     IteratingSMILESReaderTest.class,
+    ParallelIteratingSMILESReaderTest.class,
     DeduceBondSystemToolTest.class,
     MoSSOutputReaderTest.class,
     SmilesParserTest.class,
     SmilesGeneratorTest.class,
+    CanonicalSmilesGeneratorTest.class,
     NormalizerTest.class,
     LingoFingerprinterTest.class,
     FixBondOrdersToolTest.class,
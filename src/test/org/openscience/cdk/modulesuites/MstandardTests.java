@@ -35,9 +35,11 @@ import org.openscience.cdk.fingerprint.FingerprinterTest;
 import org.openscience.cdk.fingerprint.FingerprinterToolTest;
 import org.openscience.cdk.fingerprint.GraphOnlyFingerprinterTest;
 import org.openscience.cdk.fingerprint.HybridizationFingerprinterTest;
+import org.openscience.cdk.fingerprint.PathHasherTest;
 import org.openscience.cdk.geometry.BondToolsTest;
 import org.openscience.cdk.geometry.CrystalGeometryToolsTest;
 import org.openscience.cdk.geometry.GeometryToolsTest;
+import org.openscience.cdk.geometry.SpatialGridTest;
 import org.openscience.cdk.geometry.volume.VABCVolumeTest;
 import org.openscience.cdk.graph.AtomContainerAtomPermutorTest;
 import org.openscience.cdk.graph.AtomContainerBondPermutorTest;
@@ -54,6 +56,7 @@ import org.openscience.cdk.graph.rebond.PointTest;
 import org.openscience.cdk.graph.rebond.RebondToolTest;
 import org.openscience.cdk.isomorphism.IsomorphismTesterTest;
 import org.openscience.cdk.isomorphism.UniversalIsomorphismTesterTest;
+import org.openscience.cdk.isomorphism.VentoFoggiaTest;
 import org.openscience.cdk.isomorphism.mcss.RGraphTest;
 import org.openscience.cdk.isomorphism.mcss.RMapTest;
 import org.openscience.cdk.isomorphism.mcss.RNodeTest;
@@ -125,9 +128,11 @@ import org.openscience.cdk.validate.ProblemMarkerTest;
     DictRefTest.class,
     CrystalGeometryToolsTest.class,
     GeometryToolsTest.class,
+    SpatialGridTest.class,
     MinimalPathIteratorTest.class,
     ConnectivityCheckerTest.class,
     UniversalIsomorphismTesterTest.class,
+    VentoFoggiaTest.class,
     IsomorphismTesterTest.class,
     RMapTest.class,
     RGraphTest.class,
@@ -153,6 +158,7 @@ import org.openscience.cdk.validate.ProblemMarkerTest;
     // from cdk.test.fingerprint
     FingerprinterTest.class,
     HybridizationFingerprinterTest.class,
+    PathHasherTest.class,
     GraphOnlyFingerprinterTest.class,
     FingerprinterToolTest.class,
     ProblemMarkerTest.class,
@@ -0,0 +1,149 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.protein;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.vecmath.Point3d;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.ChemFile;
+import org.openscience.cdk.interfaces.IBioPolymer;
+import org.openscience.cdk.interfaces.IChemFile;
+import org.openscience.cdk.io.PDBReader;
+
+/**
+ * @cdk.module test-extra
+ */
+public class ProteinPocketFinderTest extends CDKTestCase {
+
+    private static IBioPolymer read(String filename) throws Exception {
+        InputStream ins = ProteinPocketFinderTest.class.getClassLoader().getResourceAsStream(filename);
+        PDBReader reader = new PDBReader(ins);
+        IChemFile chemFile = reader.read(new ChemFile());
+        reader.close();
+        return (IBioPolymer) chemFile.getChemSequence(0).getChemModel(0).getMoleculeSet().getAtomContainer(0);
+    }
+
+    private static ProteinPocketFinder finder(IBioPolymer protein, int threads) {
+        ProteinPocketFinder finder = new ProteinPocketFinder();
+        finder.setProtein(protein);
+        finder.setThreads(threads);
+        finder.createCubicGrid();
+        finder.sitefinder();
+        return finder;
+    }
+
+    /**
+     * Point3d does not override equals(Object), so compare the coordinates.
+     */
+    private static void assertPockets(List<List<Point3d>> expected, List<List<Point3d>> actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(expected.get(i).size(), actual.get(i).size());
+            for (int j = 0; j < expected.get(i).size(); j++)
+                Assert.assertEquals(0.0, expected.get(i).get(j).distance(actual.get(i).get(j)), 0.0);
+        }
+    }
+
+    @Test
+    public void testSitefinder() throws Exception {
+        ProteinPocketFinder finder = finder(read("data/pdb/1CRN.pdb"), 1);
+        List<List<Point3d>> pockets = finder.getPockets();
+        Assert.assertEquals(6, pockets.size());
+        Assert.assertEquals(340, pockets.get(0).size());
+        for (int i = 0; i < pockets.size(); i++) {
+            Assert.assertTrue(pockets.get(i).size() >= finder.getPocketSize());
+            Set<String> unique = new HashSet<String>();
+            for (Point3d point : pockets.get(i))
+                unique.add(point.toString());
+            Assert.assertEquals(pockets.get(i).size(), unique.size());
+            if (i > 0)
+                Assert.assertTrue(pockets.get(i - 1).size() >= pockets.get(i).size());
+        }
+    }
+
+    @Test
+    public void testSetThreads() throws Exception {
+        IBioPolymer protein = read("data/pdb/1CRN.pdb");
+        ProteinPocketFinder serial = finder(protein, 1);
+        ProteinPocketFinder parallel = finder(protein, 3);
+        Assert.assertEquals(3, parallel.getThreads());
+        double[][][] expected = serial.getGrid(), actual = parallel.getGrid();
+        Assert.assertEquals(expected.length, actual.length);
+        for (int x = 0; x < expected.length; x++)
+            for (int y = 0; y < expected[x].length; y++)
+                Assert.assertArrayEquals(expected[x][y], actual[x][y], 0.0);
+        assertPockets(serial.getPockets(), parallel.getPockets());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetThreads_Zero() {
+        new ProteinPocketFinder().setThreads(0);
+    }
+
+    @Test
+    public void testGetGrid() {
+        ProteinPocketFinder finder = new ProteinPocketFinder();
+        double[][][] grid = new double[2][3][4];
+        grid[1][2][3] = -3;
+        grid[0][1][2] = 5;
+        finder.setGrid(grid);
+        double[][][] copy = finder.getGrid();
+        Assert.assertNotSame(grid, copy);
+        Assert.assertEquals(2, copy.length);
+        Assert.assertEquals(3, copy[0].length);
+        Assert.assertEquals(4, copy[0][0].length);
+        Assert.assertEquals(-3, copy[1][2][3], 0.0);
+        Assert.assertEquals(5, copy[0][1][2], 0.0);
+    }
+
+    /**
+     * The pockets of a batch are the ones found for each biopolymer alone.
+     */
+    @Test
+    public void testSitefinder_List() throws Exception {
+        List<IBioPolymer> proteins = new ArrayList<IBioPolymer>();
+        proteins.add(read("data/pdb/1CRN.pdb"));
+        proteins.add(read("data/pdb/1PN8.pdb"));
+        proteins.add(read("data/pdb/1CRN.pdb"));
+        ProteinPocketFinder batch = new ProteinPocketFinder();
+        batch.setThreads(2);
+        List<List<List<Point3d>>> pockets = batch.sitefinder(proteins);
+        Assert.assertEquals(3, pockets.size());
+        Assert.assertSame(proteins.get(2), batch.getProtein());
+        for (int i = 0; i < proteins.size(); i++) {
+            ProteinPocketFinder single = finder(proteins.get(i), 1);
+            Assert.assertEquals(single.getPockets().size(), pockets.get(i).size());
+            for (int j = 0; j < pockets.get(i).size(); j++)
+                Assert.assertEquals(single.getPockets().get(j).size(), pockets.get(i).get(j).size());
+        }
+        assertPockets(pockets.get(0), pockets.get(2));
+    }
+}
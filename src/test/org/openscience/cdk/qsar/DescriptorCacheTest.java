@@ -0,0 +1,168 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.qsar;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IRingSet;
+import org.openscience.cdk.smiles.SmilesParser;
+
+/**
+ * @cdk.module test-qsarmolecular
+ */
+public class DescriptorCacheTest extends CDKTestCase {
+
+    private final SmilesParser sp = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+
+    @Test public void testOpen() throws Exception {
+        IAtomContainer  outer = sp.parseSmiles("CCO");
+        IAtomContainer  inner = sp.parseSmiles("CCN");
+        DescriptorCache first = DescriptorCache.open(outer);
+        Assert.assertSame(outer, first.getMolecule());
+        DescriptorCache second = DescriptorCache.open(inner);
+        DescriptorCache.getTopologicalDistances(inner);
+        DescriptorCache.getTopologicalDistances(inner);
+        Assert.assertEquals(1, second.getReusedCount());
+        second.close();
+        DescriptorCache.getTopologicalDistances(inner);
+        Assert.assertEquals(1, second.getReusedCount());
+        DescriptorCache.getTopologicalDistances(outer);
+        DescriptorCache.getTopologicalDistances(outer);
+        Assert.assertEquals(1, first.getReusedCount());
+        first.close();
+        DescriptorCache.getTopologicalDistances(outer);
+        Assert.assertEquals(1, first.getReusedCount());
+    }
+
+    @Test public void testCopies() throws Exception {
+        IAtomContainer  molecule = sp.parseSmiles("OC(=O)c1ccccc1");
+        DescriptorCache cache    = DescriptorCache.open(molecule);
+        try {
+            IAtomContainer copy = DescriptorCache.getCopy(molecule);
+            Assert.assertNotSame(molecule, copy);
+            Assert.assertEquals(molecule.getAtomCount(), copy.getAtomCount());
+
+            IAtomContainer explicit1 = DescriptorCache.getExplicitHydrogenCopy(molecule);
+            IAtomContainer explicit2 = DescriptorCache.getExplicitHydrogenCopy(molecule);
+            Assert.assertNotSame(explicit1, explicit2);
+            Assert.assertEquals(15, explicit1.getAtomCount());
+            Assert.assertEquals(15, explicit2.getAtomCount());
+            Assert.assertNotNull(explicit1.getAtom(0).getAtomTypeName());
+
+            IAtomContainer heavy = DescriptorCache.getHydrogenFreeCopy(molecule);
+            Assert.assertEquals(9, heavy.getAtomCount());
+            IAtomContainer configured = DescriptorCache.getConfiguredHydrogenFreeCopy(molecule);
+            Assert.assertEquals(9, configured.getAtomCount());
+            Assert.assertEquals(1, configured.getAtom(0).getImplicitHydrogenCount().intValue());
+            // copies of the same shape share results
+            DescriptorCache.getTopologicalDistances(heavy);
+            DescriptorCache.getTopologicalDistances(DescriptorCache.getHydrogenFreeCopy(molecule));
+            Assert.assertEquals(1, cache.getReusedCount());
+            DescriptorCache.getTopologicalDistances(configured);
+            DescriptorCache.getTopologicalDistances(DescriptorCache.getConfiguredHydrogenFreeCopy(molecule));
+            Assert.assertEquals(2, cache.getReusedCount());
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test public void testRings() throws Exception {
+        IAtomContainer  molecule = sp.parseSmiles("c1ccc2ccccc2c1");
+        DescriptorCache cache    = DescriptorCache.open(molecule);
+        try {
+            IAtomContainer copy = DescriptorCache.getCopy(molecule);
+            IRingSet       sssr = DescriptorCache.getSSSR(copy);
+            Assert.assertEquals(2, sssr.getAtomContainerCount());
+            Assert.assertTrue(copy.contains(sssr.getAtomContainer(0).getAtom(0)));
+            Assert.assertTrue(copy.contains(sssr.getAtomContainer(1).getBond(0)));
+            Assert.assertEquals(3, DescriptorCache.getAllRings(molecule).getAtomContainerCount());
+            Assert.assertEquals(3, DescriptorCache.getAllRings(copy).getAtomContainerCount());
+            Assert.assertTrue(molecule.contains(DescriptorCache.getAllRings(molecule).getAtomContainer(2).getAtom(0)));
+
+            // a changed copy is not used with the cached rings
+            copy.removeBond(0);
+            Assert.assertEquals(1, DescriptorCache.getSSSR(copy).getAtomContainerCount());
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test public void testDistances() throws Exception {
+        IAtomContainer molecule = sp.parseSmiles("CCCC");
+        int[][] expected = DescriptorCache.getTopologicalDistances(molecule);
+        Assert.assertEquals(3, expected[0][3]);
+        DescriptorCache cache = DescriptorCache.open(molecule);
+        try {
+            int[][] distances = DescriptorCache.getTopologicalDistances(molecule);
+            for (int i = 0; i < expected.length; i++)
+                Assert.assertArrayEquals(expected[i], distances[i]);
+            // the cached matrix is not changed through the one handed out
+            distances[0][3] = 0;
+            distances = DescriptorCache.getTopologicalDistances(DescriptorCache.getCopy(molecule));
+            Assert.assertEquals(1, cache.getReusedCount());
+            for (int i = 0; i < expected.length; i++)
+                Assert.assertArrayEquals(expected[i], distances[i]);
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test public void testCharges() throws Exception {
+        IAtomContainer molecule = sp.parseSmiles("CC(=O)O");
+        double[] expected = DescriptorCache.getGasteigerMarsiliCharges(molecule);
+        DescriptorCache cache = DescriptorCache.open(molecule);
+        try {
+            double[] charges = DescriptorCache.getGasteigerMarsiliCharges(molecule);
+            Assert.assertArrayEquals(expected, charges, 0.0);
+            charges[0] = 1.0;
+            Assert.assertArrayEquals(expected, DescriptorCache.getGasteigerMarsiliCharges(molecule), 0.0);
+            Assert.assertEquals(1, cache.getReusedCount());
+        } finally {
+            cache.close();
+        }
+    }
+
+    /**
+     * A molecule which is changed without changing the number of atoms and
+     * bonds does not get the results calculated before the change.
+     */
+    @Test public void testChangedMolecule() throws Exception {
+        IAtomContainer  molecule = sp.parseSmiles("CC(=O)O");
+        DescriptorCache cache    = DescriptorCache.open(molecule);
+        double[]        before, after;
+        try {
+            before = DescriptorCache.getGasteigerMarsiliCharges(molecule);
+            molecule.getAtom(2).setSymbol("S");
+            molecule.getAtom(2).setAtomicNumber(16);
+            after = DescriptorCache.getGasteigerMarsiliCharges(molecule);
+            Assert.assertEquals(0, cache.getReusedCount());
+        } finally {
+            cache.close();
+        }
+        Assert.assertFalse(before[2] == after[2]);
+        Assert.assertArrayEquals(DescriptorCache.getGasteigerMarsiliCharges(molecule), after, 0.0);
+    }
+}
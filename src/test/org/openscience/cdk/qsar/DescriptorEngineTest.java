@@ -23,10 +23,16 @@
  */
 package org.openscience.cdk.qsar;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
 import org.junit.Assert;
 import org.junit.Test;
 import org.openscience.cdk.CDKTestCase;
 import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.IImplementationSpecification;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.modeling.builder3d.ModelBuilder3D;
 import org.openscience.cdk.modeling.builder3d.TemplateHandler3D;
@@ -160,5 +166,129 @@ public class DescriptorEngineTest extends CDKTestCase {
     	Assert.assertEquals(loadedDescriptors, engine.getDescriptorClassNames().size());
     	Assert.assertEquals(loadedDescriptors, engine.getDescriptorSpecifications().size());
     }
-}
 
+    private static final String[] SMILES = {
+        "CC(=O)Oc1ccccc1C(=O)O", "C1CCC2CCCCC2C1", "Clc1ccc(cc1)C(c1ccccc1)N1CCN(CC1)CCOCC(=O)O",
+        "OCC(O)C(O)C(O)C(O)CO", "c1ccc2ccccc2c1", "C[N+](C)(C)CC([O-])=O"
+    };
+
+    /**
+     * The values stored by the engine, which shares intermediate results
+     * between the descriptors, are those of the descriptors calculated
+     * without sharing.
+     */
+    @Test
+    public void testProcess_Cache() throws Exception {
+        DescriptorEngine engine = new DescriptorEngine(IMolecularDescriptor.class,
+                                                       DefaultChemObjectBuilder.getInstance());
+        SmilesParser sp = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        for (String smi : SMILES) {
+            IAtomContainer molecule = sp.parseSmiles(smi);
+            List<String>   expected = new ArrayList<String>();
+            for (IDescriptor descriptor : engine.getDescriptorInstances())
+                expected.add(describe(((IMolecularDescriptor) descriptor).calculate(molecule)));
+
+            molecule = sp.parseSmiles(smi);
+            engine.process(molecule);
+            Assert.assertEquals(smi, expected, values(molecule, engine.getDescriptorSpecifications()));
+
+            int calculated = 0;
+            for (String value : expected)
+                if (value != null) calculated++;
+            Assert.assertTrue(calculated > expected.size() / 2);
+        }
+    }
+
+    @Test
+    public void testProcess_Threads() throws Exception {
+        DescriptorEngine engine = new DescriptorEngine(IMolecularDescriptor.class,
+                                                       DefaultChemObjectBuilder.getInstance());
+        SmilesParser sp = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        for (String smi : SMILES) {
+            IAtomContainer molecule = sp.parseSmiles(smi);
+            engine.setThreads(1);
+            engine.process(molecule);
+            List<String> expected = values(molecule, engine.getDescriptorSpecifications());
+
+            molecule = sp.parseSmiles(smi);
+            engine.setThreads(3);
+            engine.process(molecule);
+            Assert.assertEquals(smi, expected, values(molecule, engine.getDescriptorSpecifications()));
+        }
+
+        // atomic descriptors are stored on the atoms of the molecule
+        DescriptorEngine atomic = new DescriptorEngine(IAtomicDescriptor.class,
+                                                       DefaultChemObjectBuilder.getInstance());
+        atomic.setThreads(3);
+        IAtomContainer molecule = sp.parseSmiles("CC(=O)O");
+        atomic.process(molecule);
+        for (int i = 0; i < molecule.getAtomCount(); i++)
+            Assert.assertFalse(molecule.getAtom(i).getProperties().isEmpty());
+    }
+
+    @Test
+    public void testProcess_Iterator() throws Exception {
+        DescriptorEngine engine = new DescriptorEngine(IMolecularDescriptor.class,
+                                                       DefaultChemObjectBuilder.getInstance());
+        SmilesParser         sp       = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        List<List<String>>   expected = new ArrayList<List<String>>();
+        List<IAtomContainer> input    = new ArrayList<IAtomContainer>();
+        for (String smi : SMILES) {
+            IAtomContainer molecule = sp.parseSmiles(smi);
+            engine.process(molecule);
+            expected.add(values(molecule, engine.getDescriptorSpecifications()));
+            input.add(sp.parseSmiles(smi));
+        }
+
+        engine.setThreads(2);
+        Iterator<IAtomContainer> processed = engine.process(input.iterator());
+        for (int i = 0; i < SMILES.length; i++) {
+            Assert.assertTrue(processed.hasNext());
+            IAtomContainer molecule = processed.next();
+            Assert.assertSame(input.get(i), molecule);
+            Assert.assertEquals(SMILES[i], expected.get(i), values(molecule, engine.getDescriptorSpecifications()));
+        }
+        Assert.assertFalse(processed.hasNext());
+    }
+
+    /**
+     * Threads which end while the returned iterator is not used are replaced
+     * by threads which still find a set of descriptors.
+     */
+    @Test
+    public void testProcess_Iterator_Idle() throws Exception {
+        DescriptorEngine engine = new DescriptorEngine(
+            Arrays.asList("org.openscience.cdk.qsar.descriptors.molecular.AtomCountDescriptor"),
+            DefaultChemObjectBuilder.getInstance());
+        SmilesParser         sp    = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        List<IAtomContainer> input = new ArrayList<IAtomContainer>();
+        for (String smi : SMILES)
+            input.add(sp.parseSmiles(smi));
+
+        engine.setThreads(2);
+        engine.keepAlive = 20;
+        Iterator<IAtomContainer> processed = engine.process(input.iterator());
+        for (int i = 0; i < SMILES.length; i++) {
+            IAtomContainer molecule = processed.next();
+            Assert.assertSame(input.get(i), molecule);
+            Assert.assertNotNull(values(molecule, engine.getDescriptorSpecifications()).get(0));
+            // longer than the idle threads are kept
+            Thread.sleep(200);
+        }
+        Assert.assertFalse(processed.hasNext());
+    }
+
+    private static List<String> values(IAtomContainer molecule, List<IImplementationSpecification> specifications) {
+        List<String> values = new ArrayList<String>();
+        for (IImplementationSpecification specification : specifications)
+            values.add(describe((DescriptorValue) molecule.getProperty(specification)));
+        return values;
+    }
+
+    /**
+     * The value of a descriptor, or null if it could not be calculated.
+     */
+    private static String describe(DescriptorValue value) {
+        return value == null || value.getException() != null ? null : value.getValue().toString();
+    }
+}
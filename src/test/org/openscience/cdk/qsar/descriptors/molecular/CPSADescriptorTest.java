@@ -72,7 +72,7 @@ public class CPSADescriptorTest extends MolecularDescriptorTest {
         Assert.assertEquals(0, retval.get(28), 0.0001);
         Assert.assertEquals(1, retval.get(27), 0.0001);
         Assert.assertEquals(0, retval.get(26), 0.0001);
-        Assert.assertEquals(356.8849, retval.get(25), 0.0001);
+        Assert.assertEquals(231.6618, retval.get(25), 0.0001);
 
     }
 
@@ -0,0 +1,197 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.silent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openscience.cdk.interfaces.AbstractAtomContainerTest;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.interfaces.IChemObject;
+import org.openscience.cdk.interfaces.ITestObjectBuilder;
+
+/**
+ * Checks the functionality of the IndexedAtomContainer.
+ *
+ * @cdk.module test-silent
+ */
+public class IndexedAtomContainerTest extends AbstractAtomContainerTest {
+
+    @BeforeClass public static void setUp() {
+        setTestObjectBuilder(
+            new ITestObjectBuilder() {
+                public IChemObject newTestObject() {
+                    return new IndexedAtomContainer();
+                }
+            }
+        );
+    }
+
+    @Test public void testIndexedAtomContainer_IAtomContainer() {
+        IAtomContainer chain = chain(new AtomContainer(), 5);
+        IAtomContainer copy  = new IndexedAtomContainer(chain);
+        Assert.assertEquals(5, copy.getAtomCount());
+        Assert.assertEquals(4, copy.getBondCount());
+        Assert.assertEquals(4, copy.getAtomNumber(chain.getAtom(4)));
+        Assert.assertEquals(2, copy.getConnectedAtomsCount(chain.getAtom(2)));
+    }
+
+    @Test public void testIndexAfterRemoval() {
+        IAtomContainer container = chain(new IndexedAtomContainer(), 5);
+        IAtom          middle    = container.getAtom(2);
+        IAtom          last      = container.getAtom(4);
+        Assert.assertEquals(4, container.getAtomNumber(last));
+        container.removeAtomAndConnectedElectronContainers(middle);
+        Assert.assertEquals(-1, container.getAtomNumber(middle));
+        Assert.assertEquals(3, container.getAtomNumber(last));
+        Assert.assertEquals(1, container.getConnectedAtomsCount(container.getAtom(1)));
+        Assert.assertNull(container.getBond(container.getAtom(1), middle));
+        Assert.assertEquals(1, container.getBondNumber(container.getAtom(2), last));
+    }
+
+    @Test public void testBondOnly() {
+        IAtom          a1        = new Atom("C");
+        IAtom          a2        = new Atom("O");
+        IBond          bond      = new Bond(a1, a2);
+        IAtomContainer container = new IndexedAtomContainer();
+        container.addBond(bond);
+        Assert.assertEquals(-1, container.getAtomNumber(a1));
+        Assert.assertSame(bond, container.getBond(a1, a2));
+        Assert.assertSame(a2, container.getConnectedAtomsList(a1).get(0));
+    }
+
+    /**
+     * Random edits are applied to an indexed and a plain container, all
+     * lookups must agree.
+     */
+    @Test public void testRandomEdits() {
+        Random         random  = new Random(42);
+        IAtomContainer plain   = new AtomContainer();
+        IAtomContainer indexed = new IndexedAtomContainer();
+        List<IAtom>    atoms   = new ArrayList<IAtom>();
+        for (int i = 0; i < 30; i++) {
+            IAtom atom = new Atom("C");
+            atoms.add(atom);
+        }
+        for (int step = 0; step < 2000; step++) {
+            int   op = random.nextInt(6);
+            IAtom a  = atoms.get(random.nextInt(atoms.size()));
+            IAtom b  = atoms.get(random.nextInt(atoms.size()));
+            switch (op) {
+                case 0:
+                case 1:
+                    plain.addAtom(a);
+                    indexed.addAtom(a);
+                    break;
+                case 2:
+                    if (a != b && plain.contains(a) && plain.contains(b) && plain.getBond(a, b) == null) {
+                        IBond bond = new Bond(a, b);
+                        plain.addBond(bond);
+                        indexed.addBond(bond);
+                    }
+                    break;
+                case 3:
+                    plain.removeAtomAndConnectedElectronContainers(a);
+                    indexed.removeAtomAndConnectedElectronContainers(a);
+                    break;
+                case 4:
+                    plain.removeBond(a, b);
+                    indexed.removeBond(a, b);
+                    break;
+                case 5:
+                    if (plain.contains(a) && !plain.contains(b)) {
+                        int   n     = plain.getAtomNumber(a);
+                        plain.setAtom(n, b);
+                        indexed.setAtom(n, b);
+                        for (IBond bond : plain.bonds())
+                            for (int j = 0; j < bond.getAtomCount(); j++)
+                                if (bond.getAtom(j) == a) bond.setAtom(b, j);
+                    }
+                    break;
+            }
+            for (IAtom atom : atoms) {
+                Assert.assertEquals(plain.getAtomNumber(atom), indexed.getAtomNumber(atom));
+                Assert.assertEquals(plain.contains(atom), indexed.contains(atom));
+                Assert.assertEquals(plain.getConnectedAtomsList(atom), indexed.getConnectedAtomsList(atom));
+                Assert.assertEquals(plain.getConnectedBondsList(atom), indexed.getConnectedBondsList(atom));
+                Assert.assertEquals(plain.getConnectedAtomsCount(atom), indexed.getConnectedAtomsCount(atom));
+                Assert.assertSame(plain.getBond(atom, b), indexed.getBond(atom, b));
+            }
+            for (IBond bond : plain.bonds())
+                Assert.assertEquals(plain.getBondNumber(bond), indexed.getBondNumber(bond));
+        }
+    }
+
+    // Overwrite default methods: no notifications are expected!
+    
+    @Test public void testNotifyChanged() {
+        ChemObjectTestHelper.testNotifyChanged(newChemObject());
+    }
+    @Test public void testNotifyChanged_SetFlag() {
+        ChemObjectTestHelper.testNotifyChanged_SetFlag(newChemObject());
+    }
+    @Test public void testNotifyChanged_SetFlags() {
+        ChemObjectTestHelper.testNotifyChanged_SetFlags(newChemObject());
+    }
+    @Test public void testNotifyChanged_IChemObjectChangeEvent() {
+        ChemObjectTestHelper.testNotifyChanged_IChemObjectChangeEvent(newChemObject());
+    }
+    @Test public void testStateChanged_IChemObjectChangeEvent() {
+        ChemObjectTestHelper.testStateChanged_IChemObjectChangeEvent(newChemObject());
+    }
+    @Test public void testClone_ChemObjectListeners() throws Exception {
+        ChemObjectTestHelper.testClone_ChemObjectListeners(newChemObject());
+    }
+    @Test public void testAddListener_IChemObjectListener() {
+        ChemObjectTestHelper.testAddListener_IChemObjectListener(newChemObject());
+    }
+    @Test public void testGetListenerCount() {
+        ChemObjectTestHelper.testGetListenerCount(newChemObject());
+    }
+    @Test public void testRemoveListener_IChemObjectListener() {
+        ChemObjectTestHelper.testRemoveListener_IChemObjectListener(newChemObject());
+    }
+    @Test public void testSetNotification_true() {
+        ChemObjectTestHelper.testSetNotification_true(newChemObject());
+    }
+    @Test public void testNotifyChanged_SetProperty() {
+        ChemObjectTestHelper.testNotifyChanged_SetProperty(newChemObject());
+    }
+    @Test public void testNotifyChanged_RemoveProperty() {
+        ChemObjectTestHelper.testNotifyChanged_RemoveProperty(newChemObject());
+    }
+    @Test public void testSetAtoms_removeListener() {
+        ChemObjectTestHelper.testSetAtoms_removeListener(newChemObject());
+    }
+
+    private static IAtomContainer chain(IAtomContainer container, int length) {
+        for (int i = 0; i < length; i++) {
+            container.addAtom(new Atom("C"));
+            if (i > 0)
+                container.addBond(i - 1, i, IBond.Order.SINGLE);
+        }
+        return container;
+    }
+}
@@ -22,6 +22,7 @@ import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.openscience.cdk.AbstractChemObjectBuilderTest;
+import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.interfaces.IChemObjectBuilder;
 
 /**
@@ -43,4 +44,15 @@ public class SilentChemObjectBuilderTest extends AbstractChemObjectBuilderTest {
         Assert.assertTrue(builder instanceof SilentChemObjectBuilder);
     }
 
+    @Test public void testGetIndexedInstance() {
+        IChemObjectBuilder builder = SilentChemObjectBuilder.getIndexedInstance();
+        Assert.assertTrue(builder instanceof SilentChemObjectBuilder);
+        Assert.assertNotSame(SilentChemObjectBuilder.getInstance(), builder);
+        Assert.assertSame(builder, SilentChemObjectBuilder.getIndexedInstance());
+        IAtomContainer container = builder.newInstance(IAtomContainer.class);
+        Assert.assertTrue(container instanceof IndexedAtomContainer);
+        Assert.assertSame(builder, container.getBuilder());
+        Assert.assertFalse(SilentChemObjectBuilder.getInstance().newInstance(IAtomContainer.class) instanceof IndexedAtomContainer);
+    }
+
 }
@@ -0,0 +1,192 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.similarity;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.fingerprint.BitSetFingerprint;
+import org.openscience.cdk.fingerprint.Fingerprinter;
+import org.openscience.cdk.fingerprint.IBitFingerprint;
+import org.openscience.cdk.smiles.SmilesParser;
+
+/**
+ * @cdk.module test-fingerprint
+ */
+public class FingerprintStoreTest extends CDKTestCase {
+
+    @Test public void testFindSimilar() throws Exception {
+        Random          random       = new Random(1);
+        List<BitSet>    fingerprints = randomFingerprints(random, 500, 200);
+        FingerprintStore store       = new FingerprintStore(200);
+        for (BitSet fingerprint : fingerprints)
+            store.add(new BitSetFingerprint(fingerprint));
+        Assert.assertEquals(500, store.size());
+        Assert.assertEquals(200, store.getFingerprintSize());
+
+        for (int i = 0; i < 20; i++) {
+            BitSet query = fingerprints.get(random.nextInt(fingerprints.size()));
+            for (double threshold : new double[]{0.3, 0.5, 0.8, 1.0})
+                assertHits(bruteForce(fingerprints, query, threshold, fingerprints.size()),
+                           store.findSimilar(new BitSetFingerprint(query), threshold));
+        }
+    }
+
+    @Test public void testFindNearest() throws Exception {
+        Random          random       = new Random(2);
+        List<BitSet>    fingerprints = randomFingerprints(random, 500, 200);
+        FingerprintStore store       = new FingerprintStore(200);
+        for (BitSet fingerprint : fingerprints)
+            store.add(new BitSetFingerprint(fingerprint));
+
+        for (int i = 0; i < 20; i++) {
+            BitSet query = randomFingerprints(random, 1, 200).get(0);
+            for (int k : new int[]{1, 5, 50, 1000})
+                assertHits(bruteForce(fingerprints, query, 0, k),
+                           store.findNearest(new BitSetFingerprint(query), k));
+        }
+
+        // adding after a search
+        BitSet query = randomFingerprints(random, 1, 200).get(0);
+        store.add(new BitSetFingerprint(query));
+        List<FingerprintStore.Hit> hits = store.findNearest(new BitSetFingerprint(query), 1);
+        Assert.assertEquals(500, hits.get(0).getIndex());
+        Assert.assertEquals(1.0, hits.get(0).getSimilarity(), 0.0);
+    }
+
+    @Test public void testParallelSearch() throws Exception {
+        Random          random       = new Random(3);
+        List<BitSet>    fingerprints = randomFingerprints(random, 60000, 128);
+        FingerprintStore store       = new FingerprintStore(128);
+        store.setThreads(3);
+        for (BitSet fingerprint : fingerprints)
+            store.add(new BitSetFingerprint(fingerprint));
+        for (int i = 0; i < 3; i++) {
+            BitSet query = fingerprints.get(random.nextInt(fingerprints.size()));
+            assertHits(bruteForce(fingerprints, query, 0.6, fingerprints.size()),
+                       store.findSimilar(new BitSetFingerprint(query), 0.6));
+            assertHits(bruteForce(fingerprints, query, 0, 25),
+                       store.findNearest(new BitSetFingerprint(query), 25));
+        }
+    }
+
+    @Test public void testSaveLoad() throws Exception {
+        Random           random       = new Random(4);
+        List<BitSet>     fingerprints = randomFingerprints(random, 100, 1000);
+        FingerprintStore store        = new FingerprintStore(1000);
+        for (BitSet fingerprint : fingerprints)
+            store.add(new BitSetFingerprint(fingerprint));
+
+        File file = File.createTempFile("fingerprints", ".fps");
+        try {
+            store.save(file);
+            FingerprintStore loaded = FingerprintStore.load(file);
+            Assert.assertEquals(100, loaded.size());
+            Assert.assertEquals(1000, loaded.getFingerprintSize());
+            for (int i = 0; i < fingerprints.size(); i++)
+                Assert.assertEquals(fingerprints.get(i), loaded.getFingerprint(i));
+            BitSetFingerprint query = new BitSetFingerprint(fingerprints.get(7));
+            assertSameHits(store.findNearest(query, 10), loaded.findNearest(query, 10));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test public void testFingerprinter() throws Exception {
+        SmilesParser     sp            = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        Fingerprinter    fingerprinter = new Fingerprinter();
+        FingerprintStore store         = new FingerprintStore(fingerprinter);
+        String[]         smiles        = {"c1ccccc1", "c1ccccc1O", "CCCCCC", "c1ccc2ccccc2c1", "CCO"};
+        for (String smi : smiles)
+            store.add(sp.parseSmiles(smi));
+
+        IBitFingerprint query = fingerprinter.getBitFingerprint(sp.parseSmiles("c1ccccc1O"));
+        List<FingerprintStore.Hit> hits = store.findNearest(query, 2);
+        Assert.assertEquals(1, hits.get(0).getIndex());
+        Assert.assertEquals(1.0, hits.get(0).getSimilarity(), 0.0);
+        Assert.assertEquals(Tanimoto.calculate(query, fingerprinter.getBitFingerprint(sp.parseSmiles(smiles[hits.get(1).getIndex()]))),
+                            hits.get(1).getSimilarity(), 1e-9);
+    }
+
+    private static List<BitSet> randomFingerprints(Random random, int n, int size) {
+        List<BitSet> fingerprints = new ArrayList<BitSet>(n);
+        for (int i = 0; i < n; i++) {
+            BitSet fingerprint = new BitSet(size);
+            double density     = 0.05 + 0.4 * random.nextDouble();
+            for (int bit = 0; bit < size; bit++)
+                if (random.nextDouble() < density)
+                    fingerprint.set(bit);
+            fingerprints.add(fingerprint);
+        }
+        return fingerprints;
+    }
+
+    /**
+     * The hits by comparing the query to every fingerprint, most similar
+     * first and of equal similarity the lower index first.
+     */
+    private static List<double[]> bruteForce(List<BitSet> fingerprints, BitSet query, double threshold, int k) {
+        List<double[]> hits = new ArrayList<double[]>();
+        for (int i = 0; i < fingerprints.size(); i++) {
+            BitSet common = (BitSet) query.clone();
+            common.and(fingerprints.get(i));
+            int    union      = query.cardinality() + fingerprints.get(i).cardinality() - common.cardinality();
+            double similarity = union == 0 ? 0 : (double) common.cardinality() / union;
+            if (similarity >= threshold)
+                hits.add(new double[]{i, similarity});
+        }
+        Collections.sort(hits, new Comparator<double[]>() {
+            public int compare(double[] a, double[] b) {
+                if (a[1] != b[1])
+                    return a[1] > b[1] ? -1 : 1;
+                return Double.compare(a[0], b[0]);
+            }
+        });
+        return hits.size() > k ? hits.subList(0, k) : hits;
+    }
+
+    private static void assertHits(List<double[]> expected, List<FingerprintStore.Hit> actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals((int) expected.get(i)[0], actual.get(i).getIndex());
+            Assert.assertEquals(expected.get(i)[1], actual.get(i).getSimilarity(), 1e-12);
+        }
+    }
+
+    private static void assertSameHits(List<FingerprintStore.Hit> expected, List<FingerprintStore.Hit> actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(expected.get(i).getIndex(), actual.get(i).getIndex());
+            Assert.assertEquals(expected.get(i).getSimilarity(), actual.get(i).getSimilarity(), 0.0);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.similarity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.fingerprint.IntArrayCountFingerprint;
+import org.openscience.cdk.similarity.SparseCountVector.Measure;
+
+/**
+ * @cdk.module test-fingerprint
+ */
+public class MinHashIndexTest extends CDKTestCase {
+
+    @Test public void testAdd() {
+        MinHashIndex         index    = new MinHashIndex();
+        Map<String, Integer> features = SparseCountVectorTest.randomFeatures(new Random(1), 30);
+        Assert.assertEquals(0, index.add(new IntArrayCountFingerprint(features)));
+        Assert.assertEquals(1, index.add(SparseCountVector.of(features)));
+        Assert.assertEquals(2, index.size());
+        Assert.assertEquals(SparseCountVector.of(features), index.getVector(0));
+    }
+
+    @Test public void testCandidates() {
+        Random                  random  = new Random(2);
+        MinHashIndex            index   = new MinHashIndex();
+        List<SparseCountVector> vectors = randomVectors(random, 2000);
+        for (SparseCountVector vector : vectors)
+            index.add(vector);
+
+        // identical vectors are always candidates
+        for (int i = 0; i < 2000; i += 97) {
+            int[] candidates = index.candidates(vectors.get(i));
+            Assert.assertTrue(Arrays.binarySearch(candidates, i) >= 0);
+            Assert.assertTrue(candidates.length < 2000);
+        }
+    }
+
+    @Test public void testFindSimilar() {
+        Random                  random  = new Random(3);
+        MinHashIndex            index   = new MinHashIndex();
+        List<SparseCountVector> vectors = randomVectors(random, 2000);
+        for (SparseCountVector vector : vectors)
+            index.add(vector);
+
+        int expected = 0, found = 0;
+        for (int q = 0; q < 50; q++) {
+            SparseCountVector   query = vectors.get(random.nextInt(vectors.size()));
+            List<FingerprintStore.Hit> hits = index.findSimilar(query, 0.7);
+            for (FingerprintStore.Hit hit : hits) {
+                Assert.assertEquals(query.minMax(vectors.get(hit.getIndex())), hit.getSimilarity(), 0.0);
+                Assert.assertTrue(hit.getSimilarity() >= 0.7);
+            }
+            for (int i = 1; i < hits.size(); i++)
+                Assert.assertTrue(hits.get(i - 1).getSimilarity() >= hits.get(i).getSimilarity());
+            for (SparseCountVector vector : vectors) {
+                if (query.minMax(vector) >= 0.7)
+                    expected++;
+            }
+            found += hits.size();
+        }
+        // the default bands find almost all pairs above 0.7
+        Assert.assertTrue(found <= expected);
+        Assert.assertTrue(found >= 0.95 * expected);
+    }
+
+    @Test public void testFindNearest() {
+        Random                  random  = new Random(4);
+        MinHashIndex            index   = new MinHashIndex(Measure.TANIMOTO, 16, 2);
+        List<SparseCountVector> vectors = randomVectors(random, 500);
+        for (SparseCountVector vector : vectors)
+            index.add(vector);
+        SparseCountVector query = vectors.get(42);
+        List<FingerprintStore.Hit> hits = index.findNearest(query, 5);
+        Assert.assertEquals(5, hits.size());
+        Assert.assertEquals(42, hits.get(0).getIndex());
+        Assert.assertEquals(1.0, hits.get(0).getSimilarity(), 1e-12);
+        Assert.assertEquals(query.tanimoto(vectors.get(hits.get(4).getIndex())), hits.get(4).getSimilarity(), 0.0);
+
+        // added after a search
+        index.add(query);
+        hits = index.findNearest(query, 2);
+        Assert.assertEquals(42, hits.get(0).getIndex());
+        Assert.assertEquals(500, hits.get(1).getIndex());
+    }
+
+    /**
+     * Vectors in families of a random parent and variations of it, so that
+     * there are similar pairs.
+     */
+    private static List<SparseCountVector> randomVectors(Random random, int n) {
+        List<SparseCountVector> vectors = new ArrayList<SparseCountVector>();
+        Map<String, Integer>    parent  = null;
+        for (int i = 0; i < n; i++) {
+            if (i % 10 == 0)
+                parent = SparseCountVectorTest.randomFeatures(random, 40);
+            Map<String, Integer> child = new HashMap<String, Integer>(parent);
+            for (int j = 0; j < 3; j++)
+                child.put("f" + random.nextInt(100), 1 + random.nextInt(5));
+            vectors.add(SparseCountVector.of(child));
+        }
+        return vectors;
+    }
+}
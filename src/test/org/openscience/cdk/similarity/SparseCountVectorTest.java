@@ -0,0 +1,143 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.similarity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.fingerprint.ICountFingerprint;
+import org.openscience.cdk.fingerprint.IntArrayCountFingerprint;
+import org.openscience.cdk.similarity.SparseCountVector.Measure;
+
+/**
+ * @cdk.module test-fingerprint
+ */
+public class SparseCountVectorTest extends CDKTestCase {
+
+    @Test public void testOf() {
+        SparseCountVector vector = SparseCountVector.of(new int[]{5, -2, 5, 7, 1},
+                                                        new int[]{1,  2, 3, 0, 4});
+        Assert.assertEquals(3, vector.size());
+        Assert.assertEquals(-2, vector.getHash(0));
+        Assert.assertEquals(2, vector.getCount(0));
+        Assert.assertEquals(1, vector.getHash(1));
+        Assert.assertEquals(4, vector.getCount(1));
+        Assert.assertEquals(5, vector.getHash(2));
+        Assert.assertEquals(4, vector.getCount(2));
+        Assert.assertEquals(10, vector.getTotalCount());
+        Assert.assertEquals(vector, SparseCountVector.of(new int[]{-2, 1, 5}, new int[]{2, 4, 4}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOf_NegativeCount() {
+        SparseCountVector.of(new int[]{1, 2}, new int[]{1, -1});
+    }
+
+    @Test public void testOf_ICountFingerprint() {
+        Map<String, Integer> features = randomFeatures(new Random(1), 50);
+        IntArrayCountFingerprint fingerprint = new IntArrayCountFingerprint(features);
+        SparseCountVector vector = SparseCountVector.of(fingerprint);
+        Assert.assertEquals(fingerprint.numOfPopulatedbins(), vector.size());
+        for (int i = 0; i < vector.size(); i++) {
+            Assert.assertEquals(fingerprint.getHash(i), vector.getHash(i));
+            Assert.assertEquals(fingerprint.getCount(i), vector.getCount(i));
+        }
+        fingerprint.setBehaveAsBitFingerprint(true);
+        Assert.assertEquals(vector.size(), SparseCountVector.of(fingerprint).getTotalCount());
+    }
+
+    @Test public void testOf_Map() {
+        Map<String, Integer> features = randomFeatures(new Random(2), 50);
+        Assert.assertEquals(SparseCountVector.of(new IntArrayCountFingerprint(features)),
+                            SparseCountVector.of(features));
+    }
+
+    @Test public void testTanimoto() {
+        Random random = new Random(3);
+        for (int i = 0; i < 50; i++) {
+            ICountFingerprint fp1 = new IntArrayCountFingerprint(randomFeatures(random, 40));
+            ICountFingerprint fp2 = new IntArrayCountFingerprint(randomFeatures(random, 40));
+            Assert.assertEquals(Tanimoto.calculate(fp1, fp2),
+                                SparseCountVector.of(fp1).tanimoto(SparseCountVector.of(fp2)), 1e-12);
+        }
+        Map<String, Integer> features = randomFeatures(random, 40);
+        Assert.assertEquals(1.0, SparseCountVector.of(features).tanimoto(SparseCountVector.of(features)), 1e-12);
+    }
+
+    @Test public void testDice() {
+        SparseCountVector a = SparseCountVector.of(new int[]{1, 2, 3}, new int[]{1, 2, 3});
+        SparseCountVector b = SparseCountVector.of(new int[]{2, 3, 4}, new int[]{1, 1, 5});
+        // xy = 2 + 3, x = 14, y = 27
+        Assert.assertEquals(10.0 / 41, a.dice(b), 1e-12);
+        Assert.assertEquals(a.dice(b), b.dice(a), 0.0);
+    }
+
+    @Test public void testCosine() {
+        SparseCountVector a = SparseCountVector.of(new int[]{1, 2, 3}, new int[]{1, 2, 3});
+        SparseCountVector b = SparseCountVector.of(new int[]{2, 3, 4}, new int[]{1, 1, 5});
+        Assert.assertEquals(5 / Math.sqrt(14 * 27), a.cosine(b), 1e-12);
+        Assert.assertEquals(0.0, a.cosine(SparseCountVector.of(new int[0], new int[0])), 0.0);
+    }
+
+    @Test public void testMinMax() {
+        Random random = new Random(4);
+        for (int i = 0; i < 50; i++) {
+            ICountFingerprint fp1 = new IntArrayCountFingerprint(randomFeatures(random, 40));
+            ICountFingerprint fp2 = new IntArrayCountFingerprint(randomFeatures(random, 40));
+            Assert.assertEquals(Tanimoto.method2(fp1, fp2),
+                                SparseCountVector.of(fp1).minMax(SparseCountVector.of(fp2)), 1e-12);
+        }
+    }
+
+    @Test public void testScore() {
+        Random                  random  = new Random(5);
+        SparseCountVector       query   = SparseCountVector.of(randomFeatures(random, 40));
+        List<SparseCountVector> targets = new ArrayList<SparseCountVector>();
+        for (int i = 0; i < 20; i++)
+            targets.add(SparseCountVector.of(randomFeatures(random, 40)));
+        double[] buffer = new double[25];
+        for (Measure measure : Measure.values()) {
+            double[] scores = SparseCountVector.score(measure, query, targets, buffer);
+            Assert.assertSame(buffer, scores);
+            for (int i = 0; i < targets.size(); i++)
+                Assert.assertEquals(SparseCountVector.similarity(measure, query, targets.get(i)), scores[i], 0.0);
+        }
+        Assert.assertEquals(20, SparseCountVector.score(Measure.DICE, query, targets, null).length);
+    }
+
+    /**
+     * Features drawn from a small alphabet so that two sets overlap.
+     */
+    static Map<String, Integer> randomFeatures(Random random, int n) {
+        Map<String, Integer> features = new HashMap<String, Integer>();
+        for (int i = 0; i < n; i++)
+            features.put("f" + random.nextInt(100), 1 + random.nextInt(5));
+        return features;
+    }
+}
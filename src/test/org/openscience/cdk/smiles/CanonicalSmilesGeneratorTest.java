@@ -0,0 +1,165 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.smiles;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.graph.AtomContainerAtomPermutor;
+import org.openscience.cdk.graph.AtomContainerBondPermutor;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+
+/**
+ * @cdk.module test-smiles
+ */
+public class CanonicalSmilesGeneratorTest extends CDKTestCase {
+
+    private final SmilesParser sp = new SmilesParser(SilentChemObjectBuilder.getInstance());
+
+    @Test public void testCreate() throws Exception {
+        CanonicalSmilesGenerator generator = new CanonicalSmilesGenerator();
+        Assert.assertEquals("CCO", generator.create(sp.parseSmiles("OCC")));
+        Assert.assertEquals("CCO", generator.create(sp.parseSmiles("CCO")));
+        Assert.assertEquals("C#N", generator.create(sp.parseSmiles("N#C")));
+        Assert.assertEquals("[NH4+]", generator.create(sp.parseSmiles("[NH4+]")));
+        Assert.assertEquals("[13CH4]", generator.create(sp.parseSmiles("[13CH4]")));
+        Assert.assertEquals("", generator.create(SilentChemObjectBuilder.getInstance().newInstance(IAtomContainer.class)));
+    }
+
+    @Test public void testCreate_Order() throws Exception {
+        CanonicalSmilesGenerator generator = new CanonicalSmilesGenerator();
+        IAtomContainer molecule = sp.parseSmiles("OC(=O)C1CC(N)C(Cl)CC1");
+        String         smiles   = generator.create(molecule);
+
+        AtomContainerAtomPermutor atomPermutor = new AtomContainerAtomPermutor(molecule);
+        for (int i = 0; i < 200 && atomPermutor.hasNext(); i++)
+            Assert.assertEquals(smiles, generator.create((IAtomContainer) atomPermutor.next()));
+        AtomContainerBondPermutor bondPermutor = new AtomContainerBondPermutor(molecule);
+        for (int i = 0; i < 200 && bondPermutor.hasNext(); i++)
+            Assert.assertEquals(smiles, generator.create((IAtomContainer) bondPermutor.next()));
+
+        // the SMILES is read back to the same molecule
+        Assert.assertEquals(smiles, generator.create(sp.parseSmiles(smiles)));
+    }
+
+    @Test public void testCreate_Aromatic() throws Exception {
+        CanonicalSmilesGenerator generator = new CanonicalSmilesGenerator(true);
+        String phenol = generator.create(sp.parseSmiles("c1ccccc1O"));
+        Assert.assertEquals(phenol, generator.create(sp.parseSmiles("Oc1ccccc1")));
+        Assert.assertEquals(phenol, generator.create(sp.parseSmiles("OC1=CC=CC=C1")));
+        Assert.assertEquals("Oc1ccccc1", phenol);
+        Assert.assertEquals("[nH]1cccc1", generator.create(sp.parseSmiles("c1cc[nH]c1")));
+        Assert.assertEquals("c1ccsc1", generator.create(sp.parseSmiles("s1cccc1")));
+        // the bond between the rings of biphenyl is not aromatic
+        String biphenyl = generator.create(sp.parseSmiles("c1ccccc1c1ccccc1"));
+        Assert.assertTrue(biphenyl.contains("-"));
+        Assert.assertEquals(biphenyl, generator.create(sp.parseSmiles(biphenyl)));
+    }
+
+    @Test public void testCreate_Disconnected() throws Exception {
+        CanonicalSmilesGenerator generator = new CanonicalSmilesGenerator();
+        String smiles = generator.create(sp.parseSmiles("[Na+].[O-]C(=O)C1CC1"));
+        Assert.assertEquals(smiles, generator.create(sp.parseSmiles("C1CC1C(=O)[O-].[Na+]")));
+        Assert.assertEquals(2, smiles.split("\\.").length);
+    }
+
+    @Test public void testGetCanonicalRanks() throws Exception {
+        CanonicalSmilesGenerator generator = new CanonicalSmilesGenerator();
+        int[] ranks = generator.getCanonicalRanks(sp.parseSmiles("CC(C)O"));
+        Set<Integer> unique = new HashSet<Integer>();
+        for (int rank : ranks)
+            unique.add(rank);
+        Assert.assertEquals(4, unique.size());
+        Assert.assertTrue(unique.contains(0) && unique.contains(3));
+    }
+
+    /**
+     * Each of the isomers of C10H16 has its own SMILES.
+     */
+    @Test public void testCreate_Isomers() throws Exception {
+        CanonicalSmilesGenerator generator = new CanonicalSmilesGenerator(true);
+        List<IAtomContainer>     isomers   = readSmiles("data/smiles/c10h16isomers.smi");
+        Set<String>              unique    = new HashSet<String>();
+        for (IAtomContainer isomer : isomers)
+            unique.add(generator.create(isomer));
+        Assert.assertEquals(isomers.size(), unique.size());
+    }
+
+    /**
+     * One generator creates the same SMILES on several threads at once.
+     */
+    @Test public void testCreate_Threads() throws Exception {
+        final CanonicalSmilesGenerator generator = new CanonicalSmilesGenerator(true);
+        final List<IAtomContainer>     drugs     = readSmiles("data/smiles/drugs.smi");
+        List<String> expected = new ArrayList<String>();
+        for (IAtomContainer drug : drugs)
+            expected.add(generator.create(drug));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<Future<List<String>>>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(new Callable<List<String>>() {
+                    public List<String> call() {
+                        List<String> smiles = new ArrayList<String>();
+                        for (IAtomContainer drug : drugs)
+                            smiles.add(generator.create(drug));
+                        return smiles;
+                    }
+                }));
+            }
+            for (Future<List<String>> future : futures)
+                Assert.assertEquals(expected, future.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private List<IAtomContainer> readSmiles(String path) throws Exception {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+            getClass().getClassLoader().getResourceAsStream(path)));
+        List<IAtomContainer> molecules = new ArrayList<IAtomContainer>();
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().length() > 0)
+                    molecules.add(sp.parseSmiles(line.trim().split("\\s+")[0]));
+            }
+        } finally {
+            reader.close();
+        }
+        return molecules;
+    }
+}
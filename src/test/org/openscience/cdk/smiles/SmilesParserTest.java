@@ -20,6 +20,7 @@
  */
 package org.openscience.cdk.smiles;
 
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.List;
 
@@ -2354,6 +2355,88 @@ public class SmilesParserTest extends CDKTestCase {
         Assert.assertEquals(3, clone.getAtom(1).getFormalNeighbourCount().intValue());
     }
 
+    @Test public void testParseGraph() throws Exception {
+        SmilesParser   sp       = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        IAtomContainer molecule = sp.parseGraph("c1ccccc1[NH3+]", DefaultChemObjectBuilder.getInstance().newInstance(IAtomContainer.class));
+        Assert.assertEquals(7, molecule.getAtomCount());
+        Assert.assertEquals(7, molecule.getBondCount());
+        Assert.assertTrue(molecule.getFlag(CDKConstants.SINGLE_OR_DOUBLE));
+        for (int i = 0; i < 6; i++) {
+            IAtom atom = molecule.getAtom(i);
+            Assert.assertEquals("C", atom.getSymbol());
+            Assert.assertNull(atom.getAtomTypeName());
+            Assert.assertNull(atom.getImplicitHydrogenCount());
+            Assert.assertTrue(atom.getFlag(CDKConstants.SINGLE_OR_DOUBLE));
+            Assert.assertFalse(atom.getFlag(CDKConstants.ISAROMATIC));
+        }
+        Assert.assertEquals(3, molecule.getAtom(6).getImplicitHydrogenCount().intValue());
+        Assert.assertEquals(1, molecule.getAtom(6).getFormalCharge().intValue());
+    }
+
+    @Test public void testParseGraph_Reuse() throws Exception {
+        SmilesParser   sp       = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        IAtomContainer molecule = DefaultChemObjectBuilder.getInstance().newInstance(IAtomContainer.class);
+        Assert.assertSame(molecule, sp.parseGraph("N[C@@H](C)c1ccccc1%12.C%12", molecule));
+        Assert.assertEquals(11, molecule.getAtomCount());
+        Assert.assertTrue(molecule.stereoElements().iterator().hasNext());
+        Assert.assertTrue(molecule.getFlag(CDKConstants.SINGLE_OR_DOUBLE));
+
+        sp.parseGraph("CCO", molecule);
+        Assert.assertEquals(3, molecule.getAtomCount());
+        Assert.assertEquals(2, molecule.getBondCount());
+        Assert.assertFalse(molecule.stereoElements().iterator().hasNext());
+        Assert.assertFalse(molecule.getFlag(CDKConstants.SINGLE_OR_DOUBLE));
+
+        // the ring state of a failed parse does not carry over
+        try {
+            sp.parseGraph("C1CC2", molecule);
+            Assert.fail("rings are not closed");
+        } catch (InvalidSmilesException exception) {
+            // expected
+        }
+        sp.parseGraph("C1CC1", molecule);
+        Assert.assertEquals(3, molecule.getBondCount());
+    }
+
+    @Test public void testParseGraph_ByteBuffer() throws Exception {
+        SmilesParser sp     = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        ByteBuffer   buffer = ByteBuffer.wrap("xx CC(=O)[O-] yy".getBytes("US-ASCII"), 3, 10);
+        IAtomContainer molecule = sp.parseGraph(buffer, DefaultChemObjectBuilder.getInstance().newInstance(IAtomContainer.class));
+        Assert.assertEquals(4, molecule.getAtomCount());
+        Assert.assertEquals(-1, molecule.getAtom(3).getFormalCharge().intValue());
+        Assert.assertEquals(3, buffer.position());
+        Assert.assertEquals(13, buffer.limit());
+    }
+
+    /**
+     * The steps after parsing the graph give the same molecule as {@link SmilesParser#parseSmiles(String)}.
+     */
+    @Test public void testParseGraph_Steps() throws Exception {
+        SmilesParser sp = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        for (String smiles : new String[]{"c1ccccc1O", "c1cc[nH]c1", "C1=CC=CC=C1", "[13CH3]C(=O)[O-]",
+                                          "c1ccc2ccccc2c1", "N[C@@H](C)C(=O)O", "[Na+].[Cl-]", "C#N"}) {
+            IAtomContainer expected = sp.parseSmiles(smiles);
+            IAtomContainer actual   = sp.parseGraph(smiles, DefaultChemObjectBuilder.getInstance().newInstance(IAtomContainer.class));
+            sp.perceiveAtomTypes(actual);
+            sp.addImplicitHydrogens(actual);
+            sp.perceiveAromaticity(actual);
+            Assert.assertEquals(expected.getAtomCount(), actual.getAtomCount());
+            for (int i = 0; i < expected.getAtomCount(); i++) {
+                Assert.assertEquals(expected.getAtom(i).getAtomTypeName(), actual.getAtom(i).getAtomTypeName());
+                Assert.assertEquals(expected.getAtom(i).getImplicitHydrogenCount(), actual.getAtom(i).getImplicitHydrogenCount());
+                Assert.assertEquals(expected.getAtom(i).getFlag(CDKConstants.ISAROMATIC),
+                                    actual.getAtom(i).getFlag(CDKConstants.ISAROMATIC));
+            }
+            for (int i = 0; i < expected.getBondCount(); i++) {
+                Assert.assertEquals(expected.getBond(i).getOrder(), actual.getBond(i).getOrder());
+                Assert.assertEquals(expected.getBond(i).getFlag(CDKConstants.ISAROMATIC),
+                                    actual.getBond(i).getFlag(CDKConstants.ISAROMATIC));
+                Assert.assertEquals(expected.getBond(i).getFlag(CDKConstants.SINGLE_OR_DOUBLE),
+                                    actual.getBond(i).getFlag(CDKConstants.SINGLE_OR_DOUBLE));
+            }
+        }
+    }
+
     /**
      * Counts aromatic atoms in a molecule.
      * @param mol molecule for which to count aromatic atoms.
@@ -0,0 +1,105 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.smiles.smarts;
+
+import java.util.BitSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.smiles.SmilesParser;
+
+/**
+ * @cdk.module test-smarts
+ */
+public class SMARTSPatternSetTest extends CDKTestCase {
+
+    private static final String[] PATTERNS = {
+        "C", "c", "[#7]", "C=O", "[CX3](=O)[OX2H1]", "c1ccccc1", "[R]", "[r5]",
+        "C#N", "[N;R]", "[$(C=O)]", "[#6]-!@[#6]", "[OX2H][#6]", "[!#6;!#1]",
+        "[c,n]:[c,n]", "[Cl,Br,I]", "*@*", "[C;!R]=[C;!R]", "N-,=O", "[S;X2]",
+        // recursive parts which leave bonds to atoms outside the query
+        "[CX3;!R;$([C][#6]),$([CH]);$([C](=[SX1])[SX2][#6;!$(C=[O,N,S])])]"
+    };
+
+    private static final String[] MOLECULES = {
+        "CCO", "c1ccccc1O", "CC(=O)O", "C1CCCC1N", "c1ccncc1", "N#CC=CC",
+        "ClCCBr", "CSC", "c1ccc2[nH]ccc2c1", "O=C1NCCC1", "CC(=S)SC"
+    };
+
+    @Test
+    public void testMatches() throws Exception {
+        SmilesParser       sp       = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        SMARTSPatternSet   patterns = new SMARTSPatternSet(PATTERNS, DefaultChemObjectBuilder.getInstance());
+        Assert.assertEquals(PATTERNS.length, patterns.size());
+        for (int i = 0; i < PATTERNS.length; i++)
+            Assert.assertEquals(PATTERNS[i], patterns.getSmarts(i));
+
+        for (String smi : MOLECULES) {
+            IAtomContainer container = sp.parseSmiles(smi);
+            BitSet         present   = patterns.matches(container);
+            for (int i = 0; i < PATTERNS.length; i++) {
+                SMARTSQueryTool sqt = new SMARTSQueryTool(PATTERNS[i], DefaultChemObjectBuilder.getInstance());
+                Assert.assertEquals(PATTERNS[i] + " in " + smi, sqt.matches(container), present.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testDuplicates() throws Exception {
+        SmilesParser     sp       = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        SMARTSPatternSet patterns = new SMARTSPatternSet(new String[]{"C=O", "N", "C=O"},
+                                                         DefaultChemObjectBuilder.getInstance());
+        BitSet present = patterns.matches(sp.parseSmiles("CC(=O)C"));
+        Assert.assertTrue(present.get(0));
+        Assert.assertFalse(present.get(1));
+        Assert.assertTrue(present.get(2));
+    }
+
+    @Test
+    public void testScreen() throws Exception {
+        SmilesParser     sp       = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        SMARTSPatternSet patterns = new SMARTSPatternSet(new String[]{"c1ccccc1", "CCCCCCC", "[#8]~[#8]", "[C,N]#[C,N]"},
+                                                         DefaultChemObjectBuilder.getInstance());
+        Assert.assertEquals(0, patterns.matches(sp.parseSmiles("C1CCCCC1O")).cardinality());
+        BitSet present = patterns.matches(sp.parseSmiles("c1ccccc1OOCCCC#N"));
+        Assert.assertTrue(present.get(0));
+        Assert.assertFalse(present.get(1));
+        Assert.assertTrue(present.get(2));
+        Assert.assertTrue(present.get(3));
+    }
+
+    @Test(expected = CDKException.class)
+    public void testInvalidPattern() throws Exception {
+        new SMARTSPatternSet(new String[]{"C", "Epoxide"}, DefaultChemObjectBuilder.getInstance());
+    }
+
+    @Test
+    public void testPreparedTarget() throws Exception {
+        SmilesParser     sp       = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        SMARTSPatternSet patterns = new SMARTSPatternSet(PATTERNS, DefaultChemObjectBuilder.getInstance());
+        for (String smi : MOLECULES) {
+            IAtomContainer container = sp.parseSmiles(smi);
+            Assert.assertEquals(smi, patterns.matches(container), patterns.matches(new SMARTSTarget(container)));
+        }
+    }
+}
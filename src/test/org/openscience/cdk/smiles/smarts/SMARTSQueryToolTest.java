@@ -203,4 +203,35 @@ public class SMARTSQueryToolTest extends CDKTestCase {
         Assert.assertFalse(matches);
 
     }
+
+    /**
+     * The recursive parts of this query leave bonds to atoms which are not in
+     * the query, it must still be matched.
+     */
+    @Test
+    public void testRecursiveSmartsBondsOutsideQuery() throws Exception {
+        SmilesParser    sp  = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        SMARTSQueryTool sqt = new SMARTSQueryTool("[CX3;!R;$([C][#6]),$([CH]);$([C](=[SX1])[SX2][#6;!$(C=[O,N,S])])]",
+                                                  DefaultChemObjectBuilder.getInstance());
+        Assert.assertTrue(sqt.matches(sp.parseSmiles("CC(=S)SC")));
+        Assert.assertEquals(1, sqt.countMatches());
+        Assert.assertFalse(sqt.matches(sp.parseSmiles("CC(=O)OC")));
+    }
+
+    @Test
+    public void testPreparedTarget() throws Exception {
+        SmilesParser    sp        = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        IAtomContainer  container = sp.parseSmiles("c1ccccc1CC(=O)O");
+        SMARTSTarget    target    = new SMARTSTarget(container);
+        SMARTSQueryTool sqt       = new SMARTSQueryTool("c", DefaultChemObjectBuilder.getInstance());
+        Assert.assertTrue(sqt.matches(target));
+        Assert.assertEquals(6, sqt.countMatches());
+        sqt.setSmarts("[R]!@[C;!R]");
+        Assert.assertTrue(sqt.matches(target));
+        Assert.assertEquals(1, sqt.getUniqueMatchingAtoms().size());
+        sqt.setSmarts("C(=O)[OH]");
+        Assert.assertTrue(sqt.matches(target));
+        sqt.setSmarts("[r5]");
+        Assert.assertFalse(sqt.matches(target));
+    }
 }
@@ -0,0 +1,104 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.smiles.smarts;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.CDKConstants;
+import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IRingSet;
+import org.openscience.cdk.smiles.SmilesParser;
+
+/**
+ * @cdk.module test-smarts
+ */
+public class SMARTSTargetTest extends CDKTestCase {
+
+    private final SmilesParser sp = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+
+    @Test
+    public void testRings() throws Exception {
+        IAtomContainer container = sp.parseSmiles("C1CCCCC1CO");
+        SMARTSTarget   target    = new SMARTSTarget(container);
+        Assert.assertSame(container, target.getAtomContainer());
+        for (int i = 0; i < 6; i++) {
+            Assert.assertTrue(target.isRingAtom(i));
+            Assert.assertEquals(6, target.smallestRingSize(i));
+        }
+        Assert.assertFalse(target.isRingAtom(6));
+        Assert.assertEquals(0, target.smallestRingSize(6));
+        Assert.assertEquals(2, target.ringConnectionCount(0));
+        Assert.assertEquals(1, target.ringConnectionCount(6));
+        Assert.assertEquals(4, target.totalConnectionCount(6));
+        Assert.assertEquals(2, target.totalHydrogenCount(6));
+        Assert.assertEquals(1, target.totalHydrogenCount(7));
+        Assert.assertEquals(4, target.valence(0));
+        Assert.assertEquals(6, target.valence(7));
+        Assert.assertTrue(container.getAtom(0).getFlag(CDKConstants.ISINRING));
+        Assert.assertFalse(container.getAtom(7).getFlag(CDKConstants.ISINRING));
+    }
+
+    @Test
+    public void testFused() throws Exception {
+        // naphthalene, the bridgehead atoms are in two 6 membered rings and
+        // the 10 membered envelope
+        SMARTSTarget target = new SMARTSTarget(sp.parseSmiles("C1=CC=C2C=CC=CC2=C1"));
+        Assert.assertEquals(3, target.rings().length);
+        Assert.assertArrayEquals(new int[]{6, 10}, target.ringSizes(3));
+        Assert.assertArrayEquals(new int[]{6, 10}, target.ringSizes(0));
+        Assert.assertEquals(6, target.smallestRingSize(3));
+        Assert.assertEquals(2, target.sssrCount(3));
+        Assert.assertEquals(1, target.sssrCount(0));
+        for (int[] ring : target.rings())
+            Assert.assertEquals(ring[0], ring[ring.length - 1]);
+    }
+
+    @Test
+    public void testSpiro() throws Exception {
+        IAtomContainer container = sp.parseSmiles("C1CCC2(CC1)CCCC2");
+        SMARTSTarget   target    = new SMARTSTarget(container);
+        Assert.assertEquals(2, target.sssrCount(3));
+        Assert.assertEquals(1, target.sssrCount(0));
+        IRingSet rings = (IRingSet) container.getAtom(3).getProperty(CDKConstants.SMALLEST_RINGS);
+        Assert.assertEquals(2, rings.getAtomContainerCount());
+    }
+
+    @Test
+    public void testBridge() throws Exception {
+        // the bond joining the two rings is not a ring bond
+        IAtomContainer container = sp.parseSmiles("C1CCCCC1C1CCCCC1");
+        SMARTSTarget   target    = new SMARTSTarget(container);
+        for (int i = 0; i < container.getAtomCount(); i++)
+            Assert.assertTrue(target.isRingAtom(i));
+        int bridge = container.getBondNumber(container.getAtom(5), container.getAtom(6));
+        for (int i = 0; i < container.getBondCount(); i++)
+            Assert.assertEquals(i != bridge, target.isRingBond(i));
+        Assert.assertFalse(container.getBond(bridge).getFlag(CDKConstants.ISINRING));
+    }
+
+    @Test
+    public void testAromaticity() throws Exception {
+        IAtomContainer container = sp.parseSmiles("C1=CC=CC=C1");
+        new SMARTSTarget(container);
+        for (int i = 0; i < container.getAtomCount(); i++)
+            Assert.assertTrue(container.getAtom(i).getFlag(CDKConstants.ISAROMATIC));
+    }
+}
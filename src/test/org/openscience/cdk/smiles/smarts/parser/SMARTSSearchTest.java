@@ -1579,8 +1579,9 @@ public class SMARTSSearchTest extends CDKTestCase {
         Assert.assertEquals(0, results[0]);
         Assert.assertEquals(0, results[1]);
 
+        // the aromatic and aliphatic atom can only be matched one way round
         results = match("c-C", "CCc1ccccc1");
-        Assert.assertEquals(2, results[0]);
+        Assert.assertEquals(1, results[0]);
         Assert.assertEquals(1, results[1]);
     }
 
@@ -0,0 +1,118 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.smsd;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.smiles.SmilesParser;
+import org.openscience.cdk.smsd.interfaces.Algorithm;
+
+/**
+ * Unit testing for the {@link AllPairsMCS} class.
+ *
+ * @cdk.module test-smsd
+ * @cdk.require java1.6+
+ */
+public class AllPairsMCSTest {
+
+    private static List<IAtomContainer> molecules() throws CDKException {
+        SmilesParser sp = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        List<IAtomContainer> molecules = new ArrayList<IAtomContainer>();
+        molecules.add(sp.parseSmiles("Nc1ccccc1"));
+        molecules.add(sp.parseSmiles("C\\C=C/Nc1cccc(c1)N(O)\\C=C\\C\\C=C\\C=C/C"));
+        molecules.add(sp.parseSmiles("CCCOCC(C)=C"));
+        molecules.add(sp.parseSmiles("Oc1ccccc1"));
+        return molecules;
+    }
+
+    @Test
+    public void testCompare() throws Exception {
+        List<IAtomContainer> molecules = molecules();
+        AllPairsMCS allPairs = new AllPairsMCS(Algorithm.DEFAULT, true);
+        List<AllPairsMCS.Result> results = allPairs.compare(molecules);
+        Assert.assertEquals(6, results.size());
+        int[][] pairs = {{0, 1}, {0, 2}, {0, 3}, {1, 2}, {1, 3}, {2, 3}};
+        for (int k = 0; k < pairs.length; k++) {
+            AllPairsMCS.Result result = results.get(k);
+            Assert.assertEquals(pairs[k][0], result.getFirst());
+            Assert.assertEquals(pairs[k][1], result.getSecond());
+            Assert.assertFalse(result.isTimeOut());
+            Assert.assertTrue(result.getTime() >= 0);
+
+            Isomorphism comparison = new Isomorphism(Algorithm.DEFAULT, true);
+            comparison.init(molecules.get(pairs[k][0]), molecules.get(pairs[k][1]), true, true);
+            Assert.assertEquals(comparison.getFirstMapping().size(), result.getSize());
+            Assert.assertEquals(comparison.getTanimotoSimilarity(), result.getTanimotoSimilarity(), 0.0001);
+        }
+        // aniline is a substructure of the second molecule
+        Assert.assertEquals(7, results.get(0).getSize());
+        Assert.assertEquals(6, results.get(2).getSize());
+    }
+
+    @Test
+    public void testSetThreads() throws Exception {
+        List<IAtomContainer> molecules = molecules();
+        AllPairsMCS sequential = new AllPairsMCS(Algorithm.DEFAULT, false);
+        AllPairsMCS parallel = new AllPairsMCS(Algorithm.DEFAULT, false);
+        parallel.setThreads(3);
+        List<AllPairsMCS.Result> expected = sequential.compare(molecules);
+        List<AllPairsMCS.Result> actual = parallel.compare(molecules);
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int k = 0; k < expected.size(); k++) {
+            Assert.assertEquals(expected.get(k).getFirst(), actual.get(k).getFirst());
+            Assert.assertEquals(expected.get(k).getSecond(), actual.get(k).getSecond());
+            Assert.assertEquals(expected.get(k).getSize(), actual.get(k).getSize());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetThreads_Zero() {
+        new AllPairsMCS(Algorithm.DEFAULT, true).setThreads(0);
+    }
+
+    @Test
+    public void testSetTimeOut() throws Exception {
+        AllPairsMCS allPairs = new AllPairsMCS(Algorithm.MCSPlus, false);
+        allPairs.setTimeOut(0.5);
+        allPairs.setMaxSteps(0);
+        List<AllPairsMCS.Result> results = allPairs.compare(molecules());
+        Assert.assertEquals(6, results.size());
+        for (AllPairsMCS.Result result : results) {
+            Assert.assertTrue(result.isTimeOut());
+        }
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        AllPairsMCS allPairs = new AllPairsMCS(Algorithm.DEFAULT, true);
+        allPairs.setThreads(2);
+        allPairs.cancel();
+        Assert.assertTrue(allPairs.compare(molecules()).isEmpty());
+    }
+}
@@ -38,6 +38,7 @@ import org.junit.runners.Suite;
  */
 @RunWith(Suite.class)
 @Suite.SuiteClasses({org.openscience.cdk.smsd.SMSDTest.class,
+    org.openscience.cdk.smsd.AllPairsMCSTest.class,
     org.openscience.cdk.smsd.SMSDBondSensitiveTest.class,
     org.openscience.cdk.smsd.SMSDBondInsensitiveTest.class,
     org.openscience.cdk.smsd.global.GlobalSuite.class,
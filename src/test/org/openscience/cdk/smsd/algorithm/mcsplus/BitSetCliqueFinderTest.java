@@ -0,0 +1,117 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.smsd.algorithm.mcsplus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.openscience.cdk.smsd.global.SearchContext;
+
+/**
+ * @cdk.module test-smsd
+ */
+public class BitSetCliqueFinderTest {
+
+    @Test
+    public void testEmptyGraph() {
+        BitSetCliqueFinder finder = new BitSetCliqueFinder(new ArrayList<Integer>(), new ArrayList<Integer>(),
+                new ArrayList<Integer>(), new SearchContext());
+        assertEquals(0, finder.getBestCliqueSize());
+        assertTrue(finder.getMaxCliqueSet().isEmpty());
+    }
+
+    /**
+     * A triangle of c-edges 1-2-3 and the c-edge 3-4, the vertex 5 is only
+     * joined to 4 by a d-edge.
+     */
+    @Test
+    public void testCliques() {
+        List<Integer> nodes = nodes(5);
+        List<Integer> cEdges = Arrays.asList(1, 2, 1, 3, 2, 3, 3, 4);
+        List<Integer> dEdges = Arrays.asList(4, 5);
+        BitSetCliqueFinder finder = new BitSetCliqueFinder(nodes, cEdges, dEdges, new SearchContext());
+        assertEquals(3, finder.getBestCliqueSize());
+        assertEquals(1, finder.getMaxCliqueSet().size());
+        assertEquals(Arrays.asList(1, 2, 3), finder.getMaxCliqueSet().peek());
+    }
+
+    /**
+     * The cliques of random graphs with c-edges and d-edges, with one and
+     * with several threads, are those of {@link BKKCKCF} in the same order.
+     */
+    @Test
+    public void testSameAsBKKCKCF() {
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            int n = 2 + random.nextInt(30);
+            List<Integer> nodes = nodes(n);
+            List<Integer> cEdges = new ArrayList<Integer>();
+            List<Integer> dEdges = new ArrayList<Integer>();
+            for (int u = 1; u <= n; u++) {
+                for (int v = u + 1; v <= n; v++) {
+                    double r = random.nextDouble();
+                    if (r < 0.4) {
+                        cEdges.add(u);
+                        cEdges.add(v);
+                    } else if (r < 0.6) {
+                        dEdges.add(u);
+                        dEdges.add(v);
+                    }
+                }
+            }
+            BKKCKCF expected = new BKKCKCF(nodes, cEdges, dEdges, new SearchContext());
+            BitSetCliqueFinder actual = new BitSetCliqueFinder(nodes, cEdges, dEdges, new SearchContext(), 1 + i % 3);
+            assertEquals(expected.getBestCliqueSize(), actual.getBestCliqueSize());
+            assertEquals(expected.getMaxCliqueSet(), actual.getMaxCliqueSet());
+        }
+    }
+
+    @Test
+    public void testTimeOut() {
+        SearchContext context = new SearchContext(-1, 1);
+        List<Integer> cEdges = Arrays.asList(1, 2, 1, 3, 2, 3);
+        new BitSetCliqueFinder(nodes(3), cEdges, new ArrayList<Integer>(), context);
+        assertTrue(context.isTimeOut());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThreads() {
+        new BitSetCliqueFinder(nodes(1), new ArrayList<Integer>(), new ArrayList<Integer>(), new SearchContext(), 0);
+    }
+
+    private static List<Integer> nodes(int n) {
+        List<Integer> nodes = new ArrayList<Integer>();
+        for (int i = 1; i <= n; i++) {
+            nodes.add(i - 1);
+            nodes.add(i - 1);
+            nodes.add(i);
+        }
+        return nodes;
+    }
+}
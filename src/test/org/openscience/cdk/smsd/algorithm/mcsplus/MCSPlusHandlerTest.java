@@ -230,4 +230,32 @@ public class MCSPlusHandlerTest extends AbstractMCSAlgorithmTest {
 
         assertEquals(7, smsd1.getFirstMapping().size());
     }
+
+    /**
+     * Test of setThreads method, the clique search with several threads
+     * finds the same mapping as with one.
+     * @throws InvalidSmilesException
+     */
+    @Test
+    public void testSetThreads() throws InvalidSmilesException {
+        SmilesParser sp = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        IAtomContainer target = sp.parseSmiles("C\\C=C/Nc1cccc(c1)N(O)\\C=C\\C\\C=C\\C=C/C");
+        IAtomContainer queryac = sp.parseSmiles("Nc1ccccc1");
+
+        MCSPlusHandler single = new MCSPlusHandler();
+        single.set(new MolHandler(queryac, true, true), new MolHandler(target, true, true));
+        single.searchMCS(true);
+
+        MCSPlusHandler parallel = new MCSPlusHandler();
+        parallel.setThreads(3);
+        parallel.set(new MolHandler(queryac, true, true), new MolHandler(target, true, true));
+        parallel.searchMCS(true);
+        assertEquals(single.getAllMapping(), parallel.getAllMapping());
+        assertEquals(7, parallel.getFirstMapping().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetThreads_Zero() {
+        new MCSPlusHandler().setThreads(0);
+    }
 }
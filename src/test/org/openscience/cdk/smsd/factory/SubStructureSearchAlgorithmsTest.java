@@ -32,6 +32,7 @@ import org.openscience.cdk.exception.InvalidSmilesException;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.smiles.SmilesParser;
 import org.openscience.cdk.smsd.Isomorphism;
+import org.openscience.cdk.smsd.global.SearchContext;
 import org.openscience.cdk.smsd.interfaces.Algorithm;
 
 /**
@@ -383,4 +384,58 @@ public class SubStructureSearchAlgorithmsTest {
 
         assertEquals(score, smsd2.getEuclideanDistance(), 0.005);
     }
+
+    /**
+     * Test of isTimeOut method, of class SubStructureSearchAlgorithms.
+     * @throws Exception
+     */
+    @Test
+    public void testIsTimeOut() throws Exception {
+        SmilesParser sp = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        IAtomContainer target = sp.parseSmiles("C\\C=C/Nc1cccc(c1)N(O)\\C=C\\C\\C=C\\C=C/C");
+        IAtomContainer queryac = sp.parseSmiles("Nc1ccccc1");
+
+        Isomorphism smsd1 = new Isomorphism(Algorithm.MCSPlus, false);
+        smsd1.init(queryac, target, true, true);
+        Assert.assertFalse(smsd1.isTimeOut());
+
+        // a budget of no steps stops the search at once
+        Isomorphism smsd2 = new Isomorphism(Algorithm.MCSPlus, false);
+        smsd2.setSearchContext(new SearchContext(-1, 0));
+        smsd2.init(queryac, target, true, true);
+        Assert.assertTrue(smsd2.isTimeOut());
+        smsd2.resetTimeOut();
+        Assert.assertFalse(smsd2.isTimeOut());
+    }
+
+    /**
+     * Test of setSearchContext method, of class SubStructureSearchAlgorithms.
+     * @throws Exception
+     */
+    @Test
+    public void testSetSearchContext() throws Exception {
+        SmilesParser sp = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        IAtomContainer target = sp.parseSmiles("C\\C=C/Nc1cccc(c1)N(O)\\C=C\\C\\C=C\\C=C/C");
+        IAtomContainer queryac = sp.parseSmiles("Nc1ccccc1");
+
+        Isomorphism smsd1 = new Isomorphism(Algorithm.VFLibMCS, true);
+        Assert.assertNull(smsd1.getSearchContext());
+        smsd1.init(queryac, target, true, true);
+
+        SearchContext context = new SearchContext(-1);
+        Isomorphism smsd2 = new Isomorphism(Algorithm.VFLibMCS, true);
+        smsd2.setSearchContext(context);
+        smsd2.init(queryac, target, true, true);
+        Assert.assertSame(context, smsd2.getSearchContext());
+        Assert.assertFalse(smsd2.isTimeOut());
+        assertEquals(smsd1.getFirstMapping().size(), smsd2.getFirstMapping().size());
+        assertEquals(7, smsd2.getFirstMapping().size());
+
+        // a cancelled search stops and reports a timeout
+        context.cancel();
+        Isomorphism smsd3 = new Isomorphism(Algorithm.VFLibMCS, true);
+        smsd3.setSearchContext(context);
+        smsd3.init(queryac, target, true, true);
+        Assert.assertTrue(smsd3.isTimeOut());
+    }
 }
@@ -38,7 +38,8 @@ import org.junit.runners.Suite;
  * @cdk.require java1.6+
  */
 @RunWith(Suite.class)
-@Suite.SuiteClasses({org.openscience.cdk.smsd.global.TimeOutTest.class})
+@Suite.SuiteClasses({org.openscience.cdk.smsd.global.TimeOutTest.class,
+    org.openscience.cdk.smsd.global.SearchContextTest.class})
 public class GlobalSuite {
 
     @BeforeClass
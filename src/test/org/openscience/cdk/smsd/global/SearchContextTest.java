@@ -0,0 +1,84 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.smsd.global;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit testing for the {@link SearchContext} class.
+ *
+ * @cdk.module test-smsd
+ * @cdk.require java1.6+
+ */
+public class SearchContextTest {
+
+    @Test
+    public void testTimeOut() throws Exception {
+        SearchContext unlimited = new SearchContext(-1);
+        Assert.assertEquals(-1, unlimited.getTimeOut(), 0.0001);
+        Assert.assertFalse(unlimited.isTimeOut());
+
+        SearchContext context = new SearchContext(0.0);
+        Assert.assertFalse(context.isTimeOutFlag());
+        Thread.sleep(5);
+        Assert.assertTrue(context.isTimeOut());
+        Assert.assertTrue(context.isTimeOutFlag());
+    }
+
+    @Test
+    public void testStep() {
+        SearchContext context = new SearchContext(-1, 3);
+        Assert.assertEquals(3, context.getMaxSteps());
+        Assert.assertFalse(context.step());
+        Assert.assertFalse(context.step());
+        Assert.assertFalse(context.step());
+        Assert.assertTrue(context.step());
+        Assert.assertEquals(4, context.getSteps());
+        Assert.assertTrue(context.isTimeOut());
+    }
+
+    @Test
+    public void testRestart() {
+        SearchContext context = new SearchContext(-1, 0);
+        Assert.assertTrue(context.step());
+        context.restart();
+        Assert.assertEquals(0, context.getSteps());
+        Assert.assertFalse(context.isTimeOutFlag());
+        Assert.assertFalse(context.isTimeOut());
+        Assert.assertTrue(context.getElapsedTimeInMilliSeconds() >= 0);
+    }
+
+    @Test
+    public void testCancel() {
+        SearchContext context = new SearchContext();
+        Assert.assertFalse(context.isCancelled());
+        Assert.assertFalse(context.step());
+        context.cancel();
+        Assert.assertTrue(context.isCancelled());
+        Assert.assertTrue(context.isTimeOut());
+        // the cancellation survives the restart of the next algorithm
+        context.restart();
+        Assert.assertTrue(context.step());
+    }
+}
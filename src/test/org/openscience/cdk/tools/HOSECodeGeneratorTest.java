@@ -611,5 +611,50 @@ public class HOSECodeGeneratorTest extends CDKTestCase {
   		Assert.assertEquals("Br", ((IAtom)atoms.get(1)).getSymbol());
 	}
 
-}
+  	@Test public void testGetHOSECodes() throws Exception {
+  		String[] result = {
+  		     "C-3;*C*C*C(*C*N,*C,*C/*C,*&,*&,*&/*&)",
+  		     "C-3;*C*C(*C*C,*N/*C*&,*C,*&/*C,*&)",
+  		     "C-3;*C*N(*C,*C/*&*C,*&*C/,*C,*C)",
+  		     "N-3;*C*C(*C*C,*C/*C*&,*C,*&/*C,*&)",
+  		     "C-3;*C*C*N(*C*C,*C,*C/*C,*&,*&,*&/*&)",
+  		     "C-3;*C*C(*C*N,*C/*C*C,*C,*&/*&,*&,*&)",
+  		     "C-3;*C*C(*C,*C/*C*N,*&/*&*C,*C)",
+  		     "C-3;*C*C(*C,*C/*C*C,*&/*&*N,*C)",
+  		     "C-3;*C*C(*C*C,*C/*C*N,*C,*&/*&,*&,*&)"};
+  		IAtomContainer molecule = (new SmilesParser(DefaultChemObjectBuilder.getInstance())).parseSmiles("C1(C=CN2)=C2C=CC=C1");
+  		Assert.assertArrayEquals(result, new HOSECodeGenerator().getHOSECodes(molecule, 4));
+  	}
+
+  	/**
+  	 * The codes of all atoms are the same as the codes of each atom, with
+  	 * explicit hydrogens, charges and any number of spheres.
+  	 */
+  	@Test public void testGetHOSECodes_EachAtom() throws Exception {
+  		SmilesParser parser = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+  		for (String smiles : new String[]{"CC(=O)Oc1ccccc1C(O)=O", "C[N+](C)(C)CC([O-])=O", "C#CC1CC2CCC1C2Br",
+  		                                  "[H]C([H])([H])C([H])=C([H])Br", "c1ccc2[nH]ccc2c1", "C"}) {
+  			IAtomContainer molecule = parser.parseSmiles(smiles);
+  			AtomContainerManipulator.percieveAtomTypesAndConfigureAtoms(molecule);
+  			CDKHueckelAromaticityDetector.detectAromaticity(molecule);
+  			HOSECodeGenerator hcg = new HOSECodeGenerator();
+  			for (int spheres = 0; spheres <= 6; spheres++) {
+  				String[] codes = hcg.getHOSECodes(molecule, spheres);
+  				Assert.assertEquals(molecule.getAtomCount(), codes.length);
+  				for (int i = 0; i < codes.length; i++)
+  					Assert.assertEquals(hcg.getHOSECode(molecule, molecule.getAtom(i), spheres), codes[i]);
+  			}
+  		}
+  	}
 
+  	@Test public void testGetHOSECodes_Ringsize() throws Exception {
+  		IAtomContainer molecule = (new SmilesParser(DefaultChemObjectBuilder.getInstance())).parseSmiles("C1CC1C2CCCCC2");
+  		HOSECodeGenerator hcg = new HOSECodeGenerator();
+  		String[] codes = hcg.getHOSECodes(molecule, 2, true);
+  		for (int i = 0; i < codes.length; i++)
+  			Assert.assertEquals(hcg.getHOSECode(molecule, molecule.getAtom(i), 2, true), codes[i]);
+  		Assert.assertEquals("C-4-3;CC(C&,&//)", codes[0]);
+  		Assert.assertEquals("C-4-6;CC(CC,C//)", codes[4]);
+  	}
+
+}
@@ -0,0 +1,157 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.tools;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.smiles.SmilesParser;
+
+/**
+ * @cdk.module test-extra
+ */
+public class HOSECodeShiftIndexTest extends CDKTestCase {
+
+    private static IAtomContainer parse(String smiles) throws Exception {
+        return new SmilesParser(DefaultChemObjectBuilder.getInstance()).parseSmiles(smiles);
+    }
+
+    @Test
+    public void testGetSphereCount() {
+        Assert.assertEquals(1, HOSECodeShiftIndex.getSphereCount("CC(//)"));
+        Assert.assertEquals(1, HOSECodeShiftIndex.getSphereCount("C-4;CC(//)"));
+        Assert.assertEquals(1, HOSECodeShiftIndex.getSphereCount("C-4;(//)"));
+        Assert.assertEquals(2, HOSECodeShiftIndex.getSphereCount("C-3;=CC(Y,//)"));
+        Assert.assertEquals(3, HOSECodeShiftIndex.getSphereCount("C-4;C(=C/Y/)"));
+        Assert.assertEquals(4, HOSECodeShiftIndex.getSphereCount("C-3;*C*C(*C*C,*N/*C*&,*C,*&/*C,*&)"));
+        Assert.assertEquals(4, HOSECodeShiftIndex.getSphereCount("C-3;*C*C(*C,*C/*C*N,*&/*&*C,*C)"));
+        Assert.assertEquals(5, HOSECodeShiftIndex.getSphereCount("C-4;C(C/C/C)C/"));
+    }
+
+    @Test
+    public void testTruncate() throws Exception {
+        IAtomContainer molecule = parse("C1(C=CN2)=C2C=CC=C1");
+        String[] four = new HOSECodeGenerator().getHOSECodes(molecule, 4);
+        for (int spheres = 1; spheres < 4; spheres++) {
+            String[] fewer = new HOSECodeGenerator().getHOSECodes(molecule, spheres);
+            for (int i = 0; i < four.length; i++)
+                Assert.assertEquals(fewer[i], HOSECodeShiftIndex.truncate(four[i], spheres));
+        }
+        Assert.assertEquals("C-4;C(//)", HOSECodeShiftIndex.truncate("C-4;C(=C/Y/)", 1));
+        Assert.assertEquals("C-4;C(=C/Y/)", HOSECodeShiftIndex.truncate("C-4;C(=C/Y/)", 6));
+    }
+
+    @Test
+    public void testAdd_String() {
+        HOSECodeShiftIndex index = new HOSECodeShiftIndex();
+        index.add("C-4;C(=C/Y/)", 20);
+        Assert.assertEquals(3, index.size());
+        index.add("C-4;C(=C/C/)", 30);
+        Assert.assertEquals(4, index.size());
+        Assert.assertEquals(25, index.find("C-4;C(//)").getShift(), 1e-9);
+        Assert.assertEquals(2, index.find("C-4;C(//)").getCount());
+        Assert.assertEquals(25, index.find("C-4;C(=C//)").getShift(), 1e-9);
+        Assert.assertEquals(20, index.find("C-4;C(=C/Y/)").getShift(), 1e-9);
+    }
+
+    @Test
+    public void testFind() {
+        HOSECodeShiftIndex index = new HOSECodeShiftIndex();
+        index.add("C-4;C(=C/Y/)", 20);
+        index.add("C-4;C(=C/C/)", 30);
+        index.add("C-4;C(=C/C/)", 34);
+
+        HOSECodeShiftIndex.ShiftRange range = index.find("C-4;C(=C/C/)");
+        Assert.assertEquals("C-4;C(=C/C/)", range.getCode());
+        Assert.assertEquals(3, range.getSpheres());
+        Assert.assertEquals(2, range.getCount());
+        Assert.assertEquals(32, range.getShift(), 1e-9);
+        Assert.assertEquals(30, range.getMinShift(), 0);
+        Assert.assertEquals(34, range.getMaxShift(), 0);
+        Assert.assertEquals(Math.sqrt(8), range.getStandardDeviation(), 1e-9);
+
+        // falls back to the two spheres all codes share
+        range = index.find("C-4;C(=C/X/)");
+        Assert.assertEquals("C-4;C(=C//)", range.getCode());
+        Assert.assertEquals(28, range.getShift(), 1e-9);
+        Assert.assertEquals(0, index.find("C-4;C(=C/Y/)").getStandardDeviation(), 0);
+
+        Assert.assertEquals("C-4;C(//)", index.find("C-4;C(C/C/)").getCode());
+        Assert.assertNull(index.find("C-4;O(C//)"));
+    }
+
+    @Test
+    public void testPredict_String() throws Exception {
+        HOSECodeShiftIndex index = new HOSECodeShiftIndex();
+        index.add("CC(//)", 29.6);
+        Assert.assertEquals(29.6, index.predict("CC(C,C//)"), 1e-9);
+    }
+
+    @Test(expected = CDKException.class)
+    public void testPredict_String_Unknown() throws Exception {
+        new HOSECodeShiftIndex().predict("CC(//)");
+    }
+
+    @Test
+    public void testAdd_IAtomContainer() throws Exception {
+        HOSECodeShiftIndex index = new HOSECodeShiftIndex(3);
+        Assert.assertEquals(3, index.getMaxSpheres());
+        IAtomContainer ethanol = parse("CCO");
+        index.add(ethanol, new double[]{18.4, 58.0, Double.NaN});
+        String[] codes = new HOSECodeGenerator().getHOSECodes(ethanol, 3);
+        Assert.assertEquals(18.4, index.predict(codes[0]), 1e-9);
+        Assert.assertEquals(58.0, index.predict(codes[1]), 1e-9);
+        Assert.assertNull(index.find(codes[2]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAdd_IAtomContainer_MissingShifts() throws Exception {
+        new HOSECodeShiftIndex().add(parse("CCO"), new double[2]);
+    }
+
+    @Test
+    public void testPredict_IAtomContainer() throws Exception {
+        HOSECodeShiftIndex index = new HOSECodeShiftIndex();
+        index.add(parse("CCO"), new double[]{18.4, 58.0, Double.NaN});
+        index.add(parse("CCCO"), new double[]{10.3, 26.1, 64.2, Double.NaN});
+
+        double[] shifts = index.predict(parse("CCCCO"));
+        Assert.assertEquals(5, shifts.length);
+        // the CH2 next to the O shares three spheres with propanol
+        Assert.assertEquals(64.2, shifts[3], 1e-9);
+        // the CH3 shares two spheres with propanol
+        Assert.assertEquals(10.3, shifts[0], 1e-9);
+        Assert.assertTrue(Double.isNaN(shifts[4]));
+        for (int i = 0; i < 4; i++)
+            Assert.assertFalse(Double.isNaN(shifts[i]));
+
+        // a molecule that was added gets its own shifts
+        shifts = index.predict(parse("CCCO"));
+        Assert.assertEquals(10.3, shifts[0], 1e-9);
+        Assert.assertEquals(26.1, shifts[1], 1e-9);
+        Assert.assertEquals(64.2, shifts[2], 1e-9);
+    }
+}
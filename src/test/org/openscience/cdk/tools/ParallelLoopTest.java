@@ -0,0 +1,136 @@
+/* Copyright (C) 2013  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.tools;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @cdk.module test-core
+ */
+public class ParallelLoopTest {
+
+    /**
+     * Each index is run once, with one and with several threads.
+     */
+    @Test public void testForEach() {
+        for (int threads = 1; threads <= 4; threads++) {
+            final AtomicIntegerArray runs = new AtomicIntegerArray(1000);
+            ParallelLoop.forEach(runs.length(), threads, "test", new ParallelLoop.Body<RuntimeException>() {
+                public void run(int index) {
+                    runs.incrementAndGet(index);
+                }
+            });
+            for (int i = 0; i < runs.length(); i++)
+                Assert.assertEquals(1, runs.get(i));
+        }
+    }
+
+    /**
+     * The exception of the body is thrown as it is and no further indices
+     * are handed out.
+     */
+    @Test public void testForEach_Exception() throws Exception {
+        final AtomicInteger runs    = new AtomicInteger();
+        final IOException   failure = new IOException("index 10");
+        try {
+            ParallelLoop.forEach(1000, 4, "test", new ParallelLoop.Body<IOException>() {
+                public void run(int index) throws IOException {
+                    runs.incrementAndGet();
+                    if (index == 10)
+                        throw failure;
+                }
+            });
+            Assert.fail("the exception of the body was not thrown");
+        } catch (IOException exception) {
+            Assert.assertSame(failure, exception);
+        }
+        Assert.assertTrue(runs.get() < 1000);
+    }
+
+    @Test public void testForEach_Pool() {
+        ExecutorService pool = ParallelLoop.newPool(3, "test");
+        try {
+            final AtomicIntegerArray runs = new AtomicIntegerArray(100);
+            for (int loop = 0; loop < 2; loop++) {
+                ParallelLoop.forEach(runs.length(), pool, 3, new ParallelLoop.Body<RuntimeException>() {
+                    public void run(int index) {
+                        runs.incrementAndGet(index);
+                    }
+                });
+            }
+            Assert.assertFalse(pool.isShutdown());
+            for (int i = 0; i < runs.length(); i++)
+                Assert.assertEquals(2, runs.get(i));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test public void testNewPool() throws Exception {
+        ExecutorService pool = ParallelLoop.newPool(2, "test-pool");
+        try {
+            Thread thread = pool.submit(new Callable<Thread>() {
+                public Thread call() {
+                    return Thread.currentThread();
+                }
+            }).get();
+            Assert.assertTrue(thread.isDaemon());
+            Assert.assertEquals("test-pool", thread.getName());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test public void testGet() throws Exception {
+        ExecutorService pool = ParallelLoop.newPool(1, "test");
+        try {
+            Future<String> result = pool.submit(new Callable<String>() {
+                public String call() {
+                    return "done";
+                }
+            });
+            Assert.assertEquals("done", ParallelLoop.get(result, IOException.class));
+            Future<String> failed = pool.submit(new Callable<String>() {
+                public String call() throws IOException {
+                    throw new IOException("failed");
+                }
+            });
+            try {
+                ParallelLoop.get(failed, IOException.class);
+                Assert.fail("the exception of the task was not thrown");
+            } catch (IOException exception) {
+                Assert.assertEquals("failed", exception.getMessage());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
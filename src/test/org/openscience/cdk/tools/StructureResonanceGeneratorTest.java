@@ -1542,6 +1542,103 @@ public class StructureResonanceGeneratorTest  extends CDKTestCase{
 		Assert.assertEquals(1,gRI.getMaximalStructures());
 		
 	}
+
+	/**
+	 * A unit test suite for JUnit: the resonance structures of aniline with
+	 * the reactions applied by several threads.
+	 */
+	@Test public void testSetThreads_int() throws Exception {
+		IAtomContainer molecule = builder.newInstance(IAtomContainer.class);
+		molecule.addAtom(builder.newInstance(IAtom.class,"N"));
+		molecule.addAtom(builder.newInstance(IAtom.class,"C"));
+		molecule.addBond(0, 1, IBond.Order.SINGLE);
+		molecule.addAtom(builder.newInstance(IAtom.class,"C"));
+		molecule.addBond(1, 2, IBond.Order.DOUBLE);
+		molecule.addAtom(builder.newInstance(IAtom.class,"C"));
+		molecule.addBond(2, 3, IBond.Order.SINGLE);
+		molecule.addAtom(builder.newInstance(IAtom.class,"C"));
+		molecule.addBond(3, 4, IBond.Order.DOUBLE);
+		molecule.addAtom(builder.newInstance(IAtom.class,"C"));
+		molecule.addBond(4, 5, IBond.Order.SINGLE);
+		molecule.addAtom(builder.newInstance(IAtom.class,"C"));
+		molecule.addBond(5, 6, IBond.Order.DOUBLE);
+		molecule.addBond(6, 1, IBond.Order.SINGLE);
+		addExplicitHydrogens(molecule);
+		AtomContainerManipulator.percieveAtomTypesAndConfigureAtoms(molecule);
+		lpcheck.saturate(molecule);
+
+		StructureResonanceGenerator gRI = new StructureResonanceGenerator();
+		gRI.setThreads(3);
+		IAtomContainerSet setOfMolecules = gRI.getStructures(molecule);
+
+		Assert.assertEquals(5,setOfMolecules.getAtomContainerCount());
+		for (int i = 1; i < setOfMolecules.getAtomContainerCount(); i++)
+			Assert.assertEquals(molecule.getAtomCount(), setOfMolecules.getAtomContainer(i).getAtomCount());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testSetThreads_Zero() throws Exception {
+		new StructureResonanceGenerator().setThreads(0);
+	}
+
+	/**
+	 * The reactive centers set on C-C=C-[C+]-C-C=C-[C+] give the same
+	 * structures with several threads as with one.
+	 */
+	@Test public void testSetThreads_ReactiveCenter() throws Exception {
+		for (Boolean center : new Boolean[]{Boolean.TRUE, Boolean.FALSE}) {
+			IAtomContainerSet serial = getCationStructures(1, center);
+			IAtomContainerSet parallel = getCationStructures(3, center);
+
+			Assert.assertEquals(serial.getAtomContainerCount(), parallel.getAtomContainerCount());
+			for (IAtomContainer structure : parallel.atomContainers()) {
+				QueryAtomContainer qAC = QueryAtomContainerCreator.createSymbolAndChargeQueryContainer(structure);
+				boolean found = false;
+				for (IAtomContainer other : serial.atomContainers())
+					found |= new UniversalIsomorphismTester().isIsomorph(other, qAC);
+				Assert.assertTrue(found);
+			}
+		}
+	}
+
+	private IAtomContainerSet getCationStructures(int threads, Boolean center) throws Exception {
+		IAtomContainer molecule = builder.newInstance(IAtomContainer.class);
+		molecule.addAtom(new Atom("C"));
+		molecule.addAtom(new Atom("C"));
+		molecule.addBond(0, 1, IBond.Order.SINGLE);
+		molecule.addAtom(new Atom("C"));
+		molecule.addBond(1, 2, IBond.Order.DOUBLE);
+		molecule.addAtom(new Atom("C"));
+		molecule.getAtom(3).setFormalCharge(+1);
+		molecule.addBond(2, 3, IBond.Order.SINGLE);
+		molecule.addAtom(new Atom("C"));
+		molecule.addBond(3, 4, IBond.Order.SINGLE);
+		molecule.addAtom(new Atom("C"));
+		molecule.addBond(4, 5, IBond.Order.SINGLE);
+		molecule.addAtom(new Atom("C"));
+		molecule.addBond(5, 6, IBond.Order.DOUBLE);
+		molecule.addAtom(new Atom("C"));
+		molecule.addBond(6, 7, IBond.Order.SINGLE);
+		molecule.getAtom(7).setFormalCharge(+1);
+		addExplicitHydrogens(molecule);
+
+		molecule.getAtom(1).setFlag(CDKConstants.REACTIVE_CENTER,true);
+		molecule.getBond(1).setFlag(CDKConstants.REACTIVE_CENTER,true);
+		molecule.getAtom(2).setFlag(CDKConstants.REACTIVE_CENTER,true);
+		molecule.getBond(2).setFlag(CDKConstants.REACTIVE_CENTER,true);
+		molecule.getAtom(3).setFlag(CDKConstants.REACTIVE_CENTER,true);
+
+		List<IParameterReact> paramList = new ArrayList<IParameterReact>();
+		IParameterReact param = new SetReactionCenter();
+		param.setParameter(center);
+		paramList.add(param);
+
+		StructureResonanceGenerator sRG = new StructureResonanceGenerator();
+		for (IReactionProcess reaction : sRG.getReactions())
+			reaction.setParameterList(paramList);
+		sRG.setThreads(threads);
+		return sRG.getStructures(molecule);
+	}
 	
 	/**
 	 * A unit test suite for JUnit: c1ccccc1CN
@@ -25,6 +25,7 @@ package org.openscience.cdk.tools.manipulator;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.Assert;
@@ -39,6 +40,7 @@ import org.openscience.cdk.CDKTestCase;
 import org.openscience.cdk.ChemFile;
 import org.openscience.cdk.DefaultChemObjectBuilder;
 import org.openscience.cdk.config.IsotopeFactory;
+import org.openscience.cdk.event.ChemObjectChangeSetEvent;
 import org.openscience.cdk.exception.CDKException;
 import org.openscience.cdk.exception.InvalidSmilesException;
 import org.openscience.cdk.interfaces.IAtom;
@@ -47,6 +49,8 @@ import org.openscience.cdk.interfaces.IAtomParity;
 import org.openscience.cdk.interfaces.IAtomType;
 import org.openscience.cdk.interfaces.IBond;
 import org.openscience.cdk.interfaces.IChemObjectBuilder;
+import org.openscience.cdk.interfaces.IChemObjectChangeEvent;
+import org.openscience.cdk.interfaces.IChemObjectListener;
 import org.openscience.cdk.interfaces.IElement;
 import org.openscience.cdk.interfaces.ITetrahedralChirality;
 import org.openscience.cdk.io.ISimpleChemObjectReader;
@@ -138,6 +142,27 @@ public class AtomContainerManipulatorTest extends CDKTestCase {
         Assert.assertEquals(7, mol.getBondCount());
     }
 
+    @Test
+    public void testConvertImplicitToExplicitHydrogens_Notification() throws Exception {
+        IAtomContainer mol = new AtomContainer(); // ethane
+        mol.addAtom(new Atom("C"));
+        mol.addAtom(new Atom("C"));
+        mol.getAtom(0).setImplicitHydrogenCount(3);
+        mol.getAtom(1).setImplicitHydrogenCount(3);
+        mol.addBond(0, 1, CDKConstants.BONDORDER_SINGLE);
+        final List<IChemObjectChangeEvent> events = new ArrayList<IChemObjectChangeEvent>();
+        mol.addListener(new IChemObjectListener() {
+            public void stateChanged(IChemObjectChangeEvent event) {
+                events.add(event);
+            }
+        });
+
+        AtomContainerManipulator.convertImplicitToExplicitHydrogens(mol);
+        Assert.assertEquals(8, mol.getAtomCount());
+        Assert.assertEquals(1, events.size());
+        Assert.assertTrue(events.get(0) instanceof ChemObjectChangeSetEvent);
+    }
+
 
         
     @Test public void testGetTotalHydrogenCount_IAtomContainer_zeroImplicit() throws IOException, ClassNotFoundException, CDKException {